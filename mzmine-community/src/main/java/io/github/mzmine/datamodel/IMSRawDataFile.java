@@ -27,6 +27,7 @@ package io.github.mzmine.datamodel;
 
 import com.google.common.collect.Range;
 import io.github.mzmine.modules.dataprocessing.id_ccscalibration.CCSCalibration;
+import io.github.mzmine.modules.visualization.rawdataoverviewims.IMSRawDataOverviewPyramid;
 import it.unimi.dsi.fastutil.doubles.DoubleImmutableList;
 import java.util.List;
 import org.jetbrains.annotations.NotNull;
@@ -129,6 +130,16 @@ public interface IMSRawDataFile extends RawDataFile {
 
   void setCCSCalibration(@Nullable CCSCalibration calibration);
 
+  /**
+   * @return the multi-resolution overview of the MS1 frames or null if it was not built yet
+   */
+  @Nullable IMSRawDataOverviewPyramid getOverviewPyramid();
+
+  /**
+   * The overview is kept with the data file and released together with it
+   */
+  void setOverviewPyramid(@Nullable IMSRawDataOverviewPyramid pyramid);
+
   int addMobilityValues(double[] mobilities);
 
   DoubleImmutableList getSegmentMobilities(int segment);
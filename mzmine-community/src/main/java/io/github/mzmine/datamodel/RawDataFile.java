@@ -29,6 +29,8 @@ import static java.util.Objects.requireNonNullElse;
 
 import com.google.common.collect.Range;
 import io.github.mzmine.datamodel.features.FeatureList.FeatureListAppliedMethod;
+import io.github.mzmine.datamodel.impl.ScanHeaderDictionary;
+import io.github.mzmine.datamodel.impl.ScanMetadataIndex;
 import io.github.mzmine.datamodel.otherdetectors.OtherDataFile;
 import io.github.mzmine.project.impl.RawDataFileImpl;
 import io.github.mzmine.util.MemoryMapStorage;
@@ -310,6 +312,26 @@ public interface RawDataFile {
     return getScans().stream();
   }
 
+  /**
+   * Columnar index of the scan metadata used to resolve
+   * {@link io.github.mzmine.parameters.parametertypes.selectors.ScanSelection}s. Implementations
+   * that support the index drop it whenever scans are added or removed.
+   *
+   * @return the index or null if not supported by this implementation
+   */
+  default @Nullable ScanMetadataIndex getScanMetadataIndex() {
+    return null;
+  }
+
+  /**
+   * Shared scan header values (scan definitions, scanning m/z ranges) of the scans of this file.
+   *
+   * @return the dictionary or null if not supported by this implementation
+   */
+  default @Nullable ScanHeaderDictionary getScanHeaderDictionary() {
+    return null;
+  }
+
   /**
    * Mass list has changed. reset all precomputed values
    *
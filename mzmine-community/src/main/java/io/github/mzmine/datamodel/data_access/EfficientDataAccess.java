@@ -31,6 +31,7 @@ import io.github.mzmine.datamodel.RawDataFile;
 import io.github.mzmine.datamodel.Scan;
 import io.github.mzmine.datamodel.featuredata.IonMobilogramTimeSeries;
 import io.github.mzmine.datamodel.features.FeatureList;
+import io.github.mzmine.datamodel.features.FeatureListRow;
 import io.github.mzmine.parameters.parametertypes.selectors.ScanSelection;
 import java.util.List;
 import org.jetbrains.annotations.NotNull;
@@ -110,6 +111,23 @@ public class EfficientDataAccess {
     };
   }
 
+  /**
+   * Access the chromatographic data of a subset of rows. Each thread can use its own data access to
+   * process chunks of a feature list in parallel.
+   *
+   * @param flist    target feature list
+   * @param type     defines the data accession type
+   * @param dataFile loops through all features of this data file
+   * @param rows     the subset of rows of the feature list
+   */
+  public static FeatureDataAccess of(FeatureList flist, FeatureDataType type,
+      @NotNull RawDataFile dataFile, @NotNull List<FeatureListRow> rows) {
+    return switch (type) {
+      case ONLY_DETECTED -> new FeatureDetectedDataAccess(flist, dataFile, rows);
+      case INCLUDE_ZEROS -> new FeatureFullDataAccess(flist, dataFile, rows);
+    };
+  }
+
   public static MobilogramDataAccess of(final IonMobilogramTimeSeries ionTrace,
       final MobilogramAccessType accessType) {
     return new MobilogramDataAccess(ionTrace, accessType);
@@ -91,14 +91,41 @@ public abstract class FeatureDataAccess implements IonTimeSeries<Scan> {
    * @param dataFile define the data file in an aligned feature list
    */
   protected FeatureDataAccess(FeatureList flist, @Nullable RawDataFile dataFile) {
+    this(flist, dataFile, null);
+  }
+
+  /**
+   * Access the chromatographic data of features in a feature list sorted by scan ID (usually sorted
+   * by retention time)
+   *
+   * @param flist    target feature list. Loops through all features in dataFile
+   * @param dataFile define the data file in an aligned feature list
+   * @param subset   only loop over these rows of the feature list, e.g., to process chunks in
+   *                 parallel. Requires a dataFile. null to use all rows
+   */
+  protected FeatureDataAccess(FeatureList flist, @Nullable RawDataFile dataFile,
+      @Nullable List<FeatureListRow> subset) {
     this.flist = flist;
     this.dataFile = dataFile;
 
     // set rows and number of features
     int totalFeatures = 0;
     List<FeatureListRow> allRows = flist.getRows();
+    if (subset != null) {
+      if (dataFile == null) {
+        throw new IllegalArgumentException("Define a data file to access a subset of rows");
+      }
+      List<FeatureListRow> result = new ArrayList<>();
+      for (FeatureListRow row : subset) {
+        if (row.hasFeature(dataFile)) {
+          result.add(row);
+          totalFeatures++;
+        }
+      }
+      this.rows = Collections.unmodifiableList(result);
+    }
     // handle aligned flist
-    if (flist.getNumberOfRawDataFiles() > 1) {
+    else if (flist.getNumberOfRawDataFiles() > 1) {
       if (dataFile != null) {
         List<FeatureListRow> result = new ArrayList<>();
         for (FeatureListRow row : allRows) {
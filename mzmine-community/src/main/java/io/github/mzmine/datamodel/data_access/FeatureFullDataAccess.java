@@ -30,6 +30,7 @@ import io.github.mzmine.datamodel.Scan;
 import io.github.mzmine.datamodel.featuredata.IonTimeSeries;
 import io.github.mzmine.datamodel.features.Feature;
 import io.github.mzmine.datamodel.features.FeatureList;
+import io.github.mzmine.datamodel.features.FeatureListRow;
 import java.util.Arrays;
 import java.util.List;
 import org.jetbrains.annotations.Nullable;
@@ -79,7 +80,20 @@ public class FeatureFullDataAccess extends FeatureDataAccess {
    * @param dataFile define the data file in an aligned feature list
    */
   protected FeatureFullDataAccess(FeatureList flist, @Nullable RawDataFile dataFile) {
-    super(flist, dataFile);
+    this(flist, dataFile, null);
+  }
+
+  /**
+   * Full data access for a subset of rows, see
+   * {@link #FeatureFullDataAccess(FeatureList, RawDataFile)}
+   *
+   * @param flist    target feature list. Loops through all features in dataFile
+   * @param dataFile define the data file in an aligned feature list
+   * @param subset   only loop over these rows. Requires a dataFile. null to use all rows
+   */
+  protected FeatureFullDataAccess(FeatureList flist, @Nullable RawDataFile dataFile,
+      @Nullable List<FeatureListRow> subset) {
+    super(flist, dataFile, subset);
 
     // return all scans that were used to create the chromatograms in the first place
     int max = 0;
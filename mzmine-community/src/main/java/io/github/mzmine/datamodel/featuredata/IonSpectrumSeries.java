@@ -27,6 +27,7 @@ package io.github.mzmine.datamodel.featuredata;
 
 import io.github.mzmine.datamodel.MassSpectrum;
 import io.github.mzmine.datamodel.RawDataFile;
+import io.github.mzmine.datamodel.featuredata.impl.ScanIndexList;
 import io.github.mzmine.modules.io.projectload.version_3_0.CONST;
 import io.github.mzmine.util.MemoryMapStorage;
 import io.github.mzmine.util.ParsingUtils;
@@ -59,7 +60,12 @@ public interface IonSpectrumSeries<T extends MassSpectrum> extends IonSeries {
       IonSpectrumSeries<T> series, List<T> allScans) throws XMLStreamException {
     writer.writeStartElement(CONST.XML_SCAN_LIST_ELEMENT);
     writer.writeAttribute(CONST.XML_NUM_VALUES_ATTR, String.valueOf(series.getNumberOfValues()));
-    final int[] indices = ParsingUtils.getIndicesOfSubListElements(series.getSpectra(), allScans);
+    final List<T> spectra = series.getSpectra();
+    // compact series already store the indices into the scans of the raw data file
+    final int[] indices =
+        spectra instanceof ScanIndexList<?> indexList && indexList.isIndexedIn(allScans)
+            ? indexList.toScanIndices()
+            : ParsingUtils.getIndicesOfSubListElements(spectra, allScans);
     writer.writeCharacters(ParsingUtils.intArrayToString(indices, indices.length));
     writer.writeEndElement();
   }
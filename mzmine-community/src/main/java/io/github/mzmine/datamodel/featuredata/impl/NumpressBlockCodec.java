@@ -0,0 +1,318 @@
+/*
+ * Copyright (c) 2004-2025 The mzmine Development Team
+ *
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+
+package io.github.mzmine.datamodel.featuredata.impl;
+
+import io.github.mzmine.modules.io.import_rawdata_mzml.msdk.util.MSNumpress;
+import io.github.mzmine.util.MemoryMapStorage;
+import java.lang.foreign.MemorySegment;
+import java.lang.foreign.ValueLayout;
+import java.lang.ref.WeakReference;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * Stores double arrays numpress encoded in blocks of {@link #BLOCK_SIZE} values. Every block is
+ * encoded independently, so single values can be accessed by decoding only the block they are
+ * located in. The {@link #CURSORS_PER_TYPE} most recently decoded blocks are cached per
+ * thread, so iterating a spectrum value by value, or interleaved access to the m/z and intensity
+ * values of a few spectra, decodes every block only once. Cached blocks are identified by the
+ * address and size of the encoded segment and only weakly reference its memory, so the thread local
+ * caches never keep released storage alive.
+ * <p>
+ * MemoryMapStorage only stores primitive number arrays, therefore the encoded bytes are packed into
+ * an int array with the layout: [type, number of values, number of blocks, block byte offsets
+ * (number of blocks + 1), packed bytes...].
+ */
+public final class NumpressBlockCodec {
+
+  /**
+   * Number of values per independently encoded block
+   */
+  public static final int BLOCK_SIZE = 64;
+
+  /**
+   * Maximum fixed point for m/z values. Values are stored with an absolute error of at most 0.5 /
+   * fixed point, so 5E-6 for m/z values.
+   */
+  public static final double MZ_FIXED_POINT = 1E5;
+
+  private static final int TYPE_LINEAR = 0;
+  private static final int TYPE_SLOF = 1;
+  private static final int HEADER = 3;
+
+  // numpress linear: 8 byte fixed point + 2 x 4 byte + at most 9 half bytes per residual
+  private static final int MAX_BLOCK_BYTES = 16 + BLOCK_SIZE * 5;
+
+  /**
+   * Number of decoded blocks that are cached per thread and type
+   */
+  private static final int CURSORS_PER_TYPE = 4;
+
+  private static final ThreadLocal<BlockCursors[]> cursors = ThreadLocal.withInitial(
+      () -> new BlockCursors[]{new BlockCursors(), new BlockCursors()});
+
+  private NumpressBlockCodec() {
+  }
+
+  /**
+   * Encodes sorted values with numpress linear prediction. Suitable for m/z values.
+   *
+   * @param maxFixedPoint the maximum fixed point used to scale the values. The absolute error is
+   *                      bounded by 0.5 / fixed point, lower fixed points are only used if
+   *                      required to not overflow the numpress integer range.
+   */
+  @NotNull
+  public static MemorySegment encodeLinear(@Nullable MemoryMapStorage storage,
+      @NotNull double[] values, double maxFixedPoint) {
+    return encode(storage, values, TYPE_LINEAR, maxFixedPoint);
+  }
+
+  /**
+   * Encodes positive values with numpress short logged float (2 bytes per value). Suitable for
+   * intensity values, the relative error is ~1E-4.
+   */
+  @NotNull
+  public static MemorySegment encodeSlof(@Nullable MemoryMapStorage storage,
+      @NotNull double[] values) {
+    return encode(storage, values, TYPE_SLOF, Double.MAX_VALUE);
+  }
+
+  /**
+   * @return true if all values can be encoded with {@link #encodeSlof(MemoryMapStorage, double[])}
+   */
+  public static boolean canEncodeSlof(@NotNull double[] values) {
+    for (double v : values) {
+      if (!(v >= 0) || Double.isInfinite(v)) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private static MemorySegment encode(@Nullable MemoryMapStorage storage, double[] values,
+      int type, double maxFixedPoint) {
+    final int n = values.length;
+    final int blocks = (n + BLOCK_SIZE - 1) / BLOCK_SIZE;
+    final int[] offsets = new int[blocks + 1];
+    final byte[] bytes = new byte[blocks * MAX_BLOCK_BYTES];
+    final double[] block = new double[BLOCK_SIZE];
+    final byte[] encoded = new byte[MAX_BLOCK_BYTES];
+
+    int pos = 0;
+    for (int b = 0; b < blocks; b++) {
+      final int from = b * BLOCK_SIZE;
+      final int length = Math.min(BLOCK_SIZE, n - from);
+      System.arraycopy(values, from, block, 0, length);
+
+      final int encodedBytes = switch (type) {
+        case TYPE_LINEAR -> MSNumpress.encodeLinear(block, length, encoded,
+            Math.min(maxFixedPoint, MSNumpress.optimalLinearFixedPoint(block, length)));
+        case TYPE_SLOF -> MSNumpress.encodeSlof(block, length, encoded,
+            MSNumpress.optimalSlofFixedPoint(block, length));
+        default -> throw new IllegalArgumentException("Unknown type " + type);
+      };
+      System.arraycopy(encoded, 0, bytes, pos, encodedBytes);
+      offsets[b] = pos;
+      pos += encodedBytes;
+    }
+    offsets[blocks] = pos;
+
+    final int[] data = new int[HEADER + offsets.length + (pos + 3) / 4];
+    data[0] = type;
+    data[1] = n;
+    data[2] = blocks;
+    System.arraycopy(offsets, 0, data, HEADER, offsets.length);
+    final int start = HEADER + offsets.length;
+    for (int i = 0; i < pos; i++) {
+      data[start + (i >>> 2)] |= (bytes[i] & 0xff) << ((i & 3) << 3);
+    }
+    return StorageUtils.storeValuesToIntBuffer(storage, data);
+  }
+
+  /**
+   * @return the number of values in the encoded segment
+   */
+  public static int numValues(@NotNull MemorySegment encoded) {
+    return encoded.getAtIndex(ValueLayout.JAVA_INT, 1);
+  }
+
+  /**
+   * Random access to a single value. Decodes the block of the value, consecutive calls within the
+   * same block are served from a thread local cache of the most recently decoded blocks.
+   */
+  public static double get(@NotNull MemorySegment encoded, int index) {
+    final int n = numValues(encoded);
+    if (index < 0 || index >= n) {
+      throw new IndexOutOfBoundsException(
+          "Index %d out of bounds for length %d".formatted(index, n));
+    }
+    final BlockCursors cache = cursors.get()[encoded.getAtIndex(ValueLayout.JAVA_INT, 0)];
+    final int block = index / BLOCK_SIZE;
+    BlockCursor cursor = cache.find(encoded, block);
+    if (cursor == null) {
+      cursor = cache.leastRecentlyUsed();
+      decodeBlock(encoded, block, cursor.bytes, cursor.values);
+      cursor.assign(encoded, block);
+    }
+    return cursor.values[index - block * BLOCK_SIZE];
+  }
+
+  /**
+   * Decodes all values.
+   *
+   * @param dst the destination array. A new array is allocated if dst is too small.
+   * @return the array the values were decoded to
+   */
+  @NotNull
+  public static double[] decode(@NotNull MemorySegment encoded, @NotNull double[] dst) {
+    final int n = numValues(encoded);
+    if (dst.length < n) {
+      dst = new double[n];
+    }
+    final BlockCursor cursor = cursors.get()[encoded.getAtIndex(ValueLayout.JAVA_INT, 0)]
+        .leastRecentlyUsed();
+    final int blocks = encoded.getAtIndex(ValueLayout.JAVA_INT, 2);
+    for (int b = 0; b < blocks; b++) {
+      final int length = decodeBlock(encoded, b, cursor.bytes, cursor.values);
+      System.arraycopy(cursor.values, 0, dst, b * BLOCK_SIZE, length);
+    }
+    // the cursor content was replaced
+    cursor.assign(encoded, blocks - 1);
+    return dst;
+  }
+
+  private static int decodeBlock(MemorySegment encoded, int block, byte[] bytes, double[] values) {
+    final int type = encoded.getAtIndex(ValueLayout.JAVA_INT, 0);
+    final int blocks = encoded.getAtIndex(ValueLayout.JAVA_INT, 2);
+    final int from = encoded.getAtIndex(ValueLayout.JAVA_INT, HEADER + block);
+    final int to = encoded.getAtIndex(ValueLayout.JAVA_INT, HEADER + block + 1);
+    final long start = HEADER + blocks + 1;
+
+    int word = 0;
+    for (int i = from; i < to; i++) {
+      if (i == from || (i & 3) == 0) {
+        word = encoded.getAtIndex(ValueLayout.JAVA_INT, start + (i >>> 2));
+      }
+      bytes[i - from] = (byte) (word >>> ((i & 3) << 3));
+    }
+
+    final int decoded = type == TYPE_LINEAR ? MSNumpress.decodeLinear(bytes, to - from, values)
+        : MSNumpress.decodeSlof(bytes, to - from, values);
+    if (decoded < 0) {
+      throw new IllegalStateException("Cannot decode numpress block " + block);
+    }
+    return decoded;
+  }
+
+  private static final class BlockCursor {
+
+    private final byte[] bytes = new byte[MAX_BLOCK_BYTES];
+    // numpress linear may decode one padding value
+    private final double[] values = new double[BLOCK_SIZE + 1];
+    private long address;
+    private long byteSize;
+    /**
+     * the heap array of heap segments or the native segment itself. Equal address and size of a
+     * native segment only identify the same memory while the mapping is reachable.
+     */
+    private @Nullable WeakReference<Object> memory;
+    private int block = -1;
+    private long lastUsed;
+
+    private boolean holds(long address, long byteSize, @Nullable Object heapBase, int block) {
+      if (this.block != block || this.address != address || this.byteSize != byteSize
+          || memory == null) {
+        return false;
+      }
+      return heapBase == null ? !memory.refersTo(null) : memory.refersTo(heapBase);
+    }
+
+    private void assign(MemorySegment segment, int block) {
+      final Object owner = memoryOwner(segment);
+      if (memory == null || !memory.refersTo(owner)) {
+        memory = new WeakReference<>(owner);
+      }
+      address = segment.address();
+      byteSize = segment.byteSize();
+      this.block = block;
+    }
+  }
+
+  /**
+   * @return the heap array of heap segments or the segment itself
+   */
+  private static Object memoryOwner(MemorySegment segment) {
+    return segment.isNative() ? segment : segment.heapBase().orElseThrow();
+  }
+
+  /**
+   * Small least recently used cache of decoded blocks of one type
+   */
+  private static final class BlockCursors {
+
+    private final BlockCursor[] cursors = new BlockCursor[CURSORS_PER_TYPE];
+    private long clock;
+
+    private BlockCursors() {
+      for (int i = 0; i < cursors.length; i++) {
+        cursors[i] = new BlockCursor();
+      }
+    }
+
+    /**
+     * @return the cursor that holds the decoded block or null if the block is not cached
+     */
+    @Nullable
+    private BlockCursor find(MemorySegment segment, int block) {
+      // equal views of the same memory share cached blocks
+      final long address = segment.address();
+      final long byteSize = segment.byteSize();
+      final Object heapBase = segment.isNative() ? null : segment.heapBase().orElseThrow();
+      for (BlockCursor cursor : cursors) {
+        if (cursor.holds(address, byteSize, heapBase, block)) {
+          cursor.lastUsed = ++clock;
+          return cursor;
+        }
+      }
+      return null;
+    }
+
+    /**
+     * @return the least recently used cursor, its content is replaced by the caller
+     */
+    @NotNull
+    private BlockCursor leastRecentlyUsed() {
+      BlockCursor lru = cursors[0];
+      for (int i = 1; i < cursors.length; i++) {
+        if (cursors[i].lastUsed < lru.lastUsed) {
+          lru = cursors[i];
+        }
+      }
+      lru.lastUsed = ++clock;
+      return lru;
+    }
+  }
+}
@@ -0,0 +1,195 @@
+/*
+ * Copyright (c) 2004-2025 The mzmine Development Team
+ *
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+
+package io.github.mzmine.datamodel.featuredata.impl;
+
+import io.github.mzmine.datamodel.RawDataFile;
+import io.github.mzmine.datamodel.Scan;
+import io.github.mzmine.util.MemoryMapStorage;
+import java.lang.foreign.MemorySegment;
+import java.lang.foreign.ValueLayout;
+import java.util.AbstractList;
+import java.util.List;
+import java.util.Objects;
+import java.util.RandomAccess;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * Immutable view of scans of a {@link RawDataFile} that only stores indices into
+ * {@link RawDataFile#getScans()}. Consecutive scans are stored as a start index and size, all
+ * other selections as an int segment in the {@link MemoryMapStorage}. Used by the ion time series
+ * to avoid a list of scan references per series.
+ *
+ * @param <T> the scan type, e.g., {@link io.github.mzmine.datamodel.Frame} for ion mobility data
+ */
+public final class ScanIndexList<T extends Scan> extends AbstractList<T> implements RandomAccess {
+
+  private final List<? extends Scan> allScans;
+  private final int start;
+  private final int size;
+  /**
+   * indices into allScans or null if the scans are consecutive starting at {@link #start}
+   */
+  private final @Nullable MemorySegment indices;
+
+  private ScanIndexList(@NotNull List<? extends Scan> allScans, int start, int size,
+      @Nullable MemorySegment indices) {
+    this.allScans = allScans;
+    this.start = start;
+    this.size = size;
+    this.indices = indices;
+  }
+
+  /**
+   * Creates a compact list of the scans if all scans are part of the scan list of their raw data
+   * file and sorted in the same order.
+   *
+   * @param storage the storage for non-consecutive scan indices, may be null
+   * @param scans   scans of a single raw data file
+   * @return a {@link ScanIndexList} or the original list if the scans cannot be mapped
+   */
+  @SuppressWarnings("unchecked")
+  public static <T extends Scan> List<T> of(@Nullable MemoryMapStorage storage,
+      @NotNull List<? extends T> scans) {
+    if (scans instanceof ScanIndexList<?>) {
+      return (List<T>) scans;
+    }
+    if (scans.isEmpty()) {
+      return List.of();
+    }
+    final RawDataFile file = scans.getFirst().getDataFile();
+    if (file == null) {
+      return (List<T>) scans;
+    }
+    final List<Scan> allScans = file.getScans();
+    final int[] indices = findIndices(scans, allScans);
+    if (indices == null) {
+      return (List<T>) scans;
+    }
+
+    final int first = indices[0];
+    if (indices[indices.length - 1] - first == indices.length - 1) {
+      // sorted and unique indices, so this is a consecutive range
+      return new ScanIndexList<>(allScans, first, indices.length, null);
+    }
+    return new ScanIndexList<>(allScans, 0, indices.length,
+        StorageUtils.storeValuesToIntBuffer(storage, indices));
+  }
+
+  /**
+   * @return the indices of scans in allScans or null if not all scans were found in the same order
+   */
+  @Nullable
+  private static int[] findIndices(@NotNull List<? extends Scan> scans,
+      @NotNull List<? extends Scan> allScans) {
+    int rawIndex = findIndexOfFirst(scans.getFirst(), allScans);
+    if (rawIndex < 0) {
+      return null;
+    }
+
+    final int[] indices = new int[scans.size()];
+    int subListIndex = 0;
+    final int numScans = allScans.size();
+    while (subListIndex < indices.length && rawIndex < numScans) {
+      if (scans.get(subListIndex).equals(allScans.get(rawIndex))) {
+        indices[subListIndex] = rawIndex;
+        subListIndex++;
+      }
+      rawIndex++;
+    }
+    return subListIndex < indices.length ? null : indices;
+  }
+
+  /**
+   * Scans are usually sorted by scan number, try binary search first and fall back to a linear
+   * search
+   */
+  private static int findIndexOfFirst(@NotNull Scan scan, @NotNull List<? extends Scan> allScans) {
+    final int scanNumber = scan.getScanNumber();
+    int low = 0;
+    int high = allScans.size() - 1;
+    while (low <= high) {
+      final int mid = (low + high) >>> 1;
+      final int midNumber = allScans.get(mid).getScanNumber();
+      if (midNumber < scanNumber) {
+        low = mid + 1;
+      } else if (midNumber > scanNumber) {
+        high = mid - 1;
+      } else {
+        if (scan.equals(allScans.get(mid))) {
+          return mid;
+        }
+        break;
+      }
+    }
+    return allScans.indexOf(scan);
+  }
+
+  /**
+   * @return true if this list only stores indices into the given list of all scans
+   */
+  public boolean isIndexedIn(@NotNull List<? extends Scan> allScans) {
+    return this.allScans == allScans;
+  }
+
+  /**
+   * @param index index in this list
+   * @return the index of the scan in {@link RawDataFile#getScans()}
+   */
+  public int getScanIndex(int index) {
+    Objects.checkIndex(index, size);
+    return indices == null ? start + index
+        : indices.getAtIndex(ValueLayout.JAVA_INT, start + index);
+  }
+
+  /**
+   * @return the indices of all scans in {@link RawDataFile#getScans()}
+   */
+  public int[] toScanIndices() {
+    final int[] result = new int[size];
+    for (int i = 0; i < size; i++) {
+      result[i] = getScanIndex(i);
+    }
+    return result;
+  }
+
+  @SuppressWarnings("unchecked")
+  @Override
+  public T get(int index) {
+    return (T) allScans.get(getScanIndex(index));
+  }
+
+  @Override
+  public int size() {
+    return size;
+  }
+
+  @Override
+  public @NotNull List<T> subList(int fromIndex, int toIndex) {
+    Objects.checkFromToIndex(fromIndex, toIndex, size);
+    return new ScanIndexList<>(allScans, start + fromIndex, toIndex - fromIndex, indices);
+  }
+}
@@ -112,7 +112,8 @@ public class SimpleIonMobilogramTimeSeries implements IonMobilogramTimeSeries {
     this.mobilograms = stored.storedMobilograms();
     mobilogramIntensityValues = stored.storedIntensityValues();
     mobilogramMzValues = stored.storedMzValues();
-    this.frames = frames;
+    // only keep indices into the scans of the raw data file
+    this.frames = ScanIndexList.of(storage, frames);
     this.summedMobilogram = summedMobilogram;
 
     mzValues = StorageUtils.storeValuesToDoubleBuffer(storage, mzs);
@@ -160,7 +161,7 @@ public class SimpleIonMobilogramTimeSeries implements IonMobilogramTimeSeries {
     this.mobilograms = stored.storedMobilograms();
     mobilogramIntensityValues = stored.storedIntensityValues();
     mobilogramMzValues = stored.storedMzValues();
-    this.frames = frames;
+    this.frames = ScanIndexList.of(storage, frames);
     this.summedMobilogram = summedMobilogram;
   }
 
@@ -257,7 +258,8 @@ public class SimpleIonMobilogramTimeSeries implements IonMobilogramTimeSeries {
    */
   @Override
   public List<Frame> getSpectra() {
-    return Collections.unmodifiableList(frames);
+    // the compact index list is already an immutable view
+    return frames instanceof ScanIndexList<?> ? frames : Collections.unmodifiableList(frames);
   }
 
   @Override
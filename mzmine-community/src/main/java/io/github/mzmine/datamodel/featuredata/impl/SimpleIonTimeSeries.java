@@ -82,7 +82,8 @@ public class SimpleIonTimeSeries implements IonTimeSeries<Scan> {
       }
     }
 
-    this.scans = scans;
+    // only keep indices into the scans of the raw data file
+    this.scans = ScanIndexList.of(storage, scans);
 
     this.mzValues = StorageUtils.storeValuesToDoubleBuffer(storage, mzValues);
     this.intensityValues = StorageUtils.storeValuesToDoubleBuffer(storage, intensityValues);
@@ -104,7 +105,7 @@ public class SimpleIonTimeSeries implements IonTimeSeries<Scan> {
       }
     }
 
-    this.scans = scans;
+    this.scans = ScanIndexList.of(null, scans);
     this.mzValues = mzValues;
     this.intensityValues = intensityValues;
   }
@@ -202,9 +203,12 @@ public class SimpleIonTimeSeries implements IonTimeSeries<Scan> {
     return mzValues;
   }
 
+  @SuppressWarnings("unchecked")
   @Override
   public List<Scan> getSpectra() {
-    return Collections.unmodifiableList(scans);
+    // the compact index list is already an immutable view
+    return scans instanceof ScanIndexList<?> ? (List<Scan>) scans
+        : Collections.unmodifiableList(scans);
   }
 
   @Override
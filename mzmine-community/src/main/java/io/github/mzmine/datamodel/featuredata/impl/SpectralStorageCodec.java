@@ -0,0 +1,188 @@
+/*
+ * Copyright (c) 2004-2025 The mzmine Development Team
+ *
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+
+package io.github.mzmine.datamodel.featuredata.impl;
+
+import io.github.mzmine.util.MemoryMapStorage;
+import java.lang.foreign.MemorySegment;
+import java.lang.foreign.ValueLayout;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * Defines how spectral data is stored in a {@link MemoryMapStorage}. The numpress codecs trade a
+ * small, bounded loss of precision and some decoding cost for a smaller memory footprint. m/z
+ * values are encoded with {@link NumpressBlockCodec#encodeLinear} (absolute error <
+ * {@link NumpressBlockCodec#MZ_FIXED_POINT}<sup>-1</sup>), intensities are stored as floats or as
+ * short logged floats.
+ * <p>
+ * The codec is only applied to data that is memory mapped; data that is kept in RAM stays
+ * uncompressed.
+ */
+public enum SpectralStorageCodec {
+
+  NONE, NUMPRESS_FLOAT, NUMPRESS_SLOF;
+
+  private static volatile SpectralStorageCodec defaultCodec = NONE;
+
+  /**
+   * @return the codec new spectra are stored with
+   */
+  @NotNull
+  public static SpectralStorageCodec getDefault() {
+    return defaultCodec;
+  }
+
+  /**
+   * Sets the codec for new spectra. Already stored data is not changed.
+   */
+  public static void setDefault(@Nullable SpectralStorageCodec codec) {
+    defaultCodec = codec == null ? NONE : codec;
+  }
+
+  /**
+   * @param storage the storage or null if the data is kept in RAM
+   * @param mzs     sorted m/z values
+   * @return the codec to use for the given data. Falls back to a less compressing codec if the data
+   * cannot be encoded.
+   */
+  @NotNull
+  public SpectralStorageCodec forData(@Nullable MemoryMapStorage storage, @NotNull double[] mzs,
+      @NotNull double[] intensities) {
+    if (this == NONE || storage == null || mzs.length == 0 || !(mzs[0] >= 0)) {
+      return NONE;
+    }
+    if (this == NUMPRESS_SLOF && !NumpressBlockCodec.canEncodeSlof(intensities)) {
+      return NUMPRESS_FLOAT;
+    }
+    return this;
+  }
+
+  @NotNull
+  public MemorySegment storeMzs(@Nullable MemoryMapStorage storage, @NotNull double[] mzs) {
+    return switch (this) {
+      case NONE -> StorageUtils.storeValuesToDoubleBuffer(storage, mzs);
+      case NUMPRESS_FLOAT, NUMPRESS_SLOF ->
+          NumpressBlockCodec.encodeLinear(storage, mzs, NumpressBlockCodec.MZ_FIXED_POINT);
+    };
+  }
+
+  @NotNull
+  public MemorySegment storeIntensities(@Nullable MemoryMapStorage storage,
+      @NotNull double[] intensities) {
+    return switch (this) {
+      case NONE -> StorageUtils.storeValuesToDoubleBuffer(storage, intensities);
+      case NUMPRESS_FLOAT -> {
+        final float[] floats = new float[intensities.length];
+        for (int i = 0; i < floats.length; i++) {
+          floats[i] = (float) intensities[i];
+        }
+        yield StorageUtils.storeValuesToFloatBuffer(storage, floats);
+      }
+      case NUMPRESS_SLOF -> NumpressBlockCodec.encodeSlof(storage, intensities);
+    };
+  }
+
+  /**
+   * @param mzs the segment created by {@link #storeMzs(MemoryMapStorage, double[])}
+   * @return the number of values
+   */
+  public int numValues(@NotNull MemorySegment mzs) {
+    return switch (this) {
+      case NONE -> (int) StorageUtils.numDoubles(mzs);
+      case NUMPRESS_FLOAT, NUMPRESS_SLOF -> NumpressBlockCodec.numValues(mzs);
+    };
+  }
+
+  public double getMz(@NotNull MemorySegment mzs, int index) {
+    return switch (this) {
+      case NONE -> mzs.getAtIndex(ValueLayout.JAVA_DOUBLE, index);
+      case NUMPRESS_FLOAT, NUMPRESS_SLOF -> NumpressBlockCodec.get(mzs, index);
+    };
+  }
+
+  public double getIntensity(@NotNull MemorySegment intensities, int index) {
+    return switch (this) {
+      case NONE -> intensities.getAtIndex(ValueLayout.JAVA_DOUBLE, index);
+      case NUMPRESS_FLOAT -> intensities.getAtIndex(ValueLayout.JAVA_FLOAT, index);
+      case NUMPRESS_SLOF -> NumpressBlockCodec.get(intensities, index);
+    };
+  }
+
+  /**
+   * Decodes all m/z values into dst.
+   *
+   * @param numValues the number of values
+   * @return dst or a new array if dst was too small
+   */
+  @NotNull
+  public double[] copyMzs(@NotNull MemorySegment mzs, int numValues, @NotNull double[] dst) {
+    return switch (this) {
+      case NONE -> copyDoubles(mzs, numValues, dst);
+      case NUMPRESS_FLOAT, NUMPRESS_SLOF -> NumpressBlockCodec.decode(mzs, dst);
+    };
+  }
+
+  /**
+   * Decodes all intensity values into dst.
+   *
+   * @param numValues the number of values
+   * @return dst or a new array if dst was too small
+   */
+  @NotNull
+  public double[] copyIntensities(@NotNull MemorySegment intensities, int numValues,
+      @NotNull double[] dst) {
+    return switch (this) {
+      case NONE -> copyDoubles(intensities, numValues, dst);
+      case NUMPRESS_FLOAT -> {
+        if (dst.length < numValues) {
+          dst = new double[numValues];
+        }
+        for (int i = 0; i < numValues; i++) {
+          dst[i] = intensities.getAtIndex(ValueLayout.JAVA_FLOAT, i);
+        }
+        yield dst;
+      }
+      case NUMPRESS_SLOF -> NumpressBlockCodec.decode(intensities, dst);
+    };
+  }
+
+  private static double[] copyDoubles(MemorySegment segment, int numValues, double[] dst) {
+    if (dst.length < numValues) {
+      dst = new double[numValues];
+    }
+    MemorySegment.copy(segment, ValueLayout.JAVA_DOUBLE, 0, dst, 0, numValues);
+    return dst;
+  }
+
+  @Override
+  public String toString() {
+    return switch (this) {
+      case NONE -> "None (64 bit)";
+      case NUMPRESS_FLOAT -> "Numpress m/z, float intensity";
+      case NUMPRESS_SLOF -> "Numpress m/z, numpress intensity (smallest)";
+    };
+  }
+}
@@ -530,6 +530,15 @@ public interface FeatureList {
 
   void removeRows(Set<FeatureListRow> rowsToRemove);
 
+  /**
+   * The index is built on first use and rebuilt after rows were added or removed or the m/z, RT or
+   * mobility of a row changed.
+   *
+   * @return spatial index over the average m/z, RT and mobility of the rows, ids are the indices in
+   * {@link #getRows()}
+   */
+  @NotNull RowSpatialIndex getSpatialIndex();
+
   /**
    * TODO: extract interface and rename to AppliedMethod. Not doing it now to avoid merge
    * conflicts.
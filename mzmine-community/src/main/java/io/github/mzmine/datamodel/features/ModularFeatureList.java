@@ -38,6 +38,9 @@ import io.github.mzmine.datamodel.features.types.FeatureDataType;
 import io.github.mzmine.datamodel.features.types.annotations.ManualAnnotationType;
 import io.github.mzmine.datamodel.features.types.modifiers.GraphicalColumType;
 import io.github.mzmine.datamodel.features.types.numbers.IDType;
+import io.github.mzmine.datamodel.features.types.numbers.MZType;
+import io.github.mzmine.datamodel.features.types.numbers.MobilityType;
+import io.github.mzmine.datamodel.features.types.numbers.RTType;
 import io.github.mzmine.datamodel.features.types.tasks.NodeGenerationThread;
 import io.github.mzmine.main.MZmineCore;
 import io.github.mzmine.modules.io.projectload.CachedIMSFrame;
@@ -57,6 +60,7 @@ import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.Comparator;
+import java.util.ConcurrentModificationException;
 import java.util.Date;
 import java.util.DoubleSummaryStatistics;
 import java.util.HashMap;
@@ -67,12 +71,14 @@ import java.util.Map;
 import java.util.Objects;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.concurrent.locks.ReentrantReadWriteLock;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
 import javafx.collections.FXCollections;
+import javafx.collections.ListChangeListener;
 import javafx.collections.ObservableList;
 import javafx.collections.ObservableMap;
 import javafx.collections.ObservableSet;
@@ -89,6 +95,10 @@ public class ModularFeatureList implements FeatureList {
 
   public static final DateFormat DATA_FORMAT = new SimpleDateFormat("yyyy/MM/dd HH:mm:ss");
   private static final Logger logger = Logger.getLogger(ModularFeatureList.class.getName());
+  /**
+   * The spatial index is returned without caching if the rows changed during each attempt
+   */
+  private static final int MAX_SPATIAL_INDEX_ATTEMPTS = 3;
   /**
    * The storage of this feature list. May be null if data points of features shall be stored in
    * ram.
@@ -137,6 +147,11 @@ public class ModularFeatureList implements FeatureList {
    */
   private final Map<String, Node> bufferedCharts = new ConcurrentHashMap<>();
 
+  // built on demand, rebuilt if rows or their positions changed since
+  private final AtomicLong rowModifications = new AtomicLong();
+  private final Object spatialIndexLock = new Object();
+  private volatile @Nullable VersionedSpatialIndex spatialIndex;
+
   public ModularFeatureList(String name, @Nullable MemoryMapStorage storage,
       @NotNull RawDataFile... dataFiles) {
     this(name, storage, List.of(dataFiles));
@@ -164,6 +179,15 @@ public class ModularFeatureList implements FeatureList {
   }
 
   private void addDefaultListeners() {
+    // the spatial index needs to be rebuilt when rows or their positions change
+    featureListRows.addListener(
+        (ListChangeListener<? super FeatureListRow>) _ -> rowModifications.incrementAndGet());
+    final DataTypeValueChangeListener<?> positionListener = (_, _, _, _) -> rowModifications
+        .incrementAndGet();
+    addRowTypeListener(new MZType(), positionListener);
+    addRowTypeListener(new RTType(), positionListener);
+    addRowTypeListener(new MobilityType(), positionListener);
+
     addFeatureTypeListener(new FeatureDataType(), (dataModel, type, oldValue, newValue) -> {
       // check feature data for graphical columns
       DataTypeUtils.applyFeatureSpecificGraphicalTypes((ModularFeature) dataModel);
@@ -618,6 +642,50 @@ public class ModularFeatureList implements FeatureList {
     featureListRows.removeIf(rowsToRemove::contains);
   }
 
+  @Override
+  public @NotNull RowSpatialIndex getSpatialIndex() {
+    VersionedSpatialIndex current = spatialIndex;
+    if (current != null && current.version() == rowModifications.get()) {
+      return current.index();
+    }
+    synchronized (spatialIndexLock) {
+      for (int attempt = 1; ; attempt++) {
+        current = spatialIndex;
+        final long version = rowModifications.get();
+        if (current != null && current.version() == version) {
+          return current.index();
+        }
+        final FeatureListRow[] rows = copyRows();
+        if (rows == null) {
+          // rows changed while copying
+          Thread.onSpinWait();
+          continue;
+        }
+        final RowSpatialIndex index = RowSpatialIndex.of(rows);
+        // only publish if the rows did not change while building
+        if (rowModifications.get() == version) {
+          spatialIndex = new VersionedSpatialIndex(version, index);
+          return index;
+        }
+        if (attempt >= MAX_SPATIAL_INDEX_ATTEMPTS) {
+          // rows are changing constantly, the next call rebuilds the index
+          return index;
+        }
+      }
+    }
+  }
+
+  /**
+   * @return a copy of the rows or null if the rows were modified concurrently
+   */
+  private @Nullable FeatureListRow[] copyRows() {
+    try {
+      return featureListRows.toArray(FeatureListRow[]::new);
+    } catch (ConcurrentModificationException | IndexOutOfBoundsException e) {
+      return null;
+    }
+  }
+
   @Override
   public Stream<FeatureListRow> stream() {
     return featureListRows.stream();
@@ -904,4 +972,11 @@ public class ModularFeatureList implements FeatureList {
 
     bufferedCharts.clear();
   }
+
+  /**
+   * @param version the number of row modifications the index was built for
+   */
+  private record VersionedSpatialIndex(long version, @NotNull RowSpatialIndex index) {
+
+  }
 }
@@ -0,0 +1,315 @@
+/*
+ * Copyright (c) 2004-2025 The mzmine Development Team
+ *
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+
+package io.github.mzmine.datamodel.features;
+
+import com.google.common.collect.BoundType;
+import com.google.common.collect.Range;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.IntConsumer;
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * Immutable k-d tree over the average m/z, retention time and mobility of feature list rows. The
+ * values are copied into primitive columns once, tolerance-box queries then only visit the parts
+ * of the tree that overlap the box. RT and mobility are only used to split the tree if all rows
+ * define them. Rows without RT or mobility match every RT or mobility range, the same as in
+ * {@link io.github.mzmine.util.FeatureListUtils#getCandidatesWithinRanges(Range, Range, Range,
+ * List, boolean)}. Rows without m/z are not indexed.
+ * <p>
+ * Rows are identified by their index in the list the tree was built from. Use
+ * {@link FeatureList#getSpatialIndex()} for the cached index of a feature list or
+ * {@link #of(List)} for any other order of rows. Thread safe.
+ */
+public final class RowSpatialIndex {
+
+  private static final int MZ_AXIS = 0;
+  private static final int RT_AXIS = 1;
+  private static final int MOBILITY_AXIS = 2;
+  /**
+   * ranges of up to this size are scanned linearly
+   */
+  private static final int LEAF_SIZE = 8;
+
+  private final FeatureListRow[] rows;
+  private final int size;
+  // columns in tree order
+  private final int[] ids;
+  private final double[] mzs;
+  private final float[] rts;
+  private final float[] mobilities;
+  // the axes used to split the tree
+  private final int[] axes;
+
+  private RowSpatialIndex(@NotNull FeatureListRow[] rows) {
+    this.rows = rows;
+    final int numRows = rows.length;
+    final double[] mzColumn = new double[numRows];
+    final float[] rtColumn = new float[numRows];
+    final float[] mobilityColumn = new float[numRows];
+    final int[] perm = new int[numRows];
+    boolean allRt = true;
+    boolean allMobility = true;
+    int n = 0;
+    for (int i = 0; i < numRows; i++) {
+      final FeatureListRow row = rows[i];
+      final Double mz = row == null ? null : row.getAverageMZ();
+      if (mz == null || Double.isNaN(mz)) {
+        continue;
+      }
+      final Float rt = row.getAverageRT();
+      final Float mobility = row.getAverageMobility();
+      mzColumn[i] = mz;
+      rtColumn[i] = rt == null ? Float.NaN : rt;
+      mobilityColumn[i] = mobility == null ? Float.NaN : mobility;
+      allRt &= !Float.isNaN(rtColumn[i]);
+      allMobility &= !Float.isNaN(mobilityColumn[i]);
+      perm[n++] = i;
+    }
+    size = n;
+
+    final int[] usedAxes = new int[3];
+    int numAxes = 0;
+    usedAxes[numAxes++] = MZ_AXIS;
+    if (allRt && n > 0) {
+      usedAxes[numAxes++] = RT_AXIS;
+    }
+    if (allMobility && n > 0) {
+      usedAxes[numAxes++] = MOBILITY_AXIS;
+    }
+    axes = Arrays.copyOf(usedAxes, numAxes);
+
+    build(perm, 0, n, 0, mzColumn, rtColumn, mobilityColumn);
+
+    ids = new int[n];
+    mzs = new double[n];
+    rts = new float[n];
+    mobilities = new float[n];
+    for (int i = 0; i < n; i++) {
+      final int id = perm[i];
+      ids[i] = id;
+      mzs[i] = mzColumn[id];
+      rts[i] = rtColumn[id];
+      mobilities[i] = mobilityColumn[id];
+    }
+  }
+
+  /**
+   * @param rows the rows to index, the index of each row in this list is its id
+   */
+  @NotNull
+  public static RowSpatialIndex of(@NotNull List<? extends FeatureListRow> rows) {
+    return new RowSpatialIndex(rows.toArray(FeatureListRow[]::new));
+  }
+
+  /**
+   * @param rows the rows to index, the index of each row in this array is its id. Null rows are
+   *             not indexed.
+   */
+  @NotNull
+  public static RowSpatialIndex of(@NotNull FeatureListRow[] rows) {
+    return new RowSpatialIndex(rows.clone());
+  }
+
+  /**
+   * @return number of indexed rows
+   */
+  public int size() {
+    return size;
+  }
+
+  /**
+   * @return the row with this id, null if a null row was passed for this id
+   */
+  public FeatureListRow getRow(int id) {
+    return rows[id];
+  }
+
+  /**
+   * Passes the ids of all rows within the box to the consumer. The bounds are inclusive, use
+   * infinite values for open sides. The order of the ids is not defined.
+   */
+  public void forEachWithin(double mzMin, double mzMax, double rtMin, double rtMax,
+      double mobilityMin, double mobilityMax, @NotNull IntConsumer consumer) {
+    if (size == 0 || mzMin > mzMax || rtMin > rtMax || mobilityMin > mobilityMax) {
+      return;
+    }
+    final double[] min = {mzMin, rtMin, mobilityMin};
+    final double[] max = {mzMax, rtMax, mobilityMax};
+    search(0, size, 0, min, max, consumer);
+  }
+
+  /**
+   * @return all rows within the ranges, unsorted. Use Range.all() for missing ranges
+   */
+  @NotNull
+  public List<FeatureListRow> getRowsWithin(@NotNull Range<Double> mzRange,
+      @NotNull Range<Float> rtRange, @NotNull Range<Float> mobilityRange) {
+    final List<FeatureListRow> result = new ArrayList<>();
+    forEachWithin(lower(mzRange), upper(mzRange), lower(rtRange), upper(rtRange),
+        lower(mobilityRange), upper(mobilityRange), id -> result.add(rows[id]));
+    return result;
+  }
+
+  private void search(int from, int to, int depth, double[] min, double[] max,
+      IntConsumer consumer) {
+    if (to - from <= LEAF_SIZE) {
+      for (int i = from; i < to; i++) {
+        testAndAccept(i, min, max, consumer);
+      }
+      return;
+    }
+    final int mid = (from + to) >>> 1;
+    final int axis = axes[depth % axes.length];
+    final double split = value(axis, mid);
+    testAndAccept(mid, min, max, consumer);
+    if (min[axis] <= split) {
+      search(from, mid, depth + 1, min, max, consumer);
+    }
+    if (max[axis] >= split) {
+      search(mid + 1, to, depth + 1, min, max, consumer);
+    }
+  }
+
+  private void testAndAccept(int i, double[] min, double[] max, IntConsumer consumer) {
+    final double mz = mzs[i];
+    if (mz < min[MZ_AXIS] || mz > max[MZ_AXIS]) {
+      return;
+    }
+    final float rt = rts[i];
+    if (!Float.isNaN(rt) && (rt < min[RT_AXIS] || rt > max[RT_AXIS])) {
+      return;
+    }
+    final float mobility = mobilities[i];
+    if (!Float.isNaN(mobility) && (mobility < min[MOBILITY_AXIS]
+        || mobility > max[MOBILITY_AXIS])) {
+      return;
+    }
+    consumer.accept(ids[i]);
+  }
+
+  private double value(int axis, int treeIndex) {
+    return switch (axis) {
+      case MZ_AXIS -> mzs[treeIndex];
+      case RT_AXIS -> rts[treeIndex];
+      default -> mobilities[treeIndex];
+    };
+  }
+
+  /**
+   * Recursively places the median of the current axis in the middle of the range
+   */
+  private void build(int[] perm, int from, int to, int depth, double[] mzColumn,
+      float[] rtColumn, float[] mobilityColumn) {
+    if (to - from <= LEAF_SIZE) {
+      return;
+    }
+    final int mid = (from + to) >>> 1;
+    final int axis = axes[depth % axes.length];
+    select(perm, from, to - 1, mid, axis, mzColumn, rtColumn, mobilityColumn);
+    build(perm, from, mid, depth + 1, mzColumn, rtColumn, mobilityColumn);
+    build(perm, mid + 1, to, depth + 1, mzColumn, rtColumn, mobilityColumn);
+  }
+
+  /**
+   * Quickselect, afterward all values left of k are <= the value at k and all right are >=
+   */
+  private static void select(int[] perm, int left, int right, int k, int axis,
+      double[] mzColumn, float[] rtColumn, float[] mobilityColumn) {
+    while (right > left) {
+      // median of three as pivot
+      final int mid = (left + right) >>> 1;
+      if (column(axis, perm[mid], mzColumn, rtColumn, mobilityColumn) < column(axis, perm[left],
+          mzColumn, rtColumn, mobilityColumn)) {
+        swap(perm, left, mid);
+      }
+      if (column(axis, perm[right], mzColumn, rtColumn, mobilityColumn) < column(axis, perm[left],
+          mzColumn, rtColumn, mobilityColumn)) {
+        swap(perm, left, right);
+      }
+      if (column(axis, perm[right], mzColumn, rtColumn, mobilityColumn) < column(axis, perm[mid],
+          mzColumn, rtColumn, mobilityColumn)) {
+        swap(perm, mid, right);
+      }
+      final double pivot = column(axis, perm[mid], mzColumn, rtColumn, mobilityColumn);
+
+      int i = left;
+      int j = right;
+      while (i <= j) {
+        while (column(axis, perm[i], mzColumn, rtColumn, mobilityColumn) < pivot) {
+          i++;
+        }
+        while (column(axis, perm[j], mzColumn, rtColumn, mobilityColumn) > pivot) {
+          j--;
+        }
+        if (i <= j) {
+          swap(perm, i, j);
+          i++;
+          j--;
+        }
+      }
+      if (k <= j) {
+        right = j;
+      } else if (k >= i) {
+        left = i;
+      } else {
+        return;
+      }
+    }
+  }
+
+  private static double column(int axis, int id, double[] mzColumn, float[] rtColumn,
+      float[] mobilityColumn) {
+    return switch (axis) {
+      case MZ_AXIS -> mzColumn[id];
+      case RT_AXIS -> rtColumn[id];
+      default -> mobilityColumn[id];
+    };
+  }
+
+  private static void swap(int[] perm, int a, int b) {
+    final int tmp = perm[a];
+    perm[a] = perm[b];
+    perm[b] = tmp;
+  }
+
+  private static double lower(@NotNull Range<? extends Number> range) {
+    if (!range.hasLowerBound()) {
+      return Double.NEGATIVE_INFINITY;
+    }
+    final double value = range.lowerEndpoint().doubleValue();
+    return range.lowerBoundType() == BoundType.OPEN ? Math.nextUp(value) : value;
+  }
+
+  private static double upper(@NotNull Range<? extends Number> range) {
+    if (!range.hasUpperBound()) {
+      return Double.POSITIVE_INFINITY;
+    }
+    final double value = range.upperEndpoint().doubleValue();
+    return range.upperBoundType() == BoundType.OPEN ? Math.nextDown(value) : value;
+  }
+}
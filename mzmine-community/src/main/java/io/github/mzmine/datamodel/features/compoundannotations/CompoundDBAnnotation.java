@@ -96,8 +96,7 @@ public interface CompoundDBAnnotation extends Cloneable, FeatureAnnotation,
       CompoundDBAnnotation neutralAnnotation, IonNetworkLibrary library) {
     final List<CompoundDBAnnotation> annotations = new ArrayList<>();
     for (IonType adduct : library.getAllAdducts()) {
-      if (adduct.isUndefinedAdduct() || adduct.isUndefinedAdductParent() || adduct.getName()
-          .contains("?")) {
+      if (!isDefinedAdduct(adduct)) {
         continue;
       }
       try {
@@ -111,6 +110,15 @@ public interface CompoundDBAnnotation extends Cloneable, FeatureAnnotation,
     return annotations;
   }
 
+  /**
+   * @param adduct The adduct of an ion library.
+   * @return False for undefined adducts that cannot be used to ionize a compound.
+   */
+  static boolean isDefinedAdduct(@NotNull IonType adduct) {
+    return !adduct.isUndefinedAdduct() && !adduct.isUndefinedAdductParent() && !adduct.getName()
+        .contains("?");
+  }
+
   /**
    * @param baseAnnotation The annotation to check.
    * @param useIonLibrary  true if an ion library shall be used later on to ionise the
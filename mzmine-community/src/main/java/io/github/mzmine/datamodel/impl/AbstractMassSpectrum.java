@@ -48,10 +48,14 @@ import org.jetbrains.annotations.Nullable;
  */
 public abstract class AbstractMassSpectrum implements MassSpectrum {
 
-  private final Logger logger = Logger.getLogger(this.getClass().getName());
-
-  protected @Nullable Range<Double> mzRange;
-  protected @Nullable Integer basePeakIndex = null;
+  private static final Logger logger = Logger.getLogger(AbstractMassSpectrum.class.getName());
+
+  // header values are kept primitive, there may be millions of spectra per file
+  // NaN if no data points
+  private double lowestMz = Double.NaN;
+  private double highestMz = Double.NaN;
+  // -1 if no data points
+  private int basePeakIndex = -1;
   protected double totalIonCurrent = 0.0;
   private MassSpectrumType spectrumType = MassSpectrumType.CENTROIDED;
 
@@ -60,12 +64,13 @@ public abstract class AbstractMassSpectrum implements MassSpectrum {
 
     if (getNumberOfDataPoints() == 0) {
       totalIonCurrent = 0.0;
-      mzRange = null;
-      basePeakIndex = null;
+      lowestMz = Double.NaN;
+      highestMz = Double.NaN;
+      basePeakIndex = -1;
       return;
     }
 
-    basePeakIndex = 0;
+    int basePeakIndex = 0;
 
     double lastMz = getMzValue(0);
     double maxIntensity = getIntensityValue(0);
@@ -90,8 +95,10 @@ public abstract class AbstractMassSpectrum implements MassSpectrum {
       //
       lastMz = mz;
     }
+    this.basePeakIndex = basePeakIndex;
     // set range after checking the order
-    mzRange = Range.closed(getMzValue(0), getMzValue(getNumberOfDataPoints() - 1));
+    lowestMz = getMzValue(0);
+    highestMz = getMzValue(getNumberOfDataPoints() - 1);
   }
 
 
@@ -109,7 +116,10 @@ public abstract class AbstractMassSpectrum implements MassSpectrum {
   @Override
   @Nullable
   public Range<Double> getDataPointMZRange() {
-    return mzRange;
+    if (Double.isNaN(lowestMz)) {
+      return null;
+    }
+    return Range.closed(lowestMz, highestMz);
   }
 
   /**
@@ -117,7 +127,7 @@ public abstract class AbstractMassSpectrum implements MassSpectrum {
    */
   @Override
   public @Nullable Integer getBasePeakIndex() {
-    return basePeakIndex;
+    return basePeakIndex == -1 ? null : basePeakIndex;
   }
 
   @Override
@@ -156,20 +166,20 @@ public abstract class AbstractMassSpectrum implements MassSpectrum {
   @Override
   @Nullable
   public Double getBasePeakMz() {
-    if (basePeakIndex == null) {
+    if (basePeakIndex == -1) {
       return null;
     } else {
-      return getMzValues().getAtIndex(JAVA_DOUBLE, basePeakIndex);
+      return getMzValue(basePeakIndex);
     }
   }
 
   @Override
   @Nullable
   public Double getBasePeakIntensity() {
-    if (basePeakIndex == null) {
+    if (basePeakIndex == -1) {
       return null;
     } else {
-      return getIntensityValues().getAtIndex(JAVA_DOUBLE, basePeakIndex);
+      return getIntensityValue(basePeakIndex);
     }
   }
 
@@ -26,12 +26,12 @@
 package io.github.mzmine.datamodel.impl;
 
 import io.github.mzmine.datamodel.Frame;
+import io.github.mzmine.datamodel.featuredata.impl.SpectralStorageCodec;
 import io.github.mzmine.datamodel.featuredata.impl.StorageUtils;
 import io.github.mzmine.modules.io.import_rawdata_all.spectral_processor.SimpleSpectralArrays;
 import io.github.mzmine.util.DataPointUtils;
 import io.github.mzmine.util.MemoryMapStorage;
 import java.lang.foreign.MemorySegment;
-import java.lang.foreign.ValueLayout;
 import java.nio.DoubleBuffer;
 import java.nio.FloatBuffer;
 import java.util.logging.Logger;
@@ -46,6 +46,10 @@ public abstract class AbstractStorableSpectrum extends AbstractMassSpectrum {
   private static final Logger logger = Logger.getLogger(AbstractStorableSpectrum.class.getName());
   protected MemorySegment mzValues;
   protected MemorySegment intensityValues;
+  /**
+   * The codec mzValues and intensityValues are encoded with
+   */
+  protected SpectralStorageCodec codec = SpectralStorageCodec.NONE;
 
   /**
    * Note: mz and intensity values for a scan shall only be set once and are enforced to be
@@ -100,8 +104,12 @@ public abstract class AbstractStorableSpectrum extends AbstractMassSpectrum {
     SimpleSpectralArrays sorted = DataPointUtils.ensureSortingMzAscendingDefault(
         new SimpleSpectralArrays(mzValues, intensityValues));
 
-    this.mzValues = StorageUtils.storeValuesToDoubleBuffer(storage, sorted.mzs());
-    this.intensityValues = StorageUtils.storeValuesToDoubleBuffer(storage, sorted.intensities());
+    // the codec is only applied to memory mapped data
+    final SpectralStorageCodec codec = SpectralStorageCodec.getDefault()
+        .forData(storage, sorted.mzs(), sorted.intensities());
+    this.mzValues = codec.storeMzs(storage, sorted.mzs());
+    this.intensityValues = codec.storeIntensities(storage, sorted.intensities());
+    this.codec = codec;
     onDataChangedEvent();
   }
 
@@ -109,32 +117,76 @@ public abstract class AbstractStorableSpectrum extends AbstractMassSpectrum {
     updateMzRangeAndTICValues();
   }
 
+  /**
+   * @return the m/z values as doubles. Encoded data is decoded into a new heap segment, prefer
+   * {@link #getMzValue(int)} and {@link #getMzValues(double[])}.
+   */
   MemorySegment getMzValues() {
     if (mzValues == null) {
       return StorageUtils.EMPTY_DOUBLE_SEGMENT;
+    } else if (codec != SpectralStorageCodec.NONE) {
+      return MemorySegment.ofArray(getMzValues(new double[0]));
     } else {
       return mzValues;
     }
   }
 
+  /**
+   * @return the intensity values as doubles. Encoded data is decoded into a new heap segment,
+   * prefer {@link #getIntensityValue(int)} and {@link #getIntensityValues(double[])}.
+   */
   MemorySegment getIntensityValues() {
     if (intensityValues == null) {
       return StorageUtils.EMPTY_DOUBLE_SEGMENT;
+    } else if (codec != SpectralStorageCodec.NONE) {
+      return MemorySegment.ofArray(getIntensityValues(new double[0]));
     } else {
       return intensityValues;
     }
   }
 
+  /**
+   * @return the codec the m/z and intensity values are stored with
+   */
+  @NotNull
+  public SpectralStorageCodec getStorageCodec() {
+    return codec;
+  }
+
+  /**
+   * @return the number of bytes the m/z and intensity values occupy in their storage
+   */
+  public long getStoredByteSize() {
+    if (mzValues == null) {
+      return 0;
+    }
+    return mzValues.byteSize() + intensityValues.byteSize();
+  }
+
+  @Override
+  public int getNumberOfDataPoints() {
+    if (mzValues == null) {
+      return 0;
+    }
+    return codec.numValues(mzValues);
+  }
+
+  @Override
+  public double getMzValue(int index) {
+    return codec.getMz(mzValues, index);
+  }
+
+  @Override
+  public double getIntensityValue(int index) {
+    return codec.getIntensity(intensityValues, index);
+  }
+
   @Override
   public double[] getMzValues(@NotNull double[] dst) {
     if (mzValues == null) {
       return new double[0];
     }
-    if (dst.length < getNumberOfDataPoints()) {
-      dst = new double[getNumberOfDataPoints()];
-    }
-    MemorySegment.copy(mzValues, ValueLayout.JAVA_DOUBLE, 0, dst, 0, getNumberOfDataPoints());
-    return dst;
+    return codec.copyMzs(mzValues, getNumberOfDataPoints(), dst);
   }
 
   @Override
@@ -142,13 +194,7 @@ public abstract class AbstractStorableSpectrum extends AbstractMassSpectrum {
     if (intensityValues == null) {
       return new double[0];
     }
-
-    if (dst.length < getNumberOfDataPoints()) {
-      dst = new double[getNumberOfDataPoints()];
-    }
-    MemorySegment.copy(intensityValues, ValueLayout.JAVA_DOUBLE, 0, dst, 0, getNumberOfDataPoints());
-    return dst;
+    return codec.copyIntensities(intensityValues, getNumberOfDataPoints(), dst);
   }
 
 }
-
@@ -0,0 +1,91 @@
+/*
+ * Copyright (c) 2004-2025 The mzmine Development Team
+ *
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+
+package io.github.mzmine.datamodel.impl;
+
+import com.google.common.collect.Range;
+import io.github.mzmine.datamodel.RawDataFile;
+import io.github.mzmine.datamodel.Scan;
+import java.util.concurrent.ConcurrentHashMap;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * Flyweight pool for scan header values that repeat across the scans of a {@link RawDataFile}.
+ * Imaging and ion mobility files contain millions of scans that mostly share few scan definitions
+ * and scanning m/z ranges, so each {@link Scan} only references the shared instance.
+ * <p>
+ * The number of distinct values is limited. Files with unique values per scan (e.g., scan
+ * definitions that contain the precursor m/z) would otherwise only add the dictionary overhead;
+ * values beyond the limit are returned as is.
+ */
+public final class ScanHeaderDictionary {
+
+  /**
+   * Maximum number of distinct values per dictionary
+   */
+  public static final int MAX_VALUES = 10_000;
+
+  private final ConcurrentHashMap<String, String> scanDefinitions = new ConcurrentHashMap<>();
+  private final ConcurrentHashMap<Range<Double>, Range<Double>> mzRanges = new ConcurrentHashMap<>();
+
+  /**
+   * @return the shared instance of an equal scan definition
+   */
+  @Nullable
+  public String internScanDefinition(@Nullable String scanDefinition) {
+    return intern(scanDefinitions, scanDefinition);
+  }
+
+  /**
+   * @return the shared instance of an equal m/z range
+   */
+  @Nullable
+  public Range<Double> internMzRange(@Nullable Range<Double> mzRange) {
+    return intern(mzRanges, mzRange);
+  }
+
+  public int getNumberOfScanDefinitions() {
+    return scanDefinitions.size();
+  }
+
+  public int getNumberOfMzRanges() {
+    return mzRanges.size();
+  }
+
+  private static <T> T intern(ConcurrentHashMap<T, T> values, @Nullable T value) {
+    if (value == null) {
+      return null;
+    }
+    final T shared = values.get(value);
+    if (shared != null) {
+      return shared;
+    }
+    if (values.size() >= MAX_VALUES) {
+      return value;
+    }
+    final T previous = values.putIfAbsent(value, value);
+    return previous != null ? previous : value;
+  }
+}
@@ -0,0 +1,381 @@
+/*
+ * Copyright (c) 2004-2025 The mzmine Development Team
+ *
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+
+package io.github.mzmine.datamodel.impl;
+
+import com.google.common.collect.Range;
+import io.github.mzmine.datamodel.Frame;
+import io.github.mzmine.datamodel.MassSpectrumType;
+import io.github.mzmine.datamodel.PolarityType;
+import io.github.mzmine.datamodel.RawDataFile;
+import io.github.mzmine.datamodel.Scan;
+import io.github.mzmine.parameters.parametertypes.selectors.ScanSelection;
+import io.github.mzmine.util.collections.IndexRange;
+import it.unimi.dsi.fastutil.ints.IntArrayList;
+import it.unimi.dsi.fastutil.ints.IntArrays;
+import it.unimi.dsi.fastutil.objects.Object2IntOpenHashMap;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.WeakHashMap;
+import java.util.function.Function;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * Columnar snapshot of the scan metadata of a {@link RawDataFile}. MS level, polarity, spectrum
+ * type, retention time, precursor m/z, mobility range and a dictionary id of the scan definition
+ * are stored in primitive arrays so that {@link ScanSelection}s can be resolved without touching
+ * every {@link Scan} object. Retention time ranges are resolved by binary search if the scans are
+ * sorted by retention time.
+ * <p>
+ * The index also holds a cache of resolved {@link ScanSelection}s. Selections are held weakly and
+ * the whole index is dropped by the owning raw data file whenever scans are added or removed.
+ */
+public final class ScanMetadataIndex {
+
+  private static final PolarityType[] POLARITIES = PolarityType.values();
+  private static final MassSpectrumType[] SPECTRUM_TYPES = MassSpectrumType.values();
+
+  private final Scan[] scans;
+  private final int[] scanNumbers;
+  private final byte[] msLevels;
+  private final byte[] polarities;
+  private final byte[] spectrumTypes;
+  private final float[] retentionTimes;
+  /**
+   * NaN if no precursor
+   */
+  private final double[] precursorMzs;
+  /**
+   * NaN if not a {@link Frame}
+   */
+  private final double[] mobilityLower;
+  private final double[] mobilityUpper;
+  /**
+   * -1 if the scan definition is null or empty
+   */
+  private final int[] scanDefinitionIds;
+  private final String[] scanDefinitions;
+  /**
+   * scan indices sorted by precursor m/z, only scans with precursor
+   */
+  private final int[] precursorMzOrder;
+  private final boolean sortedByRt;
+
+  private final Map<ScanSelection, Scan[]> resolvedSelections = Collections.synchronizedMap(
+      new WeakHashMap<>());
+
+  private ScanMetadataIndex(@NotNull List<? extends Scan> scanList) {
+    final int n = scanList.size();
+    scans = scanList.toArray(Scan[]::new);
+    scanNumbers = new int[n];
+    msLevels = new byte[n];
+    polarities = new byte[n];
+    spectrumTypes = new byte[n];
+    retentionTimes = new float[n];
+    precursorMzs = new double[n];
+    mobilityLower = new double[n];
+    mobilityUpper = new double[n];
+    scanDefinitionIds = new int[n];
+
+    final Object2IntOpenHashMap<String> definitionIds = new Object2IntOpenHashMap<>();
+    definitionIds.defaultReturnValue(-1);
+    final List<String> definitions = new ArrayList<>();
+    final IntArrayList withPrecursor = new IntArrayList();
+
+    boolean sorted = true;
+    for (int i = 0; i < n; i++) {
+      final Scan scan = scans[i];
+      scanNumbers[i] = scan.getScanNumber();
+      msLevels[i] = (byte) scan.getMSLevel();
+      polarities[i] = ordinalOrMinusOne(scan.getPolarity());
+      spectrumTypes[i] = ordinalOrMinusOne(scan.getSpectrumType());
+      retentionTimes[i] = scan.getRetentionTime();
+      if (i > 0 && retentionTimes[i] < retentionTimes[i - 1]) {
+        sorted = false;
+      }
+
+      final Double precursorMz = scan.getPrecursorMz();
+      precursorMzs[i] = precursorMz == null ? Double.NaN : precursorMz;
+      if (precursorMz != null) {
+        withPrecursor.add(i);
+      }
+
+      if (scan instanceof Frame frame) {
+        final Range<Double> mobilityRange = frame.getMobilityRange();
+        mobilityLower[i] = mobilityRange.lowerEndpoint();
+        mobilityUpper[i] = mobilityRange.upperEndpoint();
+      } else {
+        mobilityLower[i] = Double.NaN;
+        mobilityUpper[i] = Double.NaN;
+      }
+
+      final String definition = scan.getScanDefinition();
+      if (definition == null || definition.isEmpty()) {
+        scanDefinitionIds[i] = -1;
+      } else {
+        int id = definitionIds.getInt(definition);
+        if (id == -1) {
+          id = definitions.size();
+          definitions.add(definition);
+          definitionIds.put(definition, id);
+        }
+        scanDefinitionIds[i] = id;
+      }
+    }
+    sortedByRt = sorted;
+    scanDefinitions = definitions.toArray(String[]::new);
+
+    precursorMzOrder = withPrecursor.toIntArray();
+    // sort indices by precursor m/z and scan index for equal values
+    IntArrays.quickSort(precursorMzOrder, (a, b) -> {
+      final int compare = Double.compare(precursorMzs[a], precursorMzs[b]);
+      return compare != 0 ? compare : Integer.compare(a, b);
+    });
+  }
+
+  private static byte ordinalOrMinusOne(@Nullable Enum<?> value) {
+    return value == null ? -1 : (byte) value.ordinal();
+  }
+
+  /**
+   * Creates a snapshot of the current scans. Changes to the list are not reflected.
+   */
+  @NotNull
+  public static ScanMetadataIndex of(@NotNull List<? extends Scan> scans) {
+    return new ScanMetadataIndex(scans);
+  }
+
+  public int getNumberOfScans() {
+    return scans.length;
+  }
+
+  @NotNull
+  public Scan getScan(int index) {
+    return scans[index];
+  }
+
+  public int getScanNumber(int index) {
+    return scanNumbers[index];
+  }
+
+  public int getMsLevel(int index) {
+    return msLevels[index];
+  }
+
+  @Nullable
+  public PolarityType getPolarity(int index) {
+    final byte ordinal = polarities[index];
+    return ordinal == -1 ? null : POLARITIES[ordinal];
+  }
+
+  @Nullable
+  public MassSpectrumType getSpectrumType(int index) {
+    final byte ordinal = spectrumTypes[index];
+    return ordinal == -1 ? null : SPECTRUM_TYPES[ordinal];
+  }
+
+  public float getRetentionTime(int index) {
+    return retentionTimes[index];
+  }
+
+  /**
+   * @return the precursor m/z or NaN if the scan has no precursor
+   */
+  public double getPrecursorMz(int index) {
+    return precursorMzs[index];
+  }
+
+  /**
+   * @return true if the scan is a {@link Frame} with a mobility range
+   */
+  public boolean hasMobilityRange(int index) {
+    return !Double.isNaN(mobilityLower[index]);
+  }
+
+  public double getMobilityLowerBound(int index) {
+    return mobilityLower[index];
+  }
+
+  public double getMobilityUpperBound(int index) {
+    return mobilityUpper[index];
+  }
+
+  /**
+   * @return the id of the scan definition in the dictionary of this index or -1 if the scan has no
+   * scan definition
+   */
+  public int getScanDefinitionId(int index) {
+    return scanDefinitionIds[index];
+  }
+
+  /**
+   * @return all distinct scan definitions, the array index is the scan definition id
+   */
+  @NotNull
+  public String[] getScanDefinitions() {
+    return scanDefinitions;
+  }
+
+  public boolean isSortedByRt() {
+    return sortedByRt;
+  }
+
+  /**
+   * The scan number of the first scan is used as offset for the base filtering integer of
+   * {@link ScanSelection}.
+   *
+   * @return the first scan number or 1 if there are no scans
+   */
+  public int getFirstScanNumber() {
+    return scans.length == 0 ? 1 : scanNumbers[0];
+  }
+
+  /**
+   * Candidate indices for a retention time range. If the scans are sorted by retention time, this
+   * is the index range from the first scan >= the lower bound to the last scan <= the upper bound.
+   * The range bound types (open/closed) still need to be checked on each scan.
+   *
+   * @param rtRange the retention time range or null for all scans
+   * @return an index range that may be empty
+   */
+  @NotNull
+  public IndexRange indexRangeOfRt(@Nullable Range<Double> rtRange) {
+    if (scans.length == 0) {
+      return IndexRange.ofExclusive(0, 0);
+    }
+    if (rtRange == null || !sortedByRt) {
+      return IndexRange.ofExclusive(0, scans.length);
+    }
+    int from = 0;
+    if (rtRange.hasLowerBound()) {
+      from = lowerBound(rtRange.lowerEndpoint());
+    }
+    int toExclusive = scans.length;
+    if (rtRange.hasUpperBound()) {
+      toExclusive = upperBound(rtRange.upperEndpoint());
+    }
+    return IndexRange.ofExclusive(from, toExclusive);
+  }
+
+  /**
+   * @return first index with rt >= value
+   */
+  private int lowerBound(double value) {
+    int low = 0;
+    int high = scans.length;
+    while (low < high) {
+      final int mid = (low + high) >>> 1;
+      if (retentionTimes[mid] < value) {
+        low = mid + 1;
+      } else {
+        high = mid;
+      }
+    }
+    return low;
+  }
+
+  /**
+   * @return first index with rt > value
+   */
+  private int upperBound(double value) {
+    int low = 0;
+    int high = scans.length;
+    while (low < high) {
+      final int mid = (low + high) >>> 1;
+      if (retentionTimes[mid] <= value) {
+        low = mid + 1;
+      } else {
+        high = mid;
+      }
+    }
+    return low;
+  }
+
+  /**
+   * Range lookup on the precursor m/z column.
+   *
+   * @param mzRange precursor m/z range
+   * @return indices of all scans with a precursor m/z within range, sorted by precursor m/z
+   */
+  @NotNull
+  public int[] findScanIndicesByPrecursorMz(@NotNull Range<Double> mzRange) {
+    int low = 0;
+    int high = precursorMzOrder.length;
+    if (mzRange.hasLowerBound()) {
+      final double lower = mzRange.lowerEndpoint();
+      while (low < high) {
+        final int mid = (low + high) >>> 1;
+        if (precursorMzs[precursorMzOrder[mid]] < lower) {
+          low = mid + 1;
+        } else {
+          high = mid;
+        }
+      }
+    }
+    final IntArrayList result = new IntArrayList();
+    for (int i = low; i < precursorMzOrder.length; i++) {
+      final int index = precursorMzOrder[i];
+      final double mz = precursorMzs[index];
+      if (mzRange.hasUpperBound() && mz > mzRange.upperEndpoint()) {
+        break;
+      }
+      if (mzRange.contains(mz)) {
+        result.add(index);
+      }
+    }
+    return result.toIntArray();
+  }
+
+  /**
+   * Resolves a selection against this index. Results are cached for each selection as long as the
+   * selection is referenced elsewhere.
+   *
+   * @param selection the selection
+   * @param resolver  computes the matching scans on a cache miss
+   * @return a copy of the cached result
+   */
+  @NotNull
+  public Scan[] getMatchingScans(@NotNull ScanSelection selection,
+      @NotNull Function<ScanMetadataIndex, Scan[]> resolver) {
+    Scan[] result = resolvedSelections.get(selection);
+    if (result == null) {
+      result = resolver.apply(this);
+      resolvedSelections.put(selection, result);
+    }
+    // copy so that callers cannot change the cached result
+    return Arrays.copyOf(result, result.length);
+  }
+
+  /**
+   * Clears all resolved selections
+   */
+  public void clearCache() {
+    resolvedSelections.clear();
+  }
+}
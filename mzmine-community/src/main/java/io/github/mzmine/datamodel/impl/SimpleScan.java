@@ -44,7 +44,8 @@ import org.jetbrains.annotations.Nullable;
 public class SimpleScan extends AbstractStorableSpectrum implements Scan {
 
   public static final String XML_SCAN_TYPE = "simplescan";
-  protected final Float injectionTime;
+  // NaN if not set, avoids boxing for millions of scans
+  private final float injectionTime;
   @NotNull
   private final RawDataFile dataFile;
   private int scanNumber;
@@ -103,11 +104,14 @@ public class SimpleScan extends AbstractStorableSpectrum implements Scan {
     this.msLevel = msLevel;
     this.retentionTime = retentionTime;
     this.polarity = polarity;
-    this.scanDefinition = scanDefinition;
-    this.scanMZRange = scanMZRange;
+    // header values are shared between the scans of a file
+    final ScanHeaderDictionary dictionary = dataFile.getScanHeaderDictionary();
+    this.scanDefinition = dictionary != null ? dictionary.internScanDefinition(scanDefinition)
+        : scanDefinition;
+    this.scanMZRange = dictionary != null ? dictionary.internMzRange(scanMZRange) : scanMZRange;
     setSpectrumType(spectrumType);
     setMsMsInfo(msMsInfo);
-    this.injectionTime = injectionTime;
+    this.injectionTime = injectionTime != null ? injectionTime : Float.NaN;
   }
 
   public SimpleScan(@NotNull RawDataFile dataFile, int scanNumber, int msLevel, float retentionTime,
@@ -122,11 +126,14 @@ public class SimpleScan extends AbstractStorableSpectrum implements Scan {
     this.msLevel = msLevel;
     this.retentionTime = retentionTime;
     this.polarity = polarity;
-    this.scanDefinition = scanDefinition;
-    this.scanMZRange = scanMZRange;
+    // header values are shared between the scans of a file
+    final ScanHeaderDictionary dictionary = dataFile.getScanHeaderDictionary();
+    this.scanDefinition = dictionary != null ? dictionary.internScanDefinition(scanDefinition)
+        : scanDefinition;
+    this.scanMZRange = dictionary != null ? dictionary.internMzRange(scanMZRange) : scanMZRange;
     setSpectrumType(spectrumType);
     setMsMsInfo(msMsInfo);
-    this.injectionTime = injectionTime;
+    this.injectionTime = injectionTime != null ? injectionTime : Float.NaN;
   }
 
 
@@ -249,7 +256,7 @@ public class SimpleScan extends AbstractStorableSpectrum implements Scan {
 
   @Override
   public @Nullable Float getInjectionTime() {
-    return injectionTime;
+    return Float.isNaN(injectionTime) ? null : injectionTime;
   }
 }
 
@@ -94,11 +94,11 @@ public class SimpleMassList extends AbstractStorableSpectrum implements MassList
 
     writer.writeStartElement(CONST.XML_MZ_VALUES_ELEMENT);
     writer.writeCharacters(
-        ParsingUtils.doubleArrayToString(DataPointUtils.getDoubleBufferAsArray(mzValues)));
+        ParsingUtils.doubleArrayToString(getMzValues(new double[0])));
     writer.writeEndElement();
     writer.writeStartElement(CONST.XML_INTENSITY_VALUES_ELEMENT);
     writer.writeCharacters(
-        ParsingUtils.doubleArrayToString(DataPointUtils.getDoubleBufferAsArray(intensityValues)));
+        ParsingUtils.doubleArrayToString(getIntensityValues(new double[0])));
     writer.writeEndElement();
 
     writer.writeEndElement();
@@ -78,6 +78,7 @@ import io.github.mzmine.modules.dataprocessing.id_spectral_library_match.Spectra
 import io.github.mzmine.modules.io.export_ccsbase.CcsBaseExportModule;
 import io.github.mzmine.modules.io.export_compoundAnnotations_csv.CompoundAnnotationsCSVExportModule;
 import io.github.mzmine.modules.io.export_features_all_speclib_matches.ExportAllIdsGraphicalModule;
+import io.github.mzmine.modules.io.export_features_columnar.ColumnarExportModule;
 import io.github.mzmine.modules.io.export_features_csv.CSVExportModularModule;
 import io.github.mzmine.modules.io.export_features_csv_legacy.LegacyCSVExportModule;
 import io.github.mzmine.modules.io.export_features_featureML.FeatureMLExportModularModule;
@@ -264,8 +265,9 @@ public abstract class AbstractWorkspace implements Workspace {
     final Menu menu = new Menu("Export feature list");
 
     addModuleMenuItems(menu, "Graphics", ExportAllIdsGraphicalModule.class);
-    addModuleMenuItems(menu, CSVExportModularModule.class, CompoundAnnotationsCSVExportModule.class,
-        LegacyCSVExportModule.class, MZTabmExportModule.class, SQLExportModule.class,
+    addModuleMenuItems(menu, CSVExportModularModule.class, ColumnarExportModule.class,
+        CompoundAnnotationsCSVExportModule.class, LegacyCSVExportModule.class,
+        MZTabmExportModule.class, SQLExportModule.class,
         // scans
         ExportScansFeatureModule.class, AdapMspExportModule.class, AdapMgfExportModule.class,
         GnpsFbmnExportAndSubmitModule.class, GnpsGcExportAndSubmitModule.class,
@@ -27,6 +27,7 @@ package io.github.mzmine.gui.preferences;
 
 import static io.github.mzmine.util.files.ExtensionFilters.MSCONVERT;
 
+import io.github.mzmine.datamodel.featuredata.impl.SpectralStorageCodec;
 import io.github.mzmine.gui.DesktopService;
 import io.github.mzmine.gui.chartbasics.chartthemes.ChartThemeParameters;
 import io.github.mzmine.gui.chartbasics.chartutils.paintscales.PaintScaleTransform;
@@ -43,6 +44,7 @@ import io.github.mzmine.parameters.parametertypes.BooleanParameter;
 import io.github.mzmine.parameters.parametertypes.ComboParameter;
 import io.github.mzmine.parameters.parametertypes.FontSpecs;
 import io.github.mzmine.parameters.parametertypes.HiddenParameter;
+import io.github.mzmine.parameters.parametertypes.IntegerParameter;
 import io.github.mzmine.parameters.parametertypes.OptOutParameter;
 import io.github.mzmine.parameters.parametertypes.OptionalParameter;
 import io.github.mzmine.parameters.parametertypes.StringParameter;
@@ -170,6 +172,27 @@ public class MZminePreferences extends SimpleParameterSet {
                                   + "overrides this parameter, if set: --temp D:\\your_tmp_dir\\)",
       System.getProperty("java.io.tmpdir"));
 
+  public static final OptionalParameter<IntegerParameter> massDetectionCache = new OptionalParameter<>(
+      new IntegerParameter("Mass detection cache (MB)", """
+          Stores the results of mass detection in the mzmine user directory. Re-running mass detection \
+          with the same parameters on an unchanged raw data file attaches the cached mass lists instead \
+          of detecting them again. This includes mass detection in the advanced data import, where the \
+          spectra are still read but the mass detector is skipped. The least recently used entries are removed once the maximum size \
+          (in MB) is exceeded.""", 4096, 1, null), false);
+
+  public static final OptionalParameter<IntegerParameter> compoundDatabaseCache = new OptionalParameter<>(
+      new IntegerParameter("Compound database index cache (MB)", """
+          Stores the compiled m/z index of local compound databases (csv search) in the mzmine user \
+          directory. Searching the same database with the same columns and adducts again reads the \
+          index instead of calculating all masses again. The least recently used entries are removed \
+          once the maximum size (in MB) is exceeded.""", 1024, 1, null), true);
+
+  public static final BooleanParameter embeddingCache = new BooleanParameter(
+      "Cache spectral embeddings", """
+      Stores the embeddings of MS2Deepscore and DreaMS models in the mzmine user directory. \
+      Repeated spectral networking of the same spectra with the same model reads the stored \
+      embeddings instead of running the model again.""", false);
+
   public static final ComboParameter<KeepInMemory> memoryOption = new ComboParameter<>(
       "Keep in memory", String.format(
       "Specifies the objects that are kept in memory rather than memory mapping "
@@ -182,6 +205,14 @@ public class MZminePreferences extends SimpleParameterSet {
       KeepInMemory.ALL, KeepInMemory.MASSES_AND_FEATURES), KeepInMemory.values(),
       KeepInMemory.NONE);
 
+  public static final ComboParameter<SpectralStorageCodec> spectralStorageCodec = new ComboParameter<>(
+      "Spectral data compression", """
+      Compresses memory mapped spectral data (scans and mass lists) in the temp directory. m/z values \
+      are numpress encoded with an absolute error below 1E-5, intensities are stored as 32 bit floats \
+      or as 16 bit log-scaled values (relative error ~1E-4). Reduces the temp file size and disk \
+      traffic at the cost of decoding on access. Only applies to newly imported or processed data.""",
+      SpectralStorageCodec.values(), SpectralStorageCodec.NONE);
+
   /*public static final BooleanParameter applyTimsPressureCompensation = new BooleanParameter(
       "Use MALDI-TIMS pressure compensation", """
       Specifies if mobility values from Bruker timsTOF fleX MALDI raw data shall be recalibrated using a Bruker algorithm.
@@ -207,12 +238,11 @@ public class MZminePreferences extends SimpleParameterSet {
       "Image paint scale transformation", "Transforms the paint scale for images.",
       PaintScaleTransform.values(), PaintScaleTransform.LINEAR);
 
-  private static final NumberFormats exportFormat = new NumberFormats(new DecimalFormat("0.#####"),
-      new DecimalFormat("0.####"), new DecimalFormat("0.####"), new DecimalFormat("0.##"),
-      new DecimalFormat("0.###E0"), new DecimalFormat("0.##"), new DecimalFormat("0.####"),
-      new DecimalFormat("0.###"), UnitFormat.DIVIDE);
+  // DecimalFormat is not thread safe and exports format values in parallel
+  private static final ThreadLocal<NumberFormats> exportFormat = ThreadLocal.withInitial(
+      MZminePreferences::createExportFormats);
   private final BooleanProperty darkModeProperty = new SimpleBooleanProperty(false);
-  private NumberFormats guiFormat = exportFormat; // default value
+  private NumberFormats guiFormat = createExportFormats(); // default value
 
   public static final FileNameParameter msConvertPath = new FileNameWithDownloadParameter(
       "MSConvert path",
@@ -253,8 +283,8 @@ public class MZminePreferences extends SimpleParameterSet {
 
   public MZminePreferences() {
     super(// start with performance
-        numOfThreads, memoryOption, tempDirectory, runGCafterBatchStep, deleteTempFiles,
-        proxySettings,
+        numOfThreads, memoryOption, spectralStorageCodec, tempDirectory, massDetectionCache,
+        compoundDatabaseCache, embeddingCache, runGCafterBatchStep, deleteTempFiles, proxySettings,
         /*applyTimsPressureCompensation,*/
         // visuals
         // number formats
@@ -294,7 +324,8 @@ public class MZminePreferences extends SimpleParameterSet {
     GroupedParameterSetupDialog dialog = new GroupedParameterSetupDialog(valueCheckRequired, this);
 
     // add groups
-    dialog.addParameterGroup("General", numOfThreads, memoryOption, tempDirectory,
+    dialog.addParameterGroup("General", numOfThreads, memoryOption, spectralStorageCodec,
+        tempDirectory, massDetectionCache, compoundDatabaseCache, embeddingCache,
         runGCafterBatchStep, deleteTempFiles, proxySettings
         /*, applyTimsPressureCompensation*/);
     dialog.addParameterGroup("Formats", mzFormat, rtFormat, mobilityFormat, ccsFormat,
@@ -331,6 +362,7 @@ public class MZminePreferences extends SimpleParameterSet {
     // enforce memory option (only applies to new data)
     final KeepInMemory keepInMemory = getValue(MZminePreferences.memoryOption);
     keepInMemory.enforceToMemoryMapping();
+    SpectralStorageCodec.setDefault(getValue(MZminePreferences.spectralStorageCodec));
 
     final Themes theme = getValue(MZminePreferences.theme);
     if (previousTheme != null) {
@@ -502,8 +534,18 @@ public class MZminePreferences extends SimpleParameterSet {
   }
 
 
+  private static NumberFormats createExportFormats() {
+    return new NumberFormats(new DecimalFormat("0.#####"), new DecimalFormat("0.####"),
+        new DecimalFormat("0.####"), new DecimalFormat("0.##"), new DecimalFormat("0.###E0"),
+        new DecimalFormat("0.##"), new DecimalFormat("0.####"), new DecimalFormat("0.###"),
+        UnitFormat.DIVIDE);
+  }
+
+  /**
+   * @return the export formats of the calling thread
+   */
   public NumberFormats getExportFormats() {
-    return exportFormat;
+    return exportFormat.get();
   }
 
   public NumberFormats getGuiFormats() {
@@ -123,6 +123,7 @@ import io.github.mzmine.modules.dataprocessing.norm_standardcompound.StandardCom
 import io.github.mzmine.modules.io.export_ccsbase.CcsBaseExportModule;
 import io.github.mzmine.modules.io.export_compoundAnnotations_csv.CompoundAnnotationsCSVExportModule;
 import io.github.mzmine.modules.io.export_features_all_speclib_matches.ExportAllIdsGraphicalModule;
+import io.github.mzmine.modules.io.export_features_columnar.ColumnarExportModule;
 import io.github.mzmine.modules.io.export_features_csv.CSVExportModularModule;
 import io.github.mzmine.modules.io.export_features_csv_legacy.LegacyCSVExportModule;
 import io.github.mzmine.modules.io.export_features_featureML.FeatureMLExportModularModule;
@@ -404,6 +405,7 @@ public class BatchModeModulesList {
           SiriusExportModule.class, //
           MZTabmImportModule.class, //
           CSVExportModularModule.class, //
+          ColumnarExportModule.class, //
           LegacyCSVExportModule.class, //
           CompoundAnnotationsCSVExportModule.class, //
           LibraryAnalysisCSVExportModule.class, //
@@ -35,6 +35,7 @@ import io.github.mzmine.datamodel.features.FeatureListRow;
 import io.github.mzmine.datamodel.features.ModularFeature;
 import io.github.mzmine.datamodel.features.ModularFeatureList;
 import io.github.mzmine.datamodel.features.ModularFeatureListRow;
+import io.github.mzmine.datamodel.features.RowSpatialIndex;
 import io.github.mzmine.datamodel.features.SimpleFeatureListAppliedMethod;
 import io.github.mzmine.datamodel.features.types.ImageType;
 import io.github.mzmine.modules.dataprocessing.align_join.RowAlignmentScoreCalculator;
@@ -151,6 +152,7 @@ public class LcImageAlignerTask extends AbstractTask {
             true)).sorted(FeatureListRowSorter.MZ_ASCENDING).toList();
 
     logger.finest(() -> "Copied " + lcRows.size() + " LC rows.");
+    final RowSpatialIndex lcRowIndex = RowSpatialIndex.of(lcRows);
 
     // score all rows (parallel)
     imageLists.stream().flatMap(FeatureList::stream).parallel().forEach(imageRow -> {
@@ -166,8 +168,8 @@ public class LcImageAlignerTask extends AbstractTask {
       final double maxMobDiff = mobRange.equals(Range.all()) ? Double.POSITIVE_INFINITY
           : RangeUtils.rangeLength(mobRange) / 2;
 
-      final List<FeatureListRow> matchingLcRows = FeatureListUtils.getCandidatesWithinRanges(
-          mzRange, Range.all(), mobRange, lcRows, true);
+      final List<FeatureListRow> matchingLcRows = lcRowIndex.getRowsWithin(mzRange, Range.all(),
+          mobRange);
       for (FeatureListRow lcRow : matchingLcRows) {
         RowVsRowScore score = new RowVsRowScore(imageRow, lcRow, mzRange, null, mobRange, null,
             mzWeight, 0, mobWeight, 0);
@@ -36,6 +36,7 @@ import io.github.mzmine.datamodel.featuredata.IonTimeSeries;
 import io.github.mzmine.datamodel.featuredata.IonTimeSeriesUtils;
 import io.github.mzmine.datamodel.features.Feature;
 import io.github.mzmine.datamodel.features.FeatureList;
+import io.github.mzmine.datamodel.features.FeatureListRow;
 import io.github.mzmine.datamodel.features.ModularFeature;
 import io.github.mzmine.datamodel.features.ModularFeatureList;
 import io.github.mzmine.datamodel.features.ModularFeatureListRow;
@@ -52,13 +53,18 @@ import io.github.mzmine.util.MemoryMapStorage;
 import java.time.Instant;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.stream.IntStream;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
 public class BaselineCorrectionTask extends AbstractSimpleTask {
 
+  /**
+   * Rows are corrected in parallel chunks, each with its own corrector and data access
+   */
+  private static final int ROWS_PER_CHUNK = 512;
+
   private final FeatureList originalFlist;
-  private final BaselineCorrector corrector;
   private final String suffix;
   private final MZmineProject project;
   private OriginalFeatureListOption handleOriginal;
@@ -81,9 +87,6 @@ public class BaselineCorrectionTask extends AbstractSimpleTask {
     this.originalFlist = flist;
     handleOriginal = parameters.getValue(BaselineCorrectionParameters.handleOriginal);
     this.project = project;
-    final BaselineCorrectors value = parameters.getValue(
-        BaselineCorrectionParameters.correctionAlgorithm);
-    corrector = value.getModuleInstance().newInstance(parameters, getMemoryMapStorage(), flist);
     suffix = parameters.getValue(BaselineCorrectionParameters.suffix);
     totalItems = flist.getNumberOfRows();
   }
@@ -96,16 +99,48 @@ public class BaselineCorrectionTask extends AbstractSimpleTask {
 
     newFlist = FeatureListUtils.createCopy(originalFlist, suffix, getMemoryMapStorage());
 
+    final List<FeatureListRow> rows = originalFlist.getRows();
+    final int numChunks = (rows.size() + ROWS_PER_CHUNK - 1) / ROWS_PER_CHUNK;
+
+    // correctors and data accesses hold buffers and are not thread safe - one per chunk
+    final List<List<ModularFeatureListRow>> correctedChunks = IntStream.range(0, numChunks)
+        .parallel().mapToObj(chunk -> correctRows(rows.subList(chunk * ROWS_PER_CHUNK,
+            Math.min(rows.size(), (chunk + 1) * ROWS_PER_CHUNK)))).toList();
+
+    // chunks may be incomplete - do not publish a partial feature list
+    if (isCanceled()) {
+      return;
+    }
+
+    // add rows in the original order
+    for (List<ModularFeatureListRow> chunk : correctedChunks) {
+      for (ModularFeatureListRow newRow : chunk) {
+        newFlist.addRow(newRow);
+      }
+    }
+
+    handleOriginal.reflectNewFeatureListToProject(suffix, project, newFlist, originalFlist);
+  }
+
+  private List<ModularFeatureListRow> correctRows(List<FeatureListRow> rows) {
+    final BaselineCorrector corrector = parameters.getValue(
+            BaselineCorrectionParameters.correctionAlgorithm).getModuleInstance()
+        .newInstance(parameters, getMemoryMapStorage(), originalFlist);
+
     final RawDataFile rawDataFile = originalFlist.getRawDataFile(0);
     final FeatureDataAccess access = EfficientDataAccess.of(originalFlist,
-        EfficientDataAccess.FeatureDataType.INCLUDE_ZEROS, rawDataFile);
+        EfficientDataAccess.FeatureDataType.INCLUDE_ZEROS, rawDataFile, rows);
 
+    final List<ModularFeatureListRow> newRows = new ArrayList<>(access.getNumOfFeatures());
     while (access.hasNextFeature()) {
+      if (isCanceled()) {
+        return newRows;
+      }
       final Feature feature = access.nextFeature();
 
       final IonTimeSeries<? extends Scan> its = corrector.correctBaseline(access);
 
-      handleMrmFeature(feature);
+      handleMrmFeature(feature, corrector);
 
       final ModularFeatureListRow newRow = new ModularFeatureListRow(newFlist,
           (ModularFeatureListRow) feature.getRow(), false);
@@ -113,14 +148,13 @@ public class BaselineCorrectionTask extends AbstractSimpleTask {
       newFeature.set(FeatureDataType.class, its);
       FeatureDataUtils.recalculateIonSeriesDependingTypes(newFeature);
       newRow.addFeature(rawDataFile, newFeature);
-      newFlist.addRow(newRow);
+      newRows.add(newRow);
       finishedItems.getAndIncrement();
     }
-
-    handleOriginal.reflectNewFeatureListToProject(suffix, project, newFlist, originalFlist);
+    return newRows;
   }
 
-  private void handleMrmFeature(Feature feature) {
+  private void handleMrmFeature(Feature feature, BaselineCorrector corrector) {
     final ModularFeature f = (ModularFeature) feature;
     if (f.get(MrmTransitionListType.class) instanceof MrmTransitionList transitions) {
       final List<? extends Scan> allScans = newFlist.getSeletedScans(f.getRawDataFile());
@@ -38,6 +38,7 @@ import io.github.mzmine.util.collections.IndexRange;
 import io.github.mzmine.util.collections.SimpleIndexRange;
 import java.awt.Color;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Comparator;
 import java.util.List;
 import java.util.stream.DoubleStream;
@@ -74,10 +75,11 @@ public class ChangBaselineCorrector extends AbstractBaselineCorrector {
 
   // Method for linear interpolation
   // TODO check linear interpolation and performance again
-  private static double[] linearInterpolation(double[] x, double[] y, double[] newX) {
-    double[] newY = new double[newX.length];
+  private static double[] linearInterpolation(double[] x, double[] y, double[] newX,
+      int numValues) {
+    double[] newY = new double[numValues];
     int index = 0;
-    for (int i = 0; i < newX.length; i++) {
+    for (int i = 0; i < numValues; i++) {
       while (index < x.length - 1 && newX[i] > x[index + 1]) {
         index++;
       }
@@ -88,10 +90,18 @@ public class ChangBaselineCorrector extends AbstractBaselineCorrector {
   }
 
   public static double[] highPassFilter(double[] ys, double alpha) {
-    double[] y = new double[ys.length];
+    return highPassFilter(ys, ys.length, alpha);
+  }
+
+  /**
+   * @param ys        the data, may be longer than numValues
+   * @param numValues only filter the first values
+   */
+  public static double[] highPassFilter(double[] ys, int numValues, double alpha) {
+    double[] y = new double[numValues];
     y[0] = alpha * (0 + ys[0]);
 
-    for (int i = 1; i < ys.length; i++) {
+    for (int i = 1; i < numValues; i++) {
       y[i] = alpha * (y[i - 1] + ys[i] - ys[i - 1]);
     }
 
@@ -109,7 +119,7 @@ public class ChangBaselineCorrector extends AbstractBaselineCorrector {
     // minimum 5 points per segment
     final int numSegments = Math.min(maxSegments, (int) Math.ceil((double) numValues / 5));
 
-    final double[] filtered = highPassFilter(yBuffer, alpha);
+    final double[] filtered = highPassFilter(yBuffer, numValues, alpha);
     final int numPerSegment = numValues / numSegments;
 
     final List<IndexRange> indices = new ArrayList<>();
@@ -134,23 +144,36 @@ public class ChangBaselineCorrector extends AbstractBaselineCorrector {
         r -> DoubleStream.of(filtered).skip(r.min()).limit(r.maxExclusive() - r.min())).toArray());
 
     final boolean[] isSignal = new boolean[numValues];
+    final double signalThreshold = 2 * backgroundSDev;
+    // end of the already marked window (exclusive), so every point is only marked once
+    int markedUntil = 0;
     for (int i = 0; i < numValues; i++) {
-      if (Math.abs(filtered[i]) > 2 * backgroundSDev) {
+      if (Math.abs(filtered[i]) > signalThreshold) {
 //        considered to be signal, mark the points around
-        for (int j = Math.max(0, i - windowSize); j < Math.min(numValues - 1, j + windowSize);
-            j++) {
+        final int end = Math.min(numValues - 1, i + windowSize);
+        for (int j = Math.max(markedUntil, i - windowSize); j < end; j++) {
           isSignal[j] = true;
         }
+        markedUntil = Math.max(markedUntil, end);
       }
     }
     isSignal[0] = false;
     isSignal[isSignal.length - 1] = false;
 
+    int numBackground = 0;
+    final double[] backgroundX = new double[numValues];
+    final double[] backgroundY = new double[numValues];
+    for (int i = 0; i < numValues; i++) {
+      if (!isSignal[i]) {
+        backgroundX[numBackground] = xBuffer[i];
+        backgroundY[numBackground] = yBuffer[i];
+        numBackground++;
+      }
+    }
+
     final double[] backgroundSignal = linearInterpolation(
-        IntStream.range(0, numValues).filter(j -> !isSignal[j]).mapToDouble(j -> xBuffer[j])
-            .toArray(),
-        IntStream.range(0, numValues).filter(j -> !isSignal[j]).mapToDouble(j -> yBuffer[j])
-            .toArray(), xBuffer);
+        Arrays.copyOf(backgroundX, numBackground), Arrays.copyOf(backgroundY, numBackground),
+        xBuffer, numValues);
 
     for (int i = 0; i < numValues; i++) {
       yBuffer[i] = Math.max(0,
@@ -0,0 +1,691 @@
+/*
+ * Copyright (c) 2004-2025 The mzmine Development Team
+ *
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+
+package io.github.mzmine.modules.dataprocessing.featdet_massdetection;
+
+import io.github.mzmine.datamodel.RawDataFile;
+import io.github.mzmine.datamodel.Scan;
+import io.github.mzmine.datamodel.features.FeatureList.FeatureListAppliedMethod;
+import io.github.mzmine.gui.preferences.MZminePreferences;
+import io.github.mzmine.main.ConfigService;
+import io.github.mzmine.parameters.Parameter;
+import io.github.mzmine.parameters.ParameterSet;
+import io.github.mzmine.parameters.parametertypes.filenames.FileNamesParameter;
+import io.github.mzmine.parameters.parametertypes.selectors.RawDataFilesParameter;
+import io.github.mzmine.util.XMLUtils;
+import io.github.mzmine.util.files.FileAndPathUtil;
+import it.unimi.dsi.fastutil.longs.Long2IntOpenHashMap;
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.lang.foreign.Arena;
+import java.lang.foreign.MemorySegment;
+import java.lang.foreign.ValueLayout;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.FileTime;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.stream.Stream;
+import javax.xml.parsers.DocumentBuilderFactory;
+import javax.xml.parsers.ParserConfigurationException;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+
+/**
+ * Persistent on-disk cache of centroided mass lists. Entries are keyed by a checksum of the raw
+ * data file and a hash of the mass detection parameters, so that re-running a batch with only
+ * downstream changes can attach the previous mass lists instead of running the mass detector
+ * again. The cache directory is bounded in size and evicts the least recently used entries.
+ * <p>
+ * Mass detection during import is cached per raw file and advanced import parameters, see
+ * {@link #createImportKey(File, ParameterSet)}. Its scans are matched by a hash of the spectrum
+ * that was passed to the mass detector, see {@link #hashSpectrum}.
+ * <p>
+ * Entry layout (big endian): one block per scan with all m/z values followed by all intensities,
+ * then a footer of scan numbers, block offsets, value counts and input hashes. The last 16 bytes
+ * are the number of scans, the format version and a magic number. Entries are memory mapped for
+ * reading.
+ */
+public class MassDetectionCache {
+
+  private static final Logger logger = Logger.getLogger(MassDetectionCache.class.getName());
+
+  public static final String FILE_EXTENSION = "mdcache";
+  public static final String CACHE_DIRECTORY_NAME = "mass_detection_cache";
+
+  private static final long MAGIC = 0x4d5a4d4443414348L; // MZMDCACH
+  private static final int VERSION = 2;
+  private static final int FOOTER_BYTES_PER_SCAN = Integer.BYTES * 2 + Long.BYTES * 2;
+  private static final int FOOTER_TAIL_BYTES = Integer.BYTES * 2 + Long.BYTES;
+  private static final String TEMP_FILE_SUFFIX = ".tmp";
+  /**
+   * Temporary files that were not modified for this time are left over from aborted writers
+   */
+  private static final long ORPHANED_TEMP_FILE_AGE_MILLIS = 6 * 60 * 60 * 1000L;
+  /**
+   * Number of bytes read from the start and the end of each raw file for the checksum
+   */
+  private static final int PARTIAL_HASH_BYTES = 1 << 16;
+  private static final ValueLayout.OfDouble DOUBLE = ValueLayout.JAVA_DOUBLE_UNALIGNED.withOrder(
+      ByteOrder.BIG_ENDIAN);
+  private static final ValueLayout.OfInt INT = ValueLayout.JAVA_INT_UNALIGNED.withOrder(
+      ByteOrder.BIG_ENDIAN);
+  private static final ValueLayout.OfLong LONG = ValueLayout.JAVA_LONG_UNALIGNED.withOrder(
+      ByteOrder.BIG_ENDIAN);
+
+  /**
+   * Writes and evictions of all cache instances on the same directory are serialized
+   */
+  private static final Object LOCK = new Object();
+
+  private final Path directory;
+  private final long maxBytes;
+
+  /**
+   * @param directory the cache directory, created on first write
+   * @param maxBytes  maximum total size of all entries, the least recently used entries are
+   *                  evicted once the size is exceeded
+   */
+  public MassDetectionCache(@NotNull Path directory, long maxBytes) {
+    this.directory = directory;
+    this.maxBytes = maxBytes;
+  }
+
+  /**
+   * @return the cache configured in the {@link MZminePreferences} or null if disabled
+   */
+  @Nullable
+  public static MassDetectionCache fromPreferences() {
+    final MZminePreferences preferences = ConfigService.getPreferences();
+    if (preferences == null || !preferences.getValue(MZminePreferences.massDetectionCache)) {
+      return null;
+    }
+    final Integer sizeMB = preferences.getEmbeddedParameterValue(
+        MZminePreferences.massDetectionCache);
+    final File dir = FileAndPathUtil.resolveInMzmineDir(CACHE_DIRECTORY_NAME);
+    if (sizeMB == null || sizeMB <= 0 || dir == null) {
+      return null;
+    }
+    return new MassDetectionCache(dir.toPath(), sizeMB * 1024L * 1024L);
+  }
+
+  /**
+   * The key combines the checksum of the raw file with a hash of everything that changes the input
+   * of the mass detector: the mass detection parameters, the import processing (scan filters,
+   * cropping, mass detection during import) stored in the applied methods of the data file and a
+   * fingerprint of the scans.
+   *
+   * @param dataFile   the raw data file
+   * @param scans      the scans that the mass detector is applied to
+   * @param parameters the mass detection parameters, the raw data file selection is ignored
+   * @return the cache key or null if the raw data file cannot be read
+   */
+  @Nullable
+  public static String createKey(@NotNull RawDataFile dataFile,
+      @NotNull List<? extends Scan> scans, @NotNull ParameterSet parameters) {
+    final File rawFile = dataFile.getAbsoluteFilePath();
+    try {
+      final MessageDigest digest = sha256();
+      digest.update(parametersToXml(parameters));
+      for (FeatureListAppliedMethod method : dataFile.getAppliedMethods()) {
+        // previous mass detection runs do not change the raw scans
+        if (method.getModule() instanceof MassDetectionModule) {
+          continue;
+        }
+        digest.update(method.getDescription().getBytes(StandardCharsets.UTF_8));
+        digest.update(parametersToXml(method.getParameters()));
+      }
+      updateScanFingerprint(digest, scans);
+      return checksum(rawFile) + "_" + HexFormat.of().formatHex(digest.digest(), 0, 16);
+    } catch (IOException | ParserConfigurationException e) {
+      logger.log(Level.FINE,
+          "Cannot create mass detection cache key for " + rawFile + ": " + e.getMessage(), e);
+      return null;
+    }
+  }
+
+  /**
+   * The key of mass detection applied during import. Combines the checksum of the raw file with a
+   * hash of the advanced import parameters, which define scan filters, cropping and the mass
+   * detectors.
+   *
+   * @param rawFile                  the imported file
+   * @param advancedImportParameters the advanced import parameters
+   * @return the cache key or null if the raw file cannot be read
+   */
+  @Nullable
+  public static String createImportKey(@NotNull File rawFile,
+      @NotNull ParameterSet advancedImportParameters) {
+    try {
+      final MessageDigest digest = sha256();
+      digest.update("import".getBytes(StandardCharsets.UTF_8));
+      digest.update(parametersToXml(advancedImportParameters));
+      return checksum(rawFile) + "_" + HexFormat.of().formatHex(digest.digest(), 0, 16);
+    } catch (IOException | ParserConfigurationException e) {
+      logger.log(Level.FINE,
+          "Cannot create mass detection cache key for " + rawFile + ": " + e.getMessage(), e);
+      return null;
+    }
+  }
+
+  /**
+   * Hash of a spectrum as it is passed to the mass detector. Used to find the cached mass list of a
+   * scan independent of the processing order, and to distinguish mobility scans of the same frame.
+   *
+   * @param scanNumber   the scan number
+   * @param msLevel      the MS level, selects the mass detector
+   * @param spectrumType ordinal of the spectrum type
+   * @return a 64 bit hash of all inputs
+   */
+  public static long hashSpectrum(int scanNumber, int msLevel, int spectrumType, double[] mzs,
+      double[] intensities) {
+    long hash = mix(0x9E3779B97F4A7C15L ^ scanNumber);
+    hash = mix(hash ^ ((long) msLevel << 32 | spectrumType));
+    hash = mix(hash ^ mzs.length);
+    for (int i = 0; i < mzs.length; i++) {
+      hash = mix(hash ^ Double.doubleToLongBits(mzs[i]));
+      hash = mix(hash ^ Double.doubleToLongBits(intensities[i]));
+    }
+    return hash;
+  }
+
+  /**
+   * Finalizer of SplitMix64
+   */
+  private static long mix(long z) {
+    z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+    z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+    return z ^ (z >>> 31);
+  }
+
+  /**
+   * Checksum over size, modification time and the first and last bytes of each file. Folders (e.g.,
+   * Bruker .d) are walked in sorted order.
+   */
+  static String checksum(@NotNull File rawFile) throws IOException {
+    final MessageDigest digest = sha256();
+    final Path root = rawFile.toPath();
+    final List<Path> files;
+    if (Files.isDirectory(root)) {
+      try (Stream<Path> stream = Files.walk(root)) {
+        files = stream.filter(Files::isRegularFile).sorted().toList();
+      }
+    } else {
+      files = List.of(root);
+    }
+
+    final byte[] buffer = new byte[PARTIAL_HASH_BYTES];
+    for (Path file : files) {
+      digest.update(root.relativize(file).toString().getBytes(StandardCharsets.UTF_8));
+      try (RandomAccessFile raf = new RandomAccessFile(file.toFile(), "r")) {
+        final long length = raf.length();
+        digest.update(longToBytes(length));
+        digest.update(longToBytes(Files.getLastModifiedTime(file).toMillis()));
+
+        int read = raf.read(buffer, 0, (int) Math.min(buffer.length, length));
+        digest.update(buffer, 0, Math.max(read, 0));
+        if (length > buffer.length) {
+          raf.seek(Math.max(buffer.length, length - buffer.length));
+          read = raf.read(buffer);
+          digest.update(buffer, 0, Math.max(read, 0));
+        }
+      }
+    }
+    return HexFormat.of().formatHex(digest.digest(), 0, 16);
+  }
+
+  static String hashParameters(@NotNull ParameterSet parameters)
+      throws ParserConfigurationException {
+    final byte[] hash = sha256().digest(parametersToXml(parameters));
+    return HexFormat.of().formatHex(hash, 0, 16);
+  }
+
+  /**
+   * Data files and file names are skipped, the same settings on another file selection produce the
+   * same mass lists
+   */
+  private static byte[] parametersToXml(@NotNull ParameterSet parameters)
+      throws ParserConfigurationException {
+    final Document doc = DocumentBuilderFactory.newInstance().newDocumentBuilder().newDocument();
+    final Element root = doc.createElement("parameters");
+    doc.appendChild(root);
+    for (Parameter<?> parameter : parameters.getParameters()) {
+      if (parameter instanceof RawDataFilesParameter || parameter instanceof FileNamesParameter) {
+        continue;
+      }
+      final Element element = XMLUtils.appendElement(root, "parameter", "name",
+          parameter.getName());
+      parameter.saveValueToXML(element);
+    }
+    final String xml = XMLUtils.nodeToString(root);
+    return (xml == null ? parameters.toString() : xml).getBytes(StandardCharsets.UTF_8);
+  }
+
+  /**
+   * Fingerprint of the scan data as it is passed to the mass detector. Catches changes of the
+   * spectra that are not reflected in the parameters, e.g., other import processing of the same
+   * file.
+   */
+  static void updateScanFingerprint(@NotNull MessageDigest digest,
+      @NotNull List<? extends Scan> scans) {
+    final ByteBuffer buffer = ByteBuffer.allocate(Integer.BYTES * 5 + Long.BYTES * 3);
+    for (Scan scan : scans) {
+      buffer.clear();
+      buffer.putInt(scan.getScanNumber());
+      buffer.putInt(scan.getMSLevel());
+      buffer.putInt(scan.getNumberOfDataPoints());
+      buffer.putInt(scan.getSpectrumType().ordinal());
+      buffer.putInt(Float.floatToIntBits(scan.getRetentionTime()));
+      buffer.putLong(doubleBits(scan.getTIC()));
+      buffer.putLong(doubleBits(scan.getBasePeakMz()));
+      buffer.putLong(doubleBits(scan.getBasePeakIntensity()));
+      digest.update(buffer.array(), 0, buffer.position());
+    }
+  }
+
+  private static long doubleBits(@Nullable Double value) {
+    return value == null ? 0L : Double.doubleToLongBits(value);
+  }
+
+  /**
+   * @return the cached mass lists or null if there is no valid entry for this key
+   */
+  @Nullable
+  public CachedMassLists get(@NotNull String key) {
+    final Path file = resolve(key);
+    if (!Files.isRegularFile(file)) {
+      return null;
+    }
+    try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+      final long size = channel.size();
+      if (size < FOOTER_TAIL_BYTES) {
+        return null;
+      }
+      // auto arena unmaps the file once the cached lists are garbage collected
+      final MemorySegment segment = channel.map(MapMode.READ_ONLY, 0, size, Arena.ofAuto());
+      final long tail = size - FOOTER_TAIL_BYTES;
+      final int numScans = segment.get(INT, tail);
+      final int version = segment.get(INT, tail + Integer.BYTES);
+      final long magic = segment.get(LONG, tail + Integer.BYTES * 2);
+      final long footerStart = tail - (long) numScans * FOOTER_BYTES_PER_SCAN;
+      if (magic != MAGIC || version != VERSION || numScans < 0 || footerStart < 0) {
+        logger.fine(() -> "Invalid mass detection cache entry " + file);
+        return null;
+      }
+
+      final int[] scanNumbers = new int[numScans];
+      final long[] offsets = new long[numScans];
+      final int[] counts = new int[numScans];
+      final long[] inputHashes = new long[numScans];
+      MemorySegment.copy(segment, INT, footerStart, scanNumbers, 0, numScans);
+      long pos = footerStart + (long) numScans * Integer.BYTES;
+      MemorySegment.copy(segment, LONG, pos, offsets, 0, numScans);
+      pos += (long) numScans * Long.BYTES;
+      MemorySegment.copy(segment, INT, pos, counts, 0, numScans);
+      pos += (long) numScans * Integer.BYTES;
+      MemorySegment.copy(segment, LONG, pos, inputHashes, 0, numScans);
+
+      // mark as recently used for the LRU eviction
+      Files.setLastModifiedTime(file, FileTime.from(Instant.now()));
+      return new CachedMassLists(segment, scanNumbers, offsets, counts, inputHashes);
+    } catch (IOException | RuntimeException e) {
+      logger.log(Level.WARNING,
+          "Cannot read mass detection cache entry " + file + ": " + e.getMessage(), e);
+      return null;
+    }
+  }
+
+  /**
+   * Opens a writer for a new entry. Mass lists are streamed to a temporary file that only replaces
+   * the entry on {@link Writer#commit()}. Write errors are logged and only discard the entry.
+   *
+   * @return the writer or null if the cache directory is not writable
+   */
+  @Nullable
+  public Writer createWriter(@NotNull String key) {
+    try {
+      Files.createDirectories(directory);
+      deleteOrphanedTempFiles();
+      return new Writer(key);
+    } catch (IOException e) {
+      logger.log(Level.WARNING,
+          "Cannot write to mass detection cache " + directory + ": " + e.getMessage(), e);
+      return null;
+    }
+  }
+
+  private Path resolve(String key) {
+    return directory.resolve(key + "." + FILE_EXTENSION);
+  }
+
+  /**
+   * Deletes temporary files of writers that were aborted, e.g., when mzmine was closed during mass
+   * detection. Temporary files that were modified recently may still be written to.
+   */
+  void deleteOrphanedTempFiles() {
+    final long maxLastModified = System.currentTimeMillis() - ORPHANED_TEMP_FILE_AGE_MILLIS;
+    synchronized (LOCK) {
+      final List<Path> tempFiles;
+      try (Stream<Path> stream = Files.list(directory)) {
+        tempFiles = stream.filter(p -> p.getFileName().toString().endsWith(TEMP_FILE_SUFFIX))
+            .filter(p -> lastModified(p) < maxLastModified).toList();
+      } catch (IOException e) {
+        logger.log(Level.FINE, "Cannot list mass detection cache " + directory, e);
+        return;
+      }
+      for (Path tempFile : tempFiles) {
+        try {
+          Files.deleteIfExists(tempFile);
+          logger.fine(() -> "Deleted orphaned mass detection cache file " + tempFile);
+        } catch (IOException e) {
+          logger.log(Level.FINE, "Cannot delete orphaned cache file " + tempFile, e);
+        }
+      }
+    }
+  }
+
+  /**
+   * Deletes the least recently used entries until the cache fits into the maximum size
+   */
+  void evict() {
+    deleteOrphanedTempFiles();
+    synchronized (LOCK) {
+      final List<Path> entries;
+      try (Stream<Path> stream = Files.list(directory)) {
+        entries = new ArrayList<>(
+            stream.filter(p -> p.getFileName().toString().endsWith("." + FILE_EXTENSION))
+                .toList());
+      } catch (IOException e) {
+        logger.log(Level.WARNING, "Cannot list mass detection cache " + directory, e);
+        return;
+      }
+
+      long total = 0;
+      for (Path entry : entries) {
+        total += sizeOf(entry);
+      }
+      if (total <= maxBytes) {
+        return;
+      }
+
+      entries.sort(Comparator.comparingLong(MassDetectionCache::lastModified));
+      for (Path entry : entries) {
+        if (total <= maxBytes) {
+          break;
+        }
+        final long size = sizeOf(entry);
+        try {
+          Files.deleteIfExists(entry);
+          total -= size;
+          logger.fine(() -> "Evicted mass detection cache entry " + entry);
+        } catch (IOException e) {
+          // may still be mapped on some platforms
+          logger.log(Level.FINE, "Cannot evict mass detection cache entry " + entry, e);
+        }
+      }
+    }
+  }
+
+  private static long sizeOf(Path file) {
+    try {
+      return Files.size(file);
+    } catch (IOException e) {
+      return 0;
+    }
+  }
+
+  private static long lastModified(Path file) {
+    try {
+      return Files.getLastModifiedTime(file).toMillis();
+    } catch (IOException e) {
+      return 0;
+    }
+  }
+
+  private static MessageDigest sha256() {
+    try {
+      return MessageDigest.getInstance("SHA-256");
+    } catch (NoSuchAlgorithmException e) {
+      throw new IllegalStateException("SHA-256 is not available", e);
+    }
+  }
+
+  private static byte[] longToBytes(long value) {
+    final byte[] bytes = new byte[Long.BYTES];
+    for (int i = Long.BYTES - 1; i >= 0; i--) {
+      bytes[i] = (byte) value;
+      value >>>= 8;
+    }
+    return bytes;
+  }
+
+  /**
+   * Streams mass lists into a temporary file. Call {@link #commit()} after the last scan, closing
+   * without commit discards the entry. Not thread safe.
+   */
+  public class Writer implements AutoCloseable {
+
+    private final String key;
+    private final Path tempFile;
+    private final DataOutputStream out;
+    private final List<int[]> scanNumberAndCount = new ArrayList<>();
+    private final List<Long> offsets = new ArrayList<>();
+    private final List<Long> inputHashes = new ArrayList<>();
+    private long position = 0;
+    private boolean committed = false;
+    private boolean failed = false;
+
+    private Writer(String key) throws IOException {
+      this.key = key;
+      tempFile = Files.createTempFile(directory, key, TEMP_FILE_SUFFIX);
+      out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(tempFile)));
+    }
+
+    public void append(int scanNumber, double[] mzs, double[] intensities) {
+      append(scanNumber, 0L, mzs, intensities);
+    }
+
+    /**
+     * @param inputHash hash of the spectrum that was passed to the mass detector, see
+     *                  {@link #hashSpectrum(int, int, int, double[], double[])}
+     */
+    public void append(int scanNumber, long inputHash, double[] mzs, double[] intensities) {
+      if (mzs.length != intensities.length) {
+        throw new IllegalArgumentException("m/z and intensity arrays differ in length");
+      }
+      if (failed) {
+        return;
+      }
+      try {
+        for (double mz : mzs) {
+          out.writeDouble(mz);
+        }
+        for (double intensity : intensities) {
+          out.writeDouble(intensity);
+        }
+      } catch (IOException e) {
+        fail(e);
+        return;
+      }
+      scanNumberAndCount.add(new int[]{scanNumber, mzs.length});
+      offsets.add(position);
+      inputHashes.add(inputHash);
+      position += (long) mzs.length * Double.BYTES * 2;
+    }
+
+    /**
+     * Writes the footer, moves the entry into place and evicts old entries
+     */
+    public void commit() {
+      if (failed) {
+        return;
+      }
+      try {
+        final int numScans = scanNumberAndCount.size();
+        for (int[] scan : scanNumberAndCount) {
+          out.writeInt(scan[0]);
+        }
+        for (Long offset : offsets) {
+          out.writeLong(offset);
+        }
+        for (int[] scan : scanNumberAndCount) {
+          out.writeInt(scan[1]);
+        }
+        for (Long inputHash : inputHashes) {
+          out.writeLong(inputHash);
+        }
+        out.writeInt(numScans);
+        out.writeInt(VERSION);
+        out.writeLong(MAGIC);
+        out.close();
+
+        synchronized (LOCK) {
+          Files.move(tempFile, resolve(key), StandardCopyOption.REPLACE_EXISTING);
+          committed = true;
+        }
+      } catch (IOException e) {
+        fail(e);
+        return;
+      }
+      evict();
+    }
+
+    private void fail(IOException e) {
+      failed = true;
+      logger.log(Level.WARNING,
+          "Cannot write mass detection cache entry " + key + ": " + e.getMessage(), e);
+    }
+
+    @Override
+    public void close() {
+      if (committed) {
+        return;
+      }
+      try {
+        out.close();
+        Files.deleteIfExists(tempFile);
+      } catch (IOException e) {
+        logger.log(Level.FINE, "Cannot delete temporary cache file " + tempFile, e);
+      }
+    }
+  }
+
+  /**
+   * Memory mapped mass lists of one cache entry in the order they were written
+   */
+  public static final class CachedMassLists {
+
+    private final MemorySegment segment;
+    private final int[] scanNumbers;
+    private final long[] offsets;
+    private final int[] counts;
+    private final long[] inputHashes;
+    // lazily created index of input hashes
+    private volatile Long2IntOpenHashMap inputIndex;
+
+    private CachedMassLists(MemorySegment segment, int[] scanNumbers, long[] offsets,
+        int[] counts, long[] inputHashes) {
+      this.segment = segment;
+      this.scanNumbers = scanNumbers;
+      this.offsets = offsets;
+      this.counts = counts;
+      this.inputHashes = inputHashes;
+    }
+
+    public int getNumberOfScans() {
+      return scanNumbers.length;
+    }
+
+    public int getScanNumber(int index) {
+      return scanNumbers[index];
+    }
+
+    /**
+     * @return true if the entry was written for exactly these scans in this order
+     */
+    public boolean matchesScans(@NotNull List<? extends Scan> scans) {
+      if (scans.size() != scanNumbers.length) {
+        return false;
+      }
+      for (int i = 0; i < scanNumbers.length; i++) {
+        if (scans.get(i).getScanNumber() != scanNumbers[i]) {
+          return false;
+        }
+      }
+      return true;
+    }
+
+    /**
+     * @param inputHash the hash of the spectrum passed to the mass detector
+     * @return the index of the mass list or -1 if there is none for this scan and input
+     */
+    public int indexOf(int scanNumber, long inputHash) {
+      Long2IntOpenHashMap index = inputIndex;
+      if (index == null) {
+        index = new Long2IntOpenHashMap(inputHashes.length);
+        index.defaultReturnValue(-1);
+        for (int i = 0; i < inputHashes.length; i++) {
+          index.put(inputHashes[i], i);
+        }
+        // read only after publication, concurrent threads may build their own copy
+        inputIndex = index;
+      }
+      final int i = index.get(inputHash);
+      return i != -1 && scanNumbers[i] == scanNumber ? i : -1;
+    }
+
+    public double[] getMzValues(int index) {
+      final double[] mzs = new double[counts[index]];
+      MemorySegment.copy(segment, DOUBLE, offsets[index], mzs, 0, mzs.length);
+      return mzs;
+    }
+
+    public double[] getIntensityValues(int index) {
+      final double[] intensities = new double[counts[index]];
+      MemorySegment.copy(segment, DOUBLE, offsets[index] + (long) counts[index] * Double.BYTES,
+          intensities, 0, intensities.length);
+      return intensities;
+    }
+  }
+}
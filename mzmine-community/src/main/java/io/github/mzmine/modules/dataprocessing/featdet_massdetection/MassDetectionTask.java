@@ -25,6 +25,7 @@
 
 package io.github.mzmine.modules.dataprocessing.featdet_massdetection;
 
+import io.github.mzmine.datamodel.IMSRawDataFile;
 import io.github.mzmine.datamodel.RawDataFile;
 import io.github.mzmine.datamodel.Scan;
 import io.github.mzmine.datamodel.data_access.EfficientDataAccess;
@@ -37,11 +38,14 @@ import io.github.mzmine.parameters.parametertypes.selectors.ScanSelection;
 import io.github.mzmine.taskcontrol.AbstractTask;
 import io.github.mzmine.taskcontrol.TaskStatus;
 import io.github.mzmine.util.MemoryMapStorage;
+import io.github.mzmine.modules.dataprocessing.featdet_massdetection.MassDetectionCache.CachedMassLists;
 import io.github.mzmine.util.scans.ScanUtils;
 import java.time.Instant;
+import java.util.List;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
 
 public class MassDetectionTask extends AbstractTask {
 
@@ -93,47 +97,30 @@ public class MassDetectionTask extends AbstractTask {
 
       logger.info("Started mass detector on " + dataFile);
 
-      // uses only a single array for each (mz and intensity) to loop over all scans
-      ScanDataAccess data = EfficientDataAccess.of(dataFile, EfficientDataAccess.ScanDataType.RAW,
-          scanSelection);
-      totalScans = data.getNumberOfScans();
+      // mobility scans are not cached, they are detected from the frame storage
+      final MassDetectionCache cache =
+          dataFile instanceof IMSRawDataFile ? null : MassDetectionCache.fromPreferences();
+      // the scans that receive a mass list, also used for the scan fingerprint of the cache key
+      final List<Scan> scans = cache == null ? List.of()
+          : scanSelection.streamMatchingScans(dataFile).filter(scanTypes::applyTo).toList();
+      final String cacheKey =
+          cache == null ? null : MassDetectionCache.createKey(dataFile, scans, parameters);
 
-      // all scans
-      while (data.hasNextScan()) {
+      if (cacheKey != null && applyCachedMassLists(cache, cacheKey, scans)) {
         if (isCanceled()) {
           return;
         }
-
-        Scan scan = data.nextScan();
-        assert scan != null;
-
-        double[][] mzPeaks;
-        if (scanTypes.applyTo(scan)) {
-          // run mass detection on data object
-          // [mzs, intensities]
-          mzPeaks = detector.getMassValues(data);
-
-          // denormalize scan intensities if injection time of trapped instrument was used.
-          // this is only done for MS2 because absolute intensities do not matter there
-          // MS1 needs to be normalized by injection time, which is already done during data acquisition
-          if (denormalizeMSnScans && scan.getMSLevel() > 1) {
-            ScanUtils.denormalizeIntensitiesMultiplyByInjectTime(mzPeaks[1],
-                scan.getInjectionTime());
+        logger.info("Applied cached mass lists to " + dataFile);
+      } else {
+        try (var cacheWriter = cacheKey == null ? null : cache.createWriter(cacheKey)) {
+          detectMasses(cacheWriter);
+          if (isCanceled()) {
+            return;
+          }
+          if (cacheWriter != null) {
+            cacheWriter.commit();
           }
-
-          // add mass list to scans and frames
-          scan.addMassList(new SimpleMassList(getMemoryMapStorage(), mzPeaks[0], mzPeaks[1]));
-        }
-
-        if (scan instanceof SimpleFrame frame && (scanTypes == SelectedScanTypes.MOBLITY_SCANS
-                                                  || scanTypes == SelectedScanTypes.SCANS)) {
-          // for ion mobility, detect subscans, too
-          frame.getMobilityScanStorage()
-              .generateAndAddMobilityScanMassLists(getMemoryMapStorage(), detector,
-                  denormalizeMSnScans);
         }
-
-        processedScans++;
       }
 
       dataFile.getAppliedMethods().add(
@@ -150,4 +137,87 @@ public class MassDetectionTask extends AbstractTask {
 
     logger.info("Finished mass detector on " + dataFile);
   }
+
+  /**
+   * Runs the mass detector on all selected scans
+   *
+   * @param cacheWriter receives all mass lists of regular scans or null if caching is disabled
+   */
+  private void detectMasses(@Nullable MassDetectionCache.Writer cacheWriter) {
+    // uses only a single array for each (mz and intensity) to loop over all scans
+    ScanDataAccess data = EfficientDataAccess.of(dataFile, EfficientDataAccess.ScanDataType.RAW,
+        scanSelection);
+    totalScans = data.getNumberOfScans();
+
+    // all scans
+    while (data.hasNextScan()) {
+      if (isCanceled()) {
+        return;
+      }
+
+      Scan scan = data.nextScan();
+      assert scan != null;
+
+      double[][] mzPeaks;
+      if (scanTypes.applyTo(scan)) {
+        // run mass detection on data object
+        // [mzs, intensities]
+        mzPeaks = detector.getMassValues(data);
+
+        // denormalize scan intensities if injection time of trapped instrument was used.
+        // this is only done for MS2 because absolute intensities do not matter there
+        // MS1 needs to be normalized by injection time, which is already done during data acquisition
+        if (denormalizeMSnScans && scan.getMSLevel() > 1) {
+          ScanUtils.denormalizeIntensitiesMultiplyByInjectTime(mzPeaks[1],
+              scan.getInjectionTime());
+        }
+
+        // add mass list to scans and frames
+        scan.addMassList(new SimpleMassList(getMemoryMapStorage(), mzPeaks[0], mzPeaks[1]));
+        if (cacheWriter != null) {
+          cacheWriter.append(scan.getScanNumber(), mzPeaks[0], mzPeaks[1]);
+        }
+      }
+
+      if (scan instanceof SimpleFrame frame && (scanTypes == SelectedScanTypes.MOBLITY_SCANS
+                                                || scanTypes == SelectedScanTypes.SCANS)) {
+        // for ion mobility, detect subscans, too
+        frame.getMobilityScanStorage()
+            .generateAndAddMobilityScanMassLists(getMemoryMapStorage(), detector,
+                denormalizeMSnScans);
+      }
+
+      processedScans++;
+    }
+  }
+
+  /**
+   * Attaches the cached mass lists if the entry covers exactly the selected scans
+   *
+   * @param scans the selected scans that receive a mass list
+   * @return true if the mass lists were applied
+   */
+  private boolean applyCachedMassLists(@NotNull MassDetectionCache cache, @NotNull String key,
+      @NotNull List<Scan> scans) {
+    final CachedMassLists cached = cache.get(key);
+    if (cached == null) {
+      return false;
+    }
+    if (!cached.matchesScans(scans)) {
+      logger.fine(() -> "Mass detection cache entry does not match the scans of " + dataFile);
+      return false;
+    }
+
+    totalScans = scans.size();
+    for (int i = 0; i < scans.size(); i++) {
+      if (isCanceled()) {
+        return true;
+      }
+      scans.get(i).addMassList(
+          new SimpleMassList(getMemoryMapStorage(), cached.getMzValues(i),
+              cached.getIntensityValues(i)));
+      processedScans++;
+    }
+    return true;
+  }
 }
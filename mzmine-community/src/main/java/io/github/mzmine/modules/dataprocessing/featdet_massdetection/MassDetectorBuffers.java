@@ -0,0 +1,149 @@
+/*
+ * Copyright (c) 2004-2025 The mzmine Development Team
+ *
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+
+package io.github.mzmine.modules.dataprocessing.featdet_massdetection;
+
+import io.github.mzmine.datamodel.MassSpectrum;
+import java.util.Arrays;
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * Reusable per-thread primitive buffers for the profile mass detectors. Buffers only grow, so after
+ * the largest spectrum of a file was processed the hot path does not allocate besides the final
+ * result arrays. A detector must not call another detector while it holds these buffers.
+ */
+public final class MassDetectorBuffers {
+
+  private static final ThreadLocal<MassDetectorBuffers> BUFFERS = ThreadLocal.withInitial(
+      MassDetectorBuffers::new);
+
+  private double[] mzs = new double[0];
+  private double[] intensities = new double[0];
+  private double[] work = new double[0];
+  private int[] indices = new int[0];
+
+  private double[] resultMzs = new double[128];
+  private double[] resultIntensities = new double[128];
+  private int resultSize = 0;
+
+  private MassDetectorBuffers() {
+  }
+
+  /**
+   * @return the buffers of the current thread
+   */
+  @NotNull
+  public static MassDetectorBuffers get() {
+    return BUFFERS.get();
+  }
+
+  /**
+   * Copies the m/z values of the spectrum into the m/z buffer. Read only.
+   *
+   * @return the buffer or the backing array of the spectrum, may be longer than the number of data
+   * points
+   */
+  public double[] loadMzs(@NotNull MassSpectrum spectrum) {
+    final int size = spectrum.getNumberOfDataPoints();
+    if (mzs.length < size) {
+      mzs = new double[size];
+    }
+    // some spectra return their internal array, which must never be used as a buffer
+    return spectrum.getMzValues(mzs);
+  }
+
+  /**
+   * Copies the intensity values of the spectrum into the intensity buffer. Read only.
+   *
+   * @return the buffer or the backing array of the spectrum, may be longer than the number of data
+   * points
+   */
+  public double[] loadIntensities(@NotNull MassSpectrum spectrum) {
+    final int size = spectrum.getNumberOfDataPoints();
+    if (intensities.length < size) {
+      intensities = new double[size];
+    }
+    // some spectra return their internal array, which must never be used as a buffer
+    return spectrum.getIntensityValues(intensities);
+  }
+
+  /**
+   * @return a work buffer with at least size values, the content is undefined
+   */
+  public double[] work(int size) {
+    if (work.length < size) {
+      work = new double[size];
+    }
+    return work;
+  }
+
+  /**
+   * @return an index buffer with at least size values, the content is undefined
+   */
+  public int[] indices(int size) {
+    if (indices.length < size) {
+      indices = new int[size];
+    }
+    return indices;
+  }
+
+  /**
+   * Clears the result data points
+   */
+  public void clearResult() {
+    resultSize = 0;
+  }
+
+  public void addResult(double mz, double intensity) {
+    if (resultSize == resultMzs.length) {
+      final int newSize = resultSize * 2;
+      resultMzs = Arrays.copyOf(resultMzs, newSize);
+      resultIntensities = Arrays.copyOf(resultIntensities, newSize);
+    }
+    resultMzs[resultSize] = mz;
+    resultIntensities[resultSize] = intensity;
+    resultSize++;
+  }
+
+  public int getResultSize() {
+    return resultSize;
+  }
+
+  public double getResultMz(int index) {
+    return resultMzs[index];
+  }
+
+  public double getResultIntensity(int index) {
+    return resultIntensities[index];
+  }
+
+  /**
+   * @return copies of the result data points as [mzs, intensities]
+   */
+  public double[][] resultToArrays() {
+    return new double[][]{Arrays.copyOf(resultMzs, resultSize),
+        Arrays.copyOf(resultIntensities, resultSize)};
+  }
+}
@@ -27,12 +27,9 @@ package io.github.mzmine.modules.dataprocessing.featdet_massdetection.exactmass;
 
 import io.github.mzmine.datamodel.MassSpectrum;
 import io.github.mzmine.datamodel.MassSpectrumType;
-import io.github.mzmine.datamodel.impl.SimpleMassSpectrum;
 import io.github.mzmine.modules.dataprocessing.featdet_massdetection.MassDetector;
+import io.github.mzmine.modules.dataprocessing.featdet_massdetection.MassDetectorBuffers;
 import io.github.mzmine.parameters.ParameterSet;
-import it.unimi.dsi.fastutil.doubles.DoubleArrayList;
-import java.util.ArrayList;
-import java.util.List;
 import org.jetbrains.annotations.NotNull;
 
 public class ExactMassDetector implements MassDetector {
@@ -53,25 +50,40 @@ public class ExactMassDetector implements MassDetector {
   @NotNull
   public static double[][] getMassValues(final double[] mzs, final double[] intensities,
       double noiseLevel) {
-    return getMassValues(new SimpleMassSpectrum(mzs, intensities, MassSpectrumType.PROFILE),
-        noiseLevel);
+    return getMassValues(mzs, intensities, mzs.length, noiseLevel, MassDetectorBuffers.get());
   }
+
   @NotNull
   public static double[][] getMassValues(MassSpectrum spectrum, double noiseLevel) {
-    // lists of primitive doubles
-    DoubleArrayList mzs = new DoubleArrayList(128);
-    DoubleArrayList intensities = new DoubleArrayList(128);
+    final MassDetectorBuffers buffers = MassDetectorBuffers.get();
+    final double[] mzs = buffers.loadMzs(spectrum);
+    final double[] intensities = buffers.loadIntensities(spectrum);
+    return getMassValues(mzs, intensities, spectrum.getNumberOfDataPoints(), noiseLevel,
+        buffers);
+  }
+
+  /**
+   * Works on primitive arrays and reuses the thread local buffers, only the result is allocated.
+   *
+   * @param numValues number of data points in mzs and intensities, the arrays may be longer
+   */
+  @NotNull
+  private static double[][] getMassValues(final double[] mzs, final double[] intensities,
+      final int numValues, final double noiseLevel, final MassDetectorBuffers buffers) {
+    buffers.clearResult();
 
     // First get all candidate peaks (local maximum)
     int localMaximumIndex = 0;
-    ArrayList<Integer> rangeDataPoints = new ArrayList<>();
+    // indices of the non-zero data points of the current peak
+    final int[] rangeDataPoints = buffers.indices(numValues);
+    int rangeSize = 0;
 
     boolean ascending = true;
 
     // Iterate through all data points
-    for (int i = 0; i < spectrum.getNumberOfDataPoints() - 1; i++) {
-      double intensity = spectrum.getIntensityValue(i);
-      double nextIntensity = spectrum.getIntensityValue(i + 1);
+    for (int i = 0; i < numValues - 1; i++) {
+      double intensity = intensities[i];
+      double nextIntensity = intensities[i + 1];
 
       boolean nextIsBigger = nextIntensity > intensity;
       boolean nextIsZero = Double.compare(nextIntensity, 0d) == 0;
@@ -83,7 +95,7 @@ public class ExactMassDetector implements MassDetector {
       }
 
       // Add current (non-zero) data point to the current m/z peak
-      rangeDataPoints.add(i);
+      rangeDataPoints[rangeSize++] = i;
 
       // Check for local maximum
       if (ascending && (!nextIsBigger)) {
@@ -96,23 +108,22 @@ public class ExactMassDetector implements MassDetector {
       if ((!ascending) && (nextIsBigger || nextIsZero)) {
 
         // Calculate the exact mass
-        double exactMz = calculateExactMass(spectrum, localMaximumIndex, rangeDataPoints);
+        double exactMz = calculateExactMass(mzs, intensities, localMaximumIndex, rangeDataPoints,
+            rangeSize);
 
         // Add the m/z peak if it is above the noise level or m/z value corresponds to isotope mass
-        if (spectrum.getIntensityValue(localMaximumIndex) > noiseLevel) {
-          // Add data point to lists
-          mzs.add(exactMz);
-          intensities.add(spectrum.getIntensityValue(localMaximumIndex));
+        if (intensities[localMaximumIndex] > noiseLevel) {
+          buffers.addResult(exactMz, intensities[localMaximumIndex]);
         }
 
         // Reset and start with new peak
         ascending = true;
-        rangeDataPoints.clear();
+        rangeSize = 0;
       }
     }
 
     // Return an array of detected MzPeaks sorted by MZ
-    return new double[][]{mzs.toDoubleArray(), intensities.toDoubleArray()};
+    return buffers.resultToArrays();
   }
 
   @Override
@@ -134,7 +145,7 @@ public class ExactMassDetector implements MassDetector {
   @Override
   public double[][] getMassValues(final double[] mzs, final double[] intensities,
       final @NotNull MassSpectrumType type) {
-    return getMassValues(new SimpleMassSpectrum(mzs, intensities, type));
+    return getMassValues(mzs, intensities, noiseLevel);
   }
 
   /**
@@ -143,8 +154,8 @@ public class ExactMassDetector implements MassDetector {
    *
    * @return double
    */
-  private static double calculateExactMass(MassSpectrum spectrum, int topIndex,
-      List<Integer> rangeDataPoints) {
+  private static double calculateExactMass(double[] mzs, double[] intensities, int topIndex,
+      int[] rangeDataPoints, int rangeSize) {
 
     /*
      * According with the FWHM concept, the exact mass of this peak is the half point of FWHM. In
@@ -159,24 +170,24 @@ public class ExactMassDetector implements MassDetector {
      */
 
     double xRight = -1, xLeft = -1;
-    double halfIntensity = spectrum.getIntensityValue(topIndex) / 2;
+    double halfIntensity = intensities[topIndex] / 2;
 
-    for (int i = 0; i < rangeDataPoints.size() - 1; i++) {
+    for (int i = 0; i < rangeSize - 1; i++) {
 
       // Left side of the curve
-      if ((spectrum.getIntensityValue(rangeDataPoints.get(i)) <= halfIntensity) && (
-          spectrum.getMzValue(rangeDataPoints.get(i)) < spectrum.getMzValue(topIndex)) && (
-          spectrum.getIntensityValue(rangeDataPoints.get(i + 1)) >= halfIntensity)) {
+      if ((intensities[rangeDataPoints[i]] <= halfIntensity) && (
+          mzs[rangeDataPoints[i]] < mzs[topIndex]) && (
+          intensities[rangeDataPoints[i + 1]] >= halfIntensity)) {
 
         // First point with intensity just less than half of total
         // intensity
-        double leftY1 = spectrum.getIntensityValue(rangeDataPoints.get(i));
-        double leftX1 = spectrum.getMzValue(rangeDataPoints.get(i));
+        double leftY1 = intensities[rangeDataPoints[i]];
+        double leftX1 = mzs[rangeDataPoints[i]];
 
         // Second point with intensity just bigger than half of total
         // intensity
-        double leftY2 = spectrum.getIntensityValue(rangeDataPoints.get(i + 1));
-        double leftX2 = spectrum.getMzValue(rangeDataPoints.get(i + 1));
+        double leftY2 = intensities[rangeDataPoints[i + 1]];
+        double leftX2 = mzs[rangeDataPoints[i + 1]];
 
         // We calculate the slope with formula m = Y1 - Y2 / X1 - X2
         double mLeft = (leftY1 - leftY2) / (leftX1 - leftX2);
@@ -196,19 +207,19 @@ public class ExactMassDetector implements MassDetector {
       }
 
       // Right side of the curve
-      if ((spectrum.getIntensityValue(rangeDataPoints.get(i)) >= halfIntensity) && (
-          spectrum.getMzValue(rangeDataPoints.get(i)) > spectrum.getMzValue(topIndex)) && (
-          spectrum.getIntensityValue(rangeDataPoints.get(i + 1)) <= halfIntensity)) {
+      if ((intensities[rangeDataPoints[i]] >= halfIntensity) && (
+          mzs[rangeDataPoints[i]] > mzs[topIndex]) && (
+          intensities[rangeDataPoints[i + 1]] <= halfIntensity)) {
 
         // First point with intensity just bigger than half of total
         // intensity
-        double rightY1 = spectrum.getIntensityValue(rangeDataPoints.get(i));
-        double rightX1 = spectrum.getMzValue(rangeDataPoints.get(i));
+        double rightY1 = intensities[rangeDataPoints[i]];
+        double rightX1 = mzs[rangeDataPoints[i]];
 
         // Second point with intensity just less than half of total
         // intensity
-        double rightY2 = spectrum.getIntensityValue(rangeDataPoints.get(i + 1));
-        double rightX2 = spectrum.getMzValue(rangeDataPoints.get(i + 1));
+        double rightY2 = intensities[rangeDataPoints[i + 1]];
+        double rightX2 = mzs[rangeDataPoints[i + 1]];
 
         // We calculate the slope with formula m = Y1 - Y2 / X1 - X2
         double mRight = (rightY1 - rightY2) / (rightX1 - rightX2);
@@ -232,7 +243,7 @@ public class ExactMassDetector implements MassDetector {
     // We verify the values to confirm we find the desired points. If not we
     // return the same mass value.
     if ((xRight == -1) || (xLeft == -1)) {
-      return spectrum.getMzValue(topIndex);
+      return mzs[topIndex];
     }
 
     // The center of left and right points is the exact mass of our peak.
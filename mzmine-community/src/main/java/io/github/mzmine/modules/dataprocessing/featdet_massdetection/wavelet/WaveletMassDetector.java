@@ -25,17 +25,12 @@
 
 package io.github.mzmine.modules.dataprocessing.featdet_massdetection.wavelet;
 
-import io.github.mzmine.datamodel.DataPoint;
 import io.github.mzmine.datamodel.MassSpectrum;
-import io.github.mzmine.datamodel.impl.SimpleDataPoint;
+import io.github.mzmine.datamodel.MassSpectrumType;
 import io.github.mzmine.modules.dataprocessing.featdet_massdetection.MassDetector;
+import io.github.mzmine.modules.dataprocessing.featdet_massdetection.MassDetectorBuffers;
 import io.github.mzmine.parameters.ParameterSet;
-import io.github.mzmine.util.DataPointSorter;
-import io.github.mzmine.util.SortingDirection;
-import io.github.mzmine.util.SortingProperty;
-import java.util.ArrayList;
-import java.util.List;
-import java.util.TreeSet;
+import it.unimi.dsi.fastutil.ints.IntArrays;
 import org.jetbrains.annotations.NotNull;
 
 /**
@@ -56,6 +51,11 @@ public class WaveletMassDetector implements MassDetector {
   private final double noiseLevel;
   private final int scaleLevel;
   private final double waveletWindow;
+  /**
+   * Wavelet values for each offset from -5 * scaleLevel to 5 * scaleLevel, precomputed once per
+   * detector
+   */
+  private final double[] kernel;
 
   /**
    * required to create a default instance via reflection
@@ -70,6 +70,7 @@ public class WaveletMassDetector implements MassDetector {
     this.noiseLevel = noiseLevel;
     this.scaleLevel = scaleLevel;
     this.waveletWindow = waveletWindow;
+    kernel = scaleLevel > 0 ? createKernel(waveletWindow, scaleLevel) : new double[0];
   }
 
   @Override
@@ -87,30 +88,37 @@ public class WaveletMassDetector implements MassDetector {
 
   @Override
   public double[][] getMassValues(MassSpectrum scan) {
+    final MassDetectorBuffers buffers = MassDetectorBuffers.get();
+    final double[] mzs = buffers.loadMzs(scan);
+    final double[] intensities = buffers.loadIntensities(scan);
+    return getMassValues(mzs, intensities, scan.getNumberOfDataPoints(), buffers);
+  }
 
-    DataPoint waveletDataPoints[] = performCWT(scan, waveletWindow, scaleLevel);
-
-    DataPoint detected[] = getMzPeaks(noiseLevel, scan, waveletDataPoints);
-
-    // convert to double[][] TODO remove use of DataPoint
-    int size = detected.length;
-    double[] mzs = new double[size];
-    double[] intensities = new double[size];
-    for (int i = 0; i < size; i++) {
-      mzs[i] = detected[i].getMZ();
-      intensities[i] = detected[i].getIntensity();
-    }
-    return new double[][]{mzs, intensities};
+  @Override
+  public double[][] getMassValues(final double[] mzs, final double[] intensities,
+      final @NotNull MassSpectrumType type) {
+    return getMassValues(mzs, intensities, mzs.length, MassDetectorBuffers.get());
   }
 
   /**
-   * Perform the CWT over raw data points in the selected scale level
+   * Works on primitive arrays and reuses the thread local buffers, only the result is allocated.
    *
-   * @param scan
+   * @param length number of data points in mzs and intensities, the arrays may be longer
    */
-  private SimpleDataPoint[] performCWT(MassSpectrum scan, double waveletWindow, int scaleLevel) {
-    int length = scan.getNumberOfDataPoints();
-    SimpleDataPoint[] cwtDataPoints = new SimpleDataPoint[length];
+  private double[][] getMassValues(final double[] mzs, final double[] intensities,
+      final int length, final MassDetectorBuffers buffers) {
+    final double[] cwt = buffers.work(length);
+    performCWT(intensities, length, cwt);
+    getMzPeaks(mzs, intensities, length, cwt, buffers);
+    return buffers.resultToArrays();
+  }
+
+  /**
+   * Pre calculates the values of the wavelet for each translation offset in the selected scale
+   * level. Uses the same sampling of the wavelet into {@link #NPOINTS} values as before, so that
+   * the results stay identical.
+   */
+  private static double[] createKernel(double waveletWindow, int scaleLevel) {
     double wstep = ((WAVELET_ESR - WAVELET_ESL) / NPOINTS);
     double[] W = new double[(int) NPOINTS];
 
@@ -121,10 +129,32 @@ public class WaveletMassDetector implements MassDetector {
       waveletIndex += wstep;
     }
 
+    int d = (int) NPOINTS / (WAVELET_ESR - WAVELET_ESL);
+    int a_esl = scaleLevel * WAVELET_ESL;
+    int a_esr = scaleLevel * WAVELET_ESR;
+    final double[] kernel = new double[a_esr - a_esl + 1];
+    for (int offset = a_esl; offset <= a_esr; offset++) {
+      int ind = (int) (NPOINTS / 2) - ((d * offset / scaleLevel) * (-1));
+      if (ind < 0) {
+        ind = 0;
+      }
+      if (ind >= NPOINTS) {
+        ind = (int) NPOINTS - 1;
+      }
+      kernel[offset - a_esl] = W[ind];
+    }
+    return kernel;
+  }
+
+  /**
+   * Perform the CWT over raw data points in the selected scale level
+   *
+   * @param cwt receives the positive part of the wavelet map for each data point
+   */
+  private void performCWT(double[] intensities, int length, double[] cwt) {
     /*
      * We only perform Translation of the wavelet in the selected scale
      */
-    int d = (int) NPOINTS / (WAVELET_ESR - WAVELET_ESL);
     int a_esl = scaleLevel * WAVELET_ESL;
     int a_esr = scaleLevel * WAVELET_ESR;
     double sqrtScaleLevel = Math.sqrt(scaleLevel);
@@ -142,25 +172,17 @@ public class WaveletMassDetector implements MassDetector {
 
       /* Perform convolution */
       double intensity = 0.0;
+      final int kernelOffset = -dx - a_esl;
       for (int i = t1; i <= t2; i++) {
-        int ind = (int) (NPOINTS / 2) - ((d * (i - dx) / scaleLevel) * (-1));
-        if (ind < 0) {
-          ind = 0;
-        }
-        if (ind >= NPOINTS) {
-          ind = (int) NPOINTS - 1;
-        }
-        intensity += scan.getIntensityValue(i) * W[ind];
+        intensity += intensities[i] * kernel[i + kernelOffset];
       }
       intensity /= sqrtScaleLevel;
       // Eliminate the negative part of the wavelet map
       if (intensity < 0) {
         intensity = 0;
       }
-      cwtDataPoints[dx] = new SimpleDataPoint(scan.getMzValue(dx), intensity);
+      cwt[dx] = intensity;
     }
-
-    return cwtDataPoints;
   }
 
   /**
@@ -170,7 +192,7 @@ public class WaveletMassDetector implements MassDetector {
    * @param a Window Width of the wavelet
    * @param b Offset from the center of the peak
    */
-  private double cwtMEXHATreal(double x, double a, double b) {
+  private static double cwtMEXHATreal(double x, double a, double b) {
     /* c = 2 / ( sqrt(3) * pi^(1/4) ) */
     double c = 0.8673250705840776;
     double TINY = 1E-200;
@@ -185,21 +207,20 @@ public class WaveletMassDetector implements MassDetector {
   }
 
   /**
-   * This function searches for maximums from wavelet data points
+   * This function searches for maximums from wavelet data points. Peaks are added to the result
+   * buffer sorted by m/z and intensity.
    */
-  private DataPoint[] getMzPeaks(double noiseLevel, MassSpectrum scan,
-      DataPoint[] waveletDataPoints) {
+  private void getMzPeaks(double[] mzs, double[] intensities, int length, double[] cwt,
+      MassDetectorBuffers buffers) {
+    buffers.clearResult();
 
-    TreeSet<DataPoint> mzPeaks = new TreeSet<>(
-        new DataPointSorter(SortingProperty.MZ, SortingDirection.Ascending));
-
-    List<DataPoint> rawDataPoints = new ArrayList<>();
     int peakMaxInd = 0;
-    int stopInd = waveletDataPoints.length - 1;
+    int stopInd = length - 1;
+    boolean sorted = true;
 
     for (int ind = 0; ind <= stopInd; ind++) {
 
-      while ((ind <= stopInd) && (waveletDataPoints[ind].getIntensity() == 0)) {
+      while ((ind <= stopInd) && (cwt[ind] == 0)) {
         ind++;
       }
       peakMaxInd = ind;
@@ -207,13 +228,18 @@ public class WaveletMassDetector implements MassDetector {
         break;
       }
 
+      // the approximate intensity is the maximum raw intensity of the peak
+      double aproxIntensity = 0;
+
       // While peak is on
-      while ((ind <= stopInd) && (waveletDataPoints[ind].getIntensity() > 0)) {
+      while ((ind <= stopInd) && (cwt[ind] > 0)) {
         // Check if this is the maximum point of the peak
-        if (waveletDataPoints[ind].getIntensity() > waveletDataPoints[peakMaxInd].getIntensity()) {
+        if (cwt[ind] > cwt[peakMaxInd]) {
           peakMaxInd = ind;
         }
-        rawDataPoints.add(new SimpleDataPoint(scan.getMzValue(ind), scan.getIntensityValue(ind)));
+        if (intensities[ind] > aproxIntensity) {
+          aproxIntensity = intensities[ind];
+        }
         ind++;
       }
 
@@ -221,32 +247,59 @@ public class WaveletMassDetector implements MassDetector {
         break;
       }
 
-      rawDataPoints.add(new SimpleDataPoint(scan.getMzValue(ind), scan.getIntensityValue(ind)));
-
-      if (scan.getIntensityValue(peakMaxInd) > noiseLevel) {
-        SimpleDataPoint peakDataPoint = new SimpleDataPoint(scan.getMzValue(peakMaxInd),
-            calcAproxIntensity(rawDataPoints));
-
-        mzPeaks.add(peakDataPoint);
+      if (intensities[ind] > aproxIntensity) {
+        aproxIntensity = intensities[ind];
+      }
 
+      if (intensities[peakMaxInd] > noiseLevel) {
+        final double mz = mzs[peakMaxInd];
+        final int last = buffers.getResultSize() - 1;
+        if (last >= 0 && compareMzThenIntensity(buffers.getResultMz(last),
+            buffers.getResultIntensity(last), mz, aproxIntensity) >= 0) {
+          sorted = false;
+        }
+        buffers.addResult(mz, aproxIntensity);
       }
-      rawDataPoints.clear();
     }
 
-    return mzPeaks.toArray(new DataPoint[0]);
-
+    if (!sorted) {
+      sortAndRemoveDuplicates(buffers);
+    }
   }
 
-  private double calcAproxIntensity(List<DataPoint> rawDataPoints) {
-
-    double aproxIntensity = 0;
+  /**
+   * Peaks were collected in a sorted set before. Input spectra are usually sorted by m/z so this is
+   * only needed for unsorted input or duplicate m/z values.
+   */
+  private static void sortAndRemoveDuplicates(MassDetectorBuffers buffers) {
+    final int size = buffers.getResultSize();
+    final double[] values = new double[size * 2];
+    final int[] order = new int[size];
+    for (int i = 0; i < size; i++) {
+      values[i] = buffers.getResultMz(i);
+      values[size + i] = buffers.getResultIntensity(i);
+      order[i] = i;
+    }
+    IntArrays.stableSort(order,
+        (a, b) -> compareMzThenIntensity(values[a], values[size + a], values[b], values[size + b]));
 
-    for (DataPoint d : rawDataPoints) {
-      if (d.getIntensity() > aproxIntensity) {
-        aproxIntensity = d.getIntensity();
+    buffers.clearResult();
+    for (int i = 0; i < size; i++) {
+      final int index = order[i];
+      final int last = buffers.getResultSize() - 1;
+      // the sorted set kept the first of equal data points
+      if (last >= 0 && compareMzThenIntensity(buffers.getResultMz(last),
+          buffers.getResultIntensity(last), values[index], values[size + index]) == 0) {
+        continue;
       }
+      buffers.addResult(values[index], values[size + index]);
     }
-    return aproxIntensity;
+  }
+
+  private static int compareMzThenIntensity(double mzA, double intensityA, double mzB,
+      double intensityB) {
+    final int result = Double.compare(mzA, mzB);
+    return result != 0 ? result : Double.compare(intensityA, intensityB);
   }
 
   @Override
@@ -42,6 +42,7 @@ import io.github.mzmine.datamodel.featuredata.IonMobilogramTimeSeries;
 import io.github.mzmine.datamodel.featuredata.IonTimeSeries;
 import io.github.mzmine.datamodel.featuredata.IonTimeSeriesUtils;
 import io.github.mzmine.datamodel.featuredata.impl.SimpleIonMobilitySeries;
+import io.github.mzmine.datamodel.features.FeatureListRow;
 import io.github.mzmine.datamodel.features.ModularFeature;
 import io.github.mzmine.datamodel.features.ModularFeatureList;
 import io.github.mzmine.datamodel.features.SimpleFeatureListAppliedMethod;
@@ -60,12 +61,17 @@ import java.util.ArrayList;
 import java.util.List;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.logging.Logger;
+import java.util.stream.IntStream;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
 public class SmoothingTask extends AbstractTask {
 
   private static final Logger logger = Logger.getLogger(SmoothingTask.class.getName());
+  /**
+   * Rows are smoothed in parallel chunks, each with its own smoother and data access
+   */
+  private static final int ROWS_PER_CHUNK = 512;
 
   private final ModularFeatureList flist;
   private final ParameterSet parameters;
@@ -115,31 +121,23 @@ public class SmoothingTask extends AbstractTask {
     final ModularFeatureList smoothedList = flist.createCopy(flist.getName() + " " + suffix,
         getMemoryMapStorage(), false);
     DataTypeUtils.copyTypes(flist, smoothedList, true, true);
-    // init a new smoother instance, since the parameters have to be stored in the smoother itself.
+    // each chunk creates its own smoother instance, check the parameters once here
     final SmoothingAlgorithm smoother = FeatureSmoothingOptions.createSmoother(parameters);
     if (smoother == null) {
       logger.warning("Smoothing algorithm returned null");
       return;
     }
 
-    // include zeros
-    final FeatureDataAccess dataAccess = EfficientDataAccess.of(smoothedList,
-        FeatureDataType.INCLUDE_ZEROS);
+    final List<FeatureListRow> rows = smoothedList.getRows();
+    final int numChunks = (rows.size() + ROWS_PER_CHUNK - 1) / ROWS_PER_CHUNK;
 
-    logger.info("Smoothing %d features in feature list %s.".formatted(dataAccess.getNumOfFeatures(),
+    logger.info("Smoothing %d features in feature list %s.".formatted(rows.size(),
         flist.getName()));
-    while (dataAccess.hasNextFeature()) {
-      final ModularFeature feature = (ModularFeature) dataAccess.nextFeature();
-
-      final IonTimeSeries<? extends Scan> smoothedSeries = smoother.smoothFeature(
-          getMemoryMapStorage(), dataAccess, feature, zht);
-      feature.set(io.github.mzmine.datamodel.features.types.FeatureDataType.class, smoothedSeries);
-      FeatureDataUtils.recalculateIonSeriesDependingTypes(feature);
-
-      handleMrmTraces(feature, smoother);
-
-      processedFeatures.getAndIncrement();
-    }
+    // smoothers and data accesses hold buffers and are not thread safe - one per chunk
+    // use map and sum - forEach does not wait for all chunks
+    IntStream.range(0, numChunks).parallel().map(chunk -> smoothRows(smoothedList,
+        rows.subList(chunk * ROWS_PER_CHUNK, Math.min(rows.size(), (chunk + 1) * ROWS_PER_CHUNK))))
+        .sum();
 
     if (isCanceled()) {
       logger.finest("Smoothing task for feature list %s canceled".formatted(flist.getName()));
@@ -156,6 +154,36 @@ public class SmoothingTask extends AbstractTask {
     setStatus(TaskStatus.FINISHED);
   }
 
+  /**
+   * @return the number of smoothed features
+   */
+  private int smoothRows(ModularFeatureList smoothedList, List<FeatureListRow> rows) {
+    // init a new smoother instance, since the parameters have to be stored in the smoother itself.
+    final SmoothingAlgorithm smoother = FeatureSmoothingOptions.createSmoother(parameters);
+    // include zeros
+    final FeatureDataAccess dataAccess = EfficientDataAccess.of(smoothedList,
+        FeatureDataType.INCLUDE_ZEROS, smoothedList.getRawDataFile(0), rows);
+
+    int smoothed = 0;
+    while (dataAccess.hasNextFeature()) {
+      if (isCanceled()) {
+        return smoothed;
+      }
+      final ModularFeature feature = (ModularFeature) dataAccess.nextFeature();
+
+      final IonTimeSeries<? extends Scan> smoothedSeries = smoother.smoothFeature(
+          getMemoryMapStorage(), dataAccess, feature, zht);
+      feature.set(io.github.mzmine.datamodel.features.types.FeatureDataType.class, smoothedSeries);
+      FeatureDataUtils.recalculateIonSeriesDependingTypes(feature);
+
+      handleMrmTraces(feature, smoother);
+
+      processedFeatures.getAndIncrement();
+      smoothed++;
+    }
+    return smoothed;
+  }
+
   private void handleMrmTraces(ModularFeature feature, SmoothingAlgorithm smoother) {
     if (!(feature.get(MrmTransitionListType.class) instanceof MrmTransitionList transitions)) {
       return;
@@ -113,26 +113,38 @@ public class SavitzkyGolayFilter {
    * @return the convolution results.
    */
   public static double[] convolve(final double[] intensities, final double[] weights) {
+    final double[] convolved = new double[intensities.length];
+    convolve(intensities, intensities.length, weights, convolved);
+    return convolved;
+  }
+
+  /**
+   * Convolve a set of weights with the first numPoints intensities. Loops over the filter weights
+   * and streams over the intensities for each weight, so the inner loop is a multiply-add on
+   * contiguous arrays that the JIT vectorizes. Each point is summed in the same order as in a
+   * per-point loop, which keeps the results identical.
+   *
+   * @param intensities the intensities, may be longer than numPoints.
+   * @param numPoints   the number of intensities to convolve.
+   * @param weights     the filter weights.
+   * @param dst         the convolution results are added to the first numPoints values. Pass a
+   *                    zero-filled array.
+   */
+  public static void convolve(final double[] intensities, final int numPoints,
+      final double[] weights, final double[] dst) {
 
     // Initialise.
     final int fullWidth = weights.length;
     final int halfWidth = (fullWidth - 1) / 2;
-    final int numPoints = intensities.length;
 
     // Convolve.
-    final double[] convolved = new double[numPoints];
-    for (int i = 0; i < numPoints; i++) {
-
-      double sum = 0.0;
-      final int k = i - halfWidth;
-      for (int j = Math.max(0, -k); j < Math.min(fullWidth, numPoints - k); j++) {
-        sum += intensities[k + j] * weights[j];
+    for (int j = 0; j < fullWidth; j++) {
+      final double weight = weights[j];
+      final int offset = j - halfWidth;
+      final int to = Math.min(numPoints, numPoints - offset);
+      for (int i = Math.max(0, -offset); i < to; i++) {
+        dst[i] += intensities[i + offset] * weight;
       }
-
-      // Set the result.
-      convolved[i] = sum;
     }
-
-    return convolved;
   }
 }
@@ -26,6 +26,7 @@
 package io.github.mzmine.modules.dataprocessing.featdet_smoothing.savitzkygolay;
 
 import io.github.mzmine.datamodel.Scan;
+import io.github.mzmine.datamodel.data_access.FeatureDataAccess;
 import io.github.mzmine.datamodel.featuredata.IntensitySeries;
 import io.github.mzmine.datamodel.featuredata.IonTimeSeries;
 import io.github.mzmine.datamodel.featuredata.MobilitySeries;
@@ -78,26 +79,23 @@ public class SavitzkyGolaySmoothing implements SmoothingAlgorithm {
           "No smoothing weights specified. Was the smoother initialised correctly?");
     }
 
-    // Initialise.
     final int numPoints = access.getNumberOfValues();
-    final int fullWidth = normWeights.length;
-    final int halfWidth = (fullWidth - 1) / 2;
-
-    double[] smoothed = new double[numPoints];
-    for (int i = 0; i < numPoints; i++) {
-      final int k = i - halfWidth;
-      for (int j = Math.max(0, -k); j < Math.min(fullWidth, numPoints - k); j++) {
-        smoothed[i] += access.getIntensity(k + j) * normWeights[j];
-      }
+    // read the backing array directly instead of one virtual call per filter tap
+    final double[] intensities;
+    if (access instanceof FeatureDataAccess dataAccess) {
+      intensities = dataAccess.getIntensityValues();
+    } else {
+      intensities = access.getIntensityValues(new double[numPoints]);
+    }
 
-      if (smoothed[i] < 0d) {
-        smoothed[i] = 0d;
-      }
+    final double[] smoothed = new double[numPoints];
+    SavitzkyGolayFilter.convolve(intensities, numPoints, normWeights, smoothed);
 
+    for (int i = 0; i < numPoints; i++) {
 //      if (/*zht == ZeroHandlingType.KEEP &&*/ Double.compare(access.getIntensity(i), 0d) == 0) {
       // if values that were previously 0 shall remain 0, we process that here.
-      if (Double.compare(access.getIntensity(i), 0d) == 0) {
-        smoothed[i] = 0;
+      if (smoothed[i] < 0d || Double.compare(intensities[i], 0d) == 0) {
+        smoothed[i] = 0d;
       }
     }
 
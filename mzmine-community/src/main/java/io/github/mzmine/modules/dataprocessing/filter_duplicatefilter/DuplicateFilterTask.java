@@ -39,6 +39,7 @@ import io.github.mzmine.datamodel.features.FeatureListRow;
 import io.github.mzmine.datamodel.features.ModularFeature;
 import io.github.mzmine.datamodel.features.ModularFeatureList;
 import io.github.mzmine.datamodel.features.ModularFeatureListRow;
+import io.github.mzmine.datamodel.features.RowSpatialIndex;
 import io.github.mzmine.datamodel.features.SimpleFeatureListAppliedMethod;
 import io.github.mzmine.modules.dataprocessing.filter_duplicatefilter.DuplicateFilterParameters.FilterMode;
 import io.github.mzmine.modules.dataprocessing.filter_rowsfilter.RowsFilterParameters;
@@ -54,6 +55,8 @@ import io.github.mzmine.util.FeatureUtils;
 import io.github.mzmine.util.MemoryMapStorage;
 import io.github.mzmine.util.SortingDirection;
 import io.github.mzmine.util.SortingProperty;
+import it.unimi.dsi.fastutil.ints.IntArrayList;
+import it.unimi.dsi.fastutil.ints.IntArrays;
 import java.time.Instant;
 import java.util.Arrays;
 import java.util.List;
@@ -70,6 +73,10 @@ public class DuplicateFilterTask extends AbstractTask {
 
   // Logger.
   private static final Logger logger = Logger.getLogger(DuplicateFilterTask.class.getName());
+  /**
+   * Tolerance boxes for the spatial index are enlarged by this factor to not lose pairs to rounding
+   */
+  private static final double BOX_PADDING = 1.000001;
 
   // Original and resultant feature lists.
   private final MZmineProject project;
@@ -233,6 +240,10 @@ public class DuplicateFilterTask extends AbstractTask {
     Arrays.sort(peakListRows,
         new FeatureListRowSorter(SortingProperty.Area, SortingDirection.Descending));
 
+    // only compare rows within the m/z and RT tolerance box instead of all later rows
+    final RowSpatialIndex index = RowSpatialIndex.of(peakListRows);
+    final IntArrayList candidates = new IntArrayList();
+
     // Loop through all feature list rows
     int removedDuplicates = 0;
     for (int firstRowIndex = 0; firstRowIndex < rowCount; firstRowIndex++) {
@@ -243,9 +254,21 @@ public class DuplicateFilterTask extends AbstractTask {
       final ModularFeatureListRow firstRow = peakListRows[firstRowIndex];
 
       if (firstRow != null) {
-        for (int secondRowIndex = firstRowIndex + 1; secondRowIndex < rowCount; secondRowIndex++) {
-          if (isCanceled()) {
-            return -1;
+        // slightly larger box, the exact checks below decide
+        final double mz = firstRow.getAverageMZ();
+        final float rt = firstRow.getAverageRT();
+        final double mzTol = mzTolerance.getMzToleranceForMass(mz) * BOX_PADDING;
+        final double rtTol = rtTolerance.getToleranceInMinutes(rt) * BOX_PADDING;
+        candidates.clear();
+        index.forEachWithin(mz - mzTol, mz + mzTol, rt - rtTol, rt + rtTol,
+            Double.NEGATIVE_INFINITY, Double.POSITIVE_INFINITY, candidates::add);
+        // keep the order of the original pairwise loop
+        IntArrays.quickSort(candidates.elements(), 0, candidates.size());
+
+        for (int c = 0; c < candidates.size(); c++) {
+          final int secondRowIndex = candidates.getInt(c);
+          if (secondRowIndex <= firstRowIndex) {
+            continue;
           }
 
           final FeatureListRow secondRow = peakListRows[secondRowIndex];
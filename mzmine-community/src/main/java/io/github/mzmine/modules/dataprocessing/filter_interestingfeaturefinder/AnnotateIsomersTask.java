@@ -29,6 +29,7 @@ import com.google.common.collect.Range;
 import io.github.mzmine.datamodel.MZmineProject;
 import io.github.mzmine.datamodel.features.FeatureList;
 import io.github.mzmine.datamodel.features.FeatureListRow;
+import io.github.mzmine.datamodel.features.RowSpatialIndex;
 import io.github.mzmine.datamodel.features.SimpleFeatureListAppliedMethod;
 import io.github.mzmine.datamodel.features.types.annotations.PossibleIsomerType;
 import io.github.mzmine.datamodel.identities.iontype.IonIdentity;
@@ -40,7 +41,6 @@ import io.github.mzmine.parameters.parametertypes.tolerances.RTTolerance;
 import io.github.mzmine.parameters.parametertypes.tolerances.mobilitytolerance.MobilityTolerance;
 import io.github.mzmine.taskcontrol.AbstractTask;
 import io.github.mzmine.taskcontrol.TaskStatus;
-import io.github.mzmine.util.FeatureListUtils;
 import io.github.mzmine.util.IonMobilityUtils;
 import io.github.mzmine.util.MemoryMapStorage;
 import java.time.Instant;
@@ -120,6 +120,7 @@ public class AnnotateIsomersTask extends AbstractTask {
     final List<FeatureListRow> rowsByMz = flist.stream()
         .sorted(Comparator.comparingDouble(FeatureListRow::getAverageMZ)).toList();
     flist.addRowType(new PossibleIsomerType());
+    final RowSpatialIndex rowIndex = flist.getSpatialIndex();
 
     rowsByMz.parallelStream().forEach(row -> {
       if (isCanceled()) {
@@ -138,9 +139,8 @@ public class AnnotateIsomersTask extends AbstractTask {
         return;
       }
 
-      var possibleRows = FeatureListUtils.getCandidatesWithinRanges(
-          mzTolerance.getToleranceRange(row.getAverageMZ()),
-          rtTolerance.getToleranceRange(row.getAverageRT()), Range.all(), rowsByMz, true);
+      var possibleRows = rowIndex.getRowsWithin(mzTolerance.getToleranceRange(row.getAverageMZ()),
+          rtTolerance.getToleranceRange(row.getAverageRT()), Range.all());
 
       float min = Float.POSITIVE_INFINITY, max = Float.NEGATIVE_INFINITY;
 
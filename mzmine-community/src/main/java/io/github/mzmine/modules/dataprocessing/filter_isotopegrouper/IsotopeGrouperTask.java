@@ -32,6 +32,7 @@ import io.github.mzmine.datamodel.features.Feature;
 import io.github.mzmine.datamodel.features.FeatureListRow;
 import io.github.mzmine.datamodel.features.ModularFeatureList;
 import io.github.mzmine.datamodel.features.ModularFeatureListRow;
+import io.github.mzmine.datamodel.features.RowSpatialIndex;
 import io.github.mzmine.datamodel.features.SimpleFeatureListAppliedMethod;
 import io.github.mzmine.datamodel.impl.SimpleDataPoint;
 import io.github.mzmine.datamodel.impl.SimpleIsotopePattern;
@@ -48,12 +49,15 @@ import io.github.mzmine.util.FeatureListRowSorter;
 import io.github.mzmine.util.MemoryMapStorage;
 import io.github.mzmine.util.SortingDirection;
 import io.github.mzmine.util.SortingProperty;
+import it.unimi.dsi.fastutil.ints.IntArrayList;
+import it.unimi.dsi.fastutil.ints.IntArrays;
+import it.unimi.dsi.fastutil.ints.IntComparator;
 import java.time.Instant;
 import java.util.ArrayList;
-import java.util.Collections;
 import java.util.List;
 import java.util.Objects;
 import java.util.logging.Logger;
+import java.util.stream.IntStream;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
@@ -71,6 +75,11 @@ class IsotopeGrouperTask extends AbstractTask {
    */
   private static final Logger logger = Logger.getLogger(IsotopeGrouperTask.class.getName());
   private static final double isotopeDistance = IsotopePatternCalculator.THIRTHEEN_C_DISTANCE;
+  /**
+   * Tolerance boxes for the spatial index are enlarged by this factor to not lose candidates to
+   * rounding
+   */
+  private static final double BOX_PADDING = 1.000001;
   private final MZmineProject project;
   private final ModularFeatureList featureList;
   // parameter values
@@ -161,58 +170,61 @@ class IsotopeGrouperTask extends AbstractTask {
     final FeatureListRowSorter rowsMzSorter = new FeatureListRowSorter(SortingProperty.MZ,
         SortingDirection.Ascending);
 
-    // Sort peaks by descending height
-    List<FeatureListRow> rowsSortedByHeight = new ArrayList<>(deisotopedFeatureList.getRows());
-    rowsSortedByHeight.sort(rowsHeightSorter);
+    // the spatial index replaces a second list sorted by mz, ids are the indices of the rows
+    final RowSpatialIndex index = deisotopedFeatureList.getSpatialIndex();
+    final int numRows = deisotopedFeatureList.getNumberOfRows();
 
-    // use a second sorted list to limit the number of comparisons
-    List<FeatureListRow> rowsSortedByMz = new ArrayList<>(deisotopedFeatureList.getRows());
-    rowsSortedByMz.sort(rowsMzSorter);
+    // Sort peaks by descending height, stable sort keeps the row order for equal heights
+    final int[] idsSortedByHeight = IntStream.range(0, numRows).toArray();
+    IntArrays.mergeSort(idsSortedByHeight,
+        (a, b) -> rowsHeightSorter.compare(index.getRow(a), index.getRow(b)));
+    // rows that were already processed or assigned to an isotope pattern
+    final boolean[] assigned = new boolean[numRows];
 
     // Loop through all peaks
-    totalRows = rowsSortedByHeight.size();
+    totalRows = numRows;
 
     // list of final rows (size is usually similar)
     List<FeatureListRow> finalRows = new ArrayList<>((int) (totalRows * 0.9));
 
-    while (!rowsSortedByHeight.isEmpty()) {
+    for (final int mostIntenseId : idsSortedByHeight) {
 
       if (isCanceled()) {
         return;
       }
 
-      ModularFeatureListRow mostIntenseRow = (ModularFeatureListRow) rowsSortedByHeight.remove(0);
-
-      // Check if peak was already deleted
-      if (mostIntenseRow == null) {
-        processedRows++;
+      // Check if peak was already assigned to a pattern
+      if (assigned[mostIntenseId]) {
         continue;
       }
-      // find index in mz sorted list
-      int indexMzSorted = Collections.binarySearch(rowsSortedByMz, mostIntenseRow, rowsMzSorter);
-      rowsSortedByMz.remove(indexMzSorted);
+      assigned[mostIntenseId] = true;
+      final ModularFeatureListRow mostIntenseRow = (ModularFeatureListRow) index.getRow(
+          mostIntenseId);
 
       // Check which charge state fits best around this peak
       int bestFitCharge = 0;
       int bestFitScore = -1;
-      List<FeatureListRow> bestFitRows = null;
+      IntArrayList bestFitIds = null;
       for (int charge : charges) {
 
-        List<FeatureListRow> fittedRows = new ArrayList<>();
-        fittedRows.add(mostIntenseRow);
-        // use rows sorted by mz
-        fitPattern(fittedRows, mostIntenseRow, charge, rowsSortedByMz, indexMzSorted);
+        IntArrayList fittedIds = new IntArrayList();
+        fittedIds.add(mostIntenseId);
+        fitPattern(fittedIds, mostIntenseId, charge, index, assigned);
 
-        int score = fittedRows.size();
+        int score = fittedIds.size();
         if ((score > bestFitScore) || ((score == bestFitScore) && (bestFitCharge > charge))) {
           bestFitScore = score;
           bestFitCharge = charge;
-          bestFitRows = fittedRows;
+          bestFitIds = fittedIds;
         }
 
       }
 
-      assert bestFitRows != null;
+      assert bestFitIds != null;
+      final List<FeatureListRow> bestFitRows = new ArrayList<>(bestFitIds.size());
+      for (int i = 0; i < bestFitIds.size(); i++) {
+        bestFitRows.add(index.getRow(bestFitIds.getInt(i)));
+      }
 
       // Verify the number of detected isotopes. If there is only one
       // isotope, we skip this left the original peak in the feature list.
@@ -255,8 +267,9 @@ class IsotopeGrouperTask extends AbstractTask {
       // Remove all peaks already assigned to isotope pattern
       // first is already removed
       bestFitRows.remove(0);
-      rowsSortedByHeight.removeAll(bestFitRows);
-      rowsSortedByMz.removeAll(bestFitRows);
+      for (int i = 0; i < bestFitIds.size(); i++) {
+        assigned[bestFitIds.getInt(i)] = true;
+      }
 
       // in case user wants to keep all features with MS2 - eventhough they were flagged as isotopes
       // this can be useful for complex datasets
@@ -295,13 +308,14 @@ class IsotopeGrouperTask extends AbstractTask {
   /**
    * Fits isotope pattern around one peak.
    *
-   * @param row            Pattern is fitted around this peak
-   * @param charge         Charge state of the fitted pattern
-   * @param rowsSortedByMz rows sorted by mz
-   * @param startRowIndex  index to start with in mz sorted list
+   * @param fittedIds ids of the matching rows in the index
+   * @param rowId     Pattern is fitted around this peak
+   * @param charge    Charge state of the fitted pattern
+   * @param index     the spatial index of all rows
+   * @param assigned  rows that are already assigned and not available as candidates
    */
-  private void fitPattern(List<FeatureListRow> fittedRows, ModularFeatureListRow row, int charge,
-      List<FeatureListRow> rowsSortedByMz, int startRowIndex) {
+  private void fitPattern(IntArrayList fittedIds, int rowId, int charge, RowSpatialIndex index,
+      boolean[] assigned) {
 
     if (charge == 0) {
       return;
@@ -309,78 +323,85 @@ class IsotopeGrouperTask extends AbstractTask {
 
     // Search for peaks before the start peak
     if (!monotonicShape) {
-      fitHalfPattern(row, charge, -1, fittedRows, rowsSortedByMz, startRowIndex);
+      fitHalfPattern(rowId, charge, -1, fittedIds, index, assigned);
     }
 
     // Search for peaks after the start peak
-    fitHalfPattern(row, charge, 1, fittedRows, rowsSortedByMz, startRowIndex);
+    fitHalfPattern(rowId, charge, 1, fittedIds, index, assigned);
   }
 
   /**
    * Helper method for fitPattern. Fits only one half of the pattern.
    *
-   * @param row            Pattern is fitted around this peak
-   * @param charge         Charge state of the fitted pattern
-   * @param direction      Defines which half to fit: -1=fit to peaks before start M/Z, +1=fit to
-   *                       peaks after start M/Z
-   * @param fittedRows     All matching peaks will be added to this set
-   * @param rowsSortedByMz rows sorted by mz
-   * @param startRowIndex  index to start with in mz sorted list
+   * @param rowId     Pattern is fitted around this peak
+   * @param charge    Charge state of the fitted pattern
+   * @param direction Defines which half to fit: -1=fit to peaks before start M/Z, +1=fit to peaks
+   *                  after start M/Z
+   * @param fittedIds All matching peaks will be added to this set
+   * @param index     the spatial index of all rows
+   * @param assigned  rows that are already assigned and not available as candidates
    */
-  private void fitHalfPattern(ModularFeatureListRow row, int charge, int direction,
-      List<FeatureListRow> fittedRows, List<FeatureListRow> rowsSortedByMz, int startRowIndex) {
+  private void fitHalfPattern(int rowId, int charge, int direction, IntArrayList fittedIds,
+      RowSpatialIndex index, boolean[] assigned) {
 
     // Use M/Z and RT of the strongest peak of the pattern (row)
+    final FeatureListRow row = index.getRow(rowId);
     double mainMZ = row.getAverageMZ();
     float mainRT = row.getAverageRT();
     Float mainMobility = row.getAverageMobility();
 
     final double absoluteMzTolerance = mzTolerance.getMzToleranceForMass(mainMZ);
+    // relative RT tolerances depend on the candidate RT, only limit the box for absolute ones
+    final double rtBoxTolerance =
+        rtTolerance.isAbsolute() ? rtTolerance.getToleranceInMinutes(mainRT) * BOX_PADDING
+            : Double.POSITIVE_INFINITY;
+    // candidates in the order of the m/z sorted rows, walking away from the main peak
+    final IntComparator mzOrder = (a, b) -> {
+      final int compare = Double.compare(index.getRow(a).getAverageMZ(),
+          index.getRow(b).getAverageMZ());
+      return direction * (compare != 0 ? compare : Integer.compare(a, b));
+    };
 
     // Variable n is the number of peak we are currently searching. 1=first
     // peak before/after start peak, 2=peak before/after previous, 3=...
     boolean followingPeakFound;
     int n = 1;
+    final IntArrayList boxIds = new IntArrayList();
     do {
-      // start at start row index in mz sorted list
-      int ind = startRowIndex;
-
       // Assume we don't find match for n:th peak in the pattern (which
       // will end the loop)
       followingPeakFound = false;
 
-      // Loop through all peaks, and collect candidates for the n:th peak
-      // in the pattern
-      List<FeatureListRow> goodCandidates = new ArrayList<>();
-      for (; ind < rowsSortedByMz.size() && ind >= 0; ind += direction) {
-
-        ModularFeatureListRow candidatePeak = (ModularFeatureListRow) rowsSortedByMz.get(ind);
-
-        if (candidatePeak == null) {
-          continue;
-        }
-
-        // Get properties of the candidate peak
-        double candidatePeakMZ = candidatePeak.getAverageMZ();
-
-        // Does this peak fill all requirements of a candidate?
-        // - within tolerances from the expected location (M/Z and RT)
-        // - not already a fitted peak (only necessary to avoid
-        // conflicts when parameters are set too wide)
-        double isotopeMZ = candidatePeakMZ - isotopeDistance * direction * n / charge;
+      // collect candidates for the n:th peak in the pattern from the tolerance box
+      final double expectedMz = mainMZ + isotopeDistance * direction * n / charge;
+      final double mzBoxTolerance = absoluteMzTolerance * BOX_PADDING;
+      boxIds.clear();
+      index.forEachWithin(expectedMz - mzBoxTolerance, expectedMz + mzBoxTolerance,
+          mainRT - rtBoxTolerance, mainRT + rtBoxTolerance, Double.NEGATIVE_INFINITY,
+          Double.POSITIVE_INFINITY, id -> {
+            // only rows on this side of the main peak
+            if (!assigned[id] && mzOrder.compare(id, rowId) > 0) {
+              boxIds.add(id);
+            }
+          });
+      IntArrays.quickSort(boxIds.elements(), 0, boxIds.size(), mzOrder);
+
+      // Does this peak fill all requirements of a candidate?
+      // - within tolerances from the expected location (M/Z and RT)
+      IntArrayList goodCandidateIds = new IntArrayList();
+      for (int i = 0; i < boxIds.size(); i++) {
+        final int candidateId = boxIds.getInt(i);
+        final FeatureListRow candidatePeak = index.getRow(candidateId);
+
+        double isotopeMZ = candidatePeak.getAverageMZ() - isotopeDistance * direction * n / charge;
         double deltaMZ = isotopeMZ - mainMZ;
 
-        // break the loop if deltaMZ reaches out of the maximum allowed mz tolerance (one sided check)
-        if (deltaMZ * direction > absoluteMzTolerance) {
-          break;
-        }
-
         // check if in range
         if (Math.abs(deltaMZ) <= absoluteMzTolerance && rtTolerance.checkWithinTolerance(
             candidatePeak.getAverageRT(), mainRT)) {
           if (!useMobilityTolerance || mainMobility == null || checkCandidateMobility(mainMobility,
               candidatePeak)) {
-            goodCandidates.add(candidatePeak);
+            goodCandidateIds.add(candidateId);
           }
 
         }
@@ -389,9 +410,9 @@ class IsotopeGrouperTask extends AbstractTask {
 
       // Add all good candidates to the isotope pattern (note: in MZmine
       // 2.3 and older, only the highest candidate was added)
-      if (!goodCandidates.isEmpty()) {
+      if (!goodCandidateIds.isEmpty()) {
 
-        fittedRows.addAll(goodCandidates);
+        fittedIds.addAll(goodCandidateIds);
 
         // n:th peak was found, so let's move on to n+1
         n++;
@@ -41,28 +41,24 @@ import io.github.mzmine.datamodel.features.correlation.RowsRelationship.Type;
 import io.github.mzmine.parameters.ParameterSet;
 import io.github.mzmine.taskcontrol.AbstractTask;
 import io.github.mzmine.taskcontrol.TaskStatus;
-import io.github.mzmine.util.MathUtils;
-import io.github.mzmine.util.collections.BinarySearch;
-import io.github.mzmine.util.collections.BinarySearch.DefaultTo;
 import io.github.mzmine.util.collections.StreamUtils;
 import io.github.mzmine.util.exceptions.MissingMassListException;
 import io.github.mzmine.util.maths.Combinatorics;
 import io.github.mzmine.util.maths.Transform;
 import io.github.mzmine.util.maths.similarity.SimilarityMeasure;
+import it.unimi.dsi.fastutil.objects.Object2IntMap;
+import it.unimi.dsi.fastutil.objects.Object2IntOpenHashMap;
 import java.text.MessageFormat;
 import java.time.Instant;
-import java.util.Arrays;
 import java.util.Comparator;
-import java.util.HashMap;
 import java.util.List;
-import java.util.Map;
 import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
 import org.jetbrains.annotations.NotNull;
-import org.math.plot.utils.Array;
 
 public class ImageCorrelateGroupingTask extends AbstractTask {
 
@@ -158,14 +154,30 @@ public class ImageCorrelateGroupingTask extends AbstractTask {
   }
 
   /**
-   * Parallel check of all r2r similarities
+   * Parallel check of all r2r similarities. Pairs are processed in tiles, so that the sparse
+   * images stay in the CPU cache while their pairs are compared.
    *
    * @param mapSimilarity map for all MS2 cosine similarity edges
    */
   public void checkAllFeatures(R2RMap<RowsRelationship> mapSimilarity)
       throws MissingMassListException {
+    List<FeatureListRow> rows = featureList.getRows();
+    List<RawDataFile> dataFiles = featureList.getRawDataFiles();
+    final int numRows = rows.size();
+    final int numFiles = dataFiles.size();
+
+    Object2IntMap<FeatureListRow> rowIndex = new Object2IntOpenHashMap<>(numRows);
+    for (int i = 0; i < numRows; i++) {
+      rowIndex.put(rows.get(i), i);
+    }
+    Object2IntMap<RawDataFile> fileIndex = new Object2IntOpenHashMap<>(numFiles);
+    for (int i = 0; i < numFiles; i++) {
+      fileIndex.put(dataFiles.get(i), i);
+    }
+
     // prefilter rows: check feature height and sort data
-    Map<Feature, FilteredRowData> mapFeatureData = new HashMap<>();
+    // [row][raw file] null if there is no feature
+    final SparseImage[][] images = new SparseImage[numRows][numFiles];
     FeatureDataAccess featureDataAccess = EfficientDataAccess.of(featureList,
         FeatureDataType.INCLUDE_ZEROS);
 
@@ -173,137 +185,66 @@ public class ImageCorrelateGroupingTask extends AbstractTask {
       Feature f = featureDataAccess.nextFeature();
       double[] intensities = featureDataAccess.getIntensityValuesCopy();
       // prepare data to lower the complexity within the pair comparison
-      var data = FilteredRowData.create(intensities, lowerQuantile, upperQuantile, noiseLevel,
+      var data = SparseImage.create(intensities, lowerQuantile, upperQuantile, noiseLevel,
           Transform.SQRT);
-      mapFeatureData.put(f, data);
+      images[rowIndex.getInt(f.getRow())][fileIndex.getInt(f.getRawDataFile())] = data;
     }
-    List<FeatureListRow> rows = featureList.getRows();
 
-    int numRows = rows.size();
     totalMaxPairs = Combinatorics.uniquePairs(rows);
     logger.log(Level.INFO,
         () -> MessageFormat.format("Checking image similarity on {0} rows", numRows));
 
-    // try map multi for all pairs
-    long comparedPairs = StreamUtils.processPairs(rows, this::isCanceled, true, //
-        pair -> {
-//           need to map to ensure thread is waiting for completion
-          checkR2RAllFeaturesImageSimilarity(mapFeatureData, pair.left(), pair.right(),
+    // a negative correlation is never reported - skip pairs without overlapping pixels
+    final boolean usePrefilter = similarityMeasure == SimilarityMeasure.PEARSON && minR > 0;
+    final LongAdder skippedPairs = new LongAdder();
+
+    long comparedPairs = StreamUtils.processIndexPairs(numRows, this::isCanceled, true, null,
+        processedPairs::addAndGet, (a, b) -> {
+          if (usePrefilter && !mayCorrelatePositively(images[a], images[b])) {
+            skippedPairs.increment();
+            return;
+          }
+          checkR2RAllFeaturesImageSimilarity(rows.get(a), images[a], rows.get(b), images[b],
               mapSimilarity);
-          processedPairs.incrementAndGet();
         });
+
     logger.info(
-        "Image correlation: Performed %d pairwise comparisons of rows.".formatted(comparedPairs));
+        "Image correlation: Performed %d pairwise comparisons of rows, skipped %d pairs without overlapping pixels.".formatted(
+            comparedPairs - skippedPairs.sum(), skippedPairs.sum()));
   }
 
-  //Intensities have to be sorted by scan number
-
   /**
-   * @param intensities                 sorted by original scan sorting
-   * @param noiseLevelOrLowerPercentile lower percentile intensity or noise level, depending on
-   *                                    which is larger
-   * @param upperPercentile             upper percentile intensity. may be 0 if unused
+   * @return true if any image pair of the same raw file may correlate positively
    */
-  private record FilteredRowData(double[] intensities, double noiseLevelOrLowerPercentile,
-                                 double upperPercentile) {
-
-
-    /**
-     * @param intensities   the data
-     * @param lowerQuantile a lower quantile to remove from the non-zero intensities
-     * @param upperQuantile an upper quantile to remove from the non-zero intensities
-     * @param noiseLevel    absolute noise level
-     * @param transform     transformation to scale the contribution of lower to higher intensities
-     * @return a prepared dataset
-     */
-    private static FilteredRowData create(final double[] intensities, final double lowerQuantile,
-        final double upperQuantile, double noiseLevel, final Transform transform) {
-      if (transform != null) {
-        // transform noise level and intensities
-        noiseLevel = transform.transformKeep0(noiseLevel);
-
-        transform.transformKeep0(intensities);
+  private static boolean mayCorrelatePositively(SparseImage[] imagesA, SparseImage[] imagesB) {
+    for (int f = 0; f < imagesA.length; f++) {
+      if (imagesA[f] != null && imagesB[f] != null && imagesA[f].mayCorrelatePositively(
+          imagesB[f])) {
+        return true;
       }
-      // percentiles are optional
-      // use 1 as minimum to cut out 0 intensity
-      double lowerPercentile = 1;
-      double upperPercentile = 0;
-      boolean useUpperQuantile = upperQuantile < 1;
-      boolean useLowerQuantile = lowerQuantile > 0;
-      if (useLowerQuantile || useUpperQuantile) {
-        double[] sorted = Array.copy(intensities);
-        Arrays.sort(sorted);
-        // find first non-zero index and exclude all below from the quantile ranges
-        // this means that quantiles are taken from non-0 intensities
-        int nonZeroIndex = BinarySearch.binarySearch(sorted, 0.00001, DefaultTo.GREATER_EQUALS);
-        if (useLowerQuantile && nonZeroIndex >= 0) { // otherwise filter off
-          lowerPercentile = MathUtils.calcQuantileSorted(sorted, nonZeroIndex, sorted.length,
-              lowerQuantile);
-        }
-        if (useUpperQuantile && nonZeroIndex >= 0) { // otherwise filter off
-          upperPercentile = MathUtils.calcQuantileSorted(sorted, nonZeroIndex, sorted.length,
-              upperQuantile);
-        }
-      }
-
-      // minimum is 1
-      noiseLevel = Math.max(1, Math.max(noiseLevel, lowerPercentile));
-
-      // BitSet is better for memory but boolean[] is faster
-      // however the best may be just checking the intensity conditions in isRemoved
-      // this requires no additional memory but is a bit slower than boolean[]
-//      boolean[] removed = new boolean[intensities.length];
-//      for (int i = 0; i < intensities.length; i++) {
-//        double value = intensities[i];
-//        if (value < noiseLevel || (useUpperQuantile && value > upperPercentile)) {
-//          removed[i] = true;
-//        }
-//      }
-
-      return new FilteredRowData(intensities, noiseLevel, upperPercentile);
-    }
-
-    public int size() {
-      return intensities.length;
-    }
-
-    public boolean isRemoved(final int index) {
-      // boolean array was not faster in tests for 7000 orbitrap images
-//      return removed[index];
-      double value = intensities[index];
-      return value < noiseLevelOrLowerPercentile || (upperPercentile > 0
-                                                     && value > upperPercentile);
-    }
-
-    public double getIntensity(final int i) {
-      return intensities[i];
     }
+    return false;
   }
 
   /**
    * This method is called for each pair so it was optimized to move precalculations to
-   * {@link FilteredRowData#create(double[], double, double, double, Transform)}
+   * {@link SparseImage#create(double[], double, double, double, Transform)}
+   *
+   * @param imagesA images of row a by raw file index
+   * @param imagesB images of row b by raw file index
    */
-  private void checkR2RAllFeaturesImageSimilarity(Map<Feature, FilteredRowData> mapFeatureData,
-      FeatureListRow a, FeatureListRow b, final R2RMap<RowsRelationship> mapSimilarity) {
+  private void checkR2RAllFeaturesImageSimilarity(FeatureListRow a, SparseImage[] imagesA,
+      FeatureListRow b, SparseImage[] imagesB, final R2RMap<RowsRelationship> mapSimilarity) {
 
     RowsRelationship imageSimilarities = null;
-    for (Feature fa : a.getFeatures()) {
-      RawDataFile dataFile = fa.getRawDataFile();
-      Feature fb = b.getFeature(dataFile);
-      if (fb == null) {
+    for (int f = 0; f < imagesA.length; f++) {
+      SparseImage imageA = imagesA[f];
+      SparseImage imageB = imagesB[f];
+      if (imageA == null || imageB == null) {
         continue;
       }
 
-      double similarity = 0;
-      FilteredRowData intensitiesA = mapFeatureData.get(fa);
-      if (intensitiesA != null) {
-        FilteredRowData intensitiesB = mapFeatureData.get(fb);
-
-        if (intensitiesB != null) {
-          similarity = calculateSimilarity(intensitiesA, intensitiesB);
-        }
-      }
+      double similarity = calculateSimilarity(imageA, imageB);
       // always add value also 0 if no correlation
       if (singleRawFile) {
         imageSimilarities = new R2RSimpleSimilarity(a, b, Type.MS1_FEATURE_CORR,
@@ -322,72 +263,17 @@ public class ImageCorrelateGroupingTask extends AbstractTask {
 
   /**
    * This method is called for each pair so it was optimized to move precalculations to
-   * {@link FilteredRowData#create(double[], double, double, double, Transform)}
+   * {@link SparseImage#create(double[], double, double, double, Transform)}
    */
-  private double calculateSimilarity(final FilteredRowData dataA, final FilteredRowData dataB) {
+  private double calculateSimilarity(final SparseImage dataA, final SparseImage dataB) {
     if (similarityMeasure == SimilarityMeasure.PEARSON) {
       // optimized pearson with zero copy of data
       // pearson is the default measure
-      return zeroCopyPearsonR(dataA, dataB);
+      return dataA.pearsonR(dataB, minimumNumberOfCorrelatedPixels);
     }
 
     // if other similarity measure is selected - create arrays of actual matching data and call regular similarity.calc
-    int values = 0;
-    for (int old = 0; old < dataA.size(); old++) {
-      // only exclude if both a and b exclude a data point
-      if (!(dataA.isRemoved(old) && dataB.isRemoved(old))) {
-        values++;
-      }
-    }
-    double[] a = new double[values];
-    double[] b = new double[values];
-    int fi = 0;
-    for (int old = 0; old < dataA.size(); old++) {
-      if (!(dataA.isRemoved(old) && dataB.isRemoved(old))) {
-        a[fi] = dataA.getIntensity(old);
-        b[fi] = dataB.getIntensity(old);
-        fi++;
-      }
-    }
-
-    return similarityMeasure.calc(a, b);
-  }
-
-  /**
-   * Optimized to avoid data copies and GC
-   */
-  private double zeroCopyPearsonR(final FilteredRowData dataA, final FilteredRowData dataB) {
-    int values = 0;
-    double sumX = 0.0, sumY = 0.0, sumXY = 0.0;
-    double sumX2 = 0.0, sumY2 = 0.0;
-
-    for (int old = 0; old < dataA.size(); old++) {
-      // only exclude if both a and b exclude a data point
-      if (!(dataA.isRemoved(old) && dataB.isRemoved(old))) {
-        values++;
-
-        double x = dataA.getIntensity(old);
-        double y = dataB.getIntensity(old);
-
-        sumX += x;
-        sumY += y;
-        sumXY += x * y;
-        sumX2 += x * x;
-        sumY2 += y * y;
-      }
-    }
-    if (values < minimumNumberOfCorrelatedPixels) {
-      return 0d;
-    }
-
-    double numerator = values * sumXY - sumX * sumY;
-    double denominator = Math.sqrt((values * sumX2 - sumX * sumX) * (values * sumY2 - sumY * sumY));
-
-    if (denominator == 0) {
-      return 0d;
-    }
-
-    return numerator / denominator;
+    return dataA.similarity(dataB, similarityMeasure);
   }
 
 }
@@ -0,0 +1,272 @@
+/*
+ * Copyright (c) 2004-2025 The mzmine Development Team
+ *
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+
+package io.github.mzmine.modules.dataprocessing.group_imagecorrelate;
+
+import io.github.mzmine.util.MathUtils;
+import io.github.mzmine.util.collections.BinarySearch;
+import io.github.mzmine.util.collections.BinarySearch.DefaultTo;
+import io.github.mzmine.util.maths.Transform;
+import io.github.mzmine.util.maths.similarity.SimilarityMeasure;
+import java.util.Arrays;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * Transformed and filtered intensities of one image. Most pixels of an ion image are 0, so only
+ * the non-zero pixels are stored sorted by pixel index. All thresholds are calculated once on
+ * creation, so that the comparison of two images is a single merge over both pixel lists.
+ * <p>
+ * Pixels are compared if at least one of the two images keeps the pixel, see
+ * {@link #isRemoved(double)}. This is the same set of pixels as for the dense intensity arrays,
+ * because 0 intensity is always removed.
+ */
+final class SparseImage {
+
+  /**
+   * Number of bins in the occupancy sketches. Each bin covers consecutive pixels.
+   */
+  private static final int SKETCH_BINS = 4096;
+
+  private final int[] pixels;
+  private final double[] values;
+  private final double noiseLevelOrLowerPercentile;
+  private final double upperPercentile;
+  /**
+   * bit set for each bin with at least one non-zero pixel
+   */
+  private final long[] nonZeroSketch;
+  /**
+   * bit set for each bin with at least one pixel that is not removed
+   */
+  private final long[] keptSketch;
+
+  private SparseImage(int[] pixels, double[] values, double noiseLevelOrLowerPercentile,
+      double upperPercentile, long[] nonZeroSketch, long[] keptSketch) {
+    this.pixels = pixels;
+    this.values = values;
+    this.noiseLevelOrLowerPercentile = noiseLevelOrLowerPercentile;
+    this.upperPercentile = upperPercentile;
+    this.nonZeroSketch = nonZeroSketch;
+    this.keptSketch = keptSketch;
+  }
+
+  /**
+   * @param intensities   the dense data sorted by scan. Will be changed by the transform
+   * @param lowerQuantile a lower quantile to remove from the non-zero intensities
+   * @param upperQuantile an upper quantile to remove from the non-zero intensities
+   * @param noiseLevel    absolute noise level
+   * @param transform     transformation to scale the contribution of lower to higher intensities
+   * @return a prepared dataset
+   */
+  static SparseImage create(final double[] intensities, final double lowerQuantile,
+      final double upperQuantile, double noiseLevel, @Nullable final Transform transform) {
+    if (transform != null) {
+      // transform noise level and intensities
+      noiseLevel = transform.transformKeep0(noiseLevel);
+
+      transform.transformKeep0(intensities);
+    }
+    // percentiles are optional
+    // use 1 as minimum to cut out 0 intensity
+    double lowerPercentile = 1;
+    double upperPercentile = 0;
+    boolean useUpperQuantile = upperQuantile < 1;
+    boolean useLowerQuantile = lowerQuantile > 0;
+    if (useLowerQuantile || useUpperQuantile) {
+      double[] sorted = Arrays.copyOf(intensities, intensities.length);
+      Arrays.sort(sorted);
+      // find first non-zero index and exclude all below from the quantile ranges
+      // this means that quantiles are taken from non-0 intensities
+      int nonZeroIndex = BinarySearch.binarySearch(sorted, 0.00001, DefaultTo.GREATER_EQUALS);
+      if (useLowerQuantile && nonZeroIndex >= 0) { // otherwise filter off
+        lowerPercentile = MathUtils.calcQuantileSorted(sorted, nonZeroIndex, sorted.length,
+            lowerQuantile);
+      }
+      if (useUpperQuantile && nonZeroIndex >= 0) { // otherwise filter off
+        upperPercentile = MathUtils.calcQuantileSorted(sorted, nonZeroIndex, sorted.length,
+            upperQuantile);
+      }
+    }
+
+    // minimum is 1
+    noiseLevel = Math.max(1, Math.max(noiseLevel, lowerPercentile));
+
+    int nonZero = 0;
+    for (double value : intensities) {
+      if (value != 0) {
+        nonZero++;
+      }
+    }
+
+    final int binSize = Math.max(1, (intensities.length + SKETCH_BINS - 1) / SKETCH_BINS);
+    final int bins = (intensities.length + binSize - 1) / binSize;
+    final long[] nonZeroSketch = new long[(bins + 63) >>> 6];
+    final long[] keptSketch = new long[nonZeroSketch.length];
+
+    final int[] pixels = new int[nonZero];
+    final double[] values = new double[nonZero];
+    int n = 0;
+    for (int i = 0; i < intensities.length; i++) {
+      final double value = intensities[i];
+      if (value == 0) {
+        continue;
+      }
+      pixels[n] = i;
+      values[n] = value;
+      n++;
+
+      final int bin = i / binSize;
+      nonZeroSketch[bin >>> 6] |= 1L << bin;
+      if (!isRemoved(value, noiseLevel, upperPercentile)) {
+        keptSketch[bin >>> 6] |= 1L << bin;
+      }
+    }
+    return new SparseImage(pixels, values, noiseLevel, upperPercentile, nonZeroSketch,
+        keptSketch);
+  }
+
+  private static boolean isRemoved(final double value, final double noiseLevelOrLowerPercentile,
+      final double upperPercentile) {
+    return value < noiseLevelOrLowerPercentile || (upperPercentile > 0
+                                                   && value > upperPercentile);
+  }
+
+  boolean isRemoved(final double value) {
+    return isRemoved(value, noiseLevelOrLowerPercentile, upperPercentile);
+  }
+
+  /**
+   * @return number of non-zero pixels
+   */
+  int getNumberOfNonZeroPixels() {
+    return pixels.length;
+  }
+
+  /**
+   * A positive Pearson correlation requires at least one compared pixel with intensity in both
+   * images. This checks the occupancy sketches of both images, which never misses such a pixel.
+   * Both images need to have the same number of pixels.
+   *
+   * @return false if the images cannot correlate positively
+   */
+  boolean mayCorrelatePositively(@NotNull SparseImage other) {
+    for (int w = 0; w < nonZeroSketch.length; w++) {
+      if (((keptSketch[w] & other.nonZeroSketch[w]) | (nonZeroSketch[w] & other.keptSketch[w]))
+          != 0) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  /**
+   * Optimized to avoid data copies and GC. Sums over all pixels that are kept in at least one of
+   * the images in pixel order.
+   *
+   * @param minimumNumberOfCorrelatedPixels returns 0 if fewer pixels are compared
+   */
+  double pearsonR(@NotNull SparseImage other, final int minimumNumberOfCorrelatedPixels) {
+    int values = 0;
+    double sumX = 0.0, sumY = 0.0, sumXY = 0.0;
+    double sumX2 = 0.0, sumY2 = 0.0;
+
+    final int[] pixelsB = other.pixels;
+    final double[] valuesB = other.values;
+    int a = 0;
+    int b = 0;
+    while (a < pixels.length || b < pixelsB.length) {
+      final int pixelA = a < pixels.length ? pixels[a] : Integer.MAX_VALUE;
+      final int pixelB = b < pixelsB.length ? pixelsB[b] : Integer.MAX_VALUE;
+      final double x;
+      final double y;
+      if (pixelA == pixelB) {
+        x = this.values[a++];
+        y = valuesB[b++];
+      } else if (pixelA < pixelB) {
+        x = this.values[a++];
+        y = 0;
+      } else {
+        x = 0;
+        y = valuesB[b++];
+      }
+      // only exclude if both a and b exclude a data point
+      if (isRemoved(x) && other.isRemoved(y)) {
+        continue;
+      }
+      values++;
+
+      sumX += x;
+      sumY += y;
+      sumXY += x * y;
+      sumX2 += x * x;
+      sumY2 += y * y;
+    }
+    if (values < minimumNumberOfCorrelatedPixels) {
+      return 0d;
+    }
+
+    double numerator = values * sumXY - sumX * sumY;
+    double denominator = Math.sqrt((values * sumX2 - sumX * sumX) * (values * sumY2 - sumY * sumY));
+
+    if (denominator == 0) {
+      return 0d;
+    }
+
+    return numerator / denominator;
+  }
+
+  /**
+   * Creates arrays of all pixels that are kept in at least one of the images and calls the
+   * similarity measure.
+   */
+  double similarity(@NotNull SparseImage other, @NotNull SimilarityMeasure measure) {
+    final int[] pixelsB = other.pixels;
+    final double[] valuesB = other.values;
+    final double[] x = new double[pixels.length + pixelsB.length];
+    final double[] y = new double[x.length];
+    int n = 0;
+    int a = 0;
+    int b = 0;
+    while (a < pixels.length || b < pixelsB.length) {
+      final int pixelA = a < pixels.length ? pixels[a] : Integer.MAX_VALUE;
+      final int pixelB = b < pixelsB.length ? pixelsB[b] : Integer.MAX_VALUE;
+      if (pixelA == pixelB) {
+        x[n] = values[a++];
+        y[n] = valuesB[b++];
+      } else if (pixelA < pixelB) {
+        x[n] = values[a++];
+        y[n] = 0;
+      } else {
+        x[n] = 0;
+        y[n] = valuesB[b++];
+      }
+      if (!(isRemoved(x[n]) && other.isRemoved(y[n]))) {
+        n++;
+      }
+    }
+    return measure.calc(Arrays.copyOf(x, n), Arrays.copyOf(y, n));
+  }
+}
@@ -156,11 +156,10 @@ public class NoPrecursorCosineSpectralNetworkingTask extends AbstractFeatureList
     totalMaxPairs = Combinatorics.uniquePairs(filteredRows);
     logger.log(Level.INFO, MessageFormat.format("Checking MS2 similarity on {0} rows", numRows));
 
-    long comparedPairs = StreamUtils.processPairs(filteredRows, this::isCanceled, true, //
-        pair -> {
+    long comparedPairs = StreamUtils.processPairs(filteredRows, this::isCanceled, true, null,
+        processedPairs::addAndGet, (a, b) -> {
           // the actual processing
-          checkSpectralPair(pair.left(), pair.right(), mapSimilarity);
-          processedPairs.incrementAndGet();
+          checkSpectralPair(a, b, mapSimilarity);
         });
 
     logger.info("Spectral networking: Performed %d pairwise comparisons.".formatted(comparedPairs));
@@ -28,12 +28,9 @@ package io.github.mzmine.modules.dataprocessing.group_spectral_networking.dreams
 import static io.github.mzmine.modules.dataprocessing.group_spectral_networking.ms2deepscore.MS2DeepscoreNetworkingTask.convertMatrixToR2RMap;
 import static io.github.mzmine.modules.dataprocessing.group_spectral_networking.ms2deepscore.MS2DeepscoreNetworkingTask.getScanAndApplyPrechecks;
 import static io.github.mzmine.util.collections.CollectionUtils.argsortReversed;
-import static io.github.mzmine.util.scans.similarity.impl.ms2deepscore.EmbeddingBasedSimilarity.dotProduct;
+import static io.github.mzmine.util.scans.similarity.impl.ms2deepscore.EmbeddingBasedSimilarity.cosineSimilarity;
 
 import ai.djl.MalformedModelException;
-import ai.djl.ndarray.NDArray;
-import ai.djl.ndarray.NDArrays;
-import ai.djl.ndarray.NDList;
 import ai.djl.repository.zoo.ModelNotFoundException;
 import ai.djl.translate.TranslateException;
 import io.github.mzmine.datamodel.MZmineProject;
@@ -51,6 +48,7 @@ import io.github.mzmine.taskcontrol.AbstractFeatureListTask;
 import io.github.mzmine.util.MemoryMapStorage;
 import io.github.mzmine.util.scans.FragmentScanSelection;
 import io.github.mzmine.util.scans.similarity.impl.DreaMS.DreaMSModel;
+import io.github.mzmine.util.scans.similarity.impl.ms2deepscore.EmbeddingStore;
 import java.io.File;
 import java.io.IOException;
 import java.time.Instant;
@@ -120,8 +118,11 @@ public class DreaMSNetworkingTask extends AbstractFeatureListTask {
   protected void process() {
     // init model
     description = "Loading model";
-    // auto close model after use
-    try (var model = new DreaMSModel(dreamsModelFile, dreamsSettingsFile)) {
+    // auto close model and embedding store after use
+    try (var model = new DreaMSModel(dreamsModelFile, dreamsSettingsFile);
+        var embeddingStore = EmbeddingStore.fromPreferences(model.getModelId())) {
+      model.setEmbeddingStore(embeddingStore);
+      model.setBatchSize(batchSize);
       description = "Calculating DreaMS similarity";
       // each feature list
       for (FeatureList featureList : featureLists) {
@@ -149,34 +150,16 @@ public class DreaMSNetworkingTask extends AbstractFeatureListTask {
     // Predict the matrix of pairwise DreaMS similarities
     float[][] similarityMatrix;
     try {
-      // Pre-process mass spectra
-      float[][][] tensorizedSpectra = model.getSpectrumTensorizer().tensorizeSpectra(scanList);
-
-      // Process the tensorizedSpectra in batches
-      int totalSpectra = tensorizedSpectra.length;
-      NDList allPredictions = new NDList();
-
-      for (int start = 0; start < totalSpectra; start += batchSize) {
-        // Determine the end index for the current batch
-        int end = Math.min(start + batchSize, totalSpectra);
-
-        // Extract the batch as a 3D slice
-        float[][][] batchSlices = new float[end - start][][];
-        System.arraycopy(tensorizedSpectra, start, batchSlices, 0, end - start);
-
-        // Predict embeddings for the current batch
-        processedItems += end - start;
-        NDArray batchPredictions = model.predictEmbeddingFromTensors(batchSlices);
-
-        // Add the predictions for the current batch to all predictions
-        allPredictions.add(batchPredictions);
-      }
-
-      // Combine all predictions into a single NDArray (stacked along the batch dimension)
-      NDArray embeddings = NDArrays.concat(allPredictions);
+      // Stored embeddings are reused, missing embeddings are tensorized and predicted in batches
+      float[][] embeddings = model.getEmbeddings(scanList, n -> {
+        processedItems += n;
+        description = "Calculating DreaMS similarities (%s)".formatted(model.getThroughput());
+      });
+      logger.fine(() -> "DreaMS embeddings of %s: %s".formatted(featureList.getName(),
+          model.getThroughput()));
 
       // Compute DreaMS similarities
-      similarityMatrix = dotProduct(embeddings, embeddings);
+      similarityMatrix = cosineSimilarity(embeddings, embeddings);
     } catch (TranslateException e) {
       throw new RuntimeException(e);
     }
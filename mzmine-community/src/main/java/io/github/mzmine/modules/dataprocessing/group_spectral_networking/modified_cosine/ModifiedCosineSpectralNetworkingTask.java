@@ -442,14 +442,11 @@ public class ModifiedCosineSpectralNetworkingTask extends AbstractFeatureListTas
         // stop inner loop if mz distance is too far
         (first, later) -> maxMzDelta < later.getKey().getAverageMZ() - first.getKey()
             .getAverageMZ(), //
-        pair -> {
+        processedPairs::addAndGet, //
+        (first, later) -> {
           // the actual processing
-          var row1 = pair.left().getKey();
-          var scans1 = pair.left().getValue();
-          var row2 = pair.right().getKey();
-          var scans2 = pair.right().getValue();
-          checkRowsPair(row1, scans1, row2, scans2, mapSimilarity);
-          processedPairs.incrementAndGet();
+          checkRowsPair(first.getKey(), first.getValue(), later.getKey(), later.getValue(),
+              mapSimilarity);
         });
 
     logger.info("Spectral networking: Performed %d pairwise comparisons.".formatted(comparedPairs));
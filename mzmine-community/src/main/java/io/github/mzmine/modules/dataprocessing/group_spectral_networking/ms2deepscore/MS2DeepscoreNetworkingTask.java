@@ -25,6 +25,8 @@
 
 package io.github.mzmine.modules.dataprocessing.group_spectral_networking.ms2deepscore;
 
+import static io.github.mzmine.util.scans.similarity.impl.ms2deepscore.EmbeddingBasedSimilarity.cosineSimilarity;
+
 import ai.djl.MalformedModelException;
 import ai.djl.repository.zoo.ModelNotFoundException;
 import ai.djl.translate.TranslateException;
@@ -44,6 +46,7 @@ import io.github.mzmine.taskcontrol.AbstractFeatureListTask;
 import io.github.mzmine.util.MemoryMapStorage;
 import io.github.mzmine.util.exceptions.MissingMassListException;
 import io.github.mzmine.util.scans.FragmentScanSelection;
+import io.github.mzmine.util.scans.similarity.impl.ms2deepscore.EmbeddingStore;
 import io.github.mzmine.util.scans.similarity.impl.ms2deepscore.MS2DeepscoreModel;
 import java.io.File;
 import java.io.IOException;
@@ -103,8 +106,10 @@ public class MS2DeepscoreNetworkingTask extends AbstractFeatureListTask {
   protected void process() {
     // init model
     description = "Loading model";
-    // auto close model after use
-    try (var model = new MS2DeepscoreModel(ms2deepscoreModelFile, ms2deepscoreSettingsFile)) {
+    // auto close model and embedding store after use
+    try (var model = new MS2DeepscoreModel(ms2deepscoreModelFile, ms2deepscoreSettingsFile);
+        var embeddingStore = EmbeddingStore.fromPreferences(model.getModelId())) {
+      model.setEmbeddingStore(embeddingStore);
       description = "Calculating MS2Deepscore similarity";
       // estimate work load - like how many elements to process
       totalItems = Arrays.stream(featureLists).mapToLong(FeatureList::getNumberOfRows).sum();
@@ -134,7 +139,14 @@ public class MS2DeepscoreNetworkingTask extends AbstractFeatureListTask {
 
     float[][] similarityMatrix;
     try {
-      similarityMatrix = model.predictMatrixSymmetric(scanList);
+      // Stored embeddings are reused, missing embeddings are tensorized and predicted in batches
+      float[][] embeddings = model.getEmbeddings(scanList, n -> {
+        finishedItems.addAndGet(n);
+        description = "Calculating MS2Deepscore similarity (%s)".formatted(model.getThroughput());
+      });
+      logger.fine(() -> "MS2Deepscore embeddings of %s: %s".formatted(featureList.getName(),
+          model.getThroughput()));
+      similarityMatrix = cosineSimilarity(embeddings, embeddings);
     } catch (TranslateException e) {
       throw new RuntimeException(e);
     }
@@ -32,6 +32,7 @@ import io.github.mzmine.datamodel.MobilityType;
 import io.github.mzmine.datamodel.PolarityType;
 import io.github.mzmine.datamodel.features.FeatureList;
 import io.github.mzmine.datamodel.features.FeatureListRow;
+import io.github.mzmine.datamodel.features.RowSpatialIndex;
 import io.github.mzmine.datamodel.features.types.DataTypes;
 import io.github.mzmine.datamodel.features.types.numbers.CCSType;
 import io.github.mzmine.datamodel.features.types.numbers.ChargeType;
@@ -47,7 +48,6 @@ import java.io.File;
 import java.io.FileReader;
 import java.io.IOException;
 import java.util.ArrayList;
-import java.util.Comparator;
 import java.util.List;
 import java.util.Objects;
 import java.util.logging.Logger;
@@ -174,9 +174,7 @@ public class CCSUtils {
   public static List<CCSCalibrant> findCalibrants(FeatureList flist, List<CCSCalibrant> calibrants,
       MZTolerance mzTol, Range<Float> rtRange, MobilityTolerance mobTol, double minHeight) {
 
-    final List<FeatureListRow> rowsByMz = flist.stream()
-        .filter(r -> rtRange.contains(r.getAverageRT()))
-        .sorted(Comparator.comparingDouble(FeatureListRow::getAverageMZ)).toList();
+    final RowSpatialIndex rowIndex = flist.getSpatialIndex();
 
     List<CCSCalibrant> detectedCalibrants = new ArrayList<>();
     for (int i = 0; i < calibrants.size(); i++) {
@@ -184,8 +182,8 @@ public class CCSUtils {
       final Range<Float> mobRange = mobTol.getToleranceRange(potentialCalibrant.libraryMobility());
       final Range<Double> mzRange = mzTol.getToleranceRange(potentialCalibrant.libraryMz());
 
-      final List<FeatureListRow> candidates = FeatureListUtils.getCandidatesWithinRanges(mzRange,
-          rtRange, mobRange, rowsByMz, true).stream().filter(
+      final List<FeatureListRow> candidates = rowIndex.getRowsWithin(mzRange, rtRange, mobRange)
+          .stream().filter(
           r -> r.getMaxHeight() > minHeight && Objects.equals(
               r.getBestFeature().getRepresentativeScan().getPolarity(),
               PolarityType.fromInt(potentialCalibrant.libraryCharge()))).toList();
@@ -36,7 +36,6 @@ import io.github.mzmine.datamodel.features.SimpleFeatureListAppliedMethod;
 import io.github.mzmine.datamodel.features.types.annotations.LipidMatchListType;
 import io.github.mzmine.modules.dataprocessing.id_lipidid.common.lipids.ILipidClass;
 import io.github.mzmine.modules.dataprocessing.id_lipidid.common.lipids.LipidClasses;
-import io.github.mzmine.modules.dataprocessing.id_lipidid.common.lipids.LipidIon;
 import io.github.mzmine.modules.dataprocessing.id_lipidid.common.lipids.custom_class.CustomLipidClass;
 import io.github.mzmine.modules.dataprocessing.id_lipidid.common.lipids.custom_class.CustomLipidClassParameters;
 import io.github.mzmine.parameters.ParameterSet;
@@ -44,12 +43,9 @@ import io.github.mzmine.parameters.parametertypes.AdvancedParametersParameter;
 import io.github.mzmine.parameters.parametertypes.tolerances.MZTolerance;
 import io.github.mzmine.taskcontrol.AbstractTask;
 import io.github.mzmine.taskcontrol.TaskStatus;
-import io.github.mzmine.util.collections.BinarySearch;
-import io.github.mzmine.util.collections.BinarySearch.DefaultTo;
 import io.github.mzmine.util.scans.FragmentScanSelection;
 import java.time.Instant;
 import java.util.Arrays;
-import java.util.Comparator;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
@@ -188,32 +184,28 @@ public class LipidAnnotationTask extends AbstractTask {
     totalSteps = rows.size();
     Set<PolarityType> polarityTypes = getPolarityTypes();
 
-    // build lipid species database
-    List<LipidIon> lipidDatabase = LipidAnnotationUtils.buildLipidDatabase(selectedLipids,
-        minChainLength, maxChainLength, minDoubleBonds, maxDoubleBonds, onlySearchForEvenChains,
-        ionizationTypesToIgnore, polarityTypes);
-    List<LipidIon> sortedLipidDatabase = lipidDatabase.stream()
-        .sorted(Comparator.comparingDouble(LipidIon::mz)).toList();
+    // build lipid species database or reuse the library of a previous task
+    LipidLibrary lipidLibrary = LipidLibrary.getOrBuild(selectedLipids,
+        new LipidChainConstraints(minChainLength, maxChainLength, minDoubleBonds, maxDoubleBonds,
+            onlySearchForEvenChains), ionizationTypesToIgnore, polarityTypes);
 
     rows.parallelStream().forEach(row -> {
       Range<Double> mzTolRange = mzTolerance.getToleranceRange(row.getAverageMZ());
       double lowerEdge = mzTolRange.lowerEndpoint();
       double upperEdge = mzTolRange.upperEndpoint();
-      int index = BinarySearch.binarySearch(lowerEdge, DefaultTo.GREATER_EQUALS,
-          sortedLipidDatabase.size(), i -> sortedLipidDatabase.get(i).mz());
+      int index = lipidLibrary.indexOfFirstMz(lowerEdge);
       if (index >= 0) {
-        for (int i = index; i < sortedLipidDatabase.size(); i++) {
+        for (int i = index; i < lipidLibrary.size(); i++) {
           if (isCanceled()) {
             return;
           }
 
-          LipidAnnotationUtils.findPossibleLipid(sortedLipidDatabase.get(i), row, parameters,
-              mzTolerance, mzToleranceMS2, searchForMSMSFragments, minMsMsScore,
-              keepUnconfirmedAnnotations,
-              sortedLipidDatabase.get(i).lipidAnnotation().getLipidClass().getCoreClass(),
+          LipidAnnotationUtils.findPossibleLipid(lipidLibrary, i, row, mzTolerance,
+              mzToleranceMS2, searchForMSMSFragments, minMsMsScore, keepUnconfirmedAnnotations,
+              lipidLibrary.getIon(i).lipidAnnotation().getLipidClass().getCoreClass(),
               scanMergeSelect);
 
-          if (upperEdge < sortedLipidDatabase.get(i).mz()) {
+          if (upperEdge < lipidLibrary.getMz(i)) {
             break;
           }
         }
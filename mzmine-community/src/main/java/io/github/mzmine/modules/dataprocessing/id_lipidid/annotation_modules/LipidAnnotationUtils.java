@@ -33,8 +33,7 @@ import io.github.mzmine.datamodel.Scan;
 import io.github.mzmine.datamodel.features.FeatureListRow;
 import io.github.mzmine.datamodel.features.types.annotations.LipidMatchListType;
 import io.github.mzmine.modules.dataprocessing.id_lipidid.common.identification.LipidFragmentationRule;
-import io.github.mzmine.modules.dataprocessing.id_lipidid.common.identification.fragmentation.ILipidFragmentFactory;
-import io.github.mzmine.modules.dataprocessing.id_lipidid.common.identification.fragmentation.LipidFragmentFactory;
+import io.github.mzmine.modules.dataprocessing.id_lipidid.common.identification.fragmentation.LipidFragmentTable;
 import io.github.mzmine.modules.dataprocessing.id_lipidid.common.identification.matched_levels.MatchedLipid;
 import io.github.mzmine.modules.dataprocessing.id_lipidid.common.identification.matched_levels.MatchedLipidStatus;
 import io.github.mzmine.modules.dataprocessing.id_lipidid.common.identification.matched_levels.molecular_species.GlyceroAndPhosphoMolecularSpeciesLevelMatchedLipidFactory;
@@ -53,7 +52,6 @@ import io.github.mzmine.modules.dataprocessing.id_lipidid.common.lipids.LipidFra
 import io.github.mzmine.modules.dataprocessing.id_lipidid.common.lipids.LipidIon;
 import io.github.mzmine.modules.dataprocessing.id_lipidid.utils.LipidAnnotationResolver;
 import io.github.mzmine.modules.dataprocessing.id_lipidid.utils.LipidFactory;
-import io.github.mzmine.parameters.ParameterSet;
 import io.github.mzmine.parameters.parametertypes.tolerances.MZTolerance;
 import io.github.mzmine.util.scans.FragmentScanSelection;
 import java.util.ArrayList;
@@ -144,11 +142,16 @@ public class LipidAnnotationUtils {
     }
   }
 
-  public static void findPossibleLipid(LipidIon lipidIon, FeatureListRow row,
-      ParameterSet parameters, MZTolerance mzTolerance, MZTolerance mzToleranceMS2,
+  /**
+   * Checks the lipid ion at index of the library against the row. Theoretical fragments are taken
+   * from the library and only created once for each lipid ion.
+   */
+  public static void findPossibleLipid(LipidLibrary lipidLibrary, int lipidIonIndex,
+      FeatureListRow row, MZTolerance mzTolerance, MZTolerance mzToleranceMS2,
       boolean searchForMSMSFragments, double minMsMsScore, boolean keepUnconfirmedAnnotations,
       LipidCategories lipidCategory, final FragmentScanSelection scanMergeSelect) {
     Set<MatchedLipid> possibleRowAnnotations = new HashSet<>();
+    LipidIon lipidIon = lipidLibrary.getIon(lipidIonIndex);
 
     if (Objects.requireNonNull(row.getBestFeature().getRepresentativeScan()).getPolarity()
         .equals(lipidIon.ionizationType().getPolarity())) {
@@ -161,8 +164,8 @@ public class LipidAnnotationUtils {
         if (searchForMSMSFragments) {
           possibleRowAnnotations.addAll(
               searchMsmsFragments(row, lipidIon.ionizationType(), lipidIon.lipidAnnotation(),
-                  parameters, mzToleranceMS2, minMsMsScore, keepUnconfirmedAnnotations,
-                  lipidCategory, scanMergeSelect));
+                  lipidLibrary, lipidIonIndex, mzToleranceMS2, minMsMsScore,
+                  keepUnconfirmedAnnotations, lipidCategory, scanMergeSelect));
         } else {
 
           // make MS1 annotation
@@ -182,9 +185,9 @@ public class LipidAnnotationUtils {
    * This method searches for MS/MS fragments. A mass list for MS2 scans will be used if present.
    */
   private static Set<MatchedLipid> searchMsmsFragments(FeatureListRow row,
-      IonizationType ionization, ILipidAnnotation lipid, ParameterSet parameters,
-      MZTolerance mzToleranceMS2, double minMsMsScore, boolean keepUnconfirmedAnnotations,
-      LipidCategories lipidCategory, final FragmentScanSelection scanMergeSelect) {
+      IonizationType ionization, ILipidAnnotation lipid, LipidLibrary lipidLibrary,
+      int lipidIonIndex, MZTolerance mzToleranceMS2, double minMsMsScore,
+      boolean keepUnconfirmedAnnotations, LipidCategories lipidCategory, final FragmentScanSelection scanMergeSelect) {
     Set<MatchedLipid> matchedLipids = new HashSet<>();
     LipidFragmentationRule[] rules = lipid.getLipidClass().getFragmentationRules();
     List<Scan> msmsScans = scanMergeSelect.getAllFragmentSpectra(row);
@@ -199,11 +202,9 @@ public class LipidAnnotationUtils {
         dataPoints = msmsScan.getMassList().getDataPoints();
         Set<LipidFragment> annotatedFragments = new HashSet<>();
         if (rules != null && rules.length > 0) {
-          ILipidFragmentFactory lipidFragmentFactory = new LipidFragmentFactory(mzToleranceMS2,
-              lipid, ionization, rules, msmsScan,
-              parameters.getParameter(LipidAnnotationParameters.lipidChainParameters)
-                  .getEmbeddedParameters());
-          List<LipidFragment> annotatedFragmentsForDataPoint = lipidFragmentFactory.findLipidFragments();
+          LipidFragmentTable fragmentTable = lipidLibrary.getFragmentTable(lipidIonIndex);
+          List<LipidFragment> annotatedFragmentsForDataPoint = fragmentTable.findFragments(
+              msmsScan, mzToleranceMS2);
           if (annotatedFragmentsForDataPoint != null && !annotatedFragmentsForDataPoint.isEmpty()) {
             annotatedFragments.addAll(annotatedFragmentsForDataPoint);
           }
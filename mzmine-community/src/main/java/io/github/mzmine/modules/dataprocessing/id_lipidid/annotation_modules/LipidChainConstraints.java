@@ -0,0 +1,51 @@
+/*
+ * Copyright (c) 2004-2025 The mzmine Development Team
+ *
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+
+package io.github.mzmine.modules.dataprocessing.id_lipidid.annotation_modules;
+
+import io.github.mzmine.parameters.ParameterSet;
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * Chain constraints used to build lipid species and chain fragments. Used as a value key for
+ * cached lipid libraries.
+ */
+public record LipidChainConstraints(int minChainLength, int maxChainLength, int minDoubleBonds,
+                                    int maxDoubleBonds, boolean onlySearchForEvenChains) {
+
+  /**
+   * @param chainParameters {@link LipidAnnotationChainParameters}
+   */
+  @NotNull
+  public static LipidChainConstraints fromParameters(@NotNull ParameterSet chainParameters) {
+    return new LipidChainConstraints(
+        chainParameters.getValue(LipidAnnotationChainParameters.minChainLength),
+        chainParameters.getValue(LipidAnnotationChainParameters.maxChainLength),
+        chainParameters.getValue(LipidAnnotationChainParameters.minDBEs),
+        chainParameters.getValue(LipidAnnotationChainParameters.maxDBEs),
+        chainParameters.getValue(LipidAnnotationChainParameters.onlySearchForEvenChainLength));
+  }
+
+}
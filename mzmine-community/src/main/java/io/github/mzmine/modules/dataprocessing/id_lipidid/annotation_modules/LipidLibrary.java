@@ -0,0 +1,178 @@
+/*
+ * Copyright (c) 2004-2025 The mzmine Development Team
+ *
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+
+package io.github.mzmine.modules.dataprocessing.id_lipidid.annotation_modules;
+
+import io.github.mzmine.datamodel.IonizationType;
+import io.github.mzmine.datamodel.PolarityType;
+import io.github.mzmine.modules.dataprocessing.id_lipidid.common.identification.LipidFragmentationRule;
+import io.github.mzmine.modules.dataprocessing.id_lipidid.common.identification.fragmentation.LipidFragmentFactory;
+import io.github.mzmine.modules.dataprocessing.id_lipidid.common.identification.fragmentation.LipidFragmentTable;
+import io.github.mzmine.modules.dataprocessing.id_lipidid.common.lipids.ILipidAnnotation;
+import io.github.mzmine.modules.dataprocessing.id_lipidid.common.lipids.ILipidClass;
+import io.github.mzmine.modules.dataprocessing.id_lipidid.common.lipids.LipidIon;
+import io.github.mzmine.util.collections.BinarySearch;
+import io.github.mzmine.util.collections.BinarySearch.DefaultTo;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.logging.Logger;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * Lipid ions sorted by m/z together with their theoretical MS/MS fragments. The fragment table of
+ * each ion is only created on first use and then reused for all rows and scans. Libraries are kept
+ * in a small least recently used cache so that repeated annotation tasks with the same lipid
+ * classes and chain constraints do not build the library again.
+ */
+public final class LipidLibrary {
+
+  private static final Logger logger = Logger.getLogger(LipidLibrary.class.getName());
+
+  /**
+   * Libraries with their lazily created fragment tables may become large. Only keep the most
+   * recently used ones.
+   */
+  private static final int MAX_CACHED_LIBRARIES = 4;
+  private static final Map<LibraryKey, LipidLibrary> CACHE = new LinkedHashMap<>(16, 0.75f,
+      true) {
+    @Override
+    protected boolean removeEldestEntry(Entry<LibraryKey, LipidLibrary> eldest) {
+      return size() > MAX_CACHED_LIBRARIES;
+    }
+  };
+
+  private final List<LipidIon> ions;
+  private final double[] mzs;
+  private final LipidChainConstraints chainConstraints;
+  private final AtomicReferenceArray<LipidFragmentTable> fragmentTables;
+
+  private LipidLibrary(@NotNull List<LipidIon> ions,
+      @NotNull LipidChainConstraints chainConstraints) {
+    this.ions = ions.stream().sorted(Comparator.comparingDouble(LipidIon::mz)).toList();
+    this.chainConstraints = chainConstraints;
+    mzs = new double[this.ions.size()];
+    for (int i = 0; i < mzs.length; i++) {
+      mzs[i] = this.ions.get(i).mz();
+    }
+    fragmentTables = new AtomicReferenceArray<>(mzs.length);
+  }
+
+  /**
+   * Returns a cached library or builds a new one for this combination of lipid classes, chain
+   * constraints, and ionization types.
+   *
+   * @param ionizationTypesToIgnore may be null
+   */
+  @NotNull
+  public static LipidLibrary getOrBuild(@NotNull ILipidClass[] lipidClasses,
+      @NotNull LipidChainConstraints chainConstraints,
+      @Nullable IonizationType[] ionizationTypesToIgnore,
+      @NotNull Set<PolarityType> polarityTypes) {
+    final Set<IonizationType> ignored = ionizationTypesToIgnore == null ? Set.of()
+        : Set.copyOf(Arrays.asList(ionizationTypesToIgnore));
+    final LibraryKey key = new LibraryKey(List.of(lipidClasses), chainConstraints, ignored,
+        Set.copyOf(polarityTypes));
+    synchronized (CACHE) {
+      LipidLibrary library = CACHE.get(key);
+      if (library != null) {
+        logger.fine(() -> "Reusing cached lipid library with %d lipid ions".formatted(
+            library.size()));
+        return library;
+      }
+      final List<LipidIon> ions = LipidAnnotationUtils.buildLipidDatabase(lipidClasses,
+          chainConstraints.minChainLength(), chainConstraints.maxChainLength(),
+          chainConstraints.minDoubleBonds(), chainConstraints.maxDoubleBonds(),
+          chainConstraints.onlySearchForEvenChains(), ionizationTypesToIgnore, polarityTypes);
+      final LipidLibrary newLibrary = new LipidLibrary(ions, chainConstraints);
+      CACHE.put(key, newLibrary);
+      return newLibrary;
+    }
+  }
+
+  /**
+   * Removes all cached libraries
+   */
+  public static void clearCache() {
+    synchronized (CACHE) {
+      CACHE.clear();
+    }
+  }
+
+  public int size() {
+    return mzs.length;
+  }
+
+  @NotNull
+  public LipidIon getIon(int index) {
+    return ions.get(index);
+  }
+
+  public double getMz(int index) {
+    return mzs[index];
+  }
+
+  /**
+   * @return index of the first lipid ion with m/z >= lowerMz or -1 if there is none
+   */
+  public int indexOfFirstMz(double lowerMz) {
+    return BinarySearch.binarySearch(mzs, lowerMz, DefaultTo.GREATER_EQUALS);
+  }
+
+  /**
+   * The theoretical fragments of the lipid ion at index. Created on first access.
+   */
+  @NotNull
+  public LipidFragmentTable getFragmentTable(int index) {
+    LipidFragmentTable table = fragmentTables.get(index);
+    if (table != null) {
+      return table;
+    }
+    final LipidIon ion = ions.get(index);
+    final ILipidAnnotation lipid = ion.lipidAnnotation();
+    final LipidFragmentationRule[] rules = lipid.getLipidClass().getFragmentationRules();
+    table = new LipidFragmentFactory(lipid, ion.ionizationType(),
+        rules == null ? new LipidFragmentationRule[0] : rules,
+        chainConstraints).buildFragmentTable();
+    // another thread may have created the same table in the meantime - both are equal
+    return fragmentTables.compareAndSet(index, null, table) ? table : fragmentTables.get(index);
+  }
+
+  /**
+   * Lipid classes are compared by equals. Custom lipid classes are only equal for the same
+   * instance.
+   */
+  private record LibraryKey(List<ILipidClass> lipidClasses, LipidChainConstraints chainConstraints,
+                            Set<IonizationType> ionizationTypesToIgnore,
+                            Set<PolarityType> polarityTypes) {
+
+  }
+}
@@ -25,29 +25,33 @@
 
 package io.github.mzmine.modules.dataprocessing.id_lipidid.common.identification.fragmentation;
 
-import com.google.common.collect.Range;
 import io.github.mzmine.datamodel.IonizationType;
-import io.github.mzmine.datamodel.MassList;
 import io.github.mzmine.datamodel.PolarityType;
 import io.github.mzmine.datamodel.Scan;
-import io.github.mzmine.datamodel.impl.SimpleDataPoint;
+import io.github.mzmine.modules.dataprocessing.id_lipidid.annotation_modules.LipidAnnotationChainParameters;
+import io.github.mzmine.modules.dataprocessing.id_lipidid.annotation_modules.LipidChainConstraints;
 import io.github.mzmine.modules.dataprocessing.id_lipidid.common.identification.LipidFragmentationRule;
 import io.github.mzmine.modules.dataprocessing.id_lipidid.common.identification.LipidFragmentationRuleType;
+import io.github.mzmine.modules.dataprocessing.id_lipidid.common.identification.fragmentation.LipidFragmentTable.TheoreticalFragment;
 import io.github.mzmine.modules.dataprocessing.id_lipidid.common.lipids.ILipidAnnotation;
 import io.github.mzmine.modules.dataprocessing.id_lipidid.common.lipids.LipidFragment;
 import io.github.mzmine.modules.dataprocessing.id_lipidid.common.lipids.lipidchain.ILipidChain;
 import io.github.mzmine.modules.dataprocessing.id_lipidid.common.lipids.lipidchain.LipidChainFactory;
 import io.github.mzmine.modules.dataprocessing.id_lipidid.common.lipids.lipidchain.LipidChainType;
-import io.github.mzmine.modules.dataprocessing.id_lipidid.annotation_modules.LipidAnnotationChainParameters;
 import io.github.mzmine.parameters.parametertypes.tolerances.MZTolerance;
 import io.github.mzmine.util.FormulaUtils;
-import io.github.mzmine.util.collections.BinarySearch.DefaultTo;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Objects;
 import org.jetbrains.annotations.NotNull;
 import org.openscience.cdk.interfaces.IMolecularFormula;
 import org.openscience.cdk.tools.manipulator.MolecularFormulaManipulator;
 
+/**
+ * Creates the theoretical fragments of a lipid ion from the fragmentation rules of its class. The
+ * theoretical fragments do not depend on the scan and are collected in a
+ * {@link LipidFragmentTable}, which is then matched against MS/MS scans.
+ */
 public class LipidFragmentFactory implements ILipidFragmentFactory {
 
   protected static final LipidChainFactory LIPID_CHAIN_FACTORY = new LipidChainFactory();
@@ -65,368 +69,293 @@ public class LipidFragmentFactory implements ILipidFragmentFactory {
   public LipidFragmentFactory(MZTolerance mzToleranceMS2, ILipidAnnotation lipidAnnotation,
       IonizationType ionizationType, LipidFragmentationRule[] rules, Scan msMsScan,
       LipidAnnotationChainParameters chainParameters) {
+    this(mzToleranceMS2, lipidAnnotation, ionizationType, rules, msMsScan,
+        LipidChainConstraints.fromParameters(chainParameters));
+  }
+
+  /**
+   * Factory to only create theoretical fragments with {@link #buildFragmentTable()}
+   */
+  public LipidFragmentFactory(ILipidAnnotation lipidAnnotation, IonizationType ionizationType,
+      LipidFragmentationRule[] rules, LipidChainConstraints chainConstraints) {
+    this(null, lipidAnnotation, ionizationType, rules, null, chainConstraints);
+  }
+
+  private LipidFragmentFactory(MZTolerance mzToleranceMS2, ILipidAnnotation lipidAnnotation,
+      IonizationType ionizationType, LipidFragmentationRule[] rules, Scan msMsScan,
+      LipidChainConstraints chainConstraints) {
     this.mzToleranceMS2 = mzToleranceMS2;
     this.lipidAnnotation = lipidAnnotation;
     this.ionizationType = ionizationType;
     this.rules = rules;
     this.msMsScan = msMsScan;
-    this.minChainLength = chainParameters.getParameter(
-        LipidAnnotationChainParameters.minChainLength).getValue();
-    this.maxChainLength = chainParameters.getParameter(
-        LipidAnnotationChainParameters.maxChainLength).getValue();
-    this.minDoubleBonds = chainParameters.getParameter(LipidAnnotationChainParameters.minDBEs)
-        .getValue();
-    this.maxDoubleBonds = chainParameters.getParameter(LipidAnnotationChainParameters.maxDBEs)
-        .getValue();
-    this.onlySearchForEvenChains = chainParameters.getParameter(
-        LipidAnnotationChainParameters.onlySearchForEvenChainLength).getValue();
+    this.minChainLength = chainConstraints.minChainLength();
+    this.maxChainLength = chainConstraints.maxChainLength();
+    this.minDoubleBonds = chainConstraints.minDoubleBonds();
+    this.maxDoubleBonds = chainConstraints.maxDoubleBonds();
+    this.onlySearchForEvenChains = chainConstraints.onlySearchForEvenChains();
   }
 
 
   @Override
   public List<LipidFragment> findLipidFragments() {
-    List<LipidFragment> lipidFragments = new ArrayList<>();
+    Objects.requireNonNull(msMsScan, "No MS/MS scan set to find lipid fragments");
+    Objects.requireNonNull(mzToleranceMS2, "No MS/MS tolerance set to find lipid fragments");
+    return buildFragmentTable().findFragments(msMsScan, mzToleranceMS2);
+  }
+
+  /**
+   * Creates all theoretical fragments for the rules that match the ionization type
+   */
+  @NotNull
+  public LipidFragmentTable buildFragmentTable() {
+    List<TheoreticalFragment> fragments = new ArrayList<>();
     for (LipidFragmentationRule rule : rules) {
       if (!ionizationType.equals(rule.getIonizationType())
           || rule.getLipidFragmentationRuleType() == null) {
         continue;
       }
-      List<LipidFragment> detectedFragments = checkForRuleTypes(rule);
-      if (detectedFragments != null) {
-        lipidFragments.addAll(detectedFragments);
-      }
+      addFragmentsForRuleType(rule, fragments);
     }
-    return lipidFragments;
+    return new LipidFragmentTable(lipidAnnotation.getLipidClass(), fragments);
   }
 
-  private List<LipidFragment> checkForRuleTypes(LipidFragmentationRule rule) {
+  private void addFragmentsForRuleType(LipidFragmentationRule rule,
+      List<TheoreticalFragment> fragments) {
     LipidFragmentationRuleType ruleType = rule.getLipidFragmentationRuleType();
-    return switch (ruleType) {
-      case HEADGROUP_FRAGMENT -> checkForHeadgroupFragment(rule, lipidAnnotation, msMsScan);
-      case HEADGROUP_FRAGMENT_NL -> checkForHeadgroupFragmentNL(rule, lipidAnnotation, msMsScan);
-      case PRECURSOR -> checkForOnlyPrecursor(rule, lipidAnnotation, msMsScan);
-      case ACYLCHAIN_FRAGMENT -> checkForAcylChainFragment(rule, lipidAnnotation, msMsScan);
+    switch (ruleType) {
+      case HEADGROUP_FRAGMENT -> addHeadgroupFragment(rule, fragments);
+      case HEADGROUP_FRAGMENT_NL -> addHeadgroupFragmentNL(rule, lipidAnnotation, fragments);
+      case PRECURSOR -> addPrecursor(rule, lipidAnnotation, fragments);
+      case ACYLCHAIN_FRAGMENT -> addAcylChainFragments(rule, fragments);
       case ACYLCHAIN_FRAGMENT_NL ->
-          findChainFragmentNL(rule, lipidAnnotation, msMsScan, LipidChainType.ACYL_CHAIN);
+          addChainFragmentsNL(rule, lipidAnnotation, fragments, LipidChainType.ACYL_CHAIN);
       case ACYLCHAIN_MINUS_FORMULA_FRAGMENT ->
-          findChainMinusFormulaFragment(rule, lipidAnnotation, msMsScan, LipidChainType.ACYL_CHAIN);
+          addChainMinusFormulaFragments(rule, fragments, LipidChainType.ACYL_CHAIN);
       case ACYLCHAIN_MINUS_FORMULA_FRAGMENT_NL ->
-          findChainMinusFormulaFragmentNL(rule, lipidAnnotation, msMsScan,
+          addChainMinusFormulaFragmentsNL(rule, lipidAnnotation, fragments,
               LipidChainType.ACYL_CHAIN);
       case ACYLCHAIN_PLUS_FORMULA_FRAGMENT ->
-          findChainPlusFormulaFragment(rule, lipidAnnotation, msMsScan, LipidChainType.ACYL_CHAIN);
+          addChainPlusFormulaFragments(rule, fragments, LipidChainType.ACYL_CHAIN);
       case ACYLCHAIN_PLUS_FORMULA_FRAGMENT_NL ->
-          findChainPlusFormulaFragmentNL(rule, lipidAnnotation, msMsScan,
+          addChainPlusFormulaFragmentsNL(rule, lipidAnnotation, fragments,
               LipidChainType.ACYL_CHAIN);
       case TWO_ACYLCHAINS_PLUS_FORMULA_FRAGMENT ->
-          checkForTwoAcylChainsPlusFormulaFragment(rule, lipidAnnotation, msMsScan);
+          addTwoAcylChainsPlusFormulaFragments(rule, fragments);
       case ALKYLCHAIN_PLUS_FORMULA_FRAGMENT ->
-          findChainPlusFormulaFragment(rule, lipidAnnotation, msMsScan, LipidChainType.ALKYL_CHAIN);
-      case AMID_CHAIN_FRAGMENT ->
-          findChainFragment(rule, lipidAnnotation, msMsScan, LipidChainType.AMID_CHAIN);
+          addChainPlusFormulaFragments(rule, fragments, LipidChainType.ALKYL_CHAIN);
+      case AMID_CHAIN_FRAGMENT -> addChainFragments(rule, fragments, LipidChainType.AMID_CHAIN);
       case AMID_CHAIN_PLUS_FORMULA_FRAGMENT ->
-          findChainPlusFormulaFragment(rule, lipidAnnotation, msMsScan, LipidChainType.AMID_CHAIN);
+          addChainPlusFormulaFragments(rule, fragments, LipidChainType.AMID_CHAIN);
       case AMID_CHAIN_MINUS_FORMULA_FRAGMENT ->
-          findChainMinusFormulaFragment(rule, lipidAnnotation, msMsScan, LipidChainType.AMID_CHAIN);
-      case AMID_MONO_HYDROXY_CHAIN_FRAGMENT -> findChainFragment(rule, lipidAnnotation, msMsScan,
-          LipidChainType.AMID_MONO_HYDROXY_CHAIN);
+          addChainMinusFormulaFragments(rule, fragments, LipidChainType.AMID_CHAIN);
+      case AMID_MONO_HYDROXY_CHAIN_FRAGMENT ->
+          addChainFragments(rule, fragments, LipidChainType.AMID_MONO_HYDROXY_CHAIN);
       case AMID_MONO_HYDROXY_CHAIN_PLUS_FORMULA_FRAGMENT ->
-          findChainPlusFormulaFragment(rule, lipidAnnotation, msMsScan,
-              LipidChainType.AMID_MONO_HYDROXY_CHAIN);
+          addChainPlusFormulaFragments(rule, fragments, LipidChainType.AMID_MONO_HYDROXY_CHAIN);
       case AMID_MONO_HYDROXY_CHAIN_MINUS_FORMULA_FRAGMENT ->
-          findChainMinusFormulaFragment(rule, lipidAnnotation, msMsScan,
-              LipidChainType.AMID_MONO_HYDROXY_CHAIN);
+          addChainMinusFormulaFragments(rule, fragments, LipidChainType.AMID_MONO_HYDROXY_CHAIN);
       case AMID_CHAIN_FRAGMENT_NL ->
-          findChainFragmentNL(rule, lipidAnnotation, msMsScan, LipidChainType.AMID_CHAIN);
+          addChainFragmentsNL(rule, lipidAnnotation, fragments, LipidChainType.AMID_CHAIN);
       case AMID_CHAIN_PLUS_FORMULA_FRAGMENT_NL ->
-          findChainPlusFormulaFragmentNL(rule, lipidAnnotation, msMsScan,
+          addChainPlusFormulaFragmentsNL(rule, lipidAnnotation, fragments,
               LipidChainType.AMID_CHAIN);
       case AMID_CHAIN_MINUS_FORMULA_FRAGMENT_NL ->
-          findChainMinusFormulaFragmentNL(rule, lipidAnnotation, msMsScan,
+          addChainMinusFormulaFragmentsNL(rule, lipidAnnotation, fragments,
               LipidChainType.AMID_CHAIN);
-      case SPHINGOLIPID_MONO_HYDROXY_BACKBONE_CHAIN_FRAGMENT ->
-          findChainFragment(rule, lipidAnnotation, msMsScan,
-              LipidChainType.SPHINGOLIPID_MONO_HYDROXY_BACKBONE_CHAIN);
-      case SPHINGOLIPID_DI_HYDROXY_BACKBONE_CHAIN_FRAGMENT ->
-          findChainFragment(rule, lipidAnnotation, msMsScan,
-              LipidChainType.SPHINGOLIPID_DI_HYDROXY_BACKBONE_CHAIN);
-      case SPHINGOLIPID_TRI_HYDROXY_BACKBONE_CHAIN_FRAGMENT ->
-          findChainFragment(rule, lipidAnnotation, msMsScan,
-              LipidChainType.SPHINGOLIPID_TRI_HYDROXY_BACKBONE_CHAIN);
+      case SPHINGOLIPID_MONO_HYDROXY_BACKBONE_CHAIN_FRAGMENT -> addChainFragments(rule, fragments,
+          LipidChainType.SPHINGOLIPID_MONO_HYDROXY_BACKBONE_CHAIN);
+      case SPHINGOLIPID_DI_HYDROXY_BACKBONE_CHAIN_FRAGMENT -> addChainFragments(rule, fragments,
+          LipidChainType.SPHINGOLIPID_DI_HYDROXY_BACKBONE_CHAIN);
+      case SPHINGOLIPID_TRI_HYDROXY_BACKBONE_CHAIN_FRAGMENT -> addChainFragments(rule, fragments,
+          LipidChainType.SPHINGOLIPID_TRI_HYDROXY_BACKBONE_CHAIN);
       case SPHINGOLIPID_MONO_HYDROXY_BACKBONE_CHAIN_MINUS_FORMULA_FRAGMENT ->
-          findChainMinusFormulaFragment(rule, lipidAnnotation, msMsScan,
+          addChainMinusFormulaFragments(rule, fragments,
               LipidChainType.SPHINGOLIPID_MONO_HYDROXY_BACKBONE_CHAIN);
       case SPHINGOLIPID_DI_HYDROXY_BACKBONE_CHAIN_MINUS_FORMULA_FRAGMENT ->
-          findChainMinusFormulaFragment(rule, lipidAnnotation, msMsScan,
+          addChainMinusFormulaFragments(rule, fragments,
               LipidChainType.SPHINGOLIPID_DI_HYDROXY_BACKBONE_CHAIN);
       case SPHINGOLIPID_TRI_HYDROXY_BACKBONE_CHAIN_MINUS_FORMULA_FRAGMENT ->
-          findChainMinusFormulaFragment(rule, lipidAnnotation, msMsScan,
+          addChainMinusFormulaFragments(rule, fragments,
               LipidChainType.SPHINGOLIPID_TRI_HYDROXY_BACKBONE_CHAIN);
-    };
-  }
-
-  private List<LipidFragment> checkForOnlyPrecursor(LipidFragmentationRule rule,
-      ILipidAnnotation lipidAnnotation, Scan msMsScan) {
-    IMolecularFormula lipidFormula;
-    try {
-      lipidFormula = (IMolecularFormula) lipidAnnotation.getMolecularFormula().clone();
-    } catch (CloneNotSupportedException e) {
-      throw new RuntimeException(e);
     }
-    rule.getIonizationType().ionizeFormula(lipidFormula);
-    return findLipidFragmentFromIonFormula(rule, lipidAnnotation, msMsScan, lipidFormula);
   }
 
+  private void addPrecursor(LipidFragmentationRule rule, ILipidAnnotation lipidAnnotation,
+      List<TheoreticalFragment> fragments) {
+    IMolecularFormula lipidFormula = createIonizedLipidFormula(rule, lipidAnnotation);
+    String ionFormulaString = MolecularFormulaManipulator.getString(lipidFormula);
+    fragments.add(new TheoreticalFragment(rule, FormulaUtils.calculateMzRatio(ionFormulaString),
+        ionFormulaString, null, null, null, null));
+  }
 
-  private List<LipidFragment> checkForHeadgroupFragment(LipidFragmentationRule rule,
-      ILipidAnnotation lipidAnnotation, Scan msMsScan) {
+  private void addHeadgroupFragment(LipidFragmentationRule rule,
+      List<TheoreticalFragment> fragments) {
     String fragmentFormula = rule.getMolecularFormula();
-    return findLipidFragmentFromIonFormula(rule, lipidAnnotation, msMsScan, fragmentFormula);
+    fragments.add(new TheoreticalFragment(rule, FormulaUtils.calculateMzRatio(fragmentFormula),
+        fragmentFormula, null, null, null, null));
   }
 
-  private List<LipidFragment> checkForHeadgroupFragmentNL(LipidFragmentationRule rule,
-      ILipidAnnotation lipidAnnotation, Scan msMsScan) {
+  private void addHeadgroupFragmentNL(LipidFragmentationRule rule,
+      ILipidAnnotation lipidAnnotation, List<TheoreticalFragment> fragments) {
     IMolecularFormula formulaNL = FormulaUtils.createMajorIsotopeMolFormula(
         rule.getMolecularFormula());
-    IMolecularFormula lipidFormula;
-    try {
-      lipidFormula = (IMolecularFormula) lipidAnnotation.getMolecularFormula().clone();
-    } catch (CloneNotSupportedException e) {
-      throw new RuntimeException(e);
-    }
-    rule.getIonizationType().ionizeFormula(lipidFormula);
+    IMolecularFormula lipidFormula = createIonizedLipidFormula(rule, lipidAnnotation);
     IMolecularFormula fragmentFormula = FormulaUtils.subtractFormula(lipidFormula, formulaNL);
-    return findLipidFragmentFromIonFormula(rule, lipidAnnotation, msMsScan, fragmentFormula);
+    String ionFormulaString = MolecularFormulaManipulator.getString(fragmentFormula);
+    fragments.add(new TheoreticalFragment(rule, FormulaUtils.calculateMzRatio(ionFormulaString),
+        ionFormulaString, null, null, null, null));
   }
 
-  private List<LipidFragment> checkForAcylChainFragment(LipidFragmentationRule rule,
-      ILipidAnnotation lipidAnnotation, Scan msMsScan) {
+  private void addAcylChainFragments(LipidFragmentationRule rule,
+      List<TheoreticalFragment> fragments) {
     if (rule.getPolarityType().equals(PolarityType.NEGATIVE)) {
       List<ILipidChain> fattyAcylChains = LIPID_CHAIN_FACTORY.buildLipidChainsInRange(
           LipidChainType.ACYL_CHAIN, minChainLength, maxChainLength, minDoubleBonds, maxDoubleBonds,
           onlySearchForEvenChains);
-      List<LipidFragment> matchedFragments = new ArrayList<>();
       for (ILipidChain lipidChain : fattyAcylChains) {
         IMolecularFormula lipidChainFormula = lipidChain.getChainMolecularFormula();
         IonizationType.NEGATIVE_HYDROGEN.ionizeFormula(lipidChainFormula);
-        addMatchedChainFragment(rule, lipidAnnotation, msMsScan, matchedFragments, lipidChain,
-            lipidChainFormula);
+        addChainFragment(rule, fragments, lipidChain, lipidChainFormula);
       }
-      return matchedFragments;
-    }
-    return null;
-  }
-
-  @NotNull
-  private List<LipidFragment> findLipidFragmentFromIonFormula(LipidFragmentationRule rule,
-      ILipidAnnotation lipidAnnotation, Scan msMsScan, IMolecularFormula ionFormula) {
-    String ionFormulaString = MolecularFormulaManipulator.getString(ionFormula);
-    Double mzExact = FormulaUtils.calculateMzRatio(ionFormulaString);
-    BestDataPoint bestDataPoint = getBestDataPoint(mzExact);
-    if (bestDataPoint.fragmentMatched()) {
-      return List.of(new LipidFragment(rule.getLipidFragmentationRuleType(),
-          rule.getLipidFragmentInformationLevelType(), rule.getLipidFragmentationRuleRating(),
-          mzExact, ionFormulaString,
-          new SimpleDataPoint(bestDataPoint.mzValue(), bestDataPoint.intensity()),
-          lipidAnnotation.getLipidClass(), null, null, null, null, msMsScan));
-    } else {
-      return List.of();
     }
   }
 
-  @NotNull
-  private List<LipidFragment> findLipidFragmentFromIonFormula(LipidFragmentationRule rule,
-      ILipidAnnotation lipidAnnotation, Scan msMsScan, String ionFormula) {
-    Double mzExact = FormulaUtils.calculateMzRatio(ionFormula);
-    BestDataPoint bestDataPoint = getBestDataPoint(mzExact);
-    if (bestDataPoint.fragmentMatched()) {
-      return List.of(new LipidFragment(rule.getLipidFragmentationRuleType(),
-          rule.getLipidFragmentInformationLevelType(), rule.getLipidFragmentationRuleRating(),
-          mzExact, ionFormula,
-          new SimpleDataPoint(bestDataPoint.mzValue(), bestDataPoint.intensity()),
-          lipidAnnotation.getLipidClass(), null, null, null, null, msMsScan));
-    } else {
-      return List.of();
-    }
-  }
-
-  @NotNull
-  protected List<LipidFragment> findChainMinusFormulaFragment(LipidFragmentationRule rule,
-      ILipidAnnotation lipidAnnotation, Scan msMsScan, LipidChainType chainType) {
+  protected void addChainMinusFormulaFragments(LipidFragmentationRule rule,
+      List<TheoreticalFragment> fragments, LipidChainType chainType) {
     IMolecularFormula modificationFormula = FormulaUtils.createMajorIsotopeMolFormula(
         rule.getMolecularFormula());
     List<ILipidChain> chains = LIPID_CHAIN_FACTORY.buildLipidChainsInRange(chainType,
         minChainLength, maxChainLength, minDoubleBonds, maxDoubleBonds, onlySearchForEvenChains);
-    List<LipidFragment> matchedFragments = new ArrayList<>();
     for (ILipidChain lipidChain : chains) {
       IMolecularFormula lipidChainFormula = lipidChain.getChainMolecularFormula();
       IMolecularFormula fragmentFormula = FormulaUtils.subtractFormula(lipidChainFormula,
           modificationFormula);
       IMolecularFormula ionizedFragmentFormula = ionizeFragmentBasedOnPolarity(fragmentFormula,
           rule.getPolarityType());
-      addMatchedChainFragment(rule, lipidAnnotation, msMsScan, matchedFragments, lipidChain,
-          ionizedFragmentFormula);
+      addChainFragment(rule, fragments, lipidChain, ionizedFragmentFormula);
     }
-    return matchedFragments;
   }
 
-  private void addMatchedChainFragment(LipidFragmentationRule rule,
-      ILipidAnnotation lipidAnnotation, Scan msMsScan, List<LipidFragment> matchedFragments,
+  private void addChainFragment(LipidFragmentationRule rule, List<TheoreticalFragment> fragments,
       ILipidChain lipidChain, IMolecularFormula ionizedFragmentFormula) {
-    Double mzExact = FormulaUtils.calculateMzRatio(ionizedFragmentFormula);
-    BestDataPoint bestDataPoint = getBestDataPoint(mzExact);
-    if (bestDataPoint.fragmentMatched()) {
-      int chainLength = lipidChain.getNumberOfCarbons();
-      int numberOfDoubleBonds = lipidChain.getNumberOfDBEs();
-      matchedFragments.add(new LipidFragment(rule.getLipidFragmentationRuleType(),
-          rule.getLipidFragmentInformationLevelType(), rule.getLipidFragmentationRuleRating(),
-          mzExact, MolecularFormulaManipulator.getString(ionizedFragmentFormula),
-          new SimpleDataPoint(bestDataPoint.mzValue(), bestDataPoint.intensity()),
-          lipidAnnotation.getLipidClass(), chainLength, numberOfDoubleBonds,
-          lipidChain.getNumberOfOxygens(), lipidChain.getLipidChainType(), msMsScan));
-    }
+    double mzExact = FormulaUtils.calculateMzRatio(ionizedFragmentFormula);
+    fragments.add(new TheoreticalFragment(rule, mzExact,
+        MolecularFormulaManipulator.getString(ionizedFragmentFormula),
+        lipidChain.getNumberOfCarbons(), lipidChain.getNumberOfDBEs(),
+        lipidChain.getNumberOfOxygens(), lipidChain.getLipidChainType()));
   }
 
-  @NotNull
-  protected List<LipidFragment> findChainMinusFormulaFragmentNL(LipidFragmentationRule rule,
-      ILipidAnnotation lipidAnnotation, Scan msMsScan, LipidChainType chainType) {
+  protected void addChainMinusFormulaFragmentsNL(LipidFragmentationRule rule,
+      ILipidAnnotation lipidAnnotation, List<TheoreticalFragment> fragments,
+      LipidChainType chainType) {
     IMolecularFormula modificationFormula = FormulaUtils.createMajorIsotopeMolFormula(
         rule.getMolecularFormula());
     List<ILipidChain> chains = LIPID_CHAIN_FACTORY.buildLipidChainsInRange(chainType,
         minChainLength, maxChainLength, minDoubleBonds, maxDoubleBonds, onlySearchForEvenChains);
-    List<LipidFragment> matchedFragments = new ArrayList<>();
     for (ILipidChain lipidChain : chains) {
-      IMolecularFormula lipidFormula;
-      try {
-        lipidFormula = (IMolecularFormula) lipidAnnotation.getMolecularFormula().clone();
-      } catch (CloneNotSupportedException e) {
-        throw new RuntimeException(e);
-      }
-      rule.getIonizationType().ionizeFormula(lipidFormula);
+      IMolecularFormula lipidFormula = createIonizedLipidFormula(rule, lipidAnnotation);
       IMolecularFormula lipidChainFormula = lipidChain.getChainMolecularFormula();
       IMolecularFormula fragmentFormula = FormulaUtils.subtractFormula(lipidChainFormula,
           modificationFormula);
       IMolecularFormula lipidMinusFragmentFormula = FormulaUtils.subtractFormula(lipidFormula,
           fragmentFormula);
-      addMatchedChainFragment(rule, lipidAnnotation, msMsScan, matchedFragments, lipidChain,
-          lipidMinusFragmentFormula);
+      addChainFragment(rule, fragments, lipidChain, lipidMinusFragmentFormula);
     }
-    return matchedFragments;
   }
 
-  @NotNull
-  protected List<LipidFragment> findChainPlusFormulaFragment(LipidFragmentationRule rule,
-      ILipidAnnotation lipidAnnotation, Scan msMsScan, LipidChainType lipidChainType) {
+  protected void addChainPlusFormulaFragments(LipidFragmentationRule rule,
+      List<TheoreticalFragment> fragments, LipidChainType lipidChainType) {
     IMolecularFormula modificationFormula = FormulaUtils.createMajorIsotopeMolFormula(
         rule.getMolecularFormula());
     List<ILipidChain> chains = LIPID_CHAIN_FACTORY.buildLipidChainsInRange(lipidChainType,
         minChainLength, maxChainLength, minDoubleBonds, maxDoubleBonds, onlySearchForEvenChains);
-    List<LipidFragment> matchedFragments = new ArrayList<>();
     for (ILipidChain lipidChain : chains) {
       IMolecularFormula lipidChainFormula = lipidChain.getChainMolecularFormula();
       IMolecularFormula fragmentFormula = FormulaUtils.addFormula(lipidChainFormula,
           modificationFormula);
       IMolecularFormula ionizedFragmentFormula = ionizeFragmentBasedOnPolarity(fragmentFormula,
           rule.getPolarityType());
-      addMatchedChainFragment(rule, lipidAnnotation, msMsScan, matchedFragments, lipidChain,
-          ionizedFragmentFormula);
+      addChainFragment(rule, fragments, lipidChain, ionizedFragmentFormula);
     }
-    return matchedFragments;
   }
 
-  private List<LipidFragment> checkForTwoAcylChainsPlusFormulaFragment(LipidFragmentationRule rule,
-      ILipidAnnotation lipidAnnotation, Scan msMsScan) {
+  private void addTwoAcylChainsPlusFormulaFragments(LipidFragmentationRule rule,
+      List<TheoreticalFragment> fragments) {
     IMolecularFormula modificationFormula = FormulaUtils.createMajorIsotopeMolFormula(
         rule.getMolecularFormula());
     List<ILipidChain> combinedFattyAcylChains = LIPID_CHAIN_FACTORY.buildLipidChainsInRange(
         LipidChainType.ACYL_CHAIN, minChainLength * 2, maxChainLength * 2, minDoubleBonds * 2,
         maxDoubleBonds * 2, onlySearchForEvenChains);
-    List<LipidFragment> matchedFragments = new ArrayList<>();
     for (ILipidChain combinedFattyAcylChain : combinedFattyAcylChains) {
       IMolecularFormula combinedChainsFormula = combinedFattyAcylChain.getChainMolecularFormula();
       IMolecularFormula fragmentFormula = FormulaUtils.addFormula(combinedChainsFormula,
           modificationFormula);
       IMolecularFormula ionizedFragmentFormula = ionizeFragmentBasedOnPolarity(fragmentFormula,
           rule.getPolarityType());
-      Double mzExact = FormulaUtils.calculateMzRatio(ionizedFragmentFormula);
-      BestDataPoint bestDataPoint = getBestDataPoint(mzExact);
-      if (bestDataPoint.fragmentMatched()) {
-        matchedFragments.add(new LipidFragment(rule.getLipidFragmentationRuleType(),
-            rule.getLipidFragmentInformationLevelType(), rule.getLipidFragmentationRuleRating(),
-            mzExact, MolecularFormulaManipulator.getString(ionizedFragmentFormula),
-            new SimpleDataPoint(bestDataPoint.mzValue(), bestDataPoint.intensity()),
-            lipidAnnotation.getLipidClass(), combinedFattyAcylChain.getNumberOfCarbons(),
-            combinedFattyAcylChain.getNumberOfDBEs(), combinedFattyAcylChain.getNumberOfOxygens(),
-            LipidChainType.TWO_ACYL_CHAINS_COMBINED, msMsScan));
-      }
+      double mzExact = FormulaUtils.calculateMzRatio(ionizedFragmentFormula);
+      fragments.add(new TheoreticalFragment(rule, mzExact,
+          MolecularFormulaManipulator.getString(ionizedFragmentFormula),
+          combinedFattyAcylChain.getNumberOfCarbons(), combinedFattyAcylChain.getNumberOfDBEs(),
+          combinedFattyAcylChain.getNumberOfOxygens(), LipidChainType.TWO_ACYL_CHAINS_COMBINED));
     }
-    return matchedFragments;
   }
 
-  @NotNull
-  protected List<LipidFragment> findChainFragment(LipidFragmentationRule rule,
-      ILipidAnnotation lipidAnnotation, Scan msMsScan, LipidChainType lipidChainType) {
+  protected void addChainFragments(LipidFragmentationRule rule,
+      List<TheoreticalFragment> fragments, LipidChainType lipidChainType) {
     List<ILipidChain> chains = LIPID_CHAIN_FACTORY.buildLipidChainsInRange(lipidChainType,
         minChainLength, maxChainLength, minDoubleBonds, maxDoubleBonds, onlySearchForEvenChains);
-    List<LipidFragment> matchedFragments = new ArrayList<>();
     for (ILipidChain lipidChain : chains) {
       IMolecularFormula lipidChainFormula = lipidChain.getChainMolecularFormula();
       IMolecularFormula ionizedFragmentFormula = ionizeFragmentBasedOnPolarity(lipidChainFormula,
           rule.getPolarityType());
-      addMatchedChainFragment(rule, lipidAnnotation, msMsScan, matchedFragments, lipidChain,
-          ionizedFragmentFormula);
+      addChainFragment(rule, fragments, lipidChain, ionizedFragmentFormula);
     }
-    return matchedFragments;
   }
 
-  @NotNull
-  protected List<LipidFragment> findChainFragmentNL(LipidFragmentationRule rule,
-      ILipidAnnotation lipidAnnotation, Scan msMsScan, LipidChainType lipidChainType) {
+  protected void addChainFragmentsNL(LipidFragmentationRule rule,
+      ILipidAnnotation lipidAnnotation, List<TheoreticalFragment> fragments,
+      LipidChainType lipidChainType) {
     List<ILipidChain> chains = LIPID_CHAIN_FACTORY.buildLipidChainsInRange(lipidChainType,
         minChainLength, maxChainLength, minDoubleBonds, maxDoubleBonds, onlySearchForEvenChains);
-    List<LipidFragment> matchedFragments = new ArrayList<>();
     for (ILipidChain lipidChain : chains) {
-      IMolecularFormula lipidFormula;
-      try {
-        lipidFormula = (IMolecularFormula) lipidAnnotation.getMolecularFormula().clone();
-      } catch (CloneNotSupportedException e) {
-        throw new RuntimeException(e);
-      }
-      rule.getIonizationType().ionizeFormula(lipidFormula);
+      IMolecularFormula lipidFormula = createIonizedLipidFormula(rule, lipidAnnotation);
       IMolecularFormula lipidChainFormula = lipidChain.getChainMolecularFormula();
       IMolecularFormula fragmentFormula = FormulaUtils.subtractFormula(lipidFormula,
           lipidChainFormula);
-      addMatchedChainFragment(rule, lipidAnnotation, msMsScan, matchedFragments, lipidChain,
-          fragmentFormula);
+      addChainFragment(rule, fragments, lipidChain, fragmentFormula);
     }
-    return matchedFragments;
   }
 
-  @NotNull
-  protected List<LipidFragment> findChainPlusFormulaFragmentNL(LipidFragmentationRule rule,
-      ILipidAnnotation lipidAnnotation, Scan msMsScan, LipidChainType lipidChainType) {
+  protected void addChainPlusFormulaFragmentsNL(LipidFragmentationRule rule,
+      ILipidAnnotation lipidAnnotation, List<TheoreticalFragment> fragments,
+      LipidChainType lipidChainType) {
     IMolecularFormula modificationFormula = FormulaUtils.createMajorIsotopeMolFormula(
         rule.getMolecularFormula());
     List<ILipidChain> chains = LIPID_CHAIN_FACTORY.buildLipidChainsInRange(lipidChainType,
         minChainLength, maxChainLength, minDoubleBonds, maxDoubleBonds, onlySearchForEvenChains);
-    List<LipidFragment> matchedFragments = new ArrayList<>();
     for (ILipidChain lipidChain : chains) {
-      IMolecularFormula lipidFormula = null;
-      try {
-        lipidFormula = (IMolecularFormula) lipidAnnotation.getMolecularFormula().clone();
-      } catch (CloneNotSupportedException e) {
-        throw new RuntimeException(e);
-      }
-      rule.getIonizationType().ionizeFormula(lipidFormula);
+      IMolecularFormula lipidFormula = createIonizedLipidFormula(rule, lipidAnnotation);
       IMolecularFormula lipidChainFormula = lipidChain.getChainMolecularFormula();
       IMolecularFormula fragmentFormula = FormulaUtils.addFormula(lipidChainFormula,
           modificationFormula);
       IMolecularFormula lipidMinusFragmentFormula = FormulaUtils.subtractFormula(lipidFormula,
           fragmentFormula);
-      addMatchedChainFragment(rule, lipidAnnotation, msMsScan, matchedFragments, lipidChain,
-          lipidMinusFragmentFormula);
+      addChainFragment(rule, fragments, lipidChain, lipidMinusFragmentFormula);
     }
-    return matchedFragments;
+  }
+
+  @NotNull
+  private static IMolecularFormula createIonizedLipidFormula(LipidFragmentationRule rule,
+      ILipidAnnotation lipidAnnotation) {
+    IMolecularFormula lipidFormula;
+    try {
+      lipidFormula = (IMolecularFormula) lipidAnnotation.getMolecularFormula().clone();
+    } catch (CloneNotSupportedException e) {
+      throw new RuntimeException(e);
+    }
+    rule.getIonizationType().ionizeFormula(lipidFormula);
+    return lipidFormula;
   }
 
   protected IMolecularFormula ionizeFragmentBasedOnPolarity(IMolecularFormula formula,
@@ -441,39 +370,4 @@ public class LipidFragmentFactory implements ILipidFragmentFactory {
     return formula;
   }
 
-  @NotNull
-  protected BestDataPoint getBestDataPoint(Double mzExact) {
-    boolean fragmentMatched = false;
-    MassList massList = msMsScan.getMassList();
-    if (massList != null) {
-      Range<Double> toleranceRange = mzToleranceMS2.getToleranceRange(mzExact);
-      int index = massList.binarySearch(toleranceRange.lowerEndpoint(), DefaultTo.GREATER_EQUALS);
-      if (index < 0) {
-        return new BestDataPoint(fragmentMatched, 0.0, 0.0);
-      }
-      int numberOfDataPoints = massList.getNumberOfDataPoints();
-      double maxIntensity = 0.0;
-      double bestMzValue = 0.0;
-      for (int i = index; i < numberOfDataPoints; i++) {
-        double intensity = massList.getIntensityValue(i);
-        double mzValue = massList.getMzValue(i);
-        Range<Double> mzTolRangeMSMS = mzToleranceMS2.getToleranceRange(mzValue);
-        if (mzTolRangeMSMS.contains(mzExact) && intensity > maxIntensity) {
-          maxIntensity = intensity;
-          bestMzValue = mzValue;
-          fragmentMatched = true;
-        }
-        if (mzTolRangeMSMS.upperEndpoint() < mzValue) {
-          break;
-        }
-      }
-      return new BestDataPoint(fragmentMatched, bestMzValue, maxIntensity);
-    }
-    return new BestDataPoint(fragmentMatched, 0.0, 0.0);
-  }
-
-  protected record BestDataPoint(boolean fragmentMatched, double mzValue, double intensity) {
-
-  }
-
 }
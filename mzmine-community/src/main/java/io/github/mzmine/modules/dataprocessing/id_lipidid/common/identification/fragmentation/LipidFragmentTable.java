@@ -0,0 +1,188 @@
+/*
+ * Copyright (c) 2004-2025 The mzmine Development Team
+ *
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+
+package io.github.mzmine.modules.dataprocessing.id_lipidid.common.identification.fragmentation;
+
+import io.github.mzmine.datamodel.MassList;
+import io.github.mzmine.datamodel.Scan;
+import io.github.mzmine.datamodel.impl.SimpleDataPoint;
+import io.github.mzmine.modules.dataprocessing.id_lipidid.common.identification.LipidFragmentationRule;
+import io.github.mzmine.modules.dataprocessing.id_lipidid.common.lipids.ILipidClass;
+import io.github.mzmine.modules.dataprocessing.id_lipidid.common.lipids.LipidFragment;
+import io.github.mzmine.modules.dataprocessing.id_lipidid.common.lipids.lipidchain.LipidChainType;
+import io.github.mzmine.parameters.parametertypes.tolerances.MZTolerance;
+import io.github.mzmine.util.collections.BinarySearch.DefaultTo;
+import it.unimi.dsi.fastutil.ints.IntArrays;
+import java.util.ArrayList;
+import java.util.List;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * Theoretical MS/MS fragments of a single lipid ion. The table is independent of any scan and is
+ * created once by {@link LipidFragmentFactory#buildFragmentTable()}. The exact m/z values are kept
+ * sorted in a primitive array so that matching a mass list only needs one binary search per scan
+ * and a merge over both sorted lists.
+ */
+public final class LipidFragmentTable {
+
+  private final ILipidClass lipidClass;
+  /**
+   * sorted ascending
+   */
+  private final double[] mzs;
+  /**
+   * fragment at the same index as {@link #mzs}
+   */
+  private final TheoreticalFragment[] fragments;
+  /**
+   * index of the fragment in order of creation (rule order, then chain order). Used to report
+   * matches in the same order as they were generated.
+   */
+  private final int[] creationOrder;
+
+  LipidFragmentTable(@NotNull ILipidClass lipidClass,
+      @NotNull List<TheoreticalFragment> fragmentsInCreationOrder) {
+    this.lipidClass = lipidClass;
+    final int size = fragmentsInCreationOrder.size();
+    final double[] unsortedMzs = new double[size];
+    for (int i = 0; i < size; i++) {
+      unsortedMzs[i] = fragmentsInCreationOrder.get(i).mzExact();
+    }
+    final int[] order = new int[size];
+    for (int i = 0; i < size; i++) {
+      order[i] = i;
+    }
+    IntArrays.stableSort(order, (a, b) -> Double.compare(unsortedMzs[a], unsortedMzs[b]));
+
+    mzs = new double[size];
+    fragments = new TheoreticalFragment[size];
+    for (int i = 0; i < size; i++) {
+      mzs[i] = unsortedMzs[order[i]];
+      fragments[i] = fragmentsInCreationOrder.get(order[i]);
+    }
+    creationOrder = order;
+  }
+
+  /**
+   * @return number of theoretical fragments
+   */
+  public int size() {
+    return mzs.length;
+  }
+
+  /**
+   * @return the exact m/z of the theoretical fragment at the sorted index
+   */
+  public double getMz(int index) {
+    return mzs[index];
+  }
+
+  /**
+   * Matches all theoretical fragments against the mass list of the scan. For each fragment the
+   * most intense signal within the tolerance is used.
+   *
+   * @return the matched fragments in order of creation. Empty if the scan has no mass list.
+   */
+  @NotNull
+  public List<LipidFragment> findFragments(@NotNull Scan msMsScan,
+      @NotNull MZTolerance mzToleranceMS2) {
+    final MassList massList = msMsScan.getMassList();
+    if (massList == null || mzs.length == 0) {
+      return List.of();
+    }
+    final int numberOfDataPoints = massList.getNumberOfDataPoints();
+
+    LipidFragment[] matched = null;
+    int start = 0;
+    for (int f = 0; f < mzs.length; f++) {
+      final double mzExact = mzs[f];
+      // fragments are sorted, so the lower edge of the tolerance window only moves upwards
+      final double lowerEdge = mzExact - mzToleranceMS2.getMzToleranceForMass(mzExact);
+      start = massList.binarySearch(lowerEdge, DefaultTo.GREATER_EQUALS, start,
+          numberOfDataPoints);
+      if (start < 0) {
+        break;
+      }
+
+      double maxIntensity = 0.0;
+      double bestMzValue = 0.0;
+      boolean fragmentMatched = false;
+      for (int i = start; i < numberOfDataPoints; i++) {
+        final double mzValue = massList.getMzValue(i);
+        final double tolerance = mzToleranceMS2.getMzToleranceForMass(mzValue);
+        if (mzValue - tolerance > mzExact) {
+          // the tolerance windows of all following signals start above the exact mass
+          break;
+        }
+        final double intensity = massList.getIntensityValue(i);
+        if (mzExact <= mzValue + tolerance && intensity > maxIntensity) {
+          maxIntensity = intensity;
+          bestMzValue = mzValue;
+          fragmentMatched = true;
+        }
+      }
+
+      if (fragmentMatched) {
+        if (matched == null) {
+          matched = new LipidFragment[mzs.length];
+        }
+        matched[creationOrder[f]] = fragments[f].toLipidFragment(lipidClass,
+            new SimpleDataPoint(bestMzValue, maxIntensity), msMsScan);
+      }
+    }
+
+    if (matched == null) {
+      return List.of();
+    }
+    final List<LipidFragment> result = new ArrayList<>();
+    for (LipidFragment fragment : matched) {
+      if (fragment != null) {
+        result.add(fragment);
+      }
+    }
+    return result;
+  }
+
+  /**
+   * A theoretical fragment of a lipid ion. Chain values are null for fragments without chain
+   * information.
+   */
+  record TheoreticalFragment(@NotNull LipidFragmentationRule rule, double mzExact,
+                             @NotNull String ionFormula, @Nullable Integer chainLength,
+                             @Nullable Integer numberOfDBEs, @Nullable Integer numberOfOxygens,
+                             @Nullable LipidChainType chainType) {
+
+    @NotNull
+    LipidFragment toLipidFragment(@NotNull ILipidClass lipidClass,
+        @NotNull SimpleDataPoint dataPoint, @NotNull Scan msMsScan) {
+      return new LipidFragment(rule.getLipidFragmentationRuleType(),
+          rule.getLipidFragmentInformationLevelType(), rule.getLipidFragmentationRuleRating(),
+          mzExact, ionFormula, dataPoint, lipidClass, chainLength, numberOfDBEs, numberOfOxygens,
+          chainType, msMsScan);
+    }
+  }
+
+}
@@ -0,0 +1,492 @@
+/*
+ * Copyright (c) 2004-2025 The mzmine Development Team
+ *
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+
+package io.github.mzmine.modules.dataprocessing.id_localcsvsearch;
+
+import io.github.mzmine.datamodel.identities.iontype.IonType;
+import io.github.mzmine.gui.preferences.MZminePreferences;
+import io.github.mzmine.main.ConfigService;
+import io.github.mzmine.modules.dataprocessing.id_ion_identity_networking.ionidnetworking.IonNetworkLibrary;
+import io.github.mzmine.parameters.parametertypes.ImportType;
+import io.github.mzmine.parameters.parametertypes.tolerances.MZTolerance;
+import io.github.mzmine.util.files.FileAndPathUtil;
+import it.unimi.dsi.fastutil.ints.IntArrays;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.FileTime;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.stream.Stream;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * Compiled form of a local compound database. Every csv line is expanded into one entry per adduct
+ * of the ion library (or a single entry with the precursor m/z of the line) and all entries are
+ * sorted by m/z in primitive arrays. RT and mobility are kept for pre-filtering, {@link Float#NaN}
+ * marks a wildcard that matches every row.
+ * <p>
+ * Compiling requires the neutral mass of every line, which often means parsing formulas or smiles.
+ * The compiled arrays are therefore cached on disk, keyed by a checksum of the database file and
+ * the settings that influence the m/z values. The cache is bounded in number of entries and size
+ * and can be disabled in the {@link MZminePreferences}.
+ */
+final class CompiledCompoundDatabase {
+
+  private static final Logger logger = Logger.getLogger(CompiledCompoundDatabase.class.getName());
+
+  public static final String FILE_EXTENSION = "cdbindex";
+  public static final String CACHE_DIRECTORY_NAME = "compound_db_index_cache";
+
+  /**
+   * Ion index of entries that use the precursor m/z of the csv line without an ion library
+   */
+  public static final int NO_ION = -1;
+
+  private static final long MAGIC = 0x4d5a434442494458L; // MZCDBIDX
+  private static final int VERSION = 1;
+  /**
+   * Only the most recently used entries are kept in the cache directory, in addition to the size
+   * limit
+   */
+  private static final int MAX_CACHED_ENTRIES = 16;
+  private static final double WINDOW_PADDING = 1.000001;
+
+  private final int numLines;
+  private final double[] mzs;
+  private final int[] lines;
+  private final int[] ions;
+  private final float[] rts;
+  private final float[] mobilities;
+
+  private CompiledCompoundDatabase(int numLines, double[] mzs, int[] lines, int[] ions,
+      float[] rts, float[] mobilities) {
+    this.numLines = numLines;
+    this.mzs = mzs;
+    this.lines = lines;
+    this.ions = ions;
+    this.rts = rts;
+    this.mobilities = mobilities;
+  }
+
+  /**
+   * Sorts the entries by m/z. Entries with the same m/z keep their order.
+   *
+   * @param numLines   number of csv lines including the header, used to validate cached entries
+   * @param mzs        m/z of each entry
+   * @param lines      csv line of each entry
+   * @param ions       index of the adduct in {@link IonNetworkLibrary#getAllAdducts()} or
+   *                   {@link #NO_ION}
+   * @param rts        retention time or NaN as wildcard
+   * @param mobilities mobility or NaN as wildcard
+   */
+  @NotNull
+  public static CompiledCompoundDatabase of(int numLines, double[] mzs, int[] lines, int[] ions,
+      float[] rts, float[] mobilities) {
+    final int n = mzs.length;
+    if (lines.length != n || ions.length != n || rts.length != n || mobilities.length != n) {
+      throw new IllegalArgumentException("Compound database arrays differ in length");
+    }
+    final int[] order = new int[n];
+    for (int i = 0; i < n; i++) {
+      order[i] = i;
+    }
+    IntArrays.parallelQuickSort(order, (a, b) -> {
+      final int c = Double.compare(mzs[a], mzs[b]);
+      return c != 0 ? c : Integer.compare(a, b);
+    });
+
+    final double[] sortedMzs = new double[n];
+    final int[] sortedLines = new int[n];
+    final int[] sortedIons = new int[n];
+    final float[] sortedRts = new float[n];
+    final float[] sortedMobilities = new float[n];
+    for (int i = 0; i < n; i++) {
+      final int e = order[i];
+      sortedMzs[i] = mzs[e];
+      sortedLines[i] = lines[e];
+      sortedIons[i] = ions[e];
+      sortedRts[i] = rts[e];
+      sortedMobilities[i] = mobilities[e];
+    }
+    return new CompiledCompoundDatabase(numLines, sortedMzs, sortedLines, sortedIons, sortedRts,
+        sortedMobilities);
+  }
+
+  public int size() {
+    return mzs.length;
+  }
+
+  public int getNumberOfLines() {
+    return numLines;
+  }
+
+  public double getMz(int entry) {
+    return mzs[entry];
+  }
+
+  public int getLine(int entry) {
+    return lines[entry];
+  }
+
+  public int getIon(int entry) {
+    return ions[entry];
+  }
+
+  /**
+   * @return the retention time or NaN if the entry matches all retention times
+   */
+  public float getRT(int entry) {
+    return rts[entry];
+  }
+
+  /**
+   * @return the mobility or NaN if the entry matches all mobilities
+   */
+  public float getMobility(int entry) {
+    return mobilities[entry];
+  }
+
+  /**
+   * Compares entries in csv order: by line and then by the adduct order of the ion library
+   */
+  public int compareCsvOrder(int entryA, int entryB) {
+    final int c = Integer.compare(lines[entryA], lines[entryB]);
+    return c != 0 ? c : Integer.compare(ions[entryA], ions[entryB]);
+  }
+
+  /**
+   * Sort-merge join of a range of ascending m/z values with the database entries. An entry matches
+   * if the m/z is within the tolerance around the m/z of the entry. The database pointer only moves
+   * forward, so a chunk of n values and m candidate entries is joined in O(log N + n + m).
+   *
+   * @param sortedMzs ascending m/z values, e.g., of feature list rows
+   * @param from      first index (inclusive)
+   * @param to        last index (exclusive)
+   * @param consumer  receives the index of the value and the matching database entry
+   */
+  public void joinSortedMzs(double[] sortedMzs, int from, int to,
+      @NotNull MZTolerance mzTolerance, @NotNull MatchConsumer consumer) {
+    if (from >= to || mzs.length == 0) {
+      return;
+    }
+    // the window is padded to be safe against rounding, entries are checked exactly
+    final double ppm = mzTolerance.getPpmTolerance() * 1E-6 * WINDOW_PADDING;
+    final double absolute = mzTolerance.getMzTolerance() * WINDOW_PADDING;
+    int start = lowerBound(
+        sortedMzs[from] - mzTolerance.getMzToleranceForMass(sortedMzs[from]) * WINDOW_PADDING);
+    for (int i = from; i < to; i++) {
+      final double mz = sortedMzs[i];
+      // the tolerance grows with the entry m/z - entries below mz are within mz - tol(mz)
+      final double lower = mz - mzTolerance.getMzToleranceForMass(mz) * WINDOW_PADDING;
+      final double upper = Math.max(mz + absolute,
+          ppm < 1 ? mz / (1 - ppm) : Double.POSITIVE_INFINITY);
+      while (start < mzs.length && mzs[start] < lower) {
+        start++;
+      }
+      for (int e = start; e < mzs.length && mzs[e] <= upper; e++) {
+        // same bounds as the tolerance range around the entry
+        final double tolerance = mzTolerance.getMzToleranceForMass(mzs[e]);
+        if (mz >= mzs[e] - tolerance && mz <= mzs[e] + tolerance) {
+          consumer.accept(i, e);
+        }
+      }
+    }
+  }
+
+  /**
+   * @return the index of the first entry with an m/z >= mz
+   */
+  int lowerBound(double mz) {
+    int low = 0;
+    int high = mzs.length;
+    while (low < high) {
+      final int mid = (low + high) >>> 1;
+      if (mzs[mid] < mz) {
+        low = mid + 1;
+      } else {
+        high = mid;
+      }
+    }
+    return low;
+  }
+
+  /**
+   * @return the default cache directory in the mzmine user directory
+   */
+  @NotNull
+  public static Path getDefaultCacheDirectory() {
+    return FileAndPathUtil.resolveInMzmineDir(CACHE_DIRECTORY_NAME).toPath();
+  }
+
+  /**
+   * @return the maximum size of the cache directory in bytes or null if the cache is disabled in
+   * the {@link MZminePreferences}
+   */
+  @Nullable
+  public static Long getMaxCacheBytes() {
+    final MZminePreferences preferences = ConfigService.getPreferences();
+    if (preferences == null || !preferences.getValue(MZminePreferences.compoundDatabaseCache)) {
+      return null;
+    }
+    final Integer sizeMB = preferences.getEmbeddedParameterValue(
+        MZminePreferences.compoundDatabaseCache);
+    if (sizeMB == null || sizeMB <= 0) {
+      return null;
+    }
+    return sizeMB * 1024L * 1024L;
+  }
+
+  /**
+   * @param databaseFile the csv database
+   * @param separator    the field separator
+   * @param columns      the imported columns
+   * @param ionLibrary   the ion library to expand each line or null to use the precursor m/z
+   * @return the cache key or null if the file cannot be read
+   */
+  @Nullable
+  public static String createKey(@NotNull File databaseFile, @NotNull String separator,
+      @NotNull List<ImportType> columns, @Nullable IonNetworkLibrary ionLibrary) {
+    final MessageDigest settings = sha256();
+    settings.update(separator.getBytes(StandardCharsets.UTF_8));
+    for (ImportType column : columns) {
+      settings.update((column.isSelected() + ":" + column.getCsvColumnName() + ":"
+          + column.getDataType().getUniqueID() + ";").getBytes(StandardCharsets.UTF_8));
+    }
+    if (ionLibrary != null) {
+      // the adduct order defines the ion index of the entries
+      for (IonType adduct : ionLibrary.getAllAdducts()) {
+        settings.update((adduct.toString(true) + ";").getBytes(StandardCharsets.UTF_8));
+      }
+    }
+
+    try {
+      return checksum(databaseFile) + "_" + HexFormat.of().formatHex(settings.digest(), 0, 16);
+    } catch (IOException e) {
+      logger.log(Level.FINE,
+          "Cannot create compound database cache key for " + databaseFile + ": " + e.getMessage(),
+          e);
+      return null;
+    }
+  }
+
+  /**
+   * Checksum over the full content of the file
+   */
+  static String checksum(@NotNull File file) throws IOException {
+    final MessageDigest digest = sha256();
+    final byte[] buffer = new byte[1 << 16];
+    try (InputStream in = Files.newInputStream(file.toPath())) {
+      int read;
+      while ((read = in.read(buffer)) != -1) {
+        digest.update(buffer, 0, read);
+      }
+    }
+    return HexFormat.of().formatHex(digest.digest(), 0, 16);
+  }
+
+  /**
+   * @param numLines the number of csv lines including the header
+   * @return the cached index or null if there is no valid entry for this key
+   */
+  @Nullable
+  public static CompiledCompoundDatabase readCache(@NotNull Path directory, @NotNull String key,
+      int numLines) {
+    final Path file = directory.resolve(key + "." + FILE_EXTENSION);
+    if (!Files.isRegularFile(file)) {
+      return null;
+    }
+    try (var in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file)))) {
+      final long magic = in.readLong();
+      final int version = in.readInt();
+      final int cachedLines = in.readInt();
+      final int n = in.readInt();
+      if (magic != MAGIC || version != VERSION || cachedLines != numLines || n < 0) {
+        logger.fine(() -> "Invalid compound database cache entry " + file);
+        return null;
+      }
+
+      final double[] mzs = new double[n];
+      final int[] lines = new int[n];
+      final int[] ions = new int[n];
+      final float[] rts = new float[n];
+      final float[] mobilities = new float[n];
+      for (int i = 0; i < n; i++) {
+        mzs[i] = in.readDouble();
+      }
+      for (int i = 0; i < n; i++) {
+        lines[i] = in.readInt();
+      }
+      for (int i = 0; i < n; i++) {
+        ions[i] = in.readInt();
+      }
+      for (int i = 0; i < n; i++) {
+        rts[i] = in.readFloat();
+      }
+      for (int i = 0; i < n; i++) {
+        mobilities[i] = in.readFloat();
+      }
+
+      // mark as recently used for the eviction
+      Files.setLastModifiedTime(file, FileTime.from(Instant.now()));
+      return new CompiledCompoundDatabase(numLines, mzs, lines, ions, rts, mobilities);
+    } catch (IOException | RuntimeException e) {
+      logger.log(Level.WARNING,
+          "Cannot read compound database cache entry " + file + ": " + e.getMessage(), e);
+      return null;
+    }
+  }
+
+  /**
+   * Writes this index to a temporary file that replaces the cache entry once complete. Errors are
+   * logged and only discard the entry.
+   *
+   * @param maxBytes the maximum size of the cache directory, least recently used entries are
+   *                 evicted after writing
+   */
+  public void writeCache(@NotNull Path directory, @NotNull String key, long maxBytes) {
+    Path tempFile = null;
+    try {
+      Files.createDirectories(directory);
+      tempFile = Files.createTempFile(directory, key, ".tmp");
+      try (var out = new DataOutputStream(
+          new BufferedOutputStream(Files.newOutputStream(tempFile)))) {
+        out.writeLong(MAGIC);
+        out.writeInt(VERSION);
+        out.writeInt(numLines);
+        out.writeInt(mzs.length);
+        for (double mz : mzs) {
+          out.writeDouble(mz);
+        }
+        for (int line : lines) {
+          out.writeInt(line);
+        }
+        for (int ion : ions) {
+          out.writeInt(ion);
+        }
+        for (float rt : rts) {
+          out.writeFloat(rt);
+        }
+        for (float mobility : mobilities) {
+          out.writeFloat(mobility);
+        }
+      }
+      Files.move(tempFile, directory.resolve(key + "." + FILE_EXTENSION),
+          StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    } catch (IOException e) {
+      logger.log(Level.WARNING,
+          "Cannot write compound database cache " + directory + ": " + e.getMessage(), e);
+      if (tempFile != null) {
+        try {
+          Files.deleteIfExists(tempFile);
+        } catch (IOException ex) {
+          logger.log(Level.FINE, "Cannot delete temporary file " + tempFile, ex);
+        }
+      }
+      return;
+    }
+    evict(directory, maxBytes);
+  }
+
+  /**
+   * Deletes the least recently used entries until at most {@link #MAX_CACHED_ENTRIES} entries
+   * remain and the cache fits into maxBytes
+   */
+  static void evict(@NotNull Path directory, long maxBytes) {
+    final List<Path> entries;
+    try (Stream<Path> stream = Files.list(directory)) {
+      entries = stream.filter(p -> p.getFileName().toString().endsWith("." + FILE_EXTENSION))
+          .sorted(Comparator.comparingLong(CompiledCompoundDatabase::lastModified).reversed())
+          .toList();
+    } catch (IOException e) {
+      logger.log(Level.WARNING, "Cannot list compound database cache " + directory, e);
+      return;
+    }
+    // keep the most recently used entries that fit into the limits
+    final List<Path> evicted = new ArrayList<>();
+    long total = 0;
+    for (int i = 0; i < entries.size(); i++) {
+      final Path entry = entries.get(i);
+      total += sizeOf(entry);
+      if (i >= MAX_CACHED_ENTRIES || total > maxBytes) {
+        evicted.add(entry);
+      }
+    }
+    for (Path entry : evicted) {
+      try {
+        Files.deleteIfExists(entry);
+        logger.fine(() -> "Evicted compound database cache entry " + entry);
+      } catch (IOException e) {
+        logger.log(Level.FINE, "Cannot evict compound database cache entry " + entry, e);
+      }
+    }
+  }
+
+  private static long sizeOf(Path file) {
+    try {
+      return Files.size(file);
+    } catch (IOException e) {
+      return 0;
+    }
+  }
+
+  private static long lastModified(Path file) {
+    try {
+      return Files.getLastModifiedTime(file).toMillis();
+    } catch (IOException e) {
+      return 0;
+    }
+  }
+
+  private static MessageDigest sha256() {
+    try {
+      return MessageDigest.getInstance("SHA-256");
+    } catch (NoSuchAlgorithmException e) {
+      throw new IllegalStateException("SHA-256 is not available", e);
+    }
+  }
+
+  @FunctionalInterface
+  interface MatchConsumer {
+
+    void accept(int index, int entry);
+  }
+}
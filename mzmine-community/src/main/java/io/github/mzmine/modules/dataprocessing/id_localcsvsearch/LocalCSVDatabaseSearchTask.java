@@ -25,11 +25,11 @@
 
 package io.github.mzmine.modules.dataprocessing.id_localcsvsearch;
 
-import com.google.common.collect.Range;
 import io.github.mzmine.datamodel.RawDataFile;
 import io.github.mzmine.datamodel.features.FeatureList;
 import io.github.mzmine.datamodel.features.FeatureListRow;
 import io.github.mzmine.datamodel.features.SimpleFeatureListAppliedMethod;
+import io.github.mzmine.datamodel.features.compoundannotations.CannotDetermineMassException;
 import io.github.mzmine.datamodel.features.compoundannotations.CompoundDBAnnotation;
 import io.github.mzmine.datamodel.features.compoundannotations.SimpleCompoundDBAnnotation;
 import io.github.mzmine.datamodel.features.types.DataType;
@@ -55,6 +55,7 @@ import io.github.mzmine.datamodel.features.types.numbers.MobilityType;
 import io.github.mzmine.datamodel.features.types.numbers.NeutralMassType;
 import io.github.mzmine.datamodel.features.types.numbers.PrecursorMZType;
 import io.github.mzmine.datamodel.features.types.numbers.RTType;
+import io.github.mzmine.datamodel.identities.iontype.IonType;
 import io.github.mzmine.datamodel.identities.iontype.IonTypeParser;
 import io.github.mzmine.modules.dataprocessing.id_ion_identity_networking.ionidnetworking.IonNetworkLibrary;
 import io.github.mzmine.parameters.ParameterSet;
@@ -66,25 +67,28 @@ import io.github.mzmine.parameters.parametertypes.tolerances.mobilitytolerance.M
 import io.github.mzmine.taskcontrol.AbstractTask;
 import io.github.mzmine.taskcontrol.TaskStatus;
 import io.github.mzmine.util.CSVParsingUtils;
-import io.github.mzmine.util.FeatureListRowSorter;
-import io.github.mzmine.util.FeatureListUtils;
+import it.unimi.dsi.fastutil.ints.IntArrayList;
+import it.unimi.dsi.fastutil.ints.IntArrays;
 import java.io.File;
 import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
 import java.time.Instant;
 import java.util.ArrayList;
 import java.util.Arrays;
-import java.util.Collection;
+import java.util.Comparator;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 import java.util.stream.Collectors;
 import java.util.stream.IntStream;
 import javafx.beans.property.SimpleStringProperty;
 import javafx.beans.property.StringProperty;
-import javafx.collections.transformation.SortedList;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
@@ -92,6 +96,11 @@ public class LocalCSVDatabaseSearchTask extends AbstractTask {
 
   private static final Logger logger = Logger.getLogger(LocalCSVDatabaseSearchTask.class.getName());
 
+  /**
+   * Number of m/z sorted rows that are joined with the compound database by one thread
+   */
+  private static final int JOIN_CHUNK_SIZE = 2048;
+
   // all data types that we need
   private final FormulaType formulaType = DataTypes.get(FormulaType.class);
   private final CompoundNameType compoundNameType = DataTypes.get(CompoundNameType.class);
@@ -140,12 +149,18 @@ public class LocalCSVDatabaseSearchTask extends AbstractTask {
   private final IonLibraryParameterSet ionLibraryParameterSet;
   private final Boolean filterSamples;
   private final String sampleHeader;
-  private final List<RawDataFile> allRawDataFiles;
   private IonNetworkLibrary ionNetworkLibrary;
+  private List<IonType> adducts = List.of();
 
   private List<String[]> databaseValues;
-  private int finishedLines = 0;
+  private final AtomicInteger compiledLines = new AtomicInteger(0);
+  private final AtomicLong joinedRows = new AtomicLong(0);
+  private long totalRows = 0;
   private int sampleColIndex = -1;
+  /**
+   * Annotations of database entries that matched at least one row, shared by all feature lists
+   */
+  private final Map<Integer, CompoundDBAnnotation> entryAnnotations = new ConcurrentHashMap<>();
 
   LocalCSVDatabaseSearchTask(FeatureList[] featureLists, ParameterSet parameters,
       @NotNull Instant moduleCallDate) {
@@ -171,9 +186,6 @@ public class LocalCSVDatabaseSearchTask extends AbstractTask {
         LocalCSVDatabaseSearchParameters.ionLibrary).getEmbeddedParameters() : null;
     filterSamples = parameters.getValue(LocalCSVDatabaseSearchParameters.filterSamples);
 
-    // all raw data files for a name check if selected
-    allRawDataFiles = Arrays.stream(featureLists).map(FeatureList::getRawDataFiles)
-        .flatMap(Collection::stream).distinct().toList();
     sampleHeader = parameters.getParameter(LocalCSVDatabaseSearchParameters.filterSamples)
         .getEmbeddedParameter().getValue();
 
@@ -208,7 +220,10 @@ public class LocalCSVDatabaseSearchTask extends AbstractTask {
     if (databaseValues == null) {
       return 0;
     }
-    return ((double) finishedLines) / databaseValues.size();
+    // first half compiles the database index, second half joins the rows
+    final double compiled = ((double) compiledLines.get()) / databaseValues.size();
+    final double joined = totalRows == 0 ? 0 : ((double) joinedRows.get()) / totalRows;
+    return 0.5 * compiled + 0.5 * joined;
   }
 
   @Override
@@ -237,6 +252,7 @@ public class LocalCSVDatabaseSearchTask extends AbstractTask {
       ionNetworkLibrary =
           ionLibraryParameterSet != null ? new IonNetworkLibrary(ionLibraryParameterSet,
               mzTolerance) : null;
+      adducts = ionNetworkLibrary != null ? ionNetworkLibrary.getAllAdducts() : List.of();
 
       final StringProperty error = new SimpleStringProperty();
       final List<ImportType> lineIds = CSVParsingUtils.findLineIds(importTypes,
@@ -262,41 +278,18 @@ public class LocalCSVDatabaseSearchTask extends AbstractTask {
         }
       }
 
-      // extract rows and sort by mz for binary search
-      var mzSortedRows = Arrays.stream(featureLists)
-          .map(flist -> flist.getRows().sorted(FeatureListRowSorter.MZ_ASCENDING)).toList();
+      // adduct expanded m/z values of all lines sorted for the join
+      final CompiledCompoundDatabase index = loadOrCompileIndex(lineIds);
+      if (isCanceled()) {
+        return;
+      }
 
-      for (String[] currentLine : databaseValues) {
-        if (finishedLines == 0) {
-          finishedLines++;
-          continue; // skip header
-        }
+      totalRows = Arrays.stream(featureLists).mapToLong(FeatureList::getNumberOfRows).sum();
+      for (final FeatureList flist : featureLists) {
+        annotateFeatureList(flist, index, lineIds, commentFields);
         if (isCanceled()) {
           return;
         }
-        try {
-          // check already once for all raw data files
-          if (filterSamples && !matchSample(allRawDataFiles, currentLine[sampleColIndex])) {
-            // sample mismatch for this line
-            continue;
-          }
-
-          processOneLine(mzSortedRows, currentLine, lineIds, commentFields);
-        } catch (Exception e) {
-          logger.log(Level.FINE, "Exception while processing csv line " + finishedLines, e);
-        }
-        finishedLines++;
-      }
-
-      for (final SortedList<FeatureListRow> flist : mzSortedRows) {
-        for (final FeatureListRow row : flist) {
-          var matches = row.getCompoundAnnotations().stream().sorted()
-              .collect(Collectors.toCollection(ArrayList::new));
-          if (matches.isEmpty()) {
-            continue;
-          }
-          row.setCompoundAnnotations(matches);
-        }
       }
       if (isotopePatternMatcherParameters != null) {
         for (FeatureList flist : featureLists) {
@@ -357,91 +350,235 @@ public class LocalCSVDatabaseSearchTask extends AbstractTask {
   }
 
   /**
-   * @param mzSortedRows     rows per feature list sorted by mz
-   * @param values           csv values to be parsed into annotation
-   * @param linesWithIndices columns
-   * @param commentFields    comment fields that are put together into the comment
+   * Reads the compiled database index from the cache or compiles and caches it. The index is
+   * compiled without caching if the cache is disabled in the preferences.
    */
-  @SuppressWarnings("ResultOfMethodCallIgnored")
-  private void processOneLine(final List<SortedList<FeatureListRow>> mzSortedRows,
-      @NotNull String[] values, @NotNull List<ImportType> linesWithIndices,
-      @NotNull final List<ImportType> commentFields) {
+  @NotNull
+  private CompiledCompoundDatabase loadOrCompileIndex(@NotNull List<ImportType> lineIds) {
+    final Long maxCacheBytes = CompiledCompoundDatabase.getMaxCacheBytes();
+    if (maxCacheBytes == null) {
+      return compileIndex(lineIds);
+    }
 
-    final List<CompoundDBAnnotation> annotations = getCompoundDBAnnotations(values,
-        linesWithIndices, commentFields);
+    final Path cacheDirectory = CompiledCompoundDatabase.getDefaultCacheDirectory();
+    final String key = CompiledCompoundDatabase.createKey(dataBaseFile, fieldSeparator,
+        importTypes, ionNetworkLibrary);
+    if (key != null) {
+      final CompiledCompoundDatabase cached = CompiledCompoundDatabase.readCache(cacheDirectory,
+          key, databaseValues.size());
+      if (cached != null) {
+        logger.fine(() -> "Using cached compound database index for " + dataBaseFile);
+        compiledLines.set(databaseValues.size());
+        return cached;
+      }
+    }
 
-    IntStream indexStream = IntStream.range(0, featureLists.length);
-    if (featureLists.length > 1000) {
-      indexStream.parallel();
+    final CompiledCompoundDatabase index = compileIndex(lineIds);
+    if (key != null && !isCanceled()) {
+      index.writeCache(cacheDirectory, key, maxCacheBytes);
     }
-    // not all feature lists have all samples
-    indexStream.forEach(i -> {
-      var rawFiles = featureLists[i].getRawDataFiles();
-      //  if active, check sample name contains id - this time for the feature list
-      if (!filterSamples || matchSample(rawFiles, values[sampleColIndex])) {
-        var sortedRows = mzSortedRows.get(i);
-
-        for (CompoundDBAnnotation annotation : annotations) {
-          List<FeatureListRow> candidates = binarySearchCandidates(sortedRows, annotation);
-
-          for (FeatureListRow row : candidates) {
-            checkMatchAndAnnotate(annotation, row, mzTolerance, rtTolerance, mobTolerance,
-                ccsTolerance);
-          }
-        }
+    return index;
+  }
+
+  /**
+   * Expands all csv lines by the adducts of the ion library and sorts them by m/z. The neutral
+   * mass is only calculated once per line.
+   */
+  @NotNull
+  private CompiledCompoundDatabase compileIndex(@NotNull List<ImportType> lineIds) {
+    final int numLines = databaseValues.size();
+    final CompiledLine[] compiled = new CompiledLine[numLines];
+    // skip header
+    compiledLines.set(1);
+    IntStream.range(1, numLines).parallel().forEach(line -> {
+      if (isCanceled()) {
+        return;
       }
+      try {
+        compiled[line] = compileLine(databaseValues.get(line), lineIds);
+      } catch (Exception e) {
+        logger.log(Level.FINE, "Exception while processing csv line " + line, e);
+      }
+      compiledLines.incrementAndGet();
     });
+
+    final int numEntries = Arrays.stream(compiled).filter(Objects::nonNull)
+        .mapToInt(c -> c.mzs().length).sum();
+    final double[] mzs = new double[numEntries];
+    final int[] lines = new int[numEntries];
+    final int[] ions = new int[numEntries];
+    final float[] rts = new float[numEntries];
+    final float[] mobilities = new float[numEntries];
+    int entry = 0;
+    for (int line = 1; line < numLines; line++) {
+      final CompiledLine c = compiled[line];
+      if (c == null) {
+        continue;
+      }
+      for (int i = 0; i < c.mzs().length; i++) {
+        mzs[entry] = c.mzs()[i];
+        lines[entry] = line;
+        ions[entry] = c.ions()[i];
+        rts[entry] = c.rt();
+        mobilities[entry] = c.mobility();
+        entry++;
+      }
+    }
+    return CompiledCompoundDatabase.of(numLines, mzs, lines, ions, rts, mobilities);
   }
 
-  @NotNull
-  private List<FeatureListRow> binarySearchCandidates(final SortedList<FeatureListRow> mzSortedRows,
-      final CompoundDBAnnotation annotation) {
-    // ranges are build with prechecks - so if there is no mobility use Range.all() to deactivate the filter
-    Double mz = annotation.getPrecursorMZ();
-    assert mz != null;
-    final Float rt = annotation.getRT();
-    final Float mobility = annotation.getMobility();
-    var mzRange = mzTolerance.getToleranceRange(mz);
-    Range<Float> rtRange =
-        rtTolerance != null && rt != null ? rtTolerance.getToleranceRange(rt) : Range.all();
-    Range<Float> mobilityRange =
-        mobTolerance != null && mobility != null ? mobTolerance.getToleranceRange(mobility)
-            : Range.all();
-
-    // get all canditates with binary search
-    // CCS is still missing here but will be tested later
-    return FeatureListUtils.getCandidatesWithinRanges(mzRange, rtRange, mobilityRange, mzSortedRows,
-        true);
+  /**
+   * @return the m/z values of the line or null if the line has no m/z and cannot be ionized
+   */
+  @Nullable
+  private CompiledLine compileLine(@NotNull String[] values, @NotNull List<ImportType> lineIds) {
+    // comments are only needed for matched lines
+    final CompoundDBAnnotation base = getCompoundFromLine(values, lineIds, List.of());
+    final float rt = Objects.requireNonNullElse(base.getRT(), Float.NaN);
+    final float mobility = Objects.requireNonNullElse(base.getMobility(), Float.NaN);
+
+    if (ionNetworkLibrary == null) {
+      final Double mz = base.getPrecursorMZ();
+      return mz == null ? null
+          : new CompiledLine(new double[]{mz}, new int[]{CompiledCompoundDatabase.NO_ION}, rt,
+              mobility);
+    }
+
+    final IntArrayList ions = new IntArrayList(adducts.size());
+    final double[] mzs = new double[adducts.size()];
+    for (int i = 0; i < adducts.size(); i++) {
+      final IonType adduct = adducts.get(i);
+      if (!CompoundDBAnnotation.isDefinedAdduct(adduct)) {
+        continue;
+      }
+      try {
+        // keeps the neutral mass in the base annotation for the next adduct
+        mzs[ions.size()] = base.calcMzForAdduct(adduct);
+        ions.add(i);
+      } catch (IllegalStateException e) {
+        // do not log the full stack trace as this is expected in many cases
+        logger.log(Level.WARNING, e.getMessage());
+      }
+    }
+    return ions.isEmpty() ? null
+        : new CompiledLine(Arrays.copyOf(mzs, ions.size()), ions.toIntArray(), rt, mobility);
   }
 
-  @NotNull
-  private List<CompoundDBAnnotation> getCompoundDBAnnotations(final @NotNull String[] values,
-      final @NotNull List<ImportType> linesWithIndices,
-      final @NotNull List<ImportType> commentFields) {
-    final CompoundDBAnnotation baseAnnotation = getCompoundFromLine(values, linesWithIndices,
-        commentFields);
-    baseAnnotation.put(databaseType, dataBaseFile.getName());
-    final List<CompoundDBAnnotation> annotations = new ArrayList<>();
-    if (ionNetworkLibrary != null) {
-      annotations.addAll(
-          CompoundDBAnnotation.buildCompoundsWithAdducts(baseAnnotation, ionNetworkLibrary));
-    } else {
-      annotations.add(baseAnnotation);
+  /**
+   * Sort-merge join of the m/z sorted rows with the compound database index. Chunks of rows are
+   * joined in parallel and every row is only annotated by the thread of its chunk. RT and mobility
+   * are pre-filtered on the primitive index values before the annotation of a database entry is
+   * created and checked with CCS.
+   */
+  private void annotateFeatureList(@NotNull FeatureList flist,
+      @NotNull CompiledCompoundDatabase index, @NotNull List<ImportType> lineIds,
+      @NotNull List<ImportType> commentFields) {
+    final List<RawDataFile> rawFiles = flist.getRawDataFiles();
+    final FeatureListRow[] rows = flist.getRows().stream().filter(r -> r.getAverageMZ() != null)
+        .sorted(Comparator.comparingDouble(FeatureListRow::getAverageMZ))
+        .toArray(FeatureListRow[]::new);
+    final double[] rowMzs = new double[rows.length];
+    final float[] rowRts = new float[rows.length];
+    final float[] rowMobilities = new float[rows.length];
+    for (int i = 0; i < rows.length; i++) {
+      rowMzs[i] = rows[i].getAverageMZ();
+      rowRts[i] = Objects.requireNonNullElse(rows[i].getAverageRT(), Float.NaN);
+      rowMobilities[i] = Objects.requireNonNullElse(rows[i].getAverageMobility(), Float.NaN);
     }
-    return annotations;
+    joinedRows.addAndGet(flist.getNumberOfRows() - rows.length);
+
+    final int numChunks = (rows.length + JOIN_CHUNK_SIZE - 1) / JOIN_CHUNK_SIZE;
+    IntStream.range(0, numChunks).parallel().forEach(chunk -> {
+      if (isCanceled()) {
+        return;
+      }
+      final int from = chunk * JOIN_CHUNK_SIZE;
+      final int to = Math.min(from + JOIN_CHUNK_SIZE, rows.length);
+      final IntArrayList[] hits = new IntArrayList[to - from];
+      index.joinSortedMzs(rowMzs, from, to, mzTolerance, (i, entry) -> {
+        if (matchesRtAndMobility(index, entry, rowRts[i], rowMobilities[i])) {
+          if (hits[i - from] == null) {
+            hits[i - from] = new IntArrayList();
+          }
+          hits[i - from].add(entry);
+        }
+      });
+
+      for (int i = from; i < to; i++) {
+        final IntArrayList rowHits = hits[i - from];
+        if (rowHits != null) {
+          annotateRow(rows[i], rowHits, index, rawFiles, lineIds, commentFields);
+        }
+      }
+      joinedRows.addAndGet(to - from);
+    });
   }
 
-  private void checkMatchAndAnnotate(CompoundDBAnnotation annotation, FeatureListRow row,
-      MZTolerance mzTolerance, RTTolerance rtTolerance, MobilityTolerance mobTolerance,
-      Double percCcsTolerance) {
+  /**
+   * Same semantics as the previous tolerance box: missing values in the row or wildcards in the
+   * database match everything
+   */
+  private boolean matchesRtAndMobility(@NotNull CompiledCompoundDatabase index, int entry,
+      float rowRt, float rowMobility) {
+    final float rt = index.getRT(entry);
+    if (rtTolerance != null && !Float.isNaN(rt) && !Float.isNaN(rowRt)
+        && !rtTolerance.getToleranceRange(rt).contains(rowRt)) {
+      return false;
+    }
+    final float mobility = index.getMobility(entry);
+    return mobTolerance == null || Float.isNaN(mobility) || Float.isNaN(rowMobility)
+           || mobTolerance.getToleranceRange(mobility).contains(rowMobility);
+  }
+
+  /**
+   * Checks all candidate entries in csv order, so that equal scores keep the order of the database
+   * file, and sets the sorted annotations.
+   */
+  private void annotateRow(@NotNull FeatureListRow row, @NotNull IntArrayList entries,
+      @NotNull CompiledCompoundDatabase index, @NotNull List<RawDataFile> rawFiles,
+      @NotNull List<ImportType> lineIds, @NotNull List<ImportType> commentFields) {
+    IntArrays.quickSort(entries.elements(), 0, entries.size(), index::compareCsvOrder);
+
+    final List<CompoundDBAnnotation> matches = new ArrayList<>(row.getCompoundAnnotations());
+    final int previousMatches = matches.size();
+    for (int i = 0; i < entries.size(); i++) {
+      final int entry = entries.getInt(i);
+      final String[] values = databaseValues.get(index.getLine(entry));
+      try {
+        //  if active, check sample name contains id - this time for the feature list
+        if (filterSamples && !matchSample(rawFiles, values[sampleColIndex])) {
+          continue;
+        }
+        final CompoundDBAnnotation annotation = entryAnnotations.computeIfAbsent(entry,
+            _ -> createAnnotation(index, entry, lineIds, commentFields));
+        final CompoundDBAnnotation clone = annotation.checkMatchAndCalculateDeviation(row,
+            mzTolerance, rtTolerance, mobTolerance, ccsTolerance);
+        if (clone != null) {
+          matches.add(clone);
+        }
+      } catch (Exception e) {
+        logger.log(Level.FINE, "Exception while processing csv line " + index.getLine(entry), e);
+      }
+    }
 
-    final CompoundDBAnnotation clone = annotation.checkMatchAndCalculateDeviation(row, mzTolerance,
-        rtTolerance, mobTolerance, percCcsTolerance);
-    if (clone != null) {
-      row.addCompoundAnnotation(clone);
+    if (matches.size() > previousMatches) {
+      matches.sort(null);
+      row.setCompoundAnnotations(matches);
     }
   }
 
+  @NotNull
+  private CompoundDBAnnotation createAnnotation(@NotNull CompiledCompoundDatabase index,
+      int entry, @NotNull List<ImportType> lineIds, @NotNull List<ImportType> commentFields)
+      throws CannotDetermineMassException {
+    final CompoundDBAnnotation baseAnnotation = getCompoundFromLine(
+        databaseValues.get(index.getLine(entry)), lineIds, commentFields);
+    baseAnnotation.put(databaseType, dataBaseFile.getName());
+    final int ion = index.getIon(entry);
+    return ion == CompiledCompoundDatabase.NO_ION ? baseAnnotation
+        : baseAnnotation.ionize(adducts.get(ion));
+  }
+
   @NotNull
   private CompoundDBAnnotation getCompoundFromLine(@NotNull String[] values,
       @NotNull List<ImportType> linesWithIndices, @NotNull final List<ImportType> commentFields) {
@@ -533,4 +670,13 @@ public class LocalCSVDatabaseSearchTask extends AbstractTask {
       r.run();
     }
   }
+
+  /**
+   * Adduct expanded m/z values of one csv line
+   *
+   * @param ions index of each adduct in the ion library or {@link CompiledCompoundDatabase#NO_ION}
+   */
+  private record CompiledLine(double[] mzs, int[] ions, float rt, float mobility) {
+
+  }
 }
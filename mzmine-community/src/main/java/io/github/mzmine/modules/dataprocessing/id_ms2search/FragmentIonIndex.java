@@ -0,0 +1,151 @@
+/*
+ * Copyright (c) 2004-2025 The mzmine Development Team
+ *
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+
+package io.github.mzmine.modules.dataprocessing.id_ms2search;
+
+import it.unimi.dsi.fastutil.ints.IntArrayList;
+import it.unimi.dsi.fastutil.ints.IntArrays;
+import java.util.Arrays;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * Inverted index of binned fragment m/z values to the spectra that contain them. The postings are
+ * stored in compressed sparse rows: sorted unique bins, their offsets and the ascending spectrum
+ * indices of each bin.
+ */
+class FragmentIonIndex {
+
+  private final double binWidth;
+  private final int numSpectra;
+  private final long[] bins;
+  private final int[] offsets;
+  private final int[] spectra;
+
+  /**
+   * @param fragmentMzs fragment m/z values of each spectrum, null for spectra without fragments
+   * @param binWidth    the bin width, should be at least the largest tolerance of a query, so
+   *                    that each fragment is only looked up in few bins
+   */
+  FragmentIonIndex(@Nullable double[][] fragmentMzs, double binWidth) {
+    if (!(binWidth > 0)) {
+      throw new IllegalArgumentException("Bin width must be positive");
+    }
+    this.binWidth = binWidth;
+    numSpectra = fragmentMzs.length;
+
+    int numFragments = 0;
+    for (double[] mzs : fragmentMzs) {
+      numFragments += mzs == null ? 0 : mzs.length;
+    }
+    // bin in the upper and spectrum in the lower 32 bits to sort by bin and then spectrum
+    final long[] keys = new long[numFragments];
+    int k = 0;
+    for (int s = 0; s < fragmentMzs.length; s++) {
+      if (fragmentMzs[s] == null) {
+        continue;
+      }
+      for (double mz : fragmentMzs[s]) {
+        keys[k++] = (bin(mz) << 32) | s;
+      }
+    }
+    Arrays.parallelSort(keys);
+
+    final long[] uniqueBins = new long[numFragments];
+    final int[] binOffsets = new int[numFragments + 1];
+    final int[] postings = new int[numFragments];
+    int numBins = 0;
+    int numPostings = 0;
+    long lastKey = -1;
+    for (long key : keys) {
+      if (key == lastKey) {
+        // same fragment bin in one spectrum
+        continue;
+      }
+      lastKey = key;
+      final long bin = key >>> 32;
+      if (numBins == 0 || uniqueBins[numBins - 1] != bin) {
+        uniqueBins[numBins] = bin;
+        binOffsets[numBins] = numPostings;
+        numBins++;
+      }
+      postings[numPostings++] = (int) key;
+    }
+    binOffsets[numBins] = numPostings;
+
+    bins = Arrays.copyOf(uniqueBins, numBins);
+    offsets = Arrays.copyOf(binOffsets, numBins + 1);
+    spectra = Arrays.copyOf(postings, numPostings);
+  }
+
+  private long bin(double mz) {
+    return Math.max(0, (long) Math.floor(mz / binWidth));
+  }
+
+  int getNumberOfSpectra() {
+    return numSpectra;
+  }
+
+  /**
+   * Collects all spectra that contain a fragment in the bins overlapping the tolerance window of
+   * any query fragment. This is a superset of the spectra that share a fragment within the
+   * tolerance.
+   *
+   * @param queryMzs     ascending fragment m/z values of the query
+   * @param ppmTolerance relative tolerance around each query fragment
+   * @return the ascending unique spectrum indices
+   */
+  @NotNull
+  IntArrayList findCandidates(@NotNull double[] queryMzs, double ppmTolerance) {
+    final IntArrayList candidates = new IntArrayList();
+    int binIndex = 0;
+    for (double mz : queryMzs) {
+      final double tolerance = mz * 1e-6 * ppmTolerance;
+      final long first = bin(mz - tolerance);
+      final long last = bin(mz + tolerance);
+      // query fragments are sorted, so the bin pointer only moves forward
+      while (binIndex < bins.length && bins[binIndex] < first) {
+        binIndex++;
+      }
+      for (int b = binIndex; b < bins.length && bins[b] <= last; b++) {
+        candidates.addElements(candidates.size(), spectra, offsets[b], offsets[b + 1] - offsets[b]);
+      }
+    }
+
+    if (candidates.isEmpty()) {
+      return candidates;
+    }
+    IntArrays.quickSort(candidates.elements(), 0, candidates.size());
+    int unique = 1;
+    final int[] elements = candidates.elements();
+    for (int i = 1; i < candidates.size(); i++) {
+      if (elements[i] != elements[unique - 1]) {
+        elements[unique++] = elements[i];
+      }
+    }
+    candidates.size(unique);
+    return candidates;
+  }
+}
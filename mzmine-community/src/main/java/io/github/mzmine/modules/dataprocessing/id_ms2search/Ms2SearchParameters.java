@@ -30,6 +30,7 @@ import io.github.mzmine.parameters.impl.IonMobilitySupport;
 import io.github.mzmine.parameters.impl.SimpleParameterSet;
 import io.github.mzmine.parameters.parametertypes.DoubleParameter;
 import io.github.mzmine.parameters.parametertypes.IntegerParameter;
+import io.github.mzmine.parameters.parametertypes.OptionalParameter;
 import io.github.mzmine.parameters.parametertypes.selectors.FeatureListsParameter;
 import io.github.mzmine.parameters.parametertypes.tolerances.MZToleranceParameter;
 import org.jetbrains.annotations.NotNull;
@@ -45,6 +46,11 @@ public class Ms2SearchParameters extends SimpleParameterSet {
 
   public static final MZToleranceParameter mzTolerance = new MZToleranceParameter();
 
+  public static final OptionalParameter<MZToleranceParameter> precursorMzTolerance = new OptionalParameter<>(
+      new MZToleranceParameter("Precursor m/z tolerance",
+          "If enabled, only rows with an average m/z within this tolerance are compared."),
+      false);
+
   public static final DoubleParameter intensityThreshold = new DoubleParameter(
       "Minimum MS2 ion intensity", "Minimum ion intensity to consider in MS2 comparison");
 
@@ -56,8 +62,8 @@ public class Ms2SearchParameters extends SimpleParameterSet {
       "Minimum spectral match score to report", "Minimum MS2 comparison score to report");
 
   public Ms2SearchParameters() {
-    super(new Parameter[]{peakList1, peakList2, mzTolerance, intensityThreshold,
-        minimumIonsMatched, scoreThreshold},
+    super(new Parameter[]{peakList1, peakList2, mzTolerance, precursorMzTolerance,
+        intensityThreshold, minimumIonsMatched, scoreThreshold},
         "https://mzmine.github.io/mzmine_documentation/module_docs/id_ms2_similarity/ms2-similarity-search.html");
   }
 
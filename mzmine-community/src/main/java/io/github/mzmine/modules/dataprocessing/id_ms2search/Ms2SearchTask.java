@@ -37,22 +37,36 @@ import io.github.mzmine.parameters.ParameterSet;
 import io.github.mzmine.parameters.parametertypes.tolerances.MZTolerance;
 import io.github.mzmine.taskcontrol.AbstractTask;
 import io.github.mzmine.taskcontrol.TaskStatus;
+import it.unimi.dsi.fastutil.ints.IntArrayList;
+import it.unimi.dsi.fastutil.ints.IntArrays;
 import java.time.Instant;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.logging.Logger;
+import java.util.stream.IntStream;
 import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
 
 
 class Ms2SearchTask extends AbstractTask {
 
+  /**
+   * Lower limit for the fragment bin width of the inverted index
+   */
+  private static final double MIN_BIN_WIDTH = 0.001;
+
   private Logger logger = Logger.getLogger(this.getClass().getName());
 
-  private int finishedRows, totalRows;
+  private final AtomicInteger finishedRows = new AtomicInteger(0);
+  private int totalRows;
   private FeatureList peakList1;
   private FeatureList peakList2;
 
   private MZTolerance mzTolerance;
+  @Nullable
+  private MZTolerance precursorMzTolerance;
   private ParameterSet parameters;
   private double scoreThreshold;
   private double intensityThreshold;
@@ -69,6 +83,8 @@ class Ms2SearchTask extends AbstractTask {
     this.parameters = parameters;
 
     mzTolerance = parameters.getParameter(Ms2SearchParameters.mzTolerance).getValue();
+    precursorMzTolerance = parameters.getEmbeddedParameterValueIfSelectedOrElse(
+        Ms2SearchParameters.precursorMzTolerance, null);
 
     scoreThreshold = parameters.getParameter(Ms2SearchParameters.scoreThreshold).getValue();
 
@@ -84,7 +100,7 @@ class Ms2SearchTask extends AbstractTask {
   public double getFinishedPercentage() {
     if (totalRows == 0)
       return 0;
-    return ((double) finishedRows) / totalRows;
+    return ((double) finishedRows.get()) / totalRows;
   }
 
   /**
@@ -106,7 +122,6 @@ class Ms2SearchTask extends AbstractTask {
     logger.info("Starting MS2 similarity search between " + peakList1 + " and " + peakList2
         + " with mz tolerance:" + mzTolerance.getPpmTolerance());
 
-    Ms2SearchResult searchResult;
     FeatureListRow rows1[] = peakList1.getRows().toArray(FeatureListRow[]::new);
     FeatureListRow rows2[] = peakList2.getRows().toArray(FeatureListRow[]::new);
 
@@ -115,29 +130,52 @@ class Ms2SearchTask extends AbstractTask {
 
     totalRows = rows1Length;
 
-    for (int i = 0; i < rows1Length; i++) {
-      for (int j = 0; j < rows2Length; j++) {
-        Feature featureA = rows1[i].getBestFeature();
-        Feature featureB = rows2[j].getBestFeature();
-        // Complication. The "best" peak, may not have the "best"
-        // fragmentation
-        Scan scanA = rows1[i].getMostIntenseFragmentScan();
-        Scan scanB = rows2[j].getMostIntenseFragmentScan();
+    // centroided fragment ions of the most intense fragment scan of each row
+    final DataPoint[][] ions1 = getFragmentIons(rows1);
+    final DataPoint[][] ions2 = ions1 == null ? null : getFragmentIons(rows2);
+    if (ions2 == null) {
+      return;
+    }
 
-        searchResult =
-            simpleMS2similarity(scanA, scanB, intensityThreshold, mzTolerance);
+    // pairs without a shared fragment have a score of 0 and no matched ions
+    final boolean requireSharedFragment = minimumIonsMatched > 0 || scoreThreshold >= 0;
+    final FragmentIonIndex fragmentIndex = requireSharedFragment ? createIndex(ions2) : null;
+    final PrecursorWindow precursorWindow =
+        precursorMzTolerance != null ? new PrecursorWindow(rows2) : null;
 
-        // Report the final score to the peaklist identity
-        if (searchResult != null && searchResult.getScore() > scoreThreshold
-            && searchResult.getNumIonsMatched() >= minimumIonsMatched)
-          this.addMS2Identity(rows1[i], featureA, featureB, searchResult);
+    IntStream.range(0, rows1Length).parallel().forEach(i -> {
+      if (isCanceled() || ions1[i] == null) {
+        finishedRows.incrementAndGet();
+        return;
+      }
+      final IntArrayList candidates = findCandidates(rows1[i], ions1[i], rows2Length,
+          fragmentIndex, precursorWindow);
+
+      // candidates are ascending, identities are added in the order of list 2
+      for (int c = 0; c < candidates.size(); c++) {
+        final int j = candidates.getInt(c);
+        if (ions2[j] == null) {
+          continue;
+        }
+        Ms2SearchResult searchResult = simpleMS2similarity(ions1[i], ions2[j],
+            intensityThreshold, mzTolerance);
 
-        if (isCanceled())
-          return;
+        // Report the final score to the peaklist identity
+        if (searchResult.getScore() > scoreThreshold
+            && searchResult.getNumIonsMatched() >= minimumIonsMatched) {
+          // Complication. The "best" peak, may not have the "best"
+          // fragmentation
+          this.addMS2Identity(rows1[i], rows1[i].getBestFeature(), rows2[j].getBestFeature(),
+              searchResult);
+        }
       }
 
       // Update progress bar
-      finishedRows++;
+      finishedRows.incrementAndGet();
+    });
+
+    if (isCanceled()) {
+      return;
     }
 
     // Add task description to peakList
@@ -151,61 +189,99 @@ class Ms2SearchTask extends AbstractTask {
 
   }
 
-  private Ms2SearchResult simpleMS2similarity(Scan scanMS2A, Scan scanMS2B,
-      double intensityThreshold, MZTolerance mzRange) {
-
-    double runningScoreTotal = 0.0;
-    double mzRangePPM = mzRange.getPpmTolerance();
-
-    List<DataPoint> matchedIons = new ArrayList<DataPoint>();
+  /**
+   * @return the mass list data points of the most intense fragment scan of each row, null for rows
+   * without fragment scan or ions. Null if a fragment scan has no mass list.
+   */
+  @Nullable
+  private DataPoint[][] getFragmentIons(FeatureListRow[] rows) {
+    final DataPoint[][] ions = new DataPoint[rows.length][];
+    for (int i = 0; i < rows.length; i++) {
+      final Scan scan = rows[i].getMostIntenseFragmentScan();
+      if (scan == null) {
+        continue;
+      }
 
-    // Fetch 1st feature MS2 scan.
-    // int ms2ScanNumberA = featureA.getMostIntenseFragmentScanNumber();
-    // Scan scanMS2A = featureA.getDataFile().getScan(ms2ScanNumberA);
+      // Fetch centroided data
+      final MassList massList = scan.getMassList();
+      if (massList == null) {
+        setStatus(TaskStatus.ERROR);
+        setErrorMessage("Scan " + scan.getDataFile().getName() + " #" + scan.getScanNumber()
+            + " does not have a mass list");
+        return null;
+      }
+      final DataPoint[] dataPoints = massList.getDataPoints();
+      if (dataPoints != null && dataPoints.length > 0) {
+        ions[i] = dataPoints;
+      }
+    }
+    return ions;
+  }
 
-    // Fetch 2nd feature MS2 scan.
-    // int ms2ScanNumberB = featureB.getMostIntenseFragmentScanNumber();
-    // Scan scanMS2B = featureB.getDataFile().getScan(ms2ScanNumberB);
+  /**
+   * Bins are as wide as the fragment tolerance at the highest fragment m/z, so that every query
+   * fragment is looked up in at most three bins.
+   */
+  private FragmentIonIndex createIndex(DataPoint[][] ions) {
+    double maxMz = 0;
+    final double[][] fragmentMzs = new double[ions.length][];
+    for (int j = 0; j < ions.length; j++) {
+      if (ions[j] != null) {
+        fragmentMzs[j] = toMzs(ions[j]);
+        maxMz = Math.max(maxMz, fragmentMzs[j][fragmentMzs[j].length - 1]);
+      }
+    }
+    final double binWidth = Math.max(MIN_BIN_WIDTH,
+        maxMz * 1e-6 * mzTolerance.getPpmTolerance());
+    return new FragmentIonIndex(fragmentMzs, binWidth);
+  }
 
-    if (scanMS2A == null || scanMS2B == null) {
-      return null;
+  /**
+   * @return ascending indices of rows in list 2 that share a fragment bin with the query and are
+   * within the precursor window if selected
+   */
+  private IntArrayList findCandidates(FeatureListRow row, DataPoint[] ions, int rows2Length,
+      @Nullable FragmentIonIndex fragmentIndex, @Nullable PrecursorWindow precursorWindow) {
+    final Double precursorMz = row.getAverageMZ();
+    if (precursorWindow != null && precursorMz == null) {
+      return new IntArrayList();
     }
 
-    // Fetch centroided data
-    MassList massListA = scanMS2A.getMassList();
-    MassList massListB = scanMS2B.getMassList();
-
-    if (massListA == null) {
-      // Will this work properly? As this function isn't directly the
-      // task?
-      setStatus(TaskStatus.ERROR);
-      setErrorMessage("Scan " + scanMS2A.getDataFile().getName() + " #" + scanMS2A.getScanNumber()
-          + " does not have a mass list");
-      return null;
+    if (fragmentIndex != null) {
+      final IntArrayList candidates = fragmentIndex.findCandidates(toMzs(ions),
+          mzTolerance.getPpmTolerance());
+      if (precursorWindow == null) {
+        return candidates;
+      }
+      final IntArrayList withinWindow = new IntArrayList(candidates.size());
+      for (int c = 0; c < candidates.size(); c++) {
+        if (precursorWindow.matches(precursorMz, candidates.getInt(c))) {
+          withinWindow.add(candidates.getInt(c));
+        }
+      }
+      return withinWindow;
+    }
+    if (precursorWindow != null) {
+      return precursorWindow.findWithin(precursorMz);
     }
+    return IntArrayList.wrap(IntStream.range(0, rows2Length).toArray());
+  }
 
-    if (massListB == null) {
-      // Will this work properly? As this function isn't directly the
-      // task?
-      setStatus(TaskStatus.ERROR);
-      setErrorMessage("Scan " + scanMS2B.getDataFile().getName() + " #" + scanMS2B.getScanNumber()
-          + " does not have a mass list");
-      return null;
+  private static double[] toMzs(DataPoint[] dataPoints) {
+    final double[] mzs = new double[dataPoints.length];
+    for (int i = 0; i < dataPoints.length; i++) {
+      mzs[i] = dataPoints[i].getMZ();
     }
+    return mzs;
+  }
 
-    DataPoint[] ionsA = null;
-    DataPoint[] ionsB = null;
+  private Ms2SearchResult simpleMS2similarity(DataPoint[] ionsA, DataPoint[] ionsB,
+      double intensityThreshold, MZTolerance mzRange) {
 
-    ionsA = massListA.getDataPoints();
-    ionsB = massListB.getDataPoints();
+    double runningScoreTotal = 0.0;
+    double mzRangePPM = mzRange.getPpmTolerance();
 
-    if (ionsA == null || ionsB == null || ionsA.length == 0 || ionsB.length == 0) {
-      // Fall back to profile data?
-      // Profile / raw data.
-      // ionsA = scanMS2A.getDataPointsOverIntensity(intensityThreshold);
-      // ionsB = scanMS2B.getDataPointsOverIntensity(intensityThreshold);
-      return null;
-    }
+    List<DataPoint> matchedIons = new ArrayList<DataPoint>();
 
     // Compare every ion peak in MS2 scan A, to every ion peak in MS2 scan
     // B.
@@ -248,4 +324,50 @@ class Ms2SearchTask extends AbstractTask {
     Ms2Identity newIdentity = new Ms2Identity(featureA, featureB, searchResult);
     row1.addFeatureIdentity(newIdentity, false);
   }
+
+  /**
+   * Window join on the average m/z of the rows in list 2
+   */
+  private class PrecursorWindow {
+
+    private final double[] precursorMzs;
+    private final int[] sortedRows;
+    private final double[] sortedMzs;
+
+    private PrecursorWindow(FeatureListRow[] rows) {
+      precursorMzs = new double[rows.length];
+      for (int j = 0; j < rows.length; j++) {
+        final Double mz = rows[j].getAverageMZ();
+        precursorMzs[j] = mz != null ? mz : Double.NaN;
+      }
+      sortedRows = IntStream.range(0, rows.length).filter(j -> !Double.isNaN(precursorMzs[j]))
+          .toArray();
+      IntArrays.quickSort(sortedRows, (a, b) -> Double.compare(precursorMzs[a], precursorMzs[b]));
+      sortedMzs = Arrays.stream(sortedRows).mapToDouble(j -> precursorMzs[j]).toArray();
+    }
+
+    private boolean matches(double precursorMz, int row) {
+      return !Double.isNaN(precursorMzs[row]) && precursorMzTolerance.getToleranceRange(
+          precursorMz).contains(precursorMzs[row]);
+    }
+
+    /**
+     * @return ascending indices of all rows within the precursor tolerance
+     */
+    private IntArrayList findWithin(double precursorMz) {
+      final double tolerance = precursorMzTolerance.getMzToleranceForMass(precursorMz);
+      int from = Arrays.binarySearch(sortedMzs, precursorMz - tolerance);
+      from = from < 0 ? -from - 1 : from;
+      // binary search may hit any of equal values
+      while (from > 0 && sortedMzs[from - 1] >= precursorMz - tolerance) {
+        from--;
+      }
+      final IntArrayList rows = new IntArrayList();
+      for (int k = from; k < sortedMzs.length && sortedMzs[k] <= precursorMz + tolerance; k++) {
+        rows.add(sortedRows[k]);
+      }
+      IntArrays.quickSort(rows.elements(), 0, rows.size());
+      return rows;
+    }
+  }
 }
@@ -61,8 +61,14 @@ public class AdvancedSpectralLibrarySearchParameters extends SimpleParameterSet
           "Useful for scans and libraries with isotope pattern. Minimum matched signals of 13C isotopes, distance of H and 2H or Cl isotopes. Can not be applied with deisotoping",
           3, 0, 1000), false);
 
+  public static final BooleanParameter fragmentIndexPrefilter = new BooleanParameter(
+      "Fragment index prefilter",
+      "Uses an index of all library fragment signals to skip library spectra that cannot reach the minimum matched signals or the minimum score. Results are the same, turn off only to compare the speed.",
+      true);
+
   public AdvancedSpectralLibrarySearchParameters() {
-    super(rtTolerance, ccsTolerance, deisotoping, needsIsotopePattern, cropSpectraToOverlap);
+    super(rtTolerance, ccsTolerance, deisotoping, needsIsotopePattern, cropSpectraToOverlap,
+        fragmentIndexPrefilter);
   }
 
 
@@ -0,0 +1,238 @@
+/*
+ * Copyright (c) 2004-2025 The mzmine Development Team
+ *
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+
+package io.github.mzmine.modules.dataprocessing.id_spectral_library_match;
+
+import io.github.mzmine.datamodel.DataPoint;
+import io.github.mzmine.parameters.parametertypes.tolerances.MZTolerance;
+import io.github.mzmine.util.collections.IndexRange;
+import io.github.mzmine.util.scans.similarity.SpectralSimilarityFunction;
+import io.github.mzmine.util.scans.similarity.Weights;
+import io.github.mzmine.util.spectraldb.entry.SpectralLibraryEntry;
+import it.unimi.dsi.fastutil.ints.IntArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * Inverted index from binned fragment m/z to library entries. Used as a prefilter before the full
+ * spectral similarity: counts the query signals that have any library signal within the m/z
+ * tolerance and skips entries that cannot reach the minimum number of matched signals or the
+ * minimum score of the {@link SpectralSimilarityFunction}. The counts are upper bounds of the
+ * aligned signals, so no match is lost. Library signals removed later (deisotoping, precursor
+ * removal) only lower the real overlap. Signals are stored as float and the m/z window is widened
+ * accordingly, which may only add candidates.
+ * <p>
+ * Entry ids are the indices in the list of entries used to build the index.
+ */
+class LibraryFragmentIndex {
+
+  private final List<SpectralLibraryEntry> entries;
+  private final MZTolerance mzTol;
+  private final int numEntries;
+  private final double minMz;
+  private final double binWidth;
+  // CSR layout: signals of bin b are in binStarts[b] until binStarts[b+1]
+  private final int[] binStarts;
+  private final float[] mzs;
+  private final int[] entryIds;
+  // rows are matched in parallel, each call borrows a workspace. The workspaces are released with
+  // the index instead of staying attached to the pool threads
+  private final Queue<Workspace> workspaces = new ConcurrentLinkedQueue<>();
+
+  LibraryFragmentIndex(@NotNull List<SpectralLibraryEntry> entries, @NotNull MZTolerance mzTol) {
+    this.entries = entries;
+    this.mzTol = mzTol;
+    numEntries = entries.size();
+    // bins twice the tolerance so that a query window covers only a few bins
+    binWidth = Math.max(0.001, 2 * mzTol.getMzToleranceForMass(500));
+
+    int totalSignals = 0;
+    double min = Double.POSITIVE_INFINITY;
+    double max = Double.NEGATIVE_INFINITY;
+    for (SpectralLibraryEntry entry : entries) {
+      final int n = entry.getNumberOfDataPoints();
+      totalSignals += n;
+      for (int i = 0; i < n; i++) {
+        final double mz = entry.getMzValue(i);
+        min = Math.min(min, mz);
+        max = Math.max(max, mz);
+      }
+    }
+    minMz = totalSignals == 0 ? 0 : min;
+    final int numBins = totalSignals == 0 ? 1 : bin(max) + 1;
+
+    // counting sort of all library signals into their bins
+    binStarts = new int[numBins + 1];
+    for (SpectralLibraryEntry entry : entries) {
+      for (int i = 0; i < entry.getNumberOfDataPoints(); i++) {
+        binStarts[bin(entry.getMzValue(i)) + 1]++;
+      }
+    }
+    for (int b = 0; b < numBins; b++) {
+      binStarts[b + 1] += binStarts[b];
+    }
+
+    mzs = new float[totalSignals];
+    entryIds = new int[totalSignals];
+    final int[] next = Arrays.copyOf(binStarts, numBins);
+    for (int id = 0; id < numEntries; id++) {
+      final SpectralLibraryEntry entry = entries.get(id);
+      for (int i = 0; i < entry.getNumberOfDataPoints(); i++) {
+        final double mz = entry.getMzValue(i);
+        final int pos = next[bin(mz)]++;
+        mzs[pos] = (float) mz;
+        entryIds[pos] = id;
+      }
+    }
+  }
+
+  private int bin(double mz) {
+    return (int) ((mz - minMz) / binWidth);
+  }
+
+  /**
+   * @return true if the entry ids of this index are the indices in this list
+   */
+  boolean isIndexOf(List<SpectralLibraryEntry> entries) {
+    return this.entries == entries;
+  }
+
+  int getNumberOfEntries() {
+    return numEntries;
+  }
+
+  int getNumberOfSignals() {
+    return mzs.length;
+  }
+
+  /**
+   * Finds all entries within range that may still be matched to the query.
+   *
+   * @param query       the query signals exactly as they are passed to the similarity function
+   * @param range       the candidate entries by id
+   * @param minMatch    minimum matched signals
+   * @param simFunction used to bound the score. Only if the query is not changed before scoring,
+   *                    otherwise null
+   * @return entry ids that may reach the minimum matched signals and score
+   */
+  @NotNull
+  BitSet findCandidates(@NotNull DataPoint[] query, @NotNull IndexRange range, int minMatch,
+      @Nullable SpectralSimilarityFunction simFunction) {
+    final BitSet candidates = new BitSet(numEntries);
+    if (range.isEmpty() || query.length < minMatch) {
+      return candidates;
+    }
+
+    final Weights weights = simFunction == null ? null : simFunction.getWeights();
+    final int from = range.min();
+    final int to = range.maxExclusive();
+
+    Workspace ws = workspaces.poll();
+    if (ws == null) {
+      ws = new Workspace(numEntries);
+    }
+    try {
+      collectCandidates(query, from, to, minMatch, simFunction, weights, ws, candidates);
+    } finally {
+      ws.reset();
+      workspaces.offer(ws);
+    }
+    return candidates;
+  }
+
+  private void collectCandidates(@NotNull DataPoint[] query, int from, int to, int minMatch,
+      @Nullable SpectralSimilarityFunction simFunction, @Nullable Weights weights,
+      @NotNull Workspace ws, @NotNull BitSet candidates) {
+    double totalEnergy = 0;
+    for (int q = 0; q < query.length; q++) {
+      final double queryMz = query[q].getMZ();
+      final double weight = weights == null ? 0 : weights.apply(query[q]);
+      totalEnergy += weight * weight;
+
+      // the ppm tolerance is relative to the library m/z - widen slightly to stay an upper bound
+      final double window =
+          mzTol.getMzToleranceForMass(queryMz) * 1.01 + Math.ulp((float) queryMz);
+      final int firstBin = Math.max(0, bin(queryMz - window));
+      final int lastBin = Math.min(binStarts.length - 2, bin(queryMz + window));
+      for (int b = firstBin; b <= lastBin; b++) {
+        for (int i = binStarts[b]; i < binStarts[b + 1]; i++) {
+          final int id = entryIds[i];
+          // each query signal counts once per entry
+          if (id < from || id >= to || ws.lastQuery[id] == q) {
+            continue;
+          }
+          if (Math.abs(mzs[i] - queryMz) <= window) {
+            ws.lastQuery[id] = q;
+            if (ws.count[id] == 0) {
+              ws.touched.add(id);
+            }
+            ws.count[id]++;
+            ws.energy[id] += weight * weight;
+          }
+        }
+      }
+    }
+
+    final boolean boundScore = weights != null && totalEnergy > 0;
+    for (int t = 0; t < ws.touched.size(); t++) {
+      final int id = ws.touched.getInt(t);
+      final int count = ws.count[id];
+      if (count >= minMatch && (!boundScore || simFunction.canReachMinScore(query.length, count,
+          Math.sqrt(ws.energy[id] / totalEnergy)))) {
+        candidates.set(id);
+      }
+    }
+  }
+
+  private static class Workspace {
+
+    private final int[] count;
+    private final double[] energy;
+    private final int[] lastQuery;
+    private final IntArrayList touched = new IntArrayList();
+
+    private Workspace(int numEntries) {
+      count = new int[numEntries];
+      energy = new double[numEntries];
+      lastQuery = new int[numEntries];
+      Arrays.fill(lastQuery, -1);
+    }
+
+    private void reset() {
+      for (int t = 0; t < touched.size(); t++) {
+        final int id = touched.getInt(t);
+        count[id] = 0;
+        energy[id] = 0;
+        lastQuery[id] = -1;
+      }
+      touched.clear();
+    }
+  }
+}
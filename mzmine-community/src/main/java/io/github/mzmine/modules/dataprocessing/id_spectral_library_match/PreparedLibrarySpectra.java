@@ -0,0 +1,98 @@
+/*
+ * Copyright (c) 2004-2025 The mzmine Development Team
+ *
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+
+package io.github.mzmine.modules.dataprocessing.id_spectral_library_match;
+
+import io.github.mzmine.datamodel.DataPoint;
+import io.github.mzmine.util.spectraldb.entry.SpectralLibraryEntry;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.function.Function;
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * Library spectra prepared once per entry for one matching task, e.g., after deisotoping and
+ * precursor removal. Entries are prepared lazily in chunks of {@link #ENTRIES_PER_CHUNK} on first
+ * access. Every entry keeps a single prepared data point array that is shared by all comparisons,
+ * so scoring an entry does not allocate a copy of its spectrum.
+ * <p>
+ * Entry ids are the indices in the list of entries. Thread safe, chunks are published through an
+ * {@link AtomicReferenceArray}. Threads may prepare the same chunk concurrently, only the first
+ * result is kept.
+ */
+class PreparedLibrarySpectra {
+
+  static final int ENTRIES_PER_CHUNK = 256;
+
+  private final List<SpectralLibraryEntry> entries;
+  private final Function<SpectralLibraryEntry, DataPoint[]> preparer;
+  private final AtomicReferenceArray<DataPoint[][]> chunks;
+
+  /**
+   * @param entries  the library entries
+   * @param preparer prepares the data points of an entry
+   */
+  PreparedLibrarySpectra(@NotNull List<SpectralLibraryEntry> entries,
+      @NotNull Function<SpectralLibraryEntry, DataPoint[]> preparer) {
+    this.entries = entries;
+    this.preparer = preparer;
+    final int numChunks = (entries.size() + ENTRIES_PER_CHUNK - 1) / ENTRIES_PER_CHUNK;
+    chunks = new AtomicReferenceArray<>(numChunks);
+  }
+
+  /**
+   * @return true if the entry ids are the indices in this list
+   */
+  boolean isPreparedFrom(@NotNull List<SpectralLibraryEntry> entries) {
+    return this.entries == entries;
+  }
+
+  /**
+   * @return the prepared data points of the entry. The array is shared and must not be modified.
+   */
+  @NotNull
+  DataPoint[] getDataPoints(int entry) {
+    final int chunkIndex = entry / ENTRIES_PER_CHUNK;
+    DataPoint[][] chunk = chunks.get(chunkIndex);
+    if (chunk == null) {
+      final DataPoint[][] prepared = prepareChunk(chunkIndex);
+      chunk = chunks.compareAndExchange(chunkIndex, null, prepared);
+      if (chunk == null) {
+        chunk = prepared;
+      }
+    }
+    return chunk[entry - chunkIndex * ENTRIES_PER_CHUNK];
+  }
+
+  private DataPoint[][] prepareChunk(int chunkIndex) {
+    final int from = chunkIndex * ENTRIES_PER_CHUNK;
+    final int to = Math.min(entries.size(), from + ENTRIES_PER_CHUNK);
+    final DataPoint[][] prepared = new DataPoint[to - from][];
+    for (int i = 0; i < prepared.length; i++) {
+      prepared[i] = preparer.apply(entries.get(from + i));
+    }
+    return prepared;
+  }
+}
@@ -25,6 +25,7 @@
 
 package io.github.mzmine.modules.dataprocessing.id_spectral_library_match;
 
+import com.google.common.collect.Range;
 import io.github.mzmine.datamodel.DataPoint;
 import io.github.mzmine.datamodel.IMSRawDataFile;
 import io.github.mzmine.datamodel.MassList;
@@ -49,6 +50,7 @@ import io.github.mzmine.parameters.parametertypes.tolerances.PercentTolerance;
 import io.github.mzmine.parameters.parametertypes.tolerances.RTTolerance;
 import io.github.mzmine.taskcontrol.AbstractTask;
 import io.github.mzmine.util.collections.BinarySearch;
+import io.github.mzmine.util.collections.IndexRange;
 import io.github.mzmine.util.exceptions.MissingMassListException;
 import io.github.mzmine.util.scans.FragmentScanSelection;
 import io.github.mzmine.util.scans.ScanAlignment;
@@ -61,12 +63,16 @@ import io.github.mzmine.util.spectraldb.entry.SpectralDBAnnotation;
 import io.github.mzmine.util.spectraldb.entry.SpectralLibraryEntry;
 import java.time.Instant;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
 import java.util.Comparator;
 import java.util.List;
 import java.util.Objects;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.logging.Level;
 import java.util.logging.Logger;
+import java.util.stream.IntStream;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
@@ -74,6 +80,8 @@ public class RowsSpectralMatchTask extends AbstractTask {
 
   // isotopes to check number of signals matching
   public final static double[] DELTA_ISOTOPES = new double[]{1.0034, 1.0078, 2.0157, 1.9970};
+  // library entries matched per parallel chunk, large ranges are split when matching one query
+  static final int ENTRIES_PER_CHUNK = 1024;
 
   private static final Logger logger = Logger.getLogger(RowsSpectralMatchTask.class.getName());
   protected final List<FeatureListRow> rows;
@@ -91,6 +99,9 @@ public class RowsSpectralMatchTask extends AbstractTask {
   // scan merging and ms levels
   private final MsLevelFilter msLevelFilter;
   private final AtomicInteger errorCounter = new AtomicInteger(0);
+  // scan to library entry comparisons skipped by the fragment index or passed to scoring
+  private final AtomicLong prunedComparisons = new AtomicLong(0);
+  private final AtomicLong scoredComparisons = new AtomicLong(0);
   private final int totalRows;
   private final int minMatch;
   private final boolean removePrecursor;
@@ -109,6 +120,11 @@ public class RowsSpectralMatchTask extends AbstractTask {
   private boolean needsIsotopePattern;
   private int minMatchedIsoSignals;
   private double scanPrecursorMZ;
+  // prefilter library entries by their fragment signals
+  private boolean useFragmentIndex = true;
+  private @Nullable LibraryFragmentIndex fragmentIndex;
+  // library spectra prepared once per entry on first use
+  private @Nullable PreparedLibrarySpectra preparedLibrary;
 
   public RowsSpectralMatchTask(ParameterSet parameters, @NotNull Scan scan,
       @NotNull Instant moduleCallDate) {
@@ -151,6 +167,8 @@ public class RowsSpectralMatchTask extends AbstractTask {
           .getEmbeddedParameters();
       cropSpectraToOverlap = advanced.getValue(
           AdvancedSpectralLibrarySearchParameters.cropSpectraToOverlap);
+      useFragmentIndex = advanced.getValue(
+          AdvancedSpectralLibrarySearchParameters.fragmentIndexPrefilter);
 
       ccsTolerance = advanced.getValue(AdvancedSpectralLibrarySearchParameters.ccsTolerance)
           ? new PercentTolerance(
@@ -212,6 +230,8 @@ public class RowsSpectralMatchTask extends AbstractTask {
           .getEmbeddedParameters();
       cropSpectraToOverlap = advanced.getValue(
           AdvancedSpectralLibrarySearchParameters.cropSpectraToOverlap);
+      useFragmentIndex = advanced.getValue(
+          AdvancedSpectralLibrarySearchParameters.fragmentIndexPrefilter);
 
       ccsTolerance = advanced.getValue(AdvancedSpectralLibrarySearchParameters.ccsTolerance)
           ? new PercentTolerance(
@@ -285,6 +305,8 @@ public class RowsSpectralMatchTask extends AbstractTask {
       return;
     }
 
+    preparedLibrary = new PreparedLibrarySpectra(entries, this::prepareLibrarySpectrum);
+
     // run on spectra
     if (scan != null) {
       description = """
@@ -302,6 +324,14 @@ public class RowsSpectralMatchTask extends AbstractTask {
 
     // run in parallel
     if (rows != null) {
+      // the index only pays off for many query spectra
+      if (useFragmentIndex) {
+        description = "Indexing fragment signals of %d spectral library entries".formatted(
+            entries.size());
+        fragmentIndex = new LibraryFragmentIndex(entries, mzToleranceSpectra);
+        logger.fine(() -> "Indexed %d fragment signals of %d library entries".formatted(
+            fragmentIndex.getNumberOfSignals(), fragmentIndex.getNumberOfEntries()));
+      }
       description = """
           Spectral library matching of %d feature rows against %d spectral library entries""".formatted(
           rows.size(), entries.size());
@@ -322,7 +352,14 @@ public class RowsSpectralMatchTask extends AbstractTask {
       logger.info("Total spectral library matches " + totalMatches);
       logger.info(() -> String.format("library matches=%d (Errors:%d); rows=%d; library entries=%d",
           getCount(), getErrorCount(), totalRows, entries.size()));
+      logger.info(() -> String.format(
+          "Scan to library comparisons: scored=%d; pruned by fragment index=%d",
+          getScoredComparisons(), getPrunedComparisons()));
     }
+
+    // release the prepared library
+    fragmentIndex = null;
+    preparedLibrary = null;
   }
 
   private @NotNull List<SpectralLibraryEntry> getSortedSpectralLibraryEntries() {
@@ -349,29 +386,40 @@ public class RowsSpectralMatchTask extends AbstractTask {
     try {
       // filter entries first if MS2
       // MS1 is never filtered because of missing precursor mz
-      entries = binaryFindCandidateEntries(entries, ScanUtils.getPrecursorMz(scan));
-      if (entries.isEmpty()) {
+      final IndexRange range = binaryFindCandidateRange(entries, ScanUtils.getPrecursorMz(scan));
+      if (range.isEmpty()) {
         return;
       }
 
       // get mass list and perform deisotoping if active
-      DataPoint[] masses = getDataPoints(scan, scan.getPrecursorMz());
+      final PreparedQuery query = prepareQuery(getDataPoints(scan, scan.getPrecursorMz()));
 
       // get a ccs for the precursor of this scan
       final Float precursorCCS = getPrecursorCCSFromMsMs(scan);
+      final float rt = scan.getRetentionTime();
+
+      // match chunks of entries in parallel
+      final int offset = range.min();
+      final List<SpectralDBAnnotation> ids = matchEntriesInChunks(range.size(),
+          (from, to) -> {
+            final List<SpectralDBAnnotation> chunkIds = new ArrayList<>();
+            for (int e = offset + from; e < offset + to && !isCanceled(); e++) {
+              final SpectralLibraryEntry entry = entries.get(e);
+              final SpectralSimilarity sim = matchSpectrum(rt, scanPrecursorMZ, precursorCCS,
+                  query, entries, e);
+              if (sim != null) {
+                Float ccsError = PercentTolerance.getPercentError(
+                    entry.getOrElse(DBEntryField.CCS, null), precursorCCS);
+                chunkIds.add(
+                    new SpectralDBAnnotation(entry, sim, scan, ccsError, scanPrecursorMZ, rt));
+              }
+            }
+            return chunkIds;
+          });
 
-      for (var entry : entries) {
-        float rt = scan.getRetentionTime();
-        final SpectralSimilarity sim = matchSpectrum(rt, scanPrecursorMZ, precursorCCS, masses,
-            entry);
-        if (sim != null) {
-          Float ccsError = PercentTolerance.getPercentError(entry.getOrElse(DBEntryField.CCS, null),
-              precursorCCS);
-
-          matches.incrementAndGet();
-          addIdentities(null,
-              List.of(new SpectralDBAnnotation(entry, sim, scan, ccsError, scanPrecursorMZ, rt)));
-        }
+      if (!ids.isEmpty() && !isCanceled()) {
+        matches.addAndGet(ids.size());
+        addIdentities(null, ids);
       }
     } catch (MissingMassListException e) {
       logger.log(Level.WARNING, "No mass list in spectrum:" + scan, e);
@@ -421,8 +469,8 @@ public class RowsSpectralMatchTask extends AbstractTask {
   public int matchRowToLibraries(List<SpectralLibraryEntry> entries, FeatureListRow row) {
     try {
       // filter entries first if not MS1
-      entries = binaryFindCandidateEntries(entries, row.getAverageMZ());
-      if (entries.isEmpty()) {
+      final IndexRange range = binaryFindCandidateRange(entries, row.getAverageMZ());
+      if (range.isEmpty()) {
         return 0;
       }
 
@@ -434,63 +482,32 @@ public class RowsSpectralMatchTask extends AbstractTask {
         return 0;
       }
 
-      // prepare data
-      List<DataPoint[]> rowMassLists = new ArrayList<>();
+      // prepare data once per row
+      List<PreparedQuery> rowMassLists = new ArrayList<>();
       for (Scan scan : scans) {
         // get mass list and perform deisotoping if active
         DataPoint[] rowMassList = getDataPoints(scan, row.getAverageMZ());
-        rowMassLists.add(rowMassList);
+        rowMassLists.add(prepareQuery(rowMassList));
       }
 
-      final Float rowCCS = row.getAverageCCS();
-      List<SpectralDBAnnotation> ids = null;
-      // match against all library entries
-      for (SpectralLibraryEntry ident : entries) {
-        if (isCanceled()) {
-          return 0;
-        }
+      // entries that may match each scan
+      final BitSet[] candidates = findFragmentIndexCandidates(entries, range, rowMassLists);
 
-        final String entryPolarity = ident.getOrElse(DBEntryField.POLARITY, null);
-
-        final Float libCCS = ident.getOrElse(DBEntryField.CCS, null);
-        SpectralDBAnnotation best = null;
-        // match all scans against this ident to find best match
-        for (int i = 0; i < scans.size(); i++) {
-          final PolarityType scanPolarity = scans.get(i).getPolarity();
-          if (!weakPolarityCheck(entryPolarity, scanPolarity)) {
-            // check each ms2 scan individually, maybe we have grouped pos/neg rows in the future.
-            continue;
-          }
-
-          SpectralSimilarity sim = matchSpectrum(row.getAverageRT(), row.getAverageMZ(), rowCCS,
-              rowMassLists.get(i), ident);
-          if (sim != null && (!needsIsotopePattern || checkForIsotopePattern(sim,
-              mzToleranceSpectra, minMatchedIsoSignals)) && (best == null
-                                                             || best.getSimilarity().getScore()
-                                                                < sim.getScore())) {
-
-            Float ccsRelativeError = PercentTolerance.getPercentError(rowCCS, libCCS);
-
-            best = new SpectralDBAnnotation(ident, sim, scans.get(i), ccsRelativeError,
-                row.getAverageMZ(), row.getAverageRT());
-          }
-        }
-        // has match?
-        if (best != null) {
-          if (ids == null) {
-            ids = new ArrayList<>();
-          }
-          ids.add(best);
-          matches.getAndIncrement();
-        }
+      // match against all library entries
+      final int offset = range.min();
+      final List<SpectralDBAnnotation> ids = matchEntriesInChunks(range.size(),
+          (from, to) -> matchRowToEntries(entries, offset + from, offset + to, row, scans,
+              rowMassLists, candidates));
+      if (isCanceled()) {
+        return 0;
       }
 
       // add and sort identities based on similarity score
-      if (ids != null) {
+      if (!ids.isEmpty()) {
+        matches.addAndGet(ids.size());
         addIdentities(row, ids);
         SortSpectralMatchesTask.sortIdentities(row);
         return ids.size();
-
       }
     } catch (MissingMassListException e) {
       logger.log(Level.WARNING, "No mass list in spectrum for rowID=" + row.getID(), e);
@@ -499,25 +516,125 @@ public class RowsSpectralMatchTask extends AbstractTask {
     return 0;
   }
 
+  /**
+   * Match all scans of a row against the library entries from - to
+   *
+   * @param candidates entries that may match each scan or null to match all
+   * @return the best match of each matched entry in entry order
+   */
+  private List<SpectralDBAnnotation> matchRowToEntries(List<SpectralLibraryEntry> entries,
+      int from, int to, FeatureListRow row, List<Scan> scans, List<PreparedQuery> rowMassLists,
+      @Nullable BitSet[] candidates) {
+    final Float rowCCS = row.getAverageCCS();
+    final List<SpectralDBAnnotation> ids = new ArrayList<>();
+    long pruned = 0;
+    long scored = 0;
+    for (int e = from; e < to; e++) {
+      if (isCanceled()) {
+        break;
+      }
+      final SpectralLibraryEntry ident = entries.get(e);
+
+      final String entryPolarity = ident.getOrElse(DBEntryField.POLARITY, null);
+
+      final Float libCCS = ident.getOrElse(DBEntryField.CCS, null);
+      SpectralDBAnnotation best = null;
+      // match all scans against this ident to find best match
+      for (int i = 0; i < scans.size(); i++) {
+        final PolarityType scanPolarity = scans.get(i).getPolarity();
+        if (!weakPolarityCheck(entryPolarity, scanPolarity)) {
+          // check each ms2 scan individually, maybe we have grouped pos/neg rows in the future.
+          continue;
+        }
+        if (candidates != null && !candidates[i].get(e)) {
+          pruned++;
+          continue;
+        }
+        scored++;
+
+        SpectralSimilarity sim = matchSpectrum(row.getAverageRT(), row.getAverageMZ(), rowCCS,
+            rowMassLists.get(i), entries, e);
+        if (sim != null && (!needsIsotopePattern || checkForIsotopePattern(sim,
+            mzToleranceSpectra, minMatchedIsoSignals)) && (best == null
+                                                           || best.getSimilarity().getScore()
+                                                              < sim.getScore())) {
+
+          Float ccsRelativeError = PercentTolerance.getPercentError(rowCCS, libCCS);
+
+          best = new SpectralDBAnnotation(ident, sim, scans.get(i), ccsRelativeError,
+              row.getAverageMZ(), row.getAverageRT());
+        }
+      }
+      // has match?
+      if (best != null) {
+        ids.add(best);
+      }
+    }
+    prunedComparisons.addAndGet(pruned);
+    scoredComparisons.addAndGet(scored);
+    return ids;
+  }
+
+  /**
+   * Matches one query against many library entries. Large ranges are split into chunks that run on
+   * the common fork join pool, which also steals work from the parallel row matching. Chunk results
+   * are concatenated in entry order so that the matches are the same as matching sequentially.
+   *
+   * @param numEntries number of entries, chunks get indices relative to the first entry
+   * @param matcher    matches all entries of a chunk
+   * @return all matches in entry order
+   */
+  private <T> List<T> matchEntriesInChunks(int numEntries, EntryChunkMatcher<T> matcher) {
+    if (numEntries < 2 * ENTRIES_PER_CHUNK) {
+      return matcher.match(0, numEntries);
+    }
+    final int chunks = (numEntries + ENTRIES_PER_CHUNK - 1) / ENTRIES_PER_CHUNK;
+    return IntStream.range(0, chunks).parallel().mapToObj(
+            chunk -> matcher.match(chunk * ENTRIES_PER_CHUNK,
+                Math.min(numEntries, (chunk + 1) * ENTRIES_PER_CHUNK))).flatMap(List::stream)
+        .toList();
+  }
+
   /**
    * Does no filtering in MS1 but for all other filters by precursor mz using binary search.
    *
-   * @param entries         original entries will not be changed
-   * @param scanPrecursorMZ if null returns the initial entries - otherwise used as filter if not
-   *                        MS1
-   * @return either filtered sublist or the original list if no filters applicable
+   * @param entries         sorted by precursor mz if not MS1
+   * @param scanPrecursorMZ if null returns the full range - otherwise used as filter if not MS1
+   * @return range of candidate indices in entries
    */
-  private List<SpectralLibraryEntry> binaryFindCandidateEntries(List<SpectralLibraryEntry> entries,
+  private IndexRange binaryFindCandidateRange(List<SpectralLibraryEntry> entries,
       @Nullable final Double scanPrecursorMZ) {
     if (scanPrecursorMZ == null || msLevelFilter.isMs1Only()) {
-      return entries;
+      return IndexRange.ofExclusive(0, entries.size());
+    }
+    return BinarySearch.indexRange(mzTolerancePrecursor.getToleranceRange(scanPrecursorMZ),
+        entries, SpectralLibraryEntry::getPrecursorMZ);
+  }
+
+  /**
+   * Uses the fragment index to find the entries that may still match each query mass list. The
+   * score bound is only valid if the query is scored as is, so only the min matched signals are
+   * checked when spectra are cropped.
+   *
+   * @param entries   the entries that were indexed
+   * @param range     candidate entries
+   * @param massLists the query mass lists
+   * @return one candidate set of entry indices per mass list or null if there is no index
+   */
+  @Nullable
+  private BitSet[] findFragmentIndexCandidates(List<SpectralLibraryEntry> entries,
+      IndexRange range, List<PreparedQuery> massLists) {
+    final LibraryFragmentIndex index = fragmentIndex;
+    if (index == null || !index.isIndexOf(entries)) {
+      return null;
+    }
+    final SpectralSimilarityFunction scoreBound = cropSpectraToOverlap ? null : simFunction;
+    final BitSet[] candidates = new BitSet[massLists.size()];
+    for (int i = 0; i < candidates.length; i++) {
+      candidates[i] = index.findCandidates(massLists.get(i).dataPoints(), range, minMatch,
+          scoreBound);
     }
-    var indexRange = BinarySearch.indexRange(
-        mzTolerancePrecursor.getToleranceRange(scanPrecursorMZ), entries,
-        SpectralLibraryEntry::getPrecursorMZ);
-    // filter
-    entries = indexRange.sublist(entries);
-    return entries;
+    return candidates;
   }
 
   /**
@@ -533,11 +650,13 @@ public class RowsSpectralMatchTask extends AbstractTask {
    * @param rowRT       retention time of query row
    * @param rowMZ       m/z of query row
    * @param rowMassList mass list (data points) for row
-   * @param ident       library entry
+   * @param entries     all library entries
+   * @param entryIndex  index of the library entry
    * @return spectral similarity or null if no match
    */
   private SpectralSimilarity matchSpectrum(Float rowRT, double rowMZ, Float rowCCS,
-      DataPoint[] rowMassList, SpectralLibraryEntry ident) {
+      PreparedQuery rowMassList, List<SpectralLibraryEntry> entries, int entryIndex) {
+    final SpectralLibraryEntry ident = entries.get(entryIndex);
     // prefilters
     if (!checkRT(rowRT, ident) // retention time optional
         // mz only for MS2 not for MS1
@@ -547,34 +666,80 @@ public class RowsSpectralMatchTask extends AbstractTask {
       return null;
     }
     // prefilters matched - score spectrum
-    DataPoint[] library = ident.getDataPoints();
-    if (removeIsotopes) {
-      library = removeIsotopes(library);
-    }
+    DataPoint[] library = getLibrarySpectrum(entries, entryIndex);
 
     // crop the spectra to their overlapping mz range
     // helpful when comparing spectra, acquired with different
     // fragmentation energy
-    DataPoint[] query = rowMassList;
+    DataPoint[] query = rowMassList.dataPoints();
     if (cropSpectraToOverlap) {
-      DataPoint[][] cropped = ScanAlignment.cropToOverlap(mzToleranceSpectra, library, query,
-          ident.getPrecursorMZ(), rowMZ);
-      library = cropped[0];
-      query = cropped[1];
+      final Range<Double> overlap = ScanAlignment.getOverlapMZ(mzToleranceSpectra,
+          ScanAlignment.getMZRange(library), rowMassList.mzRange(), ident.getPrecursorMZ(), rowMZ);
+      library = ScanAlignment.cropToRange(library, overlap);
+      // the query is shared by all entries and only copied if signals are removed
+      query = ScanAlignment.cropToRange(query, overlap);
     }
 
-    // remove precursor signals
-    if (!msLevelFilter.isMs1Only() && removePrecursor && ident.getPrecursorMZ() != null) {
+    // remove precursor signals - otherwise already removed in prepared library spectrum
+    if (cropSpectraToOverlap && isRemoveLibraryPrecursor(ident)) {
       // precursor mz from library entry for signal filtering
-      double precursorMZ = ident.getPrecursorMZ();
-      // remove from both spectra
-      library = removePrecursor(library, precursorMZ);
+      library = removePrecursor(library, ident.getPrecursorMZ());
     }
 
     // check spectra similarity
     return createSimilarity(library, query);
   }
 
+  /**
+   * The library spectrum after deisotoping and precursor removal is prepared once per entry and
+   * stored for this task. The array is shared by all comparisons and must not be modified.
+   *
+   * @param entries    all library entries
+   * @param entryIndex index of the library entry
+   * @return the prepared library spectrum sorted by intensity
+   */
+  private DataPoint[] getLibrarySpectrum(List<SpectralLibraryEntry> entries, int entryIndex) {
+    final PreparedLibrarySpectra prepared = preparedLibrary;
+    if (prepared == null || !prepared.isPreparedFrom(entries)) {
+      return prepareLibrarySpectrum(entries.get(entryIndex));
+    }
+    return prepared.getDataPoints(entryIndex);
+  }
+
+  /**
+   * The query is sorted by intensity like the library spectra, so that it is aligned to each
+   * library entry without sorting or copying, and its m/z range is calculated once for cropping.
+   */
+  private static PreparedQuery prepareQuery(DataPoint[] massList) {
+    final DataPoint[] sorted = massList.clone();
+    // sorted once per query, the alignment does not sort or modify it
+    Arrays.sort(sorted, ScanAlignment.sorter);
+    return new PreparedQuery(sorted, ScanAlignment.getMZRange(sorted));
+  }
+
+  /**
+   * Deisotoping and precursor removal of a library spectrum. The precursor is removed after
+   * cropping to the overlap of both spectra as the overlap depends on all library signals.
+   *
+   * @return the library spectrum sorted by intensity like in {@link ScanAlignment#align}
+   */
+  private DataPoint[] prepareLibrarySpectrum(SpectralLibraryEntry ident) {
+    DataPoint[] library = ident.getDataPoints();
+    if (removeIsotopes) {
+      library = removeIsotopes(library);
+    }
+    if (!cropSpectraToOverlap && isRemoveLibraryPrecursor(ident)) {
+      library = removePrecursor(library, ident.getPrecursorMZ());
+    }
+    // sorted once per entry, the alignment does not sort or modify it
+    Arrays.sort(library, ScanAlignment.sorter);
+    return library;
+  }
+
+  private boolean isRemoveLibraryPrecursor(SpectralLibraryEntry ident) {
+    return !msLevelFilter.isMs1Only() && removePrecursor && ident.getPrecursorMZ() != null;
+  }
+
   private boolean checkCCS(Float rowCCS, SpectralLibraryEntry ident) {
     return ccsTolerance == null || ccsTolerance.matches(rowCCS,
         ident.getOrElse(DBEntryField.CCS, null));
@@ -586,24 +751,38 @@ public class RowsSpectralMatchTask extends AbstractTask {
    */
   private DataPoint[] removePrecursor(DataPoint[] masslist, double precursorMZ) {
     var removeMzRange = mzToleranceRemovePrecursor.getToleranceRange(precursorMZ);
-    List<DataPoint> filtered = new ArrayList<>();
+    final double lower = removeMzRange.lowerEndpoint();
+    final double upper = removeMzRange.upperEndpoint();
+    int kept = 0;
     for (DataPoint dp : masslist) {
-      double mz = dp.getMZ();
       // skip precursor mz +- 4
-      if (!removeMzRange.contains(mz)) {
-        filtered.add(dp);
+      final double mz = dp.getMZ();
+      if (mz < lower || mz > upper) {
+        kept++;
+      }
+    }
+    if (kept == masslist.length) {
+      return masslist;
+    }
+    final DataPoint[] filtered = new DataPoint[kept];
+    int i = 0;
+    for (DataPoint dp : masslist) {
+      final double mz = dp.getMZ();
+      if (mz < lower || mz > upper) {
+        filtered[i++] = dp;
       }
     }
-    return filtered.toArray(new DataPoint[0]);
+    return filtered;
   }
 
   /**
-   * Uses the similarity function and filter to create similarity.
+   * Uses the similarity function and filter to create similarity. Both spectra are sorted by
+   * intensity and shared with other comparisons.
    *
    * @return positive match with similarity or null if criteria was not met
    */
   private SpectralSimilarity createSimilarity(DataPoint[] library, DataPoint[] query) {
-    return simFunction.getSimilarity(mzToleranceSpectra, minMatch, library, query);
+    return simFunction.getSimilarityOfSorted(mzToleranceSpectra, minMatch, library, query);
   }
 
   private boolean checkPrecursorMZ(double rowMZ, SpectralLibraryEntry ident) {
@@ -681,6 +860,20 @@ public class RowsSpectralMatchTask extends AbstractTask {
     return errorCounter.get();
   }
 
+  /**
+   * @return number of scan to library entry comparisons skipped by the fragment index
+   */
+  public long getPrunedComparisons() {
+    return prunedComparisons.get();
+  }
+
+  /**
+   * @return number of scan to library entry comparisons that were scored
+   */
+  public long getScoredComparisons() {
+    return scoredComparisons.get();
+  }
+
   /**
    * Weak polarity check. If in doubt (e.g. either the entryPolarityString or scanPolarity is null
    * or unknown) this returns true.
@@ -699,4 +892,28 @@ public class RowsSpectralMatchTask extends AbstractTask {
     }
     return true;
   }
+
+  /**
+   * Query mass list prepared once per scan
+   *
+   * @param dataPoints the data points sorted by intensity
+   * @param mzRange    the m/z range of the data points
+   */
+  private record PreparedQuery(DataPoint[] dataPoints, Range<Double> mzRange) {
+
+  }
+
+  /**
+   * Matches a chunk of library entries against a query
+   */
+  @FunctionalInterface
+  private interface EntryChunkMatcher<T> {
+
+    /**
+     * @param from first entry index, inclusive
+     * @param to   last entry index, exclusive
+     * @return the matches in entry order
+     */
+    List<T> match(int from, int to);
+  }
 }
@@ -0,0 +1,72 @@
+/*
+ * Copyright (c) 2004-2025 The mzmine Development Team
+ *
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+
+package io.github.mzmine.modules.io.export_features_columnar;
+
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * Value types of the columns in a {@link ColumnarTableFormat} file. Missing values are NaN for
+ * floating point columns, {@link Integer#MIN_VALUE} for int columns and empty strings for string
+ * columns.
+ */
+public enum ColumnType {
+  DOUBLE(1, Double.BYTES), FLOAT(2, Float.BYTES), INT(3, Integer.BYTES),
+  /**
+   * Variable width: int offsets (rows + 1) followed by the UTF-8 bytes
+   */
+  STRING(4, -1);
+
+  public static final int MISSING_INT = Integer.MIN_VALUE;
+
+  private final byte code;
+  private final int fixedWidth;
+
+  ColumnType(int code, int fixedWidth) {
+    this.code = (byte) code;
+    this.fixedWidth = fixedWidth;
+  }
+
+  @NotNull
+  public static ColumnType fromCode(byte code) {
+    for (ColumnType type : values()) {
+      if (type.code == code) {
+        return type;
+      }
+    }
+    throw new IllegalArgumentException("Unknown column type code " + code);
+  }
+
+  public byte getCode() {
+    return code;
+  }
+
+  /**
+   * @return number of bytes per value or -1 for variable width
+   */
+  public int getFixedWidth() {
+    return fixedWidth;
+  }
+}
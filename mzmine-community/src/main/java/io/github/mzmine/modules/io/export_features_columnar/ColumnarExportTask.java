@@ -0,0 +1,279 @@
+/*
+ * Copyright (c) 2004-2025 The mzmine Development Team
+ *
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+
+package io.github.mzmine.modules.io.export_features_columnar;
+
+import io.github.mzmine.datamodel.RawDataFile;
+import io.github.mzmine.datamodel.features.FeatureListRow;
+import io.github.mzmine.datamodel.features.ModularDataModel;
+import io.github.mzmine.datamodel.features.ModularFeature;
+import io.github.mzmine.datamodel.features.ModularFeatureList;
+import io.github.mzmine.datamodel.features.SimpleFeatureListAppliedMethod;
+import io.github.mzmine.datamodel.features.types.DataType;
+import io.github.mzmine.datamodel.features.types.DataTypes;
+import io.github.mzmine.datamodel.features.types.LinkedGraphicalType;
+import io.github.mzmine.datamodel.features.types.modifiers.NoTextColumn;
+import io.github.mzmine.datamodel.features.types.modifiers.NullColumnType;
+import io.github.mzmine.datamodel.features.types.modifiers.SubColumnsFactory;
+import io.github.mzmine.datamodel.features.types.numbers.AreaType;
+import io.github.mzmine.datamodel.features.types.numbers.HeightType;
+import io.github.mzmine.datamodel.features.types.numbers.MZType;
+import io.github.mzmine.datamodel.features.types.numbers.RTType;
+import io.github.mzmine.datamodel.features.types.numbers.abstr.DoubleType;
+import io.github.mzmine.datamodel.features.types.numbers.abstr.FloatType;
+import io.github.mzmine.datamodel.features.types.numbers.abstr.IntegerType;
+import io.github.mzmine.modules.io.export_features_columnar.ColumnarTableWriter.Column;
+import io.github.mzmine.modules.io.export_features_csv.CSVExportModularTask;
+import io.github.mzmine.modules.io.export_features_gnps.fbmn.FeatureListRowsFilter;
+import io.github.mzmine.parameters.ParameterSet;
+import io.github.mzmine.taskcontrol.AbstractTask;
+import io.github.mzmine.taskcontrol.ProcessedItemsCounter;
+import io.github.mzmine.taskcontrol.TaskStatus;
+import io.github.mzmine.util.FeatureListRowSorter;
+import io.github.mzmine.util.files.FileAndPathUtil;
+import java.io.File;
+import java.io.IOException;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.regex.Pattern;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * Exports aligned feature lists to the {@link ColumnarTableFormat}. Numeric row types and the
+ * per-sample m/z, RT, height and area become primitive columns, all other row types are exported as
+ * formatted strings like in the {@link CSVExportModularTask}.
+ */
+public class ColumnarExportTask extends AbstractTask implements ProcessedItemsCounter {
+
+  private static final Logger logger = Logger.getLogger(ColumnarExportTask.class.getName());
+  private static final String headerSeparator = ":";
+  private static final List<DataType> FEATURE_TYPES = List.of(DataTypes.get(MZType.class),
+      DataTypes.get(RTType.class), DataTypes.get(HeightType.class), DataTypes.get(AreaType.class));
+
+  private final ModularFeatureList[] featureLists;
+  private final File fileName;
+  private final FeatureListRowsFilter rowFilter;
+  private final ParameterSet parameters;
+  private final AtomicInteger exportedRows = new AtomicInteger(0);
+  private int totalRows = 0;
+
+  public ColumnarExportTask(ParameterSet parameters, @NotNull Instant moduleCallDate) {
+    super(null, moduleCallDate); // no new data stored -> null
+    featureLists = parameters.getValue(ColumnarExportParameters.featureLists)
+        .getMatchingFeatureLists();
+    fileName = parameters.getValue(ColumnarExportParameters.filename);
+    rowFilter = parameters.getValue(ColumnarExportParameters.filter);
+    this.parameters = parameters;
+  }
+
+  @Override
+  public int getProcessedItems() {
+    return exportedRows.get();
+  }
+
+  @Override
+  public double getFinishedPercentage() {
+    return totalRows == 0 ? 0 : exportedRows.get() / (double) totalRows;
+  }
+
+  @Override
+  public String getTaskDescription() {
+    return "Exporting feature list(s) " + Arrays.toString(featureLists)
+        + " to binary columnar file(s)";
+  }
+
+  @Override
+  public void run() {
+    setStatus(TaskStatus.PROCESSING);
+
+    final String plNamePattern = "{}";
+    final boolean substitute = fileName.getPath().contains(plNamePattern);
+    if (!substitute && featureLists.length > 1) {
+      error("""
+          Cannot export multiple feature lists to the same file. Please use "{}" pattern in filename.\
+          This will be replaced with the feature list name to generate one file per feature list.
+          """);
+      return;
+    }
+
+    for (ModularFeatureList featureList : featureLists) {
+      totalRows += featureList.getNumberOfRows();
+    }
+
+    for (ModularFeatureList featureList : featureLists) {
+      if (isCanceled()) {
+        return;
+      }
+
+      File curFile = fileName;
+      if (substitute) {
+        String cleanPlName = featureList.getName().replaceAll("[^a-zA-Z0-9.-]", "_");
+        curFile = new File(
+            fileName.getPath().replaceAll(Pattern.quote(plNamePattern), cleanPlName));
+      }
+      curFile = FileAndPathUtil.getRealFilePath(curFile, ColumnarTableFormat.FILE_EXTENSION);
+
+      try {
+        exportFeatureList(featureList, curFile);
+      } catch (IOException e) {
+        logger.log(Level.WARNING,
+            "Error writing columnar table to file %s for feature list %s. Message: %s".formatted(
+                curFile.getAbsolutePath(), featureList.getName(), e.getMessage()), e);
+        error("Could not write file " + curFile + ": " + e.getMessage());
+        return;
+      }
+
+      featureList.getAppliedMethods().add(
+          new SimpleFeatureListAppliedMethod(ColumnarExportModule.class, parameters,
+              getModuleCallDate()));
+    }
+
+    if (getStatus() == TaskStatus.PROCESSING) {
+      setStatus(TaskStatus.FINISHED);
+    }
+  }
+
+  private void exportFeatureList(ModularFeatureList flist, File file) throws IOException {
+    final List<Column<FeatureListRow>> columns = createColumns(flist);
+
+    try (var writer = new ColumnarTableWriter<>(file, columns)) {
+      // rows are only referenced per batch, values are encoded on batch flush
+      final List<FeatureListRow> rows = flist.getRows().stream().filter(rowFilter::accept)
+          .sorted(FeatureListRowSorter.DEFAULT_ID).toList();
+      for (FeatureListRow row : rows) {
+        if (isCanceled()) {
+          // no footer - the partial file is deleted on close
+          writer.abort();
+          return;
+        }
+        writer.write(row);
+        exportedRows.incrementAndGet();
+      }
+    }
+  }
+
+  /**
+   * Row types first, then the feature types of each raw data file. Names follow the CSV header.
+   */
+  @NotNull
+  private List<Column<FeatureListRow>> createColumns(ModularFeatureList flist) {
+    final List<Column<FeatureListRow>> columns = new ArrayList<>();
+    for (DataType type : flist.getRowTypes()) {
+      if (!filterType(type)) {
+        continue;
+      }
+      addColumns(columns, type, type.getUniqueID(), row -> row);
+    }
+
+    for (RawDataFile raw : flist.getRawDataFiles()) {
+      final String prefix = CSVExportModularTask.DATAFILE_PREFIX + headerSeparator + raw.getName()
+          + headerSeparator;
+      for (DataType type : FEATURE_TYPES) {
+        if (!flist.hasFeatureType(type)) {
+          continue;
+        }
+        addColumns(columns, type, prefix + type.getUniqueID(),
+            row -> (ModularFeature) row.getFeature(raw));
+      }
+    }
+    return columns;
+  }
+
+  @SuppressWarnings("unchecked")
+  private void addColumns(List<Column<FeatureListRow>> columns, DataType type, String name,
+      Function<FeatureListRow, @Nullable ModularDataModel> model) {
+    if (type instanceof SubColumnsFactory subFactory) {
+      for (int s = 0; s < subFactory.getNumberOfSubColumns(); s++) {
+        if (!filterType(subFactory.getType(s))) {
+          continue;
+        }
+        final int sub = s;
+        columns.add(new Column<>(name + headerSeparator + subFactory.getUniqueID(s),
+            ColumnType.STRING, row -> formatSubColumn(model.apply(row), subFactory, sub)));
+      }
+      return;
+    }
+
+    final ColumnType columnType;
+    if (type instanceof DoubleType) {
+      columnType = ColumnType.DOUBLE;
+    } else if (type instanceof FloatType) {
+      columnType = ColumnType.FLOAT;
+    } else if (type instanceof IntegerType) {
+      columnType = ColumnType.INT;
+    } else {
+      columnType = ColumnType.STRING;
+    }
+
+    if (columnType == ColumnType.STRING) {
+      columns.add(new Column<>(name, columnType, row -> formatValue(model.apply(row), type)));
+    } else {
+      columns.add(new Column<>(name, columnType, row -> {
+        final ModularDataModel data = model.apply(row);
+        return data == null ? null : data.get(type);
+      }));
+    }
+  }
+
+  @SuppressWarnings("unchecked")
+  private String formatValue(@Nullable ModularDataModel data, DataType type) {
+    Object value = data == null ? null : data.get(type);
+    if (value == null) {
+      value = type.getDefaultValue();
+    }
+    try {
+      return type.getFormattedExportString(value);
+    } catch (Exception e) {
+      logger.log(Level.FINEST,
+          "Cannot format value of type " + type.getClass().getName() + " value: " + value, e);
+      return "";
+    }
+  }
+
+  @SuppressWarnings("unchecked")
+  private String formatSubColumn(@Nullable ModularDataModel data, SubColumnsFactory subFactory,
+      int sub) {
+    Object value = data == null ? null : data.get((DataType) subFactory);
+    if (value == null) {
+      value = ((DataType) subFactory).getDefaultValue();
+    }
+    return subFactory.getFormattedSubColExportValue(sub, value);
+  }
+
+  /**
+   * @return true if type should be exported
+   */
+  private boolean filterType(DataType type) {
+    return !(type instanceof NoTextColumn || type instanceof NullColumnType
+        || type instanceof LinkedGraphicalType);
+  }
+}
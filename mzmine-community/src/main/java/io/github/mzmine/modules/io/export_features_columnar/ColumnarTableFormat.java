@@ -0,0 +1,55 @@
+/*
+ * Copyright (c) 2004-2025 The mzmine Development Team
+ *
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+
+package io.github.mzmine.modules.io.export_features_columnar;
+
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Binary columnar table format for aligned feature lists, similar to Arrow IPC streams. All values
+ * are little endian.
+ * <pre>
+ * header:  magic "MZCOLTAB" | int version | int number of columns
+ *          per column: byte {@link ColumnType} code | int name length | UTF-8 name
+ * batches: int number of rows in batch (> 0)
+ *          per column one block:
+ *            DOUBLE/FLOAT/INT: rows * fixed width
+ *            STRING:           int[rows + 1] offsets | UTF-8 bytes (offsets[rows] long)
+ * footer:  int 0 | long total number of rows
+ * </pre>
+ * Column names follow the CSV export header (e.g., "mz" or "datafile:sample.mzML:height").
+ */
+public final class ColumnarTableFormat {
+
+  public static final byte[] MAGIC = "MZCOLTAB".getBytes(StandardCharsets.US_ASCII);
+  public static final int VERSION = 1;
+  public static final ByteOrder BYTE_ORDER = ByteOrder.LITTLE_ENDIAN;
+  public static final String FILE_EXTENSION = "mzcol";
+  public static final int DEFAULT_BATCH_ROWS = 4096;
+
+  private ColumnarTableFormat() {
+  }
+}
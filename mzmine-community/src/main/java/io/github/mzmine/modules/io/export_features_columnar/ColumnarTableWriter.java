@@ -0,0 +1,245 @@
+/*
+ * Copyright (c) 2004-2025 The mzmine Development Team
+ *
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+
+package io.github.mzmine.modules.io.export_features_columnar;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Function;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * Streams items (e.g., feature list rows) into a {@link ColumnarTableFormat} file. Only the items
+ * of the current batch are referenced, values are extracted and encoded when a batch is flushed so
+ * that the full table is never materialized.
+ * <p>
+ * The footer is only written on {@link #close()} if all rows were written successfully. After an
+ * {@link #abort()} or a failed write, the incomplete file is deleted on close so that readers never
+ * see a truncated table as complete.
+ *
+ * @param <T> the item type of each row
+ */
+public class ColumnarTableWriter<T> implements AutoCloseable {
+
+  private final File file;
+  private final FileChannel channel;
+  private final List<Column<T>> columns;
+  private final int batchRows;
+  private final List<T> batch;
+  private ByteBuffer buffer = ByteBuffer.allocate(1 << 16).order(ColumnarTableFormat.BYTE_ORDER);
+  private long totalRows = 0;
+  private boolean aborted = false;
+
+  public ColumnarTableWriter(@NotNull File file, @NotNull List<Column<T>> columns)
+      throws IOException {
+    this(file, columns, ColumnarTableFormat.DEFAULT_BATCH_ROWS);
+  }
+
+  public ColumnarTableWriter(@NotNull File file, @NotNull List<Column<T>> columns, int batchRows)
+      throws IOException {
+    this.columns = List.copyOf(columns);
+    this.batchRows = Math.max(1, batchRows);
+    batch = new ArrayList<>(this.batchRows);
+    this.file = file;
+    channel = FileChannel.open(file.toPath(), StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+        StandardOpenOption.TRUNCATE_EXISTING);
+    try {
+      writeHeader();
+    } catch (IOException | RuntimeException e) {
+      abort();
+      try {
+        close();
+      } catch (IOException closeException) {
+        e.addSuppressed(closeException);
+      }
+      throw e;
+    }
+  }
+
+  private void writeHeader() throws IOException {
+    buffer.clear();
+    buffer.put(ColumnarTableFormat.MAGIC);
+    buffer.putInt(ColumnarTableFormat.VERSION);
+    buffer.putInt(columns.size());
+    for (Column<T> column : columns) {
+      final byte[] name = column.name().getBytes(StandardCharsets.UTF_8);
+      ensureRemaining(1 + Integer.BYTES + name.length);
+      buffer.put(column.type().getCode());
+      buffer.putInt(name.length);
+      buffer.put(name);
+    }
+    flushBuffer();
+  }
+
+  /**
+   * Adds a row. Values are extracted once the batch is full or on {@link #close()}.
+   */
+  public void write(@NotNull T item) throws IOException {
+    if (aborted) {
+      throw new IllegalStateException("Columnar table writer was aborted");
+    }
+    batch.add(item);
+    if (batch.size() >= batchRows) {
+      try {
+        writeBatch();
+      } catch (IOException | RuntimeException e) {
+        abort();
+        throw e;
+      }
+    }
+  }
+
+  /**
+   * Marks the table as incomplete, e.g., on cancel. No footer is written and the file is deleted
+   * on {@link #close()}.
+   */
+  public void abort() {
+    aborted = true;
+    batch.clear();
+  }
+
+  public boolean isAborted() {
+    return aborted;
+  }
+
+  private void writeBatch() throws IOException {
+    if (batch.isEmpty()) {
+      return;
+    }
+    final int rows = batch.size();
+    buffer.clear();
+    buffer.putInt(rows);
+
+    for (Column<T> column : columns) {
+      final ColumnType type = column.type();
+      switch (type) {
+        case DOUBLE, FLOAT, INT -> {
+          ensureRemaining(rows * type.getFixedWidth());
+          for (T item : batch) {
+            final Number value = toNumber(column.value().apply(item));
+            switch (type) {
+              case DOUBLE -> buffer.putDouble(value == null ? Double.NaN : value.doubleValue());
+              case FLOAT -> buffer.putFloat(value == null ? Float.NaN : value.floatValue());
+              default -> buffer.putInt(value == null ? ColumnType.MISSING_INT : value.intValue());
+            }
+          }
+        }
+        case STRING -> {
+          final byte[][] values = new byte[rows][];
+          int offset = 0;
+          ensureRemaining((rows + 1) * Integer.BYTES);
+          buffer.putInt(offset);
+          for (int i = 0; i < rows; i++) {
+            final Object value = column.value().apply(batch.get(i));
+            values[i] = value == null ? new byte[0]
+                : value.toString().getBytes(StandardCharsets.UTF_8);
+            offset += values[i].length;
+            buffer.putInt(offset);
+          }
+          for (byte[] value : values) {
+            ensureRemaining(value.length);
+            buffer.put(value);
+          }
+        }
+      }
+    }
+    flushBuffer();
+    totalRows += rows;
+    batch.clear();
+  }
+
+  @Nullable
+  private static Number toNumber(@Nullable Object value) {
+    return switch (value) {
+      case Number n -> n;
+      case Boolean b -> b ? 1 : 0;
+      case null, default -> null;
+    };
+  }
+
+  /**
+   * Writes the buffer if there is not enough space left. Grows the buffer for large values.
+   */
+  private void ensureRemaining(int bytes) throws IOException {
+    if (buffer.remaining() >= bytes) {
+      return;
+    }
+    flushBuffer();
+    if (buffer.capacity() < bytes) {
+      buffer = ByteBuffer.allocate(bytes).order(ColumnarTableFormat.BYTE_ORDER);
+    }
+  }
+
+  private void flushBuffer() throws IOException {
+    buffer.flip();
+    while (buffer.hasRemaining()) {
+      channel.write(buffer);
+    }
+    buffer.clear();
+  }
+
+  public long getTotalRows() {
+    return totalRows + batch.size();
+  }
+
+  @Override
+  public void close() throws IOException {
+    try (channel) {
+      if (!aborted) {
+        writeBatch();
+        buffer.clear();
+        buffer.putInt(0);
+        buffer.putLong(totalRows);
+        flushBuffer();
+      }
+    } catch (IOException | RuntimeException e) {
+      aborted = true;
+      throw e;
+    } finally {
+      if (aborted) {
+        Files.deleteIfExists(file.toPath());
+      }
+    }
+  }
+
+  /**
+   * @param name  column name
+   * @param type  the value type
+   * @param value extracts the value of a row, null is written as missing value. Values of
+   *              {@link ColumnType#STRING} columns are converted with toString
+   */
+  public record Column<T>(@NotNull String name, @NotNull ColumnType type,
+                          @NotNull Function<T, @Nullable Object> value) {
+
+  }
+}
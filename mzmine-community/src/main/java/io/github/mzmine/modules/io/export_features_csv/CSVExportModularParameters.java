@@ -56,13 +56,15 @@ public class CSVExportModularParameters extends SimpleParameterSet {
       FeatureListRowsFilter.values(), FeatureListRowsFilter.ALL);
   private static final List<ExtensionFilter> extensions = List.of( //
       new ExtensionFilter("comma-separated values", "*.csv"), //
+      new ExtensionFilter("gzip compressed comma-separated values", "*.csv.gz"), //
       new ExtensionFilter("All files", "*.*") //
   );
   public static final FileNameSuffixExportParameter filename = new FileNameSuffixExportParameter(
       "Filename", "Name of the output CSV file. "
       + "Use pattern \"{}\" in the file name to substitute with feature list name. "
       + "(i.e. \"blah{}blah.csv\" would become \"blahSourceFeatureListNameblah.csv\"). "
-      + "If the file already exists, it will be overwritten.", extensions, "full_feature_table");
+      + "If the file already exists, it will be overwritten. "
+      + "Use the extension .csv.gz to compress the file with gzip.", extensions, "full_feature_table");
 
 
   public CSVExportModularParameters() {
@@ -45,11 +45,9 @@ import io.github.mzmine.taskcontrol.TaskStatus;
 import io.github.mzmine.util.FeatureListRowSorter;
 import io.github.mzmine.util.files.FileAndPathUtil;
 import io.github.mzmine.util.io.CSVUtils;
-import java.io.BufferedWriter;
+import io.github.mzmine.util.io.ParallelChunkedTextWriter;
 import java.io.File;
 import java.io.IOException;
-import java.nio.charset.StandardCharsets;
-import java.nio.file.Files;
 import java.text.MessageFormat;
 import java.time.Instant;
 import java.util.ArrayList;
@@ -80,7 +78,8 @@ public class CSVExportModularTask extends AbstractTask implements ProcessedItems
   private final ParameterSet parameters;
   // track number of exported items
   private final AtomicInteger exportedRows = new AtomicInteger(0);
-  private int processedTypes = 0, totalTypes = 0;
+  private final String newLine = System.lineSeparator();
+  private int totalRows = 0;
 
   public CSVExportModularTask(ParameterSet parameters, @NotNull Instant moduleCallDate) {
     super(null, moduleCallDate); // no new data stored -> null
@@ -125,10 +124,10 @@ public class CSVExportModularTask extends AbstractTask implements ProcessedItems
 
   @Override
   public double getFinishedPercentage() {
-    if (totalTypes == 0) {
+    if (totalRows == 0) {
       return 0;
     }
-    return (double) processedTypes / (double) totalTypes;
+    return exportedRows.get() / (double) totalRows;
   }
 
   @Override
@@ -156,7 +155,7 @@ public class CSVExportModularTask extends AbstractTask implements ProcessedItems
 
     // Total number of rows
     for (ModularFeatureList featureList : featureLists) {
-      totalTypes += featureList.getNumberOfRows();
+      totalRows += featureList.getNumberOfRows();
     }
 
     // Process feature lists
@@ -180,12 +179,16 @@ public class CSVExportModularTask extends AbstractTask implements ProcessedItems
             .replaceAll(Pattern.quote(plNamePattern), cleanPlName);
         curFile = new File(newFilename);
       }
-      curFile = FileAndPathUtil.getRealFilePath(curFile, "csv");
+      final boolean gzip = ParallelChunkedTextWriter.isGzipFile(curFile);
+      if (gzip) {
+        curFile = FileAndPathUtil.getRealFilePath(FileAndPathUtil.eraseFormat(curFile), "csv");
+        curFile = new File(curFile.getPath() + ".gz");
+      } else {
+        curFile = FileAndPathUtil.getRealFilePath(curFile, "csv");
+      }
 
       // Open file
-
-      try (BufferedWriter writer = Files.newBufferedWriter(curFile.toPath(),
-          StandardCharsets.UTF_8)) {
+      try (var writer = new ParallelChunkedTextWriter(curFile, gzip)) {
         exportFeatureList(featureList, writer);
 
       } catch (IOException e) {
@@ -218,7 +221,7 @@ public class CSVExportModularTask extends AbstractTask implements ProcessedItems
   }
 
   @SuppressWarnings("rawtypes")
-  private void exportFeatureList(ModularFeatureList flist, BufferedWriter writer)
+  private void exportFeatureList(ModularFeatureList flist, ParallelChunkedTextWriter writer)
       throws IOException {
     final List<FeatureListRow> rows = flist.getRows().stream().filter(rowFilter::accept)
         .sorted(FeatureListRowSorter.DEFAULT_ID).toList();
@@ -240,64 +243,43 @@ public class CSVExportModularTask extends AbstractTask implements ProcessedItems
               true));
     }
 
-    writer.append(header.toString());
-    writer.newLine();
-
-    // write data
-    totalTypes = rowTypes.size() + featureTypes.size() * rawDataFiles.size();
-
-    List<String[]> formattedCols = new ArrayList<>(totalTypes);
+    header.append(newLine);
+    writer.write(header);
 
-    // list string values for each type and sub type
+    // define all columns and sub columns in the same order as the header
+    final List<ExportColumn> columns = new ArrayList<>();
     for (DataType rowType : rowTypes) {
-      if (isCanceled()) {
-        return;
-      }
-
-      addFormattedColumnsRecursively(formattedCols, rows, null, rowType);
-
-      processedTypes++;
+      addColumnsRecursively(columns, rows, null, rowType);
     }
-
     // add feature types for each raw data file
     for (RawDataFile raw : rawDataFiles) {
       for (DataType featureType : featureTypes) {
-        if (isCanceled()) {
-          return;
-        }
-
-        addFormattedColumnsRecursively(formattedCols, rows, raw, featureType);
-        processedTypes++;
+        addColumnsRecursively(columns, rows, raw, featureType);
       }
     }
 
-    for (int i = 0; i < rows.size(); i++) {
-      // Cancel?
-      if (isCanceled()) {
-        return;
-      }
-
-      final int row = i;
-      writer.append(
-          formattedCols.stream().map(col -> col[row]).collect(Collectors.joining(fieldSeparator)));
-      writer.newLine();
+    if (isCanceled()) {
+      return;
+    }
 
+    // format chunks of rows in parallel and write them in order
+    writer.writeChunked(rows, () -> (row, b) -> {
+      appendRow(row, columns, b);
       exportedRows.incrementAndGet();
-      processedTypes++;
-    }
+      return true;
+    }, this::isCanceled);
   }
 
   /**
-   * Adds columns of formatted values for each column / sub column. missing values are replaced by
-   * empty strings or default values
+   * Adds columns for each type / sub type. Sub columns are filtered like in the header.
    *
-   * @param formattedCols the target list
-   * @param rows          the data
-   * @param raw           defines the feature
-   * @param type          the feature data type to be added (and its sub columns)
+   * @param columns the target list
+   * @param rows    the data
+   * @param raw     defines the feature
+   * @param type    the feature data type to be added (and its sub columns)
    */
-  private void addFormattedColumnsRecursively(List<String[]> formattedCols,
-      List<FeatureListRow> rows, @Nullable RawDataFile raw, DataType type) {
+  private void addColumnsRecursively(List<ExportColumn> columns, List<FeatureListRow> rows,
+      @Nullable RawDataFile raw, DataType type) {
     if (type instanceof SubColumnsFactory subFactory) {
       int subCols = subFactory.getNumberOfSubColumns();
       for (int s = 0; s < subCols; s++) {
@@ -307,19 +289,34 @@ public class CSVExportModularTask extends AbstractTask implements ProcessedItems
             s))) {
           continue;
         }
-        // collect column data
-        final int subIndex = s;
-        String[] column = getDataStream(rows, raw, false).map(
-            data -> getFormattedValue(data, subFactory, subIndex)).toArray(String[]::new);
-        formattedCols.add(column);
+        columns.add(new ExportColumn(type, raw, s));
       }
     } else {
-      String[] column = getDataStream(rows, raw, false).map(data -> getFormattedValue(data, type))
-          .toArray(String[]::new);
-      formattedCols.add(column);
+      columns.add(new ExportColumn(type, raw, -1));
     }
   }
 
+  /**
+   * Appends all formatted values of a row joined by the field separator and a new line. Missing
+   * values are replaced by empty strings or default values
+   */
+  private void appendRow(FeatureListRow row, List<ExportColumn> columns, StringBuilder b) {
+    for (int c = 0; c < columns.size(); c++) {
+      if (c > 0) {
+        b.append(fieldSeparator);
+      }
+      final ExportColumn column = columns.get(c);
+      final ModularDataModel data =
+          column.raw() == null ? row : (ModularFeature) row.getFeature(column.raw());
+      if (column.subIndex() == -1) {
+        b.append(getFormattedValue(data, column.type()));
+      } else {
+        b.append(getFormattedValue(data, (SubColumnsFactory) column.type(), column.subIndex()));
+      }
+    }
+    b.append(newLine);
+  }
+
   /**
    * Data stream for rows or all features
    *
@@ -466,4 +463,15 @@ public class CSVExportModularTask extends AbstractTask implements ProcessedItems
           featureList.getName(), numMS2, numMS2End));
     }
   }
+
+  /**
+   * A single exported column
+   *
+   * @param type     the data type or the {@link SubColumnsFactory} of a sub column
+   * @param raw      the raw data file of a feature column or null for row columns
+   * @param subIndex the sub column index or -1
+   */
+  private record ExportColumn(DataType type, @Nullable RawDataFile raw, int subIndex) {
+
+  }
 }
@@ -48,15 +48,13 @@ import io.github.mzmine.taskcontrol.AbstractTask;
 import io.github.mzmine.taskcontrol.ProcessedItemsCounter;
 import io.github.mzmine.taskcontrol.TaskStatus;
 import io.github.mzmine.util.files.FileAndPathUtil;
+import io.github.mzmine.util.io.ParallelChunkedTextWriter;
 import io.github.mzmine.util.scans.FragmentScanSelection;
 import io.github.mzmine.util.scans.ScanUtils;
 import io.github.mzmine.util.spectraldb.entry.SpectralLibraryEntry;
 import io.github.mzmine.util.spectraldb.entry.SpectralLibraryEntryFactory;
-import java.io.BufferedWriter;
 import java.io.File;
 import java.io.IOException;
-import java.nio.charset.StandardCharsets;
-import java.nio.file.Files;
 import java.text.MessageFormat;
 import java.time.Instant;
 import java.util.ArrayList;
@@ -151,8 +149,7 @@ public class GnpsFbmnMgfExportTask extends AbstractTask implements ProcessedItem
       }
 
       // Open file
-      try (BufferedWriter writer = Files.newBufferedWriter(curFile.toPath(),
-          StandardCharsets.UTF_8)) {
+      try (var writer = new ParallelChunkedTextWriter(curFile, false)) {
 
         export(featureList, rows, writer);
       } catch (IOException e) {
@@ -200,46 +197,15 @@ public class GnpsFbmnMgfExportTask extends AbstractTask implements ProcessedItem
     }
   }
 
-  private long export(FeatureList featureList, List<FeatureListRow> rows, BufferedWriter writer)
-      throws IOException {
+  private long export(FeatureList featureList, List<FeatureListRow> rows,
+      ParallelChunkedTextWriter writer) throws IOException {
 
-    int noMS2Counter = 0;
-    // count exported
-    for (FeatureListRow row : rows) {
-      // do not export if no MSMS
-      if (!filter.accept(row)) {
-        continue;
-      }
-
-      // Get the MS/MS scan
-      var selectedScan = scanMergeSelect.getAllFragmentSpectra(row).stream().findFirst();
-      if (selectedScan.isEmpty()) {
-        noMS2Counter++;
-        // with IIMN, filter also accepts feature without MS2
-        continue;
-      }
-      Scan msmsScan = selectedScan.get();
-
-      DataPoint[] dataPoints = null;
-      dataPoints = ScanUtils.extractDataPoints(msmsScan, true);
-
-      if (dataPoints == null || dataPoints.length == 0) {
-        continue;
-      }
-
-      SpectralLibraryEntry entry = entryFactory.createUnknown(null, row, null, msmsScan, dataPoints,
-          null, null);
-
-      // requires MS2? or can also be MSn?
-//      entry.putIfNotNull(DBEntryField.MS_LEVEL, 2);
-
-      final var mgfEntry = MGFEntryGenerator.createMGFEntry(entry, normalizer);
-      if (mgfEntry.numSignals() > 0) {
-        writer.write(mgfEntry.spectrum());
-        writer.newLine();
-        exportedRows.incrementAndGet();
-      }
-    }
+    final AtomicInteger noMS2Counter = new AtomicInteger(0);
+    // do not export if no MSMS
+    final List<FeatureListRow> filteredRows = rows.stream().filter(filter::accept).toList();
+    // rows are formatted in parallel chunks and written in order
+    writer.writeChunked(filteredRows, () -> (row, b) -> appendRow(row, b, noMS2Counter),
+        this::isCanceled);
 
     if (exportedRows.get() == 0) {
       logger.log(Level.WARNING, "No MS/MS scans exported.");
@@ -248,13 +214,48 @@ public class GnpsFbmnMgfExportTask extends AbstractTask implements ProcessedItem
           MessageFormat.format("Total of {0} feature rows (MS/MS mass lists) were exported ({1})",
               exportedRows.get(), featureList.getName()));
     }
-    if (noMS2Counter > 0 && filter.requiresMS2()) {
-      logger.warning(noMS2Counter + " features had no MS/MS scan after already filtering for MS2");
+    if (noMS2Counter.get() > 0 && filter.requiresMS2()) {
+      logger.warning(
+          noMS2Counter.get() + " features had no MS/MS scan after already filtering for MS2");
     }
 
     return exportedRows.get();
   }
 
+  /**
+   * @return true if the row was appended as mgf entry
+   */
+  private boolean appendRow(FeatureListRow row, StringBuilder b, AtomicInteger noMS2Counter) {
+    // Get the MS/MS scan
+    var selectedScan = scanMergeSelect.getAllFragmentSpectra(row).stream().findFirst();
+    if (selectedScan.isEmpty()) {
+      noMS2Counter.incrementAndGet();
+      // with IIMN, filter also accepts feature without MS2
+      return false;
+    }
+    Scan msmsScan = selectedScan.get();
+
+    DataPoint[] dataPoints = ScanUtils.extractDataPoints(msmsScan, true);
+
+    if (dataPoints == null || dataPoints.length == 0) {
+      return false;
+    }
+
+    SpectralLibraryEntry entry = entryFactory.createUnknown(null, row, null, msmsScan, dataPoints,
+        null, null);
+
+    // requires MS2? or can also be MSn?
+//      entry.putIfNotNull(DBEntryField.MS_LEVEL, 2);
+
+    final var mgfEntry = MGFEntryGenerator.createMGFEntry(entry, normalizer);
+    if (mgfEntry.numSignals() > 0) {
+      b.append(mgfEntry.spectrum()).append(System.lineSeparator());
+      exportedRows.incrementAndGet();
+      return true;
+    }
+    return false;
+  }
+
   @Override
   public String getTaskDescription() {
     return "Exporting GNPS of feature list(s) " + Arrays.toString(featureLists) + " to MGF file(s)";
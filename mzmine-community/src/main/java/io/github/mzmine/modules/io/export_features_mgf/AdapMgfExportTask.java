@@ -35,15 +35,17 @@ import io.github.mzmine.modules.io.export_features_mgf.AdapMgfExportParameters.M
 import io.github.mzmine.parameters.ParameterSet;
 import io.github.mzmine.taskcontrol.AbstractTask;
 import io.github.mzmine.taskcontrol.TaskStatus;
+import io.github.mzmine.util.io.ParallelChunkedTextWriter;
+import io.github.mzmine.util.io.ParallelChunkedTextWriter.ItemFormatter;
 import io.github.mzmine.util.scans.ScanUtils;
 import io.github.mzmine.util.scans.ScanUtils.IntegerMode;
 import java.io.File;
-import java.io.FileWriter;
 import java.io.IOException;
 import java.text.DecimalFormat;
 import java.text.NumberFormat;
 import java.time.Instant;
 import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.regex.Pattern;
 import java.util.stream.Stream;
 import org.jetbrains.annotations.NotNull;
@@ -70,7 +72,7 @@ public class AdapMgfExportTask extends AbstractTask {
   private final IntegerMode roundMode;
   private MzMode representativeMZ;
   private final int totalRows;
-  private int finishedRows = 0;
+  private final AtomicInteger finishedRows = new AtomicInteger(0);
 
   public AdapMgfExportTask(ParameterSet parameters, @NotNull Instant moduleCallDate) {
     this(parameters, parameters.getParameter(AdapMgfExportParameters.FEATURE_LISTS).getValue()
@@ -94,7 +96,7 @@ public class AdapMgfExportTask extends AbstractTask {
 
   @Override
   public double getFinishedPercentage() {
-    return totalRows != 0 ? finishedRows / totalRows : 0;
+    return totalRows != 0 ? finishedRows.get() / (double) totalRows : 0;
   }
 
   @Override
@@ -124,16 +126,7 @@ public class AdapMgfExportTask extends AbstractTask {
       }
 
       // Open file
-      FileWriter writer;
-      try {
-        writer = new FileWriter(curFile);
-      } catch (Exception e) {
-        setStatus(TaskStatus.ERROR);
-        setErrorMessage("Could not open file " + curFile + " for writing.");
-        return;
-      }
-
-      try {
+      try (var writer = new ParallelChunkedTextWriter(curFile, false)) {
         exportFeatureList(featureList, writer);
       } catch (IOException e) {
         setStatus(TaskStatus.ERROR);
@@ -146,15 +139,6 @@ public class AdapMgfExportTask extends AbstractTask {
         return;
       }
 
-      // Close file
-      try {
-        writer.close();
-      } catch (Exception e) {
-        setStatus(TaskStatus.ERROR);
-        setErrorMessage("Could not close file " + curFile);
-        return;
-      }
-
       // If feature list substitution pattern wasn't found,
       // treat one feature list only
       if (!substitute) {
@@ -167,59 +151,10 @@ public class AdapMgfExportTask extends AbstractTask {
     }
   }
 
-  private void exportFeatureList(FeatureList featureList, FileWriter writer) throws IOException {
-    for (FeatureListRow row : featureList.getRows()) {
-      Scan ip = row.getMostIntenseFragmentScan();
-      if (ip == null) {
-        continue;
-      }
-
-      exportRow(writer, row, ip);
-
-      finishedRows++;
-    }
-  }
-
-  private void exportRow(FileWriter writer, FeatureListRow row, Scan ip)
+  private void exportFeatureList(FeatureList featureList, ParallelChunkedTextWriter writer)
       throws IOException {
-    // data points of this cluster
-    DataPoint dataPoints[] = ScanUtils.extractDataPoints(ip);
-    if (!fractionalMZ) {
-      dataPoints = ScanUtils.integerDataPoints(dataPoints, roundMode);
-    }
-    // get m/z and rt
-    double mz = getRepresentativeMZ(row, dataPoints);
-    String retTimeInSeconds = rtsForm.format(row.getAverageRT() * 60);
-    // write
-    writer.write("BEGIN IONS" + newLine);
-    writer.write("FEATURE_ID=" + row.getID() + newLine);
-    writer.write("PEPMASS=" + formatMZ(mz) + newLine);
-    writer.write("RTINSECONDS=" + retTimeInSeconds + newLine);
-    writer.write("SCANS=" + row.getID() + newLine);
-
-    // needs to be MSLEVEL=2 for GC-GNPS (even for GC-EI-MS data)
-    writer.write("MSLEVEL=2" + newLine);
-    writer.write("CHARGE=1+" + newLine);
-    writer.write("Num peaks="+ dataPoints.length + newLine);
-
-
-    for (DataPoint point : dataPoints) {
-      String line = formatMZ(point.getMZ()) + " " + intensityForm.format(point.getIntensity());
-      writer.write(line + newLine);
-    }
-
-    writer.write("END IONS" + newLine);
-    writer.write(newLine);
-  }
-
-  /**
-   * Format as nominal or fractional
-   *
-   * @param mz
-   * @return
-   */
-  private String formatMZ(double mz) {
-    return fractionalMZ ? mzForm.format(mz) : mzNominalForm.format(mz);
+    // rows are formatted in parallel chunks, each chunk with its own number formats
+    writer.writeChunked(featureList.getRows(), RowFormatter::new, this::isCanceled);
   }
 
   private double getRepresentativeMZ(FeatureListRow row, DataPoint[] data) {
@@ -243,4 +178,67 @@ public class AdapMgfExportTask extends AbstractTask {
 
     return mz;
   }
+
+  /**
+   * Formats rows of one chunk. {@link NumberFormat} is not thread safe so each chunk uses copies.
+   */
+  private class RowFormatter implements ItemFormatter<FeatureListRow> {
+
+    private final NumberFormat mzForm = copy(AdapMgfExportTask.this.mzForm);
+    private final NumberFormat mzNominalForm = copy(AdapMgfExportTask.this.mzNominalForm);
+    private final NumberFormat intensityForm = copy(AdapMgfExportTask.this.intensityForm);
+    private final NumberFormat rtsForm = copy(AdapMgfExportTask.this.rtsForm);
+
+    private static NumberFormat copy(NumberFormat format) {
+      return (NumberFormat) format.clone();
+    }
+
+    @Override
+    public boolean append(@NotNull FeatureListRow row, @NotNull StringBuilder writer) {
+      Scan ip = row.getMostIntenseFragmentScan();
+      if (ip == null) {
+        return false;
+      }
+      exportRow(writer, row, ip);
+      finishedRows.incrementAndGet();
+      return true;
+    }
+
+    private void exportRow(StringBuilder writer, FeatureListRow row, Scan ip) {
+      // data points of this cluster
+      DataPoint dataPoints[] = ScanUtils.extractDataPoints(ip);
+      if (!fractionalMZ) {
+        dataPoints = ScanUtils.integerDataPoints(dataPoints, roundMode);
+      }
+      // get m/z and rt
+      double mz = getRepresentativeMZ(row, dataPoints);
+      String retTimeInSeconds = rtsForm.format(row.getAverageRT() * 60);
+      // write
+      writer.append("BEGIN IONS" + newLine);
+      writer.append("FEATURE_ID=" + row.getID() + newLine);
+      writer.append("PEPMASS=" + formatMZ(mz) + newLine);
+      writer.append("RTINSECONDS=" + retTimeInSeconds + newLine);
+      writer.append("SCANS=" + row.getID() + newLine);
+
+      // needs to be MSLEVEL=2 for GC-GNPS (even for GC-EI-MS data)
+      writer.append("MSLEVEL=2" + newLine);
+      writer.append("CHARGE=1+" + newLine);
+      writer.append("Num peaks=" + dataPoints.length + newLine);
+
+      for (DataPoint point : dataPoints) {
+        String line = formatMZ(point.getMZ()) + " " + intensityForm.format(point.getIntensity());
+        writer.append(line + newLine);
+      }
+
+      writer.append("END IONS" + newLine);
+      writer.append(newLine);
+    }
+
+    /**
+     * Format as nominal or fractional
+     */
+    private String formatMZ(double mz) {
+      return fractionalMZ ? mzForm.format(mz) : mzNominalForm.format(mz);
+    }
+  }
 }
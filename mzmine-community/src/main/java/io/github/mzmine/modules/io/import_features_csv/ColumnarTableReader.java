@@ -0,0 +1,223 @@
+/*
+ * Copyright (c) 2004-2025 The mzmine Development Team
+ *
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+
+package io.github.mzmine.modules.io.import_features_csv;
+
+import io.github.mzmine.modules.io.export_features_columnar.ColumnType;
+import io.github.mzmine.modules.io.export_features_columnar.ColumnarTableFormat;
+import java.io.EOFException;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * Reads files in the {@link ColumnarTableFormat} batch by batch. Each batch holds primitive arrays
+ * for numeric columns and String arrays for string columns.
+ */
+public class ColumnarTableReader implements AutoCloseable {
+
+  private final FileChannel channel;
+  private final List<ColumnSchema> schema;
+  private ByteBuffer buffer = ByteBuffer.allocate(1 << 16).order(ColumnarTableFormat.BYTE_ORDER);
+  private long totalRows = -1;
+
+  public ColumnarTableReader(@NotNull File file) throws IOException {
+    channel = FileChannel.open(file.toPath(), StandardOpenOption.READ);
+    try {
+      schema = readHeader();
+    } catch (IOException | RuntimeException e) {
+      channel.close();
+      throw e;
+    }
+  }
+
+  /**
+   * @return true if the file starts with the magic bytes of the {@link ColumnarTableFormat}
+   */
+  public static boolean isColumnarTable(@NotNull File file) {
+    try (var channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+      final ByteBuffer magic = ByteBuffer.allocate(ColumnarTableFormat.MAGIC.length);
+      while (magic.hasRemaining() && channel.read(magic) != -1) {
+        // read fully
+      }
+      return !magic.hasRemaining() && Arrays.equals(magic.array(), ColumnarTableFormat.MAGIC);
+    } catch (IOException e) {
+      return false;
+    }
+  }
+
+  private List<ColumnSchema> readHeader() throws IOException {
+    final byte[] magic = new byte[ColumnarTableFormat.MAGIC.length];
+    read(magic.length + 2 * Integer.BYTES).get(magic);
+    if (!Arrays.equals(magic, ColumnarTableFormat.MAGIC)) {
+      throw new IOException("Not a columnar feature table (wrong magic bytes)");
+    }
+    final int version = buffer.getInt();
+    if (version > ColumnarTableFormat.VERSION) {
+      throw new IOException("Unsupported columnar table version " + version);
+    }
+    final int numColumns = buffer.getInt();
+    final List<ColumnSchema> columns = new ArrayList<>(numColumns);
+    for (int i = 0; i < numColumns; i++) {
+      read(1 + Integer.BYTES);
+      final ColumnType type = ColumnType.fromCode(buffer.get());
+      final int nameLength = buffer.getInt();
+      final byte[] name = new byte[nameLength];
+      read(nameLength).get(name);
+      columns.add(new ColumnSchema(new String(name, StandardCharsets.UTF_8), type));
+    }
+    return List.copyOf(columns);
+  }
+
+  @NotNull
+  public List<ColumnSchema> getSchema() {
+    return schema;
+  }
+
+  /**
+   * @return index of the column or -1 if not present
+   */
+  public int indexOf(@NotNull String columnName) {
+    for (int i = 0; i < schema.size(); i++) {
+      if (schema.get(i).name().equals(columnName)) {
+        return i;
+      }
+    }
+    return -1;
+  }
+
+  /**
+   * @return the total number of rows, only known after the last batch was read, otherwise -1
+   */
+  public long getTotalRows() {
+    return totalRows;
+  }
+
+  /**
+   * @return the next batch or null after the last batch
+   */
+  @Nullable
+  public ColumnBatch readNextBatch() throws IOException {
+    if (totalRows != -1) {
+      return null;
+    }
+    final int rows = read(Integer.BYTES).getInt();
+    if (rows == 0) {
+      totalRows = read(Long.BYTES).getLong();
+      return null;
+    }
+
+    final Object[] columns = new Object[schema.size()];
+    for (int c = 0; c < columns.length; c++) {
+      final ColumnType type = schema.get(c).type();
+      columns[c] = switch (type) {
+        case DOUBLE -> {
+          final double[] values = new double[rows];
+          read(rows * Double.BYTES).asDoubleBuffer().get(values);
+          yield values;
+        }
+        case FLOAT -> {
+          final float[] values = new float[rows];
+          read(rows * Float.BYTES).asFloatBuffer().get(values);
+          yield values;
+        }
+        case INT -> {
+          final int[] values = new int[rows];
+          read(rows * Integer.BYTES).asIntBuffer().get(values);
+          yield values;
+        }
+        case STRING -> {
+          final int[] offsets = new int[rows + 1];
+          read((rows + 1) * Integer.BYTES).asIntBuffer().get(offsets);
+          final ByteBuffer bytes = read(offsets[rows]);
+          final String[] values = new String[rows];
+          for (int i = 0; i < rows; i++) {
+            final int length = offsets[i + 1] - offsets[i];
+            values[i] = new String(bytes.array(), bytes.position() + offsets[i], length,
+                StandardCharsets.UTF_8);
+          }
+          yield values;
+        }
+      };
+    }
+    return new ColumnBatch(rows, columns);
+  }
+
+  /**
+   * Reads exactly the number of bytes into the buffer. Buffer position is 0 and limit is bytes.
+   */
+  private ByteBuffer read(int bytes) throws IOException {
+    if (buffer.capacity() < bytes) {
+      buffer = ByteBuffer.allocate(bytes).order(ColumnarTableFormat.BYTE_ORDER);
+    }
+    buffer.clear().limit(bytes);
+    while (buffer.hasRemaining()) {
+      if (channel.read(buffer) == -1) {
+        throw new EOFException("Unexpected end of columnar table");
+      }
+    }
+    return buffer.flip();
+  }
+
+  @Override
+  public void close() throws IOException {
+    channel.close();
+  }
+
+  public record ColumnSchema(@NotNull String name, @NotNull ColumnType type) {
+
+  }
+
+  /**
+   * @param numRows number of rows in this batch
+   * @param columns double[], float[], int[] or String[] arrays in schema order
+   */
+  public record ColumnBatch(int numRows, @NotNull Object[] columns) {
+
+    public double[] getDoubles(int column) {
+      return (double[]) columns[column];
+    }
+
+    public float[] getFloats(int column) {
+      return (float[]) columns[column];
+    }
+
+    public int[] getInts(int column) {
+      return (int[]) columns[column];
+    }
+
+    public String[] getStrings(int column) {
+      return (String[]) columns[column];
+    }
+  }
+}
@@ -26,6 +26,7 @@
 package io.github.mzmine.modules.io.import_features_csv;
 
 import java.util.List;
+import io.github.mzmine.modules.io.export_features_columnar.ColumnarTableFormat;
 import io.github.mzmine.parameters.Parameter;
 import io.github.mzmine.parameters.impl.SimpleParameterSet;
 import io.github.mzmine.parameters.parametertypes.filenames.FileNamesParameter;
@@ -34,10 +35,11 @@ import javafx.stage.FileChooser.ExtensionFilter;
 
 public class CsvImportParameters extends SimpleParameterSet {
 
-  private static final List<ExtensionFilter> filters = List.of(new ExtensionFilter("csv", "*.csv"));
+  private static final List<ExtensionFilter> filters = List.of(new ExtensionFilter("csv", "*.csv"),
+      new ExtensionFilter("mzmine columnar table", "*." + ColumnarTableFormat.FILE_EXTENSION));
 
-  public static final FileNamesParameter filename =
-      new FileNamesParameter("csv", "CSV files to import", filters);
+  public static final FileNamesParameter filename = new FileNamesParameter("csv",
+      "CSV files or binary columnar tables (from the columnar export) to import", filters);
 
   public static final RawDataFilesParameter dataFiles = new RawDataFilesParameter();
 
@@ -37,7 +37,22 @@ import io.github.mzmine.datamodel.features.ModularFeature;
 import io.github.mzmine.datamodel.features.ModularFeatureList;
 import io.github.mzmine.datamodel.features.ModularFeatureListRow;
 import io.github.mzmine.datamodel.features.SimpleFeatureListAppliedMethod;
+import io.github.mzmine.datamodel.features.types.DataType;
+import io.github.mzmine.datamodel.features.types.DataTypes;
+import io.github.mzmine.datamodel.features.types.abstr.StringType;
+import io.github.mzmine.datamodel.features.types.numbers.AreaType;
+import io.github.mzmine.datamodel.features.types.numbers.HeightType;
+import io.github.mzmine.datamodel.features.types.numbers.IDType;
+import io.github.mzmine.datamodel.features.types.numbers.MZType;
+import io.github.mzmine.datamodel.features.types.numbers.RTType;
+import io.github.mzmine.datamodel.features.types.numbers.abstr.DoubleType;
+import io.github.mzmine.datamodel.features.types.numbers.abstr.FloatType;
+import io.github.mzmine.datamodel.features.types.numbers.abstr.IntegerType;
 import io.github.mzmine.datamodel.impl.SimpleDataPoint;
+import io.github.mzmine.modules.io.export_features_columnar.ColumnType;
+import io.github.mzmine.modules.io.export_features_csv.CSVExportModularTask;
+import io.github.mzmine.modules.io.import_features_csv.ColumnarTableReader.ColumnBatch;
+import io.github.mzmine.modules.io.import_features_csv.ColumnarTableReader.ColumnSchema;
 import io.github.mzmine.parameters.ParameterSet;
 import io.github.mzmine.taskcontrol.AbstractTask;
 import io.github.mzmine.taskcontrol.TaskStatus;
@@ -46,6 +61,7 @@ import io.github.mzmine.util.collections.BinarySearch.DefaultTo;
 import java.io.File;
 import java.io.FileReader;
 import java.time.Instant;
+import java.util.ArrayList;
 import java.util.List;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
@@ -84,6 +100,14 @@ public class CsvImportTask extends AbstractTask {
   public void run() {
     setStatus(TaskStatus.PROCESSING);
 
+    if (ColumnarTableReader.isColumnarTable(fileName)) {
+      importColumnarTable();
+      if (getStatus() == TaskStatus.PROCESSING) {
+        setStatus(TaskStatus.FINISHED);
+      }
+      return;
+    }
+
     try {
       FileReader fileReader = new FileReader(fileName);
       CSVReader csvReader = new CSVReader(fileReader);
@@ -180,4 +204,164 @@ public class CsvImportTask extends AbstractTask {
       setStatus(TaskStatus.FINISHED);
     }
   }
+
+  /**
+   * Imports a table written by the columnar export. Features are created for all selected raw data
+   * files that have a m/z column in the table. Row types are restored if they were exported as
+   * numbers or plain strings, see {@link #findRowColumns(ColumnarTableReader)}.
+   */
+  private void importColumnarTable() {
+    final RawDataFile[] dataFiles = parameters.getParameter(CsvImportParameters.dataFiles)
+        .getValue().getMatchingRawDataFiles();
+
+    try (var reader = new ColumnarTableReader(fileName)) {
+      final int idCol = reader.indexOf(DataTypes.get(IDType.class).getUniqueID());
+      final List<RowColumn> rowCols = findRowColumns(reader);
+
+      // map each raw data file to its feature columns
+      final List<RawDataFile> raws = new ArrayList<>();
+      final List<int[]> featureCols = new ArrayList<>();
+      for (RawDataFile raw : dataFiles) {
+        final String prefix = CSVExportModularTask.DATAFILE_PREFIX + ":" + raw.getName() + ":";
+        final int mzCol = reader.indexOf(prefix + DataTypes.get(MZType.class).getUniqueID());
+        if (mzCol == -1) {
+          continue;
+        }
+        raws.add(raw);
+        featureCols.add(new int[]{mzCol, //
+            reader.indexOf(prefix + DataTypes.get(RTType.class).getUniqueID()), //
+            reader.indexOf(prefix + DataTypes.get(HeightType.class).getUniqueID()), //
+            reader.indexOf(prefix + DataTypes.get(AreaType.class).getUniqueID())});
+      }
+      if (raws.isEmpty()) {
+        error("None of the selected raw data files is contained in " + fileName.getName());
+        return;
+      }
+
+      final ModularFeatureList newFeatureList = new ModularFeatureList(fileName.getName(),
+          storage, raws);
+      int counter = 0;
+      ColumnBatch batch;
+      while ((batch = reader.readNextBatch()) != null) {
+        for (int i = 0; i < batch.numRows(); i++) {
+          if (isCanceled()) {
+            return;
+          }
+          counter++;
+          final int id = idCol != -1 && batch.getInts(idCol)[i] != ColumnType.MISSING_INT
+              ? batch.getInts(idCol)[i] : counter;
+          final ModularFeatureListRow newRow = new ModularFeatureListRow(newFeatureList, id);
+
+          for (int r = 0; r < raws.size(); r++) {
+            final int[] cols = featureCols.get(r);
+            final double mz = batch.getDoubles(cols[0])[i];
+            if (Double.isNaN(mz)) {
+              continue;
+            }
+            final float rt = cols[1] == -1 ? 0f : batch.getFloats(cols[1])[i];
+            final float height = cols[2] == -1 ? 0f : batch.getFloats(cols[2])[i];
+            final float area = cols[3] == -1 ? 0f : batch.getFloats(cols[3])[i];
+            newRow.addFeature(raws.get(r),
+                createFeature(newFeatureList, raws.get(r), mz, rt, height, area));
+          }
+          for (RowColumn rowCol : rowCols) {
+            setRowValue(newRow, rowCol, batch, i);
+          }
+          newFeatureList.addRow(newRow);
+        }
+      }
+
+      for (RawDataFile raw : raws) {
+        newFeatureList.setSelectedScans(raw, raw.getScanNumbers(1));
+      }
+      newFeatureList.addDescriptionOfAppliedTask(
+          new SimpleFeatureListAppliedMethod(CsvImportModule.class, parameters,
+              getModuleCallDate()));
+      project.addFeatureList(newFeatureList);
+    } catch (Exception e) {
+      error("Could not import feature list from file " + fileName.getName() + ": "
+          + e.getMessage(), e);
+    }
+  }
+
+  /**
+   * Row types that can be restored without loss: primitive number columns and plain strings. Sub
+   * columns and all other types that are exported as formatted strings (e.g., annotations or
+   * ranges) are not parsed back.
+   */
+  private static List<RowColumn> findRowColumns(ColumnarTableReader reader) {
+    final List<ColumnSchema> schema = reader.getSchema();
+    final List<RowColumn> rowCols = new ArrayList<>();
+    for (int c = 0; c < schema.size(); c++) {
+      final ColumnSchema column = schema.get(c);
+      // sub columns and feature columns contain the header separator
+      if (column.name().contains(":")) {
+        continue;
+      }
+      final DataType<?> type = DataTypes.getTypeForId(column.name());
+      if (type == null || type instanceof IDType) {
+        continue;
+      }
+      final boolean restorable = switch (column.type()) {
+        case DOUBLE -> type instanceof DoubleType;
+        case FLOAT -> type instanceof FloatType;
+        case INT -> type instanceof IntegerType;
+        case STRING -> type instanceof StringType;
+      };
+      if (restorable) {
+        rowCols.add(new RowColumn(c, column.type(), type));
+      }
+    }
+    return rowCols;
+  }
+
+  @SuppressWarnings("unchecked")
+  private static void setRowValue(ModularFeatureListRow row, RowColumn rowCol, ColumnBatch batch,
+      int i) {
+    final int c = rowCol.index();
+    final Object value = switch (rowCol.columnType()) {
+      case DOUBLE -> {
+        final double v = batch.getDoubles(c)[i];
+        yield Double.isNaN(v) ? null : v;
+      }
+      case FLOAT -> {
+        final float v = batch.getFloats(c)[i];
+        yield Float.isNaN(v) ? null : v;
+      }
+      case INT -> {
+        final int v = batch.getInts(c)[i];
+        yield v == ColumnType.MISSING_INT ? null : v;
+      }
+      case STRING -> {
+        final String v = batch.getStrings(c)[i];
+        yield v.isEmpty() ? null : v;
+      }
+    };
+    if (value != null) {
+      row.set((DataType<Object>) rowCol.type(), value);
+    }
+  }
+
+  private Feature createFeature(ModularFeatureList flist, RawDataFile raw, double mz, float rt,
+      float height, float area) {
+    final float validRt = Float.isNaN(rt) ? 0f : rt;
+    final float validHeight = Float.isNaN(height) ? 0f : height;
+    final float validArea = Float.isNaN(area) ? 0f : area;
+    DataPoint[] dataPoints = {new SimpleDataPoint(mz, validHeight)};
+    Scan[] scans = {};
+    final Scan representativeScan = raw.binarySearchClosestScan(validRt, 1);
+    if (representativeScan != null) {
+      scans = new Scan[]{representativeScan};
+    }
+    return new ModularFeature(flist, raw, mz, validRt, validHeight, validArea, scans, dataPoints,
+        FeatureStatus.UNKNOWN, representativeScan, List.of(), Range.singleton(validRt),
+        Range.singleton(mz), Range.singleton(validHeight));
+  }
+
+  /**
+   * A row type column of a columnar table
+   */
+  private record RowColumn(int index, @NotNull ColumnType columnType, @NotNull DataType<?> type) {
+
+  }
 }
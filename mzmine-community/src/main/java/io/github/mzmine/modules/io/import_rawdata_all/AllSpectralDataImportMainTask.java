@@ -26,6 +26,9 @@
 package io.github.mzmine.modules.io.import_rawdata_all;
 
 import io.github.mzmine.datamodel.RawDataFile;
+import io.github.mzmine.datamodel.Scan;
+import io.github.mzmine.datamodel.featuredata.impl.SpectralStorageCodec;
+import io.github.mzmine.datamodel.impl.AbstractStorableSpectrum;
 import io.github.mzmine.modules.visualization.projectmetadata.color.ColorByMetadataParameters;
 import io.github.mzmine.modules.visualization.projectmetadata.color.ColorByMetadataTask;
 import io.github.mzmine.modules.visualization.projectmetadata.io.ProjectMetadataImportParameters;
@@ -40,10 +43,14 @@ import io.github.mzmine.taskcontrol.threadpools.ThreadPoolTask;
 import java.io.File;
 import java.time.Instant;
 import java.util.List;
+import java.util.logging.Logger;
 import org.jetbrains.annotations.NotNull;
 
 public class AllSpectralDataImportMainTask extends AbstractTask {
 
+  private static final Logger logger = Logger.getLogger(
+      AllSpectralDataImportMainTask.class.getName());
+
   private final ThreadPoolTask mainImportTask;
   private final File metadataFile;
   private final ParameterSet parameters;
@@ -83,6 +90,10 @@ public class AllSpectralDataImportMainTask extends AbstractTask {
       return;
     }
 
+    if (SpectralStorageCodec.getDefault() != SpectralStorageCodec.NONE) {
+      logCompressionRatios();
+    }
+
     if (metadataFile != null) {
       // load metadata after data files
       Task metaTask = loadMetadata();
@@ -116,6 +127,28 @@ public class AllSpectralDataImportMainTask extends AbstractTask {
     return task;
   }
 
+  /**
+   * Logs the ratio of uncompressed to stored bytes of the scan data for every imported file.
+   */
+  private void logCompressionRatios() {
+    for (RawDataFile file : AllSpectralDataImportParameters.getLoadedRawDataFiles(
+        ProjectService.getProject(), parameters)) {
+      long rawBytes = 0;
+      long storedBytes = 0;
+      for (Scan scan : file.getScans()) {
+        if (scan instanceof AbstractStorableSpectrum spectrum
+            && spectrum.getStorageCodec() != SpectralStorageCodec.NONE) {
+          rawBytes += spectrum.getNumberOfDataPoints() * 2L * Double.BYTES;
+          storedBytes += spectrum.getStoredByteSize();
+        }
+      }
+      if (storedBytes > 0) {
+        logger.info("Spectral data of %s compressed from %.1f MB to %.1f MB (ratio %.2f)".formatted(
+            file.getName(), rawBytes / 1E6, storedBytes / 1E6, (double) rawBytes / storedBytes));
+      }
+    }
+  }
+
   private Task loadMetadata() {
     var metaParams = ProjectMetadataImportParameters.create(metadataFile, false, false);
     var metadataTask = new ProjectMetadataImportTask(metaParams, moduleCallDate);
@@ -33,9 +33,11 @@ import io.github.mzmine.main.MZmineCore;
 import io.github.mzmine.modules.MZmineModule;
 import io.github.mzmine.modules.MZmineModuleCategory;
 import io.github.mzmine.modules.MZmineProcessingModule;
+import io.github.mzmine.modules.dataprocessing.featdet_massdetection.MassDetectionCache;
 import io.github.mzmine.modules.io.import_rawdata_all.spectral_processor.MsProcessor;
 import io.github.mzmine.modules.io.import_rawdata_all.spectral_processor.MsProcessorList;
 import io.github.mzmine.modules.io.import_rawdata_all.spectral_processor.ScanImportProcessorConfig;
+import io.github.mzmine.modules.io.import_rawdata_all.spectral_processor.processors.CachedMassDetectorMsProcessor;
 import io.github.mzmine.modules.io.import_rawdata_all.spectral_processor.processors.CropMzMsProcessor;
 import io.github.mzmine.modules.io.import_rawdata_all.spectral_processor.processors.DenormalizeInjectTimeMsProcessor;
 import io.github.mzmine.modules.io.import_rawdata_all.spectral_processor.processors.MassDetectorMsProcessor;
@@ -250,6 +252,10 @@ public class AllSpectralDataImportModule implements MZmineProcessingModule {
         AllSpectralDataImportParameters.advancedImport, null);
 
     ScanImportProcessorConfig scanProcessorConfig = createSpectralProcessors(advancedParam);
+    // mass lists of previous imports with the same parameters are reused, e.g., in batch reruns
+    final MassDetectionCache massDetectionCache =
+        scanProcessorConfig.processor().containsMassDetection()
+            ? MassDetectionCache.fromPreferences() : null;
 
     // start importing spectral libraries first
     final File[] libraryFiles = parameters.getValue(SpectralLibraryImportParameters.dataBaseFiles);
@@ -315,9 +321,13 @@ public class AllSpectralDataImportModule implements MZmineProcessingModule {
 
       final Task newTask;//
       if (advancedParam != null) {
+        final ScanImportProcessorConfig fileProcessorConfig = massDetectionCache == null
+            ? scanProcessorConfig : scanProcessorConfig.withMassDetectionCache(
+            fileToImport.originalFile(), massDetectionCache);
         newTask = createAdvancedTask(fileType, project, fileToImport.originalFile(),
-            scanProcessorConfig, AllSpectralDataImportModule.class, parameters, moduleCallDate,
+            fileProcessorConfig, AllSpectralDataImportModule.class, parameters, moduleCallDate,
             storage);
+        addCacheCommitListener(newTask, fileProcessorConfig.getCachedMassDetection());
       } else {
         newTask = createTask(fileType, project, fileToImport.originalFile(), scanProcessorConfig,
             AllSpectralDataImportModule.class, parameters, moduleCallDate, storage);
@@ -343,6 +353,25 @@ public class AllSpectralDataImportModule implements MZmineProcessingModule {
     return ExitCode.OK;
   }
 
+  /**
+   * Commits newly detected mass lists to the cache once the import finished, discards them on
+   * error or cancel
+   */
+  private static void addCacheCommitListener(@Nullable Task task,
+      @Nullable CachedMassDetectorMsProcessor cachedDetection) {
+    if (task == null || cachedDetection == null) {
+      return;
+    }
+    task.addTaskStatusListener((t, newStatus, oldStatus) -> {
+      switch (newStatus) {
+        case FINISHED -> cachedDetection.finish(true);
+        case ERROR, CANCELED -> cachedDetection.finish(false);
+        default -> {
+        }
+      }
+    });
+  }
+
   private boolean containsMissingFiles(File[] selectedFiles, String context) {
     final List<String> missingFiles = Arrays.stream(selectedFiles)
         .filter(Predicate.not(File::exists)).map(File::getAbsolutePath).toList();
@@ -384,7 +413,8 @@ public class AllSpectralDataImportModule implements MZmineProcessingModule {
       case MZDATA ->
           new MzDataImportTask(project, file, module, parameters, moduleCallDate, storage);
       case NETCDF ->
-          new NetCDFImportTask(project, file, module, parameters, moduleCallDate, storage);
+          new NetCDFImportTask(project, file, scanProcessorConfig, module, parameters,
+              moduleCallDate, storage);
       case THERMO_RAW ->
           new ThermoImportTaskDelegator(storage, moduleCallDate, file, scanProcessorConfig, project,
               parameters, module);
@@ -429,6 +459,9 @@ public class AllSpectralDataImportModule implements MZmineProcessingModule {
               moduleCallDate, storage);
       case MZXML -> new MzXMLImportTask(project, file, scanProcessorConfig, module, parameters,
           moduleCallDate, storage);
+      case NETCDF ->
+          new NetCDFImportTask(project, file, scanProcessorConfig, module, parameters,
+              moduleCallDate, storage);
       case BRUKER_TDF ->
           new TDFImportTask(project, file, storage, scanProcessorConfig, module, parameters,
               moduleCallDate);
@@ -446,7 +479,7 @@ public class AllSpectralDataImportModule implements MZmineProcessingModule {
           new MSConvertImportTask(storage, moduleCallDate, file, scanProcessorConfig, project,
               module, parameters);
       // all unsupported tasks are wrapped to apply import and mass detection separately
-      case MZDATA, NETCDF, MZML_ZIP, MZML_GZIP, ICPMSMS_CSV ->
+      case MZDATA, MZML_ZIP, MZML_GZIP, ICPMSMS_CSV ->
           createWrappedAdvancedTask(fileType, project, file, scanProcessorConfig, module,
               parameters, moduleCallDate, storage, storageMassLists);
     };
@@ -28,8 +28,9 @@ import io.github.mzmine.datamodel.MetadataOnlyScan;
 
 public record MobilitySpectralArrays(double mobility, SimpleSpectralArrays spectrum) {
 
-  public MobilitySpectralArrays process(MetadataOnlyScan scan, ScanImportProcessorConfig config) {
-    final SimpleSpectralArrays arrays = config.processor().processScan(scan, spectrum);
+  public MobilitySpectralArrays process(MetadataOnlyScan scan, ScanImportProcessorConfig config,
+      ScanImportStatistics statistics) {
+    final SimpleSpectralArrays arrays = statistics.process(config, scan, spectrum);
     return new MobilitySpectralArrays(mobility, arrays);
   }
 }
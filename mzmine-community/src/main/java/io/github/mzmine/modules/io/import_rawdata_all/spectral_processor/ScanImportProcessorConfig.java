@@ -25,14 +25,18 @@
 
 package io.github.mzmine.modules.io.import_rawdata_all.spectral_processor;
 
+import io.github.mzmine.modules.dataprocessing.featdet_massdetection.MassDetectionCache;
+import io.github.mzmine.modules.io.import_rawdata_all.spectral_processor.processors.CachedMassDetectorMsProcessor;
 import io.github.mzmine.modules.io.import_rawdata_all.spectral_processor.processors.MassDetectorMsProcessor;
 import io.github.mzmine.modules.io.import_rawdata_all.spectral_processor.processors.SortByMzMsProcessor;
 import io.github.mzmine.parameters.parametertypes.selectors.ScanSelection;
+import java.io.File;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Objects;
 import java.util.Optional;
 import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
 
 /**
  * Configuration that controls scan filtering and processing during data import
@@ -65,6 +69,42 @@ public final class ScanImportProcessorConfig {
     return new ScanImportProcessorConfig(ScanSelection.ALL_SCANS, new MsProcessorList(processors));
   }
 
+  /**
+   * Mass detection of this config for a single raw file that reuses the mass lists of previous
+   * imports from the cache
+   *
+   * @param rawFile the imported file
+   * @param cache   the mass detection cache
+   * @return a config with a {@link CachedMassDetectorMsProcessor} or this config if there is no
+   * mass detection or the raw file cannot be read
+   */
+  @NotNull
+  public ScanImportProcessorConfig withMassDetectionCache(@NotNull File rawFile,
+      @NotNull MassDetectionCache cache) {
+    final MassDetectorMsProcessor detector = processor.findFirst(MassDetectorMsProcessor.class)
+        .orElse(null);
+    if (detector == null) {
+      return this;
+    }
+    final String key = MassDetectionCache.createImportKey(rawFile,
+        detector.getAdvancedParameters());
+    if (key == null) {
+      return this;
+    }
+    final var cached = new CachedMassDetectorMsProcessor(detector, cache, key, rawFile.getName());
+    final List<MsProcessor> processors = processor.stream()
+        .map(step -> step == detector ? cached : step).toList();
+    return new ScanImportProcessorConfig(scanFilter, new MsProcessorList(processors));
+  }
+
+  /**
+   * @return the cached mass detection of this config or null
+   */
+  @Nullable
+  public CachedMassDetectorMsProcessor getCachedMassDetection() {
+    return processor.findFirst(CachedMassDetectorMsProcessor.class).orElse(null);
+  }
+
   @Override
   public String toString() {
     return "ScanImportProcessorConfig: scanFilter=%s\napplyMassDetection: MS1=%s; MS2..n=%s\n%s".formatted(
@@ -0,0 +1,129 @@
+/*
+ * Copyright (c) 2004-2025 The mzmine Development Team
+ *
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+
+package io.github.mzmine.modules.io.import_rawdata_all.spectral_processor;
+
+import io.github.mzmine.datamodel.Scan;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * Tracks the throughput and heap use of a single data file import. Spectra are processed with
+ * {@link #process(ScanImportProcessorConfig, Scan, SimpleSpectralArrays)}, which counts the data
+ * points before and after processing. The used heap is sampled every {@link #HEAP_SAMPLE_SCANS}
+ * scans, so the reported peak is an approximation that also includes concurrent tasks.
+ * <p>
+ * Thread safe, so that one instance can be shared by the workers of an import task.
+ */
+public final class ScanImportStatistics {
+
+  public static final int HEAP_SAMPLE_SCANS = 64;
+
+  private final long startNanos = System.nanoTime();
+  private final AtomicLong scans = new AtomicLong();
+  private final LongAdder inputDataPoints = new LongAdder();
+  private final LongAdder outputDataPoints = new LongAdder();
+  private final AtomicLong peakHeapBytes = new AtomicLong();
+
+  public ScanImportStatistics() {
+    sampleHeap();
+  }
+
+  /**
+   * Applies the processors of the config and records the result
+   *
+   * @return the processed data
+   */
+  @NotNull
+  public SimpleSpectralArrays process(@NotNull ScanImportProcessorConfig config,
+      @Nullable Scan metadataOnlyScan, @NotNull SimpleSpectralArrays spectrum) {
+    final int input = spectrum.getNumberOfDataPoints();
+    final SimpleSpectralArrays processed = config.processor().processScan(metadataOnlyScan, spectrum);
+    addScan(input, processed.getNumberOfDataPoints());
+    return processed;
+  }
+
+  /**
+   * Records a scan that was processed elsewhere
+   */
+  public void addScan(int inputDataPoints, int outputDataPoints) {
+    this.inputDataPoints.add(inputDataPoints);
+    this.outputDataPoints.add(outputDataPoints);
+    if (scans.getAndIncrement() % HEAP_SAMPLE_SCANS == 0) {
+      sampleHeap();
+    }
+  }
+
+  private void sampleHeap() {
+    final Runtime runtime = Runtime.getRuntime();
+    peakHeapBytes.accumulateAndGet(runtime.totalMemory() - runtime.freeMemory(), Math::max);
+  }
+
+  public long getScans() {
+    return scans.get();
+  }
+
+  public long getInputDataPoints() {
+    return inputDataPoints.sum();
+  }
+
+  public long getOutputDataPoints() {
+    return outputDataPoints.sum();
+  }
+
+  /**
+   * @return the highest sampled heap use in bytes
+   */
+  public long getPeakHeapBytes() {
+    return peakHeapBytes.get();
+  }
+
+  private double getSeconds() {
+    return Math.max((System.nanoTime() - startNanos) / 1E9, 1E-9);
+  }
+
+  /**
+   * @return the current throughput and peak heap for the task description
+   */
+  @NotNull
+  public String progress() {
+    final double seconds = getSeconds();
+    return "%d scans, %.0f scans/s, %.2f M data points/s, peak heap ~%d MB".formatted(getScans(),
+        getScans() / seconds, getInputDataPoints() / seconds / 1E6,
+        getPeakHeapBytes() / (1024 * 1024));
+  }
+
+  /**
+   * @return a one line summary for the log
+   */
+  @NotNull
+  public String summary(@NotNull String fileName) {
+    sampleHeap();
+    return "Imported %s: %d data points (%d after processing) in %.1f s, %s".formatted(fileName,
+        getInputDataPoints(), getOutputDataPoints(), getSeconds(), progress());
+  }
+}
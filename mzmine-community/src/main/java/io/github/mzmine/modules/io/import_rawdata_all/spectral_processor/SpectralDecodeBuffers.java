@@ -0,0 +1,127 @@
+/*
+ * Copyright (c) 2004-2025 The mzmine Development Team
+ *
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+
+package io.github.mzmine.modules.io.import_rawdata_all.spectral_processor;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * Reusable per thread buffers to decode the binary spectral data during import. Spectra are decoded
+ * one after the other, so base64 decoding and zlib decompression reuse the same byte arrays and
+ * {@link Inflater} instead of allocating them for every spectrum.
+ * <p>
+ * The returned buffers are only valid until the next call on the same thread and must never be
+ * stored. Import tasks call {@link #release()} when they finished decoding, to free the native
+ * memory of the {@link Inflater} instead of keeping it for the lifetime of the thread.
+ */
+public final class SpectralDecodeBuffers {
+
+  private static final ThreadLocal<SpectralDecodeBuffers> BUFFERS = new ThreadLocal<>();
+
+  private final Inflater inflater = new Inflater();
+  private byte[] decoded = new byte[1024];
+  private byte[] inflated = new byte[4096];
+
+  private SpectralDecodeBuffers() {
+  }
+
+  /**
+   * @return the buffers of the current thread
+   */
+  @NotNull
+  public static SpectralDecodeBuffers get() {
+    SpectralDecodeBuffers buffers = BUFFERS.get();
+    if (buffers == null) {
+      buffers = new SpectralDecodeBuffers();
+      BUFFERS.set(buffers);
+    }
+    return buffers;
+  }
+
+  /**
+   * Ends the {@link Inflater} and drops the buffers of the current thread. The next call to
+   * {@link #get()} creates new buffers.
+   */
+  public static void release() {
+    final SpectralDecodeBuffers buffers = BUFFERS.get();
+    if (buffers != null) {
+      BUFFERS.remove();
+      buffers.inflater.end();
+    }
+  }
+
+  /**
+   * Decodes base64 text into the decode buffer
+   *
+   * @return array backed buffer from position 0 to the number of decoded bytes
+   */
+  @NotNull
+  public ByteBuffer decodeBase64(@NotNull String base64) {
+    final byte[] src = base64.getBytes(StandardCharsets.ISO_8859_1);
+    // upper bound of the decoded length
+    final int maxLength = (src.length / 4 + 1) * 3;
+    if (decoded.length < maxLength) {
+      decoded = new byte[maxLength];
+    }
+    final int length = Base64.getDecoder().decode(src, decoded);
+    return ByteBuffer.wrap(decoded, 0, length).slice();
+  }
+
+  /**
+   * Decompresses zlib compressed data into the inflate buffer
+   *
+   * @param compressed     the compressed bytes from position to limit
+   * @param expectedLength the expected number of decompressed bytes or -1 if unknown
+   * @return array backed buffer from position 0 to the number of decompressed bytes
+   */
+  @NotNull
+  public ByteBuffer inflate(@NotNull ByteBuffer compressed, int expectedLength)
+      throws DataFormatException {
+    inflater.reset();
+    inflater.setInput(compressed);
+    if (inflated.length < expectedLength) {
+      inflated = new byte[expectedLength];
+    }
+    int length = 0;
+    while (!inflater.finished()) {
+      if (length == inflated.length) {
+        final byte[] larger = new byte[inflated.length * 2];
+        System.arraycopy(inflated, 0, larger, 0, length);
+        inflated = larger;
+      }
+      final int count = inflater.inflate(inflated, length, inflated.length - length);
+      if (count == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+        break;
+      }
+      length += count;
+    }
+    return ByteBuffer.wrap(inflated, 0, length).slice();
+  }
+}
@@ -0,0 +1,123 @@
+/*
+ * Copyright (c) 2004-2025 The mzmine Development Team
+ *
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+
+package io.github.mzmine.modules.io.import_rawdata_all.spectral_processor.processors;
+
+import io.github.mzmine.datamodel.MassSpectrumType;
+import io.github.mzmine.datamodel.Scan;
+import io.github.mzmine.modules.dataprocessing.featdet_massdetection.MassDetectionCache;
+import io.github.mzmine.modules.dataprocessing.featdet_massdetection.MassDetectionCache.CachedMassLists;
+import io.github.mzmine.modules.io.import_rawdata_all.spectral_processor.SimpleSpectralArrays;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Logger;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * Mass detection during the import of one raw file that reuses the mass lists of a previous import
+ * of the same file with the same advanced import parameters from the {@link MassDetectionCache}.
+ * Scans are matched by their scan number and the hash of the spectrum that is passed to the mass
+ * detector. This makes lookups independent of the processing order and distinguishes mobility
+ * scans of the same frame. Scans without a cached mass list are detected and, if there was no
+ * cache entry yet, written to a new entry on {@link #finish(boolean)}.
+ */
+public class CachedMassDetectorMsProcessor extends MassDetectorMsProcessor {
+
+  private static final Logger logger = Logger.getLogger(
+      CachedMassDetectorMsProcessor.class.getName());
+
+  private final @NotNull String fileName;
+  private final @Nullable CachedMassLists cached;
+  private final @Nullable MassDetectionCache.Writer writer;
+  private final AtomicInteger cacheHits = new AtomicInteger();
+  private final AtomicInteger detectedScans = new AtomicInteger();
+
+  /**
+   * @param detector the mass detectors to apply on cache misses
+   * @param cache    the cache
+   * @param key      the key of the raw file, see {@link MassDetectionCache#createImportKey}
+   * @param fileName the raw file name for logging
+   */
+  public CachedMassDetectorMsProcessor(@NotNull MassDetectorMsProcessor detector,
+      @NotNull MassDetectionCache cache, @NotNull String key, @NotNull String fileName) {
+    super(detector);
+    this.fileName = fileName;
+    cached = cache.get(key);
+    // only the first import writes the entry
+    writer = cached == null ? cache.createWriter(key) : null;
+  }
+
+  @Override
+  public @NotNull SimpleSpectralArrays processScan(final @Nullable Scan metadataOnlyScan,
+      final @NotNull SimpleSpectralArrays spectrum) {
+    if (!appliesTo(metadataOnlyScan)) {
+      return spectrum;
+    }
+
+    final int scanNumber = metadataOnlyScan == null ? -1 : metadataOnlyScan.getScanNumber();
+    final int msLevel = metadataOnlyScan == null ? 1 : metadataOnlyScan.getMSLevel();
+    final MassSpectrumType type =
+        metadataOnlyScan == null ? null : metadataOnlyScan.getSpectrumType();
+    final long inputHash = MassDetectionCache.hashSpectrum(scanNumber, msLevel,
+        type == null ? -1 : type.ordinal(), spectrum.mzs(), spectrum.intensities());
+
+    if (cached != null) {
+      final int index = cached.indexOf(scanNumber, inputHash);
+      if (index != -1) {
+        cacheHits.incrementAndGet();
+        return new SimpleSpectralArrays(cached.getMzValues(index),
+            cached.getIntensityValues(index));
+      }
+    }
+
+    final SimpleSpectralArrays detected = super.processScan(metadataOnlyScan, spectrum);
+    detectedScans.incrementAndGet();
+    if (writer != null) {
+      // scans may be processed in parallel
+      synchronized (writer) {
+        writer.append(scanNumber, inputHash, detected.mzs(), detected.intensities());
+      }
+    }
+    return detected;
+  }
+
+  /**
+   * Commits the new cache entry after a successful import or discards it
+   *
+   * @param success true if the import finished, false on error or cancel
+   */
+  public void finish(boolean success) {
+    if (writer != null) {
+      synchronized (writer) {
+        if (success) {
+          writer.commit();
+        }
+        writer.close();
+      }
+    }
+    logger.fine(() -> "Mass detection during import of %s: %d cached and %d detected scans"
+        .formatted(fileName, cacheHits.get(), detectedScans.get()));
+  }
+}
@@ -43,8 +43,10 @@ public class MassDetectorMsProcessor implements MsProcessor {
   private final MassDetector ms1Detector;
   private final MassDetector ms2Detector;
   private final String description;
+  private final ParameterSet advanced;
 
   public MassDetectorMsProcessor(@NotNull ParameterSet advanced) {
+    this.advanced = advanced;
     StringBuilder descb = new StringBuilder("Applying mass detection on scans:");
 
     ms1Detector = buildDetector(advanced, AdvancedSpectraImportParameters.msMassDetection, descb,
@@ -55,6 +57,16 @@ public class MassDetectorMsProcessor implements MsProcessor {
     this.description = descb.toString();
   }
 
+  /**
+   * Shares the mass detectors of another processor
+   */
+  protected MassDetectorMsProcessor(@NotNull MassDetectorMsProcessor other) {
+    ms1Detector = other.ms1Detector;
+    ms2Detector = other.ms2Detector;
+    description = other.description;
+    advanced = other.advanced;
+  }
+
   @Nullable
   private MassDetector buildDetector(final @NotNull ParameterSet advanced,
       final OptionalParameter<ModuleOptionsEnumComboParameter<MassDetectors>> msMassDetection,
@@ -86,6 +98,14 @@ public class MassDetectorMsProcessor implements MsProcessor {
   }
 
 
+  /**
+   * @return true if {@link #processScan(Scan, SimpleSpectralArrays)} applies a mass detector
+   */
+  protected boolean appliesTo(final @Nullable Scan metadataOnlyScan) {
+    return isMs1Active() || (isMsnActive() && metadataOnlyScan != null
+                             && metadataOnlyScan.getMSLevel() > 1);
+  }
+
   @Override
   public @NotNull SimpleSpectralArrays processScan(final @Nullable Scan metadataOnlyScan,
       final @NotNull SimpleSpectralArrays spectrum) {
@@ -106,6 +126,13 @@ public class MassDetectorMsProcessor implements MsProcessor {
     return ms2Detector != null;
   }
 
+  /**
+   * @return the advanced import parameters that define the mass detectors
+   */
+  public @NotNull ParameterSet getAdvancedParameters() {
+    return advanced;
+  }
+
   @Override
   public @NotNull String description() {
     return description;
@@ -0,0 +1,204 @@
+/*
+ * Copyright (c) 2004-2025 The mzmine Development Team
+ *
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+
+package io.github.mzmine.modules.io.import_rawdata_imzml;
+
+import com.alanmrace.jimzmlparser.mzml.BinaryDataArray;
+import com.alanmrace.jimzmlparser.mzml.CVParam;
+import java.io.File;
+import java.io.IOException;
+import java.lang.foreign.Arena;
+import java.lang.foreign.MemorySegment;
+import java.lang.foreign.ValueLayout;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.file.StandardOpenOption;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * Reads the binary arrays of an imzML .ibd file from a memory mapped segment. The offsets, lengths
+ * and data types are taken from the imzML metadata, so pixel spectra can be decoded by multiple
+ * threads without going through the shared file access of the imzML parser. Only uncompressed
+ * arrays are supported, see {@link #locate(BinaryDataArray)}.
+ */
+final class ImzMLIbdReader implements AutoCloseable {
+
+  // imzML external data
+  private static final String CV_EXTERNAL_OFFSET = "IMS:1000102";
+  private static final String CV_EXTERNAL_ARRAY_LENGTH = "IMS:1000103";
+  // binary data types and compression
+  private static final String CV_FLOAT_32 = "MS:1000521";
+  private static final String CV_FLOAT_64 = "MS:1000523";
+  private static final String CV_INT_32 = "MS:1000519";
+  private static final String CV_INT_64 = "MS:1000522";
+  private static final String CV_ZLIB_COMPRESSION = "MS:1000574";
+
+  // .ibd files are always little endian
+  private static final ValueLayout.OfFloat FLOAT_LE = ValueLayout.JAVA_FLOAT_UNALIGNED.withOrder(
+      ByteOrder.LITTLE_ENDIAN);
+  private static final ValueLayout.OfDouble DOUBLE_LE = ValueLayout.JAVA_DOUBLE_UNALIGNED.withOrder(
+      ByteOrder.LITTLE_ENDIAN);
+  private static final ValueLayout.OfInt INT_LE = ValueLayout.JAVA_INT_UNALIGNED.withOrder(
+      ByteOrder.LITTLE_ENDIAN);
+  private static final ValueLayout.OfLong LONG_LE = ValueLayout.JAVA_LONG_UNALIGNED.withOrder(
+      ByteOrder.LITTLE_ENDIAN);
+
+  private final Arena arena;
+  private final MemorySegment segment;
+
+  ImzMLIbdReader(@NotNull File ibdFile) throws IOException {
+    arena = Arena.ofShared();
+    try (FileChannel channel = FileChannel.open(ibdFile.toPath(), StandardOpenOption.READ)) {
+      segment = channel.map(MapMode.READ_ONLY, 0, channel.size(), arena);
+    } catch (IOException | RuntimeException e) {
+      arena.close();
+      throw e;
+    }
+  }
+
+  /**
+   * @param imzmlFile the imzML file
+   * @return the .ibd file next to the imzML file or null if it does not exist
+   */
+  @Nullable
+  static File findIbdFile(@NotNull File imzmlFile) {
+    final String name = imzmlFile.getName();
+    final int dot = name.lastIndexOf('.');
+    final String baseName = dot < 0 ? name : name.substring(0, dot);
+    for (String extension : new String[]{".ibd", ".IBD"}) {
+      final File ibd = new File(imzmlFile.getParentFile(), baseName + extension);
+      if (ibd.isFile()) {
+        return ibd;
+      }
+    }
+    return null;
+  }
+
+  /**
+   * @param array a binary data array of a spectrum
+   * @return the location of the values in the .ibd file or null if the array is compressed or does
+   * not define the external offset, length or data type
+   */
+  @Nullable
+  static ArrayLocation locate(@Nullable BinaryDataArray array) {
+    if (array == null || array.getCVParam(CV_ZLIB_COMPRESSION) != null) {
+      return null;
+    }
+    final CVParam offset = array.getCVParam(CV_EXTERNAL_OFFSET);
+    final CVParam length = array.getCVParam(CV_EXTERNAL_ARRAY_LENGTH);
+    final ValueType type = ValueType.of(array);
+    if (offset == null || length == null || type == null) {
+      return null;
+    }
+    // offsets may exceed the int range, doubles are exact up to 2^53
+    return new ArrayLocation((long) offset.getValueAsDouble(), length.getValueAsInteger(), type);
+  }
+
+  /**
+   * @return true if the location lies within the mapped file
+   */
+  boolean contains(@NotNull ArrayLocation location) {
+    return location.offset() >= 0 && location.length() >= 0
+        && location.endOffset() <= segment.byteSize();
+  }
+
+  /**
+   * Thread safe
+   *
+   * @return the values at this location converted to double
+   */
+  double[] read(@NotNull ArrayLocation location) {
+    final int n = location.length();
+    final long offset = location.offset();
+    final double[] values = new double[n];
+    switch (location.type()) {
+      case FLOAT_64 -> MemorySegment.copy(segment, DOUBLE_LE, offset, values, 0, n);
+      case FLOAT_32 -> {
+        for (int i = 0; i < n; i++) {
+          values[i] = segment.get(FLOAT_LE, offset + (long) i * Float.BYTES);
+        }
+      }
+      case INT_32 -> {
+        for (int i = 0; i < n; i++) {
+          values[i] = segment.get(INT_LE, offset + (long) i * Integer.BYTES);
+        }
+      }
+      case INT_64 -> {
+        for (int i = 0; i < n; i++) {
+          values[i] = segment.get(LONG_LE, offset + (long) i * Long.BYTES);
+        }
+      }
+    }
+    return values;
+  }
+
+  /**
+   * Unmaps the file. All reads need to be finished.
+   */
+  @Override
+  public void close() {
+    arena.close();
+  }
+
+  enum ValueType {
+    FLOAT_32(Float.BYTES), FLOAT_64(Double.BYTES), INT_32(Integer.BYTES), INT_64(Long.BYTES);
+
+    private final int bytes;
+
+    ValueType(int bytes) {
+      this.bytes = bytes;
+    }
+
+    @Nullable
+    private static ValueType of(@NotNull BinaryDataArray array) {
+      if (array.getCVParam(CV_FLOAT_64) != null) {
+        return FLOAT_64;
+      }
+      if (array.getCVParam(CV_FLOAT_32) != null) {
+        return FLOAT_32;
+      }
+      if (array.getCVParam(CV_INT_32) != null) {
+        return INT_32;
+      }
+      if (array.getCVParam(CV_INT_64) != null) {
+        return INT_64;
+      }
+      return null;
+    }
+  }
+
+  /**
+   * @param offset byte offset in the .ibd file
+   * @param length number of values
+   */
+  record ArrayLocation(long offset, int length, @NotNull ValueType type) {
+
+    long endOffset() {
+      return offset + (long) length * type.bytes;
+    }
+  }
+}
@@ -46,12 +46,13 @@ import io.github.mzmine.datamodel.RawDataFile;
 import io.github.mzmine.datamodel.RawDataImportTask;
 import io.github.mzmine.datamodel.features.SimpleFeatureListAppliedMethod;
 import io.github.mzmine.datamodel.impl.SimpleImagingScan;
-import io.github.mzmine.datamodel.impl.SimpleScan;
 import io.github.mzmine.datamodel.impl.builders.SimpleBuildingScan;
 import io.github.mzmine.datamodel.impl.masslist.ScanPointerMassList;
 import io.github.mzmine.modules.MZmineModule;
 import io.github.mzmine.modules.io.import_rawdata_all.spectral_processor.ScanImportProcessorConfig;
+import io.github.mzmine.modules.io.import_rawdata_all.spectral_processor.ScanImportStatistics;
 import io.github.mzmine.modules.io.import_rawdata_all.spectral_processor.SimpleSpectralArrays;
+import io.github.mzmine.modules.io.import_rawdata_imzml.ImzMLIbdReader.ArrayLocation;
 import io.github.mzmine.parameters.ParameterSet;
 import io.github.mzmine.project.impl.ImagingRawDataFileImpl;
 import io.github.mzmine.taskcontrol.AbstractTask;
@@ -62,13 +63,16 @@ import io.github.mzmine.util.scans.ScanUtils;
 import java.io.File;
 import java.io.IOException;
 import java.time.Instant;
+import java.util.ArrayList;
 import java.util.Hashtable;
-import java.util.LinkedList;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
+import java.util.stream.IntStream;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
@@ -86,21 +90,18 @@ public class ImzMLImportTask extends AbstractTask implements RawDataImportTask {
   private final ImagingRawDataFile newMZmineFile;
   private final ParameterSet parameters;
   private final Class<? extends MZmineModule> module;
-  private int totalScans = 0, parsedScans;
+  private final AtomicInteger parsedScans = new AtomicInteger();
+  private int totalScans = 0;
+  private volatile ScanImportStatistics importStatistics;
 
   private int lastScanNumber = 0;
 
   private final Map<String, Integer> scanIdTable = new Hashtable<>();
 
-  /*
-   * This stack stores at most 20 consecutive scans. This window serves to find possible fragments
-   * (current scan) that belongs to any of the stored scans in the stack. The reason of the size
-   * follows the concept of neighborhood of scans and all his fragments. These solution is
-   * implemented because exists the possibility to find fragments of one scan after one or more full
-   * scans.
+  /**
+   * Number of pixel spectra decoded and processed by one worker
    */
-  private static final int PARENT_STACK_SIZE = 20;
-  private final LinkedList<SimpleScan> parentStack = new LinkedList<>();
+  private static final int DECODE_CHUNK_SIZE = 256;
 
   public ImzMLImportTask(MZmineProject project, File fileToOpen,
       final @NotNull ScanImportProcessorConfig scanProcessorConfig,
@@ -118,7 +119,7 @@ public class ImzMLImportTask extends AbstractTask implements RawDataImportTask {
 
   @Override
   public double getFinishedPercentage() {
-    return totalScans == 0 ? 0 : (double) parsedScans / totalScans;
+    return totalScans == 0 ? 0 : (double) parsedScans.get() / totalScans;
   }
 
   /**
@@ -129,6 +130,8 @@ public class ImzMLImportTask extends AbstractTask implements RawDataImportTask {
 
     setStatus(TaskStatus.PROCESSING);
     logger.info("Started parsing file " + file);
+    final ScanImportStatistics importStatistics = new ScanImportStatistics();
+    this.importStatistics = importStatistics;
 
     ImzML imzml;
     try {
@@ -136,81 +139,51 @@ public class ImzMLImportTask extends AbstractTask implements RawDataImportTask {
 
       SpectrumList spectra = imzml.getRun().getSpectrumList();
       totalScans = spectra.size();
-      for (int i = 0; i < totalScans; i++) {
-
-        if (isCanceled()) {
-          return;
-        }
-
-        Spectrum spectrum = spectra.get(i);
 
-        // Ignore scans that are not MS, e.g. UV
-        if (!isMsSpectrum(spectrum)) {
-          parsedScans++;
-          continue;
+      final File ibdFile = ImzMLIbdReader.findIbdFile(file);
+      try (ImzMLIbdReader ibdReader = ibdFile == null ? null : new ImzMLIbdReader(ibdFile)) {
+        if (ibdReader == null) {
+          logger.fine(() -> "No .ibd file found next to " + file
+              + ", reading all spectra through the imzML parser");
         }
 
-        String scanId = spectrum.getID();
-        int scanNumber = convertScanIdToScanNumber(scanId);
-
-        // Extract scan data
-        int msLevel = extractMSLevel(spectrum);
-        float retentionTime = extractRetentionTime(spectrum);
-        PolarityType polarity = extractPolarity(spectrum);
-        int parentScan = extractParentScanNumber(spectrum);
-        double precursorMz = extractPrecursorMz(spectrum);
-        int precursorCharge = extractPrecursorCharge(spectrum);
-        String scanDefinition = extractScanDefinition(spectrum);
-        // imaging
-        Coordinates coord = extractCoordinates(spectrum);
-
-        // TODO find out if spectrum type is encoded in imzml file
-        var metadataScan = new SimpleBuildingScan(scanNumber, msLevel, polarity,
-            MassSpectrumType.CENTROIDED, retentionTime, precursorMz, precursorCharge);
-        if (!scanProcessorConfig.scanFilter().matches(metadataScan)) {
-          // skip parsing of data and skip this scan completely
-          parsedScans++;
-          continue;
-        }
-
-        double[] mzValues = extractMzValues(spectrum);
-        double[] intensityValues = extractIntensityValues(spectrum);
-        // Auto-detect whether this scan is centroided
-        SimpleSpectralArrays data = new SimpleSpectralArrays(mzValues, intensityValues);
-        MassSpectrumType spectrumType = ScanUtils.detectSpectrumType(mzValues, intensityValues);
-
-        data = scanProcessorConfig.processor().processScan(metadataScan, data);
-
-        if (scanProcessorConfig.isMassDetectActive(msLevel)) {
-          spectrumType = MassSpectrumType.CENTROIDED;
+        // the metadata and the parser are not thread safe, read them in file order
+        final List<PixelSpectrum> pixels = new ArrayList<>(totalScans);
+        for (int i = 0; i < totalScans; i++) {
+          if (isCanceled()) {
+            return;
+          }
+          final PixelSpectrum pixel = readPixelMetadata(spectra.get(i), ibdReader,
+              importStatistics);
+          if (pixel == null) {
+            parsedScans.incrementAndGet();
+            continue;
+          }
+          pixels.add(pixel);
         }
 
-        SimpleImagingScan scan = new SimpleImagingScan(newMZmineFile, scanNumber, msLevel,
-            retentionTime, precursorMz, precursorCharge, data.mzs(), data.intensities(),
-            spectrumType, polarity, scanDefinition, null, coord);
-
-        if (scanProcessorConfig.isMassDetectActive(msLevel)) {
-          scan.addMassList(new ScanPointerMassList(scan));
+        // decode and process the data points in parallel chunks, the scans keep the file order
+        final SimpleImagingScan[] scans = new SimpleImagingScan[pixels.size()];
+        final int numChunks = (pixels.size() + DECODE_CHUNK_SIZE - 1) / DECODE_CHUNK_SIZE;
+        IntStream.range(0, numChunks).parallel().forEach(chunk -> {
+          final int end = Math.min(pixels.size(), (chunk + 1) * DECODE_CHUNK_SIZE);
+          for (int i = chunk * DECODE_CHUNK_SIZE; i < end; i++) {
+            if (isCanceled()) {
+              return;
+            }
+            final PixelSpectrum pixel = pixels.get(i);
+            scans[i] = pixel.scan() != null ? pixel.scan()
+                : createScan(pixel, ibdReader, importStatistics);
+            parsedScans.incrementAndGet();
+          }
+        });
+        if (isCanceled()) {
+          return;
         }
 
-        /*
-         * Verify the size of parentStack. The actual size of the window to cover possible
-         * candidates is defined by limitSize.
-         */
-        if (parentStack.size() > PARENT_STACK_SIZE) {
-          io.github.mzmine.datamodel.Scan firstScan = parentStack.removeLast();
-          newMZmineFile.addScan(firstScan);
+        for (SimpleImagingScan scan : scans) {
+          newMZmineFile.addScan(scan);
         }
-
-        parentStack.addFirst(scan);
-
-        parsedScans++;
-
-      }
-
-      while (!parentStack.isEmpty()) {
-        io.github.mzmine.datamodel.Scan scan = parentStack.removeLast();
-        newMZmineFile.addScan(scan);
       }
       newMZmineFile.getScans().sort(io.github.mzmine.datamodel.Scan::compareTo);
 
@@ -226,17 +199,115 @@ public class ImzMLImportTask extends AbstractTask implements RawDataImportTask {
       return;
     }
 
-    if (parsedScans == 0) {
+    if (parsedScans.get() == 0) {
       setStatus(TaskStatus.ERROR);
       setErrorMessage("No scans found");
       return;
     }
 
-    logger.info("Finished parsing " + file + ", parsed " + parsedScans + " scans");
+    logger.info("Finished parsing " + file + ", parsed " + parsedScans.get() + " scans");
+    logger.info(importStatistics.summary(file.getName()));
     setStatus(TaskStatus.FINISHED);
 
   }
 
+  /**
+   * Reads the metadata of a spectrum and locates its data points in the .ibd file. Spectra that
+   * cannot be located, e.g., compressed arrays, are read through the parser and processed right
+   * away, so their data points are not kept in memory until all pixels were read.
+   *
+   * @return the pixel spectrum or null if the spectrum is skipped
+   */
+  @Nullable
+  private PixelSpectrum readPixelMetadata(@NotNull Spectrum spectrum,
+      @Nullable ImzMLIbdReader ibdReader, @NotNull ScanImportStatistics importStatistics) {
+    // Ignore scans that are not MS, e.g. UV
+    if (!isMsSpectrum(spectrum)) {
+      return null;
+    }
+
+    String scanId = spectrum.getID();
+    int scanNumber = convertScanIdToScanNumber(scanId);
+
+    // Extract scan data
+    int msLevel = extractMSLevel(spectrum);
+    float retentionTime = extractRetentionTime(spectrum);
+    PolarityType polarity = extractPolarity(spectrum);
+    // also registers the scan numbers of precursor ids
+    extractParentScanNumber(spectrum);
+    double precursorMz = extractPrecursorMz(spectrum);
+    int precursorCharge = extractPrecursorCharge(spectrum);
+    String scanDefinition = extractScanDefinition(spectrum);
+    // imaging
+    Coordinates coord = extractCoordinates(spectrum);
+
+    // TODO find out if spectrum type is encoded in imzml file
+    var metadataScan = new SimpleBuildingScan(scanNumber, msLevel, polarity,
+        MassSpectrumType.CENTROIDED, retentionTime, precursorMz, precursorCharge);
+    if (!scanProcessorConfig.scanFilter().matches(metadataScan)) {
+      // skip parsing of data and skip this scan completely
+      return null;
+    }
+
+    final BinaryDataArrayList dataList = spectrum.getBinaryDataArrayList();
+    final ArrayLocation mzLocation =
+        dataList == null ? null : ImzMLIbdReader.locate(dataList.getmzArray());
+    final ArrayLocation intensityLocation =
+        dataList == null ? null : ImzMLIbdReader.locate(dataList.getIntensityArray());
+    if (ibdReader != null && mzLocation != null && intensityLocation != null
+        && mzLocation.length() == intensityLocation.length() && ibdReader.contains(mzLocation)
+        && ibdReader.contains(intensityLocation)) {
+      return new PixelSpectrum(metadataScan, scanDefinition, coord, mzLocation, intensityLocation,
+          null);
+    }
+    final SimpleSpectralArrays data = new SimpleSpectralArrays(extractMzValues(spectrum),
+        extractIntensityValues(spectrum));
+    return new PixelSpectrum(metadataScan, scanDefinition, coord, null, null,
+        createScan(metadataScan, scanDefinition, coord, data, importStatistics));
+  }
+
+  /**
+   * Decodes the data points of a pixel from the .ibd file and processes them. Called by multiple
+   * threads.
+   */
+  @NotNull
+  private SimpleImagingScan createScan(@NotNull PixelSpectrum pixel,
+      @Nullable ImzMLIbdReader ibdReader, @NotNull ScanImportStatistics importStatistics) {
+    assert ibdReader != null && pixel.mzLocation() != null && pixel.intensityLocation() != null;
+    final SimpleSpectralArrays data = new SimpleSpectralArrays(
+        ibdReader.read(pixel.mzLocation()), ibdReader.read(pixel.intensityLocation()));
+    return createScan(pixel.metadataScan(), pixel.scanDefinition(), pixel.coordinates(), data,
+        importStatistics);
+  }
+
+  /**
+   * Processes the data points of a pixel and creates the scan
+   */
+  @NotNull
+  private SimpleImagingScan createScan(@NotNull SimpleBuildingScan metadataScan,
+      String scanDefinition, Coordinates coordinates, @NotNull SimpleSpectralArrays data,
+      @NotNull ScanImportStatistics importStatistics) {
+    final int msLevel = metadataScan.getMSLevel();
+    // Auto-detect whether this scan is centroided
+    MassSpectrumType spectrumType = ScanUtils.detectSpectrumType(data.mzs(), data.intensities());
+
+    data = importStatistics.process(scanProcessorConfig, metadataScan, data);
+
+    if (scanProcessorConfig.isMassDetectActive(msLevel)) {
+      spectrumType = MassSpectrumType.CENTROIDED;
+    }
+
+    SimpleImagingScan scan = new SimpleImagingScan(newMZmineFile, metadataScan.getScanNumber(),
+        msLevel, metadataScan.getRetentionTime(), metadataScan.precursorMz,
+        metadataScan.precursorCharge, data.mzs(), data.intensities(), spectrumType,
+        metadataScan.getPolarity(), scanDefinition, null, coordinates);
+
+    if (scanProcessorConfig.isMassDetectActive(msLevel)) {
+      scan.addMassList(new ScanPointerMassList(scan));
+    }
+    return scan;
+  }
+
   private int convertScanIdToScanNumber(String scanId) {
 
     if (scanIdTable.containsKey(scanId)) {
@@ -461,7 +532,9 @@ public class ImzMLImportTask extends AbstractTask implements RawDataImportTask {
 
   @Override
   public String getTaskDescription() {
-    return "Opening file " + file;
+    final ScanImportStatistics statistics = importStatistics;
+    return statistics == null ? "Opening file " + file
+        : "Opening file " + file + " (" + statistics.progress() + ")";
   }
 
   boolean isMsSpectrum(Spectrum spectrum) {
@@ -476,4 +549,15 @@ public class ImzMLImportTask extends AbstractTask implements RawDataImportTask {
   public RawDataFile getImportedRawDataFile() {
     return getStatus() == TaskStatus.FINISHED ? newMZmineFile : null;
   }
+
+  /**
+   * Metadata of a pixel spectrum and either the location of its data points in the .ibd file or
+   * the scan that was already created from the data points read by the parser
+   */
+  private record PixelSpectrum(@NotNull SimpleBuildingScan metadataScan, String scanDefinition,
+                               Coordinates coordinates, @Nullable ArrayLocation mzLocation,
+                               @Nullable ArrayLocation intensityLocation,
+                               @Nullable SimpleImagingScan scan) {
+
+  }
 }
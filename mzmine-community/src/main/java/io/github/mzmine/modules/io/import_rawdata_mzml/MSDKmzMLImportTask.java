@@ -46,6 +46,7 @@ import io.github.mzmine.datamodel.otherdetectors.OtherDataFile;
 import io.github.mzmine.javafx.dialogs.DialogLoggerUtil;
 import io.github.mzmine.modules.MZmineModule;
 import io.github.mzmine.modules.io.import_rawdata_all.spectral_processor.ScanImportProcessorConfig;
+import io.github.mzmine.modules.io.import_rawdata_all.spectral_processor.SpectralDecodeBuffers;
 import io.github.mzmine.modules.io.import_rawdata_mzml.msdk.data.BuildingMobilityScanStorage;
 import io.github.mzmine.modules.io.import_rawdata_mzml.msdk.data.BuildingMzMLMobilityScan;
 import io.github.mzmine.modules.io.import_rawdata_mzml.msdk.data.BuildingMzMLMsScan;
@@ -230,6 +231,7 @@ public class MSDKmzMLImportTask extends AbstractTask implements RawDataImportTas
 
       newMZmineFile.setStartTimeStamp(startTimeStamp);
       logger.info("Finished parsing " + file + ", parsed " + convertedScansAfterFilter + " scans");
+      logger.info(parser.getImportStatistics().summary(newMZmineFile.getName()));
 
       if (totalScansAfterFilter == 0 && newMZmineFile.getOtherDataFiles().isEmpty()) {
         var activeFilter = scanProcessorConfig.scanFilter().isActiveFilter();
@@ -248,6 +250,9 @@ public class MSDKmzMLImportTask extends AbstractTask implements RawDataImportTas
       setStatus(TaskStatus.ERROR);
       setErrorMessage("Error parsing mzML: " + ExceptionUtils.exceptionToString(e));
       return null;
+    } finally {
+      // all binary arrays are decoded on this thread
+      SpectralDecodeBuffers.release();
     }
   }
 
@@ -484,7 +489,9 @@ public class MSDKmzMLImportTask extends AbstractTask implements RawDataImportTas
 
   @Override
   public String getTaskDescription() {
-    return description;
+    final MzMLParser parser = this.parser;
+    return parser == null ? description
+        : description + " (" + parser.getImportStatistics().progress() + ")";
   }
 
   @Override
@@ -48,6 +48,7 @@ import io.github.mzmine.datamodel.msms.DIAMsMsInfoImpl;
 import io.github.mzmine.datamodel.msms.MsMsInfo;
 import io.github.mzmine.modules.io.import_rawdata_all.spectral_processor.MobilitySpectralArrays;
 import io.github.mzmine.modules.io.import_rawdata_all.spectral_processor.ScanImportProcessorConfig;
+import io.github.mzmine.modules.io.import_rawdata_all.spectral_processor.ScanImportStatistics;
 import io.github.mzmine.modules.io.import_rawdata_all.spectral_processor.SimpleSpectralArrays;
 import io.github.mzmine.util.DataPointUtils;
 import io.github.mzmine.util.MemoryMapStorage;
@@ -631,7 +632,8 @@ public class BuildingMzMLMsScan extends MetadataOnlyScan {
    * @return false if
    */
   public boolean loadProcessMemMapMzData(final MemoryMapStorage storage,
-      final @NotNull ScanImportProcessorConfig config) {
+      final @NotNull ScanImportProcessorConfig config,
+      final @NotNull ScanImportStatistics statistics) {
     try {
       SimpleSpectralArrays specData = loadMzData();
       if (specData == null) {
@@ -640,7 +642,7 @@ public class BuildingMzMLMsScan extends MetadataOnlyScan {
       }
 
       // process and filter - needs metadata so wrap
-      specData = config.processor().processScan(this, specData);
+      specData = statistics.process(config, this, specData);
 
       if (config.isMassDetectActive(getMSLevel())) {
         // after mass detection we have a centroid scan
@@ -669,9 +671,10 @@ public class BuildingMzMLMsScan extends MetadataOnlyScan {
    * Splits the combined data into individual scans and memory maps the data.
    */
   public BuildingMobilityScanStorage loadProccessMemMapMzDataForMergedMobilityScan(
-      MemoryMapStorage storage, @NotNull ScanImportProcessorConfig config) {
+      MemoryMapStorage storage, @NotNull ScanImportProcessorConfig config,
+      @NotNull ScanImportStatistics statistics) {
     final List<MobilitySpectralArrays> processedMobilityScanData = splitMergedMobilityScans().stream()
-        .map(msa -> msa.process(this, config)).toList();
+        .map(msa -> msa.process(this, config, statistics)).toList();
     if (config.isMassDetectActive(getMSLevel())) {
       spectrumType = MassSpectrumType.CENTROIDED;
     }
@@ -26,6 +26,7 @@ package io.github.mzmine.modules.io.import_rawdata_mzml.msdk.data;
 
 import io.github.msdk.datamodel.Chromatogram;
 import io.github.mzmine.modules.io.import_rawdata_all.spectral_processor.ScanImportProcessorConfig;
+import io.github.mzmine.modules.io.import_rawdata_all.spectral_processor.ScanImportStatistics;
 import io.github.mzmine.modules.io.import_rawdata_mzml.MSDKmzMLImportTask;
 import io.github.mzmine.modules.io.import_rawdata_mzml.msdk.util.TagTracker;
 import io.github.mzmine.util.MemoryMapStorage;
@@ -73,6 +74,7 @@ public class MzMLParser {
   private final Map<String, MzMLArrayType> arrayTypeMap = Arrays.stream(MzMLArrayType.values())
       .collect(Collectors.toMap(MzMLArrayType::getAccession, Function.identity()));
   private int totalScans = 0, parsedScans = 0;
+  private final ScanImportStatistics importStatistics = new ScanImportStatistics();
 
   public MzMLParser(MSDKmzMLImportTask importer, MemoryMapStorage storage,
       @NotNull ScanImportProcessorConfig scanProcessorConfig) {
@@ -541,8 +543,10 @@ public class MzMLParser {
     if (scanProcessorConfig.scanFilter().matches(spectrum)) {
       if (spectrum.isMergedMobilitySpectrum()) {
         vars.mobilityScanData.add(
-            spectrum.loadProccessMemMapMzDataForMergedMobilityScan(storage, scanProcessorConfig));
-      } else if (spectrum.loadProcessMemMapMzData(storage, scanProcessorConfig)) {
+            spectrum.loadProccessMemMapMzDataForMergedMobilityScan(storage, scanProcessorConfig,
+                importStatistics));
+      } else if (spectrum.loadProcessMemMapMzData(storage, scanProcessorConfig,
+          importStatistics)) {
         vars.addSpectrumToList(storage, spectrum);
       }
     }
@@ -689,6 +693,13 @@ public class MzMLParser {
     return vars.mobilityScanData;
   }
 
+  /**
+   * @return throughput and heap use of the spectra parsed so far
+   */
+  public ScanImportStatistics getImportStatistics() {
+    return importStatistics;
+  }
+
   public int getTotalScans() {
     return totalScans;
   }
@@ -27,9 +27,9 @@ package io.github.mzmine.modules.io.import_rawdata_mzml.msdk.data;
 
 import com.google.common.io.LittleEndianDataInputStream;
 import io.github.msdk.MSDKException;
+import io.github.mzmine.modules.io.import_rawdata_all.spectral_processor.SpectralDecodeBuffers;
 import io.github.mzmine.modules.io.import_rawdata_mzml.msdk.util.MSNumpress;
 import java.io.ByteArrayInputStream;
-import java.io.ByteArrayOutputStream;
 import java.io.EOFException;
 import java.io.IOException;
 import java.io.InputStream;
@@ -39,7 +39,6 @@ import java.util.Base64;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 import java.util.zip.DataFormatException;
-import java.util.zip.Inflater;
 import java.util.zip.InflaterInputStream;
 import javolution.text.CharArray;
 import org.apache.commons.io.IOUtils;
@@ -243,16 +242,23 @@ public class MzMLPeaksDecoder {
       data = new double[numPoints];
     }
 
-    byte[] bytes = Base64.getDecoder().decode(binaryData);
+    // decode into reusable buffers, only the resulting values are allocated
+    final SpectralDecodeBuffers buffers = SpectralDecodeBuffers.get();
+    ByteBuffer bytes = buffers.decodeBase64(binaryData);
 
     if (binaryDataInfo.getCompressionType().isZlibCompressed()) {
       // if CVParam states the data is compressed
-      bytes = decompress(bytes);
+      try {
+        bytes = buffers.inflate(bytes, numPoints * getBytesPerValue(binaryDataInfo));
+      } catch (DataFormatException e) {
+        throw new IllegalStateException(
+            "Encountered wrong data format " + "while trying to decompress binary data!", e);
+      }
     }
 
     if (binaryDataInfo.getCompressionType().isNumpress()) {
       try {
-        data = decompressIfNumpress(binaryDataInfo, data, bytes);
+        data = decompressIfNumpress(binaryDataInfo, data, bytes.array(), bytes.limit());
         return data;
       } catch (MSDKException e) {
         logger.warning("Could not decompress numpress " + binaryDataInfo.getCompressionType());
@@ -260,78 +266,46 @@ public class MzMLPeaksDecoder {
     }
 
     // otherwise directly read numbers
-    convertToDoubles(binaryDataInfo, bytes, data);
+    convertToDoubles(binaryDataInfo, bytes, data, numPoints);
     return data;
   }
 
-  private static void convertToDoubles(final MzMLBinaryDataInfo binaryDataInfo, final byte[] bytes,
-      final double[] data) {
-    ByteBuffer buffer = ByteBuffer.wrap(bytes);
+  private static int getBytesPerValue(final MzMLBinaryDataInfo binaryDataInfo) {
+    return switch (binaryDataInfo.getBitLength()) {
+      case SIXTEEN_BIT_FLOAT -> 2;
+      case THIRTY_TWO_BIT_FLOAT, THIRTY_TWO_BIT_INTEGER -> 4;
+      case SIXTY_FOUR_BIT_FLOAT, SIXTY_FOUR_BIT_INTEGER -> 8;
+    };
+  }
+
+  private static void convertToDoubles(final MzMLBinaryDataInfo binaryDataInfo,
+      final ByteBuffer buffer, final double[] data, final int numPoints) {
     buffer.order(ByteOrder.LITTLE_ENDIAN);
 
     switch (binaryDataInfo.getBitLength()) {
       case THIRTY_TWO_BIT_FLOAT -> {
-        for (int i = 0; i < data.length; i++) {
+        for (int i = 0; i < numPoints; i++) {
           data[i] = buffer.getFloat();
         }
       }
       case THIRTY_TWO_BIT_INTEGER -> {
-        for (int i = 0; i < data.length; i++) {
+        for (int i = 0; i < numPoints; i++) {
           data[i] = buffer.getInt();
         }
       }
       case SIXTY_FOUR_BIT_FLOAT -> {
-        for (int i = 0; i < data.length; i++) {
+        for (int i = 0; i < numPoints; i++) {
           data[i] = buffer.getDouble();
         }
       }
       case SIXTY_FOUR_BIT_INTEGER -> {
-        for (int i = 0; i < data.length; i++) {
+        for (int i = 0; i < numPoints; i++) {
           data[i] = buffer.getLong();
         }
       }
     }
   }
 
-  private static byte[] decompress(byte[] compressedData) {
-    byte[] decompressedData = null;
-
-    // using a ByteArrayOutputStream to not having to define the result array size beforehand
-    Inflater decompressor = new Inflater();
-
-    decompressor.setInput(compressedData);
-    // Create an expandable byte array to hold the decompressed data
-    // use 2.5 times size to limit number of backing array resize by ByteArrayOutputStream.ensureCapacity
-    try (ByteArrayOutputStream bos = new ByteArrayOutputStream(
-        (int) (compressedData.length * 2.5))) {
-      byte[] buf = new byte[1024];
-      while (!decompressor.finished()) {
-        try {
-          int count = decompressor.inflate(buf);
-          if (count == 0 && decompressor.needsInput()) {
-            break;
-          }
-          bos.write(buf, 0, count);
-        } catch (DataFormatException e) {
-          decompressor.end();
-          throw new IllegalStateException(
-              "Encountered wrong data format " + "while trying to decompress binary data!", e);
-        }
-      }
-
-      // Get the decompressed data
-      decompressedData = bos.toByteArray();
-    } catch (IOException e) {
-      // ToDo: add logging
-      e.printStackTrace();
-    }
-    decompressor.end();
-    if (decompressedData == null) {
-      throw new IllegalStateException("Decompression of binary data produced no result (null)!");
-    }
-    return decompressedData;
-  }
-
   /**
    * This method is slower than the direct array version
    * {@link #decodeToDoubleAsArray(String, MzMLBinaryDataInfo)} Converts a base64 encoded mz or
@@ -379,7 +353,7 @@ public class MzMLPeaksDecoder {
     // Now we can check for NumPress
     if (compression.isNumpress()) {
       byte[] bytes = IOUtils.toByteArray(dis);
-      data = decompressIfNumpress(binaryDataInfo, data, bytes);
+      data = decompressIfNumpress(binaryDataInfo, data, bytes, bytes.length);
 
       try {
         dis.close();
@@ -427,26 +401,26 @@ public class MzMLPeaksDecoder {
 
   @Nullable
   private static double[] decompressIfNumpress(final MzMLBinaryDataInfo binaryDataInfo,
-      final double[] data, byte[] bytes) throws MSDKException {
+      final double[] data, byte[] bytes, int length) throws MSDKException {
     int numDecodedDoubles;
     switch (binaryDataInfo.getCompressionType()) {
       case NUMPRESS_LINPRED:
       case NUMPRESS_LINPRED_ZLIB:
-        numDecodedDoubles = MSNumpress.decodeLinear(bytes, bytes.length, data);
+        numDecodedDoubles = MSNumpress.decodeLinear(bytes, length, data);
         if (numDecodedDoubles < 0) {
           throw new MSDKException("MSNumpress linear decoder failed");
         }
         return data;
       case NUMPRESS_POSINT:
       case NUMPRESS_POSINT_ZLIB:
-        numDecodedDoubles = MSNumpress.decodePic(bytes, bytes.length, data);
+        numDecodedDoubles = MSNumpress.decodePic(bytes, length, data);
         if (numDecodedDoubles < 0) {
           throw new MSDKException("MSNumpress positive integer decoder failed");
         }
         return data;
       case NUMPRESS_SHLOGF:
       case NUMPRESS_SHLOGF_ZLIB:
-        numDecodedDoubles = MSNumpress.decodeSlof(bytes, bytes.length, data);
+        numDecodedDoubles = MSNumpress.decodeSlof(bytes, length, data);
         if (numDecodedDoubles < 0) {
           throw new MSDKException("MSNumpress short logged float decoder failed");
         }
@@ -37,22 +37,22 @@ import io.github.mzmine.datamodel.impl.builders.SimpleBuildingScan;
 import io.github.mzmine.datamodel.impl.masslist.ScanPointerMassList;
 import io.github.mzmine.modules.MZmineModule;
 import io.github.mzmine.modules.io.import_rawdata_all.spectral_processor.ScanImportProcessorConfig;
+import io.github.mzmine.modules.io.import_rawdata_all.spectral_processor.ScanImportStatistics;
 import io.github.mzmine.modules.io.import_rawdata_all.spectral_processor.SimpleSpectralArrays;
+import io.github.mzmine.modules.io.import_rawdata_all.spectral_processor.SpectralDecodeBuffers;
 import io.github.mzmine.parameters.ParameterSet;
 import io.github.mzmine.project.impl.RawDataFileImpl;
 import io.github.mzmine.taskcontrol.AbstractTask;
 import io.github.mzmine.taskcontrol.TaskStatus;
-import io.github.mzmine.util.CompressionUtils;
 import io.github.mzmine.util.MemoryMapStorage;
 import io.github.mzmine.util.exceptions.ExceptionUtils;
 import io.github.mzmine.util.scans.ScanUtils;
-import java.io.ByteArrayInputStream;
-import java.io.DataInputStream;
 import java.io.File;
-import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
 import java.time.Instant;
 import java.util.ArrayList;
-import java.util.Base64;
 import java.util.Date;
 import java.util.List;
 import java.util.logging.Level;
@@ -87,6 +87,7 @@ public class MzXMLImportTask extends AbstractTask implements RawDataImportTask {
   private boolean compressFlag = false;
   private final DefaultHandler handler = new MzXMLHandler();
   private String precision;
+  private volatile ScanImportStatistics importStatistics;
 
   // Retention time parser
   private DatatypeFactory dataTypeFactory;
@@ -137,6 +138,7 @@ public class MzXMLImportTask extends AbstractTask implements RawDataImportTask {
 
     setStatus(TaskStatus.PROCESSING);
     logger.info("Started parsing file " + file);
+    importStatistics = new ScanImportStatistics();
 
     // Use the default (non-validating) parser
     SAXParserFactory factory = SAXParserFactory.newInstance();
@@ -160,6 +162,8 @@ public class MzXMLImportTask extends AbstractTask implements RawDataImportTask {
         setErrorMessage(ExceptionUtils.exceptionToString(e));
       }
       return;
+    } finally {
+      SpectralDecodeBuffers.release();
     }
 
     if (isCanceled()) {
@@ -173,13 +177,16 @@ public class MzXMLImportTask extends AbstractTask implements RawDataImportTask {
     }
 
     logger.info("Finished parsing " + file + ", parsed " + parsedScans + " scans");
+    logger.info(importStatistics.summary(file.getName()));
     setStatus(TaskStatus.FINISHED);
 
   }
 
   @Override
   public String getTaskDescription() {
-    return "Opening file " + file;
+    final ScanImportStatistics statistics = importStatistics;
+    return statistics == null ? "Opening file " + file
+        : "Opening file " + file + " (" + statistics.progress() + ")";
   }
 
   private void processAndFinalizeBuildingScan(SimpleSpectralArrays data) {
@@ -189,7 +196,7 @@ public class MzXMLImportTask extends AbstractTask implements RawDataImportTask {
     }
 
     // data reading finished, apply data processing like sorting cropping mass detection if selected
-    var processedData = scanProcessorConfig.processor().processScan(buildingScan, data);
+    var processedData = importStatistics.process(scanProcessorConfig, buildingScan, data);
     double[] mzs = processedData.mzs();
     double[] intensities = processedData.intensities();
 
@@ -369,11 +376,14 @@ public class MzXMLImportTask extends AbstractTask implements RawDataImportTask {
     @NotNull
     private SimpleSpectralArrays readSpectralData() throws SAXException {
       SimpleSpectralArrays data;
-      byte[] peakBytes = Base64.getDecoder().decode(charBuffer.toString());
+      // decode into reusable buffers, only the resulting values are allocated
+      final SpectralDecodeBuffers buffers = SpectralDecodeBuffers.get();
+      final boolean doublePrecision = "64".equals(precision);
+      ByteBuffer peakBytes = buffers.decodeBase64(charBuffer.toString());
 
       if (compressFlag) {
         try {
-          peakBytes = CompressionUtils.decompress(peakBytes);
+          peakBytes = buffers.inflate(peakBytes, peaksCount * (doublePrecision ? 16 : 8));
         } catch (DataFormatException e) {
           setStatus(TaskStatus.ERROR);
           setErrorMessage("Corrupt compressed peak: " + e);
@@ -381,8 +391,8 @@ public class MzXMLImportTask extends AbstractTask implements RawDataImportTask {
         }
       }
 
-      // make a data input stream
-      DataInputStream peakStream = new DataInputStream(new ByteArrayInputStream(peakBytes));
+      // mzXML uses network byte order (big endian)
+      peakBytes.order(ByteOrder.BIG_ENDIAN);
 
       double[] mzValues = new double[peaksCount];
       double[] intensityValues = new double[peaksCount];
@@ -393,12 +403,12 @@ public class MzXMLImportTask extends AbstractTask implements RawDataImportTask {
           // Always respect this order pairOrder="m/z-int"
           double mz;
           double intensity;
-          if ("64".equals(precision)) {
-            mz = peakStream.readDouble();
-            intensity = peakStream.readDouble();
+          if (doublePrecision) {
+            mz = peakBytes.getDouble();
+            intensity = peakBytes.getDouble();
           } else {
-            mz = peakStream.readFloat();
-            intensity = peakStream.readFloat();
+            mz = peakBytes.getFloat();
+            intensity = peakBytes.getFloat();
           }
 
           // Copy m/z and intensity data
@@ -406,7 +416,7 @@ public class MzXMLImportTask extends AbstractTask implements RawDataImportTask {
           intensityValues[i] = intensity;
         }
         data = new SimpleSpectralArrays(mzValues, intensityValues);
-      } catch (IOException eof) {
+      } catch (BufferUnderflowException eof) {
         setStatus(TaskStatus.ERROR);
         setErrorMessage("Corrupt mzXML file");
         throw new SAXException("Parsing Cancelled");
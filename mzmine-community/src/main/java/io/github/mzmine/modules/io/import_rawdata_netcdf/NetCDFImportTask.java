@@ -33,7 +33,12 @@ import io.github.mzmine.datamodel.RawDataImportTask;
 import io.github.mzmine.datamodel.Scan;
 import io.github.mzmine.datamodel.features.SimpleFeatureListAppliedMethod;
 import io.github.mzmine.datamodel.impl.SimpleScan;
+import io.github.mzmine.datamodel.impl.builders.SimpleBuildingScan;
+import io.github.mzmine.datamodel.impl.masslist.ScanPointerMassList;
 import io.github.mzmine.modules.MZmineModule;
+import io.github.mzmine.modules.io.import_rawdata_all.spectral_processor.ScanImportProcessorConfig;
+import io.github.mzmine.modules.io.import_rawdata_all.spectral_processor.ScanImportStatistics;
+import io.github.mzmine.modules.io.import_rawdata_all.spectral_processor.SimpleSpectralArrays;
 import io.github.mzmine.parameters.ParameterSet;
 import io.github.mzmine.project.impl.RawDataFileImpl;
 import io.github.mzmine.taskcontrol.AbstractTask;
@@ -76,6 +81,8 @@ public class NetCDFImportTask extends AbstractTask implements RawDataImportTask
   private final RawDataFile newMZmineFile;
   private final ParameterSet parameters;
   private final Class<? extends MZmineModule> module;
+  private final @NotNull ScanImportProcessorConfig scanProcessorConfig;
+  private volatile ScanImportStatistics importStatistics;
 
   private Variable massValueVariable, intensityValueVariable;
 
@@ -86,7 +93,21 @@ public class NetCDFImportTask extends AbstractTask implements RawDataImportTask
   public NetCDFImportTask(MZmineProject project, File fileToOpen,
       @NotNull final Class<? extends MZmineModule> module, @NotNull final ParameterSet parameters,
       @NotNull Instant moduleCallDate, @Nullable MemoryMapStorage storage) {
+    this(project, fileToOpen, ScanImportProcessorConfig.createDefault(), module, parameters,
+        moduleCallDate, storage);
+  }
+
+  /**
+   * @param scanProcessorConfig processing like mass detection is applied to each scan before the
+   *                            data is stored, so profile data is never stored if mass detection
+   *                            is active
+   */
+  public NetCDFImportTask(MZmineProject project, File fileToOpen,
+      @NotNull ScanImportProcessorConfig scanProcessorConfig,
+      @NotNull final Class<? extends MZmineModule> module, @NotNull final ParameterSet parameters,
+      @NotNull Instant moduleCallDate, @Nullable MemoryMapStorage storage) {
     super(storage, moduleCallDate);
+    this.scanProcessorConfig = scanProcessorConfig;
     this.project = project;
     this.file = fileToOpen;
     this.newMZmineFile = new RawDataFileImpl(file.getName(), file.getAbsolutePath(),
@@ -112,6 +133,7 @@ public class NetCDFImportTask extends AbstractTask implements RawDataImportTask
     // Update task status
     setStatus(TaskStatus.PROCESSING);
     logger.info("Started parsing file " + file);
+    importStatistics = new ScanImportStatistics();
 
     try {
 
@@ -146,6 +168,7 @@ public class NetCDFImportTask extends AbstractTask implements RawDataImportTask
     }
 
     logger.info("Finished parsing " + file + ", parsed " + parsedScans + " scans");
+    logger.info(importStatistics.summary(file.getName()));
 
     // Update task status
     setStatus(TaskStatus.FINISHED);
@@ -154,7 +177,9 @@ public class NetCDFImportTask extends AbstractTask implements RawDataImportTask
 
   @Override
   public String getTaskDescription() {
-    return "Opening file " + file;
+    final ScanImportStatistics statistics = importStatistics;
+    return statistics == null ? "Opening file " + file
+        : "Opening file " + file + " (" + statistics.progress() + ")";
   }
 
   public void startReading() throws IOException {
@@ -450,8 +475,21 @@ public class NetCDFImportTask extends AbstractTask implements RawDataImportTask
     // Auto-detect whether this scan is centroided
     MassSpectrumType spectrumType = ScanUtils.detectSpectrumType(mzValues, intensityValues);
 
+    // apply processing like mass detection before the data is stored
+    final SimpleBuildingScan metadataScan = new SimpleBuildingScan(scanNum, 1, polarity,
+        spectrumType, retentionTime, 0d, 0);
+    final SimpleSpectralArrays data = importStatistics.process(scanProcessorConfig, metadataScan,
+        new SimpleSpectralArrays(mzValues, intensityValues));
+    final boolean massDetectActive = scanProcessorConfig.isMassDetectActive(1);
+    if (massDetectActive) {
+      spectrumType = MassSpectrumType.CENTROIDED;
+    }
+
     SimpleScan buildingScan = new SimpleScan(newMZmineFile, scanNum, 1, retentionTime, null,
-        mzValues, intensityValues, spectrumType, polarity, scanDefinition, null);
+        data.mzs(), data.intensities(), spectrumType, polarity, scanDefinition, null);
+    if (massDetectActive) {
+      buildingScan.addMassList(new ScanPointerMassList(buildingScan));
+    }
 
     return buildingScan;
 
@@ -64,8 +64,8 @@ public class SpectralLibraryImportTask extends AbstractTask {
   @Override
   public String getTaskDescription() {
     if (parser != null) {
-      return "Import spectral library from %s (%d)".formatted(dataBaseFile,
-          parser.getProcessedEntries());
+      return "Import spectral library from %s (%d, %.0f entries/s)".formatted(dataBaseFile,
+          parser.getProcessedEntries(), parser.getEntriesPerSecond());
     }
     return "Import spectral library from " + dataBaseFile;
   }
@@ -37,6 +37,7 @@ import io.github.mzmine.datamodel.Scan;
 import io.github.mzmine.datamodel.features.FeatureList.FeatureListAppliedMethod;
 import io.github.mzmine.datamodel.otherdetectors.OtherDataFile;
 import io.github.mzmine.modules.dataprocessing.id_ccscalibration.CCSCalibration;
+import io.github.mzmine.modules.visualization.rawdataoverviewims.IMSRawDataOverviewPyramid;
 import io.github.mzmine.util.MemoryMapStorage;
 import it.unimi.dsi.fastutil.doubles.DoubleImmutableList;
 import java.awt.Color;
@@ -320,6 +321,16 @@ public class CachedIMSRawDataFile implements IMSRawDataFile {
 
   }
 
+  @Override
+  public @Nullable IMSRawDataOverviewPyramid getOverviewPyramid() {
+    return null;
+  }
+
+  @Override
+  public void setOverviewPyramid(@Nullable IMSRawDataOverviewPyramid pyramid) {
+
+  }
+
   @Override
   public DoubleImmutableList getSegmentMobilities(int segment) {
     return originalFile.getSegmentMobilities(segment);
@@ -163,6 +163,35 @@ public class TICDataSet extends AbstractTaskXYZDataset {
     calculateValues();
   }
 
+  /**
+   * Creates a TIC data set from precomputed intensities, e.g., from binned data.
+   *
+   * @param file        data file to plot.
+   * @param scans       one representative scan for each value, used to select scans in the plot.
+   * @param rtValues    retention time of each value.
+   * @param intensities summed intensity of each value.
+   * @param rangeMZ     range of m/z the intensities were summed in.
+   */
+  public TICDataSet(final RawDataFile file, final List<Scan> scans, final double[] rtValues,
+      final double[] intensities, final Range<Double> rangeMZ) {
+    if (scans.size() != rtValues.length || rtValues.length != intensities.length) {
+      throw new IllegalArgumentException("Scans, retention times and intensities differ in size");
+    }
+    mzRange = rangeMZ;
+    dataFile = file;
+    this.scans = scans;
+    totalScans = scans.size();
+    basePeakMZValues = new double[totalScans];
+    intensityValues = intensities;
+    this.rtValues = rtValues;
+    processedScans = totalScans;
+    intensityMin = Arrays.stream(intensities).min().orElse(0d);
+    intensityMax = Arrays.stream(intensities).max().orElse(0d);
+    plotType = TICPlotType.TIC;
+    status = TaskStatus.FINISHED;
+    errorMessage = null;
+  }
+
   public TICDataSet(RawDataFile newFile, Scan[] scans, Range<Double> mzRange,
       TICVisualizerTab window) {
     this(newFile, FXCollections.observableArrayList(scans), mzRange, window);
@@ -0,0 +1,397 @@
+/*
+ * Copyright (c) 2004-2025 The mzmine Development Team
+ *
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+
+package io.github.mzmine.modules.visualization.networking.visual;
+
+import java.util.Arrays;
+import java.util.Random;
+import java.util.function.BooleanSupplier;
+import java.util.stream.IntStream;
+import org.graphstream.graph.Edge;
+import org.graphstream.graph.Graph;
+import org.graphstream.graph.Node;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * Force-directed layout (Fruchterman-Reingold forces) on primitive coordinate arrays for large
+ * networks. The repulsion between all nodes is approximated by a Barnes-Hut quadtree that is
+ * rebuilt every iteration, the attraction only acts along edges. Forces of all nodes are computed
+ * in parallel chunks and positions are only moved after the forces of an iteration are known, which
+ * makes the result independent of the number of threads. Nodes are addressed by
+ * {@link Node#getIndex()} of the graph this layout was created for.
+ */
+public class BarnesHutLayout {
+
+  /**
+   * Default number of iterations. The temperature cools down linearly over all iterations.
+   */
+  public static final int DEFAULT_ITERATIONS = 400;
+
+  /**
+   * Cells that appear smaller than theta (cell size / distance) are approximated by their center
+   * of mass
+   */
+  private static final double THETA = 0.8;
+  private static final double THETA_SQUARED = THETA * THETA;
+  /**
+   * Ideal edge length, same as the spring box layout so that edges are roughly 1 in length
+   */
+  private static final double EDGE_LENGTH = 1;
+  private static final double MIN_TEMPERATURE = 0.002 * EDGE_LENGTH;
+  /**
+   * Nodes at the same position are merged into one leaf once this depth is reached
+   */
+  private static final int MAX_DEPTH = 48;
+  private static final int CHUNK_SIZE = 256;
+  private static final int EMPTY = -1;
+  private static final int INTERNAL = -2;
+
+  private final int numNodes;
+  // adjacency in compressed rows: neighbors of node i are in [offsets[i], offsets[i+1])
+  private final int[] neighborOffsets;
+  private final int[] neighbors;
+  private final double[] x;
+  private final double[] y;
+  private final double[] forceX;
+  private final double[] forceY;
+
+  // quadtree, cell 0 is the root and 0 marks a missing child
+  private int numCells;
+  private double[] cellCenterX;
+  private double[] cellCenterY;
+  private double[] cellHalfSize;
+  private double[] cellMass;
+  private double[] cellSumX;
+  private double[] cellSumY;
+  private int[] cellBody;
+  private int[] cellChildren;
+
+  /**
+   * @param numNodes     number of nodes
+   * @param edgeSources  source node index of each edge
+   * @param edgeTargets  target node index of each edge
+   * @param seed         seed for the random start positions
+   */
+  public BarnesHutLayout(final int numNodes, final int[] edgeSources, final int[] edgeTargets,
+      final long seed) {
+    if (edgeSources.length != edgeTargets.length) {
+      throw new IllegalArgumentException("Edge sources and targets need the same length");
+    }
+    this.numNodes = numNodes;
+
+    // undirected adjacency without self loops
+    neighborOffsets = new int[numNodes + 1];
+    for (int e = 0; e < edgeSources.length; e++) {
+      if (edgeSources[e] != edgeTargets[e]) {
+        neighborOffsets[edgeSources[e] + 1]++;
+        neighborOffsets[edgeTargets[e] + 1]++;
+      }
+    }
+    for (int i = 0; i < numNodes; i++) {
+      neighborOffsets[i + 1] += neighborOffsets[i];
+    }
+    neighbors = new int[neighborOffsets[numNodes]];
+    final int[] next = Arrays.copyOf(neighborOffsets, numNodes);
+    for (int e = 0; e < edgeSources.length; e++) {
+      final int source = edgeSources[e];
+      final int target = edgeTargets[e];
+      if (source != target) {
+        neighbors[next[source]++] = target;
+        neighbors[next[target]++] = source;
+      }
+    }
+
+    x = new double[numNodes];
+    y = new double[numNodes];
+    forceX = new double[numNodes];
+    forceY = new double[numNodes];
+    // start in a square that fits all nodes at the ideal distance
+    final double side = Math.sqrt(numNodes) * EDGE_LENGTH;
+    final Random random = new Random(seed);
+    for (int i = 0; i < numNodes; i++) {
+      x[i] = random.nextDouble() * side;
+      y[i] = random.nextDouble() * side;
+    }
+
+    final int capacity = Math.max(16, numNodes * 2);
+    cellCenterX = new double[capacity];
+    cellCenterY = new double[capacity];
+    cellHalfSize = new double[capacity];
+    cellMass = new double[capacity];
+    cellSumX = new double[capacity];
+    cellSumY = new double[capacity];
+    cellBody = new int[capacity];
+    cellChildren = new int[capacity * 4];
+  }
+
+  /**
+   * Layout for all nodes and edges of a graph. Node indices of the graph are used as layout
+   * indices.
+   */
+  public static BarnesHutLayout forGraph(final @NotNull Graph graph, final long seed) {
+    final int[] sources = new int[graph.getEdgeCount()];
+    final int[] targets = new int[sources.length];
+    for (int e = 0; e < sources.length; e++) {
+      final Edge edge = graph.getEdge(e);
+      sources[e] = edge.getSourceNode().getIndex();
+      targets[e] = edge.getTargetNode().getIndex();
+    }
+    return new BarnesHutLayout(graph.getNodeCount(), sources, targets, seed);
+  }
+
+  /**
+   * Runs the layout until the maximum number of iterations or until no node moves anymore.
+   *
+   * @param maxIterations maximum number of iterations
+   * @param isCanceled    stops the layout early
+   * @param listener      notified after each iteration, may read the current positions
+   * @return the number of computed iterations
+   */
+  public int compute(final int maxIterations, final @NotNull BooleanSupplier isCanceled,
+      final @Nullable IterationListener listener) {
+    if (numNodes == 0) {
+      return 0;
+    }
+    final double startTemperature = Math.max(0.1 * Math.sqrt(numNodes) * EDGE_LENGTH, 1);
+    final int numChunks = (numNodes + CHUNK_SIZE - 1) / CHUNK_SIZE;
+
+    int iteration = 0;
+    while (iteration < maxIterations && !isCanceled.getAsBoolean()) {
+      buildTree();
+      IntStream.range(0, numChunks).parallel().forEach(chunk -> {
+        // each push adds at most 4 cells for one removed cell
+        final int[] stack = new int[4 * (MAX_DEPTH + 2)];
+        final int end = Math.min(numNodes, (chunk + 1) * CHUNK_SIZE);
+        for (int i = chunk * CHUNK_SIZE; i < end; i++) {
+          computeForce(i, stack);
+        }
+      });
+
+      final double temperature = Math.max(MIN_TEMPERATURE,
+          startTemperature * (1d - (double) iteration / maxIterations));
+      final double maxMove = move(temperature);
+      iteration++;
+
+      if (listener != null) {
+        listener.iterationFinished(this, iteration, maxIterations);
+      }
+      if (maxMove < MIN_TEMPERATURE) {
+        break;
+      }
+    }
+    return iteration;
+  }
+
+  /**
+   * Moves all nodes along their force, limited by the temperature
+   *
+   * @return the maximum distance a node was moved
+   */
+  private double move(final double temperature) {
+    double maxMove = 0;
+    for (int i = 0; i < numNodes; i++) {
+      final double length = Math.sqrt(forceX[i] * forceX[i] + forceY[i] * forceY[i]);
+      if (length > 0) {
+        final double move = Math.min(length, temperature);
+        final double scale = move / length;
+        x[i] += forceX[i] * scale;
+        y[i] += forceY[i] * scale;
+        maxMove = Math.max(maxMove, move);
+      }
+    }
+    return maxMove;
+  }
+
+  private void computeForce(final int i, final int[] stack) {
+    final double xi = x[i];
+    final double yi = y[i];
+    final double k2 = EDGE_LENGTH * EDGE_LENGTH;
+    double fx = 0;
+    double fy = 0;
+
+    // repulsion k²/d from all other nodes or cells
+    int top = 0;
+    stack[top++] = 0;
+    while (top > 0) {
+      final int cell = stack[--top];
+      final double mass = cellMass[cell];
+      final int body = cellBody[cell];
+      if (mass == 0 || body == i) {
+        continue;
+      }
+      final double dx = xi - cellSumX[cell] / mass;
+      final double dy = yi - cellSumY[cell] / mass;
+      final double distanceSquared = dx * dx + dy * dy;
+      final double size = 2 * cellHalfSize[cell];
+      if (body >= 0 || size * size < THETA_SQUARED * distanceSquared) {
+        if (distanceSquared > 1E-18) {
+          final double f = mass * k2 / distanceSquared;
+          fx += dx * f;
+          fy += dy * f;
+        }
+      } else {
+        for (int q = cell * 4, end = q + 4; q < end; q++) {
+          if (cellChildren[q] != 0) {
+            stack[top++] = cellChildren[q];
+          }
+        }
+      }
+    }
+
+    // attraction d²/k along edges
+    for (int e = neighborOffsets[i]; e < neighborOffsets[i + 1]; e++) {
+      final int j = neighbors[e];
+      final double dx = x[j] - xi;
+      final double dy = y[j] - yi;
+      final double f = Math.sqrt(dx * dx + dy * dy) / EDGE_LENGTH;
+      fx += dx * f;
+      fy += dy * f;
+    }
+
+    forceX[i] = fx;
+    forceY[i] = fy;
+  }
+
+  private void buildTree() {
+    double minX = Double.POSITIVE_INFINITY, minY = Double.POSITIVE_INFINITY;
+    double maxX = Double.NEGATIVE_INFINITY, maxY = Double.NEGATIVE_INFINITY;
+    for (int i = 0; i < numNodes; i++) {
+      minX = Math.min(minX, x[i]);
+      maxX = Math.max(maxX, x[i]);
+      minY = Math.min(minY, y[i]);
+      maxY = Math.max(maxY, y[i]);
+    }
+
+    Arrays.fill(cellChildren, 0, numCells * 4, 0);
+    numCells = 0;
+    final double halfSize = Math.max(maxX - minX, maxY - minY) / 2d + 1E-9;
+    addCell((minX + maxX) / 2d, (minY + maxY) / 2d, halfSize);
+
+    for (int i = 0; i < numNodes; i++) {
+      insert(i);
+    }
+  }
+
+  private void insert(final int body) {
+    final double bx = x[body];
+    final double by = y[body];
+    int cell = 0;
+    for (int depth = 0; ; depth++) {
+      cellMass[cell]++;
+      cellSumX[cell] += bx;
+      cellSumY[cell] += by;
+
+      final int occupant = cellBody[cell];
+      if (occupant == EMPTY) {
+        cellBody[cell] = body;
+        return;
+      }
+      if (occupant >= 0) {
+        if (depth >= MAX_DEPTH) {
+          // same position as the occupant, keep both in this leaf
+          return;
+        }
+        // split leaf and move the occupant one level down
+        cellBody[cell] = INTERNAL;
+        final int child = getOrAddChild(cell, x[occupant], y[occupant]);
+        cellMass[child] = 1;
+        cellSumX[child] = x[occupant];
+        cellSumY[child] = y[occupant];
+        cellBody[child] = occupant;
+      }
+      cell = getOrAddChild(cell, bx, by);
+    }
+  }
+
+  private int getOrAddChild(final int cell, final double px, final double py) {
+    final double cx = cellCenterX[cell];
+    final double cy = cellCenterY[cell];
+    final int quadrant = (px >= cx ? 1 : 0) | (py >= cy ? 2 : 0);
+    final int slot = cell * 4 + quadrant;
+    int child = cellChildren[slot];
+    if (child == 0) {
+      final double half = cellHalfSize[cell] / 2d;
+      child = addCell(px >= cx ? cx + half : cx - half, py >= cy ? cy + half : cy - half, half);
+      cellChildren[slot] = child;
+    }
+    return child;
+  }
+
+  private int addCell(final double centerX, final double centerY, final double halfSize) {
+    if (numCells == cellBody.length) {
+      final int capacity = numCells * 2;
+      cellCenterX = Arrays.copyOf(cellCenterX, capacity);
+      cellCenterY = Arrays.copyOf(cellCenterY, capacity);
+      cellHalfSize = Arrays.copyOf(cellHalfSize, capacity);
+      cellMass = Arrays.copyOf(cellMass, capacity);
+      cellSumX = Arrays.copyOf(cellSumX, capacity);
+      cellSumY = Arrays.copyOf(cellSumY, capacity);
+      cellBody = Arrays.copyOf(cellBody, capacity);
+      cellChildren = Arrays.copyOf(cellChildren, capacity * 4);
+    }
+    final int cell = numCells++;
+    cellCenterX[cell] = centerX;
+    cellCenterY[cell] = centerY;
+    cellHalfSize[cell] = halfSize;
+    cellMass[cell] = 0;
+    cellSumX[cell] = 0;
+    cellSumY[cell] = 0;
+    cellBody[cell] = EMPTY;
+    return cell;
+  }
+
+  public int getNumberOfNodes() {
+    return numNodes;
+  }
+
+  public double getX(final int node) {
+    return x[node];
+  }
+
+  public double getY(final int node) {
+    return y[node];
+  }
+
+  /**
+   * @return a copy of the current x positions
+   */
+  public double[] copyX() {
+    return Arrays.copyOf(x, numNodes);
+  }
+
+  /**
+   * @return a copy of the current y positions
+   */
+  public double[] copyY() {
+    return Arrays.copyOf(y, numNodes);
+  }
+
+  @FunctionalInterface
+  public interface IterationListener {
+
+    void iterationFinished(BarnesHutLayout layout, int iteration, int maxIterations);
+  }
+}
@@ -60,6 +60,11 @@ public class FilterableGraph extends MultiGraph {
   private boolean fullGraphLayoutFinished = false;
   private boolean edgeGraphLayoutApplied = false;
   private boolean edgeGraphLayoutFinished = false;
+  /**
+   * The network that should currently be displayed. Intermediate layouts of other networks are
+   * discarded.
+   */
+  private volatile @Nullable MultiGraph requestedGraph;
 
   public FilterableGraph(String id, final MultiGraph fullGraph, boolean showFullNetwork) {
     super(id);
@@ -103,8 +108,11 @@ public class FilterableGraph extends MultiGraph {
 
   private void applyLayout(final @Nullable Node frozen, final MultiGraph gl,
       boolean externalThread) {
-    Task task = new NetworkLayoutParallelComputeTask(gl);
     if (externalThread) {
+      // show the largest sub network while its layout is computed
+      requestedGraph = gl;
+      Task task = new NetworkLayoutParallelComputeTask(gl,
+          snapshot -> showIntermediateLayout(gl, snapshot));
       task.addTaskStatusListener((task1, newStatus, oldStatus) -> {
         if (newStatus == TaskStatus.FINISHED) {
           if (Objects.equals(gl, edgeFilteredGraph)) {
@@ -117,10 +125,43 @@ public class FilterableGraph extends MultiGraph {
       });
       MZmineCore.getTaskController().addTask(task, TaskPriority.HIGH);
     } else {
-      task.run();
+      new NetworkLayoutParallelComputeTask(gl).run();
     }
   }
 
+  /**
+   * Show positions of a sub network while the layout is still computed. The final network replaces
+   * this preview once the layout is finished.
+   *
+   * @param layoutGraph the network that is laid out, the snapshot is only shown if this network is
+   *                    still requested
+   */
+  private void showIntermediateLayout(final MultiGraph layoutGraph,
+      final NetworkLayoutSnapshot snapshot) {
+    FxThread.runLater(() -> {
+      if (requestedGraph != layoutGraph) {
+        // user switched to another network in the meantime
+        return;
+      }
+      final MultiGraph source = snapshot.graph();
+      final int size = source.getNodeCount();
+      if (size == 0) {
+        return;
+      }
+      if (getNodeCount() != size || getNode(source.getNode(0).getId()) == null) {
+        this.clear();
+        GraphStreamUtils.copyGraphContent(source, this);
+        graphChangeListener.forEach(listener -> listener.accept(this));
+      }
+      for (int i = 0; i < size; i++) {
+        final Node node = getNode(source.getNode(i).getId());
+        if (node != null) {
+          node.setAttribute("xy", snapshot.x()[i], snapshot.y()[i]);
+        }
+      }
+    });
+  }
+
   public void addGraphChangeListener(Consumer<FilterableGraph> listener) {
     graphChangeListener.add(listener);
   }
@@ -179,6 +220,9 @@ public class FilterableGraph extends MultiGraph {
       applyLayout(null, getMainGraph(), true);
     } else if (isMainGraphLayoutFinished()) {
       showNetwork(getMainGraph());
+    } else {
+      // layout still running - show its intermediate results again
+      requestedGraph = getMainGraph();
     }
   }
 
@@ -207,6 +251,7 @@ public class FilterableGraph extends MultiGraph {
   }
 
   public void showNetwork(final MultiGraph source) {
+    requestedGraph = source;
     // make sure its javafx
     FxThread.runLater(() -> {
       this.clear();
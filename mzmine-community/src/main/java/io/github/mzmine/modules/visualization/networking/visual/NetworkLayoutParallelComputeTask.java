@@ -35,21 +35,44 @@ import io.github.mzmine.util.RangeUtils;
 import java.time.Instant;
 import java.util.List;
 import java.util.Objects;
+import java.util.function.Consumer;
 import java.util.logging.Logger;
+import java.util.stream.IntStream;
 import org.graphstream.algorithm.Toolkit;
 import org.graphstream.graph.Node;
 import org.graphstream.graph.implementations.MultiGraph;
+import org.jetbrains.annotations.Nullable;
 
 public class NetworkLayoutParallelComputeTask extends AbstractTask {
 
   private static final Logger logger = Logger.getLogger(
       NetworkLayoutParallelComputeTask.class.getName());
+  /**
+   * Sub networks with more nodes are laid out by the {@link BarnesHutLayout}
+   */
+  private static final int BARNES_HUT_MIN_NODES = 200;
+  private static final long SNAPSHOT_INTERVAL_MS = 250;
+  /**
+   * Fixed seed for the random start positions, the same network always gets the same layout
+   */
+  public static final long LAYOUT_SEED = 42;
   private final MultiGraph mainGraph;
+  private final @Nullable Consumer<NetworkLayoutSnapshot> intermediateLayoutListener;
   private final AtomicDouble progress = new AtomicDouble(0);
 
   public NetworkLayoutParallelComputeTask(final MultiGraph mainGraph) {
+    this(mainGraph, null);
+  }
+
+  /**
+   * @param intermediateLayoutListener receives intermediate layouts of the largest sub network
+   *                                   while it is laid out. Called from the layout thread.
+   */
+  public NetworkLayoutParallelComputeTask(final MultiGraph mainGraph,
+      final @Nullable Consumer<NetworkLayoutSnapshot> intermediateLayoutListener) {
     super(null, Instant.now());
     this.mainGraph = mainGraph;
+    this.intermediateLayoutListener = intermediateLayoutListener;
   }
 
   @Override
@@ -69,16 +92,28 @@ public class NetworkLayoutParallelComputeTask extends AbstractTask {
     List<NetworkCluster> clusters = GraphStreamUtils.detectClusters(mainGraph, false);
 
     double progressStep = 0.5 / clusters.size();
+    // clusters are sorted by size, only the largest is streamed
+    final MultiGraph previewGraph =
+        intermediateLayoutListener != null && !clusters.isEmpty()
+        && clusters.getFirst().size() > BARNES_HUT_MIN_NODES ? GraphStreamUtils.createFilteredCopy(
+            clusters.getFirst().nodes()) : null;
+
     // all graphs with layout applied
-    List<MeasuredGraph> graphs = clusters.stream().parallel()
-        .map(cluster -> GraphStreamUtils.createFilteredCopy(cluster.nodes())).map(graph -> {
-          if (isCanceled()) {
-            return null;
-          }
-          NetworkLayoutComputeTask.applyLayout(null, graph);
-          progress.addAndGet(progressStep);
-          return measureSize(graph);
-        }).filter(Objects::nonNull).toList();
+    List<MeasuredGraph> graphs = IntStream.range(0, clusters.size()).parallel().mapToObj(i -> {
+      if (isCanceled()) {
+        return null;
+      }
+      final MultiGraph graph = GraphStreamUtils.createFilteredCopy(clusters.get(i).nodes());
+      final MeasuredGraph measured;
+      if (graph.getNodeCount() > BARNES_HUT_MIN_NODES) {
+        measured = applyBarnesHutLayout(graph, i == 0 ? previewGraph : null, progressStep);
+      } else {
+        NetworkLayoutComputeTask.applyLayout(null, graph);
+        progress.addAndGet(progressStep);
+        measured = measureSize(graph);
+      }
+      return measured;
+    }).filter(Objects::nonNull).toList();
 
     if (isCanceled()) {
       return;
@@ -96,7 +131,6 @@ public class NetworkLayoutParallelComputeTask extends AbstractTask {
     // remove all nodes and add copies back in
     mainGraph.clear();
 
-    double[] xyz = new double[3];
     // add one row of graphs
     for (int i = 0; i < graphs.size(); i++) {
       maxHeightThisRow = 0;
@@ -125,14 +159,16 @@ public class NetworkLayoutParallelComputeTask extends AbstractTask {
         MeasuredGraph mg = graphs.get(i);
         MultiGraph g = mg.graph;
 
-        // move network to position
+        // move network to position, the only time positions are written to the nodes
         for (final Node node : g) {
-          Toolkit.nodePosition(node, xyz);
+          final int index = node.getIndex();
+          // old positions would take precedence over xy
+          node.removeAttribute("xyz");
+          node.removeAttribute("x");
+          node.removeAttribute("y");
           // move to zero and then to the current start
-          xyz[0] = startx + xyz[0] - mg.getX();
-          xyz[1] = starty + (xyz[1] - mg.getY());
-          node.setAttribute("x", xyz[0]);
-          node.setAttribute("y", xyz[1]);
+          node.setAttribute("xy", startx + mg.x()[index] - mg.getX(),
+              starty + (mg.y()[index] - mg.getY()));
         }
 
         startx += space + mg.width();
@@ -148,20 +184,61 @@ public class NetworkLayoutParallelComputeTask extends AbstractTask {
     setStatus(TaskStatus.FINISHED);
   }
 
+  private MeasuredGraph applyBarnesHutLayout(final MultiGraph graph,
+      final @Nullable MultiGraph previewGraph, final double progressStep) {
+    final BarnesHutLayout layout = BarnesHutLayout.forGraph(graph, LAYOUT_SEED);
+    final long[] lastSnapshot = {System.currentTimeMillis()};
+    final double[] reportedProgress = {0};
+    layout.compute(BarnesHutLayout.DEFAULT_ITERATIONS, this::isCanceled,
+        (l, iteration, maxIterations) -> {
+          final double done = progressStep * iteration / maxIterations;
+          progress.addAndGet(done - reportedProgress[0]);
+          reportedProgress[0] = done;
+
+          final long now = System.currentTimeMillis();
+          if (previewGraph != null && intermediateLayoutListener != null
+              && now - lastSnapshot[0] >= SNAPSHOT_INTERVAL_MS) {
+            lastSnapshot[0] = now;
+            intermediateLayoutListener.accept(
+                new NetworkLayoutSnapshot(previewGraph, l.copyX(), l.copyY()));
+          }
+        });
+    progress.addAndGet(progressStep - reportedProgress[0]);
+    return MeasuredGraph.of(graph, layout.copyX(), layout.copyY());
+  }
+
+  /**
+   * Reads the node positions after the graph stream layout into arrays
+   */
   public MeasuredGraph measureSize(MultiGraph graph) {
-    double minX = Double.MAX_VALUE, minY = Double.MAX_VALUE, maxX = Double.NEGATIVE_INFINITY, maxY = Double.NEGATIVE_INFINITY;
+    final double[] x = new double[graph.getNodeCount()];
+    final double[] y = new double[x.length];
     double[] xyz = new double[3];
     for (final Node node : graph) {
       Toolkit.nodePosition(node, xyz);
-      minX = Math.min(minX, xyz[0]);
-      maxX = Math.max(maxX, xyz[0]);
-      minY = Math.min(minY, xyz[1]);
-      maxY = Math.max(maxY, xyz[1]);
+      x[node.getIndex()] = xyz[0];
+      y[node.getIndex()] = xyz[1];
     }
-    return new MeasuredGraph(graph, Range.closed(minX, maxX), Range.closed(minY, maxY));
+    return MeasuredGraph.of(graph, x, y);
   }
 
-  record MeasuredGraph(MultiGraph graph, Range<Double> xrange, Range<Double> yrange) {
+  /**
+   * @param x positions by node index in graph
+   * @param y positions by node index in graph
+   */
+  record MeasuredGraph(MultiGraph graph, double[] x, double[] y, Range<Double> xrange,
+                       Range<Double> yrange) {
+
+    static MeasuredGraph of(MultiGraph graph, double[] x, double[] y) {
+      double minX = Double.MAX_VALUE, minY = Double.MAX_VALUE, maxX = Double.NEGATIVE_INFINITY, maxY = Double.NEGATIVE_INFINITY;
+      for (int i = 0; i < x.length; i++) {
+        minX = Math.min(minX, x[i]);
+        maxX = Math.max(maxX, x[i]);
+        minY = Math.min(minY, y[i]);
+        maxY = Math.max(maxY, y[i]);
+      }
+      return new MeasuredGraph(graph, x, y, Range.closed(minX, maxX), Range.closed(minY, maxY));
+    }
 
     public double height() {
       return RangeUtils.rangeLength(yrange);
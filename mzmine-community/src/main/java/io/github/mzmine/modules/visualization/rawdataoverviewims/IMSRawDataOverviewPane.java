@@ -41,6 +41,8 @@ import io.github.mzmine.gui.chartbasics.simplechart.SimpleXYChart;
 import io.github.mzmine.gui.chartbasics.simplechart.SimpleXYZScatterPlot;
 import io.github.mzmine.gui.chartbasics.simplechart.datasets.ColoredXYDataset;
 import io.github.mzmine.gui.chartbasics.simplechart.datasets.ColoredXYZDataset;
+import io.github.mzmine.gui.chartbasics.simplechart.datasets.RunOption;
+import io.github.mzmine.gui.chartbasics.simplechart.providers.impl.AnyXYProvider;
 import io.github.mzmine.gui.chartbasics.simplechart.providers.impl.series.IMSIonTraceHeatmapProvider;
 import io.github.mzmine.gui.chartbasics.simplechart.providers.impl.spectra.CachedFrame;
 import io.github.mzmine.gui.chartbasics.simplechart.providers.impl.spectra.FrameHeatmapProvider;
@@ -50,18 +52,23 @@ import io.github.mzmine.gui.chartbasics.simplechart.providers.impl.spectra.Singl
 import io.github.mzmine.gui.chartbasics.simplechart.renderers.ColoredXYBarRenderer;
 import io.github.mzmine.gui.preferences.UnitFormat;
 import io.github.mzmine.javafx.concurrent.threading.FxThread;
+import io.github.mzmine.javafx.mvci.FxUpdateTask;
+import io.github.mzmine.javafx.mvci.LatestTaskScheduler;
 import io.github.mzmine.main.MZmineCore;
 import io.github.mzmine.modules.visualization.chromatogram.TICDataSet;
 import io.github.mzmine.modules.visualization.chromatogram.TICPlot;
 import io.github.mzmine.modules.visualization.frames.CanvasPane;
 import io.github.mzmine.modules.visualization.rawdataoverviewims.threads.BuildMultipleMobilogramRanges;
 import io.github.mzmine.modules.visualization.rawdataoverviewims.threads.BuildMultipleTICRanges;
+import io.github.mzmine.modules.visualization.rawdataoverviewims.threads.BuildOverviewPyramidTask;
 import io.github.mzmine.modules.visualization.rawdataoverviewims.threads.BuildSelectedRanges;
 import io.github.mzmine.modules.visualization.rawdataoverviewims.threads.MergeFrameThread;
 import io.github.mzmine.parameters.parametertypes.combowithinput.MsLevelFilter;
 import io.github.mzmine.parameters.parametertypes.combowithinput.MsLevelFilter.Options;
 import io.github.mzmine.parameters.parametertypes.selectors.ScanSelection;
 import io.github.mzmine.parameters.parametertypes.tolerances.MZTolerance;
+import io.github.mzmine.taskcontrol.Task;
+import io.github.mzmine.taskcontrol.TaskStatus;
 import io.github.mzmine.util.RangeUtils;
 import io.github.mzmine.util.javafx.MZmineIconUtils;
 import java.awt.BasicStroke;
@@ -99,6 +106,10 @@ public class IMSRawDataOverviewPane extends BorderPane {
   private static final Logger logger = Logger.getLogger(IMSRawDataOverviewPane.class.getName());
 
   private static final int HEATMAP_LEGEND_HEIGHT = 50;
+  /**
+   * Number of m/z bins the visible m/z range of binned heatmaps should at least be resolved into
+   */
+  private static final int MIN_PREVIEW_MZ_BINS = 512;
 
   private final GridPane chartPanel;
   private final IMSRawDataOverviewControlPanel controlsPanel;
@@ -142,6 +153,10 @@ public class IMSRawDataOverviewPane extends BorderPane {
   private FontIcon massDetectionScanIcon;
   private FontIcon massDetectionFrameIcon;
   private final Label binWidthLabel = new Label("");
+  /**
+   * Only the latest binned preview is computed and shown, older previews are canceled
+   */
+  private final LatestTaskScheduler previewScheduler = new LatestTaskScheduler();
 
   /**
    * Creates a BorderPane layout.
@@ -267,9 +282,12 @@ public class IMSRawDataOverviewPane extends BorderPane {
           Math.min(selectedMobilityScan.get().getMobilityScanNumber(),
               selectedFrame.get().getNumberOfMobilityScans() - 1))));
     }
+    // merged frames (id -1) hold maximum intensities and cannot be summed from the pyramid
+    final Range<Float> frameRtRange = selectedFrame.get().getFrameId() >= 0 ? Range.singleton(
+        selectedFrame.get().getRetentionTime()) : null;
     MZmineCore.getTaskController().addTask(
         new BuildMultipleMobilogramRanges(controlsPanel.getMobilogramRangesList(),
-            Set.of(cachedFrame), rawDataFile, this::addMobilogramRangesToChart,
+            Set.of(cachedFrame), rawDataFile, frameRtRange, this::addMobilogramRangesToChart,
             rangesBinningMobilogramDataAccess, new Date()));
     if (!RangeUtils.isGuavaRangeEnclosingJFreeRange(
         heatmapChart.getXYPlot().getRangeAxis().getRange(),
@@ -433,10 +451,10 @@ public class IMSRawDataOverviewPane extends BorderPane {
             mzTolerance.getToleranceRange(newValue.getDomainValue()))));
     heatmapChart.cursorPositionProperty().addListener(((observable, oldValue, newValue) -> {
       selectedMz.set(mzTolerance.getToleranceRange(newValue.getDomainValue()));
-      if (newValue.getDataset() != null) {
-        selectedMobilityScan.set(
-            ((FrameHeatmapProvider) ((ColoredXYZDataset) newValue.getDataset()).getXyzValueProvider()).getMobilityScanAtValueIndex(
-                newValue.getValueIndex()));
+      // binned previews have no mobility scans
+      if (newValue.getDataset() instanceof ColoredXYZDataset dataset
+          && dataset.getXyzValueProvider() instanceof FrameHeatmapProvider provider) {
+        selectedMobilityScan.set(provider.getMobilityScanAtValueIndex(newValue.getValueIndex()));
       }
     }));
     ticChart.cursorPositionProperty().addListener(
@@ -444,6 +462,7 @@ public class IMSRawDataOverviewPane extends BorderPane {
     ticChart.getMouseAdapter().addGestureHandler(new SimpleDataDragGestureHandler((start, end) -> {
       final Range<Double> rtRange = Range.closed(start.getX(), end.getX());
       final ScanSelection selection = new ScanSelection(msLevelFilter).cloneWithNewRtRange(rtRange);
+      showBinnedPreview(Range.closed(start.getX(), end.getX()));
       MZmineCore.getTaskController().addTask(
           new MergeFrameThread(rawDataFile, selection, binWidth, mobilityScanNoiseLevel,
               f -> FxThread.runLater(() -> setSelectedFrame(f))));
@@ -462,6 +481,70 @@ public class IMSRawDataOverviewPane extends BorderPane {
     }));
   }
 
+  /**
+   * Shows the summed frames of an rt range from the {@link IMSRawDataOverviewPyramid} until the
+   * merged frame is computed.
+   */
+  private void showBinnedPreview(Range<Double> rtRange) {
+    final IMSRawDataOverviewPyramid pyramid = IMSRawDataOverviewPyramid.get(rawDataFile);
+    if (pyramid == null || !msLevelFilter.isMs1Only()) {
+      return;
+    }
+    final Frame frameBeforePreview = selectedFrame.get();
+    final var mzAxisRange = heatmapChart.getXYPlot().getDomainAxis().getRange();
+    final Range<Float> rts = Range.closed(rtRange.lowerEndpoint().floatValue(),
+        rtRange.upperEndpoint().floatValue());
+    final IMSRawDataFile file = rawDataFile;
+    final List<Range<Double>> mobilogramRanges = List.copyOf(
+        controlsPanel.getMobilogramRangesList());
+    previewScheduler.onTaskThread(new FxUpdateTask<>("IMS overview binned preview", null) {
+      private ColoredXYZDataset heatmap;
+      private ColoredXYDataset mobilogramDataset;
+      private List<ColoredXYDataset> rangeMobilograms;
+
+      @Override
+      protected void process() {
+        // resolution matching the current zoom, falls back to the finest level
+        final int level = Math.max(0,
+            pyramid.selectLevel(mzAxisRange.getLength(), MIN_PREVIEW_MZ_BINS, 0));
+        heatmap = new ColoredXYZDataset(new PyramidHeatmapProvider(file, pyramid, level, rts),
+            RunOption.THIS_THREAD);
+        if (isCanceled()) {
+          return;
+        }
+        final double[] mobilogram = pyramid.getMobilogram(level, rts, file.getDataMZRange(1));
+        mobilogramDataset = new ColoredXYDataset(
+            new AnyXYProvider(file.getColorAWT(), "Binned mobilogram", mobilogram.length,
+                i -> mobilogram[i], i -> pyramid.getMobilityBinCenter(level, i)),
+            RunOption.THIS_THREAD);
+        rangeMobilograms = BuildMultipleMobilogramRanges.createBinnedPreviewDataSets(file,
+            pyramid, rts, mobilogramRanges);
+      }
+
+      @Override
+      protected void updateGuiModel() {
+        // merged frame was already computed or another file is shown
+        if (selectedFrame.get() != frameBeforePreview || rawDataFile != file) {
+          return;
+        }
+        clearAllCharts();
+        heatmapChart.setDataset(heatmap);
+        mobilogramChart.addDataset(mobilogramDataset);
+        mobilogramChart.addDatasets(rangeMobilograms);
+      }
+
+      @Override
+      public String getTaskDescription() {
+        return "Binned preview of " + file.getName();
+      }
+
+      @Override
+      public double getFinishedPercentage() {
+        return 0;
+      }
+    });
+  }
+
   private void initSelectedValueListeners() {
     selectedMobilityScan.addListener(((observable, oldValue, newValue) -> {
       singleSpectrumChart.removeAllDatasets();
@@ -642,6 +725,23 @@ public class IMSRawDataOverviewPane extends BorderPane {
       return;
     }
     this.rawDataFile = (IMSRawDataFile) rawDataFile;
+    // only one build per file, the overview of other files may be built in parallel
+    if (IMSRawDataOverviewPyramid.get(this.rawDataFile) == null
+        && !IMSRawDataOverviewPyramid.isBuilding(this.rawDataFile)) {
+      final IMSRawDataFile file = this.rawDataFile;
+      final Task pyramidTask = new BuildOverviewPyramidTask(file);
+      pyramidTask.addTaskStatusListener((task, newStatus, oldStatus) -> {
+        // show the binned chromatograms of the selected ranges
+        if (newStatus == TaskStatus.FINISHED) {
+          FxThread.runLater(() -> {
+            if (this.rawDataFile == file) {
+              updateTicPlot();
+            }
+          });
+        }
+      });
+      MZmineCore.getTaskController().addTask(pyramidTask);
+    }
     binWidthLabel.setText(
         "%d".formatted(BinningMobilogramDataAccess.getRecommendedBinWidth(this.rawDataFile)));
     rangesBinningMobilogramDataAccess = EfficientDataAccess.of(this.rawDataFile, binWidth);
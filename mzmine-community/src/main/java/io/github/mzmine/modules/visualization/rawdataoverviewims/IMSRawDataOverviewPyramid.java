@@ -0,0 +1,434 @@
+/*
+ * Copyright (c) 2004-2025 The mzmine Development Team
+ *
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+
+package io.github.mzmine.modules.visualization.rawdataoverviewims;
+
+import com.google.common.collect.Range;
+import com.google.common.util.concurrent.AtomicDouble;
+import io.github.mzmine.datamodel.Frame;
+import io.github.mzmine.datamodel.IMSRawDataFile;
+import io.github.mzmine.datamodel.data_access.EfficientDataAccess.MobilityScanDataType;
+import io.github.mzmine.datamodel.data_access.MobilityScanDataAccess;
+import io.github.mzmine.datamodel.featuredata.impl.StorageUtils;
+import io.github.mzmine.taskcontrol.Task;
+import io.github.mzmine.util.MemoryMapStorage;
+import java.lang.foreign.MemorySegment;
+import java.lang.foreign.ValueLayout;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.logging.Logger;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * Multi-resolution summary of the MS1 frames of an {@link IMSRawDataFile} for the IMS raw data
+ * overview. Each level is a cube of summed intensities binned over retention time (consecutive
+ * frames), mobility and m/z. Level 0 is the finest, every following level halves the number of
+ * bins on all three axes. The cubes are stored in the memory map storage of the data file and are
+ * built once per file. Chromatograms, mobilograms and heatmaps of wide ranges are then summed from
+ * the cube that matches the requested resolution instead of reading all mobility scans.
+ * <p>
+ * Intensities of bins that are only partially covered by an m/z range are weighted by the covered
+ * fraction of the bin.
+ */
+public class IMSRawDataOverviewPyramid {
+
+  private static final Logger logger = Logger.getLogger(
+      IMSRawDataOverviewPyramid.class.getName());
+
+  /**
+   * 32 M cells, 128 MB at the finest level
+   */
+  private static final int MAX_CELLS = 1 << 25;
+  private static final int MAX_RT_BINS = 512;
+  private static final int MAX_MOBILITY_BINS = 32;
+  private static final int MAX_MZ_BINS = 8192;
+  private static final int MIN_LEVEL_CELLS = 4096;
+
+  /**
+   * Files with a running build, only holds the files while their pyramid is built
+   */
+  private static final Set<IMSRawDataFile> building = ConcurrentHashMap.newKeySet();
+
+  private final List<? extends Frame> frames;
+  /**
+   * frames of rt bin i at level 0 are [firstFrame[i], firstFrame[i+1])
+   */
+  private final int[] firstFrame;
+  private final double mobilityMin;
+  private final double mobilityBinWidth;
+  private final double mzMin;
+  private final double mzBinWidth;
+  private final List<Level> levels;
+
+  IMSRawDataOverviewPyramid(final List<? extends Frame> frames, final int rtBins,
+      final double mobilityMin, final double mobilityMax, final int mobilityBins,
+      final double mzMin, final double mzMax, final int mzBins, final float[] finestCube,
+      final @Nullable MemoryMapStorage storage) {
+    if (finestCube.length != rtBins * mobilityBins * mzBins) {
+      throw new IllegalArgumentException("Cube size does not match the number of bins");
+    }
+    this.frames = frames;
+    this.mobilityMin = mobilityMin;
+    this.mobilityBinWidth = (mobilityMax - mobilityMin) / mobilityBins;
+    this.mzMin = mzMin;
+    this.mzBinWidth = (mzMax - mzMin) / mzBins;
+
+    firstFrame = new int[rtBins + 1];
+    for (int i = 0; i <= rtBins; i++) {
+      firstFrame[i] = (int) ((long) i * frames.size() / rtBins);
+    }
+
+    levels = new ArrayList<>();
+    float[] cube = finestCube;
+    int r = rtBins, m = mobilityBins, z = mzBins;
+    levels.add(new Level(r, m, z, StorageUtils.storeValuesToFloatBuffer(storage, cube)));
+    while ((long) r * m * z > MIN_LEVEL_CELLS && (r > 1 || m > 1 || z > 1)) {
+      final int nr = (r + 1) / 2, nm = (m + 1) / 2, nz = (z + 1) / 2;
+      final float[] coarse = new float[nr * nm * nz];
+      for (int ri = 0; ri < r; ri++) {
+        for (int mi = 0; mi < m; mi++) {
+          final int source = (ri * m + mi) * z;
+          final int target = ((ri / 2) * nm + mi / 2) * nz;
+          for (int zi = 0; zi < z; zi++) {
+            coarse[target + zi / 2] += cube[source + zi];
+          }
+        }
+      }
+      cube = coarse;
+      r = nr;
+      m = nm;
+      z = nz;
+      levels.add(new Level(r, m, z, StorageUtils.storeValuesToFloatBuffer(storage, cube)));
+    }
+  }
+
+  /**
+   * @return the pyramid of this file or null if it was not built yet
+   */
+  public static @Nullable IMSRawDataOverviewPyramid get(@NotNull final IMSRawDataFile file) {
+    return file.getOverviewPyramid();
+  }
+
+  /**
+   * @return true if the pyramid of this file is currently built
+   */
+  public static boolean isBuilding(@NotNull final IMSRawDataFile file) {
+    return building.contains(file);
+  }
+
+  /**
+   * Builds the pyramid of the file once and stores it in the file. Only one build runs per file,
+   * concurrent calls for the same file return null while the pyramid is built.
+   *
+   * @param task     checked for cancellation, may be null
+   * @param progress set to the finished fraction of frames, may be null
+   * @return the pyramid or null if the file has no MS1 frames, the task was canceled or another
+   * build of this file is running
+   */
+  public static @Nullable IMSRawDataOverviewPyramid getOrBuild(
+      @NotNull final IMSRawDataFile file, @Nullable final Task task,
+      @Nullable final AtomicDouble progress) {
+    final IMSRawDataOverviewPyramid existing = get(file);
+    if (existing != null) {
+      return existing;
+    }
+    if (!building.add(file)) {
+      return null;
+    }
+    try {
+      // may have finished between the first check and claiming the build
+      final IMSRawDataOverviewPyramid finished = get(file);
+      if (finished != null) {
+        return finished;
+      }
+      final IMSRawDataOverviewPyramid pyramid = build(file, task, progress);
+      if (pyramid != null) {
+        file.setOverviewPyramid(pyramid);
+      }
+      return pyramid;
+    } finally {
+      building.remove(file);
+    }
+  }
+
+  private static @Nullable IMSRawDataOverviewPyramid build(@NotNull final IMSRawDataFile file,
+      @Nullable final Task task, @Nullable final AtomicDouble progress) {
+    final List<Frame> frames = (List<Frame>) file.getFrames(1);
+    final Range<Double> mobilityRange = file.getDataMobilityRange(1);
+    final Range<Double> mzRange = file.getDataMZRange(1);
+    if (frames.isEmpty() || mobilityRange == null || mzRange.isEmpty()) {
+      return null;
+    }
+
+    final int rtBins = Math.min(frames.size(), MAX_RT_BINS);
+    final int mobilityBins = MAX_MOBILITY_BINS;
+    final int mzBins = Math.min(MAX_MZ_BINS, MAX_CELLS / (rtBins * mobilityBins));
+    // add a small margin so that the upper bounds fall into the last bin
+    final double mobilityMin = mobilityRange.lowerEndpoint();
+    final double mobilityMax = Math.nextUp(mobilityRange.upperEndpoint());
+    final double mzMin = mzRange.lowerEndpoint();
+    final double mzMax = Math.nextUp(mzRange.upperEndpoint());
+    final double mobilityScale = mobilityBins / (mobilityMax - mobilityMin);
+    final double mzScale = mzBins / (mzMax - mzMin);
+
+    final float[] cube = new float[rtBins * mobilityBins * mzBins];
+    final MobilityScanDataAccess access = new MobilityScanDataAccess(file,
+        MobilityScanDataType.RAW, frames);
+    int frameIndex = 0;
+    while (access.hasNextFrame()) {
+      if (task != null && task.isCanceled()) {
+        return null;
+      }
+      access.nextFrame();
+      final int rtBin = (int) ((long) frameIndex * rtBins / frames.size());
+      frameIndex++;
+      if (progress != null) {
+        progress.set(frameIndex / (double) frames.size());
+      }
+      while (access.hasNextMobilityScan()) {
+        access.nextMobilityScan();
+        final int mobilityBin = clamp((int) ((access.getMobility() - mobilityMin) * mobilityScale),
+            mobilityBins);
+        final int offset = (rtBin * mobilityBins + mobilityBin) * mzBins;
+        for (int i = 0; i < access.getNumberOfDataPoints(); i++) {
+          final int mzBin = clamp((int) ((access.getMzValue(i) - mzMin) * mzScale), mzBins);
+          cube[offset + mzBin] += (float) access.getIntensityValue(i);
+        }
+      }
+    }
+
+    final IMSRawDataOverviewPyramid pyramid = new IMSRawDataOverviewPyramid(frames, rtBins,
+        mobilityMin, mobilityMax, mobilityBins, mzMin, mzMax, mzBins, cube,
+        file.getMemoryMapStorage());
+    logger.finest(() -> "Built overview pyramid of %s with %d levels, finest %d x %d x %d bins".formatted(
+        file.getName(), pyramid.getNumberOfLevels(), rtBins, mobilityBins, mzBins));
+    return pyramid;
+  }
+
+  private static int clamp(final int bin, final int numBins) {
+    return Math.max(0, Math.min(numBins - 1, bin));
+  }
+
+  public int getNumberOfLevels() {
+    return levels.size();
+  }
+
+  public int getRtBins(final int level) {
+    return levels.get(level).rtBins();
+  }
+
+  public int getMobilityBins(final int level) {
+    return levels.get(level).mobilityBins();
+  }
+
+  public int getMzBins(final int level) {
+    return levels.get(level).mzBins();
+  }
+
+  public double getMzBinWidth(final int level) {
+    return mzBinWidth * (1 << level);
+  }
+
+  public double getMobilityBinWidth(final int level) {
+    return mobilityBinWidth * (1 << level);
+  }
+
+  public double getMzBinCenter(final int level, final int bin) {
+    return mzMin + (bin + 0.5) * getMzBinWidth(level);
+  }
+
+  public double getMobilityBinCenter(final int level, final int bin) {
+    return mobilityMin + (bin + 0.5) * getMobilityBinWidth(level);
+  }
+
+  /**
+   * Selects the coarsest level that resolves an m/z range of the given width into at least
+   * minMzBins bins and keeps at least minRtBins retention time bins (or all bins of the finest
+   * level if it has less).
+   *
+   * @return the level or -1 if even the finest level is too coarse
+   */
+  public int selectLevel(final double mzWidth, final int minMzBins, final int minRtBins) {
+    final int requiredRtBins = Math.min(minRtBins, getRtBins(0));
+    for (int level = levels.size() - 1; level >= 0; level--) {
+      if (mzWidth / getMzBinWidth(level) >= minMzBins && getRtBins(level) >= requiredRtBins) {
+        return level;
+      }
+    }
+    return -1;
+  }
+
+  /**
+   * @return the first frame that was summed into an rt bin, used to select frames from binned
+   * chromatograms
+   */
+  public Frame getFirstFrame(final int level, final int rtBin) {
+    return frames.get(firstFrame[rtBin << level]);
+  }
+
+  /**
+   * @return all frames that were summed into an rt bin
+   */
+  public List<? extends Frame> getFrames(final int level, final int rtBin) {
+    final int start = firstFrame[rtBin << level];
+    final int end = firstFrame[Math.min((rtBin + 1) << level, firstFrame.length - 1)];
+    return frames.subList(start, end);
+  }
+
+  /**
+   * Summed intensity of an m/z range over all mobilities for every rt bin of a level.
+   */
+  public double[] getChromatogram(final int level, final Range<Double> mzRange) {
+    final Level l = levels.get(level);
+    final double[] weights = new double[l.mzBins()];
+    final int[] bins = mzWeights(level, mzRange, weights);
+
+    final double[] intensities = new double[l.rtBins()];
+    for (int r = 0; r < l.rtBins(); r++) {
+      double sum = 0;
+      for (int m = 0; m < l.mobilityBins(); m++) {
+        sum += sumMz(l, r, m, bins, weights);
+      }
+      intensities[r] = sum;
+    }
+    return intensities;
+  }
+
+  /**
+   * Summed intensity of an m/z range for every mobility bin of a level. Sums all rt bins that
+   * contain frames within the rt range.
+   */
+  public double[] getMobilogram(final int level, final Range<Float> rtRange,
+      final Range<Double> mzRange) {
+    final Level l = levels.get(level);
+    final double[] weights = new double[l.mzBins()];
+    final int[] bins = mzWeights(level, mzRange, weights);
+    final int[] rtBins = rtBins(level, rtRange);
+
+    final double[] intensities = new double[l.mobilityBins()];
+    for (int r = rtBins[0]; r < rtBins[1]; r++) {
+      for (int m = 0; m < l.mobilityBins(); m++) {
+        intensities[m] += sumMz(l, r, m, bins, weights);
+      }
+    }
+    return intensities;
+  }
+
+  /**
+   * Summed intensities of all rt bins that contain frames within the rt range.
+   *
+   * @return intensities in [mobility bin][m/z bin]
+   */
+  public double[][] getMobilityMzMap(final int level, final Range<Float> rtRange) {
+    final Level l = levels.get(level);
+    final int[] rtBins = rtBins(level, rtRange);
+    final double[][] map = new double[l.mobilityBins()][l.mzBins()];
+    for (int r = rtBins[0]; r < rtBins[1]; r++) {
+      for (int m = 0; m < l.mobilityBins(); m++) {
+        final long offset = ((long) r * l.mobilityBins() + m) * l.mzBins();
+        final double[] row = map[m];
+        for (int z = 0; z < l.mzBins(); z++) {
+          row[z] += l.get(offset + z);
+        }
+      }
+    }
+    return map;
+  }
+
+  private static double sumMz(final Level l, final int r, final int m, final int[] bins,
+      final double[] weights) {
+    final long offset = ((long) r * l.mobilityBins() + m) * l.mzBins();
+    double sum = 0;
+    for (int z = bins[0]; z < bins[1]; z++) {
+      sum += l.get(offset + z) * weights[z];
+    }
+    return sum;
+  }
+
+  /**
+   * @param weights filled with the fraction of each m/z bin that is covered by the range
+   * @return the covered m/z bins [start, end)
+   */
+  private int[] mzWeights(final int level, final Range<Double> mzRange, final double[] weights) {
+    final double width = getMzBinWidth(level);
+    final double lower = (mzRange.lowerEndpoint() - mzMin) / width;
+    final double upper = (mzRange.upperEndpoint() - mzMin) / width;
+    final int start = Math.max(0, (int) Math.floor(lower));
+    final int end = Math.min(weights.length, (int) Math.ceil(upper));
+    for (int z = start; z < end; z++) {
+      weights[z] = Math.min(z + 1, upper) - Math.max(z, lower);
+    }
+    return new int[]{start, Math.max(start, end)};
+  }
+
+  /**
+   * @return true if the rt bins that contain frames within the rt range contain no other frames.
+   * Then the binned values are the sums of exactly the frames within the rt range.
+   */
+  public boolean resolvesRtRange(final int level, final Range<Float> rtRange) {
+    final int[] bins = rtBins(level, rtRange);
+    if (bins[0] >= bins[1]) {
+      return false;
+    }
+    final float first = getFrames(level, bins[0]).getFirst().getRetentionTime();
+    final float last = getFrames(level, bins[1] - 1).getLast().getRetentionTime();
+    return rtRange.contains(first) && rtRange.contains(last);
+  }
+
+  /**
+   * @return rt bins [start, end) that contain frames within the rt range
+   */
+  private int[] rtBins(final int level, final Range<Float> rtRange) {
+    final int numBins = getRtBins(level);
+    int start = numBins;
+    int end = 0;
+    for (int r = 0; r < numBins; r++) {
+      final List<? extends Frame> binFrames = getFrames(level, r);
+      if (binFrames.isEmpty()) {
+        continue;
+      }
+      final float first = binFrames.getFirst().getRetentionTime();
+      final float last = binFrames.getLast().getRetentionTime();
+      if (rtRange.isConnected(Range.closed(first, last))) {
+        start = Math.min(start, r);
+        end = r + 1;
+      }
+    }
+    return new int[]{start, Math.max(start, end)};
+  }
+
+  /**
+   * @param intensities [rt bin][mobility bin][m/z bin]
+   */
+  private record Level(int rtBins, int mobilityBins, int mzBins, MemorySegment intensities) {
+
+    float get(final long index) {
+      return intensities.getAtIndex(ValueLayout.JAVA_FLOAT, index);
+    }
+  }
+}
@@ -0,0 +1,161 @@
+/*
+ * Copyright (c) 2004-2025 The mzmine Development Team
+ *
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+
+package io.github.mzmine.modules.visualization.rawdataoverviewims;
+
+import com.google.common.collect.Range;
+import io.github.mzmine.datamodel.IMSRawDataFile;
+import io.github.mzmine.gui.chartbasics.chartutils.paintscales.PaintScaleTransform;
+import io.github.mzmine.gui.chartbasics.simplechart.providers.PlotXYZDataProvider;
+import io.github.mzmine.main.MZmineCore;
+import io.github.mzmine.taskcontrol.TaskStatus;
+import io.github.mzmine.util.MathUtils;
+import it.unimi.dsi.fastutil.doubles.DoubleArrayList;
+import java.awt.Color;
+import javafx.beans.property.Property;
+import org.jetbrains.annotations.Nullable;
+import org.jfree.chart.renderer.PaintScale;
+
+/**
+ * Mobility (range axis) over m/z (domain axis) heatmap of the summed frames in a retention time
+ * range, binned from an {@link IMSRawDataOverviewPyramid}. Used as a preview until the merged frame
+ * is computed.
+ */
+public class PyramidHeatmapProvider implements PlotXYZDataProvider {
+
+  private final IMSRawDataFile file;
+  private final IMSRawDataOverviewPyramid pyramid;
+  private final int level;
+  private final Range<Float> rtRange;
+
+  private final DoubleArrayList domainValues = new DoubleArrayList();
+  private final DoubleArrayList rangeValues = new DoubleArrayList();
+  private final DoubleArrayList zValues = new DoubleArrayList();
+
+  private PaintScale paintScale;
+  private double finishedPercentage;
+
+  public PyramidHeatmapProvider(IMSRawDataFile file, IMSRawDataOverviewPyramid pyramid, int level,
+      Range<Float> rtRange) {
+    this.file = file;
+    this.pyramid = pyramid;
+    this.level = level;
+    this.rtRange = rtRange;
+  }
+
+  @Override
+  public Color getAWTColor() {
+    return file.getColorAWT();
+  }
+
+  @Override
+  public javafx.scene.paint.Color getFXColor() {
+    return file.getColor();
+  }
+
+  @Override
+  public String getLabel(int index) {
+    return null;
+  }
+
+  @Nullable
+  @Override
+  public PaintScale getPaintScale() {
+    return paintScale;
+  }
+
+  @Override
+  public Comparable<?> getSeriesKey() {
+    final var rtFormat = MZmineCore.getConfiguration().getRTFormat();
+    return "Binned " + rtFormat.format(rtRange.lowerEndpoint()) + " - " + rtFormat.format(
+        rtRange.upperEndpoint()) + " min";
+  }
+
+  @Override
+  public String getToolTipText(int itemIndex) {
+    return null;
+  }
+
+  @Override
+  public void computeValues(Property<TaskStatus> status) {
+    final double[][] map = pyramid.getMobilityMzMap(level, rtRange);
+    for (int m = 0; m < map.length; m++) {
+      final double mobility = pyramid.getMobilityBinCenter(level, m);
+      for (int z = 0; z < map[m].length; z++) {
+        if (map[m][z] > 0) {
+          domainValues.add(pyramid.getMzBinCenter(level, z));
+          rangeValues.add(mobility);
+          zValues.add(map[m][z]);
+        }
+      }
+      finishedPercentage = (m + 1) / (double) map.length;
+    }
+
+    if (zValues.isEmpty()) {
+      return;
+    }
+    final double[] quantiles = MathUtils.calcQuantile(zValues.toDoubleArray(),
+        new double[]{0.50, 0.98});
+    paintScale = MZmineCore.getConfiguration().getDefaultPaintScalePalette()
+        .toPaintScale(PaintScaleTransform.LINEAR, Range.closed(quantiles[0], quantiles[1]));
+  }
+
+  @Override
+  public double getDomainValue(int index) {
+    return domainValues.getDouble(index);
+  }
+
+  @Override
+  public double getRangeValue(int index) {
+    return rangeValues.getDouble(index);
+  }
+
+  @Override
+  public int getValueCount() {
+    return domainValues.size();
+  }
+
+  @Override
+  public double getZValue(int index) {
+    return zValues.getDouble(index);
+  }
+
+  @Override
+  public double getComputationFinishedPercentage() {
+    return finishedPercentage;
+  }
+
+  @Nullable
+  @Override
+  public Double getBoxHeight() {
+    return pyramid.getMobilityBinWidth(level);
+  }
+
+  @Nullable
+  @Override
+  public Double getBoxWidth() {
+    return pyramid.getMzBinWidth(level);
+  }
+}
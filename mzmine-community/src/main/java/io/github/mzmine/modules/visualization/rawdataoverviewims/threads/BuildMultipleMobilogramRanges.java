@@ -33,13 +33,17 @@ import io.github.mzmine.datamodel.featuredata.IonMobilitySeries;
 import io.github.mzmine.datamodel.featuredata.impl.SummedIntensityMobilitySeries;
 import io.github.mzmine.gui.chartbasics.simplechart.datasets.ColoredXYDataset;
 import io.github.mzmine.gui.chartbasics.simplechart.datasets.RunOption;
+import io.github.mzmine.gui.chartbasics.simplechart.providers.impl.AnyXYProvider;
 import io.github.mzmine.gui.chartbasics.simplechart.providers.impl.series.SummedMobilogramXYProvider;
 import io.github.mzmine.main.MZmineCore;
+import io.github.mzmine.modules.visualization.rawdataoverviewims.IMSRawDataOverviewPyramid;
 import io.github.mzmine.taskcontrol.AbstractTask;
 import io.github.mzmine.taskcontrol.TaskStatus;
 import io.github.mzmine.util.IonMobilityUtils;
 import io.github.mzmine.util.IonMobilityUtils.MobilogramType;
+import io.github.mzmine.util.RangeUtils;
 import io.github.mzmine.util.color.SimpleColorPalette;
+import java.awt.Color;
 import java.text.NumberFormat;
 import java.time.Instant;
 import java.util.ArrayList;
@@ -49,18 +53,30 @@ import java.util.Set;
 import java.util.function.Consumer;
 import javafx.beans.property.SimpleObjectProperty;
 import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
 
 public class BuildMultipleMobilogramRanges extends AbstractTask {
 
+  /**
+   * m/z ranges need to span this many bins of the pyramid, otherwise the edges are too imprecise
+   */
+  private static final int MIN_MZ_BINS = 4;
+
   private final List<Range<Double>> mzRanges;
   private final Set<Frame> frames;
   private final IMSRawDataFile file;
+  private final @Nullable Range<Float> rtRange;
   private final Consumer<List<ColoredXYDataset>> onProcessingFinished;
   private final BinningMobilogramDataAccess binning;
   private double finishedPercentage;
 
+  /**
+   * @param rtRange the rt range of the ms1 frames that were summed into the frames. Enables the
+   *                {@link IMSRawDataOverviewPyramid} if it resolves exactly these frames. Null to
+   *                always use the frames, e.g., for merged frames.
+   */
   public BuildMultipleMobilogramRanges(@NotNull List<Range<Double>> mzRanges,
-      @NotNull Set<Frame> frames, @NotNull IMSRawDataFile file,
+      @NotNull Set<Frame> frames, @NotNull IMSRawDataFile file, @Nullable Range<Float> rtRange,
       @NotNull Consumer<List<ColoredXYDataset>> onProcessingFinished,
       @NotNull BinningMobilogramDataAccess binning, @NotNull Date moduleCallDate) {
     super(null,
@@ -71,6 +87,7 @@ public class BuildMultipleMobilogramRanges extends AbstractTask {
     this.mzRanges = mzRanges;
     this.frames = frames;
     this.file = file;
+    this.rtRange = rtRange;
   }
 
   @Override
@@ -85,29 +102,41 @@ public class BuildMultipleMobilogramRanges extends AbstractTask {
     SimpleColorPalette colors = MZmineCore.getConfiguration().getDefaultColorPalette().clone();
     colors.remove(file.getColor());
     NumberFormat mzFormat = MZmineCore.getConfiguration().getMZFormat();
+    // the pyramid only contains ms1 frames
+    final IMSRawDataOverviewPyramid pyramid =
+        rtRange != null && frames.stream().allMatch(f -> f.getMSLevel() == 1)
+            ? IMSRawDataOverviewPyramid.get(file) : null;
     for (Range<Double> mzRange : mzRanges) {
-      List<IonMobilitySeries> mobilograms = new ArrayList<>();
-      for (Frame frame : frames) {
-        final IonMobilitySeries mobilogram = IonMobilityUtils.buildMobilogramForMzRange(frame,
-            mzRange, MobilogramType.TIC, null);
-        mobilograms.add(mobilogram);
-      }
+      final String seriesKey = createSeriesKey(mzFormat, mzRange);
+      final int colorIndex = mzRanges.indexOf(mzRange);
 
-      final String seriesKey =
-          "m/z " + mzFormat.format(mzRange.lowerEndpoint()) + " - " + mzFormat.format(
-              mzRange.upperEndpoint());
-      if (!mobilograms.isEmpty()) {
-        binning.setMobilogram(mobilograms);
-        final SummedIntensityMobilitySeries summed = binning.toSummedMobilogram(null);
-        if (summed.getNumberOfDataPoints() > 0) {
-          SummedMobilogramXYProvider provider = new SummedMobilogramXYProvider(summed,
-              new SimpleObjectProperty<>(colors.get(mzRanges.indexOf(mzRange))), seriesKey, true,
-              false, null);
-          ColoredXYDataset dataset = new ColoredXYDataset(provider, RunOption.THIS_THREAD);
+      final BinnedMobilogram binned =
+          pyramid != null ? binMobilogram(pyramid, rtRange, mzRange, true) : null;
+      if (binned != null) {
+        final ColoredXYDataset dataset = binned.toDataset(colors.getAWT(colorIndex), seriesKey);
+        if (dataset != null) {
           mobilogramDataSets.add(dataset);
         }
+      } else {
+        List<IonMobilitySeries> mobilograms = new ArrayList<>();
+        for (Frame frame : frames) {
+          final IonMobilitySeries mobilogram = IonMobilityUtils.buildMobilogramForMzRange(frame,
+              mzRange, MobilogramType.TIC, null);
+          mobilograms.add(mobilogram);
+        }
+
+        if (!mobilograms.isEmpty()) {
+          binning.setMobilogram(mobilograms);
+          final SummedIntensityMobilitySeries summed = binning.toSummedMobilogram(null);
+          if (summed.getNumberOfDataPoints() > 0) {
+            SummedMobilogramXYProvider provider = new SummedMobilogramXYProvider(summed,
+                new SimpleObjectProperty<>(colors.get(colorIndex)), seriesKey, true, false, null);
+            ColoredXYDataset dataset = new ColoredXYDataset(provider, RunOption.THIS_THREAD);
+            mobilogramDataSets.add(dataset);
+          }
+        }
       }
-      finishedPercentage = mzRanges.indexOf(mzRange) / (double) mzRanges.size();
+      finishedPercentage = colorIndex / (double) mzRanges.size();
 
       if (isCanceled()) {
         return;
@@ -118,6 +147,60 @@ public class BuildMultipleMobilogramRanges extends AbstractTask {
     onProcessingFinished.accept(mobilogramDataSets);
   }
 
+  /**
+   * Mobilograms of the m/z ranges summed from the pyramid for binned previews. Neighboring frames
+   * in the same rt bins are included and narrow m/z ranges use the finest level.
+   *
+   * @param rtRange the rt range of the preview
+   * @return the datasets of all ranges with signals, colored like the exact mobilograms
+   */
+  public static @NotNull List<ColoredXYDataset> createBinnedPreviewDataSets(
+      @NotNull IMSRawDataFile file, @NotNull IMSRawDataOverviewPyramid pyramid,
+      @NotNull Range<Float> rtRange, @NotNull List<Range<Double>> mzRanges) {
+    final SimpleColorPalette colors = MZmineCore.getConfiguration().getDefaultColorPalette()
+        .clone();
+    colors.remove(file.getColor());
+    final NumberFormat mzFormat = MZmineCore.getConfiguration().getMZFormat();
+    final List<ColoredXYDataset> datasets = new ArrayList<>();
+    for (int i = 0; i < mzRanges.size(); i++) {
+      final Range<Double> mzRange = mzRanges.get(i);
+      final BinnedMobilogram binned = binMobilogram(pyramid, rtRange, mzRange, false);
+      final ColoredXYDataset dataset = binned == null ? null
+          : binned.toDataset(colors.getAWT(i), createSeriesKey(mzFormat, mzRange));
+      if (dataset != null) {
+        datasets.add(dataset);
+      }
+    }
+    return datasets;
+  }
+
+  /**
+   * @param exactRt only use levels whose rt bins contain exactly the frames within the rt range,
+   *                otherwise also accept neighboring frames in the same bins
+   * @return the binned mobilogram or null if the pyramid does not resolve the ranges
+   */
+  @Nullable
+  private static BinnedMobilogram binMobilogram(@NotNull IMSRawDataOverviewPyramid pyramid,
+      @NotNull Range<Float> rtRange, @NotNull Range<Double> mzRange, boolean exactRt) {
+    int level = pyramid.selectLevel(RangeUtils.rangeLength(mzRange), MIN_MZ_BINS, 0);
+    if (!exactRt) {
+      level = Math.max(0, level);
+    }
+    // finer levels resolve the m/z range as well and have narrower rt bins
+    while (exactRt && level >= 0 && !pyramid.resolvesRtRange(level, rtRange)) {
+      level--;
+    }
+    if (level == -1) {
+      return null;
+    }
+    return new BinnedMobilogram(pyramid, level, pyramid.getMobilogram(level, rtRange, mzRange));
+  }
+
+  private static String createSeriesKey(NumberFormat mzFormat, Range<Double> mzRange) {
+    return "m/z " + mzFormat.format(mzRange.lowerEndpoint()) + " - " + mzFormat.format(
+        mzRange.upperEndpoint());
+  }
+
   @Override
   public String getTaskDescription() {
     return "Building mobilograms and tic data sets for Ims raw data overview.";
@@ -127,4 +210,32 @@ public class BuildMultipleMobilogramRanges extends AbstractTask {
   public double getFinishedPercentage() {
     return finishedPercentage;
   }
+
+  /**
+   * @param intensities summed intensity per mobility bin of the level
+   */
+  private record BinnedMobilogram(IMSRawDataOverviewPyramid pyramid, int level,
+                                  double[] intensities) {
+
+    /**
+     * @return the mobility bins with signals or null if there are none
+     */
+    @Nullable
+    ColoredXYDataset toDataset(Color color, String seriesKey) {
+      final int[] bins = new int[intensities.length];
+      int numBins = 0;
+      for (int i = 0; i < intensities.length; i++) {
+        if (intensities[i] > 0) {
+          bins[numBins++] = i;
+        }
+      }
+      if (numBins == 0) {
+        return null;
+      }
+      // intensity on the domain axis, like the summed mobilograms
+      return new ColoredXYDataset(new AnyXYProvider(color, seriesKey, numBins,
+          i -> intensities[bins[i]], i -> pyramid.getMobilityBinCenter(level, bins[i])),
+          RunOption.THIS_THREAD);
+    }
+  }
 }
@@ -26,13 +26,17 @@
 package io.github.mzmine.modules.visualization.rawdataoverviewims.threads;
 
 import com.google.common.collect.Range;
+import io.github.mzmine.datamodel.Frame;
 import io.github.mzmine.datamodel.IMSRawDataFile;
+import io.github.mzmine.datamodel.Scan;
 import io.github.mzmine.main.MZmineCore;
 import io.github.mzmine.modules.visualization.chromatogram.TICDataSet;
 import io.github.mzmine.modules.visualization.rawdataoverviewims.IMSRawDataOverviewPane;
+import io.github.mzmine.modules.visualization.rawdataoverviewims.IMSRawDataOverviewPyramid;
 import io.github.mzmine.parameters.parametertypes.selectors.ScanSelection;
 import io.github.mzmine.taskcontrol.AbstractTask;
 import io.github.mzmine.taskcontrol.TaskStatus;
+import io.github.mzmine.util.RangeUtils;
 import io.github.mzmine.util.color.SimpleColorPalette;
 import java.awt.Color;
 import java.text.NumberFormat;
@@ -41,9 +45,16 @@ import java.util.ArrayList;
 import java.util.List;
 import javafx.application.Platform;
 import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
 
 public class BuildMultipleTICRanges extends AbstractTask {
 
+  /**
+   * m/z ranges need to span this many bins of the pyramid, otherwise the edges are too imprecise
+   */
+  private static final int MIN_MZ_BINS = 4;
+  private static final int MIN_RT_BINS = 512;
+
   private final List<Range<Double>> mzRanges;
   private final IMSRawDataOverviewPane pane;
   private final IMSRawDataFile file;
@@ -78,12 +89,17 @@ public class BuildMultipleTICRanges extends AbstractTask {
     SimpleColorPalette colors = MZmineCore.getConfiguration().getDefaultColorPalette().clone();
     colors.remove(file.getColor());
     NumberFormat mzFormat = MZmineCore.getConfiguration().getMZFormat();
+    // the pyramid only contains ms1 frames
+    final IMSRawDataOverviewPyramid pyramid =
+        scanSelection.getMsLevelFilter().isMs1Only() ? IMSRawDataOverviewPyramid.get(file) : null;
     for (Range<Double> mzRange : mzRanges) {
       final String seriesKey =
           "m/z " + mzFormat.format(mzRange.lowerEndpoint()) + " - " + mzFormat
               .format(mzRange.upperEndpoint());
-      TICDataSet ticDataSet = new TICDataSet(file, scanSelection.getMatchingScans(file),
-          mzRange, null);
+      TICDataSet ticDataSet = pyramid != null ? createBinnedDataSet(pyramid, mzRange) : null;
+      if (ticDataSet == null) {
+        ticDataSet = new TICDataSet(file, scanSelection.getMatchingScans(file), mzRange, null);
+      }
       ticDataSets.add(ticDataSet);
       ticDataSet.setCustomSeriesKey(seriesKey);
       ticDataSeColors.add(colors.getAWT(mzRanges.indexOf(mzRange)));
@@ -93,4 +109,27 @@ public class BuildMultipleTICRanges extends AbstractTask {
     Platform
         .runLater(() -> pane.setTICRangesToChart(ticDataSets, ticDataSeColors));
   }
+
+  /**
+   * @return the summed intensities of the m/z range from the pyramid or null if the range is too
+   * narrow for the binned data
+   */
+  @Nullable
+  private TICDataSet createBinnedDataSet(@NotNull IMSRawDataOverviewPyramid pyramid,
+      @NotNull Range<Double> mzRange) {
+    final int level = pyramid.selectLevel(RangeUtils.rangeLength(mzRange), MIN_MZ_BINS,
+        MIN_RT_BINS);
+    if (level == -1) {
+      return null;
+    }
+    final double[] intensities = pyramid.getChromatogram(level, mzRange);
+    final double[] rts = new double[intensities.length];
+    final List<Scan> frames = new ArrayList<>(intensities.length);
+    for (int i = 0; i < intensities.length; i++) {
+      final Frame frame = pyramid.getFirstFrame(level, i);
+      frames.add(frame);
+      rts[i] = frame.getRetentionTime();
+    }
+    return new TICDataSet(file, frames, rts, intensities, mzRange);
+  }
 }
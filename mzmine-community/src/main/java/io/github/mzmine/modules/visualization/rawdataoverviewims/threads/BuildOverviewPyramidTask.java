@@ -0,0 +1,69 @@
+/*
+ * Copyright (c) 2004-2025 The mzmine Development Team
+ *
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+
+package io.github.mzmine.modules.visualization.rawdataoverviewims.threads;
+
+import com.google.common.util.concurrent.AtomicDouble;
+import io.github.mzmine.datamodel.IMSRawDataFile;
+import io.github.mzmine.modules.visualization.rawdataoverviewims.IMSRawDataOverviewPyramid;
+import io.github.mzmine.taskcontrol.AbstractTask;
+import io.github.mzmine.taskcontrol.TaskStatus;
+import java.time.Instant;
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * Builds the {@link IMSRawDataOverviewPyramid} of a file once. Until it is finished, the overview
+ * computes all data from the mobility scans.
+ */
+public class BuildOverviewPyramidTask extends AbstractTask {
+
+  private final IMSRawDataFile file;
+  private final AtomicDouble progress = new AtomicDouble(0d);
+
+  public BuildOverviewPyramidTask(@NotNull IMSRawDataFile file) {
+    super(null, Instant.now()); // no new data stored -> null, date is irrelevant (not used in batch mode)
+    this.file = file;
+  }
+
+  @Override
+  public String getTaskDescription() {
+    return "Building IMS overview of " + file.getName();
+  }
+
+  @Override
+  public double getFinishedPercentage() {
+    return progress.get();
+  }
+
+  @Override
+  public void run() {
+    setStatus(TaskStatus.PROCESSING);
+    IMSRawDataOverviewPyramid.getOrBuild(file, this, progress);
+    if (isCanceled()) {
+      return;
+    }
+    setStatus(TaskStatus.FINISHED);
+  }
+}
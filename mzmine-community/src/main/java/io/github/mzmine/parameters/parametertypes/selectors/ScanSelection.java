@@ -33,11 +33,14 @@ import io.github.mzmine.datamodel.MobilityScan;
 import io.github.mzmine.datamodel.PolarityType;
 import io.github.mzmine.datamodel.RawDataFile;
 import io.github.mzmine.datamodel.Scan;
+import io.github.mzmine.datamodel.impl.ScanMetadataIndex;
 import io.github.mzmine.parameters.parametertypes.combowithinput.MsLevelFilter;
 import io.github.mzmine.util.RangeUtils;
 import io.github.mzmine.util.TextUtils;
+import io.github.mzmine.util.collections.IndexRange;
 import java.text.DecimalFormat;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.List;
 import java.util.stream.Collectors;
@@ -132,11 +135,87 @@ public record ScanSelection(Range<Integer> scanNumberRange, Integer baseFilterin
   }
 
   public Stream<Scan> streamMatchingScans(RawDataFile dataFile) {
-    return dataFile.getScans().stream().filter(this::matches);
+    final ScanMetadataIndex index = dataFile.getScanMetadataIndex();
+    if (index == null) {
+      return dataFile.getScans().stream().filter(this::matches);
+    }
+    return Arrays.stream(index.getMatchingScans(this, this::resolveMatchingScans));
   }
 
+  /**
+   * Resolved against the {@link ScanMetadataIndex} of the data file if available. The result is
+   * cached for equal selections until scans are added or removed.
+   *
+   * @return all matching scans of this data file
+   */
   public Scan[] getMatchingScans(RawDataFile dataFile) {
-    return streamMatchingScans(dataFile).toArray(Scan[]::new);
+    final ScanMetadataIndex index = dataFile.getScanMetadataIndex();
+    if (index == null) {
+      return dataFile.getScans().stream().filter(this::matches).toArray(Scan[]::new);
+    }
+    return index.getMatchingScans(this, this::resolveMatchingScans);
+  }
+
+  /**
+   * Applies the same filters as {@link #matches(Scan)} on the columns of the index. Retention time
+   * is resolved by a range lookup and scan definitions are matched once per distinct definition.
+   */
+  private Scan[] resolveMatchingScans(@NotNull ScanMetadataIndex index) {
+    final IndexRange candidates = index.indexRangeOfRt(scanRTRange);
+    if (candidates.isEmpty()) {
+      return new Scan[0];
+    }
+
+    final int offset =
+        scanNumberRange != null ? scanNumberRange.lowerEndpoint() : index.getFirstScanNumber();
+
+    // match each distinct scan definition only once
+    final String[] definitions = index.getScanDefinitions();
+    final boolean filterDefinition = !Strings.isNullOrEmpty(scanDefinition);
+    final boolean[] definitionMatches = new boolean[definitions.length];
+    if (filterDefinition) {
+      final String regex = TextUtils.createRegexFromWildcards(scanDefinition);
+      for (int i = 0; i < definitions.length; i++) {
+        definitionMatches[i] = definitions[i].matches(regex);
+      }
+    }
+
+    final List<Scan> result = new ArrayList<>();
+    for (int i = candidates.min(); i < candidates.maxExclusive(); i++) {
+      if (!msLevel.accept(index.getMsLevel(i))) {
+        continue;
+      }
+      if (polarity != PolarityType.ANY && polarity != index.getPolarity(i)) {
+        continue;
+      }
+      if (spectrumType != MassSpectrumType.ANY && spectrumType != index.getSpectrumType(i)) {
+        continue;
+      }
+      final int scanNumber = index.getScanNumber(i);
+      if ((scanNumberRange != null) && (!scanNumberRange.contains(scanNumber))) {
+        continue;
+      }
+      if ((baseFilteringInteger != null) && ((scanNumber - offset) % baseFilteringInteger != 0)) {
+        continue;
+      }
+      if ((scanRTRange != null) && (!scanRTRange.contains(
+          (double) index.getRetentionTime(i)))) {
+        continue;
+      }
+      if (scanMobilityRange != null && index.hasMobilityRange(i) && !Range.closed(
+          index.getMobilityLowerBound(i), index.getMobilityUpperBound(i)).isConnected(
+          scanMobilityRange)) {
+        continue;
+      }
+      if (filterDefinition) {
+        final int definitionId = index.getScanDefinitionId(i);
+        if (definitionId == -1 || !definitionMatches[definitionId]) {
+          continue;
+        }
+      }
+      result.add(index.getScan(i));
+    }
+    return result.toArray(Scan[]::new);
   }
 
   /**
@@ -31,6 +31,7 @@ import io.github.mzmine.datamodel.IMSRawDataFile;
 import io.github.mzmine.datamodel.MobilityType;
 import io.github.mzmine.datamodel.Scan;
 import io.github.mzmine.modules.dataprocessing.id_ccscalibration.CCSCalibration;
+import io.github.mzmine.modules.visualization.rawdataoverviewims.IMSRawDataOverviewPyramid;
 import io.github.mzmine.util.MemoryMapStorage;
 import it.unimi.dsi.fastutil.doubles.DoubleImmutableList;
 import java.util.ArrayList;
@@ -62,6 +63,7 @@ public class IMSRawDataFileImpl extends RawDataFileImpl implements IMSRawDataFil
   protected Range<Double> mobilityRange;
   protected MobilityType mobilityType;
   protected CCSCalibration ccsCalibration = null;
+  private volatile @Nullable IMSRawDataOverviewPyramid overviewPyramid = null;
 
   public IMSRawDataFileImpl(String dataFileName, @Nullable final String absolutePath,
       MemoryMapStorage storage) {
@@ -299,6 +301,16 @@ public class IMSRawDataFileImpl extends RawDataFileImpl implements IMSRawDataFil
     ccsCalibration = calibration;
   }
 
+  @Override
+  public @Nullable IMSRawDataOverviewPyramid getOverviewPyramid() {
+    return overviewPyramid;
+  }
+
+  @Override
+  public void setOverviewPyramid(@Nullable IMSRawDataOverviewPyramid pyramid) {
+    overviewPyramid = pyramid;
+  }
+
   @Override
   public int addMobilityValues(double[] mobilities) {
     for (int i = 0; i < mobilitySegments.size(); i++) {
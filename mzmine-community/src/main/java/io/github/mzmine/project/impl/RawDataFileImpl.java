@@ -33,6 +33,8 @@ import io.github.mzmine.datamodel.PolarityType;
 import io.github.mzmine.datamodel.RawDataFile;
 import io.github.mzmine.datamodel.Scan;
 import io.github.mzmine.datamodel.features.FeatureList.FeatureListAppliedMethod;
+import io.github.mzmine.datamodel.impl.ScanHeaderDictionary;
+import io.github.mzmine.datamodel.impl.ScanMetadataIndex;
 import io.github.mzmine.datamodel.otherdetectors.OtherDataFile;
 import io.github.mzmine.javafx.util.FxColorUtil;
 import io.github.mzmine.main.MZmineCore;
@@ -49,6 +51,7 @@ import java.util.stream.Collectors;
 import javafx.beans.property.ObjectProperty;
 import javafx.beans.property.SimpleObjectProperty;
 import javafx.collections.FXCollections;
+import javafx.collections.ListChangeListener;
 import javafx.collections.ObservableList;
 import javafx.scene.paint.Color;
 import org.jetbrains.annotations.NotNull;
@@ -94,6 +97,11 @@ public class RawDataFileImpl implements RawDataFile {
   private MassSpectrumType spectraType;
   @Nullable
   private LocalDateTime startTimeStamp = null;
+  // shared scan definitions and scanning ranges of all scans
+  private final ScanHeaderDictionary scanHeaderDictionary = new ScanHeaderDictionary();
+  // lazily built on first scan selection, dropped on any change to the scans list
+  @Nullable
+  private volatile ScanMetadataIndex scanMetadataIndex;
 
   public RawDataFileImpl(@NotNull final String dataFileName, @Nullable final String absolutePath,
       @Nullable final MemoryMapStorage storage) {
@@ -108,6 +116,7 @@ public class RawDataFileImpl implements RawDataFile {
     this.absolutePath = absolutePath;
 
     scans = FXCollections.observableArrayList();
+    scans.addListener((ListChangeListener<Scan>) _ -> scanMetadataIndex = null);
 
     this.color.setValue(color);
   }
@@ -384,6 +393,26 @@ public class RawDataFileImpl implements RawDataFile {
     return scans;
   }
 
+  @Override
+  public @NotNull ScanMetadataIndex getScanMetadataIndex() {
+    ScanMetadataIndex index = scanMetadataIndex;
+    if (index == null) {
+      synchronized (this) {
+        index = scanMetadataIndex;
+        if (index == null) {
+          index = ScanMetadataIndex.of(scans);
+          scanMetadataIndex = index;
+        }
+      }
+    }
+    return index;
+  }
+
+  @Override
+  public @NotNull ScanHeaderDictionary getScanHeaderDictionary() {
+    return scanHeaderDictionary;
+  }
+
   public void clearScans() {
     scans.clear();
     maxRawDataPoints = -1;
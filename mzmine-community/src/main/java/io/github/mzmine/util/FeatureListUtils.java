@@ -42,6 +42,7 @@ import io.github.mzmine.datamodel.features.FeatureList.FeatureListAppliedMethod;
 import io.github.mzmine.datamodel.features.FeatureListRow;
 import io.github.mzmine.datamodel.features.ModularFeatureList;
 import io.github.mzmine.datamodel.features.ModularFeatureListRow;
+import io.github.mzmine.datamodel.features.RowSpatialIndex;
 import io.github.mzmine.datamodel.features.types.DataTypes;
 import io.github.mzmine.datamodel.features.types.alignment.AlignmentMainType;
 import io.github.mzmine.datamodel.features.types.alignment.AlignmentScores;
@@ -131,6 +132,7 @@ public class FeatureListUtils {
    * @param sortedByMzAscending list is already sorted by ascending mz. This will speed up the
    *                            search
    * @return an unsorted list of candidates within all three ranges if provided
+   * @see RowSpatialIndex for repeated searches in the same rows
    */
   public static @NotNull List<FeatureListRow> getCandidatesWithinRanges(
       @NotNull Range<Double> mzRange, @NotNull Range<Float> rtRange,
@@ -38,6 +38,7 @@ import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Comparator;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
@@ -401,10 +402,12 @@ public class GraphStreamUtils {
     for (Node n : nodes) {
       addCopy(gl, n);
     }
+    // lists of large clusters are too slow for contains
+    final Set<Node> nodeSet = nodes instanceof Set<Node> set ? set : new HashSet<>(nodes);
     for (Node n : nodes) {
       n.enteringEdges().forEach(edge -> {
         // need to contain both nodes
-        if (nodes.contains(edge.getSourceNode()) && nodes.contains(edge.getTargetNode())) {
+        if (nodeSet.contains(edge.getSourceNode()) && nodeSet.contains(edge.getTargetNode())) {
           addCopy(gl, edge);
         }
       });
@@ -0,0 +1,242 @@
+/*
+ * Copyright (c) 2004-2025 The mzmine Development Team
+ *
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+
+package io.github.mzmine.util.io;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.CharacterCodingException;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.CoderResult;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.function.BooleanSupplier;
+import java.util.function.Supplier;
+import java.util.stream.IntStream;
+import java.util.zip.GZIPOutputStream;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * Formats items (e.g., feature list rows) in parallel chunks and writes the chunks in their original
+ * order through a single {@link FileChannel}. The output is byte for byte identical to formatting
+ * and writing all items sequentially with a UTF-8 writer. Each chunk slot keeps its
+ * {@link StringBuilder} and byte buffer for the whole export, so buffers are only grown and never
+ * reallocated per chunk.
+ * <p>
+ * Optionally compresses the output with gzip.
+ */
+public class ParallelChunkedTextWriter implements AutoCloseable {
+
+  public static final int DEFAULT_CHUNK_SIZE = 128;
+
+  private final FileChannel fileChannel;
+  private final @Nullable GZIPOutputStream gzipStream;
+  private final WritableByteChannel out;
+  private final int chunkSize;
+  private final ChunkBuffer[] slots;
+  // for sequential writes, e.g., headers
+  private final ChunkBuffer directSlot = new ChunkBuffer();
+
+  /**
+   * @param file output file, will be replaced
+   * @param gzip compress with gzip
+   */
+  public ParallelChunkedTextWriter(@NotNull File file, boolean gzip) throws IOException {
+    this(file, gzip, DEFAULT_CHUNK_SIZE, Runtime.getRuntime().availableProcessors());
+  }
+
+  /**
+   * @param file        output file, will be replaced
+   * @param gzip        compress with gzip
+   * @param chunkSize   number of items formatted in one chunk
+   * @param parallelism number of chunks formatted in parallel before they are written
+   */
+  public ParallelChunkedTextWriter(@NotNull File file, boolean gzip, int chunkSize,
+      int parallelism) throws IOException {
+    this.chunkSize = Math.max(1, chunkSize);
+    slots = new ChunkBuffer[Math.max(1, parallelism)];
+    for (int i = 0; i < slots.length; i++) {
+      slots[i] = new ChunkBuffer();
+    }
+
+    fileChannel = FileChannel.open(file.toPath(), StandardOpenOption.CREATE,
+        StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+    if (gzip) {
+      gzipStream = new GZIPOutputStream(Channels.newOutputStream(fileChannel), 1 << 16);
+      out = Channels.newChannel(gzipStream);
+    } else {
+      gzipStream = null;
+      out = fileChannel;
+    }
+  }
+
+  /**
+   * @return true if the file name ends with .gz
+   */
+  public static boolean isGzipFile(@NotNull File file) {
+    return file.getName().toLowerCase().endsWith(".gz");
+  }
+
+  /**
+   * Write text directly on the calling thread
+   */
+  public void write(@NotNull CharSequence text) throws IOException {
+    final StringBuilder b = directSlot.text;
+    b.setLength(0);
+    b.append(text);
+    directSlot.encode();
+    directSlot.writeTo(out);
+  }
+
+  /**
+   * Formats all items in parallel chunks and writes them in order.
+   *
+   * @param items            the items in output order
+   * @param formatterFactory creates one formatter per chunk. Formatters may hold state that is not
+   *                         thread safe, like number formats, as each chunk is formatted by a
+   *                         single thread.
+   * @param isCanceled       stops after the current chunks
+   * @return the number of items that were appended by the formatter
+   */
+  public <T> long writeChunked(@NotNull List<T> items,
+      @NotNull Supplier<? extends ItemFormatter<T>> formatterFactory,
+      @NotNull BooleanSupplier isCanceled) throws IOException {
+    final int numItems = items.size();
+    final int windowSize = chunkSize * slots.length;
+    long appended = 0;
+
+    for (int windowStart = 0; windowStart < numItems; windowStart += windowSize) {
+      if (isCanceled.getAsBoolean()) {
+        return appended;
+      }
+      final int start = windowStart;
+      final int activeSlots = Math.min(slots.length,
+          (numItems - windowStart + chunkSize - 1) / chunkSize);
+
+      try {
+        IntStream.range(0, activeSlots).parallel().forEach(slot -> {
+          final int from = start + slot * chunkSize;
+          final int to = Math.min(numItems, from + chunkSize);
+          slots[slot].format(items, from, to, formatterFactory.get());
+        });
+      } catch (UncheckedIOException e) {
+        throw e.getCause();
+      }
+
+      // write in original order
+      for (int slot = 0; slot < activeSlots; slot++) {
+        slots[slot].writeTo(out);
+        appended += slots[slot].appendedItems;
+      }
+    }
+    return appended;
+  }
+
+  @Override
+  public void close() throws IOException {
+    if (gzipStream != null) {
+      // also closes the file channel
+      gzipStream.close();
+    } else {
+      fileChannel.close();
+    }
+  }
+
+  /**
+   * Formats a single item
+   */
+  @FunctionalInterface
+  public interface ItemFormatter<T> {
+
+    /**
+     * @param item the item to format
+     * @param out  append the formatted item, including line breaks
+     * @return true if the item was appended, false if it was skipped
+     */
+    boolean append(@NotNull T item, @NotNull StringBuilder out);
+  }
+
+  /**
+   * Reused text and byte buffer of one chunk slot
+   */
+  private static class ChunkBuffer {
+
+    private final StringBuilder text = new StringBuilder(1 << 16);
+    // replace malformed input like unpaired surrogates with '?', same as a java.io.Writer
+    private final CharsetEncoder encoder = StandardCharsets.UTF_8.newEncoder()
+        .onMalformedInput(CodingErrorAction.REPLACE)
+        .onUnmappableCharacter(CodingErrorAction.REPLACE);
+    private ByteBuffer bytes = ByteBuffer.allocate(1 << 16);
+    private int appendedItems;
+
+    private <T> void format(List<T> items, int from, int to, ItemFormatter<T> formatter) {
+      text.setLength(0);
+      appendedItems = 0;
+      for (int i = from; i < to; i++) {
+        if (formatter.append(items.get(i), text)) {
+          appendedItems++;
+        }
+      }
+      try {
+        encode();
+      } catch (CharacterCodingException e) {
+        throw new UncheckedIOException(e);
+      }
+    }
+
+    private void encode() throws CharacterCodingException {
+      final int maxBytes = (int) Math.ceil(text.length() * (double) encoder.maxBytesPerChar());
+      if (bytes.capacity() < maxBytes) {
+        bytes = ByteBuffer.allocate(Math.max(maxBytes, bytes.capacity() * 2));
+      }
+      bytes.clear();
+      encoder.reset();
+      CoderResult result = encoder.encode(CharBuffer.wrap(text), bytes, true);
+      if (result.isError()) {
+        result.throwException();
+      }
+      result = encoder.flush(bytes);
+      if (result.isError()) {
+        result.throwException();
+      }
+      bytes.flip();
+    }
+
+    private void writeTo(WritableByteChannel channel) throws IOException {
+      while (bytes.hasRemaining()) {
+        channel.write(bytes);
+      }
+    }
+  }
+}
@@ -167,8 +167,19 @@ public class ScanAlignment {
    */
   public static Range<Double> getOverlapMZ(MZTolerance mzTol, DataPoint[] a, DataPoint[] b,
       final Double aMz, final double bMz) {
-    Range<Double> ra = getMZRange(a).span(Range.singleton(aMz));
-    Range<Double> rb = getMZRange(b).span(Range.singleton(bMz));
+    return getOverlapMZ(mzTol, getMZRange(a), getMZRange(b), aMz, bMz);
+  }
+
+  /**
+   * get overlapping MZ range (lowerBound - mzTol and upperbound+ mzTol)
+   *
+   * @param aRange m/z range of the data points of a, see {@link #getMZRange(DataPoint[])}
+   * @param bRange m/z range of the data points of b
+   */
+  public static Range<Double> getOverlapMZ(MZTolerance mzTol, Range<Double> aRange,
+      Range<Double> bRange, final Double aMz, final double bMz) {
+    Range<Double> ra = aRange.span(Range.singleton(aMz));
+    Range<Double> rb = bRange.span(Range.singleton(bMz));
 
     // no overlap
     if (!ra.isConnected(rb)) {
@@ -200,6 +211,32 @@ public class ScanAlignment {
     return new DataPoint[][]{newa, newb};
   }
 
+  /**
+   * Keeps the order of the data points.
+   *
+   * @return the data points within the range or the same array if all data points are within the
+   * range
+   */
+  public static DataPoint[] cropToRange(DataPoint[] dps, Range<Double> range) {
+    int kept = 0;
+    for (DataPoint dp : dps) {
+      if (range.contains(dp.getMZ())) {
+        kept++;
+      }
+    }
+    if (kept == dps.length) {
+      return dps;
+    }
+    final DataPoint[] cropped = new DataPoint[kept];
+    int i = 0;
+    for (DataPoint dp : dps) {
+      if (range.contains(dp.getMZ())) {
+        cropped[i++] = dp;
+      }
+    }
+    return cropped;
+  }
+
   /**
    * Closed mz range of all data points
    *
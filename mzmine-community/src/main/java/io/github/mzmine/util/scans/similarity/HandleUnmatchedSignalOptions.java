@@ -46,6 +46,13 @@ public enum HandleUnmatchedSignalOptions {
   }
 
 
+  /**
+   * @return true if unmatched query signals are kept in the score
+   */
+  public boolean keepsQuerySignals() {
+    return this == KEEP_ALL_AND_MATCH_TO_ZERO || this == KEEP_EXPERIMENTAL_SIGNALS;
+  }
+
   /**
    * Remove unaligned signals (not present in all masslists)
    *
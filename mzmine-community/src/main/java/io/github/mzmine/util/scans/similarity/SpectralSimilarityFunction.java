@@ -39,6 +39,11 @@ import org.jetbrains.annotations.Nullable;
  */
 public abstract class SpectralSimilarityFunction implements MZmineModule {
 
+  /**
+   * Tolerance for rounding errors when a score bound is compared to the minimum score
+   */
+  protected static final double BOUND_EPSILON = 1E-9;
+
   /**
    * @param mzTol
    * @param minMatch minimum overlap in signals
@@ -48,6 +53,46 @@ public abstract class SpectralSimilarityFunction implements MZmineModule {
   public abstract SpectralSimilarity getSimilarity(MZTolerance mzTol, int minMatch,
       DataPoint[] library, DataPoint[] query);
 
+  /**
+   * Same as {@link #getSimilarity(MZTolerance, int, DataPoint[], DataPoint[])} for spectra that are
+   * already sorted by {@link ScanAlignment#sorter}. The spectra are not modified, so they can be
+   * shared between comparisons. Override to skip the copies of both spectra.
+   *
+   * @param sortedLibrary library spectrum sorted by intensity, not modified
+   * @param sortedQuery   query spectrum sorted by intensity, not modified
+   * @return A spectra similarity if all requirements were met - otherwise null
+   */
+  @Nullable
+  public SpectralSimilarity getSimilarityOfSorted(MZTolerance mzTol, int minMatch,
+      DataPoint[] sortedLibrary, DataPoint[] sortedQuery) {
+    return getSimilarity(mzTol, minMatch, sortedLibrary.clone(), sortedQuery.clone());
+  }
+
+  /**
+   * @return the weights of the signals in the score or null if the score cannot be bounded by
+   * {@link #canReachMinScore(int, int, double)}
+   */
+  @Nullable
+  public Weights getWeights() {
+    return null;
+  }
+
+  /**
+   * Checks before alignment if a library spectrum can still reach the minimum score. Only valid if
+   * the same query is later passed to {@link #getSimilarity(MZTolerance, int, DataPoint[],
+   * DataPoint[])}.
+   *
+   * @param queryLength           number of query signals
+   * @param maxOverlap            maximum number of query signals that can be matched
+   * @param matchableNormFraction norm of the weighted query signals that can be matched divided by
+   *                              the norm of all weighted query signals, see
+   *                              {@link #getWeights()}
+   * @return false if the score is always below the minimum score
+   */
+  public boolean canReachMinScore(int queryLength, int maxOverlap, double matchableNormFraction) {
+    return true;
+  }
+
   /**
    * Align two mass lists. Override if alignement is changed in a specific spectral similarity
    * function.
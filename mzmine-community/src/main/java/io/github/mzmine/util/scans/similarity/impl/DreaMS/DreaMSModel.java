@@ -38,6 +38,7 @@ import ai.djl.training.util.ProgressBar;
 import ai.djl.translate.TranslateException;
 import io.github.mzmine.datamodel.MassSpectrum;
 import io.github.mzmine.util.scans.similarity.impl.ms2deepscore.EmbeddingBasedSimilarity;
+import io.github.mzmine.util.scans.similarity.impl.ms2deepscore.EmbeddingStore;
 
 import java.io.File;
 import java.io.IOException;
@@ -45,14 +46,16 @@ import java.nio.file.Path;
 import java.util.List;
 import java.util.logging.Level;
 import java.util.logging.Logger;
+import org.jetbrains.annotations.NotNull;
 
-public class DreaMSModel extends EmbeddingBasedSimilarity implements AutoCloseable {
+public class DreaMSModel extends EmbeddingBasedSimilarity<float[][][]> implements AutoCloseable {
 
     private static final Logger logger = Logger.getLogger(DreaMSModel.class.getName());
     private final DreaMSSpectrumTensorizer spectrumTensorizer;
     private final NDManager ndManager;
     private final Predictor<NDList, NDList> predictor;
     private final ZooModel<NDList, NDList> model;
+    private final String modelId;
 
     public DreaMSModel(File modelFilePath, File settingsFilePath)
             throws ModelNotFoundException, MalformedModelException, IOException {
@@ -75,6 +78,7 @@ public class DreaMSModel extends EmbeddingBasedSimilarity implements AutoCloseab
         this.spectrumTensorizer = new DreaMSSpectrumTensorizer(settings);
         this.ndManager = NDManager.newBaseManager();
         this.predictor = model.newPredictor();
+        this.modelId = EmbeddingStore.createModelId("dreams", modelFilePath, settingsFilePath);
     }
 
     /**
@@ -106,6 +110,42 @@ public class DreaMSModel extends EmbeddingBasedSimilarity implements AutoCloseab
         return predictEmbeddingFromTensors(tensorizedSpectra);
     }
 
+    @Override
+    protected float @NotNull [][][] tensorize(@NotNull List<? extends MassSpectrum> batch) {
+        return spectrumTensorizer.tensorizeSpectra(batch);
+    }
+
+    @Override
+    protected long getTensorBytes(float @NotNull [][][] tensors) {
+        long floats = 0;
+        for (float[][] spectrum : tensors) {
+            for (float[] signal : spectrum) {
+                floats += signal.length;
+            }
+        }
+        return floats * Float.BYTES;
+    }
+
+    @Override
+    protected float[][] predictTensors(float @NotNull [][][] tensorizedSpectra)
+            throws TranslateException {
+        // all arrays of this batch are released with the sub manager
+        try (NDManager batchManager = ndManager.newSubManager()) {
+            NDList tensorizedList = new NDList();
+            for (float[][] spectrum : tensorizedSpectra) {
+                tensorizedList.add(batchManager.create(spectrum));
+            }
+            NDList predictions = predictor.predict(new NDList(NDArrays.stack(tensorizedList)));
+            predictions.attach(batchManager);
+            return convertNDArrayToFloatMatrix(predictions.singletonOrThrow());
+        }
+    }
+
+    @Override
+    public @NotNull String getModelId() {
+        return modelId;
+    }
+
     @Override
     public void close() {
         try {
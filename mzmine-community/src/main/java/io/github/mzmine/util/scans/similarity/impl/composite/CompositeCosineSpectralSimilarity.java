@@ -81,12 +81,51 @@ public class CompositeCosineSpectralSimilarity extends SpectralSimilarityFunctio
     return getSimilarity(weights, minCos, handleUnmatched, mzTol, minMatch, library, query);
   }
 
+  /**
+   * The alignment of sorted spectra neither sorts nor copies them. Only matches copy the spectra
+   * as {@link SpectralSimilarity} sorts them by m/z.
+   */
+  @Override
+  public SpectralSimilarity getSimilarityOfSorted(MZTolerance mzTol, int minMatch,
+      DataPoint[] sortedLibrary, DataPoint[] sortedQuery) {
+    List<DataPoint[]> aligned = ScanAlignment.alignOfSorted(mzTol, sortedLibrary, sortedQuery);
+    return getSimilarityOfAligned(weights, minCos, handleUnmatched, minMatch, sortedLibrary,
+        sortedQuery, aligned, true);
+  }
+
+  @Override
+  public @NotNull Weights getWeights() {
+    return weights;
+  }
+
+  /**
+   * The composite score grows with the cosine and the overlap, the neighbour factor is at most 1.
+   */
+  @Override
+  public boolean canReachMinScore(int queryLength, int maxOverlap, double matchableNormFraction) {
+    final double maxCosine = handleUnmatched.keepsQuerySignals() ? matchableNormFraction : 1d;
+    final double maxComposite =
+        (queryLength * maxCosine + maxOverlap) / (double) (queryLength + maxOverlap);
+    return maxComposite >= minCos - BOUND_EPSILON;
+  }
+
   public static SpectralSimilarity getSimilarity(Weights weights, double minCos,
       HandleUnmatchedSignalOptions handleUnmatched, MZTolerance mzTol, int minMatch,
       DataPoint[] library, DataPoint[] query) {
 
     // align
     List<DataPoint[]> aligned = ScanAlignment.align(mzTol, library, query);
+    return getSimilarityOfAligned(weights, minCos, handleUnmatched, minMatch, library, query,
+        aligned, false);
+  }
+
+  /**
+   * @param copySpectra copy the spectra for a match, otherwise they are sorted by m/z in place
+   */
+  @Nullable
+  private static SpectralSimilarity getSimilarityOfAligned(Weights weights, double minCos,
+      HandleUnmatchedSignalOptions handleUnmatched, int minMatch, DataPoint[] library,
+      DataPoint[] query, List<DataPoint[]> aligned, boolean copySpectra) {
     // removes all signals which were not found in both masslists
     aligned = handleUnmatched.handleUnmatched(aligned);
 
@@ -107,7 +146,8 @@ public class CompositeCosineSpectralSimilarity extends SpectralSimilarityFunctio
       double composite = (queryN * diffCosine + overlap * relativeFactor) / (queryN + overlap);
 
       if (composite >= minCos) {
-        return new SpectralSimilarity(name, composite, overlap, library, query, aligned);
+        return new SpectralSimilarity(name, composite, overlap,
+            copySpectra ? library.clone() : library, copySpectra ? query.clone() : query, aligned);
       } else {
         return null;
       }
@@ -74,6 +74,26 @@ public class WeightedCosineSpectralSimilarity extends SpectralSimilarityFunction
       DataPoint[] query) {
     // align
     List<DataPoint[]> aligned = alignDataPoints(mzTol, library, query);
+    return getSimilarityOfAligned(minMatch, library, query, aligned, false);
+  }
+
+  /**
+   * The alignment of sorted spectra neither sorts nor copies them. Only matches copy the spectra
+   * as {@link SpectralSimilarity} sorts them by m/z.
+   */
+  @Override
+  public SpectralSimilarity getSimilarityOfSorted(MZTolerance mzTol, int minMatch,
+      DataPoint[] sortedLibrary, DataPoint[] sortedQuery) {
+    List<DataPoint[]> aligned = ScanAlignment.alignOfSorted(mzTol, sortedLibrary, sortedQuery);
+    return getSimilarityOfAligned(minMatch, sortedLibrary, sortedQuery, aligned, true);
+  }
+
+  /**
+   * @param copySpectra copy the spectra for a match, otherwise they are sorted by m/z in place
+   */
+  @Nullable
+  private SpectralSimilarity getSimilarityOfAligned(int minMatch, DataPoint[] library,
+      DataPoint[] query, List<DataPoint[]> aligned, boolean copySpectra) {
     // removes all signals which were not found in both masslists
     aligned = handleUnmatched.handleUnmatched(aligned);
 
@@ -86,7 +106,8 @@ public class WeightedCosineSpectralSimilarity extends SpectralSimilarityFunction
           weights.getIntensity(), weights.getMz());
       double diffCosine = Similarity.COSINE.calc(diffArray);
       if (diffCosine >= minCos) {
-        return new SpectralSimilarity(getName(), diffCosine, overlap, library, query, aligned);
+        return new SpectralSimilarity(getName(), diffCosine, overlap,
+            copySpectra ? library.clone() : library, copySpectra ? query.clone() : query, aligned);
       } else {
         return null;
       }
@@ -94,6 +115,23 @@ public class WeightedCosineSpectralSimilarity extends SpectralSimilarityFunction
     return null;
   }
 
+  @Override
+  public @NotNull Weights getWeights() {
+    return weights;
+  }
+
+  /**
+   * By Cauchy-Schwarz the cosine is at most the norm fraction of the matched query signals if all
+   * query signals are kept.
+   */
+  @Override
+  public boolean canReachMinScore(int queryLength, int maxOverlap, double matchableNormFraction) {
+    if (!handleUnmatched.keepsQuerySignals()) {
+      return true;
+    }
+    return matchableNormFraction >= minCos - BOUND_EPSILON;
+  }
+
   @Override
   @NotNull
   public String getName() {
@@ -30,9 +30,46 @@ import static ai.djl.ndarray.types.DataType.FLOAT32;
 import ai.djl.ndarray.NDArray;
 import ai.djl.translate.TranslateException;
 import io.github.mzmine.datamodel.MassSpectrum;
+import io.github.mzmine.util.scans.similarity.impl.ms2deepscore.EmbeddingStore.SpectrumKey;
+import it.unimi.dsi.fastutil.ints.IntArrayList;
+import java.util.ArrayDeque;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.function.IntConsumer;
+import java.util.stream.IntStream;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
 
-public abstract class EmbeddingBasedSimilarity {
+/**
+ * Predicts embeddings of spectra with a neural network and compares them by cosine similarity.
+ * Missing embeddings are predicted in a pipeline: worker threads tensorize the next batches while
+ * the calling thread predicts the current batch.
+ *
+ * @param <T> tensorized input of one batch
+ */
+public abstract class EmbeddingBasedSimilarity<T> {
+
+  public static final int DEFAULT_BATCH_SIZE = 128;
+  /**
+   * Smallest batch size when batches are reduced to fit into the available memory
+   */
+  public static final int MIN_BATCH_SIZE = 8;
+  /**
+   * Number of batches that are tensorized ahead of the batch that is predicted
+   */
+  public static final int TENSORIZE_AHEAD = 2;
+  /**
+   * Fraction of the available heap that may be used by the tensors of all batches in flight
+   */
+  private static final double MAX_HEAP_FRACTION = 0.25;
+
+  private final EmbeddingThroughput throughput = new EmbeddingThroughput();
+  private int batchSize = DEFAULT_BATCH_SIZE;
+  // largest tensor size per spectrum that was observed so far, 0 before the first batch
+  private long tensorBytesPerSpectrum = 0;
+  @Nullable
+  private EmbeddingStore embeddingStore;
 
   /**
    * Predict embeddings for a list of scans
@@ -42,6 +79,191 @@ public abstract class EmbeddingBasedSimilarity {
   public abstract NDArray predictEmbedding(List<? extends MassSpectrum> scans)
       throws TranslateException;
 
+  /**
+   * Converts one batch into model input. Called on worker threads, so implementations must be
+   * thread safe and should not allocate native memory.
+   *
+   * @param batch spectra with precursor m/z, at most {@link #getBatchSize()}
+   * @return the tensorized batch
+   */
+  @NotNull
+  protected abstract T tensorize(@NotNull List<? extends MassSpectrum> batch);
+
+  /**
+   * @return the approximate heap size of the tensorized batch in bytes
+   */
+  protected abstract long getTensorBytes(@NotNull T tensors);
+
+  /**
+   * Predict the embeddings of one tensorized batch. All native memory used for the prediction is
+   * released before this method returns.
+   *
+   * @return one embedding vector for each spectrum of the batch
+   */
+  protected abstract float[][] predictTensors(@NotNull T tensors) throws TranslateException;
+
+  /**
+   * @return id of the model weights and settings used to store embeddings
+   */
+  @NotNull
+  public abstract String getModelId();
+
+  /**
+   * @param embeddingStore store to read and write embeddings or null to always predict
+   */
+  public void setEmbeddingStore(@Nullable EmbeddingStore embeddingStore) {
+    this.embeddingStore = embeddingStore;
+  }
+
+  @Nullable
+  public EmbeddingStore getEmbeddingStore() {
+    return embeddingStore;
+  }
+
+  public int getBatchSize() {
+    return batchSize;
+  }
+
+  /**
+   * @return throughput of all embeddings requested from this model
+   */
+  @NotNull
+  public EmbeddingThroughput getThroughput() {
+    return throughput;
+  }
+
+  /**
+   * @param batchSize maximum number of spectra that are predicted at once. Batches are reduced if
+   *                  the tensors would not fit into the available memory.
+   */
+  public void setBatchSize(int batchSize) {
+    if (batchSize < 1) {
+      throw new IllegalArgumentException("Batch size must be at least 1");
+    }
+    this.batchSize = batchSize;
+  }
+
+  /**
+   * Embedding vectors of all spectra. Vectors are read from the {@link EmbeddingStore} if set and
+   * only missing vectors are predicted in batches.
+   *
+   * @param spectra spectra with precursor m/z
+   * @return one embedding vector for each spectrum
+   */
+  public float[][] getEmbeddings(@NotNull List<? extends MassSpectrum> spectra)
+      throws TranslateException {
+    return getEmbeddings(spectra, null);
+  }
+
+  /**
+   * @param processedSpectra receives the number of spectra after each batch and cache lookup
+   * @see #getEmbeddings(List)
+   */
+  public float[][] getEmbeddings(@NotNull List<? extends MassSpectrum> spectra,
+      @Nullable IntConsumer processedSpectra) throws TranslateException {
+    final EmbeddingStore store = embeddingStore;
+    final float[][] embeddings = new float[spectra.size()][];
+    final SpectrumKey[] keys = new SpectrumKey[spectra.size()];
+    final IntArrayList missing = new IntArrayList();
+    for (int i = 0; i < spectra.size(); i++) {
+      if (store != null) {
+        keys[i] = EmbeddingStore.createKey(spectra.get(i));
+        embeddings[i] = store.get(keys[i]);
+      }
+      if (embeddings[i] == null) {
+        missing.add(i);
+      }
+    }
+    throughput.addStored(spectra.size() - missing.size());
+    if (processedSpectra != null) {
+      processedSpectra.accept(spectra.size() - missing.size());
+    }
+
+    final ArrayDeque<TensorizingBatch<T>> pending = new ArrayDeque<>(TENSORIZE_AHEAD);
+    try {
+      int next = submitBatches(spectra, missing, 0, pending);
+      while (!pending.isEmpty()) {
+        final TensorizingBatch<T> batch = pending.removeFirst();
+        final T tensors = batch.join();
+        tensorBytesPerSpectrum = Math.max(tensorBytesPerSpectrum,
+            getTensorBytes(tensors) / batch.size());
+        // workers tensorize the next batches while this thread predicts
+        next = submitBatches(spectra, missing, next, pending);
+
+        final long startNanos = System.nanoTime();
+        final float[][] predicted = predictTensors(tensors);
+        throughput.addPredicted(predicted.length, System.nanoTime() - startNanos);
+        if (predicted.length != batch.size()) {
+          throw new IllegalStateException(
+              "Predicted %d embeddings for %d spectra, all spectra need a precursor m/z".formatted(
+                  predicted.length, batch.size()));
+        }
+        for (int b = 0; b < predicted.length; b++) {
+          final int i = missing.getInt(batch.from() + b);
+          embeddings[i] = predicted[b];
+          if (store != null) {
+            store.put(keys[i], predicted[b]);
+          }
+        }
+        if (processedSpectra != null) {
+          processedSpectra.accept(batch.size());
+        }
+      }
+    } finally {
+      // only left after an exception
+      pending.forEach(batch -> batch.tensors().cancel(false));
+    }
+    return embeddings;
+  }
+
+  /**
+   * Starts tensorizing batches on worker threads until {@link #TENSORIZE_AHEAD} batches are
+   * pending
+   *
+   * @param next first index in missing that is not submitted yet
+   * @return the next index in missing that is not submitted
+   */
+  private int submitBatches(@NotNull List<? extends MassSpectrum> spectra,
+      @NotNull IntArrayList missing, int next, @NotNull ArrayDeque<TensorizingBatch<T>> pending) {
+    while (pending.size() < TENSORIZE_AHEAD && next < missing.size()) {
+      final Runtime runtime = Runtime.getRuntime();
+      final long availableBytes =
+          runtime.maxMemory() - (runtime.totalMemory() - runtime.freeMemory());
+      final int size = adaptBatchSize(batchSize, tensorBytesPerSpectrum, availableBytes);
+      final int end = Math.min(next + size, missing.size());
+      final List<? extends MassSpectrum> batch = missing.subList(next, end).intStream()
+          .mapToObj(spectra::get).toList();
+
+      final CompletableFuture<T> tensors = CompletableFuture.supplyAsync(() -> {
+        final long startNanos = System.nanoTime();
+        final T tensorized = tensorize(batch);
+        throughput.addTensorized(batch.size(), System.nanoTime() - startNanos);
+        return tensorized;
+      });
+      pending.addLast(new TensorizingBatch<>(next, end, tensors));
+      next = end;
+    }
+    return next;
+  }
+
+  /**
+   * The batch size is reduced so that the tensors of the predicted batch and all batches that are
+   * tensorized ahead use at most a fraction of the available heap.
+   *
+   * @param maxBatchSize           the configured batch size
+   * @param tensorBytesPerSpectrum observed tensor size per spectrum or 0 if unknown
+   * @param availableBytes         heap that is currently available
+   * @return the batch size between {@link #MIN_BATCH_SIZE} and maxBatchSize
+   */
+  static int adaptBatchSize(int maxBatchSize, long tensorBytesPerSpectrum, long availableBytes) {
+    if (tensorBytesPerSpectrum <= 0) {
+      return maxBatchSize;
+    }
+    final double budget = availableBytes * MAX_HEAP_FRACTION / (TENSORIZE_AHEAD + 1);
+    final long size = (long) (budget / tensorBytesPerSpectrum);
+    return (int) Math.max(Math.min(size, maxBatchSize), Math.min(MIN_BATCH_SIZE, maxBatchSize));
+  }
+
   /**
    * Predict similarity matrix from list of scans. The scans are converted into embeddings and then
    * compared by similarity, usually cosine similarity but depending on the implementation
@@ -51,9 +273,9 @@ public abstract class EmbeddingBasedSimilarity {
    */
   public float[][] predictMatrixSymmetric(List<? extends MassSpectrum> scans)
       throws TranslateException {
-    NDArray embeddings1 = predictEmbedding(scans);
+    float[][] embeddings1 = getEmbeddings(scans);
 
-    return dotProduct(embeddings1, embeddings1);
+    return cosineSimilarity(embeddings1, embeddings1);
   }
 
   /**
@@ -67,10 +289,66 @@ public abstract class EmbeddingBasedSimilarity {
    */
   public float[][] predictMatrix(List<? extends MassSpectrum> scan1,
       List<? extends MassSpectrum> scan2) throws TranslateException {
-    NDArray embeddings1 = predictEmbedding(scan1);
-    NDArray embeddings2 = predictEmbedding(scan2);
+    float[][] embeddings1 = getEmbeddings(scan1);
+    float[][] embeddings2 = getEmbeddings(scan2);
 
-    return dotProduct(embeddings1, embeddings2);
+    return cosineSimilarity(embeddings1, embeddings2);
+  }
+
+  /**
+   * Cosine similarity between all pairs of embedding vectors, same as
+   * {@link #dotProduct(NDArray, NDArray)} on normalized embeddings. Rows are computed in parallel.
+   * If both arguments are the same array, only the upper triangle is computed and mirrored.
+   *
+   * @return similarity matrix of embeddings1 x embeddings2
+   */
+  public static float[][] cosineSimilarity(float[][] embeddings1, float[][] embeddings2) {
+    final boolean symmetric = embeddings1 == embeddings2;
+    final float[][] normalized1 = normalize(embeddings1);
+    final float[][] normalized2 = symmetric ? normalized1 : normalize(embeddings2);
+    final float[][] result = new float[normalized1.length][normalized2.length];
+
+    IntStream.range(0, normalized1.length).parallel().forEach(i -> {
+      final float[] vector = normalized1[i];
+      final float[] row = result[i];
+      for (int j = symmetric ? i : 0; j < normalized2.length; j++) {
+        row[j] = dot(vector, normalized2[j]);
+      }
+    });
+    if (symmetric) {
+      // the upper triangle is complete, copy it to the lower triangle
+      IntStream.range(1, result.length).parallel().forEach(i -> {
+        final float[] row = result[i];
+        for (int j = 0; j < i; j++) {
+          row[j] = result[j][i];
+        }
+      });
+    }
+    return result;
+  }
+
+  private static float dot(float[] a, float[] b) {
+    double dot = 0;
+    for (int k = 0; k < a.length; k++) {
+      dot += a[k] * b[k];
+    }
+    return (float) dot;
+  }
+
+  private static float[][] normalize(float[][] embeddings) {
+    final float[][] normalized = new float[embeddings.length][];
+    for (int i = 0; i < embeddings.length; i++) {
+      double norm = 0;
+      for (float value : embeddings[i]) {
+        norm += value * value;
+      }
+      norm = Math.sqrt(norm);
+      normalized[i] = new float[embeddings[i].length];
+      for (int k = 0; k < embeddings[i].length; k++) {
+        normalized[i][k] = (float) (embeddings[i][k] / norm);
+      }
+    }
+    return normalized;
   }
 
   /**
@@ -108,4 +386,33 @@ public abstract class EmbeddingBasedSimilarity {
     }
     return result;
   }
-}
\ No newline at end of file
+
+  /**
+   * @param from    first index in the list of missing spectra
+   * @param to      exclusive end index
+   * @param tensors result of {@link #tensorize(List)} on a worker thread
+   */
+  private record TensorizingBatch<T>(int from, int to, @NotNull CompletableFuture<T> tensors) {
+
+    int size() {
+      return to - from;
+    }
+
+    /**
+     * @return the tensors, rethrows exceptions of the worker thread
+     */
+    @NotNull T join() {
+      try {
+        return tensors.join();
+      } catch (CompletionException e) {
+        if (e.getCause() instanceof RuntimeException re) {
+          throw re;
+        }
+        if (e.getCause() instanceof Error error) {
+          throw error;
+        }
+        throw e;
+      }
+    }
+  }
+}
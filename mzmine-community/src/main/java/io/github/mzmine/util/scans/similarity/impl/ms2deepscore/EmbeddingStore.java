@@ -0,0 +1,439 @@
+/*
+ * Copyright (c) 2004-2025 The mzmine Development Team
+ *
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+
+package io.github.mzmine.util.scans.similarity.impl.ms2deepscore;
+
+import io.github.mzmine.datamodel.MassSpectrum;
+import io.github.mzmine.datamodel.PolarityType;
+import io.github.mzmine.datamodel.Scan;
+import io.github.mzmine.gui.preferences.MZminePreferences;
+import io.github.mzmine.main.ConfigService;
+import io.github.mzmine.util.exceptions.MissingMassListException;
+import io.github.mzmine.util.files.FileAndPathUtil;
+import io.github.mzmine.util.scans.ScanUtils;
+import it.unimi.dsi.fastutil.objects.Object2LongOpenHashMap;
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.foreign.Arena;
+import java.lang.foreign.MemorySegment;
+import java.lang.foreign.ValueLayout;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HashMap;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * Persistent store of spectral embeddings of one model. Vectors are keyed by a hash of the spectrum
+ * content that the model sees (fragment signals, precursor m/z and polarity), so that networking
+ * and library matching over the same spectra only run the model once.
+ * <p>
+ * All vectors of a model are appended to one file: a header of magic number, version and vector
+ * dimension followed by records of a 128 bit spectrum key and the float vector (little endian). The
+ * file is memory mapped on open. Vectors added later are appended in batches of
+ * {@link #FLUSH_RECORDS} and then read from the file again.
+ * <p>
+ * All tasks that open the store of the same model share one instance, which is closed once the last
+ * task closed it. The store is thread safe within one mzmine instance.
+ */
+public class EmbeddingStore implements AutoCloseable {
+
+  private static final Logger logger = Logger.getLogger(EmbeddingStore.class.getName());
+
+  public static final String FILE_EXTENSION = "embeddings";
+  public static final String CACHE_DIRECTORY_NAME = "embedding_cache";
+
+  private static final long MAGIC = 0x4d5a454d42454444L; // MZEMBEDD
+  private static final int VERSION = 1;
+  private static final int HEADER_BYTES = Long.BYTES + Integer.BYTES * 2;
+  private static final int KEY_BYTES = Long.BYTES * 2;
+  private static final ValueLayout.OfFloat FLOAT = ValueLayout.JAVA_FLOAT_UNALIGNED.withOrder(
+      ByteOrder.LITTLE_ENDIAN);
+  private static final ValueLayout.OfLong LONG = ValueLayout.JAVA_LONG_UNALIGNED.withOrder(
+      ByteOrder.LITTLE_ENDIAN);
+  private static final ValueLayout.OfInt INT = ValueLayout.JAVA_INT_UNALIGNED.withOrder(
+      ByteOrder.LITTLE_ENDIAN);
+  /**
+   * Number of added vectors that are kept in memory before they are appended to the file
+   */
+  static final int FLUSH_RECORDS = 1024;
+
+  /**
+   * One shared store per file, guarded by itself
+   */
+  private static final Map<Path, EmbeddingStore> openStores = new HashMap<>();
+
+  private final Path file;
+  private final Arena arena = Arena.ofShared();
+  /**
+   * Offsets of the vectors in the mapped file
+   */
+  private final Object2LongOpenHashMap<SpectrumKey> mappedOffsets = new Object2LongOpenHashMap<>();
+  /**
+   * File positions of the vectors appended since the store was opened, guarded by this
+   */
+  private final Object2LongOpenHashMap<SpectrumKey> writtenOffsets = new Object2LongOpenHashMap<>();
+  /**
+   * Vectors that are not written yet
+   */
+  private final Map<SpectrumKey, float[]> pending = new ConcurrentHashMap<>();
+  private @Nullable MemorySegment mapped;
+  private @Nullable FileChannel channel;
+  private int dimension = -1;
+  private boolean writable = true;
+  /**
+   * Number of open calls that were not closed yet, guarded by {@link #openStores}
+   */
+  private int references;
+
+  private EmbeddingStore(@NotNull Path file) {
+    this.file = file;
+  }
+
+  /**
+   * Opens the store of a model and maps all previously stored vectors. Errors are logged and
+   * result in an empty store. If the store is already open, the same instance is returned and every
+   * call needs to be matched by {@link #close()}.
+   *
+   * @param directory the cache directory, created on first write
+   * @param modelId   the model id, see {@link #createModelId(String, Path...)}
+   */
+  @NotNull
+  public static EmbeddingStore open(@NotNull Path directory, @NotNull String modelId) {
+    final Path file = directory.resolve(modelId + "." + FILE_EXTENSION).toAbsolutePath()
+        .normalize();
+    synchronized (openStores) {
+      EmbeddingStore store = openStores.get(file);
+      if (store == null) {
+        store = new EmbeddingStore(file);
+        store.mapExisting();
+        openStores.put(file, store);
+      }
+      store.references++;
+      return store;
+    }
+  }
+
+  /**
+   * @return the store in the mzmine user directory or null if disabled in the
+   * {@link MZminePreferences}
+   */
+  @Nullable
+  public static EmbeddingStore fromPreferences(@NotNull String modelId) {
+    final MZminePreferences preferences = ConfigService.getPreferences();
+    if (preferences == null || !preferences.getValue(MZminePreferences.embeddingCache)) {
+      return null;
+    }
+    return open(FileAndPathUtil.resolveInMzmineDir(CACHE_DIRECTORY_NAME).toPath(), modelId);
+  }
+
+  /**
+   * @param name  the model name
+   * @param files the model and settings files, the id changes whenever their content changes
+   * @return the model id
+   */
+  @NotNull
+  public static String createModelId(@NotNull String name, @NotNull Path... files)
+      throws IOException {
+    final MessageDigest digest = sha256();
+    final byte[] buffer = new byte[1 << 16];
+    for (Path path : files) {
+      try (InputStream in = Files.newInputStream(path)) {
+        int read;
+        while ((read = in.read(buffer)) != -1) {
+          digest.update(buffer, 0, read);
+        }
+      }
+    }
+    return name + "_" + HexFormat.of().formatHex(digest.digest(), 0, 16);
+  }
+
+  /**
+   * @return the key of the spectrum content that is used by the embedding models. Scans use their
+   * mass list.
+   */
+  @NotNull
+  public static SpectrumKey createKey(@NotNull MassSpectrum spectrum) {
+    MassSpectrum fragments = spectrum;
+    if (spectrum instanceof Scan scan) {
+      fragments = scan.getMassList();
+      if (fragments == null) {
+        throw new MissingMassListException(scan);
+      }
+    }
+    final Double precursorMz = ScanUtils.getPrecursorMz(spectrum);
+    final PolarityType polarity = ScanUtils.getPolarity(spectrum);
+
+    final int n = fragments.getNumberOfDataPoints();
+    final ByteBuffer buffer = ByteBuffer.allocate(Double.BYTES * (2 * n + 1) + Integer.BYTES);
+    buffer.putInt(n);
+    buffer.putDouble(precursorMz != null ? precursorMz : Double.NaN);
+    for (int i = 0; i < n; i++) {
+      buffer.putDouble(fragments.getMzValue(i));
+      buffer.putDouble(fragments.getIntensityValue(i));
+    }
+    final MessageDigest digest = sha256();
+    digest.update(buffer.array());
+    if (polarity != null) {
+      digest.update(polarity.name().getBytes(StandardCharsets.UTF_8));
+    }
+    final ByteBuffer hash = ByteBuffer.wrap(digest.digest());
+    return new SpectrumKey(hash.getLong(), hash.getLong());
+  }
+
+  private void mapExisting() {
+    if (!Files.isRegularFile(file)) {
+      return;
+    }
+    try (FileChannel in = FileChannel.open(file, StandardOpenOption.READ)) {
+      final long size = in.size();
+      if (size < HEADER_BYTES) {
+        writable = false;
+        return;
+      }
+      final MemorySegment segment = in.map(MapMode.READ_ONLY, 0, size, arena);
+      final int storedDimension = segment.get(INT, Long.BYTES + Integer.BYTES);
+      if (segment.get(LONG, 0) != MAGIC || segment.get(INT, Long.BYTES) != VERSION
+          || storedDimension <= 0) {
+        logger.warning(() -> "Invalid embedding store " + file + ", embeddings are not cached");
+        writable = false;
+        return;
+      }
+      dimension = storedDimension;
+      final long recordBytes = KEY_BYTES + (long) Float.BYTES * dimension;
+      // an incomplete last record of an interrupted write is ignored and overwritten
+      final long records = (size - HEADER_BYTES) / recordBytes;
+      for (long r = 0; r < records; r++) {
+        final long offset = HEADER_BYTES + r * recordBytes;
+        final SpectrumKey key = new SpectrumKey(segment.get(LONG, offset),
+            segment.get(LONG, offset + Long.BYTES));
+        mappedOffsets.put(key, offset + KEY_BYTES);
+      }
+      mapped = segment;
+    } catch (IOException | RuntimeException e) {
+      logger.log(Level.WARNING, "Cannot read embedding store " + file + ": " + e.getMessage(), e);
+      writable = false;
+    }
+  }
+
+  /**
+   * @return the stored vector or null
+   */
+  public float @Nullable [] get(@NotNull SpectrumKey key) {
+    final MemorySegment segment = mapped;
+    if (segment != null) {
+      final long offset = mappedOffsets.getOrDefault(key, -1L);
+      if (offset >= 0) {
+        final float[] vector = new float[dimension];
+        MemorySegment.copy(segment, FLOAT, offset, vector, 0, dimension);
+        return vector;
+      }
+    }
+    final float[] vector = pending.get(key);
+    if (vector != null) {
+      return vector;
+    }
+    // vectors are added to the written offsets before they are removed from pending
+    return readWritten(key);
+  }
+
+  private synchronized float @Nullable [] readWritten(@NotNull SpectrumKey key) {
+    final long position = writtenOffsets.getOrDefault(key, -1L);
+    if (position < 0 || channel == null) {
+      return null;
+    }
+    final ByteBuffer buffer = ByteBuffer.allocate(Float.BYTES * dimension)
+        .order(ByteOrder.LITTLE_ENDIAN);
+    try {
+      while (buffer.hasRemaining()) {
+        if (channel.read(buffer, position + buffer.position()) < 0) {
+          return null;
+        }
+      }
+    } catch (IOException e) {
+      logger.log(Level.WARNING,
+          "Cannot read from embedding store " + file + ": " + e.getMessage(), e);
+      return null;
+    }
+    final float[] vector = new float[dimension];
+    buffer.flip().asFloatBuffer().get(vector);
+    return vector;
+  }
+
+  /**
+   * Adds a vector to the store. Vectors are appended to the file in batches. Write errors are
+   * logged and only keep the vectors in memory.
+   */
+  public synchronized void put(@NotNull SpectrumKey key, float @NotNull [] vector) {
+    if (dimension == -1) {
+      dimension = vector.length;
+    } else if (vector.length != dimension) {
+      throw new IllegalArgumentException(
+          "Embedding has %d dimensions, the store has %d".formatted(vector.length, dimension));
+    }
+    if (mappedOffsets.containsKey(key) || writtenOffsets.containsKey(key)
+        || pending.putIfAbsent(key, vector) != null) {
+      return;
+    }
+    if (pending.size() >= FLUSH_RECORDS) {
+      flush();
+    }
+  }
+
+  /**
+   * Appends all pending vectors to the file and releases them from memory
+   */
+  private synchronized void flush() {
+    if (!writable || pending.isEmpty()) {
+      return;
+    }
+    try {
+      final FileChannel out = getChannel();
+      final int recordBytes = KEY_BYTES + Float.BYTES * dimension;
+      final List<SpectrumKey> keys = List.copyOf(pending.keySet());
+      final ByteBuffer records = ByteBuffer.allocate(recordBytes * keys.size())
+          .order(ByteOrder.LITTLE_ENDIAN);
+      for (SpectrumKey key : keys) {
+        records.putLong(key.high()).putLong(key.low());
+        for (float value : pending.get(key)) {
+          records.putFloat(value);
+        }
+      }
+      records.flip();
+      final long start = out.position();
+      while (records.hasRemaining()) {
+        out.write(records);
+      }
+
+      for (int i = 0; i < keys.size(); i++) {
+        writtenOffsets.put(keys.get(i), start + (long) i * recordBytes + KEY_BYTES);
+      }
+      for (SpectrumKey key : keys) {
+        pending.remove(key);
+      }
+    } catch (IOException e) {
+      logger.log(Level.WARNING,
+          "Cannot write to embedding store " + file + ": " + e.getMessage(), e);
+      writable = false;
+    }
+  }
+
+  private FileChannel getChannel() throws IOException {
+    if (channel != null) {
+      return channel;
+    }
+    Files.createDirectories(file.getParent());
+    final FileChannel out = FileChannel.open(file, StandardOpenOption.CREATE,
+        StandardOpenOption.READ, StandardOpenOption.WRITE);
+    final long recordBytes = KEY_BYTES + (long) Float.BYTES * dimension;
+    if (mapped == null) {
+      // new file
+      final ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+      header.putLong(MAGIC).putInt(VERSION).putInt(dimension).flip();
+      out.truncate(0);
+      while (header.hasRemaining()) {
+        out.write(header);
+      }
+    } else {
+      // overwrites an incomplete last record of an interrupted write
+      out.position(HEADER_BYTES + mappedOffsets.size() * recordBytes);
+    }
+    channel = out;
+    return out;
+  }
+
+  /**
+   * @return number of stored vectors
+   */
+  public synchronized int size() {
+    return mappedOffsets.size() + writtenOffsets.size() + pending.size();
+  }
+
+  /**
+   * @return the vector dimension or -1 if the store is empty
+   */
+  public int getDimension() {
+    return dimension;
+  }
+
+  /**
+   * Releases one reference to the store. Pending vectors are written and the file is closed once
+   * all tasks that opened the store closed it.
+   */
+  @Override
+  public void close() {
+    synchronized (openStores) {
+      if (--references > 0) {
+        return;
+      }
+      openStores.remove(file);
+      closeFile();
+    }
+  }
+
+  private synchronized void closeFile() {
+    flush();
+    pending.clear();
+    if (channel != null) {
+      try {
+        channel.close();
+      } catch (IOException e) {
+        logger.log(Level.WARNING, "Cannot close embedding store " + file, e);
+      }
+      channel = null;
+    }
+    mapped = null;
+    arena.close();
+  }
+
+  private static MessageDigest sha256() {
+    try {
+      return MessageDigest.getInstance("SHA-256");
+    } catch (NoSuchAlgorithmException e) {
+      throw new IllegalStateException("SHA-256 is not available", e);
+    }
+  }
+
+  /**
+   * 128 bit hash of the spectrum content
+   */
+  public record SpectrumKey(long high, long low) {
+
+  }
+}
@@ -0,0 +1,88 @@
+/*
+ * Copyright (c) 2004-2025 The mzmine Development Team
+ *
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+
+package io.github.mzmine.util.scans.similarity.impl.ms2deepscore;
+
+import java.util.concurrent.atomic.LongAdder;
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * Throughput of the stages of embedding prediction in spectra per second. Tensorization runs on
+ * worker threads, so its rate is the rate of a single worker. Spectra read from the
+ * {@link EmbeddingStore} are only counted.
+ * <p>
+ * Thread safe.
+ */
+public final class EmbeddingThroughput {
+
+  private final LongAdder storedSpectra = new LongAdder();
+  private final LongAdder tensorizedSpectra = new LongAdder();
+  private final LongAdder tensorizeNanos = new LongAdder();
+  private final LongAdder predictedSpectra = new LongAdder();
+  private final LongAdder predictNanos = new LongAdder();
+
+  void addStored(int spectra) {
+    storedSpectra.add(spectra);
+  }
+
+  void addTensorized(int spectra, long nanos) {
+    tensorizedSpectra.add(spectra);
+    tensorizeNanos.add(nanos);
+  }
+
+  void addPredicted(int spectra, long nanos) {
+    predictedSpectra.add(spectra);
+    predictNanos.add(nanos);
+  }
+
+  public long getStoredSpectra() {
+    return storedSpectra.sum();
+  }
+
+  public long getPredictedSpectra() {
+    return predictedSpectra.sum();
+  }
+
+  public double getTensorizeSpectraPerSecond() {
+    return perSecond(tensorizedSpectra.sum(), tensorizeNanos.sum());
+  }
+
+  public double getPredictSpectraPerSecond() {
+    return perSecond(predictedSpectra.sum(), predictNanos.sum());
+  }
+
+  private static double perSecond(long spectra, long nanos) {
+    return nanos > 0 ? spectra / (nanos / 1E9) : 0;
+  }
+
+  /**
+   * @return a short summary for the task description
+   */
+  @Override
+  public @NotNull String toString() {
+    return "tensorize %.0f spectra/s, predict %.0f spectra/s, %d stored".formatted(
+        getTensorizeSpectraPerSecond(), getPredictSpectraPerSecond(), getStoredSpectra());
+  }
+}
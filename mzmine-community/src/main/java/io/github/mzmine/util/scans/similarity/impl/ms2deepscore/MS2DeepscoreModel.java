@@ -43,14 +43,17 @@ import java.util.Arrays;
 import java.util.List;
 import java.util.logging.Level;
 import java.util.logging.Logger;
+import org.jetbrains.annotations.NotNull;
 
-public class MS2DeepscoreModel extends EmbeddingBasedSimilarity implements AutoCloseable {
+public class MS2DeepscoreModel extends EmbeddingBasedSimilarity<TensorizedSpectra> implements
+    AutoCloseable {
 
   private static final Logger logger = Logger.getLogger(MS2DeepscoreModel.class.getName());
   private final MS2DeepscoreSpectrumTensorizer spectrumTensorizer;
   private final NDManager ndManager;
   private final Predictor<NDList, NDList> predictor;
   private final ZooModel<NDList, NDList> model;
+  private final String modelId;
 
   public MS2DeepscoreModel(File modelFilePath, File settingsFilePath)
       throws ModelNotFoundException, MalformedModelException, IOException {
@@ -80,6 +83,7 @@ public class MS2DeepscoreModel extends EmbeddingBasedSimilarity implements AutoC
     this.spectrumTensorizer = new MS2DeepscoreSpectrumTensorizer(settings);
     this.ndManager = NDManager.newBaseManager();
     this.predictor = model.newPredictor();
+    this.modelId = EmbeddingStore.createModelId("ms2deepscore", modelFilePath, settingsFilePath);
   }
 
   /**
@@ -102,6 +106,41 @@ public class MS2DeepscoreModel extends EmbeddingBasedSimilarity implements AutoC
     return predictEmbeddingFromTensors(tensorizedSepctra);
   }
 
+  @Override
+  protected @NotNull TensorizedSpectra tensorize(@NotNull List<? extends MassSpectrum> batch) {
+    return spectrumTensorizer.tensorizeSpectra(batch);
+  }
+
+  @Override
+  protected long getTensorBytes(@NotNull TensorizedSpectra tensors) {
+    long floats = 0;
+    for (float[] fragments : tensors.tensorizedFragments()) {
+      floats += fragments.length;
+    }
+    for (float[] metadata : tensors.tensorizedMetadata()) {
+      floats += metadata.length;
+    }
+    return floats * Float.BYTES;
+  }
+
+  @Override
+  protected float[][] predictTensors(@NotNull TensorizedSpectra tensorizedSpectra)
+      throws TranslateException {
+    // all arrays of this batch are released with the sub manager
+    try (NDManager batchManager = ndManager.newSubManager()) {
+      NDList predictions = predictor.predict(
+          new NDList(batchManager.create(tensorizedSpectra.tensorizedFragments()),
+              batchManager.create(tensorizedSpectra.tensorizedMetadata())));
+      predictions.attach(batchManager);
+      return convertNDArrayToFloatMatrix(predictions.getFirst());
+    }
+  }
+
+  @Override
+  public @NotNull String getModelId() {
+    return modelId;
+  }
+
   @Override
   public void close() {
     try {
@@ -71,117 +71,120 @@ public class GnpsMgfParser extends SpectralDBTextParser {
     // data
     // END IONS
 
-    int correct = 0;
+    // create db, chunks are split after END IONS
+    try (BufferedReader br = new BufferedReader(new FileReader(dataBaseFile))) {
+      if (!parseLinesInParallel(mainTask, br, (_, l) -> l.equalsIgnoreCase("END IONS"),
+          lines -> parseChunk(library, lines))) {
+        return false;
+      }
+      // finish and process all entries
+      finish();
+      return true;
+    }
+  }
+
+  /**
+   * Parses all entries of a chunk that ends at a record boundary
+   */
+  private List<SpectralLibraryEntry> parseChunk(SpectralLibrary library, List<String> lines) {
+    final List<SpectralLibraryEntry> entries = new ArrayList<>();
     State state = State.WAIT_FOR_META;
     Map<DBEntryField, Object> fields = new EnumMap<>(DBEntryField.class);
     List<DataPoint> dps = new ArrayList<>();
     int sep = -1;
-    // create db
-    try (BufferedReader br = new BufferedReader(new FileReader(dataBaseFile))) {
-      for (String l; (l = br.readLine()) != null; ) {
-        // main task was canceled?
-        if (mainTask != null && mainTask.isCanceled()) {
-          return false;
-        }
-        try {
-          if (l.length() > 1) {
-            // meta data start?
-            if (state.equals(State.WAIT_FOR_META)) {
-              if (l.equalsIgnoreCase("BEGIN IONS")) {
-                fields = new EnumMap<>(fields);
-                dps.clear();
-                state = State.META;
+    for (String l : lines) {
+      try {
+        if (l.length() > 1) {
+          // meta data start?
+          if (state.equals(State.WAIT_FOR_META)) {
+            if (l.equalsIgnoreCase("BEGIN IONS")) {
+              fields = new EnumMap<>(DBEntryField.class);
+              dps.clear();
+              state = State.META;
+            }
+          } else {
+            if (l.equalsIgnoreCase("END IONS")) {
+              // add entry and reset
+              if (fields.size() > 1 && dps.size() > 1) {
+                entries.add(SpectralLibraryEntryFactory.create(library.getStorage(), fields,
+                    dps.toArray(new DataPoint[dps.size()])));
               }
+              state = State.WAIT_FOR_META;
             } else {
-              if (l.equalsIgnoreCase("END IONS")) {
-                // add entry and reset
-                if (fields.size() > 1 && dps.size() > 1) {
-                  SpectralLibraryEntry entry = SpectralLibraryEntryFactory.create(
-                      library.getStorage(), fields, dps.toArray(new DataPoint[dps.size()]));
-                  // add and push
-                  addLibraryEntry(entry);
-                  correct++;
-                }
-                state = State.WAIT_FOR_META;
-              } else {
-                sep = l.indexOf('=');
-                if (sep == -1) {
-                  // data starts
-                  state = State.DATA;
-                }
-                switch (state) {
-                  case WAIT_FOR_META:
-                    // wait for next entry
-                    break;
-                  case DATA:
-                    // split for any white space (tab or space ...)
-                    String[] data = l.split("\\s+");
-                    dps.add(new SimpleDataPoint(Double.parseDouble(data[0]),
-                        Double.parseDouble(data[1])));
-                    break;
-                  case META:
-                    if (sep != -1 && sep < l.length() - 1) {
-                      DBEntryField field = DBEntryField.forMgfID(l.substring(0, sep));
-                      if (field != null) {
-                        String content = l.substring(sep + 1);
-                        if (!content.isBlank()) {
-                          try {
-                            // allow 1+ as 1 and 2- as -2
-                            if (field.equals(DBEntryField.CHARGE)) {
-                              content = parseCharge(content);
-                            }
+              sep = l.indexOf('=');
+              if (sep == -1) {
+                // data starts
+                state = State.DATA;
+              }
+              switch (state) {
+                case WAIT_FOR_META:
+                  // wait for next entry
+                  break;
+                case DATA:
+                  // split for any white space (tab or space ...)
+                  String[] data = l.split("\\s+");
+                  dps.add(new SimpleDataPoint(Double.parseDouble(data[0]),
+                      Double.parseDouble(data[1])));
+                  break;
+                case META:
+                  if (sep != -1 && sep < l.length() - 1) {
+                    DBEntryField field = DBEntryField.forMgfID(l.substring(0, sep));
+                    if (field != null) {
+                      String content = l.substring(sep + 1);
+                      if (!content.isBlank()) {
+                        try {
+                          // allow 1+ as 1 and 2- as -2
+                          if (field.equals(DBEntryField.CHARGE)) {
+                            content = parseCharge(content);
+                          }
 
-                            Object value = field.convertValue(content);
+                          Object value = field.convertValue(content);
 
-                            // only attempt parsing of adduct from name if there is no adduct already.
-                            if (field.equals(DBEntryField.NAME)
-                                && fields.get(DBEntryField.ION_TYPE) == null) {
-                              String name = ((String) value);
-                              int lastSpace = name.lastIndexOf(' ');
-                              if (lastSpace != -1 && lastSpace < name.length() - 2) {
-                                String adductCandidate = name.substring(lastSpace + 1);
-                                // check for valid
-                                // adduct with the
-                                // adduct parser
-                                // from export
-                                // use as adduct
-                                IonType adduct = IonTypeParser.parse(adductCandidate);
-                                if (adduct != null && !adduct.isUndefinedAdduct()) {
-                                  fields.put(DBEntryField.ION_TYPE, adduct.toString(false));
-                                }
+                          // only attempt parsing of adduct from name if there is no adduct already.
+                          if (field.equals(DBEntryField.NAME)
+                              && fields.get(DBEntryField.ION_TYPE) == null) {
+                            String name = ((String) value);
+                            int lastSpace = name.lastIndexOf(' ');
+                            if (lastSpace != -1 && lastSpace < name.length() - 2) {
+                              String adductCandidate = name.substring(lastSpace + 1);
+                              // check for valid
+                              // adduct with the
+                              // adduct parser
+                              // from export
+                              // use as adduct
+                              IonType adduct = IonTypeParser.parse(adductCandidate);
+                              if (adduct != null && !adduct.isUndefinedAdduct()) {
+                                fields.put(DBEntryField.ION_TYPE, adduct.toString(false));
                               }
                             }
-                            // retention time is in seconds, mzmine uses minutes
-                            if (field.equals(DBEntryField.RT)) {
-                              value = ((Float) value) / 60.f;
-                            }
+                          }
+                          // retention time is in seconds, mzmine uses minutes
+                          if (field.equals(DBEntryField.RT)) {
+                            value = ((Float) value) / 60.f;
+                          }
 
-                            if (value != null) {
-                              fields.put(field, value);
-                            }
-                          } catch (Exception e) {
-                            logger.log(Level.WARNING,
-                                "Cannot convert value type of " + content + " to "
-                                    + field.getObjectClass().toString(), e);
+                          if (value != null) {
+                            fields.put(field, value);
                           }
+                        } catch (Exception e) {
+                          logger.log(Level.WARNING,
+                              "Cannot convert value type of " + content + " to "
+                                  + field.getObjectClass().toString(), e);
                         }
                       }
                     }
-                    break;
-                }
+                  }
+                  break;
               }
             }
           }
-        } catch (Exception ex) {
-          logger.log(Level.WARNING, "Error for entry", ex);
-          state = State.WAIT_FOR_META;
         }
-        processedLines.incrementAndGet();
+      } catch (Exception ex) {
+        logger.log(Level.WARNING, "Error for entry", ex);
+        state = State.WAIT_FOR_META;
       }
-      // finish and process all entries
-      finish();
-      return true;
     }
+    return entries;
   }
 
   private String parseCharge(final String str) {
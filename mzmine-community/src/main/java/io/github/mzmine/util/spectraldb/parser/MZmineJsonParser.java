@@ -45,6 +45,8 @@ import java.io.IOException;
 import java.io.StringReader;
 import java.util.EnumMap;
 import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 import org.jetbrains.annotations.Nullable;
@@ -64,43 +66,36 @@ public class MZmineJsonParser extends SpectralDBTextParser {
 
     logger.info("Parsing MZmine spectral library " + dataBaseFile.getAbsolutePath());
 
-    int correct = 0;
-    int error = 0;
+    final AtomicInteger correct = new AtomicInteger(0);
+    final AtomicInteger error = new AtomicInteger(0);
     // create db
     try (BufferedReader br = new BufferedReader(new FileReader(dataBaseFile))) {
-      for (String l; (l = br.readLine()) != null; ) {
+      // check the format on the first entries
+      String l = null;
+      while (correct.get() < 5 && (l = br.readLine()) != null) {
         // main task was canceled?
         if (mainTask != null && mainTask.isCanceled()) {
           return false;
         }
-
-        JsonReader reader = null;
-        try {
-          reader = Json.createReader(new StringReader(l));
-          JsonObject json = reader.readObject();
-          SpectralLibraryEntry entry = getDBEntry(library, json);
-          if (entry != null) {
-            correct++;
-            // add entry and process
-            addLibraryEntry(entry);
-          } else {
-            error++;
-          }
-        } catch (Exception ex) {
-          error++;
-          logger.log(Level.WARNING, "Error for entry", ex);
-        } finally {
-          if (reader != null) {
-            reader.close();
-          }
+        SpectralLibraryEntry entry = parseLineToEntry(library, correct, error, l);
+        if (entry != null) {
+          // add entry and process
+          addLibraryEntry(entry);
         }
         // to many errors? wrong data format?
-        if (error > 5 && correct < 5) {
+        if (error.get() > 5 && correct.get() < 5) {
           logger.log(Level.WARNING, "This file was no MZmine spectral json library");
           return false;
         }
         processedLines.incrementAndGet();
       }
+
+      // read the rest in parallel, one entry per line
+      if (l != null && !parseLinesInParallel(mainTask, br, (_, _) -> true,
+          lines -> lines.stream().map(line -> parseLineToEntry(library, correct, error, line))
+              .filter(Objects::nonNull).toList())) {
+        return false;
+      }
     }
     // finish and process last entries
     finish();
@@ -108,6 +103,25 @@ public class MZmineJsonParser extends SpectralDBTextParser {
     return true;
   }
 
+  @Nullable
+  private SpectralLibraryEntry parseLineToEntry(SpectralLibrary library, AtomicInteger correct,
+      AtomicInteger error, String l) {
+    try (JsonReader reader = Json.createReader(new StringReader(l))) {
+      JsonObject json = reader.readObject();
+      SpectralLibraryEntry entry = getDBEntry(library, json);
+      if (entry != null) {
+        correct.incrementAndGet();
+      } else {
+        error.incrementAndGet();
+      }
+      return entry;
+    } catch (Exception ex) {
+      error.incrementAndGet();
+      logger.log(Level.WARNING, "Error for entry", ex);
+      return null;
+    }
+  }
+
   @Nullable
   private static Object getValue(final JsonObject main, final DBEntryField f, final String id) {
     Object o = null;
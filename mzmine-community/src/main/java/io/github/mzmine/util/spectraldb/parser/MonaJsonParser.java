@@ -111,21 +111,23 @@ public class MonaJsonParser extends SpectralDBTextParser {
         return false;
       }
 
-      // read the rest in parallel
-      final List<SpectralLibraryEntry> entries = br.lines().filter(line -> {
-            processedLines.incrementAndGet();
-            return line.length() > 2;
-          }).parallel().map(line -> parseLineToEntry(library, correct, error, line))
-          .filter(Objects::nonNull).toList();
+      for (SpectralLibraryEntry entry : results) {
+        addLibraryEntry(entry);
+      }
+      // read the rest in parallel, one entry per line
+      if (!parseLinesInParallel(mainTask, br, (_, _) -> true,
+          lines -> lines.stream().filter(line -> line.length() > 2)
+              .map(line -> parseLineToEntry(library, correct, error, line))
+              .filter(Objects::nonNull).toList())) {
+        return false;
+      }
 
       if (error.get() > 0) {
         logger.warning(
             String.format("MoNA spectral library %s was imported with %d entries failing.",
                 dataBaseFile.getName(), error.get()));
       }
-      // combine
-      results.addAll(entries);
-      processor.processNextEntries(results, 0);
+      finish();
       return true;
     }
   }
@@ -59,6 +59,31 @@ public class NistMspParser extends SpectralDBTextParser {
     super.parse(mainTask, dataBaseFile, library);
     logger.info("Parsing NIST msp spectral library " + dataBaseFile.getAbsolutePath());
 
+    // read DB file, records end with an empty line after the data points
+    try (BufferedReader br = new BufferedReader(new FileReader(dataBaseFile))) {
+      if (!parseLinesInParallel(mainTask, br, this::isRecordEnd,
+          lines -> parseChunk(library, lines))) {
+        return false;
+      }
+      // finish and process all entries
+      finish();
+      return true;
+    }
+  }
+
+  /**
+   * @return true if line is the empty line after the data points of an entry
+   */
+  private boolean isRecordEnd(@Nullable String previousLine, String line) {
+    return line.length() <= 1 && previousLine != null && previousLine.length() > 1
+           && previousLine.indexOf(": ") == -1 && extractDataPoint(previousLine) != null;
+  }
+
+  /**
+   * Parses all entries of a chunk that ends at a record boundary
+   */
+  private List<SpectralLibraryEntry> parseChunk(SpectralLibrary library, List<String> lines) {
+    final List<SpectralLibraryEntry> entries = new ArrayList<>();
     // metadata fields and data points
     Map<DBEntryField, Object> fields = new EnumMap<>(DBEntryField.class);
     List<DataPoint> dps = new ArrayList<>();
@@ -67,57 +92,45 @@ public class NistMspParser extends SpectralDBTextParser {
     // currently loading data?
     boolean isData = false;
 
-    // read DB file
-    try (BufferedReader br = new BufferedReader(new FileReader(dataBaseFile))) {
-      for (String l; (l = br.readLine()) != null; ) {
-        // main task was canceled?
-        if (mainTask != null && mainTask.isCanceled()) {
-          return false;
-        }
-        try {
-          if (l.length() > 1) {
-            // meta data?
-            sep = isData ? -1 : l.indexOf(": ");
-            if (sep != -1 && sep < l.length() - 2) {
-              extractMetaData(fields, l, sep);
-            } else {
-              // data?
-              DataPoint dp = extractDataPoint(l);
-              if (dp != null) {
-                dps.add(dp);
-                isData = true;
-              } else {
-                isData = false;
-              }
-            }
+    for (String l : lines) {
+      try {
+        if (l.length() > 1) {
+          // meta data?
+          sep = isData ? -1 : l.indexOf(": ");
+          if (sep != -1 && sep < l.length() - 2) {
+            extractMetaData(fields, l, sep);
           } else {
-            // empty row
-            if (isData) {
-              // empty row after data
-              // add entry and reset
-              SpectralLibraryEntry entry = SpectralLibraryEntryFactory.create(library.getStorage(),
-                  fields, dps.toArray(new DataPoint[dps.size()]));
-              // add and push
-              addLibraryEntry(entry);
-              // reset
-              fields = new EnumMap<>(fields);
-              dps.clear();
+            // data?
+            DataPoint dp = extractDataPoint(l);
+            if (dp != null) {
+              dps.add(dp);
+              isData = true;
+            } else {
               isData = false;
             }
           }
-        } catch (Exception ex) {
-          logger.log(Level.WARNING, "Error for entry", ex);
-          // reset on error
-          isData = false;
-          fields = new EnumMap<>(fields);
-          dps.clear();
+        } else {
+          // empty row
+          if (isData) {
+            // empty row after data
+            // add entry and reset
+            entries.add(SpectralLibraryEntryFactory.create(library.getStorage(), fields,
+                dps.toArray(new DataPoint[dps.size()])));
+            // reset
+            fields = new EnumMap<>(DBEntryField.class);
+            dps.clear();
+            isData = false;
+          }
         }
-        processedLines.incrementAndGet();
+      } catch (Exception ex) {
+        logger.log(Level.WARNING, "Error for entry", ex);
+        // reset on error
+        isData = false;
+        fields = new EnumMap<>(DBEntryField.class);
+        dps.clear();
       }
-      // finish and process all entries
-      finish();
-      return true;
     }
+    return entries;
   }
 
   /**
@@ -31,21 +31,33 @@ import io.github.mzmine.util.spectraldb.entry.SpectralLibrary;
 import io.github.mzmine.util.spectraldb.entry.SpectralLibraryEntry;
 import java.io.File;
 import java.io.IOException;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.function.Function;
 import java.util.logging.Logger;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
 
 public abstract class SpectralDBParser {
 
   private static final Logger logger = Logger.getLogger(SpectralDBParser.class.getName());
 
+  /**
+   * Maximum number of chunks that are read ahead and parsed in parallel
+   */
+  protected static final int MAX_PENDING_CHUNKS = 2 * Runtime.getRuntime().availableProcessors();
+
   protected final int bufferEntries;
   // process entries
   protected final LibraryEntryProcessor processor;
   protected final Object LOCK = new Object();
   private List<SpectralLibraryEntry> list;
   private int processedEntries = 0;
+  private final long startNanos = System.nanoTime();
 
   public SpectralDBParser(int bufferEntries, LibraryEntryProcessor processor) {
     list = new ArrayList<>();
@@ -95,6 +107,60 @@ public abstract class SpectralDBParser {
     return true;
   }
 
+  /**
+   * Parses chunks of records on worker threads. The calling thread reads the next chunks and adds
+   * the parsed entries in the original order of the file with {@link #addLibraryEntry}. At most
+   * {@link #MAX_PENDING_CHUNKS} chunks are held in memory.
+   *
+   * @param chunkReader reads the next chunk, split at a record boundary
+   * @param chunkParser parses all records of a chunk, called on worker threads
+   * @return false if the main task was canceled
+   */
+  protected <C> boolean parseChunksInParallel(@Nullable AbstractTask mainTask,
+      @NotNull ChunkReader<C> chunkReader,
+      @NotNull Function<C, List<SpectralLibraryEntry>> chunkParser) throws IOException {
+    final ArrayDeque<CompletableFuture<List<SpectralLibraryEntry>>> pending = new ArrayDeque<>();
+    try {
+      for (C chunk; (chunk = chunkReader.nextChunk()) != null; ) {
+        if (mainTask != null && mainTask.isCanceled()) {
+          return false;
+        }
+        final C records = chunk;
+        pending.addLast(CompletableFuture.supplyAsync(() -> chunkParser.apply(records)));
+        // add finished chunks and block if too many chunks are pending
+        while (!pending.isEmpty() && (pending.size() >= MAX_PENDING_CHUNKS || pending.getFirst()
+            .isDone())) {
+          addLibraryEntries(pending.removeFirst());
+        }
+      }
+      while (!pending.isEmpty()) {
+        if (mainTask != null && mainTask.isCanceled()) {
+          return false;
+        }
+        addLibraryEntries(pending.removeFirst());
+      }
+      return true;
+    } finally {
+      // only left on cancel or exception
+      pending.forEach(future -> future.cancel(false));
+    }
+  }
+
+  private void addLibraryEntries(CompletableFuture<List<SpectralLibraryEntry>> chunk) {
+    final List<SpectralLibraryEntry> entries;
+    try {
+      entries = chunk.join();
+    } catch (CompletionException e) {
+      if (e.getCause() instanceof RuntimeException re) {
+        throw re;
+      }
+      throw e;
+    }
+    for (SpectralLibraryEntry entry : entries) {
+      addLibraryEntry(entry);
+    }
+  }
+
   /**
    * Finish and push last entries
    */
@@ -110,7 +176,19 @@ public abstract class SpectralDBParser {
         }
       }
     }
-    logger.info(processedEntries + "  library entries imported");
+    logger.info(() -> "%d library entries imported in %.1f s (%.0f entries/s)".formatted(
+        processedEntries, getElapsedSeconds(), getEntriesPerSecond()));
+  }
+
+  private double getElapsedSeconds() {
+    return Math.max((System.nanoTime() - startNanos) / 1E9, 1E-9);
+  }
+
+  /**
+   * @return the number of loaded entries per second since this parser was created
+   */
+  public double getEntriesPerSecond() {
+    return getProcessedEntries() / getElapsedSeconds();
   }
 
   public int getProcessedEntries() {
@@ -120,7 +198,22 @@ public abstract class SpectralDBParser {
   public abstract double getProgress();
 
   public String getDescription() {
-    return "Importing library. Loaded entries:" + getProcessedEntries();
+    return "Importing library. Loaded entries: %d (%.0f entries/s)".formatted(
+        getProcessedEntries(), getEntriesPerSecond());
+  }
+
+  /**
+   * Reads a file in chunks of complete records
+   *
+   * @param <C> the chunk
+   */
+  @FunctionalInterface
+  protected interface ChunkReader<C> {
+
+    /**
+     * @return the next chunk or null at the end of the file
+     */
+    @Nullable C nextChunk() throws IOException;
   }
 
 }
@@ -28,11 +28,19 @@ package io.github.mzmine.util.spectraldb.parser;
 import io.github.mzmine.taskcontrol.AbstractTask;
 import io.github.mzmine.util.files.FileAndPathUtil;
 import io.github.mzmine.util.spectraldb.entry.SpectralLibrary;
+import io.github.mzmine.util.spectraldb.entry.SpectralLibraryEntry;
+import java.io.BufferedReader;
 import java.io.File;
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BiPredicate;
+import java.util.function.Function;
 import java.util.logging.Level;
 import java.util.logging.Logger;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
 
 /**
  * @author Robin Schmid (https://github.com/robinschmid)
@@ -41,6 +49,11 @@ public abstract class SpectralDBTextParser extends SpectralDBParser {
 
   private static final Logger logger = Logger.getLogger(SpectralDBTextParser.class.getName());
 
+  /**
+   * Chunks are split at the first record boundary after this number of characters
+   */
+  protected static final int CHUNK_CHARS = 1 << 20;
+
   protected long totalLines = 0L;
   protected AtomicLong processedLines = new AtomicLong(0L);
 
@@ -65,6 +78,37 @@ public abstract class SpectralDBTextParser extends SpectralDBParser {
     return false;
   }
 
+  /**
+   * Reads the remaining lines in chunks that end at record boundaries and parses the chunks in
+   * parallel, see {@link #parseChunksInParallel(AbstractTask, ChunkReader, Function)}.
+   *
+   * @param isRecordEnd tests (previous line, line) and is true if a record ends with line. Chunks
+   *                    are only split after such lines.
+   * @param chunkParser parses the lines of a chunk, called on worker threads
+   * @return false if the main task was canceled
+   */
+  protected boolean parseLinesInParallel(@Nullable AbstractTask mainTask,
+      @NotNull BufferedReader reader, @NotNull BiPredicate<String, String> isRecordEnd,
+      @NotNull Function<List<String>, List<SpectralLibraryEntry>> chunkParser)
+      throws IOException {
+    final String[] previous = new String[1];
+    return parseChunksInParallel(mainTask, () -> {
+      final List<String> lines = new ArrayList<>();
+      long chars = 0;
+      for (String l; (l = reader.readLine()) != null; ) {
+        lines.add(l);
+        chars += l.length();
+        final boolean recordEnd = isRecordEnd.test(previous[0], l);
+        previous[0] = l;
+        if (chars >= CHUNK_CHARS && recordEnd) {
+          break;
+        }
+      }
+      processedLines.addAndGet(lines.size());
+      return lines.isEmpty() ? null : lines;
+    }, chunkParser);
+  }
+
   @Override
   public double getProgress() {
     return totalLines == 0 ? 0 : processedLines.get() / (double) totalLines;
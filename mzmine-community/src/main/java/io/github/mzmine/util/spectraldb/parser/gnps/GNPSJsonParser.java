@@ -27,6 +27,7 @@ package io.github.mzmine.util.spectraldb.parser.gnps;
 
 import com.fasterxml.jackson.core.JsonParser;
 import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import io.github.mzmine.taskcontrol.AbstractTask;
 import io.github.mzmine.util.spectraldb.entry.SpectralLibrary;
@@ -35,6 +36,10 @@ import io.github.mzmine.util.spectraldb.parser.LibraryEntryProcessor;
 import io.github.mzmine.util.spectraldb.parser.SpectralDBParser;
 import java.io.File;
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 import org.jetbrains.annotations.Nullable;
@@ -49,6 +54,10 @@ import org.jetbrains.annotations.Nullable;
 public class GNPSJsonParser extends SpectralDBParser {
 
   private static final Logger logger = Logger.getLogger(GNPSJsonParser.class.getName());
+  /**
+   * Number of array elements per chunk that is converted on a worker thread
+   */
+  private static final int CHUNK_ENTRIES = 512;
   private boolean finished = false;
 
   public GNPSJsonParser(int bufferEntries, LibraryEntryProcessor processor) {
@@ -59,8 +68,8 @@ public class GNPSJsonParser extends SpectralDBParser {
   public boolean parse(@Nullable AbstractTask mainTask, File dataBaseFile,
       @Nullable SpectralLibrary library) throws IOException {
     logger.info("Parsing GNPS spectral json library " + dataBaseFile.getAbsolutePath());
-    int error = 0;
-    ObjectMapper mapper = new ObjectMapper();
+    final AtomicInteger error = new AtomicInteger(0);
+    final ObjectMapper mapper = new ObjectMapper();
     // Create a JsonParser instance
     try (JsonParser jsonParser = mapper.getFactory().createParser(dataBaseFile)) {
 
@@ -69,27 +78,40 @@ public class GNPSJsonParser extends SpectralDBParser {
         throw new IllegalStateException("Expected content to be an array");
       }
 
-      // Iterate over the tokens until the end of the array
-      while (jsonParser.nextToken() != JsonToken.END_ARRAY) {
-        try {
-          SpectralLibraryEntry entry = mapper.readValue(jsonParser, GnpsLibraryEntry.class)
-              .toSpectralLibraryEntry(library);
-          addLibraryEntry(entry);
-        } catch (Exception ex) {
-          logger.log(Level.WARNING, ex.getMessage(), ex);
-          error++;
+      // read array elements as trees and convert chunks of elements in parallel
+      final boolean completed = parseChunksInParallel(mainTask, () -> {
+        final List<JsonNode> nodes = new ArrayList<>(CHUNK_ENTRIES);
+        while (nodes.size() < CHUNK_ENTRIES && jsonParser.nextToken() == JsonToken.START_OBJECT) {
+          nodes.add(mapper.readTree(jsonParser));
         }
+        return nodes.isEmpty() ? null : nodes;
+      }, nodes -> nodes.stream().map(node -> toEntry(mapper, node, library, error))
+          .filter(Objects::nonNull).toList());
+      if (!completed) {
+        return false;
       }
     }
     finish();
 
     logger.info(String.format("GNPS library loaded with %d entries and %d failing entries",
-        getProcessedEntries(), error));
+        getProcessedEntries(), error.get()));
 
     finished = true;
     return true;
   }
 
+  @Nullable
+  private static SpectralLibraryEntry toEntry(ObjectMapper mapper, JsonNode node,
+      @Nullable SpectralLibrary library, AtomicInteger error) {
+    try {
+      return mapper.treeToValue(node, GnpsLibraryEntry.class).toSpectralLibraryEntry(library);
+    } catch (Exception ex) {
+      logger.log(Level.WARNING, ex.getMessage(), ex);
+      error.incrementAndGet();
+      return null;
+    }
+  }
+
   @Override
   public double getProgress() {
     return finished ? 1 : (getProcessedEntries() % 10000) / 10000.0;
@@ -0,0 +1,153 @@
+/*
+ * Copyright (c) 2004-2025 The mzmine Development Team
+ *
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+
+package import_data.speed;
+
+import io.github.mzmine.modules.dataprocessing.featdet_smoothing.savitzkygolay.SavitzkyGolayFilter;
+import java.util.Random;
+import java.util.logging.Logger;
+import java.util.stream.IntStream;
+
+/**
+ * Throughput of the Savitzky-Golay smoothing kernel in chromatograms per second. Compares the
+ * previous per point convolution with the current kernel and sequential processing with parallel
+ * chunks of features, like in the smoothing and baseline correction tasks. Each case runs warmup
+ * iterations before the measured iterations, similar to a JMH average time benchmark.
+ * <p>
+ * Be sure to specify VM options -Xms4g -Xmx4g or similar to start with fixed memory
+ */
+public class SmoothingSpeedTestMain {
+
+  private static final Logger logger = Logger.getLogger(SmoothingSpeedTestMain.class.getName());
+
+  private static final int NUM_CHROMATOGRAMS = 20_000;
+  private static final int NUM_SCANS = 1_500;
+  private static final int FILTER_WIDTH = 11;
+  private static final int CHROMATOGRAMS_PER_CHUNK = 512;
+  private static final int WARMUP_ITERATIONS = 5;
+  private static final int MEASURE_ITERATIONS = 10;
+
+  public static void main(String[] args) {
+    final double[][] chromatograms = createChromatograms();
+    final double[] weights = SavitzkyGolayFilter.getNormalizedWeights(FILTER_WIDTH);
+
+    measure("per point, sequential", chromatograms,
+        (from, to) -> smoothChunk(chromatograms, from, to, weights, false), false);
+    measure("kernel, sequential", chromatograms,
+        (from, to) -> smoothChunk(chromatograms, from, to, weights, true), false);
+    measure("per point, parallel chunks", chromatograms,
+        (from, to) -> smoothChunk(chromatograms, from, to, weights, false), true);
+    measure("kernel, parallel chunks", chromatograms,
+        (from, to) -> smoothChunk(chromatograms, from, to, weights, true), true);
+  }
+
+  private static void measure(String name, double[][] chromatograms, ChunkSmoother smoother,
+      boolean parallel) {
+    double checksum = 0;
+    for (int i = 0; i < WARMUP_ITERATIONS; i++) {
+      checksum += run(chromatograms.length, smoother, parallel);
+    }
+
+    final long start = System.nanoTime();
+    for (int i = 0; i < MEASURE_ITERATIONS; i++) {
+      checksum += run(chromatograms.length, smoother, parallel);
+    }
+    final double seconds = (System.nanoTime() - start) / 1E9;
+    final double perSecond = (double) chromatograms.length * MEASURE_ITERATIONS / seconds;
+
+    // log the checksum so the work cannot be removed as dead code
+    logger.info("%-28s %,12.0f chromatograms/s (%.3f s per iteration, checksum %.4g)".formatted(
+        name, perSecond, seconds / MEASURE_ITERATIONS, checksum));
+  }
+
+  private static double run(int numChromatograms, ChunkSmoother smoother, boolean parallel) {
+    final int numChunks =
+        (numChromatograms + CHROMATOGRAMS_PER_CHUNK - 1) / CHROMATOGRAMS_PER_CHUNK;
+    IntStream chunks = IntStream.range(0, numChunks);
+    if (parallel) {
+      chunks = chunks.parallel();
+    }
+    return chunks.mapToDouble(chunk -> smoother.smooth(chunk * CHROMATOGRAMS_PER_CHUNK,
+        Math.min(numChromatograms, (chunk + 1) * CHROMATOGRAMS_PER_CHUNK))).sum();
+  }
+
+  private static double smoothChunk(double[][] chromatograms, int from, int to, double[] weights,
+      boolean kernel) {
+    double sum = 0;
+    for (int c = from; c < to; c++) {
+      final double[] intensities = chromatograms[c];
+      final double[] smoothed;
+      if (kernel) {
+        smoothed = new double[intensities.length];
+        SavitzkyGolayFilter.convolve(intensities, intensities.length, weights, smoothed);
+      } else {
+        smoothed = convolvePerPoint(intensities, weights);
+      }
+      sum += smoothed[smoothed.length / 2];
+    }
+    return sum;
+  }
+
+  /**
+   * Per point convolution as the smoothing was implemented before
+   */
+  private static double[] convolvePerPoint(final double[] intensities, final double[] weights) {
+    final int numPoints = intensities.length;
+    final int fullWidth = weights.length;
+    final int halfWidth = (fullWidth - 1) / 2;
+    final double[] convolved = new double[numPoints];
+    for (int i = 0; i < numPoints; i++) {
+      final int k = i - halfWidth;
+      for (int j = Math.max(0, -k); j < Math.min(fullWidth, numPoints - k); j++) {
+        convolved[i] += intensities[k + j] * weights[j];
+      }
+    }
+    return convolved;
+  }
+
+  /**
+   * Gaussian peaks on a noisy baseline with zeros, similar to chromatograms with zeros included
+   */
+  private static double[][] createChromatograms() {
+    final Random random = new Random(42);
+    final double[][] chromatograms = new double[NUM_CHROMATOGRAMS][NUM_SCANS];
+    for (double[] intensities : chromatograms) {
+      final double apex = random.nextInt(NUM_SCANS);
+      final double height = 1E4 + random.nextDouble() * 1E7;
+      final double sigma = 3 + random.nextDouble() * 10;
+      for (int i = 0; i < NUM_SCANS; i++) {
+        final double peak = height * Math.exp(-0.5 * Math.pow((i - apex) / sigma, 2));
+        intensities[i] = random.nextInt(10) == 0 ? 0d : peak + random.nextDouble() * 1E3;
+      }
+    }
+    return chromatograms;
+  }
+
+  @FunctionalInterface
+  private interface ChunkSmoother {
+
+    double smooth(int from, int to);
+  }
+}
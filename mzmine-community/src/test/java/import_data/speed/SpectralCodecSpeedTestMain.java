@@ -0,0 +1,147 @@
+/*
+ * Copyright (c) 2004-2025 The mzmine Development Team
+ *
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+
+package import_data.speed;
+
+import io.github.mzmine.datamodel.featuredata.impl.SpectralStorageCodec;
+import java.lang.foreign.MemorySegment;
+import java.util.Random;
+import java.util.logging.Logger;
+
+/**
+ * Encode and decode throughput and compression ratio of the {@link SpectralStorageCodec}s on
+ * profile spectra. Decoding is measured as full copy of the spectra and as value by value access
+ * with interleaved m/z and intensity reads, like most algorithms iterate spectra. Each case runs
+ * warmup iterations before the measured iterations, similar to a JMH average time benchmark.
+ * <p>
+ * Be sure to specify VM options -Xms4g -Xmx4g or similar to start with fixed memory
+ */
+public class SpectralCodecSpeedTestMain {
+
+  private static final Logger logger = Logger.getLogger(
+      SpectralCodecSpeedTestMain.class.getName());
+
+  private static final int NUM_SPECTRA = 2_000;
+  private static final int NUM_DATA_POINTS = 5_000;
+  private static final int WARMUP_ITERATIONS = 5;
+  private static final int MEASURE_ITERATIONS = 10;
+
+  public static void main(String[] args) {
+    final double[][] mzs = new double[NUM_SPECTRA][];
+    final double[][] intensities = new double[NUM_SPECTRA][];
+    createSpectra(mzs, intensities);
+
+    for (SpectralStorageCodec codec : SpectralStorageCodec.values()) {
+      final MemorySegment[] encodedMzs = new MemorySegment[NUM_SPECTRA];
+      final MemorySegment[] encodedIntensities = new MemorySegment[NUM_SPECTRA];
+
+      measure(codec + ", encode", () -> {
+        double checksum = 0;
+        for (int s = 0; s < NUM_SPECTRA; s++) {
+          encodedMzs[s] = codec.storeMzs(null, mzs[s]);
+          encodedIntensities[s] = codec.storeIntensities(null, intensities[s]);
+          checksum += encodedMzs[s].byteSize();
+        }
+        return checksum;
+      });
+
+      measure(codec + ", decode all", () -> {
+        double checksum = 0;
+        double[] mzBuffer = new double[0];
+        double[] intensityBuffer = new double[0];
+        for (int s = 0; s < NUM_SPECTRA; s++) {
+          mzBuffer = codec.copyMzs(encodedMzs[s], NUM_DATA_POINTS, mzBuffer);
+          intensityBuffer = codec.copyIntensities(encodedIntensities[s], NUM_DATA_POINTS,
+              intensityBuffer);
+          checksum += mzBuffer[NUM_DATA_POINTS / 2] + intensityBuffer[NUM_DATA_POINTS / 2];
+        }
+        return checksum;
+      });
+
+      measure(codec + ", value by value", () -> {
+        double checksum = 0;
+        for (int s = 0; s < NUM_SPECTRA; s++) {
+          for (int i = 0; i < NUM_DATA_POINTS; i++) {
+            checksum += codec.getMz(encodedMzs[s], i) * codec.getIntensity(
+                encodedIntensities[s], i);
+          }
+        }
+        return checksum;
+      });
+
+      long storedBytes = 0;
+      for (int s = 0; s < NUM_SPECTRA; s++) {
+        storedBytes += encodedMzs[s].byteSize() + encodedIntensities[s].byteSize();
+      }
+      final long rawBytes = (long) NUM_SPECTRA * NUM_DATA_POINTS * 2 * Double.BYTES;
+      logger.info("%-50s compression ratio %.2f (%.1f MB to %.1f MB)".formatted(codec,
+          (double) rawBytes / storedBytes, rawBytes / 1E6, storedBytes / 1E6));
+    }
+  }
+
+  private static void measure(String name, Benchmark benchmark) {
+    double checksum = 0;
+    for (int i = 0; i < WARMUP_ITERATIONS; i++) {
+      checksum += benchmark.run();
+    }
+
+    final long start = System.nanoTime();
+    for (int i = 0; i < MEASURE_ITERATIONS; i++) {
+      checksum += benchmark.run();
+    }
+    final double seconds = (System.nanoTime() - start) / 1E9;
+    final double perSecond = (double) NUM_SPECTRA * MEASURE_ITERATIONS / seconds;
+
+    // log the checksum so the work cannot be removed as dead code
+    logger.info("%-50s %,12.0f spectra/s (%.3f s per iteration, checksum %.4g)".formatted(name,
+        perSecond, seconds / MEASURE_ITERATIONS, checksum));
+  }
+
+  /**
+   * Profile spectra with gaussian peaks on noise, similar to orbitrap or TOF profile data
+   */
+  private static void createSpectra(double[][] mzs, double[][] intensities) {
+    final Random random = new Random(42);
+    for (int s = 0; s < mzs.length; s++) {
+      final double[] spectrumMzs = new double[NUM_DATA_POINTS];
+      final double[] spectrumIntensities = new double[NUM_DATA_POINTS];
+      double mz = 100 + random.nextDouble();
+      for (int i = 0; i < NUM_DATA_POINTS; i++) {
+        mz += 0.002 + random.nextDouble() * 0.0002;
+        spectrumMzs[i] = mz;
+        final double peak = Math.max(0, Math.sin(i / 7d)) * random.nextDouble() * 1E6;
+        spectrumIntensities[i] = peak + random.nextDouble() * 1E2;
+      }
+      mzs[s] = spectrumMzs;
+      intensities[s] = spectrumIntensities;
+    }
+  }
+
+  @FunctionalInterface
+  private interface Benchmark {
+
+    double run();
+  }
+}
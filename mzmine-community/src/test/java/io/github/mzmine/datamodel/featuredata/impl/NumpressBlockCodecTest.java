@@ -0,0 +1,149 @@
+/*
+ * Copyright (c) 2004-2025 The mzmine Development Team
+ *
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+
+package io.github.mzmine.datamodel.featuredata.impl;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.lang.foreign.MemorySegment;
+import java.lang.foreign.ValueLayout;
+import java.util.Arrays;
+import java.util.Random;
+import org.junit.jupiter.api.Test;
+
+class NumpressBlockCodecTest {
+
+  private static double[] profileMzs(int n) {
+    final Random random = new Random(42);
+    final double[] mzs = new double[n];
+    double mz = 100;
+    for (int i = 0; i < n; i++) {
+      mz += 0.002 + random.nextDouble() * 0.0001;
+      mzs[i] = mz;
+    }
+    return mzs;
+  }
+
+  @Test
+  void linearRoundTrip() {
+    final double[] mzs = profileMzs(1000);
+    final MemorySegment encoded = NumpressBlockCodec.encodeLinear(null, mzs,
+        NumpressBlockCodec.MZ_FIXED_POINT);
+
+    assertEquals(mzs.length, NumpressBlockCodec.numValues(encoded));
+    final double[] decoded = NumpressBlockCodec.decode(encoded, new double[0]);
+    final double maxError = 0.5 / NumpressBlockCodec.MZ_FIXED_POINT + 1E-9;
+    for (int i = 0; i < mzs.length; i++) {
+      assertEquals(mzs[i], decoded[i], maxError);
+    }
+    // profile m/z values compress well
+    assertTrue(encoded.byteSize() * 4 < mzs.length * 8L, "Compressed to " + encoded.byteSize());
+  }
+
+  @Test
+  void randomAccess() {
+    final double[] mzs = profileMzs(333);
+    final MemorySegment encoded = NumpressBlockCodec.encodeLinear(null, mzs,
+        NumpressBlockCodec.MZ_FIXED_POINT);
+    final double[] decoded = NumpressBlockCodec.decode(encoded, new double[0]);
+
+    final Random random = new Random(1);
+    for (int i = 0; i < 1000; i++) {
+      final int index = random.nextInt(mzs.length);
+      assertEquals(decoded[index], NumpressBlockCodec.get(encoded, index), 0d);
+    }
+  }
+
+  @Test
+  void slofRoundTrip() {
+    final double[] intensities = new Random(7).doubles(500, 0, 1E8).toArray();
+    intensities[10] = 0;
+    final MemorySegment encoded = NumpressBlockCodec.encodeSlof(null, intensities);
+
+    final double[] decoded = NumpressBlockCodec.decode(encoded, new double[0]);
+    assertEquals(0d, decoded[10], 0d);
+    for (int i = 0; i < intensities.length; i++) {
+      assertEquals(intensities[i], decoded[i], intensities[i] * 5E-4 + 1E-3);
+      assertEquals(decoded[i], NumpressBlockCodec.get(encoded, i), 0d);
+    }
+    assertTrue(NumpressBlockCodec.canEncodeSlof(intensities));
+    intensities[0] = -1;
+    assertTrue(!NumpressBlockCodec.canEncodeSlof(intensities));
+  }
+
+  @Test
+  void interleavedAccess() {
+    final double[] mzs = profileMzs(200);
+    final double[] intensities = Arrays.stream(mzs).map(mz -> mz * 1000).toArray();
+    final MemorySegment encodedMzs = NumpressBlockCodec.encodeLinear(null, mzs,
+        NumpressBlockCodec.MZ_FIXED_POINT);
+    final MemorySegment encodedIntensities = NumpressBlockCodec.encodeSlof(null, intensities);
+    final MemorySegment otherMzs = NumpressBlockCodec.encodeLinear(null,
+        Arrays.stream(mzs).map(mz -> mz + 100).toArray(), NumpressBlockCodec.MZ_FIXED_POINT);
+
+    for (int i = 0; i < mzs.length; i++) {
+      assertEquals(mzs[i], NumpressBlockCodec.get(encodedMzs, i), 1E-5);
+      assertEquals(mzs[i] + 100, NumpressBlockCodec.get(otherMzs, i), 1E-5);
+      assertEquals(intensities[i], NumpressBlockCodec.get(encodedIntensities, i),
+          intensities[i] * 5E-4);
+    }
+  }
+
+  @Test
+  void equalViewsShareCachedBlocks() {
+    final double[] intensities = new Random(3).doubles(300, 1, 1E6).toArray();
+    final MemorySegment encoded = NumpressBlockCodec.encodeSlof(null, intensities);
+    final double value = NumpressBlockCodec.get(encoded, 1);
+
+    // overwrite the first values of block 0: header (3) + block offsets (5 blocks + 1) + fixed
+    // point (2 ints)
+    final long firstValues = 3 + 6 + 2;
+    encoded.setAtIndex(ValueLayout.JAVA_INT, firstValues,
+        ~encoded.getAtIndex(ValueLayout.JAVA_INT, firstValues));
+    final MemorySegment view = encoded.asSlice(0);
+    // an equal view of the same memory is served from the cached block
+    assertEquals(value, NumpressBlockCodec.get(view, 1), 0d);
+    // decoding everything replaces the cursor and shows the changed bytes
+    assertNotEquals(value, NumpressBlockCodec.decode(view, new double[0])[1], 0d);
+  }
+
+  @Test
+  void sameSizedHeapSegmentsDoNotShareCachedBlocks() {
+    final double[] intensities = new Random(5).doubles(300, 1, 1E6).toArray();
+    final double[] doubled = Arrays.stream(intensities).map(v -> v * 2).toArray();
+    // heap segments start at address 0, slof encodes every value with two bytes
+    final MemorySegment encoded = NumpressBlockCodec.encodeSlof(null, intensities);
+    final MemorySegment other = NumpressBlockCodec.encodeSlof(null, doubled);
+    assertEquals(encoded.address(), other.address());
+    assertEquals(encoded.byteSize(), other.byteSize());
+
+    for (int i = 0; i < intensities.length; i++) {
+      assertEquals(intensities[i], NumpressBlockCodec.get(encoded, i), intensities[i] * 5E-4);
+      assertEquals(doubled[i], NumpressBlockCodec.get(other, i), doubled[i] * 5E-4);
+    }
+  }
+}
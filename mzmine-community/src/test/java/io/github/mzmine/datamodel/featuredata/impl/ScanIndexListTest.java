@@ -0,0 +1,114 @@
+/*
+ * Copyright (c) 2004-2025 The mzmine Development Team
+ *
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+
+package io.github.mzmine.datamodel.featuredata.impl;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import com.google.common.collect.Range;
+import io.github.mzmine.datamodel.MassSpectrumType;
+import io.github.mzmine.datamodel.PolarityType;
+import io.github.mzmine.datamodel.Scan;
+import io.github.mzmine.datamodel.featuredata.IonTimeSeries;
+import io.github.mzmine.datamodel.impl.SimpleScan;
+import io.github.mzmine.project.impl.RawDataFileImpl;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.IntStream;
+import javafx.scene.paint.Color;
+import org.junit.jupiter.api.Test;
+
+class ScanIndexListTest {
+
+  private static RawDataFileImpl createFile() {
+    final RawDataFileImpl file = new RawDataFileImpl("testfile", null, null, Color.BLACK);
+    for (int i = 0; i < 50; i++) {
+      file.addScan(new SimpleScan(file, i + 1, i % 2 == 0 ? 1 : 2, 0.1f * i, null,
+          new double[]{100, 200}, new double[]{10, 20}, MassSpectrumType.CENTROIDED,
+          PolarityType.POSITIVE, "", Range.closed(0d, 1d)));
+    }
+    return file;
+  }
+
+  private static SimpleIonTimeSeries createSeries(List<Scan> scans) {
+    final double[] values = scans.stream().mapToDouble(s -> s.getScanNumber() * 10d).toArray();
+    return new SimpleIonTimeSeries(null, values, values, scans);
+  }
+
+  @Test
+  void consecutiveScans() {
+    final RawDataFileImpl file = createFile();
+    final List<Scan> scans = new ArrayList<>(file.getScans().subList(10, 20));
+    final SimpleIonTimeSeries series = createSeries(scans);
+
+    final var spectra = assertInstanceOf(ScanIndexList.class, series.getSpectra());
+    assertEquals(scans, spectra);
+    assertArrayEquals(IntStream.range(10, 20).toArray(), spectra.toScanIndices());
+    assertThrows(UnsupportedOperationException.class, () -> series.getSpectra().clear());
+
+    final IonTimeSeries<Scan> sub = series.subSeries(null, 2, 5);
+    assertEquals(scans.subList(2, 5), sub.getSpectra());
+    assertEquals(scans.get(2).getRetentionTime(), sub.getRetentionTime(0));
+  }
+
+  @Test
+  void selectedScans() {
+    final RawDataFileImpl file = createFile();
+    // only MS1 scans
+    final List<Scan> scans = file.getScans().stream().filter(s -> s.getMSLevel() == 1).toList();
+    final SimpleIonTimeSeries series = createSeries(scans);
+
+    final var spectra = assertInstanceOf(ScanIndexList.class, series.getSpectra());
+    assertEquals(scans, spectra);
+    assertSame(scans.get(3), spectra.get(3));
+    assertEquals(6, spectra.getScanIndex(3));
+
+    final List<Scan> subset = List.of(scans.get(4), scans.get(7), scans.get(8));
+    final SimpleIonTimeSeries sub = series.subSeries(null, subset);
+    assertEquals(subset, sub.getSpectra());
+    assertEquals(scans.get(7).getScanNumber() * 10d, sub.getIntensity(1));
+
+    final List<Scan> range = series.subSeries(null, 5, 9).getSpectra();
+    assertEquals(scans.subList(5, 9), range);
+    assertArrayEquals(new int[]{10, 12, 14, 16},
+        ((ScanIndexList<?>) range).toScanIndices());
+  }
+
+  @Test
+  void scansOfOtherListAreKept() {
+    final RawDataFileImpl file = createFile();
+    final Scan foreign = new SimpleScan(file, 1000, 1, 100f, null, new double[]{100},
+        new double[]{10}, MassSpectrumType.CENTROIDED, PolarityType.POSITIVE, "",
+        Range.closed(0d, 1d));
+    final List<Scan> scans = List.of(file.getScans().getFirst(), foreign);
+    final SimpleIonTimeSeries series = createSeries(scans);
+    assertEquals(scans, series.getSpectra());
+    assertSame(scans, ScanIndexList.of(null, scans));
+  }
+}
@@ -0,0 +1,154 @@
+/*
+ * Copyright (c) 2004-2025 The mzmine Development Team
+ *
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+
+package io.github.mzmine.datamodel.features;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import com.google.common.collect.Range;
+import io.github.mzmine.datamodel.FeatureStatus;
+import io.github.mzmine.datamodel.RawDataFile;
+import io.github.mzmine.datamodel.features.types.DetectionType;
+import io.github.mzmine.datamodel.features.types.RawFileType;
+import io.github.mzmine.datamodel.features.types.numbers.MZType;
+import io.github.mzmine.datamodel.features.types.numbers.MobilityType;
+import io.github.mzmine.datamodel.features.types.numbers.RTType;
+import io.github.mzmine.util.FeatureListUtils;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+
+class RowSpatialIndexTest {
+
+  private static FeatureListRow mockRow(Double mz, Float rt, Float mobility) {
+    final FeatureListRow row = Mockito.mock(FeatureListRow.class);
+    Mockito.when(row.getAverageMZ()).thenReturn(mz);
+    Mockito.when(row.getAverageRT()).thenReturn(rt);
+    Mockito.when(row.getAverageMobility()).thenReturn(mobility);
+    return row;
+  }
+
+  private static List<FeatureListRow> sorted(List<FeatureListRow> rows) {
+    final List<FeatureListRow> copy = new ArrayList<>(rows);
+    copy.sort(Comparator.comparingInt(System::identityHashCode));
+    return copy;
+  }
+
+  @Test
+  void sameAsLinearSearch() {
+    final Random random = new Random(42);
+    final List<FeatureListRow> rows = new ArrayList<>();
+    for (int i = 0; i < 3000; i++) {
+      // some rows without RT or mobility match all ranges
+      final Float rt = i % 50 == 0 ? null : random.nextFloat() * 20f;
+      final Float mobility = i % 70 == 0 ? null : 0.5f + random.nextFloat();
+      rows.add(mockRow(100 + random.nextDouble() * 900, rt, mobility));
+    }
+    final RowSpatialIndex index = RowSpatialIndex.of(rows);
+    assertEquals(rows.size(), index.size());
+
+    for (int i = 0; i < 200; i++) {
+      final double mz = 100 + random.nextDouble() * 900;
+      final float rt = random.nextFloat() * 20f;
+      final float mobility = 0.5f + random.nextFloat();
+      final Range<Double> mzRange = Range.closed(mz - 5, mz + 5);
+      final Range<Float> rtRange = i % 3 == 0 ? Range.all() : Range.closed(rt - 2f, rt + 2f);
+      final Range<Float> mobilityRange =
+          i % 4 == 0 ? Range.all() : Range.closed(mobility - 0.1f, mobility + 0.1f);
+
+      final List<FeatureListRow> expected = FeatureListUtils.getCandidatesWithinRanges(mzRange,
+          rtRange, mobilityRange, rows, false);
+      final List<FeatureListRow> actual = index.getRowsWithin(mzRange, rtRange, mobilityRange);
+      assertEquals(sorted(expected), sorted(actual));
+    }
+  }
+
+  @Test
+  void openBoundsAndNullRows() {
+    final FeatureListRow[] rows = {mockRow(100d, 1f, null), null, mockRow(200d, 2f, null),
+        mockRow(null, 1f, null)};
+    final RowSpatialIndex index = RowSpatialIndex.of(rows);
+    assertEquals(2, index.size());
+    assertEquals(List.of(rows[2]),
+        index.getRowsWithin(Range.openClosed(100d, 200d), Range.all(), Range.all()));
+    assertEquals(List.of(rows[0]),
+        index.getRowsWithin(Range.atMost(150d), Range.closedOpen(1f, 2f), Range.all()));
+  }
+
+  @Test
+  void featureListIndexFollowsRows() {
+    final RawDataFile raw = Mockito.mock(RawDataFile.class);
+    final ModularFeatureList flist = new ModularFeatureList("List", null, raw);
+    for (int i = 1; i <= 5; i++) {
+      flist.addRow(createRow(flist, raw, i, 100d * i));
+    }
+    final Range<Double> mzRange = Range.closed(150d, 350d);
+    assertEquals(2, flist.getSpatialIndex().getRowsWithin(mzRange, Range.all(), Range.all())
+        .size());
+
+    flist.addRow(createRow(flist, raw, 6, 250d));
+    assertEquals(3, flist.getSpatialIndex().getRowsWithin(mzRange, Range.all(), Range.all())
+        .size());
+
+    // moving a row out of the range
+    flist.getRow(5).set(MZType.class, 500d);
+    assertEquals(2, flist.getSpatialIndex().getRowsWithin(mzRange, Range.all(), Range.all())
+        .size());
+  }
+
+  @Test
+  void featureListIndexIsNotStaleAfterConcurrentChanges() throws InterruptedException {
+    final RawDataFile raw = Mockito.mock(RawDataFile.class);
+    final ModularFeatureList flist = new ModularFeatureList("List", null, raw);
+    final int numRows = 2000;
+    final Thread writer = new Thread(() -> {
+      for (int i = 1; i <= numRows; i++) {
+        flist.addRow(createRow(flist, raw, i, 100d + i));
+      }
+    });
+    writer.start();
+    // indices built while rows are added must not be served after the last change
+    while (writer.isAlive()) {
+      flist.getSpatialIndex();
+    }
+    writer.join();
+
+    assertEquals(numRows, flist.getSpatialIndex().size());
+  }
+
+  private static ModularFeatureListRow createRow(ModularFeatureList flist, RawDataFile raw, int id,
+      double mz) {
+    final ModularFeature f = new ModularFeature(flist);
+    f.set(RawFileType.class, raw);
+    f.set(MZType.class, mz);
+    f.set(RTType.class, 1f);
+    f.set(MobilityType.class, 1f);
+    f.set(DetectionType.class, FeatureStatus.DETECTED);
+    return new ModularFeatureListRow(flist, id, f);
+  }
+}
@@ -0,0 +1,71 @@
+/*
+ * Copyright (c) 2004-2025 The mzmine Development Team
+ *
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+
+package io.github.mzmine.datamodel.impl;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+import com.google.common.collect.Range;
+import org.junit.jupiter.api.Test;
+
+class ScanHeaderDictionaryTest {
+
+  @Test
+  void internsEqualValues() {
+    final ScanHeaderDictionary dictionary = new ScanHeaderDictionary();
+    final String definition = dictionary.internScanDefinition(new String("FTMS + p ESI Full ms"));
+    final Range<Double> range = dictionary.internMzRange(Range.closed(100d, 1000d));
+
+    assertSame(definition, dictionary.internScanDefinition(new String("FTMS + p ESI Full ms")));
+    assertSame(range, dictionary.internMzRange(Range.closed(100d, 1000d)));
+    assertNotSame(range, dictionary.internMzRange(Range.closed(100d, 1500d)));
+    assertEquals(1, dictionary.getNumberOfScanDefinitions());
+    assertEquals(2, dictionary.getNumberOfMzRanges());
+
+    assertNull(dictionary.internScanDefinition(null));
+    assertNull(dictionary.internMzRange(null));
+  }
+
+  @Test
+  void limitsNumberOfValues() {
+    final ScanHeaderDictionary dictionary = new ScanHeaderDictionary();
+    for (int i = 0; i < ScanHeaderDictionary.MAX_VALUES; i++) {
+      dictionary.internScanDefinition("ms2 " + i);
+    }
+    assertEquals(ScanHeaderDictionary.MAX_VALUES, dictionary.getNumberOfScanDefinitions());
+
+    // values beyond the limit are returned as is
+    final String unique = new String("ms2 unique");
+    assertSame(unique, dictionary.internScanDefinition(unique));
+    assertEquals(ScanHeaderDictionary.MAX_VALUES, dictionary.getNumberOfScanDefinitions());
+
+    // values that are already in the dictionary are still shared
+    final String shared = dictionary.internScanDefinition("ms2 1");
+    assertSame(shared, dictionary.internScanDefinition(new String("ms2 1")));
+  }
+}
@@ -0,0 +1,96 @@
+/*
+ * Copyright (c) 2004-2025 The mzmine Development Team
+ *
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+
+package io.github.mzmine.datamodel.impl;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+import com.google.common.collect.Range;
+import io.github.mzmine.datamodel.MassSpectrumType;
+import io.github.mzmine.datamodel.PolarityType;
+import io.github.mzmine.project.impl.RawDataFileImpl;
+import org.junit.jupiter.api.Test;
+
+class SimpleScanTest {
+
+  private final RawDataFileImpl file = new RawDataFileImpl("testfile", null, null);
+
+  private SimpleScan scan(int scanNumber, String scanDefinition, Range<Double> scanMzRange,
+      Float injectionTime, double[] mzs, double[] intensities) {
+    return new SimpleScan(file, scanNumber, 1, 0.1f * scanNumber, null, mzs, intensities,
+        MassSpectrumType.CENTROIDED, PolarityType.POSITIVE, scanDefinition, scanMzRange,
+        injectionTime);
+  }
+
+  @Test
+  void sharesHeaderValuesOfFile() {
+    final SimpleScan a = scan(0, new String("Full ms"), Range.closed(100d, 1000d), 10f,
+        new double[]{200, 300}, new double[]{1, 2});
+    final SimpleScan b = scan(1, new String("Full ms"), Range.closed(100d, 1000d), 20f,
+        new double[]{200, 300}, new double[]{1, 2});
+
+    assertSame(a.getScanDefinition(), b.getScanDefinition());
+    assertSame(a.getScanningMZRange(), b.getScanningMZRange());
+  }
+
+  @Test
+  void injectionTimeSentinel() {
+    final double[] mzs = {200, 300};
+    final double[] intensities = {1, 2};
+    assertEquals(12.5f, scan(0, "", null, 12.5f, mzs, intensities).getInjectionTime());
+    assertEquals(0f, scan(1, "", null, 0f, mzs, intensities).getInjectionTime());
+    // NaN marks a missing injection time
+    assertNull(scan(2, "", null, null, mzs, intensities).getInjectionTime());
+    assertNull(scan(3, "", null, Float.NaN, mzs, intensities).getInjectionTime());
+  }
+
+  @Test
+  void cachesFallbackScanningRange() {
+    final SimpleScan scan = scan(0, "", null, null, new double[]{200, 250, 300},
+        new double[]{1, 5, 2});
+
+    final Range<Double> range = scan.getScanningMZRange();
+    assertEquals(Range.closed(200d, 300d), range);
+    assertSame(range, scan.getScanningMZRange());
+  }
+
+  @Test
+  void primitiveSpectrumHeader() {
+    final SimpleScan scan = scan(0, "", null, null, new double[]{200, 250, 300},
+        new double[]{1, 5, 2});
+    assertEquals(Range.closed(200d, 300d), scan.getDataPointMZRange());
+    assertEquals(1, scan.getBasePeakIndex());
+    assertEquals(250d, scan.getBasePeakMz());
+    assertEquals(8d, scan.getTIC());
+
+    final SimpleScan empty = scan(1, "", null, null, new double[0], new double[0]);
+    assertNull(empty.getDataPointMZRange());
+    assertNull(empty.getBasePeakIndex());
+    assertNull(empty.getBasePeakMz());
+    assertNull(empty.getScanningMZRange());
+  }
+}
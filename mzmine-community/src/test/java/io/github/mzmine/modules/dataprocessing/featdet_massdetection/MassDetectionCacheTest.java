@@ -0,0 +1,174 @@
+/*
+ * Copyright (c) 2004-2025 The mzmine Development Team
+ *
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+
+package io.github.mzmine.modules.dataprocessing.featdet_massdetection;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import io.github.mzmine.modules.dataprocessing.featdet_massdetection.MassDetectionCache.CachedMassLists;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class MassDetectionCacheTest {
+
+  /**
+   * 2 scans with 3 values each and the footer
+   */
+  private static final long ENTRY_BYTES = 2 * 3 * 16 + 2 * 24 + 16;
+
+  @TempDir
+  Path tempDir;
+
+  @Test
+  void writeAndReadEntry() {
+    final MassDetectionCache cache = new MassDetectionCache(tempDir, Long.MAX_VALUE);
+    assertNull(cache.get("a"));
+
+    writeEntry(cache, "a");
+
+    final CachedMassLists cached = cache.get("a");
+    assertNotNull(cached);
+    assertEquals(2, cached.getNumberOfScans());
+    assertEquals(7, cached.getScanNumber(1));
+    assertArrayEquals(new double[]{100.1, 200.2, 300.3}, cached.getMzValues(0));
+    assertArrayEquals(new double[]{1E3, 2E3, 3E3}, cached.getIntensityValues(0));
+    assertArrayEquals(new double[]{150.5, 250.5, 350.5}, cached.getMzValues(1));
+    assertArrayEquals(new double[]{5, 0, 1E9}, cached.getIntensityValues(1));
+  }
+
+  @Test
+  void findsImportedScansByInputHash() {
+    final MassDetectionCache cache = new MassDetectionCache(tempDir, Long.MAX_VALUE);
+    final double[] mzs = {100.1, 100.2, 100.3};
+    final double[] intensities = {10, 500, 20};
+    // two mobility scans of frame 5 with different data
+    final long first = MassDetectionCache.hashSpectrum(5, 1, 0, mzs, intensities);
+    final long second = MassDetectionCache.hashSpectrum(5, 1, 0, mzs, new double[]{10, 500, 21});
+    assertNotEquals(first, second);
+    assertEquals(first, MassDetectionCache.hashSpectrum(5, 1, 0, mzs.clone(), intensities.clone()));
+    assertNotEquals(first, MassDetectionCache.hashSpectrum(6, 1, 0, mzs, intensities));
+    assertNotEquals(first, MassDetectionCache.hashSpectrum(5, 2, 0, mzs, intensities));
+
+    try (var writer = cache.createWriter("import")) {
+      assertNotNull(writer);
+      // written in processing order, not scan order
+      writer.append(5, second, new double[]{100.2}, new double[]{501});
+      writer.append(5, first, new double[]{100.2}, new double[]{500});
+      writer.commit();
+    }
+
+    final CachedMassLists cached = cache.get("import");
+    assertNotNull(cached);
+    assertEquals(1, cached.indexOf(5, first));
+    assertEquals(0, cached.indexOf(5, second));
+    assertArrayEquals(new double[]{500}, cached.getIntensityValues(cached.indexOf(5, first)));
+    // other scan number or input
+    assertEquals(-1, cached.indexOf(6, first));
+    assertEquals(-1, cached.indexOf(5, first + 1));
+  }
+
+  @Test
+  void uncommittedEntryIsDiscarded() throws IOException {
+    final MassDetectionCache cache = new MassDetectionCache(tempDir, Long.MAX_VALUE);
+    try (var writer = cache.createWriter("a")) {
+      assertNotNull(writer);
+      writer.append(1, new double[]{100}, new double[]{1});
+    }
+    assertNull(cache.get("a"));
+    try (var files = Files.list(tempDir)) {
+      assertEquals(0, files.count());
+    }
+  }
+
+  @Test
+  void evictsLeastRecentlyUsed() throws IOException {
+    final MassDetectionCache cache = new MassDetectionCache(tempDir, ENTRY_BYTES * 2);
+    writeEntry(cache, "a");
+    writeEntry(cache, "b");
+    setAge("a", 2);
+    setAge("b", 1);
+
+    // reading marks a as recently used
+    assertNotNull(cache.get("a"));
+    writeEntry(cache, "c");
+
+    assertNotNull(cache.get("a"));
+    assertNull(cache.get("b"));
+    assertNotNull(cache.get("c"));
+  }
+
+  @Test
+  void deletesOrphanedTempFiles() throws IOException {
+    final MassDetectionCache cache = new MassDetectionCache(tempDir, Long.MAX_VALUE);
+    final Path orphaned = Files.writeString(tempDir.resolve("aborted.tmp"), "partial");
+    Files.setLastModifiedTime(orphaned, FileTime.from(Instant.now().minus(1, ChronoUnit.DAYS)));
+    // may still be written by another task
+    final Path recent = Files.writeString(tempDir.resolve("running.tmp"), "partial");
+
+    writeEntry(cache, "a");
+
+    assertFalse(Files.exists(orphaned));
+    assertTrue(Files.exists(recent));
+    assertNotNull(cache.get("a"));
+  }
+
+  @Test
+  void checksumChangesWithContent() throws IOException {
+    final Path raw = tempDir.resolve("raw.mzML");
+    Files.writeString(raw, "spectrum 1");
+    final String first = MassDetectionCache.checksum(raw.toFile());
+    assertEquals(first, MassDetectionCache.checksum(raw.toFile()));
+
+    Files.writeString(raw, "spectrum 2");
+    Files.setLastModifiedTime(raw, FileTime.from(Instant.now().minus(1, ChronoUnit.DAYS)));
+    assertNotEquals(first, MassDetectionCache.checksum(raw.toFile()));
+  }
+
+  private static void writeEntry(MassDetectionCache cache, String key) {
+    try (var writer = cache.createWriter(key)) {
+      assertNotNull(writer);
+      writer.append(3, new double[]{100.1, 200.2, 300.3}, new double[]{1E3, 2E3, 3E3});
+      writer.append(7, new double[]{150.5, 250.5, 350.5}, new double[]{5, 0, 1E9});
+      writer.commit();
+    }
+  }
+
+  private void setAge(String key, int hours) throws IOException {
+    Files.setLastModifiedTime(tempDir.resolve(key + "." + MassDetectionCache.FILE_EXTENSION),
+        FileTime.from(Instant.now().minus(hours, ChronoUnit.HOURS)));
+  }
+}
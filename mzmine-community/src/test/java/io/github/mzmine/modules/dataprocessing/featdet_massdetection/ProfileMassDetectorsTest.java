@@ -0,0 +1,492 @@
+/*
+ * Copyright (c) 2004-2025 The mzmine Development Team
+ *
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+
+package io.github.mzmine.modules.dataprocessing.featdet_massdetection;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import io.github.mzmine.datamodel.DataPoint;
+import io.github.mzmine.datamodel.MassSpectrum;
+import io.github.mzmine.datamodel.MassSpectrumType;
+import io.github.mzmine.datamodel.impl.SimpleDataPoint;
+import io.github.mzmine.datamodel.impl.SimpleMassSpectrum;
+import io.github.mzmine.modules.dataprocessing.featdet_massdetection.exactmass.ExactMassDetector;
+import io.github.mzmine.modules.dataprocessing.featdet_massdetection.wavelet.WaveletMassDetector;
+import io.github.mzmine.util.DataPointSorter;
+import io.github.mzmine.util.SortingDirection;
+import io.github.mzmine.util.SortingProperty;
+import it.unimi.dsi.fastutil.doubles.DoubleArrayList;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.TreeSet;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Compares the primitive array implementations of the profile mass detectors with the previous
+ * object based implementations (copied below as reference) on a corpus of synthetic profile
+ * spectra. Results need to be bit identical.
+ */
+class ProfileMassDetectorsTest {
+
+  private static final int SPECTRA = 120;
+
+  /**
+   * Synthetic profile spectra with gaussian peaks, noise, zero regions, plateaus and some duplicate
+   * m/z values. Spectra differ in size to check that reused buffers do not leak old values.
+   */
+  private static List<MassSpectrum> createCorpus() {
+    final Random random = new Random(42);
+    final List<MassSpectrum> spectra = new ArrayList<>();
+    for (int s = 0; s < SPECTRA; s++) {
+      final int size = s == 0 ? 0 : 1 + random.nextInt(s % 10 == 0 ? 20_000 : 2_000);
+      final double[] mzs = new double[size];
+      final double[] intensities = new double[size];
+      double mz = 50 + random.nextDouble() * 100;
+      for (int i = 0; i < size; i++) {
+        // duplicate m/z values and plateaus happen in some vendor data
+        if (random.nextInt(500) != 0) {
+          mz += 0.001 + random.nextDouble() * 0.004;
+        }
+        mzs[i] = mz;
+        intensities[i] = random.nextInt(4) == 0 ? 0 : random.nextDouble() * 100;
+      }
+      final int peaks = size / 25;
+      for (int p = 0; p < peaks; p++) {
+        final int center = random.nextInt(size);
+        final double height = Math.pow(10, 2 + random.nextDouble() * 5);
+        final double sigma = 1 + random.nextDouble() * 4;
+        for (int i = Math.max(0, center - 15); i < Math.min(size, center + 16); i++) {
+          final double x = (i - center) / sigma;
+          intensities[i] += height * Math.exp(-x * x / 2);
+        }
+        if (random.nextInt(10) == 0 && center + 1 < size) {
+          intensities[center + 1] = intensities[center];
+        }
+      }
+      spectra.add(new SimpleMassSpectrum(mzs, intensities, MassSpectrumType.PROFILE));
+    }
+    return spectra;
+  }
+
+  @Test
+  void waveletIdenticalToReference() {
+    final List<MassSpectrum> corpus = createCorpus();
+    for (int scaleLevel : new int[]{1, 3, 10}) {
+      for (double window : new double[]{0.5, 1, 3}) {
+        for (double noise : new double[]{0, 500}) {
+          final WaveletMassDetector detector = new WaveletMassDetector(noise, scaleLevel, window);
+          for (MassSpectrum spectrum : corpus) {
+            final double[][] expected = LegacyWavelet.getMassValues(spectrum, noise, scaleLevel,
+                window);
+            assertIdentical(expected, detector.getMassValues(spectrum));
+            assertIdentical(expected,
+                detector.getMassValues(mzs(spectrum), intensities(spectrum),
+                    MassSpectrumType.PROFILE));
+          }
+        }
+      }
+    }
+  }
+
+  @Test
+  void exactMassIdenticalToReference() {
+    final List<MassSpectrum> corpus = createCorpus();
+    for (double noise : new double[]{0, 500}) {
+      final ExactMassDetector detector = new ExactMassDetector(noise);
+      for (MassSpectrum spectrum : corpus) {
+        final double[][] expected = LegacyExactMass.getMassValues(spectrum, noise);
+        assertIdentical(expected, detector.getMassValues(spectrum));
+        assertIdentical(expected, ExactMassDetector.getMassValues(spectrum, noise));
+        assertIdentical(expected,
+            ExactMassDetector.getMassValues(mzs(spectrum), intensities(spectrum), noise));
+      }
+    }
+  }
+
+  private static double[] mzs(MassSpectrum spectrum) {
+    return spectrum.getMzValues(new double[spectrum.getNumberOfDataPoints()]);
+  }
+
+  private static double[] intensities(MassSpectrum spectrum) {
+    return spectrum.getIntensityValues(new double[spectrum.getNumberOfDataPoints()]);
+  }
+
+  private static void assertIdentical(double[][] expected, double[][] actual) {
+    assertEquals(expected[0].length, actual[0].length);
+    for (int i = 0; i < expected[0].length; i++) {
+      assertEquals(Double.doubleToRawLongBits(expected[0][i]),
+          Double.doubleToRawLongBits(actual[0][i]));
+      assertEquals(Double.doubleToRawLongBits(expected[1][i]),
+          Double.doubleToRawLongBits(actual[1][i]));
+    }
+    assertArrayEquals(expected[1], actual[1]);
+  }
+
+  /**
+   * Previous implementation of the {@link WaveletMassDetector}
+   */
+  private static class LegacyWavelet {
+
+    private static final double NPOINTS = 60000;
+    private static final int WAVELET_ESL = -5;
+    private static final int WAVELET_ESR = 5;
+
+    static double[][] getMassValues(MassSpectrum scan, double noiseLevel, int scaleLevel,
+        double waveletWindow) {
+
+      DataPoint waveletDataPoints[] = performCWT(scan, waveletWindow, scaleLevel);
+
+      DataPoint detected[] = getMzPeaks(noiseLevel, scan, waveletDataPoints);
+
+      // convert to double[][] TODO remove use of DataPoint
+      int size = detected.length;
+      double[] mzs = new double[size];
+      double[] intensities = new double[size];
+      for (int i = 0; i < size; i++) {
+        mzs[i] = detected[i].getMZ();
+        intensities[i] = detected[i].getIntensity();
+      }
+      return new double[][]{mzs, intensities};
+    }
+
+    /**
+     * Perform the CWT over raw data points in the selected scale level
+     *
+     * @param scan
+     */
+    private static SimpleDataPoint[] performCWT(MassSpectrum scan, double waveletWindow,
+        int scaleLevel) {
+      int length = scan.getNumberOfDataPoints();
+      SimpleDataPoint[] cwtDataPoints = new SimpleDataPoint[length];
+      double wstep = ((WAVELET_ESR - WAVELET_ESL) / NPOINTS);
+      double[] W = new double[(int) NPOINTS];
+
+      double waveletIndex = WAVELET_ESL;
+      for (int j = 0; j < NPOINTS; j++) {
+        // Pre calculate the values of the wavelet
+        W[j] = cwtMEXHATreal(waveletIndex, waveletWindow, 0.0);
+        waveletIndex += wstep;
+      }
+
+      /*
+       * We only perform Translation of the wavelet in the selected scale
+       */
+      int d = (int) NPOINTS / (WAVELET_ESR - WAVELET_ESL);
+      int a_esl = scaleLevel * WAVELET_ESL;
+      int a_esr = scaleLevel * WAVELET_ESR;
+      double sqrtScaleLevel = Math.sqrt(scaleLevel);
+      for (int dx = 0; dx < length; dx++) {
+
+        /* Compute wavelet boundaries */
+        int t1 = a_esl + dx;
+        if (t1 < 0) {
+          t1 = 0;
+        }
+        int t2 = a_esr + dx;
+        if (t2 >= length) {
+          t2 = (length - 1);
+        }
+
+        /* Perform convolution */
+        double intensity = 0.0;
+        for (int i = t1; i <= t2; i++) {
+          int ind = (int) (NPOINTS / 2) - ((d * (i - dx) / scaleLevel) * (-1));
+          if (ind < 0) {
+            ind = 0;
+          }
+          if (ind >= NPOINTS) {
+            ind = (int) NPOINTS - 1;
+          }
+          intensity += scan.getIntensityValue(i) * W[ind];
+        }
+        intensity /= sqrtScaleLevel;
+        // Eliminate the negative part of the wavelet map
+        if (intensity < 0) {
+          intensity = 0;
+        }
+        cwtDataPoints[dx] = new SimpleDataPoint(scan.getMzValue(dx), intensity);
+      }
+
+      return cwtDataPoints;
+    }
+
+    /**
+     * This function calculates the wavelets's coefficients in Time domain
+     *
+     * @param x Step of the wavelet
+     * @param a Window Width of the wavelet
+     * @param b Offset from the center of the peak
+     */
+    private static double cwtMEXHATreal(double x, double a, double b) {
+      /* c = 2 / ( sqrt(3) * pi^(1/4) ) */
+      double c = 0.8673250705840776;
+      double TINY = 1E-200;
+      double x2;
+
+      if (a == 0.0) {
+        a = TINY;
+      }
+      x = (x - b) / a;
+      x2 = x * x;
+      return c * (1.0 - x2) * Math.exp(-x2 / 2);
+    }
+
+    /**
+     * This function searches for maximums from wavelet data points
+     */
+    private static DataPoint[] getMzPeaks(double noiseLevel, MassSpectrum scan,
+        DataPoint[] waveletDataPoints) {
+
+      TreeSet<DataPoint> mzPeaks = new TreeSet<>(
+          new DataPointSorter(SortingProperty.MZ, SortingDirection.Ascending));
+
+      List<DataPoint> rawDataPoints = new ArrayList<>();
+      int peakMaxInd = 0;
+      int stopInd = waveletDataPoints.length - 1;
+
+      for (int ind = 0; ind <= stopInd; ind++) {
+
+        while ((ind <= stopInd) && (waveletDataPoints[ind].getIntensity() == 0)) {
+          ind++;
+        }
+        peakMaxInd = ind;
+        if (ind >= stopInd) {
+          break;
+        }
+
+        // While peak is on
+        while ((ind <= stopInd) && (waveletDataPoints[ind].getIntensity() > 0)) {
+          // Check if this is the maximum point of the peak
+          if (waveletDataPoints[ind].getIntensity() > waveletDataPoints[peakMaxInd]
+              .getIntensity()) {
+            peakMaxInd = ind;
+          }
+          rawDataPoints.add(new SimpleDataPoint(scan.getMzValue(ind), scan.getIntensityValue(ind)));
+          ind++;
+        }
+
+        if (ind >= stopInd) {
+          break;
+        }
+
+        rawDataPoints.add(new SimpleDataPoint(scan.getMzValue(ind), scan.getIntensityValue(ind)));
+
+        if (scan.getIntensityValue(peakMaxInd) > noiseLevel) {
+          SimpleDataPoint peakDataPoint = new SimpleDataPoint(scan.getMzValue(peakMaxInd),
+              calcAproxIntensity(rawDataPoints));
+
+          mzPeaks.add(peakDataPoint);
+
+        }
+        rawDataPoints.clear();
+      }
+
+      return mzPeaks.toArray(new DataPoint[0]);
+
+    }
+
+    private static double calcAproxIntensity(List<DataPoint> rawDataPoints) {
+
+      double aproxIntensity = 0;
+
+      for (DataPoint d : rawDataPoints) {
+        if (d.getIntensity() > aproxIntensity) {
+          aproxIntensity = d.getIntensity();
+        }
+      }
+      return aproxIntensity;
+    }
+  }
+
+  /**
+   * Previous implementation of the {@link ExactMassDetector}
+   */
+  private static class LegacyExactMass {
+
+    static double[][] getMassValues(MassSpectrum spectrum, double noiseLevel) {
+      // lists of primitive doubles
+      DoubleArrayList mzs = new DoubleArrayList(128);
+      DoubleArrayList intensities = new DoubleArrayList(128);
+
+      // First get all candidate peaks (local maximum)
+      int localMaximumIndex = 0;
+      ArrayList<Integer> rangeDataPoints = new ArrayList<>();
+
+      boolean ascending = true;
+
+      // Iterate through all data points
+      for (int i = 0; i < spectrum.getNumberOfDataPoints() - 1; i++) {
+        double intensity = spectrum.getIntensityValue(i);
+        double nextIntensity = spectrum.getIntensityValue(i + 1);
+
+        boolean nextIsBigger = nextIntensity > intensity;
+        boolean nextIsZero = Double.compare(nextIntensity, 0d) == 0;
+        boolean currentIsZero = Double.compare(intensity, 0d) == 0;
+
+        // Ignore zero intensity regions
+        if (currentIsZero) {
+          continue;
+        }
+
+        // Add current (non-zero) data point to the current m/z peak
+        rangeDataPoints.add(i);
+
+        // Check for local maximum
+        if (ascending && (!nextIsBigger)) {
+          localMaximumIndex = i;
+          ascending = false;
+          continue;
+        }
+
+        // Check for the end of the peak
+        if ((!ascending) && (nextIsBigger || nextIsZero)) {
+
+          // Calculate the exact mass
+          double exactMz = calculateExactMass(spectrum, localMaximumIndex, rangeDataPoints);
+
+          // Add the m/z peak if it is above the noise level
+          if (spectrum.getIntensityValue(localMaximumIndex) > noiseLevel) {
+            // Add data point to lists
+            mzs.add(exactMz);
+            intensities.add(spectrum.getIntensityValue(localMaximumIndex));
+          }
+
+          // Reset and start with new peak
+          ascending = true;
+          rangeDataPoints.clear();
+        }
+      }
+
+      // Return an array of detected MzPeaks sorted by MZ
+      return new double[][]{mzs.toDoubleArray(), intensities.toDoubleArray()};
+    }
+
+    /**
+     * This method calculates the exact mass of a peak using the FWHM concept and linear
+     * equation (y = mx + b).
+     *
+     * @return double
+     */
+    private static double calculateExactMass(MassSpectrum spectrum, int topIndex,
+        List<Integer> rangeDataPoints) {
+
+      /*
+       * According with the FWHM concept, the exact mass of this peak is the half point of FWHM. In
+       * order to get the points in the curve that define the FWHM, we use the linear equation.
+       *
+       * First we look for, in left side of the peak, 2 data points together that have an intensity
+       * less (first data point) and bigger (second data point) than half of total intensity. Then we
+       * calculate the slope of the line defined by this two data points. At least, we calculate the
+       * point in this line that has an intensity equal to the half of total intensity
+       *
+       * We repeat the same process in the right side.
+       */
+
+      double xRight = -1, xLeft = -1;
+      double halfIntensity = spectrum.getIntensityValue(topIndex) / 2;
+
+      for (int i = 0; i < rangeDataPoints.size() - 1; i++) {
+
+        // Left side of the curve
+        if ((spectrum.getIntensityValue(rangeDataPoints.get(i)) <= halfIntensity) && (
+            spectrum.getMzValue(rangeDataPoints.get(i)) < spectrum.getMzValue(topIndex)) && (
+            spectrum.getIntensityValue(rangeDataPoints.get(i + 1)) >= halfIntensity)) {
+
+          // First point with intensity just less than half of total
+          // intensity
+          double leftY1 = spectrum.getIntensityValue(rangeDataPoints.get(i));
+          double leftX1 = spectrum.getMzValue(rangeDataPoints.get(i));
+
+          // Second point with intensity just bigger than half of total
+          // intensity
+          double leftY2 = spectrum.getIntensityValue(rangeDataPoints.get(i + 1));
+          double leftX2 = spectrum.getMzValue(rangeDataPoints.get(i + 1));
+
+          // We calculate the slope with formula m = Y1 - Y2 / X1 - X2
+          double mLeft = (leftY1 - leftY2) / (leftX1 - leftX2);
+
+          if (mLeft == 0.0) {
+            // If slope is zero, we calculate the desired point as the
+            // middle point
+            xLeft = (leftX1 + leftX2) / 2;
+          } else {
+            // We calculate the desired point (at half intensity) with
+            // the linear equation
+            // X = X1 + [(Y - Y1) / m ]
+            // where Y = half of total intensity
+            xLeft = leftX1 + (((halfIntensity) - leftY1) / mLeft);
+          }
+          continue;
+        }
+
+        // Right side of the curve
+        if ((spectrum.getIntensityValue(rangeDataPoints.get(i)) >= halfIntensity) && (
+            spectrum.getMzValue(rangeDataPoints.get(i)) > spectrum.getMzValue(topIndex)) && (
+            spectrum.getIntensityValue(rangeDataPoints.get(i + 1)) <= halfIntensity)) {
+
+          // First point with intensity just bigger than half of total
+          // intensity
+          double rightY1 = spectrum.getIntensityValue(rangeDataPoints.get(i));
+          double rightX1 = spectrum.getMzValue(rangeDataPoints.get(i));
+
+          // Second point with intensity just less than half of total
+          // intensity
+          double rightY2 = spectrum.getIntensityValue(rangeDataPoints.get(i + 1));
+          double rightX2 = spectrum.getMzValue(rangeDataPoints.get(i + 1));
+
+          // We calculate the slope with formula m = Y1 - Y2 / X1 - X2
+          double mRight = (rightY1 - rightY2) / (rightX1 - rightX2);
+
+          if (mRight == 0.0) {
+            // If slope is zero, we calculate the desired point as the
+            // middle point
+            xRight = (rightX1 + rightX2) / 2;
+          } else {
+            // We calculate the desired point (at half intensity) with
+            // the
+            // linear equation
+            // X = X1 + [(Y - Y1) / m ], where Y = half of total
+            // intensity
+            xRight = rightX1 + (((halfIntensity) - rightY1) / mRight);
+          }
+          break;
+        }
+      }
+
+      // We verify the values to confirm we find the desired points. If not we
+      // return the same mass value.
+      if ((xRight == -1) || (xLeft == -1)) {
+        return spectrum.getMzValue(topIndex);
+      }
+
+      // The center of left and right points is the exact mass of our peak.
+      double exactMass = (xLeft + xRight) / 2;
+
+      return exactMass;
+    }
+  }
+}
@@ -0,0 +1,71 @@
+/*
+ * Copyright (c) 2004-2025 The mzmine Development Team
+ *
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+
+package io.github.mzmine.modules.dataprocessing.featdet_smoothing.savitzkygolay;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+
+import java.util.Random;
+import org.junit.jupiter.api.Test;
+
+class SavitzkyGolayFilterTest {
+
+  /**
+   * Per point convolution as the filter was implemented before
+   */
+  private static double[] convolvePerPoint(final double[] intensities, final int numPoints,
+      final double[] weights) {
+    final int fullWidth = weights.length;
+    final int halfWidth = (fullWidth - 1) / 2;
+    final double[] convolved = new double[numPoints];
+    for (int i = 0; i < numPoints; i++) {
+      final int k = i - halfWidth;
+      for (int j = Math.max(0, -k); j < Math.min(fullWidth, numPoints - k); j++) {
+        convolved[i] += intensities[k + j] * weights[j];
+      }
+    }
+    return convolved;
+  }
+
+  @Test
+  void convolveMatchesPerPointLoop() {
+    final Random random = new Random(42);
+    for (int width = 5; width <= 25; width += 2) {
+      final double[] weights = SavitzkyGolayFilter.getNormalizedWeights(width);
+      // also test series that are shorter than the filter
+      for (int numPoints : new int[]{1, 3, width - 1, width, 50, 333}) {
+        // longer buffer like in the data access, trailing values must be ignored
+        final double[] intensities = new double[numPoints + 7];
+        for (int i = 0; i < intensities.length; i++) {
+          intensities[i] = random.nextInt(5) == 0 ? 0d : random.nextDouble() * 1E6;
+        }
+
+        final double[] convolved = new double[numPoints];
+        SavitzkyGolayFilter.convolve(intensities, numPoints, weights, convolved);
+        assertArrayEquals(convolvePerPoint(intensities, numPoints, weights), convolved);
+      }
+    }
+  }
+}
@@ -0,0 +1,126 @@
+/*
+ * Copyright (c) 2004-2025 The mzmine Development Team
+ *
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+
+package io.github.mzmine.modules.dataprocessing.group_imagecorrelate;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import io.github.mzmine.util.maths.Transform;
+import java.util.Arrays;
+import java.util.Random;
+import org.junit.jupiter.api.Test;
+
+class SparseImageTest {
+
+  private static final int PIXELS = 20_000;
+  private static final double NOISE = 25;
+
+  /**
+   * Dense reference of the pearson correlation on all pixels that are kept in any of the images.
+   */
+  private static double densePearson(double[] x, double[] y, double noiseX, double noiseY,
+      int minPixels) {
+    int values = 0;
+    double sumX = 0.0, sumY = 0.0, sumXY = 0.0;
+    double sumX2 = 0.0, sumY2 = 0.0;
+    for (int i = 0; i < x.length; i++) {
+      if (x[i] < noiseX && y[i] < noiseY) {
+        continue;
+      }
+      values++;
+      sumX += x[i];
+      sumY += y[i];
+      sumXY += x[i] * y[i];
+      sumX2 += x[i] * x[i];
+      sumY2 += y[i] * y[i];
+    }
+    if (values < minPixels) {
+      return 0d;
+    }
+    double numerator = values * sumXY - sumX * sumY;
+    double denominator = Math.sqrt((values * sumX2 - sumX * sumX) * (values * sumY2 - sumY * sumY));
+    return denominator == 0 ? 0d : numerator / denominator;
+  }
+
+  /**
+   * Image with a blob of signals and some background noise
+   */
+  private static double[] createImage(Random random, int center, int width) {
+    double[] intensities = new double[PIXELS];
+    for (int i = Math.max(0, center - width); i < Math.min(PIXELS, center + width); i++) {
+      if (random.nextDouble() < 0.8) {
+        intensities[i] = 1000 + random.nextDouble() * 1E5;
+      }
+    }
+    for (int i = 0; i < PIXELS / 50; i++) {
+      intensities[random.nextInt(PIXELS)] = random.nextDouble() * 2 * NOISE * NOISE;
+    }
+    return intensities;
+  }
+
+  @Test
+  void pearsonEqualsDenseCalculation() {
+    final Random random = new Random(42);
+    final double noise = Transform.SQRT.transform(NOISE * NOISE);
+    for (int i = 0; i < 200; i++) {
+      double[] a = createImage(random, random.nextInt(PIXELS), 50 + random.nextInt(2000));
+      double[] b = createImage(random, random.nextInt(PIXELS), 50 + random.nextInt(2000));
+      SparseImage imageA = SparseImage.create(Arrays.copyOf(a, PIXELS), 0, 1, NOISE * NOISE,
+          Transform.SQRT);
+      SparseImage imageB = SparseImage.create(Arrays.copyOf(b, PIXELS), 0, 1, NOISE * NOISE,
+          Transform.SQRT);
+      Transform.SQRT.transformKeep0(a);
+      Transform.SQRT.transformKeep0(b);
+
+      double dense = densePearson(a, b, noise, noise, 5);
+      double sparse = imageA.pearsonR(imageB, 5);
+      assertEquals(Double.doubleToLongBits(dense), Double.doubleToLongBits(sparse),
+          "sparse and dense pearson differ: " + dense + " " + sparse);
+
+      if (!imageA.mayCorrelatePositively(imageB)) {
+        assertTrue(sparse <= 0, "prefilter skipped a positive correlation " + sparse);
+      }
+    }
+  }
+
+  @Test
+  void disjointImagesAreSkipped() {
+    final Random random = new Random(7);
+    // no background noise overlap: only blobs far apart
+    double[] a = new double[PIXELS];
+    double[] b = new double[PIXELS];
+    for (int i = 100; i < 500; i++) {
+      a[i] = 1000 + random.nextDouble() * 1000;
+      b[PIXELS - i] = 1000 + random.nextDouble() * 1000;
+    }
+    SparseImage imageA = SparseImage.create(a, 0, 1, 10, Transform.SQRT);
+    SparseImage imageB = SparseImage.create(b, 0, 1, 10, Transform.SQRT);
+    assertEquals(400, imageA.getNumberOfNonZeroPixels());
+    assertTrue(!imageA.mayCorrelatePositively(imageB));
+    assertTrue(imageA.mayCorrelatePositively(imageA));
+    assertTrue(imageA.pearsonR(imageB, 5) <= 0);
+  }
+}
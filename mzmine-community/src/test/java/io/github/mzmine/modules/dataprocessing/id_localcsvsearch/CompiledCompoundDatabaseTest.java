@@ -0,0 +1,140 @@
+/*
+ * Copyright (c) 2004-2025 The mzmine Development Team
+ *
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+
+package io.github.mzmine.modules.dataprocessing.id_localcsvsearch;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import io.github.mzmine.parameters.parametertypes.tolerances.MZTolerance;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class CompiledCompoundDatabaseTest {
+
+  @TempDir
+  Path tempDir;
+
+  private static CompiledCompoundDatabase createDatabase() {
+    return CompiledCompoundDatabase.of(4, new double[]{300.5, 100.1, 200.2, 100.1},
+        new int[]{1, 2, 2, 3}, new int[]{0, 0, 1, CompiledCompoundDatabase.NO_ION},
+        new float[]{1.5f, Float.NaN, Float.NaN, 3f}, new float[]{Float.NaN, 0.8f, 0.8f, 1f});
+  }
+
+  @Test
+  void entriesAreSortedByMz() {
+    final CompiledCompoundDatabase db = createDatabase();
+    assertEquals(4, db.size());
+    assertArrayEquals(new double[]{100.1, 100.1, 200.2, 300.5},
+        new double[]{db.getMz(0), db.getMz(1), db.getMz(2), db.getMz(3)});
+    // equal m/z keep their order
+    assertEquals(2, db.getLine(0));
+    assertEquals(3, db.getLine(1));
+    assertEquals(CompiledCompoundDatabase.NO_ION, db.getIon(1));
+    assertEquals(1, db.getLine(3));
+    assertEquals(1.5f, db.getRT(3));
+    assertTrue(Float.isNaN(db.getMobility(3)));
+    assertTrue(db.compareCsvOrder(3, 0) < 0);
+  }
+
+  @Test
+  void joinMatchesBruteForce() {
+    final Random random = new Random(42);
+    final int numEntries = 20_000;
+    final double[] mzs = random.doubles(numEntries, 50, 1500).toArray();
+    final int[] lines = new int[numEntries];
+    Arrays.setAll(lines, i -> i + 1);
+    final int[] ions = new int[numEntries];
+    final float[] values = new float[numEntries];
+    Arrays.fill(values, Float.NaN);
+    final CompiledCompoundDatabase db = CompiledCompoundDatabase.of(numEntries + 1, mzs, lines,
+        ions, values, values);
+
+    final double[] rowMzs = random.doubles(5_000, 50, 1500).sorted().toArray();
+    for (MZTolerance tolerance : List.of(new MZTolerance(0.005, 15), new MZTolerance(0, 500),
+        new MZTolerance(0.05, 0))) {
+      final List<String> joined = new ArrayList<>();
+      // join in two chunks to check the start of a chunk
+      db.joinSortedMzs(rowMzs, 0, 2_000, tolerance, (i, e) -> joined.add(i + "_" + e));
+      db.joinSortedMzs(rowMzs, 2_000, rowMzs.length, tolerance,
+          (i, e) -> joined.add(i + "_" + e));
+
+      final List<String> expected = new ArrayList<>();
+      for (int i = 0; i < rowMzs.length; i++) {
+        for (int e = 0; e < db.size(); e++) {
+          if (tolerance.getToleranceRange(db.getMz(e)).contains(rowMzs[i])) {
+            expected.add(i + "_" + e);
+          }
+        }
+      }
+      assertEquals(expected, joined, tolerance.toString());
+    }
+  }
+
+  @Test
+  void writeAndReadCache() {
+    final CompiledCompoundDatabase db = createDatabase();
+    assertNull(CompiledCompoundDatabase.readCache(tempDir, "a", 4));
+    db.writeCache(tempDir, "a", Long.MAX_VALUE);
+
+    final CompiledCompoundDatabase cached = CompiledCompoundDatabase.readCache(tempDir, "a", 4);
+    assertNotNull(cached);
+    assertEquals(db.size(), cached.size());
+    for (int i = 0; i < db.size(); i++) {
+      assertEquals(db.getMz(i), cached.getMz(i));
+      assertEquals(db.getLine(i), cached.getLine(i));
+      assertEquals(db.getIon(i), cached.getIon(i));
+      assertEquals(db.getRT(i), cached.getRT(i));
+      assertEquals(db.getMobility(i), cached.getMobility(i));
+    }
+    // a different number of csv lines invalidates the entry
+    assertNull(CompiledCompoundDatabase.readCache(tempDir, "a", 5));
+  }
+
+  @Test
+  void evictsLeastRecentlyUsedEntriesAboveMaxBytes() throws IOException {
+    final CompiledCompoundDatabase db = createDatabase();
+    db.writeCache(tempDir, "a", Long.MAX_VALUE);
+    final Path first = tempDir.resolve("a." + CompiledCompoundDatabase.FILE_EXTENSION);
+    final long entrySize = Files.size(first);
+    Files.setLastModifiedTime(first, FileTime.fromMillis(1000));
+
+    // the second entry only fits if the older one is evicted
+    db.writeCache(tempDir, "b", entrySize + entrySize / 2);
+    assertNull(CompiledCompoundDatabase.readCache(tempDir, "a", 4));
+    assertNotNull(CompiledCompoundDatabase.readCache(tempDir, "b", 4));
+  }
+}
@@ -0,0 +1,49 @@
+/*
+ * Copyright (c) 2004-2025 The mzmine Development Team
+ *
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+
+package io.github.mzmine.modules.dataprocessing.id_ms2search;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import org.junit.jupiter.api.Test;
+
+class FragmentIonIndexTest {
+
+  private final FragmentIonIndex index = new FragmentIonIndex(
+      new double[][]{{100.05, 200.1, 300.2}, null, {150.0, 200.1005}, {300.2, 300.2001}},
+      0.01);
+
+  @Test
+  void findsSpectraWithSharedFragments() {
+    assertEquals(4, index.getNumberOfSpectra());
+    // 10 ppm at 200.1 is 0.002
+    assertArrayEquals(new int[]{0, 2}, index.findCandidates(new double[]{200.1}, 10).toIntArray());
+    // unique and ascending over multiple query fragments
+    assertArrayEquals(new int[]{0, 3},
+        index.findCandidates(new double[]{100.05, 300.2}, 10).toIntArray());
+    assertArrayEquals(new int[]{}, index.findCandidates(new double[]{500}, 10).toIntArray());
+  }
+}
@@ -0,0 +1,138 @@
+/*
+ * Copyright (c) 2004-2025 The mzmine Development Team
+ *
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+
+package io.github.mzmine.modules.dataprocessing.id_spectral_library_match;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import io.github.mzmine.datamodel.DataPoint;
+import io.github.mzmine.datamodel.impl.SimpleDataPoint;
+import io.github.mzmine.parameters.parametertypes.tolerances.MZTolerance;
+import io.github.mzmine.util.collections.IndexRange;
+import io.github.mzmine.util.scans.similarity.SpectralSimilarityFunction;
+import io.github.mzmine.util.scans.similarity.impl.composite.CompositeCosineSpectralSimilarity;
+import io.github.mzmine.util.scans.similarity.impl.cosine.WeightedCosineSpectralSimilarity;
+import io.github.mzmine.util.spectraldb.entry.SpectralLibraryEntry;
+import io.github.mzmine.util.spectraldb.entry.SpectralLibraryEntryFactory;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+import java.util.Random;
+import org.junit.jupiter.api.Test;
+
+class LibraryFragmentIndexTest {
+
+  private static final MZTolerance mzTol = new MZTolerance(0.005, 10);
+
+  private static DataPoint[] spectrum(double... mzIntensity) {
+    DataPoint[] dps = new DataPoint[mzIntensity.length / 2];
+    for (int i = 0; i < dps.length; i++) {
+      dps[i] = new SimpleDataPoint(mzIntensity[i * 2], mzIntensity[i * 2 + 1]);
+    }
+    return dps;
+  }
+
+  @Test
+  void countsMatchedSignals() {
+    List<SpectralLibraryEntry> entries = List.of(
+        SpectralLibraryEntryFactory.create(null, 200d, spectrum(50, 10, 80, 10, 120, 10)),
+        SpectralLibraryEntryFactory.create(null, 200d, spectrum(50.004, 10, 80, 10, 150, 10)),
+        SpectralLibraryEntryFactory.create(null, 200d, spectrum(60, 10, 90, 10, 130, 10)));
+    LibraryFragmentIndex index = new LibraryFragmentIndex(entries, mzTol);
+    assertEquals(9, index.getNumberOfSignals());
+
+    DataPoint[] query = spectrum(50.001, 10, 80.002, 10, 120, 10);
+    IndexRange all = IndexRange.ofExclusive(0, entries.size());
+
+    BitSet candidates = index.findCandidates(query, all, 2, null);
+    assertTrue(candidates.get(0));
+    assertTrue(candidates.get(1));
+    assertFalse(candidates.get(2));
+
+    candidates = index.findCandidates(query, all, 3, null);
+    assertEquals(1, candidates.cardinality());
+    assertTrue(candidates.get(0));
+
+    // entries outside of the range are never candidates
+    candidates = index.findCandidates(query, IndexRange.ofExclusive(1, 3), 2, null);
+    assertEquals(1, candidates.cardinality());
+    assertTrue(candidates.get(1));
+  }
+
+  @Test
+  void neverPrunesMatches() {
+    Random rand = new Random(42);
+    List<SpectralLibraryEntry> entries = new ArrayList<>();
+    for (int i = 0; i < 300; i++) {
+      entries.add(SpectralLibraryEntryFactory.create(null, 500d, randomSpectrum(rand)));
+    }
+    LibraryFragmentIndex index = new LibraryFragmentIndex(entries, mzTol);
+    IndexRange all = IndexRange.ofExclusive(0, entries.size());
+
+    for (SpectralSimilarityFunction simFunction : List.of(new WeightedCosineSpectralSimilarity(),
+        new CompositeCosineSpectralSimilarity())) {
+      int pruned = 0;
+      for (int q = 0; q < 20; q++) {
+        // queries share signals with library entries to create matches
+        DataPoint[] query = entries.get(rand.nextInt(entries.size())).getDataPoints();
+        query = mixSpectrum(rand, query);
+        BitSet candidates = index.findCandidates(query, all, 3, simFunction);
+        for (int e = 0; e < entries.size(); e++) {
+          var sim = simFunction.getSimilarity(mzTol, 3, entries.get(e).getDataPoints(), query);
+          if (sim != null) {
+            assertTrue(candidates.get(e), "Pruned a match with score " + sim.getScore());
+          } else if (!candidates.get(e)) {
+            pruned++;
+          }
+        }
+      }
+      assertTrue(pruned > 0);
+    }
+  }
+
+  private static DataPoint[] randomSpectrum(Random rand) {
+    DataPoint[] dps = new DataPoint[5 + rand.nextInt(20)];
+    for (int i = 0; i < dps.length; i++) {
+      dps[i] = new SimpleDataPoint(50 + rand.nextInt(150) + rand.nextDouble() * 0.001,
+          1 + rand.nextDouble() * 1000);
+    }
+    return dps;
+  }
+
+  private static DataPoint[] mixSpectrum(Random rand, DataPoint[] base) {
+    List<DataPoint> dps = new ArrayList<>();
+    for (DataPoint dp : base) {
+      if (rand.nextDouble() < 0.8) {
+        dps.add(new SimpleDataPoint(dp.getMZ() + 0.002, dp.getIntensity() * rand.nextDouble()));
+      }
+    }
+    for (int i = rand.nextInt(6); i > 0; i--) {
+      dps.add(new SimpleDataPoint(50 + rand.nextDouble() * 150, rand.nextDouble() * 500));
+    }
+    return dps.toArray(DataPoint[]::new);
+  }
+}
@@ -0,0 +1,73 @@
+/*
+ * Copyright (c) 2004-2025 The mzmine Development Team
+ *
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+
+package io.github.mzmine.modules.dataprocessing.id_spectral_library_match;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import io.github.mzmine.datamodel.DataPoint;
+import io.github.mzmine.datamodel.impl.SimpleDataPoint;
+import io.github.mzmine.util.spectraldb.entry.SpectralLibraryEntry;
+import io.github.mzmine.util.spectraldb.entry.SpectralLibraryEntryFactory;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.IntStream;
+import org.junit.jupiter.api.Test;
+
+class PreparedLibrarySpectraTest {
+
+  @Test
+  void preparesEachChunkOnceAndKeepsOrder() {
+    final int numEntries = PreparedLibrarySpectra.ENTRIES_PER_CHUNK * 2 + 3;
+    final List<SpectralLibraryEntry> entries = IntStream.range(0, numEntries)
+        .mapToObj(i -> SpectralLibraryEntryFactory.create(null, 200d + i,
+            new DataPoint[]{new SimpleDataPoint(50 + i, 10), new SimpleDataPoint(80 + i, 20),
+                new SimpleDataPoint(120 + i, 5)})).toList();
+
+    final AtomicInteger prepared = new AtomicInteger();
+    // remove the last signal and reverse the order
+    final PreparedLibrarySpectra library = new PreparedLibrarySpectra(entries, entry -> {
+      prepared.incrementAndGet();
+      final DataPoint[] dps = entry.getDataPoints();
+      return new DataPoint[]{dps[1], dps[0]};
+    });
+    assertTrue(library.isPreparedFrom(entries));
+
+    for (int i = numEntries - 1; i >= 0; i--) {
+      final DataPoint[] dps = library.getDataPoints(i);
+      assertEquals(2, dps.length);
+      assertEquals(80 + i, dps[0].getMZ());
+      assertEquals(20, dps[0].getIntensity());
+      assertEquals(50 + i, dps[1].getMZ());
+    }
+    assertEquals(numEntries, prepared.get());
+
+    // every call returns the same prepared array
+    assertSame(library.getDataPoints(5), library.getDataPoints(5));
+    assertEquals(numEntries, prepared.get());
+  }
+}
@@ -0,0 +1,139 @@
+/*
+ * Copyright (c) 2004-2025 The mzmine Development Team
+ *
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+
+package io.github.mzmine.modules.dataprocessing.id_spectral_library_match;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import io.github.mzmine.datamodel.DataPoint;
+import io.github.mzmine.datamodel.MassList;
+import io.github.mzmine.datamodel.Scan;
+import io.github.mzmine.datamodel.features.FeatureListRow;
+import io.github.mzmine.datamodel.impl.SimpleDataPoint;
+import io.github.mzmine.parameters.ParameterSet;
+import io.github.mzmine.parameters.parametertypes.tolerances.MZTolerance;
+import io.github.mzmine.util.spectraldb.entry.SpectralDBAnnotation;
+import io.github.mzmine.util.spectraldb.entry.SpectralLibraryEntry;
+import io.github.mzmine.util.spectraldb.entry.SpectralLibraryEntryFactory;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.stream.IntStream;
+import org.junit.jupiter.api.Test;
+
+class RowsSpectralMatchTaskTest {
+
+  private static final double PRECURSOR_MZ = 500;
+
+  private static DataPoint[] librarySpectrum(Random random, DataPoint[] query) {
+    final List<DataPoint> dps = new ArrayList<>();
+    for (DataPoint dp : query) {
+      if (random.nextBoolean()) {
+        dps.add(new SimpleDataPoint(dp.getMZ() + random.nextDouble() * 0.001,
+            random.nextDouble() * 1000));
+      }
+    }
+    // signals that do not match
+    for (int i = 0; i < 3; i++) {
+      dps.add(new SimpleDataPoint(50 + random.nextDouble() * 400, random.nextDouble() * 1000));
+    }
+    dps.sort((a, b) -> Double.compare(a.getMZ(), b.getMZ()));
+    return dps.toArray(DataPoint[]::new);
+  }
+
+  private static ParameterSet createParameters() {
+    final ParameterSet parameters = new SpectralLibrarySearchParameters().cloneParameterSet();
+    parameters.setParameter(SpectralLibrarySearchParameters.mzTolerancePrecursor,
+        new MZTolerance(1, 0));
+    parameters.setParameter(SpectralLibrarySearchParameters.mzTolerance,
+        new MZTolerance(0.005, 10));
+    parameters.setParameter(SpectralLibrarySearchParameters.removePrecursor, false);
+    parameters.setParameter(SpectralLibrarySearchParameters.minMatch, 3);
+    parameters.setParameter(SpectralLibrarySearchParameters.advanced, false);
+    return parameters;
+  }
+
+  private static List<SpectralDBAnnotation> match(List<SpectralLibraryEntry> entries,
+      FeatureListRow row) {
+    final List<SpectralDBAnnotation> matches = Collections.synchronizedList(new ArrayList<>());
+    final RowsSpectralMatchTask task = new RowsSpectralMatchTask(createParameters(), List.of(row),
+        Instant.now()) {
+      @Override
+      protected void addIdentities(FeatureListRow matchedRow, List<SpectralDBAnnotation> ids) {
+        matches.addAll(ids);
+      }
+    };
+    task.matchRowToLibraries(entries, row);
+    return matches;
+  }
+
+  @Test
+  void chunkedMatchingEqualsSequentialMatching() {
+    final Random random = new Random(42);
+    final DataPoint[] query = IntStream.range(0, 20)
+        .mapToObj(i -> new SimpleDataPoint(60 + i * 20.5, 10 + random.nextDouble() * 1000))
+        .toArray(DataPoint[]::new);
+
+    // sorted by precursor m/z like the library entries of the task
+    final int numEntries = 2 * RowsSpectralMatchTask.ENTRIES_PER_CHUNK + 500;
+    final List<SpectralLibraryEntry> entries = IntStream.range(0, numEntries).mapToObj(
+        i -> SpectralLibraryEntryFactory.create(null, PRECURSOR_MZ - 0.5 + i * 1E-4,
+            librarySpectrum(random, query))).toList();
+
+    final MassList massList = mock(MassList.class);
+    when(massList.getDataPoints()).thenReturn(query);
+    final Scan scan = mock(Scan.class);
+    when(scan.getMassList()).thenReturn(massList);
+    when(scan.getNumberOfDataPoints()).thenReturn(query.length);
+    final FeatureListRow row = mock(FeatureListRow.class);
+    when(row.getAverageMZ()).thenReturn(PRECURSOR_MZ);
+    when(row.getAllFragmentScans()).thenReturn(List.of(scan));
+
+    // the full range is matched in parallel chunks
+    final List<SpectralDBAnnotation> chunked = match(entries, row);
+
+    // ranges below two chunks are matched sequentially
+    final List<SpectralDBAnnotation> sequential = new ArrayList<>();
+    final int sequentialSize = RowsSpectralMatchTask.ENTRIES_PER_CHUNK;
+    for (int from = 0; from < numEntries; from += sequentialSize) {
+      sequential.addAll(
+          match(entries.subList(from, Math.min(numEntries, from + sequentialSize)), row));
+    }
+
+    assertTrue(chunked.size() > 10, "Only " + chunked.size() + " matches");
+    assertEquals(sequential.size(), chunked.size());
+    for (int i = 0; i < chunked.size(); i++) {
+      assertSame(sequential.get(i).getEntry(), chunked.get(i).getEntry());
+      assertEquals(sequential.get(i).getSimilarity().getScore(),
+          chunked.get(i).getSimilarity().getScore(), 0d);
+    }
+  }
+}
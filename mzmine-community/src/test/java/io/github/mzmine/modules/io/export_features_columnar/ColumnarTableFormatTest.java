@@ -0,0 +1,137 @@
+/*
+ * Copyright (c) 2004-2025 The mzmine Development Team
+ *
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+
+package io.github.mzmine.modules.io.export_features_columnar;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import io.github.mzmine.modules.io.export_features_columnar.ColumnarTableWriter.Column;
+import io.github.mzmine.modules.io.import_features_csv.ColumnarTableReader;
+import io.github.mzmine.modules.io.import_features_csv.ColumnarTableReader.ColumnBatch;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class ColumnarTableFormatTest {
+
+  @TempDir
+  Path tempDir;
+
+  @Test
+  void writeAndReadBatches() throws IOException {
+    final File file = tempDir.resolve("table.mzcol").toFile();
+    final List<Column<Integer>> columns = List.of( //
+        new Column<>("id", ColumnType.INT, i -> i), //
+        new Column<>("mz", ColumnType.DOUBLE, i -> i % 5 == 0 ? null : 100.5 + i), //
+        new Column<>("datafile:a.mzML:height", ColumnType.FLOAT, i -> 1000f * i), //
+        new Column<>("compound_name", ColumnType.STRING, i -> i % 3 == 0 ? null : "name_µ" + i));
+
+    final int rows = 25;
+    try (var writer = new ColumnarTableWriter<>(file, columns, 10)) {
+      for (int i = 0; i < rows; i++) {
+        writer.write(i);
+      }
+    }
+
+    assertTrue(ColumnarTableReader.isColumnarTable(file));
+    try (var reader = new ColumnarTableReader(file)) {
+      assertEquals(4, reader.getSchema().size());
+      assertEquals(ColumnType.FLOAT, reader.getSchema().get(2).type());
+      assertEquals(3, reader.indexOf("compound_name"));
+
+      int row = 0;
+      int batches = 0;
+      ColumnBatch batch;
+      while ((batch = reader.readNextBatch()) != null) {
+        batches++;
+        for (int i = 0; i < batch.numRows(); i++, row++) {
+          assertEquals(row, batch.getInts(0)[i]);
+          assertEquals(row % 5 == 0 ? Double.NaN : 100.5 + row, batch.getDoubles(1)[i]);
+          assertEquals(1000f * row, batch.getFloats(2)[i]);
+          assertEquals(row % 3 == 0 ? "" : "name_µ" + row, batch.getStrings(3)[i]);
+        }
+      }
+      assertEquals(3, batches);
+      assertEquals(rows, row);
+      assertEquals(rows, reader.getTotalRows());
+      assertNull(reader.readNextBatch());
+    }
+  }
+
+  @Test
+  void abortedTableIsDeleted() throws IOException {
+    final File file = tempDir.resolve("aborted.mzcol").toFile();
+    try (var writer = new ColumnarTableWriter<Integer>(file,
+        List.of(new Column<>("id", ColumnType.INT, i -> i)), 10)) {
+      for (int i = 0; i < 25; i++) {
+        writer.write(i);
+      }
+      writer.abort();
+    }
+    assertFalse(file.exists());
+  }
+
+  @Test
+  void failedBatchDeletesTable() {
+    final File file = tempDir.resolve("failed.mzcol").toFile();
+    assertThrows(IllegalStateException.class, () -> {
+      try (var writer = new ColumnarTableWriter<Integer>(file,
+          List.of(new Column<>("id", ColumnType.INT, i -> {
+            if (i == 15) {
+              throw new IllegalStateException("cannot extract value");
+            }
+            return i;
+          })), 10)) {
+        for (int i = 0; i < 20; i++) {
+          writer.write(i);
+        }
+      }
+    });
+    assertFalse(file.exists());
+  }
+
+  @Test
+  void emptyTable() throws IOException {
+    final File file = tempDir.resolve("empty.mzcol").toFile();
+    try (var _ = new ColumnarTableWriter<Integer>(file,
+        List.of(new Column<>("id", ColumnType.INT, i -> i)))) {
+      // no rows
+    }
+    try (var reader = new ColumnarTableReader(file)) {
+      assertNull(reader.readNextBatch());
+      assertEquals(0, reader.getTotalRows());
+      assertArrayEquals(new String[]{"id"},
+          reader.getSchema().stream().map(s -> s.name()).toArray(String[]::new));
+    }
+  }
+}
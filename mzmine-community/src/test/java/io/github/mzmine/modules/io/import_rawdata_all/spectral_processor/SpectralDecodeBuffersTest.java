@@ -0,0 +1,137 @@
+/*
+ * Copyright (c) 2004-2025 The mzmine Development Team
+ *
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+
+package io.github.mzmine.modules.io.import_rawdata_all.spectral_processor;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Base64;
+import java.util.Random;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+class SpectralDecodeBuffersTest {
+
+  private static byte[] encodeDoubles(int numValues, long seed) {
+    final ByteBuffer buffer = ByteBuffer.allocate(numValues * 8).order(ByteOrder.LITTLE_ENDIAN);
+    final Random random = new Random(seed);
+    double mz = 100;
+    for (int i = 0; i < numValues; i++) {
+      mz += random.nextDouble();
+      buffer.putDouble(mz);
+    }
+    return buffer.array();
+  }
+
+  private static byte[] compress(byte[] bytes) {
+    final Deflater deflater = new Deflater();
+    deflater.setInput(bytes);
+    deflater.finish();
+    final ByteArrayOutputStream out = new ByteArrayOutputStream();
+    final byte[] buf = new byte[1024];
+    while (!deflater.finished()) {
+      out.write(buf, 0, deflater.deflate(buf));
+    }
+    deflater.end();
+    return out.toByteArray();
+  }
+
+  /**
+   * The decoding before the shared buffers: new arrays and a new inflater per binary array
+   */
+  private static byte[] decodePrevious(String base64, boolean zlib) throws DataFormatException {
+    final byte[] bytes = Base64.getDecoder().decode(base64);
+    if (!zlib) {
+      return bytes;
+    }
+    final Inflater inflater = new Inflater();
+    inflater.setInput(bytes);
+    final ByteArrayOutputStream out = new ByteArrayOutputStream();
+    final byte[] buf = new byte[1024];
+    while (!inflater.finished()) {
+      final int count = inflater.inflate(buf);
+      if (count == 0 && inflater.needsInput()) {
+        break;
+      }
+      out.write(buf, 0, count);
+    }
+    inflater.end();
+    return out.toByteArray();
+  }
+
+  private static byte[] toArray(ByteBuffer buffer) {
+    final byte[] bytes = new byte[buffer.remaining()];
+    buffer.get(bytes);
+    return bytes;
+  }
+
+  @AfterEach
+  void release() {
+    SpectralDecodeBuffers.release();
+  }
+
+  @Test
+  void decodesLikePreviousPath() throws DataFormatException {
+    // growing and shrinking arrays reuse and enlarge the same buffers
+    for (int numValues : new int[]{0, 1, 10, 5000, 3, 20000, 64}) {
+      final byte[] raw = encodeDoubles(numValues, numValues);
+      final String plain = Base64.getEncoder().encodeToString(raw);
+      final String zlib = Base64.getEncoder().encodeToString(compress(raw));
+
+      final SpectralDecodeBuffers buffers = SpectralDecodeBuffers.get();
+      assertArrayEquals(decodePrevious(plain, false), toArray(buffers.decodeBase64(plain)));
+      assertArrayEquals(raw, toArray(buffers.decodeBase64(plain)));
+
+      final byte[] expected = decodePrevious(zlib, true);
+      assertArrayEquals(raw, expected);
+      assertArrayEquals(expected,
+          toArray(buffers.inflate(buffers.decodeBase64(zlib), raw.length)));
+      // unknown or too small expected lengths grow the buffer while inflating
+      assertArrayEquals(expected, toArray(buffers.inflate(buffers.decodeBase64(zlib), -1)));
+      assertArrayEquals(expected, toArray(buffers.inflate(buffers.decodeBase64(zlib), 1)));
+    }
+  }
+
+  @Test
+  void decodesAfterRelease() throws DataFormatException {
+    final byte[] raw = encodeDoubles(100, 1);
+    final String zlib = Base64.getEncoder().encodeToString(compress(raw));
+
+    final SpectralDecodeBuffers first = SpectralDecodeBuffers.get();
+    assertArrayEquals(raw, toArray(first.inflate(first.decodeBase64(zlib), raw.length)));
+
+    // the ended inflater is not reused
+    SpectralDecodeBuffers.release();
+    SpectralDecodeBuffers.release();
+    final SpectralDecodeBuffers second = SpectralDecodeBuffers.get();
+    assertArrayEquals(raw, toArray(second.inflate(second.decodeBase64(zlib), raw.length)));
+  }
+}
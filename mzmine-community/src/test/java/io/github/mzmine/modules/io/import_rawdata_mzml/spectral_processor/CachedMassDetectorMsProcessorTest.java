@@ -0,0 +1,135 @@
+/*
+ * Copyright (c) 2004-2025 The mzmine Development Team
+ *
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+
+package io.github.mzmine.modules.io.import_rawdata_mzml.spectral_processor;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.mockito.Mockito.doReturn;
+
+import io.github.mzmine.datamodel.MassSpectrumType;
+import io.github.mzmine.datamodel.Scan;
+import io.github.mzmine.modules.dataprocessing.featdet_massdetection.MassDetectionCache;
+import io.github.mzmine.modules.dataprocessing.featdet_massdetection.MassDetectors;
+import io.github.mzmine.modules.dataprocessing.featdet_massdetection.factor_of_lowest.FactorOfLowestMassDetectorParameters;
+import io.github.mzmine.modules.io.import_rawdata_all.AdvancedSpectraImportParameters;
+import io.github.mzmine.modules.io.import_rawdata_all.spectral_processor.SimpleSpectralArrays;
+import io.github.mzmine.modules.io.import_rawdata_all.spectral_processor.processors.CachedMassDetectorMsProcessor;
+import io.github.mzmine.modules.io.import_rawdata_all.spectral_processor.processors.MassDetectorMsProcessor;
+import io.github.mzmine.parameters.ParameterSet;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+@ExtendWith(MockitoExtension.class)
+class CachedMassDetectorMsProcessorTest {
+
+  @Mock
+  Scan scan;
+  @TempDir
+  Path tempDir;
+
+  double[] input = new double[]{3d, 5d, 10d, 11d, 100d, 200d, 300d, 400d};
+  double[] expected = new double[]{10d, 11d, 100d, 200d, 300d, 400d};
+  private MassDetectorMsProcessor detector;
+  private MassDetectionCache cache;
+  private String key;
+
+  @BeforeEach
+  void setUp() throws IOException {
+    doReturn(2).when(scan).getMSLevel();
+    doReturn(12).when(scan).getScanNumber();
+    doReturn(MassSpectrumType.CENTROIDED).when(scan).getSpectrumType();
+
+    final ParameterSet advanced = new AdvancedSpectraImportParameters().cloneParameterSet();
+    advanced.setParameter(AdvancedSpectraImportParameters.ms2MassDetection, true);
+    ParameterSet mdParam = MassDetectors.FACTOR_OF_LOWEST.getModuleParameters().cloneParameterSet();
+    mdParam.setParameter(FactorOfLowestMassDetectorParameters.noiseFactor, 2d);
+    advanced.getParameter(AdvancedSpectraImportParameters.ms2MassDetection).getEmbeddedParameter()
+        .setValue(MassDetectors.FACTOR_OF_LOWEST, mdParam);
+    detector = new MassDetectorMsProcessor(advanced);
+
+    final File raw = Files.writeString(tempDir.resolve("raw.mzML"), "spectra").toFile();
+    cache = new MassDetectionCache(tempDir.resolve("cache"), Long.MAX_VALUE);
+    key = MassDetectionCache.createImportKey(raw, advanced);
+    assertNotNull(key);
+  }
+
+  @Test
+  void firstImportWritesEntryOnSuccess() {
+    final var processor = new CachedMassDetectorMsProcessor(detector, cache, key, "raw.mzML");
+    final SimpleSpectralArrays result = processor.processScan(scan, data());
+    assertArrayEquals(expected, result.mzs());
+    assertNull(cache.get(key));
+
+    processor.finish(true);
+    final var cached = cache.get(key);
+    assertNotNull(cached);
+    final int index = cached.indexOf(12,
+        MassDetectionCache.hashSpectrum(12, 2, MassSpectrumType.CENTROIDED.ordinal(), input,
+            input));
+    assertArrayEquals(expected, cached.getMzValues(index));
+  }
+
+  @Test
+  void canceledImportDiscardsEntry() {
+    final var processor = new CachedMassDetectorMsProcessor(detector, cache, key, "raw.mzML");
+    processor.processScan(scan, data());
+    processor.finish(false);
+    assertNull(cache.get(key));
+  }
+
+  @Test
+  void rerunUsesCachedMassList() {
+    // a cached result that differs from the detector output
+    final long inputHash = MassDetectionCache.hashSpectrum(12, 2,
+        MassSpectrumType.CENTROIDED.ordinal(), input, input);
+    try (var writer = cache.createWriter(key)) {
+      assertNotNull(writer);
+      writer.append(12, inputHash, new double[]{42d}, new double[]{1d});
+      writer.commit();
+    }
+
+    final var processor = new CachedMassDetectorMsProcessor(detector, cache, key, "raw.mzML");
+    assertArrayEquals(new double[]{42d}, processor.processScan(scan, data()).mzs());
+    // other spectrum of the same scan is detected
+    final double[] other = {3d, 5d, 10d, 11d, 100d, 200d, 300d, 401d};
+    assertArrayEquals(new double[]{10d, 11d, 100d, 200d, 300d, 401d},
+        processor.processScan(scan, new SimpleSpectralArrays(other, other)).mzs());
+    processor.finish(true);
+  }
+
+  private SimpleSpectralArrays data() {
+    return new SimpleSpectralArrays(input, input);
+  }
+}
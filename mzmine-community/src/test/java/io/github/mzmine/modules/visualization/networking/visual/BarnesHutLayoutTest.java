@@ -0,0 +1,94 @@
+/*
+ * Copyright (c) 2004-2025 The mzmine Development Team
+ *
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+
+package io.github.mzmine.modules.visualization.networking.visual;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+
+class BarnesHutLayoutTest {
+
+  /**
+   * Two rings of nodes that are connected by a single edge
+   */
+  private static BarnesHutLayout createTwoRings(int ringSize) {
+    int numNodes = ringSize * 2;
+    int[] sources = new int[numNodes + 1];
+    int[] targets = new int[numNodes + 1];
+    for (int i = 0; i < ringSize; i++) {
+      sources[i] = i;
+      targets[i] = (i + 1) % ringSize;
+      sources[ringSize + i] = ringSize + i;
+      targets[ringSize + i] = ringSize + (i + 1) % ringSize;
+    }
+    sources[numNodes] = 0;
+    targets[numNodes] = ringSize;
+    return new BarnesHutLayout(numNodes, sources, targets, 42);
+  }
+
+  @Test
+  void neighborsAreCloserThanOthers() {
+    int ringSize = 300;
+    BarnesHutLayout layout = createTwoRings(ringSize);
+    layout.compute(BarnesHutLayout.DEFAULT_ITERATIONS, () -> false, null);
+
+    double edgeDistance = 0;
+    double distance = 0;
+    for (int i = 0; i < ringSize; i++) {
+      assertTrue(Double.isFinite(layout.getX(i)) && Double.isFinite(layout.getY(i)));
+      edgeDistance += distance(layout, i, (i + 1) % ringSize);
+      distance += distance(layout, i, (i + ringSize / 2) % ringSize);
+    }
+    assertTrue(edgeDistance * 5 < distance);
+  }
+
+  @Test
+  void sameResultWithSameSeed() {
+    BarnesHutLayout a = createTwoRings(200);
+    BarnesHutLayout b = createTwoRings(200);
+    a.compute(50, () -> false, null);
+    b.compute(50, () -> false, null);
+    assertArrayEquals(a.copyX(), b.copyX());
+    assertArrayEquals(a.copyY(), b.copyY());
+  }
+
+  @Test
+  void canceled() {
+    BarnesHutLayout layout = createTwoRings(50);
+    int[] calls = {0};
+    int iterations = layout.compute(100, () -> calls[0] >= 3,
+        (l, iteration, maxIterations) -> calls[0]++);
+    assertEquals(3, iterations);
+  }
+
+  private static double distance(BarnesHutLayout layout, int a, int b) {
+    double dx = layout.getX(a) - layout.getX(b);
+    double dy = layout.getY(a) - layout.getY(b);
+    return Math.sqrt(dx * dx + dy * dy);
+  }
+}
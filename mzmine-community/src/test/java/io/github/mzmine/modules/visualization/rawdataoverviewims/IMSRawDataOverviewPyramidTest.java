@@ -0,0 +1,125 @@
+/*
+ * Copyright (c) 2004-2025 The mzmine Development Team
+ *
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+
+package io.github.mzmine.modules.visualization.rawdataoverviewims;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.lenient;
+import static org.mockito.Mockito.mock;
+
+import com.google.common.collect.Range;
+import io.github.mzmine.datamodel.Frame;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+
+class IMSRawDataOverviewPyramidTest {
+
+  private static final int RT_BINS = 64;
+  private static final int MOBILITY_BINS = 16;
+  private static final int MZ_BINS = 128;
+
+  /**
+   * Each cell holds rt bin + 1, m/z from 100 to 228 in bins of 1
+   */
+  private static IMSRawDataOverviewPyramid createPyramid() {
+    final float[] cube = new float[RT_BINS * MOBILITY_BINS * MZ_BINS];
+    for (int r = 0; r < RT_BINS; r++) {
+      for (int i = 0; i < MOBILITY_BINS * MZ_BINS; i++) {
+        cube[r * MOBILITY_BINS * MZ_BINS + i] = r + 1;
+      }
+    }
+    final List<Frame> frames = Collections.nCopies(RT_BINS * 3, null);
+    return new IMSRawDataOverviewPyramid(frames, RT_BINS, 0.5, 1.5, MOBILITY_BINS, 100, 228,
+        MZ_BINS, cube, null);
+  }
+
+  @Test
+  void levelsKeepTotalIntensity() {
+    final IMSRawDataOverviewPyramid pyramid = createPyramid();
+    final Range<Double> all = Range.closed(100d, 228d);
+    final double total = sum(pyramid.getChromatogram(0, all));
+    for (int level = 1; level < pyramid.getNumberOfLevels(); level++) {
+      assertEquals(total, sum(pyramid.getChromatogram(level, all)), total * 1E-6);
+      assertEquals((RT_BINS + (1 << level) - 1) >> level, pyramid.getRtBins(level));
+    }
+  }
+
+  @Test
+  void partialBinsAreWeighted() {
+    final IMSRawDataOverviewPyramid pyramid = createPyramid();
+    // 2.5 bins in each of the 16 mobility bins
+    final double[] chromatogram = pyramid.getChromatogram(0, Range.closed(110.25, 112.75));
+    assertEquals(RT_BINS, chromatogram.length);
+    assertEquals(2.5 * MOBILITY_BINS, chromatogram[0], 1E-6);
+    assertEquals(2.5 * MOBILITY_BINS * RT_BINS, chromatogram[RT_BINS - 1], 1E-6);
+  }
+
+  @Test
+  void selectLevel() {
+    final IMSRawDataOverviewPyramid pyramid = createPyramid();
+    // narrower than the finest bins
+    assertEquals(-1, pyramid.selectLevel(0.5, 4, 0));
+    assertEquals(0, pyramid.selectLevel(4, 4, 0));
+    assertEquals(1, pyramid.selectLevel(8, 4, 0));
+    // rt resolution limits the level
+    assertEquals(0, pyramid.selectLevel(128, 4, RT_BINS));
+  }
+
+  @Test
+  void resolvesOnlyRtRangesAlignedToBins() {
+    // 3 frames per rt bin at level 0 with rt = frame index
+    final List<Frame> frames = new ArrayList<>();
+    for (int i = 0; i < RT_BINS * 3; i++) {
+      final Frame frame = mock(Frame.class);
+      lenient().when(frame.getRetentionTime()).thenReturn((float) i);
+      frames.add(frame);
+    }
+    final IMSRawDataOverviewPyramid pyramid = new IMSRawDataOverviewPyramid(frames, RT_BINS, 0.5,
+        1.5, MOBILITY_BINS, 100, 228, MZ_BINS,
+        new float[RT_BINS * MOBILITY_BINS * MZ_BINS], null);
+
+    // a single frame shares its bin with two others
+    assertFalse(pyramid.resolvesRtRange(0, Range.singleton(4f)));
+    // exactly the frames of bins 1 and 2
+    assertTrue(pyramid.resolvesRtRange(0, Range.closed(3f, 8f)));
+    // bin 1 at level 1 also holds frames 0 - 2
+    assertFalse(pyramid.resolvesRtRange(1, Range.closed(3f, 8f)));
+    assertTrue(pyramid.resolvesRtRange(1, Range.closed(0f, 11f)));
+    // no frames
+    assertFalse(pyramid.resolvesRtRange(0, Range.closed(1000f, 2000f)));
+  }
+
+  private static double sum(double[] values) {
+    double sum = 0;
+    for (double v : values) {
+      sum += v;
+    }
+    return sum;
+  }
+}
@@ -25,15 +25,43 @@
 
 package io.github.mzmine.parameters.parametertypes.selectors;
 
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
 import com.google.common.collect.Range;
+import io.github.mzmine.datamodel.MassSpectrumType;
+import io.github.mzmine.datamodel.PolarityType;
+import io.github.mzmine.datamodel.Scan;
+import io.github.mzmine.datamodel.impl.DDAMsMsInfoImpl;
+import io.github.mzmine.datamodel.impl.SimpleScan;
+import io.github.mzmine.datamodel.msms.ActivationMethod;
 import io.github.mzmine.parameters.parametertypes.combowithinput.MsLevelFilter;
+import io.github.mzmine.project.impl.RawDataFileImpl;
+import java.util.List;
+import javafx.scene.paint.Color;
 import org.junit.jupiter.api.Test;
 
 class ScanSelectionTest {
 
+  private static RawDataFileImpl createFile() {
+    final RawDataFileImpl file = new RawDataFileImpl("testfile", null, null, Color.BLACK);
+    for (int i = 0; i < 200; i++) {
+      final int msLevel = i % 4 == 0 ? 1 : 2;
+      final PolarityType polarity = i % 3 == 0 ? PolarityType.NEGATIVE : PolarityType.POSITIVE;
+      final var msMsInfo = msLevel == 1 ? null
+          : new DDAMsMsInfoImpl(200d + i, 1, 20f, null, null, 2, ActivationMethod.UNKNOWN,
+              Range.closed(199d + i, 201d + i));
+      file.addScan(new SimpleScan(file, i + 5, msLevel, 0.05f * i, msMsInfo,
+          new double[]{100, 200}, new double[]{10, 20}, MassSpectrumType.CENTROIDED, polarity,
+          i % 2 == 0 ? "FTMS + p ESI" : "ITMS - c ESI", Range.closed(0d, 1d)));
+    }
+    return file;
+  }
+
   @Test
   void isActiveFilter() {
     assertFalse(ScanSelection.ALL_SCANS.isActiveFilter());
@@ -42,4 +70,41 @@ class ScanSelectionTest {
     assertTrue(new ScanSelection(Range.closed(2d, 4d), 2).isActiveFilter());
     assertTrue(ScanSelection.MS1.isActiveFilter());
   }
-}
\ No newline at end of file
+
+  @Test
+  void indexedMatchesSequentialFilter() {
+    final RawDataFileImpl file = createFile();
+    final List<ScanSelection> selections = List.of(ScanSelection.ALL_SCANS, ScanSelection.MS1,
+        new ScanSelection(Range.closed(1d, 4.5d), 2),
+        new ScanSelection(Range.openClosed(0.5d, 2d), 1, PolarityType.NEGATIVE),
+        new ScanSelection(Range.closed(20d, 24d), null, null, null, PolarityType.ANY,
+            MassSpectrumType.ANY, MsLevelFilter.ALL_LEVELS, null),
+        new ScanSelection(null, 3, Range.atLeast(2d), null, PolarityType.POSITIVE,
+            MassSpectrumType.CENTROIDED, new MsLevelFilter(MsLevelFilter.Options.MSn), "FTMS*"),
+        new ScanSelection(null, null, null, null, PolarityType.ANY, MassSpectrumType.PROFILE,
+            MsLevelFilter.ALL_LEVELS, null));
+
+    for (ScanSelection selection : selections) {
+      final Scan[] expected = file.getScans().stream().filter(selection::matches)
+          .toArray(Scan[]::new);
+      assertArrayEquals(expected, selection.getMatchingScans(file), selection.toString());
+      // second call is served from the cache
+      assertArrayEquals(expected, selection.getMatchingScans(file), selection.toString());
+    }
+  }
+
+  @Test
+  void indexInvalidatedOnScanChange() {
+    final RawDataFileImpl file = createFile();
+    final var index = file.getScanMetadataIndex();
+    assertSame(index, file.getScanMetadataIndex());
+    final int before = ScanSelection.MS1.getMatchingScans(file).length;
+
+    file.addScan(new SimpleScan(file, 1000, 1, 100f, null, new double[]{100},
+        new double[]{10}, MassSpectrumType.CENTROIDED, PolarityType.POSITIVE, "",
+        Range.closed(0d, 1d)));
+
+    assertNotSame(index, file.getScanMetadataIndex());
+    assertEquals(before + 1, ScanSelection.MS1.getMatchingScans(file).length);
+  }
+}
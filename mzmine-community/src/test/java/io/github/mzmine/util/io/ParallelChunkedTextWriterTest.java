@@ -0,0 +1,134 @@
+/*
+ * Copyright (c) 2004-2025 The mzmine Development Team
+ *
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+
+package io.github.mzmine.util.io;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.stream.IntStream;
+import java.util.zip.GZIPInputStream;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class ParallelChunkedTextWriterTest {
+
+  private static final List<Integer> items = IntStream.range(0, 10_000).boxed().toList();
+
+  @TempDir
+  Path tempDir;
+
+  private static String format(int i) {
+    // include multi byte characters
+    return "row" + i + ",µ," + (i * 0.5d) + ",Δ";
+  }
+
+  @Test
+  void identicalToSequentialWriter() throws IOException {
+    final File sequential = tempDir.resolve("sequential.csv").toFile();
+    try (BufferedWriter writer = Files.newBufferedWriter(sequential.toPath(),
+        StandardCharsets.UTF_8)) {
+      writer.append("header");
+      writer.newLine();
+      for (Integer i : items) {
+        if (i % 7 != 0) {
+          writer.append(format(i));
+          writer.newLine();
+        }
+      }
+    }
+
+    final File parallel = tempDir.resolve("parallel.csv").toFile();
+    final long written;
+    try (var writer = new ParallelChunkedTextWriter(parallel, false, 17, 5)) {
+      writer.write("header" + System.lineSeparator());
+      written = writer.writeChunked(items, () -> (i, b) -> {
+        if (i % 7 == 0) {
+          return false;
+        }
+        b.append(format(i)).append(System.lineSeparator());
+        return true;
+      }, () -> false);
+    }
+
+    assertEquals(items.stream().filter(i -> i % 7 != 0).count(), written);
+    assertArrayEquals(Files.readAllBytes(sequential.toPath()),
+        Files.readAllBytes(parallel.toPath()));
+  }
+
+  @Test
+  void replacesUnpairedSurrogatesLikeSequentialWriter() throws IOException {
+    // lone high and low surrogates, e.g., from truncated names or annotations
+    final List<String> names = List.of("name\uD83D", "\uDE00annotation", "ok Δ", "\uD83D\uDE00");
+
+    final File sequential = tempDir.resolve("sequential.mgf").toFile();
+    try (Writer writer = new BufferedWriter(
+        new OutputStreamWriter(Files.newOutputStream(sequential.toPath()),
+            StandardCharsets.UTF_8))) {
+      for (String name : names) {
+        writer.append(name).append('\n');
+      }
+    }
+
+    final File parallel = tempDir.resolve("parallel.mgf").toFile();
+    try (var writer = new ParallelChunkedTextWriter(parallel, false, 1, 3)) {
+      writer.writeChunked(names, () -> (name, b) -> {
+        b.append(name).append('\n');
+        return true;
+      }, () -> false);
+    }
+
+    assertArrayEquals(Files.readAllBytes(sequential.toPath()),
+        Files.readAllBytes(parallel.toPath()));
+  }
+
+  @Test
+  void gzipRoundTrip() throws IOException {
+    final File file = tempDir.resolve("table.csv.gz").toFile();
+    try (var writer = new ParallelChunkedTextWriter(file,
+        ParallelChunkedTextWriter.isGzipFile(file))) {
+      writer.writeChunked(items, () -> (i, b) -> {
+        b.append(format(i)).append('\n');
+        return true;
+      }, () -> false);
+    }
+
+    final StringBuilder expected = new StringBuilder();
+    items.forEach(i -> expected.append(format(i)).append('\n'));
+    try (InputStream in = new GZIPInputStream(Files.newInputStream(file.toPath()))) {
+      assertEquals(expected.toString(), new String(in.readAllBytes(), StandardCharsets.UTF_8));
+    }
+  }
+}
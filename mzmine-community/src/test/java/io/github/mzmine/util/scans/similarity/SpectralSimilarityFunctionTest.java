@@ -0,0 +1,108 @@
+/*
+ * Copyright (c) 2004-2025 The mzmine Development Team
+ *
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+
+package io.github.mzmine.util.scans.similarity;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import io.github.mzmine.datamodel.DataPoint;
+import io.github.mzmine.datamodel.impl.SimpleDataPoint;
+import io.github.mzmine.parameters.parametertypes.tolerances.MZTolerance;
+import io.github.mzmine.util.scans.ScanAlignment;
+import io.github.mzmine.util.scans.similarity.impl.composite.CompositeCosineSpectralSimilarity;
+import io.github.mzmine.util.scans.similarity.impl.cosine.WeightedCosineSpectralSimilarity;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import org.junit.jupiter.api.Test;
+
+class SpectralSimilarityFunctionTest {
+
+  private static final MZTolerance mzTol = new MZTolerance(0.005, 10);
+
+  @Test
+  void similarityOfSortedEqualsSimilarityAndKeepsSpectra() {
+    Random rand = new Random(42);
+    int matches = 0;
+    for (SpectralSimilarityFunction simFunction : List.of(new WeightedCosineSpectralSimilarity(),
+        new CompositeCosineSpectralSimilarity())) {
+      for (int i = 0; i < 200; i++) {
+        DataPoint[] library = randomSpectrum(rand);
+        DataPoint[] query = mixSpectrum(rand, library);
+        Arrays.sort(library, ScanAlignment.sorter);
+        Arrays.sort(query, ScanAlignment.sorter);
+        DataPoint[] libraryCopy = library.clone();
+        DataPoint[] queryCopy = query.clone();
+
+        SpectralSimilarity sorted = simFunction.getSimilarityOfSorted(mzTol, 3, library, query);
+        // spectra are shared between comparisons and must not be modified
+        assertArrayEquals(libraryCopy, library);
+        assertArrayEquals(queryCopy, query);
+
+        SpectralSimilarity expected = simFunction.getSimilarity(mzTol, 3, libraryCopy,
+            queryCopy);
+        if (expected == null) {
+          assertNull(sorted);
+          continue;
+        }
+        matches++;
+        assertNotNull(sorted);
+        assertEquals(expected.getScore(), sorted.getScore());
+        assertEquals(expected.getOverlap(), sorted.getOverlap());
+        assertArrayEquals(expected.getLibrary(), sorted.getLibrary());
+        assertArrayEquals(expected.getQuery(), sorted.getQuery());
+        assertArrayEquals(expected.getAlignedDataPoints(), sorted.getAlignedDataPoints());
+      }
+    }
+    assertTrue(matches > 0);
+  }
+
+  private static DataPoint[] randomSpectrum(Random rand) {
+    DataPoint[] dps = new DataPoint[5 + rand.nextInt(20)];
+    for (int i = 0; i < dps.length; i++) {
+      dps[i] = new SimpleDataPoint(50 + rand.nextInt(150) + rand.nextDouble() * 0.001,
+          1 + rand.nextDouble() * 1000);
+    }
+    return dps;
+  }
+
+  private static DataPoint[] mixSpectrum(Random rand, DataPoint[] base) {
+    List<DataPoint> dps = new ArrayList<>();
+    for (DataPoint dp : base) {
+      if (rand.nextDouble() < 0.8) {
+        dps.add(new SimpleDataPoint(dp.getMZ() + 0.002, dp.getIntensity() * rand.nextDouble()));
+      }
+    }
+    for (int i = rand.nextInt(6); i > 0; i--) {
+      dps.add(new SimpleDataPoint(50 + rand.nextDouble() * 150, rand.nextDouble() * 500));
+    }
+    return dps.toArray(DataPoint[]::new);
+  }
+}
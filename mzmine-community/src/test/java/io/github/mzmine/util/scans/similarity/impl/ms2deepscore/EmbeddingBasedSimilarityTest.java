@@ -0,0 +1,64 @@
+/*
+ * Copyright (c) 2004-2025 The mzmine Development Team
+ *
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+
+package io.github.mzmine.util.scans.similarity.impl.ms2deepscore;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import io.github.mzmine.datamodel.MassSpectrum;
+import io.github.mzmine.datamodel.impl.SimpleMassSpectrum;
+import java.util.List;
+import java.util.stream.IntStream;
+import org.junit.jupiter.api.Test;
+
+class EmbeddingBasedSimilarityTest {
+
+  private static final List<MassSpectrum> spectra = IntStream.range(0, 5)
+      .mapToObj(i -> (MassSpectrum) new SimpleMassSpectrum(new double[]{100 + i, 200 + i},
+          new double[]{1, 2})).toList();
+
+  @Test
+  void pipelineKeepsOrder() throws Exception {
+    final StubEmbeddingModel model = new StubEmbeddingModel();
+    model.setBatchSize(1);
+    final float[][] embeddings = model.getEmbeddings(spectra);
+    for (int i = 0; i < spectra.size(); i++) {
+      assertEquals(100 + i, embeddings[i][0]);
+    }
+    assertEquals(5, model.predicted);
+    assertEquals(5, model.getThroughput().getPredictedSpectra());
+  }
+
+  @Test
+  void batchSizeAdaptsToMemory() {
+    assertEquals(128, EmbeddingBasedSimilarity.adaptBatchSize(128, 0, 1000));
+    assertEquals(128, EmbeddingBasedSimilarity.adaptBatchSize(128, 10, 1_000_000));
+    // budget is a quarter of the heap for three batches
+    assertEquals(50, EmbeddingBasedSimilarity.adaptBatchSize(128, 10, 6000));
+    assertEquals(EmbeddingBasedSimilarity.MIN_BATCH_SIZE,
+        EmbeddingBasedSimilarity.adaptBatchSize(128, 10, 100));
+    assertEquals(4, EmbeddingBasedSimilarity.adaptBatchSize(4, 10, 100));
+  }
+}
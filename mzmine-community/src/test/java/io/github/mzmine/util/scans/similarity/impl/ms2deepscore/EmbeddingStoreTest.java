@@ -0,0 +1,131 @@
+/*
+ * Copyright (c) 2004-2025 The mzmine Development Team
+ *
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+
+package io.github.mzmine.util.scans.similarity.impl.ms2deepscore;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+import io.github.mzmine.datamodel.MassSpectrum;
+import io.github.mzmine.datamodel.impl.SimpleMassSpectrum;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.stream.IntStream;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class EmbeddingStoreTest {
+
+  private static final List<MassSpectrum> spectra = IntStream.range(0, 5)
+      .mapToObj(i -> (MassSpectrum) new SimpleMassSpectrum(new double[]{100 + i, 200 + i},
+          new double[]{1, 2})).toList();
+
+  @TempDir
+  Path tempDir;
+
+  @Test
+  void embeddingsAreStoredAndReused() throws Exception {
+    final float[][] embeddings;
+    try (var store = EmbeddingStore.open(tempDir, "stub")) {
+      final StubEmbeddingModel model = new StubEmbeddingModel();
+      model.setEmbeddingStore(store);
+      model.setBatchSize(2);
+      embeddings = model.getEmbeddings(spectra);
+      assertEquals(5, model.predicted);
+      assertEquals(2, model.maxBatchSize);
+      assertEquals(5, store.size());
+    }
+
+    // reopened store maps the file and the model is not called again
+    try (var store = EmbeddingStore.open(tempDir, "stub")) {
+      assertEquals(5, store.size());
+      assertEquals(3, store.getDimension());
+      final StubEmbeddingModel model = new StubEmbeddingModel();
+      model.setEmbeddingStore(store);
+      assertArrayEquals(embeddings, model.getEmbeddings(spectra));
+      assertEquals(0, model.predicted);
+
+      // only the new spectrum is predicted
+      final var newSpectrum = new SimpleMassSpectrum(new double[]{50}, new double[]{1});
+      model.getEmbeddings(List.of(spectra.getFirst(), newSpectrum));
+      assertEquals(1, model.predicted);
+      assertEquals(6, store.size());
+    }
+  }
+
+  @Test
+  void storeIsSharedAndFlushedInBatches() {
+    final int n = EmbeddingStore.FLUSH_RECORDS + 10;
+    try (var first = EmbeddingStore.open(tempDir, "shared")) {
+      try (var second = EmbeddingStore.open(tempDir, "shared")) {
+        assertSame(first, second);
+        for (int i = 0; i < n; i++) {
+          second.put(new EmbeddingStore.SpectrumKey(i, i), new float[]{i, 1});
+        }
+      }
+      // still open for the first task, flushed vectors are read from the file
+      assertEquals(n, first.size());
+      for (int i = 0; i < n; i++) {
+        assertArrayEquals(new float[]{i, 1}, first.get(new EmbeddingStore.SpectrumKey(i, i)));
+      }
+    }
+
+    try (var store = EmbeddingStore.open(tempDir, "shared")) {
+      assertEquals(n, store.size());
+      assertArrayEquals(new float[]{n - 1, 1},
+          store.get(new EmbeddingStore.SpectrumKey(n - 1, n - 1)));
+    }
+  }
+
+  @Test
+  void keysDependOnContent() {
+    assertEquals(EmbeddingStore.createKey(spectra.getFirst()), EmbeddingStore.createKey(
+        new SimpleMassSpectrum(new double[]{100, 200}, new double[]{1, 2})));
+    assertNotEquals(EmbeddingStore.createKey(spectra.getFirst()), EmbeddingStore.createKey(
+        new SimpleMassSpectrum(new double[]{100, 200}, new double[]{1, 3})));
+  }
+
+  @Test
+  void cosineSimilarity() {
+    float[][] similarityMatrix = EmbeddingBasedSimilarity.cosineSimilarity(
+        new float[][]{{1, 1, 0, 0}, {1, 0, 1, 1}}, new float[][]{{0, 1, 1, 0}, {0, 0, 1, 1}});
+    assertArrayEquals(new float[]{0.5f, 0f}, similarityMatrix[0], 1E-6f);
+    assertArrayEquals(new float[]{0.40824829f, 0.81649658f}, similarityMatrix[1], 1E-6f);
+  }
+
+  @Test
+  void symmetricCosineSimilarity() {
+    final float[][] embeddings = {{1, 1, 0, 0}, {1, 0, 1, 1}, {0, 1, 1, 0}};
+    final float[][] symmetric = EmbeddingBasedSimilarity.cosineSimilarity(embeddings, embeddings);
+    final float[][] full = EmbeddingBasedSimilarity.cosineSimilarity(embeddings,
+        embeddings.clone());
+    for (int i = 0; i < embeddings.length; i++) {
+      assertEquals(1f, symmetric[i][i], 1E-6f);
+      assertArrayEquals(full[i], symmetric[i], 1E-6f);
+    }
+  }
+}
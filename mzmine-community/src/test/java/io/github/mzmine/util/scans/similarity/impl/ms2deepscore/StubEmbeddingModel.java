@@ -0,0 +1,70 @@
+/*
+ * Copyright (c) 2004-2025 The mzmine Development Team
+ *
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+
+package io.github.mzmine.util.scans.similarity.impl.ms2deepscore;
+
+import ai.djl.ndarray.NDArray;
+import io.github.mzmine.datamodel.MassSpectrum;
+import java.util.List;
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * Embeds the first m/z, number of signals and a constant
+ */
+class StubEmbeddingModel extends EmbeddingBasedSimilarity<List<? extends MassSpectrum>> {
+
+  int predicted = 0;
+  int maxBatchSize = 0;
+
+  @Override
+  public NDArray predictEmbedding(List<? extends MassSpectrum> scans) {
+    throw new UnsupportedOperationException();
+  }
+
+  @Override
+  protected @NotNull List<? extends MassSpectrum> tensorize(
+      @NotNull List<? extends MassSpectrum> batch) {
+    return batch;
+  }
+
+  @Override
+  protected long getTensorBytes(@NotNull List<? extends MassSpectrum> tensors) {
+    return 0;
+  }
+
+  @Override
+  protected float[][] predictTensors(@NotNull List<? extends MassSpectrum> batch) {
+    predicted += batch.size();
+    maxBatchSize = Math.max(maxBatchSize, batch.size());
+    return batch.stream().map(
+        s -> new float[]{(float) s.getMzValue(0), s.getNumberOfDataPoints(), 1f}).toArray(
+        float[][]::new);
+  }
+
+  @Override
+  public @NotNull String getModelId() {
+    return "stub";
+  }
+}
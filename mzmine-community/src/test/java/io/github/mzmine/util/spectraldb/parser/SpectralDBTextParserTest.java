@@ -0,0 +1,121 @@
+/*
+ * Copyright (c) 2004-2025 The mzmine Development Team
+ *
+ * Permission is hereby granted, free of charge, to any person
+ * obtaining a copy of this software and associated documentation
+ * files (the "Software"), to deal in the Software without
+ * restriction, including without limitation the rights to use,
+ * copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the
+ * Software is furnished to do so, subject to the following
+ * conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES
+ * OF MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT
+ * HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY,
+ * WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING
+ * FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+
+package io.github.mzmine.util.spectraldb.parser;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import io.github.mzmine.util.spectraldb.entry.DBEntryField;
+import io.github.mzmine.util.spectraldb.entry.SpectralLibrary;
+import io.github.mzmine.util.spectraldb.entry.SpectralLibraryEntry;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * Libraries are larger than {@link SpectralDBTextParser#CHUNK_CHARS} so that they are split into
+ * multiple chunks that are parsed in parallel.
+ */
+class SpectralDBTextParserTest {
+
+  private static final int ENTRIES = 30_000;
+
+  @TempDir
+  Path tempDir;
+
+  @Test
+  void parseMspInOrder() throws IOException {
+    final StringBuilder msp = new StringBuilder();
+    for (int i = 0; i < ENTRIES; i++) {
+      msp.append("NAME: entry ").append(i).append('\n');
+      if (i % 2 == 0) {
+        msp.append("SMILES: CCO\n");
+      }
+      msp.append("PRECURSORMZ: ").append(100 + i).append('\n');
+      msp.append("NUM PEAKS: 3\n");
+      for (int p = 1; p <= 3; p++) {
+        msp.append(50 + p).append(".123456 ").append(p * 1000).append('\n');
+      }
+      msp.append('\n');
+    }
+    final File file = tempDir.resolve("library.msp").toFile();
+    Files.writeString(file.toPath(), msp);
+
+    assertEntriesInOrder(parse(NistMspParser::new, file));
+  }
+
+  @Test
+  void parseMgfInOrder() throws IOException {
+    final StringBuilder mgf = new StringBuilder();
+    for (int i = 0; i < ENTRIES; i++) {
+      mgf.append("BEGIN IONS\n");
+      mgf.append("NAME=entry ").append(i).append('\n');
+      if (i % 2 == 0) {
+        mgf.append("SMILES=CCO\n");
+      }
+      mgf.append("PEPMASS=").append(100 + i).append('\n');
+      for (int p = 1; p <= 3; p++) {
+        mgf.append(50 + p).append(".123456 ").append(p * 1000).append('\n');
+      }
+      mgf.append("END IONS\n\n");
+    }
+    final File file = tempDir.resolve("library.mgf").toFile();
+    Files.writeString(file.toPath(), mgf);
+
+    assertEntriesInOrder(parse(GnpsMgfParser::new, file));
+  }
+
+  private static void assertEntriesInOrder(List<SpectralLibraryEntry> entries) {
+    assertEquals(ENTRIES, entries.size());
+    for (int i = 0; i < ENTRIES; i++) {
+      final SpectralLibraryEntry entry = entries.get(i);
+      assertEquals("entry " + i, entry.getAsString(DBEntryField.NAME).orElseThrow());
+      assertEquals(3, entry.getNumberOfDataPoints());
+      // metadata is not carried over to the next entry
+      assertEquals(i % 2 == 0, entry.getField(DBEntryField.SMILES).isPresent());
+    }
+  }
+
+  private static List<SpectralLibraryEntry> parse(ParserFactory factory, File file)
+      throws IOException {
+    assertTrue(file.length() > 2 * SpectralDBTextParser.CHUNK_CHARS);
+    final List<SpectralLibraryEntry> entries = new ArrayList<>();
+    final SpectralDBTextParser parser = factory.create(1000,
+        (list, alreadyProcessed) -> entries.addAll(list));
+    assertTrue(parser.parse(null, file, new SpectralLibrary(null, file)));
+    return entries;
+  }
+
+  private interface ParserFactory {
+
+    SpectralDBTextParser create(int bufferEntries, LibraryEntryProcessor processor);
+  }
+}
@@ -0,0 +1,59 @@
+package util.lipidannotationtest;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import io.github.mzmine.datamodel.PolarityType;
+import io.github.mzmine.modules.dataprocessing.id_lipidid.annotation_modules.LipidChainConstraints;
+import io.github.mzmine.modules.dataprocessing.id_lipidid.annotation_modules.LipidLibrary;
+import io.github.mzmine.modules.dataprocessing.id_lipidid.common.identification.fragmentation.LipidFragmentTable;
+import io.github.mzmine.modules.dataprocessing.id_lipidid.common.lipids.ILipidClass;
+import io.github.mzmine.modules.dataprocessing.id_lipidid.common.lipids.LipidClasses;
+import java.util.Set;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+public class LipidLibraryTest {
+
+  private static final ILipidClass[] LIPID_CLASSES = new ILipidClass[]{
+      LipidClasses.DIACYLGLYCEROPHOSPHOCHOLINES, LipidClasses.DIACYLGLYCEROPHOSPHOETHANOLAMINES};
+  private static final Set<PolarityType> POLARITIES = Set.of(PolarityType.POSITIVE,
+      PolarityType.NEGATIVE);
+
+  @AfterEach
+  void clearCache() {
+    LipidLibrary.clearCache();
+  }
+
+  @Test
+  void testLibraryIsReusedForEqualConfiguration() {
+    LipidLibrary library = LipidLibrary.getOrBuild(LIPID_CLASSES,
+        new LipidChainConstraints(14, 20, 0, 2, true), null, POLARITIES);
+    assertSame(library, LipidLibrary.getOrBuild(LIPID_CLASSES.clone(),
+        new LipidChainConstraints(14, 20, 0, 2, true), null, Set.copyOf(POLARITIES)));
+    assertNotSame(library, LipidLibrary.getOrBuild(LIPID_CLASSES,
+        new LipidChainConstraints(14, 22, 0, 2, true), null, POLARITIES));
+  }
+
+  @Test
+  void testIonsAndFragmentsAreSorted() {
+    LipidLibrary library = LipidLibrary.getOrBuild(LIPID_CLASSES,
+        new LipidChainConstraints(14, 20, 0, 2, true), null, POLARITIES);
+    assertTrue(library.size() > 0);
+    for (int i = 1; i < library.size(); i++) {
+      assertTrue(library.getMz(i - 1) <= library.getMz(i));
+    }
+
+    for (int i = 0; i < library.size(); i++) {
+      LipidFragmentTable table = library.getFragmentTable(i);
+      assertSame(table, library.getFragmentTable(i));
+      for (int f = 1; f < table.size(); f++) {
+        assertTrue(table.getMz(f - 1) <= table.getMz(f));
+      }
+    }
+    assertEquals(0, library.indexOfFirstMz(0d));
+    assertEquals(-1, library.indexOfFirstMz(Double.MAX_VALUE));
+  }
+}
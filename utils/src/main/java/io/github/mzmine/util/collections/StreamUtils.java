@@ -26,16 +26,20 @@
 package io.github.mzmine.util.collections;
 
 import it.unimi.dsi.fastutil.Pair;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
 import java.util.Objects;
 import java.util.Set;
 import java.util.StringJoiner;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
 import java.util.function.BiConsumer;
 import java.util.function.BinaryOperator;
 import java.util.function.BooleanSupplier;
 import java.util.function.Consumer;
 import java.util.function.Function;
+import java.util.function.LongConsumer;
 import java.util.function.Supplier;
 import java.util.stream.Collector;
 import java.util.stream.Collectors;
@@ -152,16 +156,202 @@ public class StreamUtils {
   public static <INPUT> long processPairs(List<INPUT> items, @Nullable BooleanSupplier isCanceled,
       boolean parallel, @Nullable PairLoopBreakCondition<INPUT> loopBreaker,
       @NotNull Consumer<Pair<INPUT, INPUT>> processor) {
+    return processPairs(items, isCanceled, parallel, loopBreaker, null,
+        (a, b) -> processor.accept(Pair.of(a, b)));
+  }
 
-    var pairStream = loopBreaker == null ? streamPairs(items, isCanceled)
-        : streamPairs(items, isCanceled, loopBreaker);
+  /**
+   * Process all pairs in items without creating pair objects. The processor could make use of a
+   * ConcurrentHashMap or similar to keep track of the results - if parallel is true. See
+   * {@link #processIndexPairs(int, BooleanSupplier, boolean, IndexPairLoopBreakCondition,
+   * LongConsumer, IndexPairConsumer)}
+   *
+   * @param items       the list, should provide fast random access
+   * @param isCanceled  if task is cancelled this should be switched
+   * @param parallel    process on the common fork join pool
+   * @param loopBreaker breaks the inner loop that generates pairs. the first element is early in
+   *                    the list and the later element is a subsequent element.
+   * @param progress    receives the number of processed pairs after each tile
+   * @param processor   processes a pair of the first and a later element
+   * @param <INPUT>     type of list elements
+   * @return number of compared pairs that met the optional loop breaker condition
+   */
+  public static <INPUT> long processPairs(List<INPUT> items, @Nullable BooleanSupplier isCanceled,
+      boolean parallel, @Nullable PairLoopBreakCondition<INPUT> loopBreaker,
+      @Nullable LongConsumer progress, @NotNull BiConsumer<INPUT, INPUT> processor) {
+    final IndexPairLoopBreakCondition indexLoopBreaker = loopBreaker == null ? null
+        : (first, later) -> loopBreaker.isBreakLoop(items.get(first), items.get(later));
+    return processIndexPairs(items.size(), isCanceled, parallel, indexLoopBreaker, progress,
+        (first, later) -> processor.accept(items.get(first), items.get(later)));
+  }
+
+  /**
+   * Process all index pairs (first < later) of numItems. The outer index range is split
+   * recursively on a fork join pool so that idle threads steal work. Each leaf processes its pairs
+   * in tiles of 64 later elements, so that the data of a tile is reused for all first elements of
+   * the leaf. No objects are created per pair.
+   *
+   * @param numItems    number of items
+   * @param isCanceled  checked after each tile. Stops processing if true
+   * @param parallel    process on the common fork join pool
+   * @param loopBreaker breaks the inner loop of a first element, e.g., for a sliding window over
+   *                    sorted items
+   * @param progress    receives the number of processed pairs after each tile, may be called
+   *                    concurrently
+   * @param processor   processes a pair of indices, called concurrently if parallel
+   * @return number of processed pairs
+   */
+  public static long processIndexPairs(int numItems, @Nullable BooleanSupplier isCanceled,
+      boolean parallel, @Nullable IndexPairLoopBreakCondition loopBreaker,
+      @Nullable LongConsumer progress, @NotNull IndexPairConsumer processor) {
+    if (numItems < 2) {
+      return 0;
+    }
     if (parallel) {
-      pairStream = pairStream.parallel();
+      final PairProcessingTask task = new PairProcessingTask(numItems, 0, numItems - 1,
+          isCanceled, loopBreaker, progress, processor);
+      ForkJoinPool.commonPool().invoke(task);
+      return task.getProcessedPairs();
+    }
+
+    long pairs = 0;
+    for (int from = 0; from < numItems - 1; from += PairProcessingTask.TILE_SIZE) {
+      if (isCanceled != null && isCanceled.getAsBoolean()) {
+        break;
+      }
+      final PairProcessingTask leaf = new PairProcessingTask(numItems, from,
+          Math.min(from + PairProcessingTask.TILE_SIZE, numItems - 1), isCanceled, loopBreaker,
+          progress, processor);
+      leaf.processLeaf();
+      pairs += leaf.getProcessedPairs();
+    }
+    return pairs;
+  }
+
+  /**
+   * Splits the range of first indices by the estimated number of pairs. Without a loop breaker
+   * the first elements have far more pairs than the last ones.
+   */
+  private static final class PairProcessingTask extends RecursiveAction {
+
+    /**
+     * number of later elements that are processed for all first elements of a leaf before moving
+     * on
+     */
+    private static final int TILE_SIZE = 64;
+    /**
+     * leafs with fewer pairs are not split further
+     */
+    private static final long LEAF_PAIRS = 1 << 14;
+
+    private final int numItems;
+    private final int from;
+    private final int to;
+    private final @Nullable BooleanSupplier isCanceled;
+    private final @Nullable IndexPairLoopBreakCondition loopBreaker;
+    private final @Nullable LongConsumer progress;
+    private final @NotNull IndexPairConsumer processor;
+    private long processedPairs;
+
+    /**
+     * @param from first index of the first elements
+     * @param to   exclusive end of the first elements
+     */
+    private PairProcessingTask(int numItems, int from, int to,
+        @Nullable BooleanSupplier isCanceled, @Nullable IndexPairLoopBreakCondition loopBreaker,
+        @Nullable LongConsumer progress, @NotNull IndexPairConsumer processor) {
+      this.numItems = numItems;
+      this.from = from;
+      this.to = to;
+      this.isCanceled = isCanceled;
+      this.loopBreaker = loopBreaker;
+      this.progress = progress;
+      this.processor = processor;
+    }
+
+    /**
+     * @return maximum number of pairs with first elements in [from, to)
+     */
+    private long maxPairs(int from, int to) {
+      // sum of (numItems - 1 - i)
+      return (long) (to - from) * (numItems - 1) - ((long) from + to - 1) * (to - from) / 2;
+    }
+
+    private boolean isCanceled() {
+      return isCanceled != null && isCanceled.getAsBoolean();
+    }
+
+    @Override
+    protected void compute() {
+      if (isCanceled()) {
+        return;
+      }
+      if (to - from <= TILE_SIZE || maxPairs(from, to) <= LEAF_PAIRS) {
+        processLeaf();
+        return;
+      }
+
+      // split at half of the work
+      final long half = maxPairs(from, to) / 2;
+      int lower = from + 1;
+      int upper = to - 1;
+      while (lower < upper) {
+        int mid = (lower + upper) >>> 1;
+        if (maxPairs(from, mid) < half) {
+          lower = mid + 1;
+        } else {
+          upper = mid;
+        }
+      }
+      final var left = new PairProcessingTask(numItems, from, lower, isCanceled, loopBreaker,
+          progress, processor);
+      final var right = new PairProcessingTask(numItems, lower, to, isCanceled, loopBreaker,
+          progress, processor);
+      invokeAll(left, right);
+      processedPairs = left.getProcessedPairs() + right.getProcessedPairs();
+    }
+
+    private void processLeaf() {
+      // exclusive end of the inner loop for each first element, lowered by the loop breaker
+      final int[] ends = new int[to - from];
+      Arrays.fill(ends, numItems);
+      int maxEnd = numItems;
+
+      long pairs = 0;
+      for (int tileStart = from + 1; tileStart < maxEnd; tileStart += TILE_SIZE) {
+        final int tileEnd = Math.min(tileStart + TILE_SIZE, numItems);
+        long tilePairs = 0;
+        for (int first = from; first < to; first++) {
+          final int end = Math.min(tileEnd, ends[first - from]);
+          for (int later = Math.max(tileStart, first + 1); later < end; later++) {
+            if (loopBreaker != null && loopBreaker.isBreakLoop(first, later)) {
+              ends[first - from] = later;
+              break;
+            }
+            processor.accept(first, later);
+            tilePairs++;
+          }
+        }
+        pairs += tilePairs;
+        if (progress != null && tilePairs > 0) {
+          progress.accept(tilePairs);
+        }
+        if (isCanceled()) {
+          break;
+        }
+        if (loopBreaker != null) {
+          maxEnd = 0;
+          for (int end : ends) {
+            maxEnd = Math.max(maxEnd, end);
+          }
+        }
+      }
+      processedPairs = pairs;
+    }
+
+    private long getProcessedPairs() {
+      return processedPairs;
     }
-    return pairStream.mapToLong(pair -> {
-      processor.accept(pair);
-      return 1L;
-    }).sum();
   }
 
   /**
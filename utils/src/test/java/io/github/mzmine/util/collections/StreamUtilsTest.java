@@ -25,6 +25,10 @@
 
 package io.github.mzmine.util.collections;
 
+import java.util.List;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.IntStream;
 import java.util.stream.Stream;
 import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.Test;
@@ -38,4 +42,63 @@ class StreamUtilsTest {
     // empty
     Assertions.assertEquals("", Stream.of().collect(StreamUtils.joining(", ", "pre", "suffix")));
   }
-}
\ No newline at end of file
+
+  @Test
+  void processIndexPairsVisitsAllPairsOnce() {
+    for (int n : new int[]{0, 1, 2, 63, 64, 65, 1000}) {
+      for (boolean parallel : new boolean[]{false, true}) {
+        final int items = n;
+        AtomicIntegerArray visits = new AtomicIntegerArray(items * items);
+        AtomicLong progress = new AtomicLong();
+        long pairs = StreamUtils.processIndexPairs(items, null, parallel, null, progress::addAndGet,
+            (first, later) -> {
+              Assertions.assertTrue(first < later);
+              visits.incrementAndGet(first * items + later);
+            });
+        Assertions.assertEquals((long) items * (items - 1) / 2, pairs);
+        Assertions.assertEquals(pairs, progress.get());
+        for (int a = 0; a < items; a++) {
+          for (int b = a + 1; b < items; b++) {
+            Assertions.assertEquals(1, visits.get(a * items + b));
+          }
+        }
+      }
+    }
+  }
+
+  @Test
+  void processPairsWithLoopBreaker() {
+    // sorted values with a sliding window
+    List<Integer> values = IntStream.range(0, 2000).map(i -> i * 3 + (i % 7)).boxed().toList();
+    PairLoopBreakCondition<Integer> breaker = (first, later) -> later - first > 100;
+
+    long expected = 0;
+    for (int a = 0; a < values.size(); a++) {
+      for (int b = a + 1; b < values.size(); b++) {
+        if (breaker.isBreakLoop(values.get(a), values.get(b))) {
+          break;
+        }
+        expected++;
+      }
+    }
+
+    for (boolean parallel : new boolean[]{false, true}) {
+      AtomicLong processed = new AtomicLong();
+      long pairs = StreamUtils.processPairs(values, null, parallel, breaker, null, (a, b) -> {
+        Assertions.assertTrue(b - a <= 100);
+        processed.incrementAndGet();
+      });
+      Assertions.assertEquals(expected, pairs);
+      Assertions.assertEquals(expected, processed.get());
+    }
+  }
+
+  @Test
+  void processIndexPairsCanceled() {
+    AtomicLong processed = new AtomicLong();
+    long pairs = StreamUtils.processIndexPairs(5000, () -> true, true, null, null,
+        (first, later) -> processed.incrementAndGet());
+    Assertions.assertEquals(0, pairs);
+    Assertions.assertEquals(0, processed.get());
+  }
+}